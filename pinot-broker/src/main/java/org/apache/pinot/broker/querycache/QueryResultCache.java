@@ -0,0 +1,162 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.querycache;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.spi.env.PinotConfiguration;
+import org.apache.pinot.spi.utils.CommonConstants.Broker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The {@code QueryResultCache} caches the broker responses keyed by the server queries (after all the broker side
+ * rewrites) sent to the OFFLINE and REALTIME tables.
+ * <p>Each cached response records the routing versions (see
+ * {@link org.apache.pinot.broker.routing.BrokerRoutingManager#getRoutingVersion(String)}) of the queried tables, and
+ * is only served when the routing versions are unchanged, i.e. no segment has been added, removed or refreshed since
+ * the response was computed. Responses involving REALTIME tables are additionally bounded by a shorter TTL because the
+ * consuming segments keep changing without routing changes.
+ * <p>The responses are stored in serialized form so that the returned responses can be freely modified by the caller,
+ * and the cache is bounded by the total size of the serialized responses.
+ */
+@ThreadSafe
+public class QueryResultCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueryResultCache.class);
+  private static final String KEY_SEPARATOR = "\0";
+
+  private final Cache<String, CachedResponse> _cache;
+  private final long _realtimeTtlMs;
+
+  public QueryResultCache(long maxSizeBytes, long ttlMs, long realtimeTtlMs) {
+    // NOTE: Weight is the number of chars (2 bytes each) of the serialized response
+    _cache = CacheBuilder.newBuilder().maximumWeight(maxSizeBytes / 2)
+        .weigher((String key, CachedResponse value) -> key.length() + value._responseJsonString.length())
+        .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS).build();
+    _realtimeTtlMs = realtimeTtlMs;
+  }
+
+  /**
+   * Returns the {@code QueryResultCache} if it is enabled in the broker config, or {@code null} otherwise.
+   */
+  @Nullable
+  public static QueryResultCache create(PinotConfiguration config) {
+    if (!config.getProperty(Broker.CONFIG_OF_BROKER_RESULT_CACHE_ENABLED, Broker.DEFAULT_BROKER_RESULT_CACHE_ENABLED)) {
+      return null;
+    }
+    long maxSizeBytes = config.getProperty(Broker.CONFIG_OF_BROKER_RESULT_CACHE_MAX_SIZE_BYTES,
+        Broker.DEFAULT_BROKER_RESULT_CACHE_MAX_SIZE_BYTES);
+    long ttlMs =
+        config.getProperty(Broker.CONFIG_OF_BROKER_RESULT_CACHE_TTL_MS, Broker.DEFAULT_BROKER_RESULT_CACHE_TTL_MS);
+    long realtimeTtlMs = config.getProperty(Broker.CONFIG_OF_BROKER_RESULT_CACHE_REALTIME_TTL_MS,
+        Broker.DEFAULT_BROKER_RESULT_CACHE_REALTIME_TTL_MS);
+    LOGGER.info("Enabling broker result cache with max size: {} bytes, ttl: {}ms, realtime ttl: {}ms", maxSizeBytes,
+        ttlMs, realtimeTtlMs);
+    return new QueryResultCache(maxSizeBytes, ttlMs, realtimeTtlMs);
+  }
+
+  /**
+   * Returns the cache key for the given OFFLINE and REALTIME broker requests. The query options (e.g. timeout) should
+   * be the ones provided by the user, i.e. the key should be computed before the broker attaches the per-request
+   * query options.
+   */
+  public static String getCacheKey(@Nullable BrokerRequest offlineBrokerRequest,
+      @Nullable BrokerRequest realtimeBrokerRequest) {
+    StringBuilder stringBuilder = new StringBuilder();
+    if (offlineBrokerRequest != null) {
+      stringBuilder.append(offlineBrokerRequest.getPinotQuery());
+    }
+    stringBuilder.append(KEY_SEPARATOR);
+    if (realtimeBrokerRequest != null) {
+      stringBuilder.append(realtimeBrokerRequest.getPinotQuery());
+    }
+    return stringBuilder.toString();
+  }
+
+  /**
+   * Returns a copy of the cached response for the given key, or {@code null} if the response is not cached or is
+   * stale (computed with different routing versions, or expired for REALTIME tables).
+   *
+   * @param offlineRoutingVersion Current routing version of the OFFLINE table, or {@code -1} if not queried
+   * @param realtimeRoutingVersion Current routing version of the REALTIME table, or {@code -1} if not queried
+   */
+  @Nullable
+  public BrokerResponseNative get(String key, long offlineRoutingVersion, long realtimeRoutingVersion) {
+    CachedResponse cachedResponse = _cache.getIfPresent(key);
+    if (cachedResponse == null) {
+      return null;
+    }
+    if (cachedResponse._offlineRoutingVersion != offlineRoutingVersion
+        || cachedResponse._realtimeRoutingVersion != realtimeRoutingVersion || (realtimeRoutingVersion != -1
+        && System.currentTimeMillis() - cachedResponse._creationTimeMs > _realtimeTtlMs)) {
+      _cache.asMap().remove(key, cachedResponse);
+      return null;
+    }
+    try {
+      return BrokerResponseNative.fromJsonString(cachedResponse._responseJsonString);
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while deserializing the cached response, invalidating it", e);
+      _cache.asMap().remove(key, cachedResponse);
+      return null;
+    }
+  }
+
+  /**
+   * Caches the given response computed with the given routing versions.
+   */
+  public void put(String key, long offlineRoutingVersion, long realtimeRoutingVersion,
+      BrokerResponseNative brokerResponse) {
+    String responseJsonString;
+    try {
+      responseJsonString = brokerResponse.toJsonString();
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while serializing the response, skipping caching it", e);
+      return;
+    }
+    _cache.put(key, new CachedResponse(responseJsonString, offlineRoutingVersion, realtimeRoutingVersion,
+        System.currentTimeMillis()));
+  }
+
+  @VisibleForTesting
+  long size() {
+    return _cache.size();
+  }
+
+  private static class CachedResponse {
+    final String _responseJsonString;
+    final long _offlineRoutingVersion;
+    final long _realtimeRoutingVersion;
+    final long _creationTimeMs;
+
+    CachedResponse(String responseJsonString, long offlineRoutingVersion, long realtimeRoutingVersion,
+        long creationTimeMs) {
+      _responseJsonString = responseJsonString;
+      _offlineRoutingVersion = offlineRoutingVersion;
+      _realtimeRoutingVersion = realtimeRoutingVersion;
+      _creationTimeMs = creationTimeMs;
+    }
+  }
+}
@@ -45,6 +45,7 @@ import org.apache.commons.httpclient.methods.DeleteMethod;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.pinot.broker.api.RequesterIdentity;
 import org.apache.pinot.broker.broker.AccessControlFactory;
+import org.apache.pinot.broker.querycache.QueryResultCache;
 import org.apache.pinot.broker.querylog.QueryLogger;
 import org.apache.pinot.broker.queryquota.QueryQuotaManager;
 import org.apache.pinot.broker.routing.BrokerRoutingManager;
@@ -129,6 +130,7 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
   private final boolean _enableQueryLimitOverride;
   private final boolean _enableDistinctCountBitmapOverride;
   private final Map<Long, QueryServers> _queriesById;
+  private final QueryResultCache _queryResultCache;
 
   public BaseBrokerRequestHandler(PinotConfiguration config, String brokerId, BrokerRoutingManager routingManager,
       AccessControlFactory accessControlFactory, QueryQuotaManager queryQuotaManager, TableCache tableCache,
@@ -155,6 +157,7 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
     boolean enableQueryCancellation =
         Boolean.parseBoolean(config.getProperty(Broker.CONFIG_OF_BROKER_ENABLE_QUERY_CANCELLATION));
     _queriesById = enableQueryCancellation ? new ConcurrentHashMap<>() : null;
+    _queryResultCache = QueryResultCache.create(config);
     LOGGER.info(
         "Broker Id: {}, timeout: {}ms, query response limit: {}, query log length: {}, query log max rate: {}qps, "
             + "enabling query cancellation: {}", _brokerId, _brokerTimeoutMs, _queryResponseLimit,
@@ -562,6 +565,39 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
         realtimeBrokerRequest.getPinotQuery().setFilterExpression(null);
       }
 
+      // Serve the query from the result cache if the routing of the queried tables has not changed since the cached
+      // response was computed
+      // NOTE: The routing versions must be read before executing the query so that the cached response is invalidated
+      //       by any routing change happening during the execution.
+      String resultCacheKey = null;
+      long offlineRoutingVersion = -1;
+      long realtimeRoutingVersion = -1;
+      if (_queryResultCache != null && isResultCacheApplicable(pinotQuery, requestContext)) {
+        resultCacheKey = QueryResultCache.getCacheKey(offlineBrokerRequest, realtimeBrokerRequest);
+        if (offlineBrokerRequest != null) {
+          offlineRoutingVersion = _routingManager.getRoutingVersion(offlineTableName);
+        }
+        if (realtimeBrokerRequest != null) {
+          realtimeRoutingVersion = _routingManager.getRoutingVersion(realtimeTableName);
+        }
+        BrokerResponseNative cachedResponse =
+            _queryResultCache.get(resultCacheKey, offlineRoutingVersion, realtimeRoutingVersion);
+        if (cachedResponse != null) {
+          _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.RESULT_CACHE_HITS, 1);
+          long totalTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - compilationStartTimeNs);
+          cachedResponse.setTimeUsedMs(totalTimeMs);
+          requestContext.setQueryProcessingTime(totalTimeMs);
+          augmentStatistics(requestContext, cachedResponse);
+          _brokerMetrics.addTimedTableValue(rawTableName, BrokerTimer.QUERY_TOTAL_TIME_MS, totalTimeMs,
+              TimeUnit.MILLISECONDS);
+          _queryLogger.log(
+              new QueryLogger.QueryLogParams(requestId, query, requestContext, tableName, 0, new ServerStats(),
+                  cachedResponse, totalTimeMs, requesterIdentity));
+          return cachedResponse;
+        }
+        _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.RESULT_CACHE_MISSES, 1);
+      }
+
       // Calculate routing table for the query
       // TODO: Modify RoutingManager interface to directly take PinotQuery
       long routingStartTimeNs = System.nanoTime();
@@ -708,6 +744,12 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
             1);
       }
 
+      // Only cache complete responses
+      if (resultCacheKey != null && brokerResponse.getExceptionsSize() == 0
+          && brokerResponse.getNumServersQueried() == brokerResponse.getNumServersResponded()) {
+        _queryResultCache.put(resultCacheKey, offlineRoutingVersion, realtimeRoutingVersion, brokerResponse);
+      }
+
       // Set total query processing time
       long totalTimeMs = TimeUnit.NANOSECONDS.toMillis(executionEndTimeNs - compilationStartTimeNs);
       brokerResponse.setTimeUsedMs(totalTimeMs);
@@ -728,6 +770,19 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
     }
   }
 
+  /**
+   * Returns whether the result of the query can be served from and put into the result cache. EXPLAIN and traced
+   * queries are never cached, and the cache can be bypassed via query option.
+   */
+  private static boolean isResultCacheApplicable(PinotQuery pinotQuery, RequestContext requestContext) {
+    if (pinotQuery.isExplain() || requestContext.isSampledRequest()) {
+      return false;
+    }
+    Map<String, String> queryOptions = pinotQuery.getQueryOptions();
+    return queryOptions == null || (!Boolean.parseBoolean(queryOptions.get(Broker.Request.TRACE))
+        && !QueryOptionsUtils.isSkipResultCache(queryOptions));
+  }
+
   private void handleTimestampIndexOverride(PinotQuery pinotQuery, @Nullable TableConfig tableConfig) {
     if (tableConfig == null || tableConfig.getFieldConfigList() == null) {
       return;
@@ -51,6 +51,7 @@ import org.apache.pinot.query.catalog.PinotCatalog;
 import org.apache.pinot.query.mailbox.MailboxService;
 import org.apache.pinot.query.mailbox.MultiplexingMailboxService;
 import org.apache.pinot.query.planner.QueryPlan;
+import org.apache.pinot.query.planner.cache.QueryPlanCache;
 import org.apache.pinot.query.routing.WorkerManager;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.service.QueryConfig;
@@ -96,9 +97,15 @@ public class MultiStageBrokerRequestHandler extends BaseBrokerRequestHandler {
     _reducerPort = config.getProperty(QueryConfig.KEY_OF_QUERY_RUNNER_PORT, QueryConfig.DEFAULT_QUERY_RUNNER_PORT);
     _defaultBrokerTimeoutMs = config.getProperty(CommonConstants.Broker.CONFIG_OF_BROKER_TIMEOUT_MS,
         CommonConstants.Broker.DEFAULT_BROKER_TIMEOUT_MS);
+    QueryPlanCache queryPlanCache = QueryPlanCache.create(config);
+    if (queryPlanCache != null) {
+      // Schema and table config changes might change the query plans
+      tableCache.registerSchemaChangeListener(schemas -> queryPlanCache.invalidateAll());
+      tableCache.registerTableConfigChangeListener(tableConfigs -> queryPlanCache.invalidateAll());
+    }
     _queryEnvironment = new QueryEnvironment(new TypeFactory(new TypeSystem()),
         CalciteSchemaBuilder.asRootSchema(new PinotCatalog(tableCache)),
-        new WorkerManager(_reducerHostname, _reducerPort, routingManager), _tableCache);
+        new WorkerManager(_reducerHostname, _reducerPort, routingManager), _tableCache, queryPlanCache);
     _queryDispatcher = new QueryDispatcher();
 
     // it is OK to ignore the onDataAvailable callback because the broker top-level operators
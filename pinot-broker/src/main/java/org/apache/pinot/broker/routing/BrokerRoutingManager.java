@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 import org.apache.helix.AccessOption;
 import org.apache.helix.BaseDataAccessor;
@@ -43,6 +44,8 @@ import org.apache.pinot.broker.routing.adaptiveserverselector.AdaptiveServerSele
 import org.apache.pinot.broker.routing.adaptiveserverselector.AdaptiveServerSelectorFactory;
 import org.apache.pinot.broker.routing.instanceselector.InstanceSelector;
 import org.apache.pinot.broker.routing.instanceselector.InstanceSelectorFactory;
+import org.apache.pinot.broker.routing.segmentmetadata.NumDocsTracker;
+import org.apache.pinot.broker.routing.segmentmetadata.PartitionInfoTracker;
 import org.apache.pinot.broker.routing.segmentmetadata.SegmentZkMetadataFetchListener;
 import org.apache.pinot.broker.routing.segmentmetadata.SegmentZkMetadataFetcher;
 import org.apache.pinot.broker.routing.segmentpreselector.SegmentPreSelector;
@@ -59,10 +62,13 @@ import org.apache.pinot.common.request.BrokerRequest;
 import org.apache.pinot.common.utils.HashUtil;
 import org.apache.pinot.core.routing.RoutingManager;
 import org.apache.pinot.core.routing.RoutingTable;
+import org.apache.pinot.core.routing.TablePartitionInfo;
 import org.apache.pinot.core.routing.TimeBoundaryInfo;
 import org.apache.pinot.core.transport.ServerInstance;
 import org.apache.pinot.core.transport.server.routing.stats.ServerRoutingStatsManager;
+import org.apache.pinot.spi.config.table.ColumnPartitionConfig;
 import org.apache.pinot.spi.config.table.QueryConfig;
+import org.apache.pinot.spi.config.table.SegmentPartitionConfig;
 import org.apache.pinot.spi.config.table.TableConfig;
 import org.apache.pinot.spi.env.PinotConfiguration;
 import org.apache.pinot.spi.utils.CommonConstants.Helix;
@@ -86,6 +92,7 @@ import org.slf4j.LoggerFactory;
  *   <li>{@link #getRoutingTable(BrokerRequest, long)}: Returns the routing table for a query</li>
  *   <li>{@link #getTimeBoundaryInfo(String)}: Returns the time boundary info for a table</li>
  *   <li>{@link #getQueryTimeoutMs(String)}: Returns the table-level query timeout in milliseconds for a table</li>
+ *   <li>{@link #getRoutingVersion(String)}: Returns the version of the routing for a table</li>
  * </ul>
  *
  * TODO: Expose RoutingEntry class to get a consistent view in the broker request handler and save the redundant map
@@ -97,6 +104,8 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
   private final BrokerMetrics _brokerMetrics;
   private final Map<String, RoutingEntry> _routingEntryMap = new ConcurrentHashMap<>();
   private final Map<String, ServerInstance> _enabledServerInstanceMap = new ConcurrentHashMap<>();
+  // Used to assign a new version to the routing entry whenever the segments of the table might have changed
+  private final AtomicLong _routingVersionGenerator = new AtomicLong();
   // NOTE: _excludedServers doesn't need to be concurrent because it is only accessed within the synchronized block
   private final Set<String> _excludedServers = new HashSet<>();
   private final ServerRoutingStatsManager _serverRoutingStatsManager;
@@ -185,6 +194,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
               continue;
             }
             routingEntry.onAssignmentChange(idealState, externalView);
+            routingEntry.setRoutingVersion(_routingVersionGenerator.incrementAndGet());
           } catch (Exception e) {
             LOGGER.error(
                 "Caught unexpected exception while updating routing entry on segment assignment change for table: {}",
@@ -484,6 +494,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
         offlineTableTimeBoundaryManager.init(offlineTableIdealState, offlineTableExternalView,
             offlineTablePreSelectedOnlineSegments);
         offlineTableRoutingEntry.setTimeBoundaryManager(offlineTableTimeBoundaryManager);
+        offlineTableRoutingEntry.setRoutingVersion(_routingVersionGenerator.incrementAndGet());
       }
     }
 
@@ -494,12 +505,28 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     for (SegmentZkMetadataFetchListener listener : segmentPruners) {
       segmentZkMetadataFetcher.register(listener);
     }
+    // The number of documents and the segment partitions are only used for the multi-stage query planning
+    NumDocsTracker numDocsTracker = null;
+    PartitionInfoTracker partitionInfoTracker = null;
+    if (_pinotConfig != null && _pinotConfig.getProperty(Helix.CONFIG_OF_MULTI_STAGE_ENGINE_ENABLED,
+        Helix.DEFAULT_MULTI_STAGE_ENGINE_ENABLED)) {
+      numDocsTracker = new NumDocsTracker(tableNameWithType);
+      segmentZkMetadataFetcher.register(numDocsTracker);
+      SegmentPartitionConfig segmentPartitionConfig = tableConfig.getIndexingConfig().getSegmentPartitionConfig();
+      if (segmentPartitionConfig != null && segmentPartitionConfig.getColumnPartitionMap().size() == 1) {
+        Map.Entry<String, ColumnPartitionConfig> partitionEntry =
+            segmentPartitionConfig.getColumnPartitionMap().entrySet().iterator().next();
+        partitionInfoTracker =
+            new PartitionInfoTracker(tableNameWithType, partitionEntry.getKey(), partitionEntry.getValue());
+        segmentZkMetadataFetcher.register(partitionInfoTracker);
+      }
+    }
     segmentZkMetadataFetcher.init(idealState, externalView, preSelectedOnlineSegments);
 
     RoutingEntry routingEntry =
         new RoutingEntry(tableNameWithType, idealStatePath, externalViewPath, segmentPreSelector, segmentSelector,
             segmentPruners, instanceSelector, idealStateVersion, externalViewVersion, segmentZkMetadataFetcher,
-            timeBoundaryManager, queryTimeoutMs);
+            numDocsTracker, partitionInfoTracker, timeBoundaryManager, queryTimeoutMs, _routingVersionGenerator.incrementAndGet());
     if (_routingEntryMap.put(tableNameWithType, routingEntry) == null) {
       LOGGER.info("Built routing for table: {}", tableNameWithType);
     } else {
@@ -539,6 +566,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
         RoutingEntry routingEntry = _routingEntryMap.get(offlineTableName);
         if (routingEntry != null) {
           routingEntry.setTimeBoundaryManager(null);
+          routingEntry.setRoutingVersion(_routingVersionGenerator.incrementAndGet());
           LOGGER.info("Removed time boundary manager for table: {}", offlineTableName);
         }
       }
@@ -555,6 +583,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     RoutingEntry routingEntry = _routingEntryMap.get(tableNameWithType);
     if (routingEntry != null) {
       routingEntry.refreshSegment(segment);
+      routingEntry.setRoutingVersion(_routingVersionGenerator.incrementAndGet());
       LOGGER.info("Refreshed segment: {} for table: {}", segment, tableNameWithType);
     } else {
       LOGGER.warn("Routing does not exist for table: {}, skipping refreshing segment", tableNameWithType);
@@ -637,6 +666,43 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     return routingEntry != null ? routingEntry.getQueryTimeoutMs() : null;
   }
 
+  /**
+   * Returns the estimated total number of documents for the given table based on the segment ZK metadata, or -1 if
+   * the routing does not exist or the number of documents is not tracked (multi-stage engine not enabled).
+   */
+  @Override
+  public long getEstimatedNumDocs(String tableNameWithType) {
+    RoutingEntry routingEntry = _routingEntryMap.get(tableNameWithType);
+    if (routingEntry == null || routingEntry._numDocsTracker == null) {
+      return -1;
+    }
+    return routingEntry._numDocsTracker.getEstimatedNumDocs();
+  }
+
+  /**
+   * Returns the partition info for the given table based on the segment ZK metadata, or {@code null} if the routing
+   * does not exist, the table is not partitioned on a single column or the multi-stage engine is not enabled.
+   */
+  @Nullable
+  @Override
+  public TablePartitionInfo getTablePartitionInfo(String tableNameWithType) {
+    RoutingEntry routingEntry = _routingEntryMap.get(tableNameWithType);
+    if (routingEntry == null || routingEntry._partitionInfoTracker == null) {
+      return null;
+    }
+    return routingEntry._partitionInfoTracker.getTablePartitionInfo();
+  }
+
+  /**
+   * Returns the version of the routing for the given table, or {@code -1} if the routing does not exist. The version
+   * changes whenever the routing is rebuilt or the segments of the table are changed or refreshed, and can be used to
+   * detect stale query results computed with a previous routing.
+   */
+  public long getRoutingVersion(String tableNameWithType) {
+    RoutingEntry routingEntry = _routingEntryMap.get(tableNameWithType);
+    return routingEntry != null ? routingEntry.getRoutingVersion() : -1;
+  }
+
   private static class RoutingEntry {
     final String _tableNameWithType;
     final String _idealStatePath;
@@ -647,18 +713,21 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     final InstanceSelector _instanceSelector;
     final Long _queryTimeoutMs;
     final SegmentZkMetadataFetcher _segmentZkMetadataFetcher;
+    final NumDocsTracker _numDocsTracker;
+    final PartitionInfoTracker _partitionInfoTracker;
 
     // Cache IdealState and ExternalView version for the last update
     transient int _lastUpdateIdealStateVersion;
     transient int _lastUpdateExternalViewVersion;
     // Time boundary manager is only available for the offline part of the hybrid table
     transient TimeBoundaryManager _timeBoundaryManager;
+    transient volatile long _routingVersion;
 
     RoutingEntry(String tableNameWithType, String idealStatePath, String externalViewPath,
         SegmentPreSelector segmentPreSelector, SegmentSelector segmentSelector, List<SegmentPruner> segmentPruners,
         InstanceSelector instanceSelector, int lastUpdateIdealStateVersion, int lastUpdateExternalViewVersion,
-        SegmentZkMetadataFetcher segmentZkMetadataFetcher, @Nullable TimeBoundaryManager timeBoundaryManager,
-        @Nullable Long queryTimeoutMs) {
+        SegmentZkMetadataFetcher segmentZkMetadataFetcher, @Nullable NumDocsTracker numDocsTracker,
+        @Nullable PartitionInfoTracker partitionInfoTracker, @Nullable TimeBoundaryManager timeBoundaryManager, @Nullable Long queryTimeoutMs, long routingVersion) {
       _tableNameWithType = tableNameWithType;
       _idealStatePath = idealStatePath;
       _externalViewPath = externalViewPath;
@@ -671,6 +740,9 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
       _timeBoundaryManager = timeBoundaryManager;
       _queryTimeoutMs = queryTimeoutMs;
       _segmentZkMetadataFetcher = segmentZkMetadataFetcher;
+      _numDocsTracker = numDocsTracker;
+      _partitionInfoTracker = partitionInfoTracker;
+      _routingVersion = routingVersion;
     }
 
     String getTableNameWithType() {
@@ -698,6 +770,14 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
       return _queryTimeoutMs;
     }
 
+    long getRoutingVersion() {
+      return _routingVersion;
+    }
+
+    void setRoutingVersion(long routingVersion) {
+      _routingVersion = routingVersion;
+    }
+
     // NOTE: The change gets applied in sequence, and before change applied to all components, there could be some
     // inconsistency between components, which is fine because the inconsistency only exists for the newly changed
     // segments and only lasts for a very short time.
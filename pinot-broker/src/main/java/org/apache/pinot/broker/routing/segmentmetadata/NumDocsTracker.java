@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.routing.segmentmetadata;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.pinot.spi.utils.CommonConstants;
+
+
+/**
+ * The {@code NumDocsTracker} tracks the total number of documents of a table based on the segment ZK metadata, which
+ * is used as the table statistics for query planning.
+ * <p>Segments without the total docs in the ZK metadata (e.g. CONSUMING segments) are estimated with the average number
+ * of documents of the other segments.
+ */
+public class NumDocsTracker implements SegmentZkMetadataFetchListener {
+  private final String _tableNameWithType;
+  private final Map<String, Long> _segmentNumDocsMap = new HashMap<>();
+
+  private volatile long _estimatedNumDocs = -1;
+
+  public NumDocsTracker(String tableNameWithType) {
+    _tableNameWithType = tableNameWithType;
+  }
+
+  public String getTableNameWithType() {
+    return _tableNameWithType;
+  }
+
+  @Override
+  public synchronized void init(IdealState idealState, ExternalView externalView, List<String> onlineSegments,
+      List<ZNRecord> znRecords) {
+    for (int idx = 0; idx < onlineSegments.size(); idx++) {
+      _segmentNumDocsMap.put(onlineSegments.get(idx), getNumDocs(znRecords.get(idx)));
+    }
+    updateEstimatedNumDocs();
+  }
+
+  @Override
+  public synchronized void onAssignmentChange(IdealState idealState, ExternalView externalView,
+      Set<String> onlineSegments, List<String> pulledSegments, List<ZNRecord> znRecords) {
+    for (int idx = 0; idx < pulledSegments.size(); idx++) {
+      _segmentNumDocsMap.put(pulledSegments.get(idx), getNumDocs(znRecords.get(idx)));
+    }
+    _segmentNumDocsMap.keySet().retainAll(onlineSegments);
+    updateEstimatedNumDocs();
+  }
+
+  @Override
+  public synchronized void refreshSegment(String segment, @Nullable ZNRecord znRecord) {
+    _segmentNumDocsMap.put(segment, getNumDocs(znRecord));
+    updateEstimatedNumDocs();
+  }
+
+  /**
+   * Returns the estimated total number of documents of the table, or -1 if it cannot be estimated (no segment with
+   * known number of documents).
+   */
+  public long getEstimatedNumDocs() {
+    return _estimatedNumDocs;
+  }
+
+  private static long getNumDocs(@Nullable ZNRecord segmentZKMetadataZNRecord) {
+    return segmentZKMetadataZNRecord != null
+        ? segmentZKMetadataZNRecord.getLongField(CommonConstants.Segment.TOTAL_DOCS, -1) : -1;
+  }
+
+  private void updateEstimatedNumDocs() {
+    long numKnownDocs = 0;
+    int numKnownSegments = 0;
+    for (long numDocs : _segmentNumDocsMap.values()) {
+      if (numDocs >= 0) {
+        numKnownDocs += numDocs;
+        numKnownSegments++;
+      }
+    }
+    int numUnknownSegments = _segmentNumDocsMap.size() - numKnownSegments;
+    if (numUnknownSegments == 0) {
+      _estimatedNumDocs = numKnownDocs;
+    } else if (numKnownSegments == 0) {
+      _estimatedNumDocs = -1;
+    } else {
+      _estimatedNumDocs = numKnownDocs + numKnownDocs * numUnknownSegments / numKnownSegments;
+    }
+  }
+}
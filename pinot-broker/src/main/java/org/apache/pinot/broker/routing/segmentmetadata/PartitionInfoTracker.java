@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.routing.segmentmetadata;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.pinot.common.metadata.segment.SegmentPartitionMetadata;
+import org.apache.pinot.core.routing.TablePartitionInfo;
+import org.apache.pinot.segment.spi.partition.metadata.ColumnPartitionMetadata;
+import org.apache.pinot.spi.config.table.ColumnPartitionConfig;
+import org.apache.pinot.spi.utils.CommonConstants.Helix.StateModel.SegmentStateModel;
+import org.apache.pinot.spi.utils.CommonConstants.Segment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The {@code PartitionInfoTracker} tracks the partition of each segment for a table partitioned on a single column
+ * based on the segment partition metadata stored in ZK, which is used by the multi-stage query planning to execute
+ * queries on colocated partitions without shuffling the data.
+ * <p>Segments without valid partition metadata, with a partition function that does not match the table config, or
+ * containing multiple partitions are tracked as invalid.
+ * <p>The instances serving each segment are tracked from the external view, so that the multi-stage query planning can
+ * assign the workers by partition id.
+ */
+public class PartitionInfoTracker implements SegmentZkMetadataFetchListener {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PartitionInfoTracker.class);
+  private static final int INVALID_PARTITION_ID = -1;
+
+  private final String _tableNameWithType;
+  private final String _partitionColumn;
+  private final String _partitionFunctionName;
+  private final int _numPartitions;
+  private final Map<String, Integer> _segmentToPartitionIdMap = new HashMap<>();
+  private final Map<String, Set<String>> _segmentToInstancesMap = new HashMap<>();
+
+  private volatile TablePartitionInfo _tablePartitionInfo;
+
+  public PartitionInfoTracker(String tableNameWithType, String partitionColumn,
+      ColumnPartitionConfig columnPartitionConfig) {
+    _tableNameWithType = tableNameWithType;
+    _partitionColumn = partitionColumn;
+    _partitionFunctionName = columnPartitionConfig.getFunctionName();
+    _numPartitions = columnPartitionConfig.getNumPartitions();
+  }
+
+  @Override
+  public synchronized void init(IdealState idealState, ExternalView externalView, List<String> onlineSegments,
+      List<ZNRecord> znRecords) {
+    for (int idx = 0; idx < onlineSegments.size(); idx++) {
+      String segment = onlineSegments.get(idx);
+      _segmentToPartitionIdMap.put(segment, getPartitionId(segment, znRecords.get(idx)));
+    }
+    updateSegmentToInstancesMap(externalView);
+    updateTablePartitionInfo();
+  }
+
+  @Override
+  public synchronized void onAssignmentChange(IdealState idealState, ExternalView externalView,
+      Set<String> onlineSegments, List<String> pulledSegments, List<ZNRecord> znRecords) {
+    for (int idx = 0; idx < pulledSegments.size(); idx++) {
+      String segment = pulledSegments.get(idx);
+      _segmentToPartitionIdMap.put(segment, getPartitionId(segment, znRecords.get(idx)));
+    }
+    _segmentToPartitionIdMap.keySet().retainAll(onlineSegments);
+    updateSegmentToInstancesMap(externalView);
+    updateTablePartitionInfo();
+  }
+
+  @Override
+  public synchronized void refreshSegment(String segment, @Nullable ZNRecord znRecord) {
+    _segmentToPartitionIdMap.put(segment, getPartitionId(segment, znRecord));
+    updateTablePartitionInfo();
+  }
+
+  @Nullable
+  public TablePartitionInfo getTablePartitionInfo() {
+    return _tablePartitionInfo;
+  }
+
+  private int getPartitionId(String segment, @Nullable ZNRecord znRecord) {
+    if (znRecord == null) {
+      return INVALID_PARTITION_ID;
+    }
+    String partitionMetadataJson = znRecord.getSimpleField(Segment.PARTITION_METADATA);
+    if (partitionMetadataJson == null) {
+      return INVALID_PARTITION_ID;
+    }
+    SegmentPartitionMetadata segmentPartitionMetadata;
+    try {
+      segmentPartitionMetadata = SegmentPartitionMetadata.fromJsonString(partitionMetadataJson);
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while extracting segment partition metadata for segment: {}, table: {}", segment,
+          _tableNameWithType, e);
+      return INVALID_PARTITION_ID;
+    }
+    ColumnPartitionMetadata columnPartitionMetadata =
+        segmentPartitionMetadata.getColumnPartitionMap().get(_partitionColumn);
+    if (columnPartitionMetadata == null
+        || !_partitionFunctionName.equalsIgnoreCase(columnPartitionMetadata.getFunctionName())
+        || columnPartitionMetadata.getNumPartitions() != _numPartitions
+        || columnPartitionMetadata.getPartitions().size() != 1) {
+      return INVALID_PARTITION_ID;
+    }
+    return columnPartitionMetadata.getPartitions().iterator().next();
+  }
+
+  /**
+   * Updates the instances serving each tracked segment (ONLINE or CONSUMING in the external view).
+   */
+  private void updateSegmentToInstancesMap(ExternalView externalView) {
+    _segmentToInstancesMap.clear();
+    for (String segment : _segmentToPartitionIdMap.keySet()) {
+      Map<String, String> instanceStateMap = externalView.getStateMap(segment);
+      if (instanceStateMap == null) {
+        continue;
+      }
+      Set<String> instances = new HashSet<>();
+      for (Map.Entry<String, String> entry : instanceStateMap.entrySet()) {
+        String state = entry.getValue();
+        if (SegmentStateModel.ONLINE.equals(state) || SegmentStateModel.CONSUMING.equals(state)) {
+          instances.add(entry.getKey());
+        }
+      }
+      _segmentToInstancesMap.put(segment, instances);
+    }
+  }
+
+  private void updateTablePartitionInfo() {
+    Map<String, Integer> segmentToPartitionIdMap = new HashMap<>();
+    Set<String> segmentsWithInvalidPartition = new HashSet<>();
+    Map<Integer, Set<String>> partitionToInstancesMap = new HashMap<>();
+    for (Map.Entry<String, Integer> entry : _segmentToPartitionIdMap.entrySet()) {
+      String segment = entry.getKey();
+      int partitionId = entry.getValue();
+      if (partitionId == INVALID_PARTITION_ID) {
+        segmentsWithInvalidPartition.add(segment);
+      } else {
+        segmentToPartitionIdMap.put(segment, partitionId);
+        // Keep the instances serving all the segments of the partition
+        Set<String> instances = _segmentToInstancesMap.getOrDefault(segment, Collections.emptySet());
+        Set<String> partitionInstances = partitionToInstancesMap.get(partitionId);
+        if (partitionInstances == null) {
+          partitionToInstancesMap.put(partitionId, new HashSet<>(instances));
+        } else {
+          partitionInstances.retainAll(instances);
+        }
+      }
+    }
+    _tablePartitionInfo = new TablePartitionInfo(_tableNameWithType, _partitionColumn, _partitionFunctionName,
+        _numPartitions, segmentToPartitionIdMap, segmentsWithInvalidPartition, partitionToInstancesMap);
+  }
+}
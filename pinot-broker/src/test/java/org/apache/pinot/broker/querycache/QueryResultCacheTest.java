@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.querycache;
+
+import java.util.Collections;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.common.response.broker.ResultTable;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.spi.env.PinotConfiguration;
+import org.apache.pinot.spi.utils.CommonConstants.Broker;
+import org.apache.pinot.sql.parsers.CalciteSqlCompiler;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+
+public class QueryResultCacheTest {
+
+  @Test
+  public void testCreate() {
+    assertNull(QueryResultCache.create(new PinotConfiguration()));
+    assertNotNull(QueryResultCache.create(
+        new PinotConfiguration(Collections.singletonMap(Broker.CONFIG_OF_BROKER_RESULT_CACHE_ENABLED, "true"))));
+  }
+
+  @Test
+  public void testCacheKey() {
+    BrokerRequest brokerRequest1 = CalciteSqlCompiler.compileToBrokerRequest("SELECT COUNT(*) FROM myTable_OFFLINE");
+    BrokerRequest brokerRequest2 = CalciteSqlCompiler.compileToBrokerRequest("SELECT COUNT(*) FROM myTable_OFFLINE");
+    BrokerRequest brokerRequest3 = CalciteSqlCompiler.compileToBrokerRequest("SELECT MAX(a) FROM myTable_OFFLINE");
+    assertEquals(QueryResultCache.getCacheKey(brokerRequest1, null),
+        QueryResultCache.getCacheKey(brokerRequest2, null));
+    assertNotEquals(QueryResultCache.getCacheKey(brokerRequest1, null),
+        QueryResultCache.getCacheKey(brokerRequest3, null));
+    // Same query on the OFFLINE side should not match the REALTIME side
+    assertNotEquals(QueryResultCache.getCacheKey(brokerRequest1, null),
+        QueryResultCache.getCacheKey(null, brokerRequest1));
+  }
+
+  @Test
+  public void testRoutingVersionInvalidation() {
+    QueryResultCache cache = new QueryResultCache(1024 * 1024, 3_600_000L, 3_600_000L);
+    cache.put("key", 1, -1, getBrokerResponse());
+
+    BrokerResponseNative cachedResponse = cache.get("key", 1, -1);
+    assertNotNull(cachedResponse);
+    assertEquals(cachedResponse.getResultTable().getRows().get(0)[0], 123);
+    assertEquals(cachedResponse.getNumDocsScanned(), 10);
+    // Returned response should be a copy
+    cachedResponse.setResultTable(null);
+    assertNotNull(cache.get("key", 1, -1).getResultTable());
+
+    // Routing version changed, cached response should be invalidated
+    assertNull(cache.get("key", 2, -1));
+    assertEquals(cache.size(), 0);
+    assertNull(cache.get("key", 1, -1));
+  }
+
+  @Test
+  public void testRealtimeTtl() {
+    QueryResultCache cache = new QueryResultCache(1024 * 1024, 3_600_000L, 0L);
+    cache.put("offline", 1, -1, getBrokerResponse());
+    cache.put("hybrid", 1, 2, getBrokerResponse());
+    assertNotNull(cache.get("offline", 1, -1));
+    // NOTE: Sleep to ensure the REALTIME TTL has passed
+    try {
+      Thread.sleep(2);
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+    assertNull(cache.get("hybrid", 1, 2));
+  }
+
+  @Test
+  public void testMaxSize() {
+    // Each response is around 1KB serialized, so only a few of them can fit
+    QueryResultCache cache = new QueryResultCache(4 * 1024, 3_600_000L, 3_600_000L);
+    for (int i = 0; i < 100; i++) {
+      cache.put("key" + i, 1, -1, getBrokerResponse());
+    }
+    assertTrue(cache.size() < 100);
+    assertNotNull(cache.get("key99", 1, -1));
+  }
+
+  private static BrokerResponseNative getBrokerResponse() {
+    BrokerResponseNative brokerResponse = new BrokerResponseNative();
+    brokerResponse.setResultTable(
+        new ResultTable(new DataSchema(new String[]{"count(*)"}, new ColumnDataType[]{ColumnDataType.LONG}),
+            Collections.singletonList(new Object[]{123})));
+    brokerResponse.setNumDocsScanned(10);
+    return brokerResponse;
+  }
+}
@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.routing.segmentmetadata;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.pinot.spi.utils.CommonConstants;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+
+
+public class NumDocsTrackerTest {
+  private static final String REALTIME_TABLE_NAME = "testTable_REALTIME";
+
+  @Test
+  public void testNumDocsTracker() {
+    IdealState idealState = mock(IdealState.class);
+    ExternalView externalView = mock(ExternalView.class);
+    NumDocsTracker numDocsTracker = new NumDocsTracker(REALTIME_TABLE_NAME);
+    assertEquals(numDocsTracker.getEstimatedNumDocs(), -1);
+
+    // segment without total docs (e.g. CONSUMING segment) should be estimated with the average of the other segments
+    numDocsTracker.init(idealState, externalView, Arrays.asList("s0", "s1", "s2"),
+        Arrays.asList(getZNRecord("s0", 100), getZNRecord("s1", 200), getZNRecord("s2", -1)));
+    assertEquals(numDocsTracker.getEstimatedNumDocs(), 450);
+
+    // s0 removed, s3 added
+    numDocsTracker.onAssignmentChange(idealState, externalView, ImmutableSet.of("s1", "s2", "s3"),
+        Collections.singletonList("s3"), Collections.singletonList(getZNRecord("s3", 400)));
+    assertEquals(numDocsTracker.getEstimatedNumDocs(), 900);
+
+    // s2 committed
+    numDocsTracker.refreshSegment("s2", getZNRecord("s2", 300));
+    assertEquals(numDocsTracker.getEstimatedNumDocs(), 900);
+
+    // no segment with known number of documents
+    numDocsTracker.onAssignmentChange(idealState, externalView, ImmutableSet.of("s4"), Collections.singletonList("s4"),
+        Collections.singletonList(null));
+    assertEquals(numDocsTracker.getEstimatedNumDocs(), -1);
+
+    numDocsTracker.onAssignmentChange(idealState, externalView, Collections.emptySet(), Collections.emptyList(),
+        Collections.emptyList());
+    assertEquals(numDocsTracker.getEstimatedNumDocs(), 0);
+  }
+
+  private static ZNRecord getZNRecord(String segmentName, long numDocs) {
+    ZNRecord znRecord = new ZNRecord(segmentName);
+    if (numDocs >= 0) {
+      znRecord.setLongField(CommonConstants.Segment.TOTAL_DOCS, numDocs);
+    }
+    return znRecord;
+  }
+}
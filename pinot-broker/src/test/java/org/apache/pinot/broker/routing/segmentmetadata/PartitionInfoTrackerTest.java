@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.routing.segmentmetadata;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.pinot.common.metadata.segment.SegmentPartitionMetadata;
+import org.apache.pinot.core.routing.TablePartitionInfo;
+import org.apache.pinot.segment.spi.partition.metadata.ColumnPartitionMetadata;
+import org.apache.pinot.spi.config.table.ColumnPartitionConfig;
+import org.apache.pinot.spi.utils.CommonConstants;
+import org.testng.annotations.Test;
+
+import static org.apache.pinot.spi.utils.CommonConstants.Helix.StateModel.SegmentStateModel.CONSUMING;
+import static org.apache.pinot.spi.utils.CommonConstants.Helix.StateModel.SegmentStateModel.OFFLINE;
+import static org.apache.pinot.spi.utils.CommonConstants.Helix.StateModel.SegmentStateModel.ONLINE;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+
+public class PartitionInfoTrackerTest {
+  private static final String OFFLINE_TABLE_NAME = "testTable_OFFLINE";
+  private static final String PARTITION_COLUMN = "memberId";
+  private static final String PARTITION_FUNCTION = "Murmur";
+  private static final int NUM_PARTITIONS = 4;
+
+  @Test
+  public void testPartitionInfoTracker()
+      throws Exception {
+    IdealState idealState = mock(IdealState.class);
+    ExternalView externalView = mock(ExternalView.class);
+    when(externalView.getStateMap("s0")).thenReturn(ImmutableMap.of("server0", ONLINE, "server1", ONLINE));
+    when(externalView.getStateMap("s1")).thenReturn(ImmutableMap.of("server0", ONLINE, "server1", OFFLINE));
+    when(externalView.getStateMap("s5")).thenReturn(ImmutableMap.of("server1", CONSUMING));
+    PartitionInfoTracker partitionInfoTracker = new PartitionInfoTracker(OFFLINE_TABLE_NAME, PARTITION_COLUMN,
+        new ColumnPartitionConfig(PARTITION_FUNCTION, NUM_PARTITIONS));
+
+    ZNRecord invalidFunction = getZNRecord("s2", "Modulo", NUM_PARTITIONS, Collections.singleton(2));
+    ZNRecord multiplePartitions = getZNRecord("s3", PARTITION_FUNCTION, NUM_PARTITIONS, ImmutableSet.of(0, 1));
+    partitionInfoTracker.init(idealState, externalView, Arrays.asList("s0", "s1", "s2", "s3", "s4"),
+        Arrays.asList(getZNRecord("s0", PARTITION_FUNCTION, NUM_PARTITIONS, Collections.singleton(0)),
+            getZNRecord("s1", PARTITION_FUNCTION, NUM_PARTITIONS, Collections.singleton(1)), invalidFunction,
+            multiplePartitions, new ZNRecord("s4")));
+    TablePartitionInfo tablePartitionInfo = partitionInfoTracker.getTablePartitionInfo();
+    assertEquals(tablePartitionInfo.getTableNameWithType(), OFFLINE_TABLE_NAME);
+    assertEquals(tablePartitionInfo.getPartitionColumn(), PARTITION_COLUMN);
+    assertEquals(tablePartitionInfo.getNumPartitions(), NUM_PARTITIONS);
+    assertEquals(tablePartitionInfo.getSegmentToPartitionIdMap(), ImmutableMap.of("s0", 0, "s1", 1));
+    assertEquals(tablePartitionInfo.getSegmentsWithInvalidPartition(), ImmutableSet.of("s2", "s3", "s4"));
+    assertEquals(tablePartitionInfo.getPartitionToInstancesMap(),
+        ImmutableMap.of(0, ImmutableSet.of("server0", "server1"), 1, ImmutableSet.of("server0")));
+
+    // s0 removed, s5 added
+    partitionInfoTracker.onAssignmentChange(idealState, externalView, ImmutableSet.of("s1", "s2", "s3", "s4", "s5"),
+        Collections.singletonList("s5"),
+        Collections.singletonList(getZNRecord("s5", PARTITION_FUNCTION, NUM_PARTITIONS, Collections.singleton(3))));
+    tablePartitionInfo = partitionInfoTracker.getTablePartitionInfo();
+    assertEquals(tablePartitionInfo.getSegmentToPartitionIdMap(), ImmutableMap.of("s1", 1, "s5", 3));
+    assertEquals(tablePartitionInfo.getPartitionToInstancesMap(),
+        ImmutableMap.of(1, ImmutableSet.of("server0"), 3, ImmutableSet.of("server1")));
+
+    // s2 refreshed with valid partition
+    partitionInfoTracker.refreshSegment("s2",
+        getZNRecord("s2", PARTITION_FUNCTION, NUM_PARTITIONS, Collections.singleton(2)));
+    tablePartitionInfo = partitionInfoTracker.getTablePartitionInfo();
+    assertEquals(tablePartitionInfo.getSegmentToPartitionIdMap(), ImmutableMap.of("s1", 1, "s2", 2, "s5", 3));
+    assertEquals(tablePartitionInfo.getSegmentsWithInvalidPartition(), ImmutableSet.of("s3", "s4"));
+    // s2 is not in the external view yet
+    assertEquals(tablePartitionInfo.getPartitionToInstancesMap().get(2), Collections.emptySet());
+  }
+
+  private static ZNRecord getZNRecord(String segmentName, String partitionFunction, int numPartitions,
+      Set<Integer> partitions)
+      throws Exception {
+    ZNRecord znRecord = new ZNRecord(segmentName);
+    SegmentPartitionMetadata segmentPartitionMetadata = new SegmentPartitionMetadata(Collections.singletonMap(
+        PARTITION_COLUMN, new ColumnPartitionMetadata(partitionFunction, numPartitions, partitions, null)));
+    znRecord.setSimpleField(CommonConstants.Segment.PARTITION_METADATA, segmentPartitionMetadata.toJsonString());
+    return znRecord;
+  }
+}
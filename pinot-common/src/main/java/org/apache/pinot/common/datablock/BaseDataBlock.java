@@ -439,6 +439,14 @@ public abstract class BaseDataBlock implements DataBlock {
     ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
     DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
     writeLeadingSections(dataOutputStream);
+    // Write fixed size data bytes.
+    if (_fixedSizeDataBytes != null) {
+      dataOutputStream.write(_fixedSizeDataBytes);
+    }
+    // Write variable size data bytes.
+    if (_variableSizeDataBytes != null) {
+      dataOutputStream.write(_variableSizeDataBytes);
+    }
 
     // Write metadata: length followed by actual metadata bytes.
     // NOTE: We ignore metadata serialization time in "responseSerializationCpuTimeNs" as it's negligible while
@@ -450,6 +458,42 @@ public abstract class BaseDataBlock implements DataBlock {
     return byteArrayOutputStream.toByteArray();
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>The fixed size and variable size data are wrapped as is, and only the leading sections (header, exceptions,
+   * dictionary and data schema) and the metadata are serialized.
+   */
+  @Override
+  public ByteBuffer[] toByteBuffers()
+      throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+    writeLeadingSections(dataOutputStream);
+    ByteBuffer leadingSections = ByteBuffer.wrap(byteArrayOutputStream.toByteArray());
+
+    byte[] metadataBytes = serializeMetadata();
+    ByteBuffer metadata = ByteBuffer.allocate(Integer.BYTES + metadataBytes.length);
+    metadata.putInt(metadataBytes.length);
+    metadata.put(metadataBytes);
+    metadata.flip();
+
+    if (_fixedSizeDataBytes == null && _variableSizeDataBytes == null) {
+      return new ByteBuffer[]{leadingSections, metadata};
+    }
+    if (_variableSizeDataBytes == null) {
+      return new ByteBuffer[]{leadingSections, ByteBuffer.wrap(_fixedSizeDataBytes), metadata};
+    }
+    if (_fixedSizeDataBytes == null) {
+      return new ByteBuffer[]{leadingSections, ByteBuffer.wrap(_variableSizeDataBytes), metadata};
+    }
+    return new ByteBuffer[]{
+        leadingSections, ByteBuffer.wrap(_fixedSizeDataBytes), ByteBuffer.wrap(_variableSizeDataBytes), metadata
+    };
+  }
+
+  /**
+   * Writes the header, exceptions, dictionary and data schema sections.
+   */
   private void writeLeadingSections(DataOutputStream dataOutputStream)
       throws IOException {
     dataOutputStream.writeInt(getDataBlockVersionType());
@@ -514,14 +558,6 @@ public abstract class BaseDataBlock implements DataBlock {
     if (dataSchemaBytes != null) {
       dataOutputStream.write(dataSchemaBytes);
     }
-    // Write fixed size data bytes.
-    if (_fixedSizeDataBytes != null) {
-      dataOutputStream.write(_fixedSizeDataBytes);
-    }
-    // Write variable size data bytes.
-    if (_variableSizeDataBytes != null) {
-      dataOutputStream.write(_variableSizeDataBytes);
-    }
   }
 
   private byte[] serializeMetadata()
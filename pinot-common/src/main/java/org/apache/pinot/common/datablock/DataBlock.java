@@ -20,6 +20,7 @@ package org.apache.pinot.common.datablock;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import javax.annotation.Nullable;
 import org.apache.pinot.common.CustomObject;
@@ -45,6 +46,16 @@ public interface DataBlock {
   byte[] toBytes()
       throws IOException;
 
+  /**
+   * Serializes the data block into a list of {@link ByteBuffer}s, which concatenated together have the same content as
+   * {@link #toBytes()}. Implementations can avoid copying the data sections by wrapping the underlying buffers, so the
+   * returned buffers should not be modified.
+   */
+  default ByteBuffer[] toByteBuffers()
+      throws IOException {
+    return new ByteBuffer[]{ByteBuffer.wrap(toBytes())};
+  }
+
   // --------------------------------------------------------------------------
   // The following APIs are copied from {@link DataTable} and will be deprecated soon.
   // --------------------------------------------------------------------------
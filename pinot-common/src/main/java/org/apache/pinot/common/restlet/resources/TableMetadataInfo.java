@@ -22,6 +22,8 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.Map;
+import javax.annotation.Nullable;
+import org.apache.pinot.segment.spi.index.metadata.EquiDepthHistogram;
 
 
 /**
@@ -32,6 +34,9 @@ import java.util.Map;
  *   across all segments for the given table.
  * - For diskSizeInBytes/numSegments/numRows, both server API and controller API will return the total value across all
  *   segments (if a segment has multiple replicas, only consider one replica).
+ * - columnHistogramMap/columnNdvSketchMap/columnNdvMap are the merged histogram, merged NDV sketch and the estimated
+ *   number of distinct values across all segments (on that server for server API, or of the table for controller API).
+ *   They are only available for the segments with the column stats in the segment metadata.
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class TableMetadataInfo {
@@ -43,6 +48,9 @@ public class TableMetadataInfo {
   private final Map<String, Double> _columnCardinalityMap;
   private final Map<String, Double> _maxNumMultiValuesMap;
   private final Map<String, Map<String, Double>> _columnIndexSizeMap;
+  private final Map<String, EquiDepthHistogram> _columnHistogramMap;
+  private final Map<String, byte[]> _columnNdvSketchMap;
+  private final Map<String, Double> _columnNdvMap;
 
   @JsonCreator
   public TableMetadataInfo(@JsonProperty("tableName") String tableName,
@@ -50,7 +58,10 @@ public class TableMetadataInfo {
       @JsonProperty("numRows") long numRows, @JsonProperty("columnLengthMap") Map<String, Double> columnLengthMap,
       @JsonProperty("columnCardinalityMap") Map<String, Double> columnCardinalityMap,
       @JsonProperty("maxNumMultiValuesMap") Map<String, Double> maxNumMultiValuesMap,
-      @JsonProperty("columnIndexSizeMap") Map<String, Map<String, Double>> columnIndexSizeMap) {
+      @JsonProperty("columnIndexSizeMap") Map<String, Map<String, Double>> columnIndexSizeMap,
+      @JsonProperty("columnHistogramMap") @Nullable Map<String, EquiDepthHistogram> columnHistogramMap,
+      @JsonProperty("columnNdvSketchMap") @Nullable Map<String, byte[]> columnNdvSketchMap,
+      @JsonProperty("columnNdvMap") @Nullable Map<String, Double> columnNdvMap) {
     _tableName = tableName;
     _diskSizeInBytes = sizeInBytes;
     _numSegments = numSegments;
@@ -59,6 +70,9 @@ public class TableMetadataInfo {
     _columnCardinalityMap = columnCardinalityMap;
     _maxNumMultiValuesMap = maxNumMultiValuesMap;
     _columnIndexSizeMap = columnIndexSizeMap;
+    _columnHistogramMap = columnHistogramMap;
+    _columnNdvSketchMap = columnNdvSketchMap;
+    _columnNdvMap = columnNdvMap;
   }
 
   public String getTableName() {
@@ -92,4 +106,19 @@ public class TableMetadataInfo {
   public Map<String, Map<String, Double>> getColumnIndexSizeMap() {
     return _columnIndexSizeMap;
   }
+
+  @Nullable
+  public Map<String, EquiDepthHistogram> getColumnHistogramMap() {
+    return _columnHistogramMap;
+  }
+
+  @Nullable
+  public Map<String, byte[]> getColumnNdvSketchMap() {
+    return _columnNdvSketchMap;
+  }
+
+  @Nullable
+  public Map<String, Double> getColumnNdvMap() {
+    return _columnNdvMap;
+  }
 }
@@ -127,6 +127,10 @@ public class QueryOptionsUtils {
     return "false".equalsIgnoreCase(queryOptions.get(QueryOptionKey.USE_SCAN_REORDER_OPTIMIZATION));
   }
 
+  public static boolean isAdaptiveFilterReorder(Map<String, String> queryOptions) {
+    return Boolean.parseBoolean(queryOptions.get(QueryOptionKey.ADAPTIVE_FILTER_REORDER));
+  }
+
   @Nullable
   public static Integer getNumReplicaGroupsToQuery(Map<String, String> queryOptions) {
     String numReplicaGroupsToQuery = queryOptions.get(QueryOptionKey.NUM_REPLICA_GROUPS_TO_QUERY);
@@ -192,6 +196,20 @@ public class QueryOptionsUtils {
     return groupByTrimThreshold != null ? Integer.parseInt(groupByTrimThreshold) : null;
   }
 
+  @Nullable
+  public static Integer getSchedulerPriority(Map<String, String> queryOptions) {
+    String schedulerPriority = queryOptions.get(QueryOptionKey.SCHEDULER_PRIORITY);
+    return schedulerPriority != null ? Integer.parseInt(schedulerPriority) : null;
+  }
+
+  public static boolean isSkipResultCache(Map<String, String> queryOptions) {
+    return "false".equalsIgnoreCase(queryOptions.get(QueryOptionKey.USE_RESULT_CACHE));
+  }
+
+  public static boolean isSkipPlanCache(Map<String, String> queryOptions) {
+    return "false".equalsIgnoreCase(queryOptions.get(QueryOptionKey.USE_PLAN_CACHE));
+  }
+
   public static boolean shouldDropResults(Map<String, String> queryOptions) {
     return Boolean.parseBoolean(queryOptions.get(CommonConstants.Broker.Request.QueryOptionKey.DROP_RESULTS));
   }
@@ -54,6 +54,8 @@ import org.apache.pinot.common.utils.TarGzCompressionUtils;
 import org.apache.pinot.common.utils.config.TierConfigUtils;
 import org.apache.pinot.common.utils.fetcher.SegmentFetcherFactory;
 import org.apache.pinot.core.data.manager.offline.ImmutableSegmentDataManager;
+import org.apache.pinot.core.operator.filter.FilterSelectivityStats;
+import org.apache.pinot.core.query.cache.SegmentResultCache;
 import org.apache.pinot.core.util.PeerServerSegmentFinder;
 import org.apache.pinot.segment.local.data.manager.SegmentDataManager;
 import org.apache.pinot.segment.local.data.manager.TableDataManager;
@@ -186,6 +188,12 @@ public abstract class BaseTableDataManager implements TableDataManager {
     _logger.info("Shutting down table data manager for table: {}", _tableNameWithType);
     _shutDown = true;
     doShutdown();
+    // The filter stats of the table are no longer used, and should not be reused if the table is re-created
+    FilterSelectivityStats.getInstance().removeTable(_tableNameWithType);
+    SegmentResultCache segmentResultCache = SegmentResultCache.get();
+    if (segmentResultCache != null) {
+      segmentResultCache.invalidateTable(_tableNameWithType);
+    }
     _logger.info("Shut down table data manager for table: {}", _tableNameWithType);
   }
 
@@ -219,6 +227,7 @@ public abstract class BaseTableDataManager implements TableDataManager {
       _logger.info("Added new immutable segment: {} to table: {}", segmentName, _tableNameWithType);
     } else {
       _logger.info("Replaced immutable segment: {} of table: {}", segmentName, _tableNameWithType);
+      invalidateSegmentResultCache(segmentName);
       releaseSegment(oldSegmentManager);
     }
   }
@@ -247,6 +256,7 @@ public abstract class BaseTableDataManager implements TableDataManager {
     _logger.info("Removing segment: {} from table: {}", segmentName, _tableNameWithType);
     SegmentDataManager segmentDataManager = unregisterSegment(segmentName);
     if (segmentDataManager != null) {
+      invalidateSegmentResultCache(segmentName);
       releaseSegment(segmentDataManager);
       _logger.info("Removed segment: {} from table: {}", segmentName, _tableNameWithType);
     } else {
@@ -254,6 +264,16 @@ public abstract class BaseTableDataManager implements TableDataManager {
     }
   }
 
+  /**
+   * Invalidates the cached query results of the given segment when it is reloaded, replaced or removed.
+   */
+  protected void invalidateSegmentResultCache(String segmentName) {
+    SegmentResultCache segmentResultCache = SegmentResultCache.get();
+    if (segmentResultCache != null) {
+      segmentResultCache.invalidateSegment(_tableNameWithType, segmentName);
+    }
+  }
+
   /**
    * Returns true if the given segment has been deleted recently. The time range is determined by
    * {@link org.apache.pinot.spi.config.instance.InstanceDataManagerConfig#getDeletedSegmentsCacheTtlMinutes()}.
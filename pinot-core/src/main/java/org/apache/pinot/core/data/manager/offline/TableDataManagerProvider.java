@@ -19,8 +19,13 @@
 package org.apache.pinot.core.data.manager.offline;
 
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -44,6 +49,7 @@ import org.apache.pinot.spi.utils.IngestionConfigUtils;
  */
 public class TableDataManagerProvider {
   private static Semaphore _segmentBuildSemaphore;
+  private static ExecutorService _realtimeIngestionExecutor;
   private static TableDataManagerParams _tableDataManagerParams;
 
   private TableDataManagerProvider() {
@@ -54,6 +60,20 @@ public class TableDataManagerProvider {
     if (maxParallelBuilds > 0) {
       _segmentBuildSemaphore = new Semaphore(maxParallelBuilds, true);
     }
+    int maxIngestionThreads = instanceDataManagerConfig.getMaxRealtimeIngestionThreads();
+    if (maxIngestionThreads <= 0) {
+      maxIngestionThreads = Runtime.getRuntime().availableProcessors();
+    }
+    if (_realtimeIngestionExecutor != null) {
+      _realtimeIngestionExecutor.shutdownNow();
+    }
+    // Shared by all the consuming segments of the server, idle threads are released between the message batches
+    ThreadPoolExecutor realtimeIngestionExecutor =
+        new ThreadPoolExecutor(maxIngestionThreads, maxIngestionThreads, 1, TimeUnit.MINUTES,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("realtime-ingestion-%d").build());
+    realtimeIngestionExecutor.allowCoreThreadTimeOut(true);
+    _realtimeIngestionExecutor = realtimeIngestionExecutor;
     _tableDataManagerParams = new TableDataManagerParams(instanceDataManagerConfig);
   }
 
@@ -85,7 +105,8 @@ public class TableDataManagerProvider {
               + "configured the segmentstore uri. Configure the server config %s",
               StreamConfigProperties.SERVER_UPLOAD_TO_DEEPSTORE, CommonConstants.Server.CONFIG_OF_SEGMENT_STORE_URI));
         }
-        tableDataManager = new RealtimeTableDataManager(_segmentBuildSemaphore, isServerReadyToServeQueries);
+        tableDataManager = new RealtimeTableDataManager(_segmentBuildSemaphore, _realtimeIngestionExecutor,
+            isServerReadyToServeQueries);
         break;
       default:
         throw new IllegalStateException();
@@ -30,6 +30,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -213,6 +214,8 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
   private static final int MSG_COUNT_THRESHOLD_FOR_LOG = 100000;
   private static final int BUILD_TIME_LEASE_SECONDS = 30;
   private static final int MAX_CONSECUTIVE_ERROR_COUNT = 5;
+  // Maximum number of rows (possibly from multiple messages) indexed into the mutable segment in one batch
+  private static final int MAX_NUM_ROWS_TO_INDEX_IN_BATCH = 1000;
 
   private final SegmentZKMetadata _segmentZKMetadata;
   private final TableConfig _tableConfig;
@@ -265,6 +268,8 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
   private final PartitionGroupConsumptionStatus _partitionGroupConsumptionStatus;
   final String _clientId;
   private final TransformPipeline _transformPipeline;
+  // Decodes and transforms the messages on a worker pool when the ingestion parallelism is configured
+  private final RealtimeIngestionPipeline _ingestionPipeline;
   private PartitionGroupConsumer _partitionGroupConsumer = null;
   private StreamMetadataProvider _partitionMetadataProvider = null;
   private final File _resourceTmpDir;
@@ -520,18 +525,19 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
     int messageCount = messagesAndOffsets.getMessageCount();
     _rateLimiter.throttle(messageCount);
 
-    PinotMeter realtimeRowsConsumedMeter = null;
     PinotMeter realtimeRowsDroppedMeter = null;
     PinotMeter realtimeIncompleteRowsConsumedMeter = null;
 
-    int indexedMessageCount = 0;
+    PendingRows pendingRows = new PendingRows();
     int streamMessageCount = 0;
-    boolean canTakeMore = true;
     boolean hasTransformedRows = false;
 
     TransformPipeline.Result reusedResult = new TransformPipeline.Result();
     boolean prematureExit = false;
     RowMetadata msgMetadata = null;
+    if (_ingestionPipeline != null) {
+      _ingestionPipeline.start(messagesAndOffsets);
+    }
 
     for (int index = 0; index < messageCount; index++) {
       prematureExit = _shouldStop || endCriteriaReached();
@@ -541,7 +547,7 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
         }
         break;
       }
-      if (!canTakeMore) {
+      if (!pendingRows._canTakeMore) {
         // The RealtimeSegmentImpl that we are pushing rows into has indicated that it cannot accept any more
         // rows. This can happen in one of two conditions:
         // 1. We are in INITIAL_CONSUMING state, and we somehow exceeded the max number of rows we are allowed to
@@ -563,8 +569,28 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
         throw new RuntimeException("Realtime segment full");
       }
 
-      // Decode message
-      StreamDataDecoderResult decodedRow = _streamDataDecoder.decode(messagesAndOffsets.getStreamMessage(index));
+      // Decode and transform message
+      StreamDataDecoderResult decodedRow;
+      TransformPipeline.Result transformResult;
+      Exception transformException = null;
+      if (_ingestionPipeline != null) {
+        RealtimeIngestionPipeline.ProcessedMessage processedMessage = _ingestionPipeline.get(index);
+        decodedRow = processedMessage.getDecoderResult();
+        transformResult = processedMessage.getTransformResult();
+        transformException = processedMessage.getTransformException();
+      } else {
+        decodedRow = _streamDataDecoder.decode(messagesAndOffsets.getStreamMessage(index));
+        transformResult = reusedResult;
+        if (decodedRow.getException() == null) {
+          try {
+            _transformPipeline.processRow(decodedRow.getResult(), reusedResult);
+          } catch (Exception e) {
+            transformException = e;
+            // when exception happens we prefer abandoning the whole batch and not partially indexing some rows
+            reusedResult.getTransformedRows().clear();
+          }
+        }
+      }
       msgMetadata = messagesAndOffsets.getStreamMessage(index).getMetadata();
       if (decodedRow.getException() != null) {
         // TODO: based on a config, decide whether the record should be silently dropped or stop further consumption on
@@ -574,55 +600,45 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
                 realtimeRowsDroppedMeter);
         _numRowsErrored++;
       } else {
-        try {
-          _transformPipeline.processRow(decodedRow.getResult(), reusedResult);
-        } catch (Exception e) {
+        if (transformException != null) {
           _numRowsErrored++;
-          // when exception happens we prefer abandoning the whole batch and not partially indexing some rows
-          reusedResult.getTransformedRows().clear();
           String errorMessage = String.format("Caught exception while transforming the record: %s", decodedRow);
-          _segmentLogger.error(errorMessage, e);
-          _realtimeTableDataManager.addSegmentError(_segmentNameStr, new SegmentErrorInfo(now(), errorMessage, e));
+          _segmentLogger.error(errorMessage, transformException);
+          _realtimeTableDataManager.addSegmentError(_segmentNameStr,
+              new SegmentErrorInfo(now(), errorMessage, transformException));
         }
-        if (reusedResult.getSkippedRowCount() > 0) {
+        if (transformResult.getSkippedRowCount() > 0) {
           realtimeRowsDroppedMeter =
               _serverMetrics.addMeteredTableValue(_clientId, ServerMeter.REALTIME_ROWS_FILTERED,
-                  reusedResult.getSkippedRowCount(), realtimeRowsDroppedMeter);
+                  transformResult.getSkippedRowCount(), realtimeRowsDroppedMeter);
         }
-        if (reusedResult.getIncompleteRowCount() > 0) {
+        if (transformResult.getIncompleteRowCount() > 0) {
           realtimeIncompleteRowsConsumedMeter =
               _serverMetrics.addMeteredTableValue(_clientId, ServerMeter.INCOMPLETE_REALTIME_ROWS_CONSUMED,
-                  reusedResult.getIncompleteRowCount(), realtimeIncompleteRowsConsumedMeter);
+                  transformResult.getIncompleteRowCount(), realtimeIncompleteRowsConsumedMeter);
         }
-        List<GenericRow> transformedRows = reusedResult.getTransformedRows();
+        List<GenericRow> transformedRows = transformResult.getTransformedRows();
         if (transformedRows.size() > 0) {
           hasTransformedRows = true;
         }
-        for (GenericRow transformedRow : transformedRows) {
-          try {
-            canTakeMore = _realtimeSegment.index(transformedRow, msgMetadata);
-            indexedMessageCount++;
-            _lastRowMetadata = msgMetadata;
-            _lastConsumedTimestampMs = System.currentTimeMillis();
-            realtimeRowsConsumedMeter =
-                _serverMetrics.addMeteredTableValue(_clientId, ServerMeter.REALTIME_ROWS_CONSUMED, 1,
-                    realtimeRowsConsumedMeter);
-          } catch (Exception e) {
-            _numRowsErrored++;
-            String errorMessage = String.format("Caught exception while indexing the record: %s", transformedRow);
-            _segmentLogger.error(errorMessage, e);
-            _realtimeTableDataManager.addSegmentError(_segmentNameStr,
-                new SegmentErrorInfo(now(), errorMessage, e));
-          }
-        }
+        // The rows are reused for the next message when decoded without the ingestion pipeline
+        pendingRows.add(transformedRows, msgMetadata, _ingestionPipeline == null);
       }
       _currentOffset = messagesAndOffsets.getNextStreamPartitionMsgOffsetAtIndex(index);
-      _numRowsIndexed = _realtimeSegment.getNumDocsIndexed();
       _numRowsConsumed++;
       streamMessageCount++;
+      // Index the pending rows before they can be reused by the ingestion pipeline (next chunk), and before the row
+      // limit is reached so that the end criteria is checked against the exact number of indexed rows
+      if (pendingRows.size() >= MAX_NUM_ROWS_TO_INDEX_IN_BATCH
+          || _realtimeSegment.getNumDocsIndexed() + pendingRows.size() >= _segmentMaxRowCount
+          || (_ingestionPipeline != null && (index + 1) % RealtimeIngestionPipeline.CHUNK_SIZE == 0)) {
+        pendingRows.flush();
+      }
     }
+    // All the messages before the current offset must be indexed before returning
+    pendingRows.flush();
 
-    if (indexedMessageCount > 0) {
+    if (pendingRows._numIndexedRows > 0) {
       // Record Ingestion delay for this partition with metadata for last message we processed
       updateIngestionDelay(_lastRowMetadata);
     } else if (!hasTransformedRows && (msgMetadata != null)) {
@@ -641,7 +657,7 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
       }
       if (streamMessageCount > 0 && _segmentLogger.isDebugEnabled()) {
         _segmentLogger.debug("Indexed {} messages ({} messages read from stream) current offset {}",
-            indexedMessageCount, streamMessageCount, _currentOffset);
+            pendingRows._numIndexedRows, streamMessageCount, _currentOffset);
       }
     } else if (!prematureExit) {
       // Record Pinot ingestion delay as zero since we are up-to-date and no new events
@@ -655,6 +671,74 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
     return prematureExit;
   }
 
+  /**
+   * Rows of consecutive messages pending to be indexed into the mutable segment. The rows are indexed column by column
+   * in one batch, and indexed one by one to locate the invalid rows when the batch cannot be indexed (in which case
+   * none of the rows is indexed by the batch).
+   */
+  private class PendingRows {
+    final List<GenericRow> _rows = new ArrayList<>();
+    final List<RowMetadata> _rowMetadataList = new ArrayList<>();
+    int _numIndexedRows;
+    boolean _canTakeMore = true;
+    PinotMeter _realtimeRowsConsumedMeter;
+
+    int size() {
+      return _rows.size();
+    }
+
+    void add(List<GenericRow> rows, @Nullable RowMetadata rowMetadata, boolean copy) {
+      for (GenericRow row : rows) {
+        _rows.add(copy ? row.copy() : row);
+        _rowMetadataList.add(rowMetadata);
+      }
+    }
+
+    void flush() {
+      int numRows = _rows.size();
+      if (numRows == 0) {
+        return;
+      }
+      boolean indexedInBatch = false;
+      if (numRows > 1) {
+        RowMetadata lastRowMetadata = _rowMetadataList.get(numRows - 1);
+        try {
+          _canTakeMore = _realtimeSegment.index(_rows, lastRowMetadata);
+          indexedInBatch = true;
+          onRowsIndexed(numRows, lastRowMetadata);
+        } catch (Exception e) {
+          _segmentLogger.debug("Caught exception while indexing {} records in batch", numRows, e);
+        }
+      }
+      if (!indexedInBatch) {
+        for (int i = 0; i < numRows; i++) {
+          GenericRow row = _rows.get(i);
+          try {
+            _canTakeMore = _realtimeSegment.index(row, _rowMetadataList.get(i));
+            onRowsIndexed(1, _rowMetadataList.get(i));
+          } catch (Exception e) {
+            _numRowsErrored++;
+            String errorMessage = String.format("Caught exception while indexing the record: %s", row);
+            _segmentLogger.error(errorMessage, e);
+            _realtimeTableDataManager.addSegmentError(_segmentNameStr, new SegmentErrorInfo(now(), errorMessage, e));
+          }
+        }
+      }
+      _rows.clear();
+      _rowMetadataList.clear();
+      _numRowsIndexed = _realtimeSegment.getNumDocsIndexed();
+    }
+
+    private void onRowsIndexed(int numRows, @Nullable RowMetadata rowMetadata) {
+      _numIndexedRows += numRows;
+      _lastRowMetadata = rowMetadata;
+      _lastConsumedTimestampMs = System.currentTimeMillis();
+      _realtimeRowsConsumedMeter =
+          _serverMetrics.addMeteredTableValue(_clientId, ServerMeter.REALTIME_ROWS_CONSUMED, numRows,
+              _realtimeRowsConsumedMeter);
+    }
+  }
+
   public class PartitionConsumer implements Runnable {
     public void run() {
       long initialConsumptionEnd = 0L;
@@ -1266,6 +1350,9 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
     }
     _realtimeSegment.destroy();
     closeStreamConsumers();
+    if (_ingestionPipeline != null) {
+      _ingestionPipeline.close();
+    }
     cleanupMetrics();
   }
 
@@ -1422,6 +1509,19 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
     StreamMessageDecoder streamMessageDecoder = StreamDecoderProvider.create(_partitionLevelStreamConfig, fieldsToRead);
     _streamDataDecoder = new StreamDataDecoderImpl(streamMessageDecoder);
     _transformPipeline = new TransformPipeline(tableConfig, schema);
+    int ingestionParallelism = _partitionLevelStreamConfig.getIngestionParallelism();
+    ExecutorService ingestionExecutor = realtimeTableDataManager.getIngestionExecutor();
+    if (ingestionParallelism > 1 && ingestionExecutor != null) {
+      _segmentLogger.info("Decoding and transforming messages with parallelism: {}", ingestionParallelism);
+      _ingestionPipeline = new RealtimeIngestionPipeline(ingestionExecutor, ingestionParallelism,
+          () -> new StreamDataDecoderImpl(StreamDecoderProvider.create(_partitionLevelStreamConfig, fieldsToRead)),
+          () -> new TransformPipeline(tableConfig, schema));
+    } else {
+      if (ingestionParallelism > 1) {
+        _segmentLogger.warn("No ingestion executor configured, decoding and transforming messages on consumer thread");
+      }
+      _ingestionPipeline = null;
+    }
     // Acquire semaphore to create stream consumers
     try {
       _partitionGroupConsumerSemaphore.acquire();
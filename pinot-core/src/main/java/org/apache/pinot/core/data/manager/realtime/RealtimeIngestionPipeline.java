@@ -0,0 +1,225 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.manager.realtime;
+
+import com.google.common.base.Preconditions;
+import java.io.Closeable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.pinot.segment.local.segment.creator.TransformPipeline;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.stream.MessageBatch;
+import org.apache.pinot.spi.stream.StreamDataDecoderImpl;
+import org.apache.pinot.spi.stream.StreamDataDecoderResult;
+
+
+/**
+ * The {@code RealtimeIngestionPipeline} decodes and transforms the messages of a stream partition on a worker pool
+ * shared by all the consuming segments of the server, so that the consumer thread only has to index the transformed
+ * rows.
+ *
+ * <p>The messages of a batch are split into chunks of consecutive messages, and each chunk is processed by one of the
+ * slots of a ring buffer. Each slot owns its own decoder, transform pipeline and rows as they are not thread-safe. The
+ * consumer thread reads the processed messages in order, and a slot is only reused for a following chunk once the
+ * consumer thread has moved past its current chunk. This preserves the message ordering within the partition, and
+ * bounds both the number of decoded rows held in memory and the number of worker threads a partition can occupy.
+ *
+ * <p>All the methods should be called from the consumer thread.
+ */
+@NotThreadSafe
+public class RealtimeIngestionPipeline implements Closeable {
+  static final int CHUNK_SIZE = 64;
+  private static final int SLOTS_PER_THREAD = 2;
+
+  private final ExecutorService _executorService;
+  private final Slot[] _slots;
+
+  private MessageBatch _messageBatch;
+  private int _numMessages;
+  private int _numChunks;
+  private int _nextChunkToSubmit;
+  private int _currentChunk;
+
+  /**
+   * @param executorService Worker pool shared with the other partitions, which is not shut down by this pipeline
+   * @param parallelism Maximum number of chunks of this partition processed concurrently
+   * @param decoderSupplier Supplier of the decoder for each slot
+   * @param transformPipelineSupplier Supplier of the transform pipeline for each slot
+   */
+  public RealtimeIngestionPipeline(ExecutorService executorService, int parallelism,
+      Supplier<StreamDataDecoderImpl> decoderSupplier, Supplier<TransformPipeline> transformPipelineSupplier) {
+    Preconditions.checkArgument(parallelism > 0, "Ingestion parallelism must be positive, got: %s", parallelism);
+    _executorService = executorService;
+    _slots = new Slot[parallelism * SLOTS_PER_THREAD];
+    for (int i = 0; i < _slots.length; i++) {
+      _slots[i] = new Slot(decoderSupplier.get(), transformPipelineSupplier.get());
+    }
+  }
+
+  /**
+   * Starts decoding and transforming the messages of the given batch. The messages of the previous batch that have not
+   * been read can no longer be read after this call.
+   */
+  public void start(MessageBatch messageBatch) {
+    awaitAll();
+    _messageBatch = messageBatch;
+    _numMessages = messageBatch.getMessageCount();
+    _numChunks = (_numMessages + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    _nextChunkToSubmit = 0;
+    _currentChunk = -1;
+    int numInitialChunks = Math.min(_numChunks, _slots.length);
+    while (_nextChunkToSubmit < numInitialChunks) {
+      submitNextChunk();
+    }
+  }
+
+  /**
+   * Returns the processed message at the given index of the current batch, waiting for it to be processed if needed.
+   * The messages must be read in order, and the returned message is only valid until the next chunk is read.
+   */
+  public ProcessedMessage get(int index) {
+    Preconditions.checkArgument(index < _numMessages, "Message index: %s out of range: %s", index, _numMessages);
+    int chunk = index / CHUNK_SIZE;
+    Slot slot = _slots[chunk % _slots.length];
+    if (chunk != _currentChunk) {
+      Preconditions.checkState(chunk == _currentChunk + 1, "Messages must be read in order");
+      // The slot of the previous chunk is released, and can process the next chunk to submit
+      if (_currentChunk >= 0 && _nextChunkToSubmit < _numChunks) {
+        submitNextChunk();
+      }
+      _currentChunk = chunk;
+      slot.await();
+    }
+    return slot._messages[index - chunk * CHUNK_SIZE];
+  }
+
+  private void submitNextChunk() {
+    int chunk = _nextChunkToSubmit++;
+    int startIndex = chunk * CHUNK_SIZE;
+    int endIndex = Math.min(startIndex + CHUNK_SIZE, _numMessages);
+    Slot slot = _slots[chunk % _slots.length];
+    MessageBatch messageBatch = _messageBatch;
+    slot._future = _executorService.submit(() -> slot.process(messageBatch, startIndex, endIndex));
+  }
+
+  private void awaitAll() {
+    for (Slot slot : _slots) {
+      slot.await();
+    }
+  }
+
+  /**
+   * Cancels the chunks that are not processed yet. The shared worker pool is left running.
+   */
+  @Override
+  public void close() {
+    for (Slot slot : _slots) {
+      slot.cancel();
+    }
+  }
+
+  /**
+   * The result of decoding and transforming a message.
+   */
+  public static class ProcessedMessage {
+    private final GenericRow _decodedRow = new GenericRow();
+    private final TransformPipeline.Result _transformResult = new TransformPipeline.Result();
+    private StreamDataDecoderResult _decoderResult;
+    private Exception _transformException;
+
+    public StreamDataDecoderResult getDecoderResult() {
+      return _decoderResult;
+    }
+
+    /**
+     * Returns the transformed rows, which is empty if the message cannot be decoded or transformed.
+     */
+    public TransformPipeline.Result getTransformResult() {
+      return _transformResult;
+    }
+
+    /**
+     * Returns the exception thrown while transforming the decoded row, or {@code null} if the row is transformed.
+     */
+    @Nullable
+    public Exception getTransformException() {
+      return _transformException;
+    }
+  }
+
+  private static class Slot {
+    final StreamDataDecoderImpl _decoder;
+    final TransformPipeline _transformPipeline;
+    final ProcessedMessage[] _messages = new ProcessedMessage[CHUNK_SIZE];
+    Future<?> _future;
+
+    Slot(StreamDataDecoderImpl decoder, TransformPipeline transformPipeline) {
+      _decoder = decoder;
+      _transformPipeline = transformPipeline;
+      for (int i = 0; i < CHUNK_SIZE; i++) {
+        _messages[i] = new ProcessedMessage();
+      }
+    }
+
+    void process(MessageBatch messageBatch, int startIndex, int endIndex) {
+      for (int index = startIndex; index < endIndex; index++) {
+        ProcessedMessage message = _messages[index - startIndex];
+        message._transformResult.reset();
+        message._transformException = null;
+        message._decoderResult = _decoder.decode(messageBatch.getStreamMessage(index), message._decodedRow);
+        if (message._decoderResult.getException() == null) {
+          try {
+            _transformPipeline.processRow(message._decoderResult.getResult(), message._transformResult);
+          } catch (Exception e) {
+            // Abandon the whole message instead of partially indexing some rows
+            message._transformException = e;
+            message._transformResult.getTransformedRows().clear();
+          }
+        }
+      }
+    }
+
+    void cancel() {
+      if (_future != null) {
+        _future.cancel(false);
+        _future = null;
+      }
+    }
+
+    void await() {
+      if (_future == null) {
+        return;
+      }
+      try {
+        _future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while waiting for the messages to be decoded", e);
+      } catch (ExecutionException e) {
+        throw new RuntimeException("Caught exception while decoding the messages", e.getCause());
+      } finally {
+        _future = null;
+      }
+    }
+  }
+}
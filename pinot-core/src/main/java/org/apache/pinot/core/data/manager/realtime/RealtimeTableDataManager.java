@@ -29,10 +29,12 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BooleanSupplier;
 import java.util.function.Supplier;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.FileUtils;
@@ -87,6 +89,8 @@ public class RealtimeTableDataManager extends BaseTableDataManager {
   private SegmentBuildTimeLeaseExtender _leaseExtender;
   private RealtimeSegmentStatsHistory _statsHistory;
   private final Semaphore _segmentBuildSemaphore;
+  // Shared by all the tables of the server to decode and transform the messages when ingestion parallelism is set
+  private final ExecutorService _ingestionExecutor;
   // Maintains a map of partitionGroup
   // Ids to semaphores.
   // The semaphore ensures that exactly one PartitionConsumer instance consumes from any stream partition.
@@ -131,7 +135,13 @@ public class RealtimeTableDataManager extends BaseTableDataManager {
   }
 
   public RealtimeTableDataManager(Semaphore segmentBuildSemaphore, Supplier<Boolean> isServerReadyToServeQueries) {
+    this(segmentBuildSemaphore, null, isServerReadyToServeQueries);
+  }
+
+  public RealtimeTableDataManager(Semaphore segmentBuildSemaphore, @Nullable ExecutorService ingestionExecutor,
+      Supplier<Boolean> isServerReadyToServeQueries) {
     _segmentBuildSemaphore = segmentBuildSemaphore;
+    _ingestionExecutor = ingestionExecutor;
     _isServerReadyToServeQueries = isServerReadyToServeQueries;
   }
 
@@ -196,7 +206,7 @@ public class RealtimeTableDataManager extends BaseTableDataManager {
       Preconditions.checkState(!CollectionUtils.isEmpty(primaryKeyColumns),
           "Primary key columns must be configured for dedup");
       _tableDedupMetadataManager = new TableDedupMetadataManager(_tableNameWithType, primaryKeyColumns, _serverMetrics,
-          dedupConfig.getHashFunction());
+          dedupConfig, tableConfig.getValidationConfig().getTimeColumnName());
     }
 
     UpsertConfig upsertConfig = tableConfig.getUpsertConfig();
@@ -260,6 +270,13 @@ public class RealtimeTableDataManager extends BaseTableDataManager {
       for (SegmentDataManager segmentDataManager : _segmentDataManagerMap.values()) {
         segmentDataManager.destroy();
       }
+      if (_tableDedupMetadataManager != null) {
+        try {
+          _tableDedupMetadataManager.close();
+        } catch (IOException e) {
+          _logger.warn("Cannot close dedup metadata manager properly for table: {}", _tableNameWithType, e);
+        }
+      }
     }
     if (_leaseExtender != null) {
       _leaseExtender.shutDown();
@@ -326,6 +343,11 @@ public class RealtimeTableDataManager extends BaseTableDataManager {
     return _segmentBuildSemaphore;
   }
 
+  @Nullable
+  public ExecutorService getIngestionExecutor() {
+    return _ingestionExecutor;
+  }
+
   public String getConsumerDir() {
     String consumerDirPath = _tableDataManagerConfig.getConsumerDir();
     File consumerDir;
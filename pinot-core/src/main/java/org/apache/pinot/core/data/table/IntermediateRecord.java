@@ -34,4 +34,12 @@ public class IntermediateRecord {
     _record = record;
     _values = values;
   }
+
+  /**
+   * Creates an intermediate record without the values to be ordered, e.g. for the segment level records which are
+   * already trimmed.
+   */
+  public static IntermediateRecord create(Key key, Record record) {
+    return new IntermediateRecord(key, record, null);
+  }
 }
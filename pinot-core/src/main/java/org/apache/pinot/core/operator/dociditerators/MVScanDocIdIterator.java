@@ -19,6 +19,8 @@
 package org.apache.pinot.core.operator.dociditerators;
 
 import java.util.OptionalInt;
+import javax.annotation.Nullable;
+import org.apache.pinot.core.operator.filter.FilterSelectivityStats;
 import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluator;
 import org.apache.pinot.segment.spi.Constants;
 import org.apache.pinot.segment.spi.datasource.DataSource;
@@ -47,6 +49,12 @@ public final class MVScanDocIdIterator implements ScanBasedDocIdIterator {
 
   private int _nextDocId = 0;
   private long _numEntriesScanned = 0L;
+  private long _numDocsEvaluated = 0L;
+  private long _numDocsMatched = 0L;
+  // Set when the iterator skips documents (e.g. within an AND), in which case the selectivity is sampled instead of
+  // recorded from the scan
+  private boolean _conditional = false;
+  private FilterSelectivityStats.Recorder _selectivityRecorder;
 
   public MVScanDocIdIterator(PredicateEvaluator predicateEvaluator, DataSource dataSource, int numDocs) {
     _predicateEvaluator = predicateEvaluator;
@@ -65,15 +73,19 @@ public final class MVScanDocIdIterator implements ScanBasedDocIdIterator {
       // TODO: The performance can be improved by batching the docID lookups similar to how it's done in
       //       SVScanDocIdIterator
       boolean doesValueMatch = _valueMatcher.doesValueMatch(nextDocId);
+      _numDocsEvaluated++;
       if (doesValueMatch) {
+        _numDocsMatched++;
         return nextDocId;
       }
     }
+    recordSelectivity();
     return Constants.EOF;
   }
 
   @Override
   public int advance(int targetDocId) {
+    sampleSelectivity();
     _nextDocId = targetDocId;
     return next();
   }
@@ -94,6 +106,9 @@ public final class MVScanDocIdIterator implements ScanBasedDocIdIterator {
           .runCompress(false)
           .get();
     }
+    sampleSelectivity();
+    long startTimeNs = _selectivityRecorder != null ? System.nanoTime() : 0L;
+    long numDocsEvaluated = 0L;
     int[] buffer = new int[OPTIMAL_ITERATOR_BATCH_SIZE];
     while (docIdIterator.hasNext()) {
       int limit = docIdIterator.nextBatch(buffer);
@@ -106,10 +121,70 @@ public final class MVScanDocIdIterator implements ScanBasedDocIdIterator {
           result.add(nextDocId);
         }
       }
+      numDocsEvaluated += limit;
+    }
+    if (_selectivityRecorder != null) {
+      // Only the documents matching the other predicates are evaluated, so only the cost is recorded
+      _selectivityRecorder.recordCost(numDocsEvaluated, System.nanoTime() - startTimeNs);
+      _selectivityRecorder = null;
     }
     return result.get();
   }
 
+  @Override
+  public void setSelectivityRecorder(@Nullable FilterSelectivityStats.Recorder selectivityRecorder) {
+    _selectivityRecorder = selectivityRecorder;
+  }
+
+  /**
+   * Records the stats once per scan, see {@link SVScanDocIdIterator} for details.
+   */
+  private void recordSelectivity() {
+    if (_selectivityRecorder != null) {
+      if (!_conditional) {
+        _selectivityRecorder.recordSelectivity(_numDocsEvaluated, _numDocsMatched);
+      }
+      _selectivityRecorder = null;
+    }
+  }
+
+  /**
+   * Samples the selectivity before the first conditional evaluation, see {@link SVScanDocIdIterator} for details.
+   */
+  private void sampleSelectivity() {
+    if (_conditional) {
+      return;
+    }
+    _conditional = true;
+    if (_selectivityRecorder == null) {
+      return;
+    }
+    long startTimeNs = System.nanoTime();
+    int numBlocks;
+    int blockSize;
+    if (_numDocs <= FilterSelectivityStats.SAMPLE_NUM_DOCS) {
+      numBlocks = 1;
+      blockSize = _numDocs;
+    } else {
+      numBlocks = FilterSelectivityStats.SAMPLE_NUM_BLOCKS;
+      blockSize = FilterSelectivityStats.SAMPLE_NUM_DOCS / FilterSelectivityStats.SAMPLE_NUM_BLOCKS;
+    }
+    int blockDistance = _numDocs / numBlocks;
+    long numDocsMatched = 0L;
+    for (int i = 0; i < numBlocks; i++) {
+      int startDocId = i * blockDistance;
+      int endDocId = startDocId + blockSize;
+      for (int docId = startDocId; docId < endDocId; docId++) {
+        if (_valueMatcher.doesValueMatch(docId)) {
+          numDocsMatched++;
+        }
+      }
+    }
+    long numDocsSampled = (long) numBlocks * blockSize;
+    _selectivityRecorder.recordSelectivity(numDocsSampled, numDocsMatched);
+    _selectivityRecorder.recordCost(numDocsSampled, System.nanoTime() - startTimeNs);
+  }
+
   @Override
   public long getNumEntriesScanned() {
     return _numEntriesScanned;
@@ -21,6 +21,7 @@ package org.apache.pinot.core.operator.dociditerators;
 import java.util.OptionalInt;
 import javax.annotation.Nullable;
 import org.apache.pinot.core.common.BlockDocIdIterator;
+import org.apache.pinot.core.operator.filter.FilterSelectivityStats;
 import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluator;
 import org.apache.pinot.segment.spi.Constants;
 import org.apache.pinot.segment.spi.datasource.DataSource;
@@ -53,6 +54,11 @@ public final class SVScanDocIdIterator implements ScanBasedDocIdIterator {
 
   private int _nextDocId = 0;
   private long _numEntriesScanned = 0L;
+  private long _numDocsMatched = 0L;
+  // Set when the iterator skips documents (e.g. within an AND), in which case the selectivity is sampled instead of
+  // recorded from the scan
+  private boolean _conditional = false;
+  private FilterSelectivityStats.Recorder _selectivityRecorder;
 
   public SVScanDocIdIterator(PredicateEvaluator predicateEvaluator, DataSource dataSource, int numDocs,
       @Nullable NullValueVectorReader nullValueReader, int batchSize) {
@@ -99,11 +105,13 @@ public final class SVScanDocIdIterator implements ScanBasedDocIdIterator {
           batchSize = _valueMatcher.matchValues(limit, _batch);
           _nextDocId += limit;
           _numEntriesScanned += limit;
+          _numDocsMatched += batchSize;
         }
       } while (limit > 0 & batchSize == 0);
       _firstMismatch = batchSize;
       _cursor = 0;
       if (_firstMismatch == 0) {
+        recordSelectivity();
         return Constants.EOF;
       }
     }
@@ -112,6 +120,7 @@ public final class SVScanDocIdIterator implements ScanBasedDocIdIterator {
 
   @Override
   public int advance(int targetDocId) {
+    sampleSelectivity();
     _nextDocId = targetDocId;
     _firstMismatch = 0;
     while (_nextDocId < _numDocs) {
@@ -140,6 +149,9 @@ public final class SVScanDocIdIterator implements ScanBasedDocIdIterator {
           .runCompress(false)
           .get();
     }
+    sampleSelectivity();
+    long startTimeNs = _selectivityRecorder != null ? System.nanoTime() : 0L;
+    long numDocsEvaluated = 0L;
     int[] buffer = new int[_batch.length];
     while (docIdIterator.hasNext()) {
       int limit = docIdIterator.nextBatch(buffer);
@@ -149,11 +161,81 @@ public final class SVScanDocIdIterator implements ScanBasedDocIdIterator {
           result.add(buffer[i]);
         }
       }
-      _numEntriesScanned += limit;
+      numDocsEvaluated += limit;
+    }
+    _numEntriesScanned += numDocsEvaluated;
+    if (_selectivityRecorder != null) {
+      // Only the documents matching the other predicates are evaluated, so only the cost is recorded
+      _selectivityRecorder.recordCost(numDocsEvaluated, System.nanoTime() - startTimeNs);
+      _selectivityRecorder = null;
     }
     return result.get();
   }
 
+  @Override
+  public void setSelectivityRecorder(@Nullable FilterSelectivityStats.Recorder selectivityRecorder) {
+    _selectivityRecorder = selectivityRecorder;
+  }
+
+  /**
+   * Records the selectivity once the scan reaches the end without skipping any document. Scans which stop before
+   * reaching the end are not recorded because the matching documents are not evenly distributed across the doc id
+   * range, and scans which skip documents (e.g. within an AND) are sampled in {@link #sampleSelectivity()} instead
+   * because the selectivity observed from the scan is conditioned by the other predicates.
+   */
+  private void recordSelectivity() {
+    if (_selectivityRecorder != null) {
+      if (!_conditional) {
+        _selectivityRecorder.recordSelectivity(_numEntriesScanned, _numDocsMatched);
+      }
+      _selectivityRecorder = null;
+    }
+  }
+
+  /**
+   * Evaluates the predicate on a fixed window of documents evenly spread across the segment and records the
+   * selectivity and the cost before the first conditional evaluation, so that the predicates within an AND of scans
+   * still get their unconditional selectivity recorded.
+   */
+  private void sampleSelectivity() {
+    if (_conditional) {
+      return;
+    }
+    _conditional = true;
+    if (_selectivityRecorder == null) {
+      return;
+    }
+    long startTimeNs = System.nanoTime();
+    int numBlocks;
+    int blockSize;
+    if (_numDocs <= FilterSelectivityStats.SAMPLE_NUM_DOCS) {
+      numBlocks = 1;
+      blockSize = _numDocs;
+    } else {
+      numBlocks = FilterSelectivityStats.SAMPLE_NUM_BLOCKS;
+      blockSize = FilterSelectivityStats.SAMPLE_NUM_DOCS / FilterSelectivityStats.SAMPLE_NUM_BLOCKS;
+    }
+    int blockDistance = _numDocs / numBlocks;
+    int[] buffer = new int[_batch.length];
+    long numDocsMatched = 0L;
+    for (int i = 0; i < numBlocks; i++) {
+      int docId = i * blockDistance;
+      int endDocId = docId + blockSize;
+      while (docId < endDocId) {
+        int limit = Math.min(endDocId - docId, buffer.length);
+        for (int j = 0; j < limit; j++) {
+          buffer[j] = docId + j;
+        }
+        numDocsMatched += _valueMatcher.matchValues(limit, buffer);
+        docId += limit;
+      }
+    }
+    long numDocsSampled = (long) numBlocks * blockSize;
+    _numEntriesScanned += numDocsSampled;
+    _selectivityRecorder.recordSelectivity(numDocsSampled, numDocsMatched);
+    _selectivityRecorder.recordCost(numDocsSampled, System.nanoTime() - startTimeNs);
+  }
+
   @Override
   public long getNumEntriesScanned() {
     return _numEntriesScanned;
@@ -19,7 +19,9 @@
 package org.apache.pinot.core.operator.dociditerators;
 
 import java.util.OptionalInt;
+import javax.annotation.Nullable;
 import org.apache.pinot.core.common.BlockDocIdIterator;
+import org.apache.pinot.core.operator.filter.FilterSelectivityStats;
 import org.roaringbitmap.BatchIterator;
 import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
 import org.roaringbitmap.buffer.MutableRoaringBitmap;
@@ -54,6 +56,13 @@ public interface ScanBasedDocIdIterator extends BlockDocIdIterator {
    */
   long getNumEntriesScanned();
 
+  /**
+   * Sets the recorder to record the number of evaluated/matching documents (and the evaluation time when available)
+   * once the scan is done. The stats are used to reorder the filter operators for the following queries.
+   */
+  default void setSelectivityRecorder(@Nullable FilterSelectivityStats.Recorder selectivityRecorder) {
+  }
+
   /**
    * Returns the estimated (effective) cardinality of the underlying data source
    */
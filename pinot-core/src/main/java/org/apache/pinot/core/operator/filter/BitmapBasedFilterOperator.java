@@ -20,6 +20,7 @@ package org.apache.pinot.core.operator.filter;
 
 import java.util.Collections;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.apache.pinot.common.request.context.predicate.Predicate;
 import org.apache.pinot.core.common.Operator;
 import org.apache.pinot.core.operator.blocks.EmptyFilterBlock;
@@ -40,14 +41,18 @@ public class BitmapBasedFilterOperator extends BaseFilterOperator {
   private static final String EXPLAIN_NAME = "FILTER_INVERTED_INDEX";
 
   private final PredicateEvaluator _predicateEvaluator;
+  private final DataSource _dataSource;
   private final InvertedIndexReader<ImmutableRoaringBitmap> _invertedIndexReader;
   private final ImmutableRoaringBitmap _docIds;
   private final boolean _exclusive;
   private final int _numDocs;
 
+  private FilterSelectivityStats.Recorder _selectivityRecorder;
+
   @SuppressWarnings("unchecked")
   BitmapBasedFilterOperator(PredicateEvaluator predicateEvaluator, DataSource dataSource, int numDocs) {
     _predicateEvaluator = predicateEvaluator;
+    _dataSource = dataSource;
     _invertedIndexReader = (InvertedIndexReader<ImmutableRoaringBitmap>) dataSource.getInvertedIndex();
     _docIds = null;
     _exclusive = predicateEvaluator.isExclusive();
@@ -56,6 +61,7 @@ public class BitmapBasedFilterOperator extends BaseFilterOperator {
 
   public BitmapBasedFilterOperator(ImmutableRoaringBitmap docIds, boolean exclusive, int numDocs) {
     _predicateEvaluator = null;
+    _dataSource = null;
     _invertedIndexReader = null;
     _docIds = docIds;
     _exclusive = exclusive;
@@ -75,6 +81,7 @@ public class BitmapBasedFilterOperator extends BaseFilterOperator {
     int[] dictIds = _exclusive ? _predicateEvaluator.getNonMatchingDictIds() : _predicateEvaluator.getMatchingDictIds();
     int numDictIds = dictIds.length;
     if (numDictIds == 0) {
+      recordSelectivity(0);
       return EmptyFilterBlock.getInstance();
     }
     if (numDictIds == 1) {
@@ -83,11 +90,15 @@ public class BitmapBasedFilterOperator extends BaseFilterOperator {
         if (docIds instanceof MutableRoaringBitmap) {
           MutableRoaringBitmap mutableRoaringBitmap = (MutableRoaringBitmap) docIds;
           mutableRoaringBitmap.flip(0L, _numDocs);
+          recordSelectivity(mutableRoaringBitmap);
           return new FilterBlock(new BitmapDocIdSet(mutableRoaringBitmap, _numDocs));
         } else {
-          return new FilterBlock(new BitmapDocIdSet(ImmutableRoaringBitmap.flip(docIds, 0L, _numDocs), _numDocs));
+          ImmutableRoaringBitmap flippedDocIds = ImmutableRoaringBitmap.flip(docIds, 0L, _numDocs);
+          recordSelectivity(flippedDocIds);
+          return new FilterBlock(new BitmapDocIdSet(flippedDocIds, _numDocs));
         }
       } else {
+        recordSelectivity(docIds);
         return new FilterBlock(new BitmapDocIdSet(docIds, _numDocs));
       }
     } else {
@@ -99,6 +110,7 @@ public class BitmapBasedFilterOperator extends BaseFilterOperator {
       if (_exclusive) {
         docIds.flip(0L, _numDocs);
       }
+      recordSelectivity(docIds);
       InvocationRecording recording = Tracing.activeRecording();
       if (recording.isEnabled()) {
         recording.setColumnName(_predicateEvaluator.getPredicate().getLhs().getIdentifier());
@@ -109,6 +121,47 @@ public class BitmapBasedFilterOperator extends BaseFilterOperator {
     }
   }
 
+  private void recordSelectivity(ImmutableRoaringBitmap docIds) {
+    if (_selectivityRecorder != null) {
+      recordSelectivity(docIds.getCardinality());
+    }
+  }
+
+  private void recordSelectivity(int numMatchingDocs) {
+    if (_selectivityRecorder != null) {
+      // The index lookup is not affected by the other predicates
+      _selectivityRecorder.recordSelectivity(_numDocs, numMatchingDocs);
+    }
+  }
+
+  /**
+   * Sets the recorder to collect the runtime selectivity of the predicate for adaptive filter reordering.
+   */
+  public void setSelectivityRecorder(@Nullable FilterSelectivityStats.Recorder selectivityRecorder) {
+    _selectivityRecorder = selectivityRecorder;
+  }
+
+  @Nullable
+  public FilterSelectivityStats.Recorder getSelectivityRecorder() {
+    return _selectivityRecorder;
+  }
+
+  /**
+   * Returns a {@link ScanBasedFilterOperator} evaluating the same predicate, or {@code null} if the operator is created
+   * from the matching doc ids or the column does not have a forward index.
+   */
+  @Nullable
+  ScanBasedFilterOperator convertToScanBasedFilterOperator(boolean nullHandlingEnabled) {
+    if (_predicateEvaluator == null || _dataSource.getForwardIndex() == null) {
+      return null;
+    }
+    ScanBasedFilterOperator scanBasedFilterOperator =
+        new ScanBasedFilterOperator(_predicateEvaluator, _dataSource, _numDocs, nullHandlingEnabled);
+    scanBasedFilterOperator.setSelectivityRecorder(_selectivityRecorder);
+    scanBasedFilterOperator.setConvertedFromIndex();
+    return scanBasedFilterOperator;
+  }
+
   @Override
   public boolean canOptimizeCount() {
     return true;
@@ -184,6 +237,7 @@ public class BitmapBasedFilterOperator extends BaseFilterOperator {
       stringBuilder.append(",operator:").append(predicate.getType());
       stringBuilder.append(",predicate:").append(predicate.toString());
     }
+    ScanBasedFilterOperator.appendSelectivity(stringBuilder, _selectivityRecorder);
     return stringBuilder.append(')').toString();
   }
 }
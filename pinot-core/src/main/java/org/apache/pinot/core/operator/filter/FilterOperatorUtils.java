@@ -66,6 +66,12 @@ public class FilterOperatorUtils {
   }
 
   public static class DefaultImplementation implements Implementation {
+    // When adaptive filter reordering is enabled, inverted index lookups matching more than this fraction of the
+    // documents are converted into scans on top of the other index based filters
+    public static final double INDEX_TO_SCAN_SELECTIVITY_THRESHOLD = 0.9;
+    // Lower bound of the fraction of documents filtered out when computing the rank, to avoid division by zero
+    private static final double MIN_FILTERED_OUT_RATIO = 0.001;
+
     @Override
     public BaseFilterOperator getLeafFilterOperator(PredicateEvaluator predicateEvaluator, DataSource dataSource,
         int numDocs, boolean nullHandlingEnabled) {
@@ -177,14 +183,25 @@ public class FilterOperatorUtils {
     /**
      * For AND filter operator, reorders its child filter operators based on the their cost and puts the ones with
      * inverted index first in order to reduce the number of documents to be processed.
+     * <p>When adaptive filter reordering is enabled, the operators with the same priority are further ordered by the
+     * runtime stats collected in {@link FilterSelectivityStats}, and inverted index lookups with low selectivity are
+     * converted into scans.
      * <p>Special filter operators such as {@link MatchAllFilterOperator} and {@link EmptyFilterOperator} should be
      * removed from the list before calling this method.
      */
     protected void reorderAndFilterChildOperators(QueryContext queryContext, List<BaseFilterOperator> filterOperators) {
+      boolean adaptiveFilterReorder = queryContext.isAdaptiveFilterReorder();
+      if (adaptiveFilterReorder) {
+        convertLowSelectivityIndexOperators(queryContext, filterOperators);
+      }
       filterOperators.sort(new Comparator<BaseFilterOperator>() {
         @Override
         public int compare(BaseFilterOperator o1, BaseFilterOperator o2) {
-          return getPriority(o1) - getPriority(o2);
+          int result = getPriority(o1) - getPriority(o2);
+          if (result != 0 || !adaptiveFilterReorder) {
+            return result;
+          }
+          return Double.compare(getRank(o1), getRank(o2));
         }
 
         int getPriority(BaseFilterOperator filterOperator) {
@@ -222,6 +239,72 @@ public class FilterOperatorUtils {
       });
     }
 
+    /**
+     * Converts the inverted index based filter operators with observed selectivity above
+     * {@link #INDEX_TO_SCAN_SELECTIVITY_THRESHOLD} into scan based filter operators. Reading and intersecting the
+     * bitmaps for such predicates costs more than scanning the documents already filtered by the other index based
+     * filter operators, so the conversion is only applied when at least one other index based operator remains.
+     */
+    protected void convertLowSelectivityIndexOperators(QueryContext queryContext,
+        List<BaseFilterOperator> filterOperators) {
+      int numIndexBasedOperators = 0;
+      for (BaseFilterOperator filterOperator : filterOperators) {
+        if (filterOperator instanceof SortedIndexBasedFilterOperator
+            || filterOperator instanceof BitmapBasedFilterOperator
+            || filterOperator instanceof RangeIndexBasedFilterOperator) {
+          numIndexBasedOperators++;
+        }
+      }
+      int numFilterOperators = filterOperators.size();
+      for (int i = 0; i < numFilterOperators && numIndexBasedOperators > 1; i++) {
+        BaseFilterOperator filterOperator = filterOperators.get(i);
+        if (!(filterOperator instanceof BitmapBasedFilterOperator)) {
+          continue;
+        }
+        BitmapBasedFilterOperator bitmapBasedFilterOperator = (BitmapBasedFilterOperator) filterOperator;
+        FilterSelectivityStats.Recorder selectivityRecorder = bitmapBasedFilterOperator.getSelectivityRecorder();
+        if (selectivityRecorder == null
+            || !(selectivityRecorder.getSelectivity() >= INDEX_TO_SCAN_SELECTIVITY_THRESHOLD)) {
+          continue;
+        }
+        ScanBasedFilterOperator scanBasedFilterOperator =
+            bitmapBasedFilterOperator.convertToScanBasedFilterOperator(queryContext.isNullHandlingEnabled());
+        if (scanBasedFilterOperator != null) {
+          filterOperators.set(i, scanBasedFilterOperator);
+          numIndexBasedOperators--;
+        }
+      }
+    }
+
+    /**
+     * Returns the rank of the filter operator within the same priority based on the observed selectivity and cost,
+     * where lower rank should be evaluated first. This is the classic predicate ordering metric: cost per document
+     * divided by the fraction of documents filtered out. Operators without stats are ranked last, keeping their
+     * original order.
+     */
+    protected double getRank(BaseFilterOperator filterOperator) {
+      FilterSelectivityStats.Recorder selectivityRecorder;
+      if (filterOperator instanceof ScanBasedFilterOperator) {
+        selectivityRecorder = ((ScanBasedFilterOperator) filterOperator).getSelectivityRecorder();
+      } else if (filterOperator instanceof BitmapBasedFilterOperator) {
+        selectivityRecorder = ((BitmapBasedFilterOperator) filterOperator).getSelectivityRecorder();
+      } else {
+        return Double.MAX_VALUE;
+      }
+      if (selectivityRecorder == null) {
+        return Double.MAX_VALUE;
+      }
+      double selectivity = selectivityRecorder.getSelectivity();
+      if (Double.isNaN(selectivity)) {
+        return Double.MAX_VALUE;
+      }
+      double costNsPerDoc = selectivityRecorder.getCostNsPerDoc();
+      if (Double.isNaN(costNsPerDoc)) {
+        costNsPerDoc = 1.0;
+      }
+      return costNsPerDoc / Math.max(1.0 - selectivity, MIN_FILTERED_OUT_RATIO);
+    }
+
     public static int getScanBasedFilterPriority(QueryContext queryContext,
         ScanBasedFilterOperator scanBasedFilterOperator, int basePriority) {
       if (queryContext.isSkipScanFilterReorder()) {
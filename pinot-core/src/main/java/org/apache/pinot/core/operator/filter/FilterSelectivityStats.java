@@ -0,0 +1,197 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.operator.filter;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.common.request.context.predicate.Predicate;
+
+
+/**
+ * The {@code FilterSelectivityStats} keeps the selectivity (fraction of the evaluated documents matching the predicate)
+ * and the evaluation cost (nanoseconds per evaluated document) observed at runtime for the filter predicates of each
+ * table, so that the filter planning can order the AND children by their actual cost instead of only by the index
+ * type.
+ * <p>The selectivity is only recorded from unconditional evaluations, i.e. the predicate is evaluated on all the
+ * documents of the segment instead of only the documents matching the other predicates of an AND, so that it does not
+ * depend on the correlation with the other predicates. When a scan is evaluated conditionally, the selectivity is
+ * sampled on {@link #SAMPLE_NUM_BLOCKS} blocks of documents evenly spread across the segment, up to
+ * {@link #SAMPLE_NUM_DOCS} documents in total. The cost is also recorded from the conditional evaluations.
+ * <p>The stats are shared across all the segments and queries of the server, and are removed when the table data
+ * manager is shut down. Both the selectivity and the cost counters are halved once the number of documents exceeds
+ * {@link #MAX_NUM_DOCS_EVALUATED}, so that the stats follow the data changes over time. The stats are not reported
+ * until at least {@link #MIN_NUM_DOCS_EVALUATED} documents are evaluated. At most
+ * {@link #MAX_NUM_PREDICATES_PER_TABLE} predicates are kept per table, and the least recently used ones are evicted.
+ */
+@ThreadSafe
+public class FilterSelectivityStats {
+  public static final long MIN_NUM_DOCS_EVALUATED = 10_000L;
+  public static final long MAX_NUM_DOCS_EVALUATED = 1L << 32;
+  public static final int MAX_NUM_PREDICATES_PER_TABLE = 10_000;
+  public static final double UNKNOWN = Double.NaN;
+  public static final int SAMPLE_NUM_DOCS = 16_384;
+  public static final int SAMPLE_NUM_BLOCKS = 8;
+
+  private static final FilterSelectivityStats INSTANCE = new FilterSelectivityStats();
+
+  private final Map<String, Cache<String, PredicateStats>> _tableStatsMap = new ConcurrentHashMap<>();
+
+  @VisibleForTesting
+  FilterSelectivityStats() {
+  }
+
+  public static FilterSelectivityStats getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns a recorder to record the stats for the given predicate of the given table.
+   */
+  public Recorder getRecorder(String tableName, Predicate predicate) {
+    return new Recorder(tableName, predicate.toString());
+  }
+
+  /**
+   * Returns the observed selectivity (between 0 and 1) of the given predicate, or {@link #UNKNOWN} if there are not
+   * enough samples.
+   */
+  public double getSelectivity(String tableName, Predicate predicate) {
+    return getSelectivity(tableName, predicate.toString());
+  }
+
+  private double getSelectivity(String tableName, String predicate) {
+    PredicateStats predicateStats = getPredicateStats(tableName, predicate);
+    return predicateStats != null ? predicateStats.getSelectivity() : UNKNOWN;
+  }
+
+  /**
+   * Returns the observed evaluation cost (nanoseconds per evaluated document) of the given predicate, or
+   * {@link #UNKNOWN} if there are not enough samples.
+   */
+  public double getCostNsPerDoc(String tableName, Predicate predicate) {
+    return getCostNsPerDoc(tableName, predicate.toString());
+  }
+
+  private double getCostNsPerDoc(String tableName, String predicate) {
+    PredicateStats predicateStats = getPredicateStats(tableName, predicate);
+    return predicateStats != null ? predicateStats.getCostNsPerDoc() : UNKNOWN;
+  }
+
+  @Nullable
+  private PredicateStats getPredicateStats(String tableName, String predicate) {
+    Cache<String, PredicateStats> predicateStatsCache = _tableStatsMap.get(tableName);
+    return predicateStatsCache != null ? predicateStatsCache.getIfPresent(predicate) : null;
+  }
+
+  /**
+   * Removes the stats for the given table, e.g. when the table is deleted or the stats are no longer valid.
+   */
+  public void removeTable(String tableName) {
+    _tableStatsMap.remove(tableName);
+  }
+
+  private PredicateStats getOrCreatePredicateStats(String tableName, String predicate) {
+    // Bound the memory used by tables with a lot of distinct predicates (e.g. literals generated per query) by evicting
+    // the least recently used ones. Use a single segment so that the eviction follows the access order of the table.
+    Cache<String, PredicateStats> predicateStatsCache = _tableStatsMap.computeIfAbsent(tableName,
+        k -> CacheBuilder.newBuilder().concurrencyLevel(1).maximumSize(MAX_NUM_PREDICATES_PER_TABLE).build());
+    PredicateStats predicateStats = predicateStatsCache.getIfPresent(predicate);
+    if (predicateStats == null) {
+      predicateStats = predicateStatsCache.asMap().computeIfAbsent(predicate, k -> new PredicateStats());
+    }
+    return predicateStats;
+  }
+
+  /**
+   * Records and looks up the stats of a single predicate.
+   */
+  public class Recorder {
+    private final String _tableName;
+    private final String _predicate;
+
+    private Recorder(String tableName, String predicate) {
+      _tableName = tableName;
+      _predicate = predicate;
+    }
+
+    /**
+     * Records the number of matching documents of an unconditional evaluation of the predicate.
+     */
+    public void recordSelectivity(long numDocsEvaluated, long numDocsMatched) {
+      if (numDocsEvaluated > 0) {
+        getOrCreatePredicateStats(_tableName, _predicate).recordSelectivity(numDocsEvaluated, numDocsMatched);
+      }
+    }
+
+    /**
+     * Records the time spent evaluating the predicate on the given number of documents.
+     */
+    public void recordCost(long numDocsEvaluated, long timeNs) {
+      if (numDocsEvaluated > 0) {
+        getOrCreatePredicateStats(_tableName, _predicate).recordCost(numDocsEvaluated, timeNs);
+      }
+    }
+
+    public double getSelectivity() {
+      return FilterSelectivityStats.this.getSelectivity(_tableName, _predicate);
+    }
+
+    public double getCostNsPerDoc() {
+      return FilterSelectivityStats.this.getCostNsPerDoc(_tableName, _predicate);
+    }
+  }
+
+  private static class PredicateStats {
+    long _numDocsEvaluated;
+    long _numDocsMatched;
+    long _numDocsTimed;
+    long _timeNs;
+
+    synchronized void recordSelectivity(long numDocsEvaluated, long numDocsMatched) {
+      _numDocsEvaluated += numDocsEvaluated;
+      _numDocsMatched += numDocsMatched;
+      if (_numDocsEvaluated > MAX_NUM_DOCS_EVALUATED) {
+        _numDocsEvaluated >>= 1;
+        _numDocsMatched >>= 1;
+      }
+    }
+
+    synchronized void recordCost(long numDocsEvaluated, long timeNs) {
+      _numDocsTimed += numDocsEvaluated;
+      _timeNs += timeNs;
+      if (_numDocsTimed > MAX_NUM_DOCS_EVALUATED) {
+        _numDocsTimed >>= 1;
+        _timeNs >>= 1;
+      }
+    }
+
+    synchronized double getSelectivity() {
+      return _numDocsEvaluated >= MIN_NUM_DOCS_EVALUATED ? (double) _numDocsMatched / _numDocsEvaluated : UNKNOWN;
+    }
+
+    synchronized double getCostNsPerDoc() {
+      return _numDocsTimed >= MIN_NUM_DOCS_EVALUATED ? (double) _timeNs / _numDocsTimed : UNKNOWN;
+    }
+  }
+}
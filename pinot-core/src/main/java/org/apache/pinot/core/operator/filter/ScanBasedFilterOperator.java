@@ -21,6 +21,8 @@ package org.apache.pinot.core.operator.filter;
 import com.google.common.base.Preconditions;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import javax.annotation.Nullable;
 import org.apache.pinot.core.common.BlockDocIdIterator;
 import org.apache.pinot.core.common.Operator;
 import org.apache.pinot.core.operator.blocks.FilterBlock;
@@ -40,6 +42,9 @@ public class ScanBasedFilterOperator extends BaseFilterOperator {
   private final boolean _nullHandlingEnabled;
   private final int _batchSize;
 
+  private FilterSelectivityStats.Recorder _selectivityRecorder;
+  private boolean _convertedFromIndex;
+
   public ScanBasedFilterOperator(PredicateEvaluator predicateEvaluator, DataSource dataSource, int numDocs,
       boolean nullHandlingEnabled) {
     this(predicateEvaluator, dataSource, numDocs, nullHandlingEnabled, BlockDocIdIterator.OPTIMAL_ITERATOR_BATCH_SIZE);
@@ -61,13 +66,41 @@ public class ScanBasedFilterOperator extends BaseFilterOperator {
   protected FilterBlock getNextBlock() {
     DataSourceMetadata dataSourceMetadata = _dataSource.getDataSourceMetadata();
     if (dataSourceMetadata.isSingleValue()) {
-      return new FilterBlock(new SVScanDocIdSet(_predicateEvaluator, _dataSource, _numDocs, _nullHandlingEnabled,
-          _batchSize));
+      SVScanDocIdSet docIdSet =
+          new SVScanDocIdSet(_predicateEvaluator, _dataSource, _numDocs, _nullHandlingEnabled, _batchSize);
+      docIdSet.iterator().setSelectivityRecorder(_selectivityRecorder);
+      return new FilterBlock(docIdSet);
     } else {
-      return new FilterBlock(new MVScanDocIdSet(_predicateEvaluator, _dataSource, _numDocs));
+      MVScanDocIdSet docIdSet = new MVScanDocIdSet(_predicateEvaluator, _dataSource, _numDocs);
+      docIdSet.iterator().setSelectivityRecorder(_selectivityRecorder);
+      return new FilterBlock(docIdSet);
     }
   }
 
+  /**
+   * Sets the recorder to collect the runtime selectivity of the predicate for adaptive filter reordering.
+   */
+  public void setSelectivityRecorder(@Nullable FilterSelectivityStats.Recorder selectivityRecorder) {
+    _selectivityRecorder = selectivityRecorder;
+  }
+
+  @Nullable
+  public FilterSelectivityStats.Recorder getSelectivityRecorder() {
+    return _selectivityRecorder;
+  }
+
+  /**
+   * Marks the operator as converted from an index based operator because the observed selectivity of the index lookup
+   * is too low for the index to pay off.
+   */
+  void setConvertedFromIndex() {
+    _convertedFromIndex = true;
+  }
+
+  public boolean isConvertedFromIndex() {
+    return _convertedFromIndex;
+  }
+
 
   @Override
   public List<Operator> getChildOperators() {
@@ -79,9 +112,27 @@ public class ScanBasedFilterOperator extends BaseFilterOperator {
     StringBuilder stringBuilder =
         new StringBuilder(EXPLAIN_NAME).append("(operator:").append(_predicateEvaluator.getPredicateType());
     stringBuilder.append(",predicate:").append(_predicateEvaluator.getPredicate().toString());
+    appendSelectivity(stringBuilder, _selectivityRecorder);
+    if (_convertedFromIndex) {
+      stringBuilder.append(",convertedFromIndex(dynamic):true");
+    }
     return stringBuilder.append(')').toString();
   }
 
+  /**
+   * Appends the observed selectivity to the explain string when adaptive filter reordering is enabled and the stats are
+   * available. The runtime stats change across queries, so they are marked as dynamic in the explain string.
+   */
+  static void appendSelectivity(StringBuilder stringBuilder,
+      @Nullable FilterSelectivityStats.Recorder selectivityRecorder) {
+    if (selectivityRecorder != null) {
+      double selectivity = selectivityRecorder.getSelectivity();
+      if (!Double.isNaN(selectivity)) {
+        stringBuilder.append(",observedSelectivity(dynamic):").append(String.format(Locale.ROOT, "%.4f", selectivity));
+      }
+    }
+  }
+
   /**
    * Returns the metadata of the data source associated with the scan filter.
    * TODO: Replace this with a priority method for all filter operators
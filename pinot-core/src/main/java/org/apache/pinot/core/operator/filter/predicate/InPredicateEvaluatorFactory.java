@@ -158,13 +158,18 @@ public class InPredicateEvaluatorFactory {
   private static final class DictionaryBasedInPredicateEvaluator extends BaseDictionaryBasedPredicateEvaluator {
     final IntSet _matchingDictIdSet;
     final int _numMatchingDictIds;
+    final int _dictionaryLength;
     int[] _matchingDictIds;
+    // Lazily initialized on the first batch evaluation, null if the dictionary is too large
+    long[] _matchingDictIdBitmap;
+    boolean _matchingDictIdBitmapInitialized;
 
     DictionaryBasedInPredicateEvaluator(InPredicate inPredicate, Dictionary dictionary, DataType dataType,
         @Nullable QueryContext queryContext) {
       super(inPredicate);
       _matchingDictIdSet = PredicateUtils.getDictIdSet(inPredicate, dictionary, dataType, queryContext);
       _numMatchingDictIds = _matchingDictIdSet.size();
+      _dictionaryLength = dictionary.length();
       if (_numMatchingDictIds == 0) {
         _alwaysFalse = true;
       } else if (dictionary.length() == _numMatchingDictIds) {
@@ -197,6 +202,13 @@ public class InPredicateEvaluatorFactory {
 
     @Override
     public int applySV(int limit, int[] docIds, int[] values) {
+      if (!_matchingDictIdBitmapInitialized) {
+        _matchingDictIdBitmap = PredicateUtils.getDictIdBitmap(_matchingDictIdSet, _dictionaryLength);
+        _matchingDictIdBitmapInitialized = true;
+      }
+      if (_matchingDictIdBitmap != null) {
+        return PredicateUtils.applyDictIdBitmap(limit, docIds, values, _matchingDictIdBitmap, false);
+      }
       // reimplemented here to ensure applySV can be inlined
       int matches = 0;
       for (int i = 0; i < limit; i++) {
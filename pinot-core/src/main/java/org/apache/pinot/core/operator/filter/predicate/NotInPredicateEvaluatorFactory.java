@@ -161,6 +161,9 @@ public class NotInPredicateEvaluatorFactory {
     final Dictionary _dictionary;
     int[] _matchingDictIds;
     int[] _nonMatchingDictIds;
+    // Lazily initialized on the first batch evaluation, null if the dictionary is too large
+    long[] _nonMatchingDictIdBitmap;
+    boolean _nonMatchingDictIdBitmapInitialized;
 
     DictionaryBasedNotInPredicateEvaluator(NotInPredicate notInPredicate, Dictionary dictionary, DataType dataType,
         @Nullable QueryContext queryContext) {
@@ -187,6 +190,13 @@ public class NotInPredicateEvaluatorFactory {
 
     @Override
     public int applySV(int limit, int[] docIds, int[] values) {
+      if (!_nonMatchingDictIdBitmapInitialized) {
+        _nonMatchingDictIdBitmap = PredicateUtils.getDictIdBitmap(_nonMatchingDictIdSet, _dictionary.length());
+        _nonMatchingDictIdBitmapInitialized = true;
+      }
+      if (_nonMatchingDictIdBitmap != null) {
+        return PredicateUtils.applyDictIdBitmap(limit, docIds, values, _nonMatchingDictIdBitmap, true);
+      }
       // reimplemented here to ensure applySV can be inlined
       int matches = 0;
       for (int i = 0; i < limit; i++) {
@@ -19,6 +19,7 @@
 package org.apache.pinot.core.operator.filter.predicate;
 
 import com.google.common.base.Equivalence;
+import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 import java.math.BigDecimal;
@@ -44,6 +45,9 @@ public class PredicateUtils {
   // dictionary
   private static final int MAX_INITIAL_DICT_ID_SET_SIZE = 1000;
 
+  // Bound the dictionary id bitmap size to 128KB (1M dictionary ids)
+  private static final int MAX_DICTIONARY_LENGTH_FOR_DICT_ID_BITMAP = 1 << 20;
+
   /**
    * Converts the given predicate value to the stored value based on the data type.
    */
@@ -72,6 +76,44 @@ public class PredicateUtils {
     return Long.toString(TimestampUtils.toMillisSinceEpoch(timestampValue));
   }
 
+  /**
+   * Returns a bitmap with one bit per dictionary id (set for the dictionary ids in the given set), or {@code null} if
+   * the dictionary is too large for the bitmap. Checking the bitmap is much cheaper than the hash set lookup when
+   * evaluating the predicate on a batch of dictionary ids.
+   */
+  @Nullable
+  public static long[] getDictIdBitmap(IntSet dictIdSet, int dictionaryLength) {
+    if (dictionaryLength > MAX_DICTIONARY_LENGTH_FOR_DICT_ID_BITMAP) {
+      return null;
+    }
+    long[] dictIdBitmap = new long[(dictionaryLength + Long.SIZE - 1) >>> 6];
+    IntIterator iterator = dictIdSet.iterator();
+    while (iterator.hasNext()) {
+      int dictId = iterator.nextInt();
+      dictIdBitmap[dictId >>> 6] |= 1L << dictId;
+    }
+    return dictIdBitmap;
+  }
+
+  /**
+   * Filters the doc ids with the dictionary id bitmap, compacts the matching doc ids to the start of the array and
+   * returns the number of matching doc ids. A doc id matches if its dictionary id is set in the bitmap, or not set in
+   * the bitmap when {@code exclusive} is {@code true}.
+   * <p>The loop is branch-free so that the performance does not depend on the selectivity of the predicate.
+   */
+  public static int applyDictIdBitmap(int limit, int[] docIds, int[] dictIds, long[] dictIdBitmap,
+      boolean exclusive) {
+    long flip = exclusive ? 1L : 0L;
+    int matches = 0;
+    for (int i = 0; i < limit; i++) {
+      int dictId = dictIds[i];
+      // NOTE: matches <= i, so it is safe to write the doc id before checking whether it matches
+      docIds[matches] = docIds[i];
+      matches += (int) (((dictIdBitmap[dictId >>> 6] >>> dictId) & 1L) ^ flip);
+    }
+    return matches;
+  }
+
   /**
    * Returns a dictionary id set of the values in the given IN/NOT_IN predicate.
    */
@@ -184,13 +184,18 @@ public class RangePredicateEvaluatorFactory {
 
     @Override
     public int applySV(int limit, int[] docIds, int[] dictIds) {
-      // reimplemented here to ensure applySV can be inlined
+      if (_numMatchingDictIds <= 0) {
+        return 0;
+      }
+      // Check the dictionary id range with a single unsigned comparison, and compact the matching doc ids without
+      // branching so that the performance does not depend on the selectivity of the predicate.
+      // NOTE: matches <= i, so it is safe to write the doc id before checking whether it matches
+      int startDictId = _startDictId;
+      int numMatchingDictIds = _numMatchingDictIds;
       int matches = 0;
       for (int i = 0; i < limit; i++) {
-        int dictId = dictIds[i];
-        if (applySV(dictId)) {
-          docIds[matches++] = docIds[i];
-        }
+        docIds[matches] = docIds[i];
+        matches += Integer.compareUnsigned(dictIds[i] - startDictId, numMatchingDictIds) < 0 ? 1 : 0;
       }
       return matches;
     }
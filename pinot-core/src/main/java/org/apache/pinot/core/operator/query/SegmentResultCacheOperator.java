@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.operator.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.pinot.core.common.Operator;
+import org.apache.pinot.core.data.table.IntermediateRecord;
+import org.apache.pinot.core.data.table.Key;
+import org.apache.pinot.core.data.table.Record;
+import org.apache.pinot.core.operator.BaseOperator;
+import org.apache.pinot.core.operator.ExecutionStatistics;
+import org.apache.pinot.core.operator.blocks.results.AggregationResultsBlock;
+import org.apache.pinot.core.operator.blocks.results.BaseResultsBlock;
+import org.apache.pinot.core.operator.blocks.results.GroupByResultsBlock;
+import org.apache.pinot.core.plan.PlanNode;
+import org.apache.pinot.core.query.aggregation.function.AggregationFunction;
+import org.apache.pinot.core.query.cache.SegmentResultCache;
+import org.apache.pinot.segment.spi.IndexSegment;
+
+
+/**
+ * The {@code SegmentResultCacheOperator} serves the segment level aggregation or group-by results from the
+ * {@link SegmentResultCache} when available. Otherwise, it runs the child plan node, and caches the results of the
+ * child operator.
+ * <p>The child plan node is only run on cache miss to also save the planning cost (e.g. predicate evaluation) for
+ * cached segments. On cache hit, the execution statistics of the original execution are reported except for the
+ * scanned entries.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class SegmentResultCacheOperator extends BaseOperator<BaseResultsBlock> {
+  private static final String EXPLAIN_NAME = "SEGMENT_RESULT_CACHE";
+
+  private final PlanNode _planNode;
+  private final IndexSegment _indexSegment;
+  private final AggregationFunction[] _aggregationFunctions;
+  // -1 for aggregation queries
+  private final int _numGroupByExpressions;
+  private final SegmentResultCache _segmentResultCache;
+  private final String _cacheKey;
+
+  private Operator<BaseResultsBlock> _childOperator;
+  private ExecutionStatistics _executionStatistics;
+
+  public SegmentResultCacheOperator(PlanNode planNode, IndexSegment indexSegment,
+      AggregationFunction[] aggregationFunctions, int numGroupByExpressions, SegmentResultCache segmentResultCache,
+      String cacheKey) {
+    _planNode = planNode;
+    _indexSegment = indexSegment;
+    _aggregationFunctions = aggregationFunctions;
+    _numGroupByExpressions = numGroupByExpressions;
+    _segmentResultCache = segmentResultCache;
+    _cacheKey = cacheKey;
+  }
+
+  @Override
+  protected BaseResultsBlock getNextBlock() {
+    SegmentResultCache.CachedResult cachedResult = _segmentResultCache.get(_cacheKey);
+    if (cachedResult != null) {
+      ExecutionStatistics executionStatistics = cachedResult.getExecutionStatistics();
+      _executionStatistics = new ExecutionStatistics(executionStatistics.getNumDocsScanned(), 0, 0,
+          executionStatistics.getNumTotalDocs());
+      if (_numGroupByExpressions < 0) {
+        return new AggregationResultsBlock(_aggregationFunctions, cachedResult.getAggregationResults());
+      }
+      List<Object[]> rows = cachedResult.getGroupByRows();
+      List<IntermediateRecord> intermediateRecords = new ArrayList<>(rows.size());
+      for (Object[] row : rows) {
+        intermediateRecords.add(
+            IntermediateRecord.create(new Key(Arrays.copyOf(row, _numGroupByExpressions)), new Record(row)));
+      }
+      GroupByResultsBlock resultsBlock = new GroupByResultsBlock(cachedResult.getDataSchema(), intermediateRecords);
+      resultsBlock.setNumGroupsLimitReached(cachedResult.isNumGroupsLimitReached());
+      return resultsBlock;
+    }
+    _childOperator = (Operator<BaseResultsBlock>) _planNode.run();
+    BaseResultsBlock resultsBlock = _childOperator.nextBlock();
+    _executionStatistics = _childOperator.getExecutionStatistics();
+    if (_numGroupByExpressions < 0) {
+      _segmentResultCache.putAggregationResults(_cacheKey, _aggregationFunctions,
+          ((AggregationResultsBlock) resultsBlock).getResults(), _executionStatistics);
+    } else {
+      _segmentResultCache.putGroupByResults(_cacheKey, _aggregationFunctions, _numGroupByExpressions,
+          (GroupByResultsBlock) resultsBlock, _executionStatistics);
+    }
+    return resultsBlock;
+  }
+
+  @Override
+  public String toExplainString() {
+    return EXPLAIN_NAME;
+  }
+
+  @Override
+  public List<Operator> getChildOperators() {
+    return _childOperator != null ? Collections.singletonList(_childOperator) : Collections.emptyList();
+  }
+
+  @Override
+  public IndexSegment getIndexSegment() {
+    return _indexSegment;
+  }
+
+  @Override
+  public ExecutionStatistics getExecutionStatistics() {
+    return _executionStatistics != null ? _executionStatistics : new ExecutionStatistics(0, 0, 0, 0);
+  }
+}
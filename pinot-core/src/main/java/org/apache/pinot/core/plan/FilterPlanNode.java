@@ -38,10 +38,12 @@ import org.apache.pinot.core.operator.filter.BitmapBasedFilterOperator;
 import org.apache.pinot.core.operator.filter.EmptyFilterOperator;
 import org.apache.pinot.core.operator.filter.ExpressionFilterOperator;
 import org.apache.pinot.core.operator.filter.FilterOperatorUtils;
+import org.apache.pinot.core.operator.filter.FilterSelectivityStats;
 import org.apache.pinot.core.operator.filter.H3InclusionIndexFilterOperator;
 import org.apache.pinot.core.operator.filter.H3IndexFilterOperator;
 import org.apache.pinot.core.operator.filter.JsonMatchFilterOperator;
 import org.apache.pinot.core.operator.filter.MatchAllFilterOperator;
+import org.apache.pinot.core.operator.filter.ScanBasedFilterOperator;
 import org.apache.pinot.core.operator.filter.TextContainsFilterOperator;
 import org.apache.pinot.core.operator.filter.TextMatchFilterOperator;
 import org.apache.pinot.core.operator.filter.predicate.FSTBasedRegexpPredicateEvaluatorFactory;
@@ -278,8 +280,9 @@ public class FilterPlanNode implements PlanNode {
                         dataSource.getDataSourceMetadata().getDataType());
               }
               _predicateEvaluators.add(Pair.of(predicate, predicateEvaluator));
-              return FilterOperatorUtils.getLeafFilterOperator(predicateEvaluator, dataSource, numDocs,
-                  _queryContext.isNullHandlingEnabled());
+              return setSelectivityRecorder(
+                  FilterOperatorUtils.getLeafFilterOperator(predicateEvaluator, dataSource, numDocs,
+                      _queryContext.isNullHandlingEnabled()), predicate);
             case JSON_MATCH:
               JsonIndexReader jsonIndex = dataSource.getJsonIndex();
               Preconditions.checkState(jsonIndex != null, "Cannot apply JSON_MATCH on column: %s without json index",
@@ -303,12 +306,30 @@ public class FilterPlanNode implements PlanNode {
               predicateEvaluator = PredicateEvaluatorProvider.getPredicateEvaluator(predicate, dataSource,
                   _queryContext);
               _predicateEvaluators.add(Pair.of(predicate, predicateEvaluator));
-              return FilterOperatorUtils.getLeafFilterOperator(predicateEvaluator, dataSource, numDocs,
-                  _queryContext.isNullHandlingEnabled());
+              return setSelectivityRecorder(
+                  FilterOperatorUtils.getLeafFilterOperator(predicateEvaluator, dataSource, numDocs,
+                      _queryContext.isNullHandlingEnabled()), predicate);
           }
         }
       default:
         throw new IllegalStateException();
     }
   }
+
+  /**
+   * Sets the recorder on the leaf filter operator to collect the runtime selectivity of the predicate when adaptive
+   * filter reordering is enabled.
+   */
+  private BaseFilterOperator setSelectivityRecorder(BaseFilterOperator filterOperator, Predicate predicate) {
+    if (_queryContext.isAdaptiveFilterReorder()) {
+      if (filterOperator instanceof ScanBasedFilterOperator) {
+        ((ScanBasedFilterOperator) filterOperator).setSelectivityRecorder(
+            FilterSelectivityStats.getInstance().getRecorder(_queryContext.getTableName(), predicate));
+      } else if (filterOperator instanceof BitmapBasedFilterOperator) {
+        ((BitmapBasedFilterOperator) filterOperator).setSelectivityRecorder(
+            FilterSelectivityStats.getInstance().getRecorder(_queryContext.getTableName(), predicate));
+      }
+    }
+    return filterOperator;
+  }
 }
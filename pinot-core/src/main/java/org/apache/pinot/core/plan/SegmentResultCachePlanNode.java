@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.plan;
+
+import java.util.List;
+import org.apache.pinot.common.request.context.ExpressionContext;
+import org.apache.pinot.core.operator.query.SegmentResultCacheOperator;
+import org.apache.pinot.core.query.cache.SegmentResultCache;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.segment.spi.IndexSegment;
+
+
+/**
+ * The {@code SegmentResultCachePlanNode} wraps the segment level plan node for queries cacheable by the
+ * {@link SegmentResultCache}.
+ */
+public class SegmentResultCachePlanNode implements PlanNode {
+  private final PlanNode _childPlanNode;
+  private final IndexSegment _indexSegment;
+  private final QueryContext _queryContext;
+  private final SegmentResultCache _segmentResultCache;
+  private final String _cacheKey;
+
+  public SegmentResultCachePlanNode(PlanNode childPlanNode, IndexSegment indexSegment, QueryContext queryContext,
+      SegmentResultCache segmentResultCache) {
+    _childPlanNode = childPlanNode;
+    _indexSegment = indexSegment;
+    _queryContext = queryContext;
+    _segmentResultCache = segmentResultCache;
+    // NOTE: Compute the cache key when creating the plan node because the query context might be rewritten for other
+    //       segments afterwards
+    _cacheKey = SegmentResultCache.getCacheKey(indexSegment, queryContext);
+  }
+
+  /**
+   * Doesn't run the child plan node, but instead creates a {@link SegmentResultCacheOperator} which only runs the
+   * child plan node on cache miss.
+   */
+  @Override
+  public SegmentResultCacheOperator run() {
+    assert _queryContext.getAggregationFunctions() != null;
+    List<ExpressionContext> groupByExpressions = _queryContext.getGroupByExpressions();
+    return new SegmentResultCacheOperator(_childPlanNode, _indexSegment, _queryContext.getAggregationFunctions(),
+        groupByExpressions != null ? groupByExpressions.size() : -1, _segmentResultCache, _cacheKey);
+  }
+}
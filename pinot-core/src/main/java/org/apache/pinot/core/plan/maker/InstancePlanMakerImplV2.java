@@ -44,9 +44,11 @@ import org.apache.pinot.core.plan.GroupByPlanNode;
 import org.apache.pinot.core.plan.InstanceResponsePlanNode;
 import org.apache.pinot.core.plan.Plan;
 import org.apache.pinot.core.plan.PlanNode;
+import org.apache.pinot.core.plan.SegmentResultCachePlanNode;
 import org.apache.pinot.core.plan.SelectionPlanNode;
 import org.apache.pinot.core.plan.StreamingInstanceResponsePlanNode;
 import org.apache.pinot.core.plan.StreamingSelectionPlanNode;
+import org.apache.pinot.core.query.cache.SegmentResultCache;
 import org.apache.pinot.core.query.prefetch.FetchPlanner;
 import org.apache.pinot.core.query.prefetch.FetchPlannerRegistry;
 import org.apache.pinot.core.query.request.context.QueryContext;
@@ -86,6 +88,11 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
   // set as pinot.server.query.executor.groupby.trim.threshold
   public static final String GROUPBY_TRIM_THRESHOLD_KEY = "groupby.trim.threshold";
   public static final int DEFAULT_GROUPBY_TRIM_THRESHOLD = 1_000_000;
+  // Instance config key for the max size of the segment level aggregation and group-by result cache for immutable
+  // segments, where non-positive value disables the cache
+  // Set as pinot.server.query.executor.segment.result.cache.max.size.bytes
+  public static final String SEGMENT_RESULT_CACHE_MAX_SIZE_BYTES_KEY = "segment.result.cache.max.size.bytes";
+  public static final long DEFAULT_SEGMENT_RESULT_CACHE_MAX_SIZE_BYTES = 0;
 
   private static final Logger LOGGER = LoggerFactory.getLogger(InstancePlanMakerImplV2.class);
 
@@ -98,6 +105,7 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
   private int _minSegmentGroupTrimSize = DEFAULT_MIN_SEGMENT_GROUP_TRIM_SIZE;
   private int _minServerGroupTrimSize = DEFAULT_MIN_SERVER_GROUP_TRIM_SIZE;
   private int _groupByTrimThreshold = DEFAULT_GROUPBY_TRIM_THRESHOLD;
+  private SegmentResultCache _segmentResultCache;
 
   public InstancePlanMakerImplV2() {
   }
@@ -128,10 +136,18 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
     _groupByTrimThreshold = queryExecutorConfig.getProperty(GROUPBY_TRIM_THRESHOLD_KEY, DEFAULT_GROUPBY_TRIM_THRESHOLD);
     Preconditions.checkState(_groupByTrimThreshold > 0,
         "Invalid configurable: groupByTrimThreshold: %d must be positive", _groupByTrimThreshold);
+    long segmentResultCacheMaxSizeBytes = queryExecutorConfig.getProperty(SEGMENT_RESULT_CACHE_MAX_SIZE_BYTES_KEY,
+        DEFAULT_SEGMENT_RESULT_CACHE_MAX_SIZE_BYTES);
+    if (segmentResultCacheMaxSizeBytes > 0) {
+      // Register the cache so that the cached results can be invalidated when the segments are reloaded or replaced
+      SegmentResultCache.register(new SegmentResultCache(segmentResultCacheMaxSizeBytes));
+      _segmentResultCache = SegmentResultCache.get();
+    }
     LOGGER.info("Initialized plan maker with maxExecutionThreads: {}, maxInitialResultHolderCapacity: {}, "
-            + "numGroupsLimit: {}, minSegmentGroupTrimSize: {}, minServerGroupTrimSize: {}, groupByTrimThreshold: {}",
-        _maxExecutionThreads, _maxInitialResultHolderCapacity, _numGroupsLimit, _minSegmentGroupTrimSize,
-        _minServerGroupTrimSize, _groupByTrimThreshold);
+            + "numGroupsLimit: {}, minSegmentGroupTrimSize: {}, minServerGroupTrimSize: {}, groupByTrimThreshold: {}, "
+            + "segmentResultCacheMaxSizeBytes: {}", _maxExecutionThreads, _maxInitialResultHolderCapacity,
+        _numGroupsLimit, _minSegmentGroupTrimSize, _minServerGroupTrimSize, _groupByTrimThreshold,
+        segmentResultCacheMaxSizeBytes);
   }
 
   @Override
@@ -176,6 +192,9 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
     // Set skipScanFilterReorder
     queryContext.setSkipScanFilterReorder(QueryOptionsUtils.isSkipScanFilterReorder(queryOptions));
 
+    // Set adaptiveFilterReorder
+    queryContext.setAdaptiveFilterReorder(QueryOptionsUtils.isAdaptiveFilterReorder(queryOptions));
+
     // Set maxExecutionThreads
     int maxExecutionThreads;
     Integer maxExecutionThreadsFromQuery = QueryOptionsUtils.getMaxExecutionThreads(queryOptions);
@@ -234,13 +253,18 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
     rewriteQueryContextWithHints(queryContext, indexSegment);
     if (QueryContextUtils.isAggregationQuery(queryContext)) {
       List<ExpressionContext> groupByExpressions = queryContext.getGroupByExpressions();
+      PlanNode planNode;
       if (groupByExpressions != null) {
         // Group-by query
-        return new GroupByPlanNode(indexSegment, queryContext);
+        planNode = new GroupByPlanNode(indexSegment, queryContext);
       } else {
         // Aggregation query
-        return new AggregationPlanNode(indexSegment, queryContext);
+        planNode = new AggregationPlanNode(indexSegment, queryContext);
+      }
+      if (_segmentResultCache != null && SegmentResultCache.isCacheable(indexSegment, queryContext)) {
+        return new SegmentResultCachePlanNode(planNode, indexSegment, queryContext, _segmentResultCache);
       }
+      return planNode;
     } else if (QueryContextUtils.isSelectionQuery(queryContext)) {
       return new SelectionPlanNode(indexSegment, queryContext);
     } else {
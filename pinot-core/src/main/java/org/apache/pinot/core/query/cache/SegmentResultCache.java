@@ -0,0 +1,345 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.common.CustomObject;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.core.common.ObjectSerDeUtils;
+import org.apache.pinot.core.data.table.IntermediateRecord;
+import org.apache.pinot.core.operator.ExecutionStatistics;
+import org.apache.pinot.core.operator.blocks.results.GroupByResultsBlock;
+import org.apache.pinot.core.query.aggregation.function.AggregationFunction;
+import org.apache.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
+import org.apache.pinot.core.query.aggregation.groupby.GroupKeyGenerator;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.SegmentMetadata;
+
+
+/**
+ * The {@code SegmentResultCache} caches the segment level intermediate results of aggregation and group-by queries for
+ * immutable segments, keyed by the table, the segment name, the segment CRC and the segment level part of the query.
+ * <p>The cached results of a segment are invalidated when the segment is reloaded, replaced or removed (see
+ * {@link #invalidateSegment(String, String)}). The segment CRC in the key additionally guarantees that the results
+ * of a replaced segment are never served, even if they are cached by a query still running on the old segment.
+ * <p>The intermediate results are stored in serialized form, so that the deserialized results can be merged in place
+ * by the combine operator without modifying the cached values.
+ */
+@ThreadSafe
+@SuppressWarnings("rawtypes")
+public class SegmentResultCache {
+  private static final AtomicReference<SegmentResultCache> INSTANCE = new AtomicReference<>();
+  private static final String KEY_SEPARATOR = "\0";
+  // Rough per entry overhead (key object, statistics and array headers) for the size bound
+  private static final int ENTRY_OVERHEAD_BYTES = 128;
+  // Rough per value overhead (object header and reference) for the size bound
+  private static final int VALUE_OVERHEAD_BYTES = 16;
+
+  private final Cache<String, CachedResult> _cache;
+
+  public SegmentResultCache(long maxSizeBytes) {
+    _cache = CacheBuilder.newBuilder().maximumWeight(maxSizeBytes)
+        .weigher((String key, CachedResult value) -> 2 * key.length() + value._sizeInBytes).build();
+  }
+
+  /**
+   * Registers the cache of the server, so that the table data managers can invalidate the cached results when the
+   * segments are reloaded, replaced or removed. Returns {@code false} if a cache is already registered.
+   */
+  public static boolean register(SegmentResultCache segmentResultCache) {
+    return INSTANCE.compareAndSet(null, segmentResultCache);
+  }
+
+  /**
+   * Returns the registered cache, or {@code null} if the cache is not enabled.
+   */
+  @Nullable
+  public static SegmentResultCache get() {
+    return INSTANCE.get();
+  }
+
+  /**
+   * Returns whether the results of the given segment can be cached for the query. Only aggregation and group-by
+   * queries on immutable segments without valid doc ids (upsert) are cached.
+   */
+  public static boolean isCacheable(IndexSegment indexSegment, QueryContext queryContext) {
+    return indexSegment instanceof ImmutableSegment && indexSegment.getValidDocIds() == null
+        && queryContext.getAggregationFunctions() != null && !queryContext.isExplain()
+        && indexSegment.getSegmentMetadata().getCrc() != null;
+  }
+
+  /**
+   * Returns the cache key for the given segment and query. Only the parts of the query that affect the segment level
+   * results are included, so that queries only differing on e.g. query timeout or HAVING clause share the same key.
+   * For group-by queries, the ORDER BY clause, the limit and the group settings are included because they decide how
+   * the segment level groups are trimmed.
+   * <p>NOTE: This method should be called after the query context is rewritten for the segment.
+   */
+  public static String getCacheKey(IndexSegment indexSegment, QueryContext queryContext) {
+    SegmentMetadata segmentMetadata = indexSegment.getSegmentMetadata();
+    StringBuilder keyBuilder = new StringBuilder(getSegmentKeyPrefix(queryContext.getTableName(),
+        indexSegment.getSegmentName())).append(segmentMetadata.getCrc()).append(KEY_SEPARATOR)
+        .append(queryContext.getSelectExpressions()).append(KEY_SEPARATOR).append(queryContext.getFilter())
+        .append(KEY_SEPARATOR).append(queryContext.isNullHandlingEnabled());
+    if (queryContext.getGroupByExpressions() != null) {
+      keyBuilder.append(KEY_SEPARATOR).append(queryContext.getGroupByExpressions()).append(KEY_SEPARATOR)
+          .append(queryContext.getOrderByExpressions()).append(KEY_SEPARATOR).append(queryContext.getLimit())
+          .append(KEY_SEPARATOR).append(queryContext.getNumGroupsLimit()).append(KEY_SEPARATOR)
+          .append(queryContext.getMinSegmentGroupTrimSize());
+    }
+    return keyBuilder.toString();
+  }
+
+  private static String getSegmentKeyPrefix(String tableNameWithType, String segmentName) {
+    return tableNameWithType + KEY_SEPARATOR + segmentName + KEY_SEPARATOR;
+  }
+
+  /**
+   * Returns the cached intermediate results for the given key, or {@code null} if the results are not cached.
+   */
+  @Nullable
+  public CachedResult get(String key) {
+    return _cache.getIfPresent(key);
+  }
+
+  /**
+   * Caches the given intermediate aggregation results. Results that cannot be serialized are not cached.
+   */
+  public void putAggregationResults(String key, AggregationFunction[] aggregationFunctions, List<Object> results,
+      ExecutionStatistics executionStatistics) {
+    SizeTracker sizeTracker = new SizeTracker();
+    Object[] row = toCachedValues(results.toArray(), 0, aggregationFunctions, sizeTracker);
+    if (row != null) {
+      _cache.put(key, new CachedResult(null, new Object[][]{row}, false, executionStatistics,
+          sizeTracker.getSizeInBytes()));
+    }
+  }
+
+  /**
+   * Caches the given segment level group-by results. Results that cannot be serialized are not cached.
+   * <p>NOTE: This method should be called before the results are merged by the combine operator, which might modify
+   *          the intermediate results in place.
+   */
+  public void putGroupByResults(String key, AggregationFunction[] aggregationFunctions, int numGroupByExpressions,
+      GroupByResultsBlock resultsBlock, ExecutionStatistics executionStatistics) {
+    SizeTracker sizeTracker = new SizeTracker();
+    List<Object[]> rows = new ArrayList<>();
+    Collection<IntermediateRecord> intermediateRecords = resultsBlock.getIntermediateRecords();
+    if (intermediateRecords != null) {
+      for (IntermediateRecord intermediateRecord : intermediateRecords) {
+        Object[] row =
+            toCachedValues(intermediateRecord._record.getValues(), numGroupByExpressions, aggregationFunctions,
+                sizeTracker);
+        if (row == null) {
+          return;
+        }
+        rows.add(row);
+      }
+    } else {
+      AggregationGroupByResult aggregationGroupByResult = resultsBlock.getAggregationGroupByResult();
+      if (aggregationGroupByResult != null) {
+        int numAggregationFunctions = aggregationFunctions.length;
+        Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator = aggregationGroupByResult.getGroupKeyIterator();
+        while (groupKeyIterator.hasNext()) {
+          GroupKeyGenerator.GroupKey groupKey = groupKeyIterator.next();
+          Object[] values = Arrays.copyOf(groupKey._keys, numGroupByExpressions + numAggregationFunctions);
+          for (int i = 0; i < numAggregationFunctions; i++) {
+            values[numGroupByExpressions + i] = aggregationGroupByResult.getResultForGroupId(i, groupKey._groupId);
+          }
+          Object[] row = toCachedValues(values, numGroupByExpressions, aggregationFunctions, sizeTracker);
+          if (row == null) {
+            return;
+          }
+          rows.add(row);
+        }
+      }
+    }
+    _cache.put(key, new CachedResult(resultsBlock.getDataSchema(), rows.toArray(new Object[0][]),
+        resultsBlock.isNumGroupsLimitReached(), executionStatistics, sizeTracker.getSizeInBytes()));
+  }
+
+  /**
+   * Converts the values into the cached form, where the intermediate results of the OBJECT type are serialized, or
+   * returns {@code null} if they cannot be serialized. The group-by keys and the LONG and DOUBLE intermediate results
+   * are immutable, so they are stored as is.
+   */
+  @Nullable
+  private static Object[] toCachedValues(Object[] values, int numGroupByExpressions,
+      AggregationFunction[] aggregationFunctions, SizeTracker sizeTracker) {
+    int numValues = values.length;
+    Object[] cachedValues = new Object[numValues];
+    for (int i = 0; i < numValues; i++) {
+      Object value = values[i];
+      sizeTracker.add(VALUE_OVERHEAD_BYTES);
+      if (value == null) {
+        continue;
+      }
+      if (i >= numGroupByExpressions
+          && aggregationFunctions[i - numGroupByExpressions].getIntermediateResultColumnType()
+          == ColumnDataType.OBJECT) {
+        try {
+          int objectType = ObjectSerDeUtils.ObjectType.getObjectType(value).getValue();
+          byte[] bytes = ObjectSerDeUtils.serialize(value, objectType);
+          cachedValues[i] = new SerializedValue(objectType, bytes);
+          sizeTracker.add(bytes.length);
+        } catch (Exception e) {
+          // Unsupported intermediate result, skip caching
+          return null;
+        }
+      } else {
+        cachedValues[i] = value;
+        if (value instanceof String) {
+          sizeTracker.add(2L * ((String) value).length());
+        } else {
+          sizeTracker.add(Long.BYTES);
+        }
+      }
+    }
+    return cachedValues;
+  }
+
+  /**
+   * Invalidates the cached results of the given segment. This should be called when the segment is reloaded, replaced
+   * or removed.
+   */
+  public void invalidateSegment(String tableNameWithType, String segmentName) {
+    String keyPrefix = getSegmentKeyPrefix(tableNameWithType, segmentName);
+    _cache.asMap().keySet().removeIf(key -> key.startsWith(keyPrefix));
+  }
+
+  /**
+   * Invalidates the cached results of all the segments of the given table. This should be called when the table is
+   * removed from the server.
+   */
+  public void invalidateTable(String tableNameWithType) {
+    String keyPrefix = tableNameWithType + KEY_SEPARATOR;
+    _cache.asMap().keySet().removeIf(key -> key.startsWith(keyPrefix));
+  }
+
+  @VisibleForTesting
+  long size() {
+    return _cache.size();
+  }
+
+  private static class SizeTracker {
+    long _sizeInBytes = ENTRY_OVERHEAD_BYTES;
+
+    void add(long numBytes) {
+      _sizeInBytes += numBytes;
+    }
+
+    int getSizeInBytes() {
+      return (int) Math.min(_sizeInBytes, Integer.MAX_VALUE);
+    }
+  }
+
+  private static class SerializedValue {
+    final int _objectType;
+    final byte[] _bytes;
+
+    SerializedValue(int objectType, byte[] bytes) {
+      _objectType = objectType;
+      _bytes = bytes;
+    }
+  }
+
+  public static class CachedResult {
+    private final DataSchema _dataSchema;
+    private final Object[][] _rows;
+    private final boolean _numGroupsLimitReached;
+    private final ExecutionStatistics _executionStatistics;
+    private final int _sizeInBytes;
+
+    private CachedResult(@Nullable DataSchema dataSchema, Object[][] rows, boolean numGroupsLimitReached,
+        ExecutionStatistics executionStatistics, int sizeInBytes) {
+      _dataSchema = dataSchema;
+      _rows = rows;
+      _numGroupsLimitReached = numGroupsLimitReached;
+      _executionStatistics = executionStatistics;
+      _sizeInBytes = sizeInBytes;
+    }
+
+    /**
+     * Returns a new copy of the intermediate aggregation results which can be modified by the caller.
+     */
+    public List<Object> getAggregationResults() {
+      return Arrays.asList(deserialize(_rows[0]));
+    }
+
+    /**
+     * Returns the data schema of the group-by results.
+     */
+    public DataSchema getDataSchema() {
+      return _dataSchema;
+    }
+
+    /**
+     * Returns a new copy of the group-by rows (group-by keys followed by the intermediate aggregation results) which
+     * can be modified by the caller.
+     */
+    public List<Object[]> getGroupByRows() {
+      List<Object[]> rows = new ArrayList<>(_rows.length);
+      for (Object[] row : _rows) {
+        rows.add(deserialize(row));
+      }
+      return rows;
+    }
+
+    public boolean isNumGroupsLimitReached() {
+      return _numGroupsLimitReached;
+    }
+
+    /**
+     * Returns the execution statistics of the original execution.
+     */
+    public ExecutionStatistics getExecutionStatistics() {
+      return _executionStatistics;
+    }
+
+    private static Object[] deserialize(Object[] cachedValues) {
+      int numValues = cachedValues.length;
+      Object[] values = new Object[numValues];
+      for (int i = 0; i < numValues; i++) {
+        Object value = cachedValues[i];
+        if (value instanceof SerializedValue) {
+          SerializedValue serializedValue = (SerializedValue) value;
+          values[i] = ObjectSerDeUtils.deserialize(
+              new CustomObject(serializedValue._objectType, ByteBuffer.wrap(serializedValue._bytes)));
+        } else {
+          values[i] = value;
+        }
+      }
+      return values;
+    }
+  }
+}
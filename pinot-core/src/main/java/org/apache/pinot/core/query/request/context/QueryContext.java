@@ -105,6 +105,8 @@ public class QueryContext {
   private boolean _skipStarTree;
   // Whether to skip reordering scan filters for the query
   private boolean _skipScanFilterReorder;
+  // Whether to reorder filters based on the selectivity observed at runtime for the query
+  private boolean _adaptiveFilterReorder;
   // Maximum number of threads used to execute the query
   private int _maxExecutionThreads = InstancePlanMakerImplV2.DEFAULT_MAX_EXECUTION_THREADS;
   // The following properties apply to group-by queries
@@ -329,6 +331,14 @@ public class QueryContext {
     _skipScanFilterReorder = skipScanFilterReorder;
   }
 
+  public boolean isAdaptiveFilterReorder() {
+    return _adaptiveFilterReorder;
+  }
+
+  public void setAdaptiveFilterReorder(boolean adaptiveFilterReorder) {
+    _adaptiveFilterReorder = adaptiveFilterReorder;
+  }
+
   public int getMaxExecutionThreads() {
     return _maxExecutionThreads;
   }
@@ -19,6 +19,7 @@
 package org.apache.pinot.core.routing;
 
 import java.util.Map;
+import javax.annotation.Nullable;
 import org.apache.pinot.common.request.BrokerRequest;
 import org.apache.pinot.core.transport.ServerInstance;
 import org.apache.pinot.spi.annotations.InterfaceAudience;
@@ -67,4 +68,27 @@ public interface RoutingManager {
    * @return time boundary info.
    */
   TimeBoundaryInfo getTimeBoundaryInfo(String offlineTableName);
+
+  /**
+   * Returns the estimated total number of documents for the given table, or -1 if it is not available. This is used
+   * as a statistic for query planning (e.g. choosing the join strategy), and is not guaranteed to be accurate.
+   *
+   * @param tableNameWithType the name of the table with type suffix.
+   * @return estimated total number of documents, or -1 if unknown.
+   */
+  default long getEstimatedNumDocs(String tableNameWithType) {
+    return -1;
+  }
+
+  /**
+   * Returns the partition info for the given table, or {@code null} if the table is not partitioned on a single column
+   * or the partition info is not tracked.
+   *
+   * @param tableNameWithType the name of the table with type suffix.
+   * @return partition info of the table, or null if not available.
+   */
+  @Nullable
+  default TablePartitionInfo getTablePartitionInfo(String tableNameWithType) {
+    return null;
+  }
 }
@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.routing;
+
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * The {@code TablePartitionInfo} contains the partition of each segment of a table partitioned on a single column,
+ * which is used to decide whether a query can be executed on the partitions without shuffling the data (e.g. colocated
+ * join of 2 tables partitioned on the join key).
+ */
+public class TablePartitionInfo {
+  private final String _tableNameWithType;
+  private final String _partitionColumn;
+  private final String _partitionFunctionName;
+  private final int _numPartitions;
+  private final Map<String, Integer> _segmentToPartitionIdMap;
+  private final Set<String> _segmentsWithInvalidPartition;
+  private final Map<Integer, Set<String>> _partitionToInstancesMap;
+
+  public TablePartitionInfo(String tableNameWithType, String partitionColumn, String partitionFunctionName,
+      int numPartitions, Map<String, Integer> segmentToPartitionIdMap, Set<String> segmentsWithInvalidPartition,
+      Map<Integer, Set<String>> partitionToInstancesMap) {
+    _tableNameWithType = tableNameWithType;
+    _partitionColumn = partitionColumn;
+    _partitionFunctionName = partitionFunctionName;
+    _numPartitions = numPartitions;
+    _segmentToPartitionIdMap = segmentToPartitionIdMap;
+    _segmentsWithInvalidPartition = segmentsWithInvalidPartition;
+    _partitionToInstancesMap = partitionToInstancesMap;
+  }
+
+  public String getTableNameWithType() {
+    return _tableNameWithType;
+  }
+
+  public String getPartitionColumn() {
+    return _partitionColumn;
+  }
+
+  public String getPartitionFunctionName() {
+    return _partitionFunctionName;
+  }
+
+  public int getNumPartitions() {
+    return _numPartitions;
+  }
+
+  /**
+   * Returns the map from segment to its partition id, for the segments that contain a single partition matching the
+   * partition function and number of partitions of the table.
+   */
+  public Map<String, Integer> getSegmentToPartitionIdMap() {
+    return _segmentToPartitionIdMap;
+  }
+
+  /**
+   * Returns the segments without valid partition metadata, or containing multiple partitions.
+   */
+  public Set<String> getSegmentsWithInvalidPartition() {
+    return _segmentsWithInvalidPartition;
+  }
+
+  /**
+   * Returns the map from partition id to the instances serving all the segments of the partition (ONLINE or CONSUMING
+   * in the external view). A partition without any instance serving all its segments is mapped to an empty set.
+   */
+  public Map<Integer, Set<String>> getPartitionToInstancesMap() {
+    return _partitionToInstancesMap;
+  }
+}
@@ -19,8 +19,11 @@
 package org.apache.pinot.core.common.datablock;
 
 import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.apache.pinot.common.datablock.ColumnarDataBlock;
 import org.apache.pinot.common.datablock.DataBlock;
@@ -91,6 +94,59 @@ public class DataBlockTest {
     }
   }
 
+  @Test(dataProvider = "testTypeNullPercentile")
+  public void testToByteBuffers(int nullPercentile)
+      throws Exception {
+    DataSchema dataSchema = getDataSchema();
+    List<Object[]> rows = DataBlockTestUtils.getRandomRows(dataSchema, TEST_ROW_COUNT, nullPercentile);
+    List<Object[]> columnars = DataBlockTestUtils.convertColumnar(dataSchema, rows);
+    assertSameBytes(DataBlockBuilder.buildFromRows(rows, dataSchema));
+    assertSameBytes(DataBlockBuilder.buildFromColumns(columnars, dataSchema));
+    assertSameBytes(DataBlockUtils.getEndOfStreamDataBlock());
+    assertSameBytes(DataBlockUtils.getErrorDataBlock(new RuntimeException("Expected test exception.")));
+  }
+
+  @Test(dataProvider = "testTypeNullPercentile")
+  public void testExtractColumns(int nullPercentile)
+      throws Exception {
+    DataSchema dataSchema = getDataSchema();
+    List<Object[]> rows = DataBlockTestUtils.getRandomRows(dataSchema, TEST_ROW_COUNT, nullPercentile);
+    List<Object[]> columnars = DataBlockTestUtils.convertColumnar(dataSchema, rows);
+    ColumnarDataBlock columnarBlock = DataBlockBuilder.buildFromColumns(columnars, dataSchema);
+
+    List<Object[]> extractedColumns = DataBlockUtils.extractColumns(columnarBlock, null);
+    Assert.assertEquals(extractedColumns.size(), columnars.size());
+    for (int colId = 0; colId < columnars.size(); colId++) {
+      Assert.assertTrue(Arrays.deepEquals(extractedColumns.get(colId), columnars.get(colId)),
+          "Error comparing column of Type: " + dataSchema.getColumnDataType(colId));
+    }
+  }
+
+  private static DataSchema getDataSchema() {
+    DataSchema.ColumnDataType[] allDataTypes = DataSchema.ColumnDataType.values();
+    List<DataSchema.ColumnDataType> columnDataTypes = new ArrayList<>();
+    List<String> columnNames = new ArrayList<>();
+    for (DataSchema.ColumnDataType dataType : allDataTypes) {
+      if (!EXCLUDE_DATA_TYPES.contains(dataType)) {
+        columnNames.add(dataType.name());
+        columnDataTypes.add(dataType);
+      }
+    }
+    return new DataSchema(columnNames.toArray(new String[0]),
+        columnDataTypes.toArray(new DataSchema.ColumnDataType[0]));
+  }
+
+  private static void assertSameBytes(DataBlock dataBlock)
+      throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    for (ByteBuffer byteBuffer : dataBlock.toByteBuffers()) {
+      byte[] bytes = new byte[byteBuffer.remaining()];
+      byteBuffer.get(bytes);
+      byteArrayOutputStream.write(bytes);
+    }
+    Assert.assertEquals(byteArrayOutputStream.toByteArray(), dataBlock.toBytes());
+  }
+
   @DataProvider(name = "testTypeNullPercentile")
   public Object[][] provideTestTypeNullPercentile() {
     return new Object[][]{new Object[]{0}, new Object[]{10}, new Object[]{100}};
@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.manager.realtime;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.pinot.segment.local.segment.creator.TransformPipeline;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.stream.MessageBatch;
+import org.apache.pinot.spi.stream.StreamDataDecoderImpl;
+import org.apache.pinot.spi.stream.StreamMessage;
+import org.apache.pinot.spi.stream.StreamMessageDecoder;
+import org.mockito.Mockito;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+
+public class RealtimeIngestionPipelineTest {
+  private static final String VALUE_COLUMN = "value";
+
+  private final ExecutorService _executorService = Executors.newFixedThreadPool(2);
+  private RealtimeIngestionPipeline _pipeline;
+
+  @BeforeMethod
+  public void setUp() {
+    // Filters out the values divisible by 10, and fails on the values divisible by 7
+    TransformPipeline transformPipeline = new TransformPipeline(record -> {
+      int value = (int) record.getValue(VALUE_COLUMN);
+      if (value % 7 == 0) {
+        throw new IllegalStateException("Cannot transform: " + value);
+      }
+      return value % 10 == 0 ? null : record;
+    }, null);
+    _pipeline = new RealtimeIngestionPipeline(_executorService, 3,
+        () -> new StreamDataDecoderImpl(new IntegerDecoder()), () -> transformPipeline);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    _pipeline.close();
+  }
+
+  @AfterClass
+  public void shutDown() {
+    _executorService.shutdownNow();
+  }
+
+  @Test
+  public void testProcessInOrder() {
+    // Enough messages to reuse the slots of the ring buffer multiple times
+    int numMessages = RealtimeIngestionPipeline.CHUNK_SIZE * 20 + 5;
+    for (int batch = 0; batch < 2; batch++) {
+      _pipeline.start(getMessageBatch(1, numMessages));
+      for (int index = 0; index < numMessages; index++) {
+        int value = index + 1;
+        RealtimeIngestionPipeline.ProcessedMessage message = _pipeline.get(index);
+        assertNull(message.getDecoderResult().getException());
+        List<GenericRow> transformedRows = message.getTransformResult().getTransformedRows();
+        if (value % 7 == 0) {
+          assertNotNull(message.getTransformException());
+          assertTrue(transformedRows.isEmpty());
+        } else if (value % 10 == 0) {
+          assertNull(message.getTransformException());
+          assertTrue(transformedRows.isEmpty());
+          assertEquals(message.getTransformResult().getSkippedRowCount(), 1);
+        } else {
+          assertNull(message.getTransformException());
+          assertEquals(transformedRows.size(), 1);
+          assertEquals(transformedRows.get(0).getValue(VALUE_COLUMN), value);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDecodeError() {
+    MessageBatch messageBatch = getMessageBatch(1, 2);
+    StreamMessage invalidMessage = new StreamMessage("invalid".getBytes(StandardCharsets.UTF_8), 7);
+    Mockito.when(messageBatch.getStreamMessage(1)).thenReturn(invalidMessage);
+    _pipeline.start(messageBatch);
+    assertNull(_pipeline.get(0).getDecoderResult().getException());
+    assertNotNull(_pipeline.get(1).getDecoderResult().getException());
+    assertTrue(_pipeline.get(1).getTransformResult().getTransformedRows().isEmpty());
+  }
+
+  @Test
+  public void testStartBeforeReadingAllMessages() {
+    int numMessages = RealtimeIngestionPipeline.CHUNK_SIZE * 10;
+    _pipeline.start(getMessageBatch(1, numMessages));
+    assertEquals(_pipeline.get(0).getTransformResult().getTransformedRows().get(0).getValue(VALUE_COLUMN), 1);
+
+    // The remaining messages of the previous batch should not leak into the new batch
+    _pipeline.start(getMessageBatch(1001, numMessages));
+    for (int index = 0; index < numMessages; index++) {
+      int value = index + 1001;
+      if (value % 7 != 0 && value % 10 != 0) {
+        assertEquals(_pipeline.get(index).getTransformResult().getTransformedRows().get(0).getValue(VALUE_COLUMN),
+            value);
+      }
+    }
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testReadOutOfOrder() {
+    _pipeline.start(getMessageBatch(1, RealtimeIngestionPipeline.CHUNK_SIZE * 3));
+    _pipeline.get(RealtimeIngestionPipeline.CHUNK_SIZE * 2);
+  }
+
+  private static MessageBatch getMessageBatch(int startValue, int numMessages) {
+    List<StreamMessage> messages = new ArrayList<>(numMessages);
+    for (int i = 0; i < numMessages; i++) {
+      byte[] value = Integer.toString(startValue + i).getBytes(StandardCharsets.UTF_8);
+      messages.add(new StreamMessage(value, value.length));
+    }
+    MessageBatch messageBatch = Mockito.mock(MessageBatch.class);
+    Mockito.when(messageBatch.getMessageCount()).thenReturn(numMessages);
+    Mockito.when(messageBatch.getStreamMessage(Mockito.anyInt()))
+        .thenAnswer(invocation -> messages.get(invocation.getArgument(0)));
+    return messageBatch;
+  }
+
+  private static class IntegerDecoder implements StreamMessageDecoder<byte[]> {
+    @Override
+    public void init(Map<String, String> props, Set<String> fieldsToRead, String topicName) {
+    }
+
+    @Override
+    public GenericRow decode(byte[] payload, GenericRow destination) {
+      return decode(payload, 0, payload.length, destination);
+    }
+
+    @Override
+    public GenericRow decode(byte[] payload, int offset, int length, GenericRow destination) {
+      try {
+        destination.putValue(VALUE_COLUMN,
+            Integer.parseInt(new String(payload, offset, length, StandardCharsets.UTF_8)));
+        return destination;
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+  }
+}
@@ -0,0 +1,323 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.operator.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.pinot.common.request.context.ExpressionContext;
+import org.apache.pinot.common.request.context.predicate.EqPredicate;
+import org.apache.pinot.common.request.context.predicate.Predicate;
+import org.apache.pinot.core.common.BlockDocIdIterator;
+import org.apache.pinot.core.operator.dociditerators.SVScanDocIdIterator;
+import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.segment.spi.Constants;
+import org.apache.pinot.segment.spi.datasource.DataSource;
+import org.apache.pinot.segment.spi.datasource.DataSourceMetadata;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReader;
+import org.apache.pinot.segment.spi.index.reader.InvertedIndexReader;
+import org.apache.pinot.spi.data.DimensionFieldSpec;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+
+public class FilterSelectivityStatsTest {
+  private static final String TABLE_NAME = "testTable_OFFLINE";
+  private static final int NUM_DOCS = 100_000;
+
+  @Test
+  public void testRecordSelectivity() {
+    FilterSelectivityStats stats = new FilterSelectivityStats();
+    Predicate predicate = getPredicate("a");
+    FilterSelectivityStats.Recorder recorder = stats.getRecorder(TABLE_NAME, predicate);
+
+    // Not reported before enough documents are evaluated
+    recorder.recordSelectivity(1000, 100);
+    assertTrue(Double.isNaN(stats.getSelectivity(TABLE_NAME, predicate)));
+    assertTrue(Double.isNaN(recorder.getSelectivity()));
+
+    long numDocsEvaluated = FilterSelectivityStats.MIN_NUM_DOCS_EVALUATED;
+    recorder.recordSelectivity(numDocsEvaluated, 1000);
+    assertEquals(recorder.getSelectivity(), 1100.0 / (numDocsEvaluated + 1000));
+    assertTrue(Double.isNaN(recorder.getCostNsPerDoc()));
+    // The cost is recorded separately from the selectivity
+    recorder.recordCost(numDocsEvaluated, 2 * numDocsEvaluated);
+    assertEquals(recorder.getCostNsPerDoc(), 2.0);
+    assertEquals(recorder.getSelectivity(), 1100.0 / (numDocsEvaluated + 1000));
+
+    // Stats of other tables and predicates are not affected
+    assertTrue(Double.isNaN(stats.getSelectivity(TABLE_NAME, getPredicate("b"))));
+    assertTrue(Double.isNaN(stats.getSelectivity("otherTable_OFFLINE", predicate)));
+
+    // Stats decay so that the recent samples dominate
+    for (int i = 0; i < 100; i++) {
+      recorder.recordSelectivity(FilterSelectivityStats.MAX_NUM_DOCS_EVALUATED / 2, 0);
+    }
+    assertTrue(recorder.getSelectivity() < 1e-6);
+
+    stats.removeTable(TABLE_NAME);
+    assertTrue(Double.isNaN(recorder.getSelectivity()));
+  }
+
+  @Test
+  public void testMaxNumPredicatesPerTable() {
+    FilterSelectivityStats stats = new FilterSelectivityStats();
+    int maxNumPredicates = FilterSelectivityStats.MAX_NUM_PREDICATES_PER_TABLE;
+    for (int i = 0; i < maxNumPredicates; i++) {
+      stats.getRecorder(TABLE_NAME, getPredicate("col" + i)).recordSelectivity(NUM_DOCS, 1);
+    }
+    // Access the first predicate so that the second one becomes the least recently used
+    assertEquals(stats.getSelectivity(TABLE_NAME, getPredicate("col0")), 1.0 / NUM_DOCS);
+    stats.getRecorder(TABLE_NAME, getPredicate("col" + maxNumPredicates)).recordSelectivity(NUM_DOCS, 1);
+    assertEquals(stats.getSelectivity(TABLE_NAME, getPredicate("col" + maxNumPredicates)), 1.0 / NUM_DOCS);
+    assertEquals(stats.getSelectivity(TABLE_NAME, getPredicate("col0")), 1.0 / NUM_DOCS);
+    assertTrue(Double.isNaN(stats.getSelectivity(TABLE_NAME, getPredicate("col1"))));
+  }
+
+  @Test
+  public void testRecordUnconditionalSelectivity() {
+    FilterSelectivityStats stats = new FilterSelectivityStats();
+    Predicate predicate = getPredicate("scan");
+
+    // Scan through all the documents
+    SVScanDocIdIterator iterator = getScanDocIdIterator(predicate);
+    iterator.setSelectivityRecorder(stats.getRecorder(TABLE_NAME, predicate));
+    int numMatchingDocs = 0;
+    while (iterator.next() != Constants.EOF) {
+      numMatchingDocs++;
+    }
+    assertEquals(numMatchingDocs, NUM_DOCS / 10);
+    assertEquals(stats.getSelectivity(TABLE_NAME, predicate), 0.1);
+
+    // Scan skipping documents as within an AND, where the observed selectivity depends on the other predicates, so the
+    // selectivity is sampled on a fixed window of documents instead
+    stats.removeTable(TABLE_NAME);
+    iterator = getScanDocIdIterator(predicate);
+    iterator.setSelectivityRecorder(stats.getRecorder(TABLE_NAME, predicate));
+    int docId = iterator.advance(0);
+    while (docId != Constants.EOF) {
+      docId = iterator.advance(docId + 2);
+    }
+    assertEquals(stats.getSelectivity(TABLE_NAME, predicate), 0.1, 0.001);
+  }
+
+  @Test
+  public void testAdaptiveReorderWithinAndOfScans() {
+    FilterSelectivityStats stats = new FilterSelectivityStats();
+    QueryContext queryContext = mock(QueryContext.class);
+    when(queryContext.isAdaptiveFilterReorder()).thenReturn(true);
+    Predicate nonSelectivePredicate = getPredicate("nonSelective");
+    Predicate selectivePredicate = getPredicate("selective");
+
+    // No stats on the first run, so the original order is kept
+    ScanBasedFilterOperator nonSelective1 = getScanBasedFilterOperator(stats, nonSelectivePredicate, false);
+    ScanBasedFilterOperator selective1 = getScanBasedFilterOperator(stats, selectivePredicate, true);
+    BaseFilterOperator andFilterOperator = new FilterOperatorUtils.DefaultImplementation().getAndFilterOperator(
+        queryContext, Arrays.asList(nonSelective1, selective1), NUM_DOCS);
+    assertEquals(andFilterOperator.getChildOperators(), Arrays.asList(nonSelective1, selective1));
+    BlockDocIdIterator iterator = andFilterOperator.nextBlock().getBlockDocIdSet().iterator();
+    int numMatchingDocs = 0;
+    while (iterator.next() != Constants.EOF) {
+      numMatchingDocs++;
+    }
+    assertEquals(numMatchingDocs, NUM_DOCS / 10);
+
+    // The selectivity sampled by the scans within the AND on the first run reorders the children on the second run
+    ScanBasedFilterOperator nonSelective2 = getScanBasedFilterOperator(stats, nonSelectivePredicate, false);
+    ScanBasedFilterOperator selective2 = getScanBasedFilterOperator(stats, selectivePredicate, true);
+    andFilterOperator = new FilterOperatorUtils.DefaultImplementation().getAndFilterOperator(queryContext,
+        Arrays.asList(nonSelective2, selective2), NUM_DOCS);
+    assertEquals(andFilterOperator.getChildOperators(), Arrays.asList(selective2, nonSelective2));
+  }
+
+  @Test
+  public void testAdaptiveReorder() {
+    FilterSelectivityStats stats = new FilterSelectivityStats();
+    ScanBasedFilterOperator scan1 = getScanBasedFilterOperator(stats, "scan1", 0.5, 10);
+    ScanBasedFilterOperator scan2 = getScanBasedFilterOperator(stats, "scan2", 0.1, 10);
+    // Very selective, but too expensive to be evaluated first
+    ScanBasedFilterOperator scan3 = getScanBasedFilterOperator(stats, "scan3", 0.001, 50);
+    // No stats
+    ScanBasedFilterOperator scan4 = getScanBasedFilterOperator(stats, "scan4", Double.NaN, 0);
+    ScanBasedFilterOperator scan5 = getScanBasedFilterOperator(stats, "scan5", Double.NaN, 0);
+    BitmapBasedFilterOperator bitmap1 = getBitmapBasedFilterOperator(stats, "bitmap1", 0.2);
+    BitmapBasedFilterOperator bitmap2 = getBitmapBasedFilterOperator(stats, "bitmap2", 0.01);
+
+    // Order is only decided by the operator type when adaptive reorder is disabled
+    QueryContext queryContext = mock(QueryContext.class);
+    List<BaseFilterOperator> filterOperators =
+        new ArrayList<>(Arrays.asList(scan4, scan1, bitmap1, scan2, scan5, scan3, bitmap2));
+    new FilterOperatorUtils.DefaultImplementation().reorderAndFilterChildOperators(queryContext, filterOperators);
+    assertEquals(filterOperators, Arrays.asList(bitmap1, bitmap2, scan4, scan1, scan2, scan5, scan3));
+
+    when(queryContext.isAdaptiveFilterReorder()).thenReturn(true);
+    filterOperators = new ArrayList<>(Arrays.asList(scan4, scan1, bitmap1, scan2, scan5, scan3, bitmap2));
+    new FilterOperatorUtils.DefaultImplementation().reorderAndFilterChildOperators(queryContext, filterOperators);
+    assertEquals(filterOperators, Arrays.asList(bitmap2, bitmap1, scan2, scan1, scan3, scan4, scan5));
+  }
+
+  @Test
+  public void testConvertLowSelectivityIndexToScan() {
+    FilterSelectivityStats stats = new FilterSelectivityStats();
+    QueryContext queryContext = mock(QueryContext.class);
+    when(queryContext.isAdaptiveFilterReorder()).thenReturn(true);
+    BitmapBasedFilterOperator bitmap1 = getBitmapBasedFilterOperator(stats, "bitmap1", 0.95);
+    BitmapBasedFilterOperator bitmap2 = getBitmapBasedFilterOperator(stats, "bitmap2", 0.99);
+
+    // At least one index based operator should be kept
+    List<BaseFilterOperator> filterOperators = new ArrayList<>(Arrays.asList(bitmap1, bitmap2));
+    new FilterOperatorUtils.DefaultImplementation().reorderAndFilterChildOperators(queryContext, filterOperators);
+    assertSame(filterOperators.get(0), bitmap2);
+    assertTrue(filterOperators.get(1) instanceof ScanBasedFilterOperator);
+    ScanBasedFilterOperator converted = (ScanBasedFilterOperator) filterOperators.get(1);
+    assertTrue(converted.isConvertedFromIndex());
+    assertSame(converted.getSelectivityRecorder(), bitmap1.getSelectivityRecorder());
+    assertEquals(converted.toExplainString(),
+        "FILTER_FULL_SCAN(operator:EQ,predicate:bitmap1 = '1',observedSelectivity(dynamic):0.9500,"
+            + "convertedFromIndex(dynamic):true)");
+
+    // Selective index lookups are kept
+    BitmapBasedFilterOperator bitmap3 = getBitmapBasedFilterOperator(stats, "bitmap3", 0.5);
+    filterOperators = new ArrayList<>(Arrays.asList(bitmap1, bitmap3));
+    new FilterOperatorUtils.DefaultImplementation().reorderAndFilterChildOperators(queryContext, filterOperators);
+    assertSame(filterOperators.get(0), bitmap3);
+    assertTrue(filterOperators.get(1) instanceof ScanBasedFilterOperator);
+    assertEquals(bitmap3.toExplainString(),
+        "FILTER_INVERTED_INDEX(indexLookUp:inverted_index,operator:EQ,predicate:bitmap3 = '1',"
+            + "observedSelectivity(dynamic):0.5000)");
+
+    // No conversion when adaptive reorder is disabled
+    filterOperators = new ArrayList<>(Arrays.asList(bitmap1, bitmap3));
+    new FilterOperatorUtils.DefaultImplementation().reorderAndFilterChildOperators(mock(QueryContext.class),
+        filterOperators);
+    assertEquals(filterOperators, Arrays.asList(bitmap1, bitmap3));
+    assertFalse(filterOperators.get(0) instanceof ScanBasedFilterOperator);
+  }
+
+  private static Predicate getPredicate(String column) {
+    return new EqPredicate(ExpressionContext.forIdentifier(column), "1");
+  }
+
+  private static DataSource getDataSource() {
+    DataSource dataSource = mock(DataSource.class);
+    DataSourceMetadata dataSourceMetadata = mock(DataSourceMetadata.class);
+    when(dataSourceMetadata.isSingleValue()).thenReturn(true);
+    when(dataSourceMetadata.getFieldSpec()).thenReturn(new DimensionFieldSpec("col", DataType.INT, true));
+    when(dataSource.getDataSourceMetadata()).thenReturn(dataSourceMetadata);
+    when(dataSource.getForwardIndex()).thenReturn(mock(ForwardIndexReader.class));
+    when(dataSource.getInvertedIndex()).thenReturn(mock(InvertedIndexReader.class));
+    return dataSource;
+  }
+
+  private static PredicateEvaluator getPredicateEvaluator(Predicate predicate) {
+    PredicateEvaluator predicateEvaluator = mock(PredicateEvaluator.class);
+    when(predicateEvaluator.getPredicate()).thenReturn(predicate);
+    when(predicateEvaluator.getPredicateType()).thenReturn(predicate.getType());
+    return predicateEvaluator;
+  }
+
+  /**
+   * Returns a scan iterator on a column where the dictId is the docId, and the predicate matches every 10th dictId.
+   */
+  @SuppressWarnings("unchecked")
+  private static SVScanDocIdIterator getScanDocIdIterator(Predicate predicate) {
+    ForwardIndexReader reader = mock(ForwardIndexReader.class);
+    when(reader.isDictionaryEncoded()).thenReturn(true);
+    when(reader.getDictId(anyInt(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+    doAnswer(invocation -> {
+      int[] docIds = invocation.getArgument(0);
+      System.arraycopy(docIds, 0, invocation.getArgument(2), 0, invocation.<Integer>getArgument(1));
+      return null;
+    }).when(reader).readDictIds(any(), anyInt(), any(), any());
+    PredicateEvaluator predicateEvaluator = getPredicateEvaluator(predicate);
+    when(predicateEvaluator.applySV(anyInt())).thenAnswer(invocation -> invocation.<Integer>getArgument(0) % 10 == 0);
+    when(predicateEvaluator.applySV(anyInt(), any(), any(int[].class))).thenCallRealMethod();
+    return new SVScanDocIdIterator(predicateEvaluator, reader, NUM_DOCS, null);
+  }
+
+  /**
+   * Returns a scan based filter operator on a column where the dictId is the docId, and the predicate matches every
+   * 10th dictId when selective, or all the dictIds but every 10th one (shifted by 1) otherwise.
+   */
+  @SuppressWarnings("unchecked")
+  private static ScanBasedFilterOperator getScanBasedFilterOperator(FilterSelectivityStats stats, Predicate predicate,
+      boolean selective) {
+    ForwardIndexReader reader = mock(ForwardIndexReader.class);
+    when(reader.isDictionaryEncoded()).thenReturn(true);
+    when(reader.getDictId(anyInt(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+    doAnswer(invocation -> {
+      int[] docIds = invocation.getArgument(0);
+      System.arraycopy(docIds, 0, invocation.getArgument(2), 0, invocation.<Integer>getArgument(1));
+      return null;
+    }).when(reader).readDictIds(any(), anyInt(), any(), any());
+    DataSource dataSource = getDataSource();
+    when(dataSource.getForwardIndex()).thenReturn(reader);
+    PredicateEvaluator predicateEvaluator = getPredicateEvaluator(predicate);
+    when(predicateEvaluator.applySV(anyInt())).thenAnswer(invocation -> {
+      int dictId = invocation.getArgument(0);
+      return selective ? dictId % 10 == 0 : dictId % 10 != 1;
+    });
+    when(predicateEvaluator.applySV(anyInt(), any(), any(int[].class))).thenCallRealMethod();
+    ScanBasedFilterOperator filterOperator =
+        new ScanBasedFilterOperator(predicateEvaluator, dataSource, NUM_DOCS, false);
+    filterOperator.setSelectivityRecorder(stats.getRecorder(TABLE_NAME, predicate));
+    return filterOperator;
+  }
+
+  private static FilterSelectivityStats.Recorder getRecorder(FilterSelectivityStats stats, Predicate predicate,
+      double selectivity, long costNsPerDoc) {
+    FilterSelectivityStats.Recorder recorder = stats.getRecorder(TABLE_NAME, predicate);
+    if (!Double.isNaN(selectivity)) {
+      recorder.recordSelectivity(NUM_DOCS, (long) (NUM_DOCS * selectivity));
+      if (costNsPerDoc >= 0) {
+        recorder.recordCost(NUM_DOCS, costNsPerDoc * NUM_DOCS);
+      }
+    }
+    return recorder;
+  }
+
+  private static ScanBasedFilterOperator getScanBasedFilterOperator(FilterSelectivityStats stats, String column,
+      double selectivity, long costNsPerDoc) {
+    Predicate predicate = getPredicate(column);
+    ScanBasedFilterOperator filterOperator =
+        new ScanBasedFilterOperator(getPredicateEvaluator(predicate), getDataSource(), NUM_DOCS, false);
+    filterOperator.setSelectivityRecorder(getRecorder(stats, predicate, selectivity, costNsPerDoc));
+    return filterOperator;
+  }
+
+  private static BitmapBasedFilterOperator getBitmapBasedFilterOperator(FilterSelectivityStats stats, String column,
+      double selectivity) {
+    Predicate predicate = getPredicate(column);
+    BitmapBasedFilterOperator filterOperator =
+        new BitmapBasedFilterOperator(getPredicateEvaluator(predicate), getDataSource(), NUM_DOCS);
+    filterOperator.setSelectivityRecorder(getRecorder(stats, predicate, selectivity, -1L));
+    return filterOperator;
+  }
+}
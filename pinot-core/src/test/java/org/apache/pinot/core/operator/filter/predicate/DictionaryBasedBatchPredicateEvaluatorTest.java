@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.operator.filter.predicate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.apache.pinot.common.request.context.ExpressionContext;
+import org.apache.pinot.common.request.context.predicate.InPredicate;
+import org.apache.pinot.common.request.context.predicate.NotInPredicate;
+import org.apache.pinot.common.request.context.predicate.Predicate;
+import org.apache.pinot.common.request.context.predicate.RangePredicate;
+import org.apache.pinot.segment.spi.index.reader.Dictionary;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+
+/**
+ * Verifies that the batch evaluation of the dictionary based predicate evaluators matches the per-value evaluation.
+ */
+public class DictionaryBasedBatchPredicateEvaluatorTest {
+  private static final ExpressionContext LHS = ExpressionContext.forIdentifier("col");
+  private static final int NUM_DOCS = 1000;
+
+  @DataProvider
+  public static Object[][] cardinalities() {
+    // Large cardinality falls back to the hash set lookup for IN/NOT_IN
+    return new Object[][]{{1}, {2}, {100}, {1000}, {2_000_000}};
+  }
+
+  @Test(dataProvider = "cardinalities")
+  public void testBatchEvaluation(int cardinality) {
+    Dictionary dictionary = mockDictionary(cardinality);
+    Random random = new Random();
+    List<String> values = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      values.add(Integer.toString(random.nextInt(cardinality)));
+    }
+    int lowerBound = random.nextInt(cardinality);
+    int upperBound = lowerBound + random.nextInt(cardinality - lowerBound);
+    Predicate[] predicates = new Predicate[]{
+        new InPredicate(LHS, values), new NotInPredicate(LHS, values),
+        new RangePredicate(LHS, true, Integer.toString(lowerBound), true, Integer.toString(upperBound)),
+        new RangePredicate(LHS, false, Integer.toString(lowerBound), false, Integer.toString(upperBound))
+    };
+    for (Predicate predicate : predicates) {
+      PredicateEvaluator predicateEvaluator =
+          PredicateEvaluatorProvider.getPredicateEvaluator(predicate, dictionary, DataType.INT);
+      int[] docIds = new int[NUM_DOCS];
+      int[] dictIds = new int[NUM_DOCS];
+      int[] expectedDocIds = new int[NUM_DOCS];
+      int numExpectedDocIds = 0;
+      for (int i = 0; i < NUM_DOCS; i++) {
+        docIds[i] = i * 2;
+        dictIds[i] = random.nextInt(cardinality);
+        if (predicateEvaluator.applySV(dictIds[i])) {
+          expectedDocIds[numExpectedDocIds++] = docIds[i];
+        }
+      }
+      int numMatchingDocIds = predicateEvaluator.applySV(NUM_DOCS, docIds, dictIds);
+      assertEquals(numMatchingDocIds, numExpectedDocIds, predicate.toString());
+      assertEquals(Arrays.copyOf(docIds, numMatchingDocIds), Arrays.copyOf(expectedDocIds, numExpectedDocIds),
+          predicate.toString());
+    }
+  }
+
+  /**
+   * Mocks a sorted dictionary with values [0, cardinality), where each value equals to its dictionary id.
+   */
+  private static Dictionary mockDictionary(int cardinality) {
+    Dictionary dictionary = mock(Dictionary.class);
+    when(dictionary.length()).thenReturn(cardinality);
+    when(dictionary.indexOf(anyInt())).thenAnswer(invocation -> {
+      int value = invocation.getArgument(0);
+      return value >= 0 && value < cardinality ? value : Dictionary.NULL_VALUE_INDEX;
+    });
+    when(dictionary.insertionIndexOf(anyString())).thenAnswer(invocation -> {
+      int value = Integer.parseInt(invocation.getArgument(0));
+      if (value < 0) {
+        return -1;
+      }
+      return value < cardinality ? value : -(cardinality + 1);
+    });
+    when(dictionary.isSorted()).thenReturn(true);
+    return dictionary;
+  }
+}
@@ -0,0 +1,169 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.pinot.common.request.context.ExpressionContext;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.core.data.table.IntermediateRecord;
+import org.apache.pinot.core.data.table.Key;
+import org.apache.pinot.core.data.table.Record;
+import org.apache.pinot.core.operator.ExecutionStatistics;
+import org.apache.pinot.core.operator.blocks.results.GroupByResultsBlock;
+import org.apache.pinot.core.query.aggregation.function.AggregationFunction;
+import org.apache.pinot.core.query.aggregation.function.AvgAggregationFunction;
+import org.apache.pinot.core.query.aggregation.function.CountAggregationFunction;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.core.query.request.context.utils.QueryContextConverterUtils;
+import org.apache.pinot.segment.local.customobject.AvgPair;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.SegmentMetadata;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+
+public class SegmentResultCacheTest {
+  private static final AggregationFunction[] AGGREGATION_FUNCTIONS = new AggregationFunction[]{
+      new CountAggregationFunction(ExpressionContext.forIdentifier("*")),
+      new AvgAggregationFunction(ExpressionContext.forIdentifier("column"))
+  };
+
+  @Test
+  public void testPutGet() {
+    SegmentResultCache cache = new SegmentResultCache(1024 * 1024);
+    assertNull(cache.get("key"));
+    cache.putAggregationResults("key", AGGREGATION_FUNCTIONS, Arrays.asList(10L, new AvgPair(15.0, 10L)),
+        new ExecutionStatistics(10L, 5L, 10L, 100L));
+
+    SegmentResultCache.CachedResult cachedResult = cache.get("key");
+    assertNotNull(cachedResult);
+    assertEquals(cachedResult.getExecutionStatistics().getNumDocsScanned(), 10L);
+    assertEquals(cachedResult.getExecutionStatistics().getNumTotalDocs(), 100L);
+    List<Object> results = cachedResult.getAggregationResults();
+    assertEquals(results.get(0), 10L);
+    AvgPair avgPair = (AvgPair) results.get(1);
+    assertEquals(avgPair.getSum(), 15.0);
+    assertEquals(avgPair.getCount(), 10L);
+
+    // Modifying the returned results should not affect the cached results
+    avgPair.apply(5.0, 1L);
+    avgPair = (AvgPair) cache.get("key").getAggregationResults().get(1);
+    assertEquals(avgPair.getSum(), 15.0);
+    assertEquals(avgPair.getCount(), 10L);
+  }
+
+  @Test
+  public void testMaxSize() {
+    SegmentResultCache cache = new SegmentResultCache(4 * 1024);
+    for (int i = 0; i < 100; i++) {
+      cache.putAggregationResults("key" + i, AGGREGATION_FUNCTIONS, Arrays.asList(10L, new AvgPair(15.0, 10L)),
+          new ExecutionStatistics(10L, 5L, 10L, 100L));
+    }
+    assertTrue(cache.size() < 100);
+    assertNotNull(cache.get("key99"));
+  }
+
+  @Test
+  public void testGroupBy() {
+    SegmentResultCache cache = new SegmentResultCache(1024 * 1024);
+    DataSchema dataSchema = new DataSchema(new String[]{"key", "count(*)", "avg(column)"},
+        new ColumnDataType[]{ColumnDataType.STRING, ColumnDataType.LONG, ColumnDataType.OBJECT});
+    List<IntermediateRecord> intermediateRecords = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      intermediateRecords.add(IntermediateRecord.create(new Key(new Object[]{"key" + i}),
+          new Record(new Object[]{"key" + i, 10L + i, new AvgPair(15.0 + i, 10L + i)})));
+    }
+    GroupByResultsBlock resultsBlock = new GroupByResultsBlock(dataSchema, intermediateRecords);
+    resultsBlock.setNumGroupsLimitReached(true);
+    cache.putGroupByResults("key", AGGREGATION_FUNCTIONS, 1, resultsBlock,
+        new ExecutionStatistics(10L, 5L, 10L, 100L));
+
+    SegmentResultCache.CachedResult cachedResult = cache.get("key");
+    assertNotNull(cachedResult);
+    assertEquals(cachedResult.getDataSchema(), dataSchema);
+    assertTrue(cachedResult.isNumGroupsLimitReached());
+    List<Object[]> rows = cachedResult.getGroupByRows();
+    assertEquals(rows.size(), 3);
+    for (int i = 0; i < 3; i++) {
+      Object[] row = rows.get(i);
+      assertEquals(row[0], "key" + i);
+      assertEquals(row[1], 10L + i);
+      AvgPair avgPair = (AvgPair) row[2];
+      assertEquals(avgPair.getSum(), 15.0 + i);
+      assertEquals(avgPair.getCount(), 10L + i);
+      // Modifying the returned results should not affect the cached results
+      avgPair.apply(5.0, 1L);
+    }
+    AvgPair avgPair = (AvgPair) cache.get("key").getGroupByRows().get(0)[2];
+    assertEquals(avgPair.getSum(), 15.0);
+    assertEquals(avgPair.getCount(), 10L);
+  }
+
+  @Test
+  public void testInvalidate() {
+    SegmentResultCache cache = new SegmentResultCache(1024 * 1024);
+    QueryContext queryContext =
+        QueryContextConverterUtils.getQueryContext("SELECT COUNT(*), AVG(column) FROM testTable_OFFLINE");
+    QueryContext groupByQueryContext = QueryContextConverterUtils.getQueryContext(
+        "SELECT key, COUNT(*), AVG(column) FROM testTable_OFFLINE GROUP BY key");
+    IndexSegment segment0 = mockSegment("segment0");
+    IndexSegment segment1 = mockSegment("segment1");
+    String key0 = SegmentResultCache.getCacheKey(segment0, queryContext);
+    String groupByKey0 = SegmentResultCache.getCacheKey(segment0, groupByQueryContext);
+    String key1 = SegmentResultCache.getCacheKey(segment1, queryContext);
+    assertNotEquals(key0, groupByKey0);
+    for (String key : new String[]{key0, groupByKey0, key1}) {
+      cache.putAggregationResults(key, AGGREGATION_FUNCTIONS, Arrays.asList(10L, new AvgPair(15.0, 10L)),
+          new ExecutionStatistics(10L, 5L, 10L, 100L));
+    }
+    assertEquals(cache.size(), 3);
+
+    // Reloading or replacing segment0 should only invalidate the results of segment0
+    cache.invalidateSegment("testTable_OFFLINE", "segment0");
+    assertNull(cache.get(key0));
+    assertNull(cache.get(groupByKey0));
+    assertNotNull(cache.get(key1));
+
+    // Segment with the same name from another table should not be invalidated
+    cache.invalidateSegment("otherTable_OFFLINE", "segment1");
+    assertNotNull(cache.get(key1));
+
+    cache.invalidateTable("testTable_OFFLINE");
+    assertEquals(cache.size(), 0);
+  }
+
+  private static IndexSegment mockSegment(String segmentName) {
+    IndexSegment indexSegment = mock(IndexSegment.class);
+    when(indexSegment.getSegmentName()).thenReturn(segmentName);
+    SegmentMetadata segmentMetadata = mock(SegmentMetadata.class);
+    when(segmentMetadata.getCrc()).thenReturn("12345");
+    when(indexSegment.getSegmentMetadata()).thenReturn(segmentMetadata);
+    return indexSegment;
+  }
+}
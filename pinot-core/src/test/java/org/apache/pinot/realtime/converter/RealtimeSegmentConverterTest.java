@@ -22,18 +22,27 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.FileUtils;
 import org.apache.pinot.common.metadata.segment.SegmentZKMetadata;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentLoader;
 import org.apache.pinot.segment.local.indexsegment.mutable.MutableSegmentImpl;
 import org.apache.pinot.segment.local.io.writer.impl.DirectMemoryManager;
 import org.apache.pinot.segment.local.realtime.converter.ColumnIndicesForRealtimeTable;
 import org.apache.pinot.segment.local.realtime.converter.RealtimeSegmentConverter;
 import org.apache.pinot.segment.local.realtime.impl.RealtimeSegmentConfig;
 import org.apache.pinot.segment.local.realtime.impl.RealtimeSegmentStatsHistory;
+import org.apache.pinot.segment.local.segment.index.loader.IndexLoadingConfig;
+import org.apache.pinot.segment.local.segment.readers.PinotSegmentRecordReader;
 import org.apache.pinot.segment.local.segment.virtualcolumn.VirtualColumnProviderFactory;
+import org.apache.pinot.segment.spi.ColumnMetadata;
+import org.apache.pinot.segment.spi.ImmutableSegment;
 import org.apache.pinot.segment.spi.creator.SegmentVersion;
 import org.apache.pinot.segment.spi.index.metadata.SegmentMetadataImpl;
+import org.apache.pinot.segment.spi.index.reader.InvertedIndexReader;
 import org.apache.pinot.spi.config.table.IndexingConfig;
 import org.apache.pinot.spi.config.table.SegmentZKPropsConfig;
 import org.apache.pinot.spi.config.table.TableConfig;
@@ -41,10 +50,13 @@ import org.apache.pinot.spi.config.table.TableType;
 import org.apache.pinot.spi.data.FieldSpec;
 import org.apache.pinot.spi.data.Schema;
 import org.apache.pinot.spi.data.TimeGranularitySpec;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.utils.ReadMode;
 import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 
@@ -142,6 +154,126 @@ public class RealtimeSegmentConverterTest {
     assertEquals(segmentMetadata.getEndOffset(), "100");
   }
 
+  @Test
+  public void testColumnMajorSegmentBuilder()
+      throws Exception {
+    File tmpDir = new File(TMP_DIR, "tmp_" + System.currentTimeMillis());
+    TableConfig tableConfig =
+        new TableConfigBuilder(TableType.OFFLINE).setTableName("testTable").setTimeColumnName(DATE_TIME_COLUMN)
+            .setInvertedIndexColumns(Lists.newArrayList(STRING_COLUMN1, MV_INT_COLUMN)).setSortedColumn(LONG_COLUMN1)
+            .setNoDictionaryColumns(Lists.newArrayList(LONG_COLUMN2, STRING_COLUMN4))
+            .setVarLengthDictionaryColumns(Lists.newArrayList(STRING_COLUMN3)).build();
+    Schema schema = new Schema.SchemaBuilder().addSingleValueDimension(STRING_COLUMN1, FieldSpec.DataType.STRING)
+        .addSingleValueDimension(STRING_COLUMN2, FieldSpec.DataType.STRING)
+        .addSingleValueDimension(STRING_COLUMN3, FieldSpec.DataType.STRING)
+        .addSingleValueDimension(STRING_COLUMN4, FieldSpec.DataType.STRING)
+        .addSingleValueDimension(LONG_COLUMN1, FieldSpec.DataType.LONG)
+        .addSingleValueDimension(LONG_COLUMN2, FieldSpec.DataType.LONG)
+        .addSingleValueDimension(LONG_COLUMN3, FieldSpec.DataType.LONG)
+        .addMultiValueDimension(MV_INT_COLUMN, FieldSpec.DataType.INT).addMetric(LONG_COLUMN4, FieldSpec.DataType.LONG)
+        .addDateTime(DATE_TIME_COLUMN, FieldSpec.DataType.LONG, "1:MILLISECONDS:EPOCH", "1:MILLISECONDS").build();
+
+    String tableNameWithType = tableConfig.getTableName();
+    String segmentName = "testTable__0__0__123456";
+    IndexingConfig indexingConfig = tableConfig.getIndexingConfig();
+
+    RealtimeSegmentConfig.Builder realtimeSegmentConfigBuilder =
+        new RealtimeSegmentConfig.Builder().setTableNameWithType(tableNameWithType).setSegmentName(segmentName)
+            .setStreamName(tableNameWithType).setSchema(schema).setTimeColumnName(DATE_TIME_COLUMN).setCapacity(1000)
+            .setAvgNumMultiValues(3).setNoDictionaryColumns(Sets.newHashSet(LONG_COLUMN2, STRING_COLUMN4))
+            .setVarLengthDictionaryColumns(Sets.newHashSet(STRING_COLUMN3))
+            // The sorted column always has inverted index in the consuming segment
+            .setInvertedIndexColumns(Sets.newHashSet(STRING_COLUMN1, MV_INT_COLUMN, LONG_COLUMN1))
+            .setSegmentZKMetadata(getSegmentZKMetadata(segmentName)).setOffHeap(true)
+            .setMemoryManager(new DirectMemoryManager(segmentName))
+            .setStatsHistory(RealtimeSegmentStatsHistory.deserialzeFrom(new File(tmpDir, "stats")))
+            .setConsumerDir(new File(tmpDir, "consumerDir").getAbsolutePath());
+    MutableSegmentImpl mutableSegmentImpl = new MutableSegmentImpl(realtimeSegmentConfigBuilder.build(), null);
+    Random random = new Random();
+    for (int i = 0; i < 500; i++) {
+      GenericRow row = new GenericRow();
+      row.putValue(STRING_COLUMN1, "s1_" + random.nextInt(10));
+      row.putValue(STRING_COLUMN2, "s2_" + random.nextInt(100));
+      row.putValue(STRING_COLUMN3, "s3_" + random.nextInt(1000));
+      row.putValue(STRING_COLUMN4, "s4_" + random.nextInt(1000));
+      row.putValue(LONG_COLUMN1, (long) random.nextInt(50));
+      row.putValue(LONG_COLUMN2, random.nextLong());
+      row.putValue(LONG_COLUMN3, (long) random.nextInt(200));
+      row.putValue(LONG_COLUMN4, random.nextLong());
+      row.putValue(MV_INT_COLUMN, new Object[]{random.nextInt(20), random.nextInt(20)});
+      row.putValue(DATE_TIME_COLUMN, 1_600_000_000_000L + random.nextInt(1_000_000));
+      mutableSegmentImpl.index(row, null);
+    }
+
+    SegmentZKPropsConfig segmentZKPropsConfig = new SegmentZKPropsConfig();
+    segmentZKPropsConfig.setStartOffset("1");
+    segmentZKPropsConfig.setEndOffset("100");
+
+    // Build the segment row by row
+    File rowMajorOutputDir = new File(tmpDir, "rowMajorOutputDir");
+    ColumnIndicesForRealtimeTable cdc = new ColumnIndicesForRealtimeTable(indexingConfig.getSortedColumn().get(0),
+        new ArrayList<>(indexingConfig.getInvertedIndexColumns()), null, null,
+        indexingConfig.getNoDictionaryColumns(), indexingConfig.getVarLengthDictionaryColumns());
+    new RealtimeSegmentConverter(mutableSegmentImpl, segmentZKPropsConfig, rowMajorOutputDir.getAbsolutePath(),
+        schema, tableNameWithType, tableConfig, segmentName, cdc, false).build(SegmentVersion.v3, null);
+
+    // Build the segment column by column
+    indexingConfig.setColumnMajorSegmentBuilderEnabled(true);
+    indexingConfig.setSegmentBuildParallelism(4);
+    File columnMajorOutputDir = new File(tmpDir, "columnMajorOutputDir");
+    cdc = new ColumnIndicesForRealtimeTable(indexingConfig.getSortedColumn().get(0),
+        new ArrayList<>(indexingConfig.getInvertedIndexColumns()), null, null,
+        indexingConfig.getNoDictionaryColumns(), indexingConfig.getVarLengthDictionaryColumns());
+    new RealtimeSegmentConverter(mutableSegmentImpl, segmentZKPropsConfig, columnMajorOutputDir.getAbsolutePath(),
+        schema, tableNameWithType, tableConfig, segmentName, cdc, false).build(SegmentVersion.v3, null);
+    mutableSegmentImpl.destroy();
+
+    File rowMajorIndexDir = new File(rowMajorOutputDir, segmentName);
+    File columnMajorIndexDir = new File(columnMajorOutputDir, segmentName);
+    SegmentMetadataImpl expectedMetadata = new SegmentMetadataImpl(rowMajorIndexDir);
+    SegmentMetadataImpl actualMetadata = new SegmentMetadataImpl(columnMajorIndexDir);
+    assertEquals(actualMetadata.getTotalDocs(), 500);
+    assertEquals(actualMetadata.getStartTime(), expectedMetadata.getStartTime());
+    assertEquals(actualMetadata.getEndTime(), expectedMetadata.getEndTime());
+    for (String column : schema.getColumnNames()) {
+      ColumnMetadata expectedColumnMetadata = expectedMetadata.getColumnMetadataFor(column);
+      ColumnMetadata actualColumnMetadata = actualMetadata.getColumnMetadataFor(column);
+      assertEquals(actualColumnMetadata.getCardinality(), expectedColumnMetadata.getCardinality());
+      assertEquals(actualColumnMetadata.getMinValue(), expectedColumnMetadata.getMinValue());
+      assertEquals(actualColumnMetadata.getMaxValue(), expectedColumnMetadata.getMaxValue());
+      assertEquals(actualColumnMetadata.isSorted(), expectedColumnMetadata.isSorted());
+      assertEquals(actualColumnMetadata.getTotalNumberOfEntries(), expectedColumnMetadata.getTotalNumberOfEntries());
+    }
+    try (PinotSegmentRecordReader expectedReader = new PinotSegmentRecordReader(rowMajorIndexDir);
+        PinotSegmentRecordReader actualReader = new PinotSegmentRecordReader(columnMajorIndexDir)) {
+      while (expectedReader.hasNext()) {
+        assertTrue(actualReader.hasNext());
+        assertEquals(actualReader.next(), expectedReader.next());
+      }
+      assertFalse(actualReader.hasNext());
+    }
+
+    // The inverted indexes are converted from the mutable inverted indexes in the column major mode
+    IndexLoadingConfig indexLoadingConfig = new IndexLoadingConfig();
+    indexLoadingConfig.setReadMode(ReadMode.mmap);
+    indexLoadingConfig.setInvertedIndexColumns(Sets.newHashSet(STRING_COLUMN1, MV_INT_COLUMN));
+    ImmutableSegment expectedSegment = ImmutableSegmentLoader.load(rowMajorIndexDir, indexLoadingConfig, null, false);
+    ImmutableSegment actualSegment = ImmutableSegmentLoader.load(columnMajorIndexDir, indexLoadingConfig, null, false);
+    try {
+      for (String column : Arrays.asList(STRING_COLUMN1, MV_INT_COLUMN)) {
+        InvertedIndexReader<?> expectedInvertedIndex = expectedSegment.getDataSource(column).getInvertedIndex();
+        InvertedIndexReader<?> actualInvertedIndex = actualSegment.getDataSource(column).getInvertedIndex();
+        int cardinality = expectedMetadata.getColumnMetadataFor(column).getCardinality();
+        for (int dictId = 0; dictId < cardinality; dictId++) {
+          assertEquals(actualInvertedIndex.getDocIds(dictId), expectedInvertedIndex.getDocIds(dictId));
+        }
+      }
+    } finally {
+      expectedSegment.destroy();
+      actualSegment.destroy();
+    }
+  }
+
   private SegmentZKMetadata getSegmentZKMetadata(String segmentName) {
     SegmentZKMetadata segmentZKMetadata = new SegmentZKMetadata(segmentName);
     segmentZKMetadata.setCreationTime(System.currentTimeMillis());
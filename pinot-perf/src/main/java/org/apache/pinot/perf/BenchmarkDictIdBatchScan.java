@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.perf;
+
+import java.io.File;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.request.context.ExpressionContext;
+import org.apache.pinot.common.request.context.predicate.InPredicate;
+import org.apache.pinot.common.request.context.predicate.NotInPredicate;
+import org.apache.pinot.common.request.context.predicate.Predicate;
+import org.apache.pinot.common.request.context.predicate.RangePredicate;
+import org.apache.pinot.core.operator.dociditerators.SVScanDocIdIterator;
+import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluatorProvider;
+import org.apache.pinot.segment.local.io.writer.impl.FixedBitSVForwardIndexWriter;
+import org.apache.pinot.segment.local.segment.index.readers.IntDictionary;
+import org.apache.pinot.segment.local.segment.index.readers.forward.FixedBitSVForwardIndexReaderV2;
+import org.apache.pinot.segment.spi.Constants;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.roaringbitmap.RoaringBitmapWriter;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+
+/**
+ * Compares the per-doc predicate evaluation against the batch evaluation of {@link SVScanDocIdIterator} when scanning a
+ * bit-packed dictionary-encoded forward index, across the bit widths and the dictionary based predicate types.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class BenchmarkDictIdBatchScan {
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "BenchmarkDictIdBatchScan");
+  private static final ExpressionContext LHS = ExpressionContext.forIdentifier("col");
+
+  @Param("10000000")
+  int _numDocs;
+
+  @Param({"2", "4", "8", "12", "16", "20"})
+  int _numBitsPerValue;
+
+  @Param({"RANGE", "IN", "NOT_IN"})
+  String _predicateType;
+
+  // Percentage of the dictionary ids matched (RANGE, IN) or not matched (NOT_IN) by the predicate
+  @Param("10")
+  int _selectivityPercentage;
+
+  @Param("42")
+  long _seed;
+
+  private PinotDataBuffer _forwardIndexBuffer;
+  private PinotDataBuffer _dictionaryBuffer;
+  private FixedBitSVForwardIndexReaderV2 _reader;
+  private PredicateEvaluator _predicateEvaluator;
+
+  @Setup(Level.Trial)
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteDirectory(INDEX_DIR);
+    FileUtils.forceMkdir(INDEX_DIR);
+    Random random = new Random(_seed);
+    int cardinality = 1 << _numBitsPerValue;
+
+    File indexFile = new File(INDEX_DIR, "index-file");
+    try (FixedBitSVForwardIndexWriter indexWriter = new FixedBitSVForwardIndexWriter(indexFile, _numDocs,
+        _numBitsPerValue)) {
+      for (int i = 0; i < _numDocs; i++) {
+        indexWriter.putDictId(random.nextInt(cardinality));
+      }
+    }
+    _forwardIndexBuffer = PinotDataBuffer.mapReadOnlyBigEndianFile(indexFile);
+    _reader = new FixedBitSVForwardIndexReaderV2(_forwardIndexBuffer, _numDocs, _numBitsPerValue);
+
+    // Dictionary with values [0, cardinality) so that the value equals to the dictionary id
+    _dictionaryBuffer =
+        PinotDataBuffer.allocateDirect((long) cardinality * Integer.BYTES, ByteOrder.BIG_ENDIAN, "dictionary");
+    for (int i = 0; i < cardinality; i++) {
+      _dictionaryBuffer.putInt((long) i * Integer.BYTES, i);
+    }
+    IntDictionary dictionary = new IntDictionary(_dictionaryBuffer, cardinality);
+
+    int numValues = Math.max(cardinality * _selectivityPercentage / 100, 1);
+    Predicate predicate;
+    switch (_predicateType) {
+      case "RANGE":
+        predicate = new RangePredicate(LHS, true, "0", false, Integer.toString(numValues));
+        break;
+      case "IN":
+        predicate = new InPredicate(LHS, getRandomValues(random, cardinality, numValues));
+        break;
+      case "NOT_IN":
+        predicate = new NotInPredicate(LHS, getRandomValues(random, cardinality, numValues));
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported predicate type: " + _predicateType);
+    }
+    _predicateEvaluator = PredicateEvaluatorProvider.getPredicateEvaluator(predicate, dictionary, DataType.INT);
+  }
+
+  private static List<String> getRandomValues(Random random, int cardinality, int numValues) {
+    List<String> values = new ArrayList<>(numValues);
+    for (int i = 0; i < numValues; i++) {
+      values.add(Integer.toString(random.nextInt(cardinality)));
+    }
+    return values;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown()
+      throws Exception {
+    _forwardIndexBuffer.close();
+    _dictionaryBuffer.close();
+    FileUtils.deleteDirectory(INDEX_DIR);
+  }
+
+  @Benchmark
+  public MutableRoaringBitmap perDocScan() {
+    RoaringBitmapWriter<MutableRoaringBitmap> writer = RoaringBitmapWriter.bufferWriter().get();
+    for (int docId = 0; docId < _numDocs; docId++) {
+      if (_predicateEvaluator.applySV(_reader.getDictId(docId, null))) {
+        writer.add(docId);
+      }
+    }
+    return writer.get();
+  }
+
+  @Benchmark
+  public MutableRoaringBitmap batchScan() {
+    RoaringBitmapWriter<MutableRoaringBitmap> writer = RoaringBitmapWriter.bufferWriter().get();
+    SVScanDocIdIterator iterator = new SVScanDocIdIterator(_predicateEvaluator, _reader, _numDocs, null);
+    int docId;
+    while ((docId = iterator.next()) != Constants.EOF) {
+      writer.add(docId);
+    }
+    return writer.get();
+  }
+
+  public static void main(String[] args)
+      throws Exception {
+    new Runner(new OptionsBuilder().include(BenchmarkDictIdBatchScan.class.getSimpleName()).build()).run();
+  }
+}
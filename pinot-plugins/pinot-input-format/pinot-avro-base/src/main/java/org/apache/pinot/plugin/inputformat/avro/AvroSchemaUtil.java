@@ -20,8 +20,11 @@ package org.apache.pinot.plugin.inputformat.avro;
 
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.apache.avro.Conversion;
 import org.apache.avro.Conversions;
 import org.apache.avro.LogicalType;
@@ -172,4 +175,24 @@ public class AvroSchemaUtil {
     }
     return Conversions.convertToLogicalType(value, field.schema(), logicalType, conversion);
   }
+
+  /**
+   * Returns the projection of the given Avro record schema which only contains the given fields, in the same order as
+   * in the given schema. The fields that do not exist in the given schema are ignored. When used as the reader schema,
+   * Avro skips the other fields while decoding the records without materializing their values.
+   *
+   * @param schema Avro record schema
+   * @param fields Fields to keep in the projection
+   * @return Projected Avro record schema with the same name as the given schema
+   */
+  public static Schema getProjectedSchema(Schema schema, Set<String> fields) {
+    List<Schema.Field> projectedFields = new ArrayList<>(fields.size());
+    for (Schema.Field field : schema.getFields()) {
+      if (fields.contains(field.name())) {
+        projectedFields.add(new Schema.Field(field, field.schema()));
+      }
+    }
+    return Schema.createRecord(schema.getName(), schema.getDoc(), schema.getNamespace(), schema.isError(),
+        projectedFields);
+  }
 }
@@ -18,8 +18,18 @@
  */
 package org.apache.pinot.plugin.inputformat.avro;
 
+import com.google.common.collect.ImmutableSet;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
 import java.util.UUID;
 import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -80,4 +90,43 @@ public class AvroSchemaUtilTest {
     Assert.assertTrue(result instanceof UUID);
     Assert.assertEquals(UUID.fromString(value), result);
   }
+
+  @Test
+  public void testGetProjectedSchema()
+      throws Exception {
+    Schema nestedSchema = SchemaBuilder.record("nested").fields().requiredString("x").endRecord();
+    Schema schema = SchemaBuilder.record("test").namespace("org.apache.pinot").fields().requiredInt("column1")
+        .optionalString("column2").name("column3").type().array().items().longType().noDefault().name("column4")
+        .type(nestedSchema).noDefault().requiredDouble("column5").endRecord();
+    Schema projectedSchema =
+        AvroSchemaUtil.getProjectedSchema(schema, ImmutableSet.of("column5", "column2", "column3", "missing"));
+    Assert.assertEquals(projectedSchema.getFullName(), schema.getFullName());
+    Assert.assertEquals(projectedSchema.getFields().size(), 3);
+    Assert.assertEquals(projectedSchema.getFields().get(0).name(), "column2");
+    Assert.assertEquals(projectedSchema.getFields().get(1).name(), "column3");
+    Assert.assertEquals(projectedSchema.getFields().get(2).name(), "column5");
+    Assert.assertEquals(projectedSchema.getField("column3").schema(), schema.getField("column3").schema());
+
+    GenericData.Record nestedRecord = new GenericData.Record(nestedSchema);
+    nestedRecord.put("x", "nested");
+    GenericData.Record record = new GenericData.Record(schema);
+    record.put("column1", 1);
+    record.put("column2", "value");
+    record.put("column3", Arrays.asList(2L, 3L));
+    record.put("column4", nestedRecord);
+    record.put("column5", 4.5);
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(outputStream, null);
+    new GenericDatumWriter<GenericData.Record>(schema).write(record, encoder);
+    encoder.flush();
+
+    // Decode with the projected schema, where the other fields are skipped
+    GenericData.Record projectedRecord = new GenericDatumReader<GenericData.Record>(schema, projectedSchema).read(null,
+        DecoderFactory.get().binaryDecoder(outputStream.toByteArray(), null));
+    Assert.assertNull(projectedRecord.get("column1"));
+    Assert.assertEquals(projectedRecord.get("column2").toString(), "value");
+    Assert.assertEquals(projectedRecord.get("column3"), Arrays.asList(2L, 3L));
+    Assert.assertNull(projectedRecord.get("column4"));
+    Assert.assertEquals(projectedRecord.get("column5"), 4.5);
+  }
 }
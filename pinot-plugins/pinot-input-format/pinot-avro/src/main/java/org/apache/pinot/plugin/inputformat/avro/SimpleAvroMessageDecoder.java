@@ -58,7 +58,14 @@ public class SimpleAvroMessageDecoder implements StreamMessageDecoder<byte[]> {
       throws Exception {
     Preconditions.checkState(props.containsKey(SCHEMA), "Avro schema must be provided");
     _avroSchema = new org.apache.avro.Schema.Parser().parse(props.get(SCHEMA));
-    _datumReader = new GenericDatumReader<>(_avroSchema);
+    if (Boolean.parseBoolean(props.get(FIELD_PROJECTION_CONFIG_KEY)) && fieldsToRead != null
+        && !fieldsToRead.isEmpty()) {
+      // Decode the records with the projected schema so that the fields not to read are skipped
+      _datumReader =
+          new GenericDatumReader<>(_avroSchema, AvroSchemaUtil.getProjectedSchema(_avroSchema, fieldsToRead));
+    } else {
+      _datumReader = new GenericDatumReader<>(_avroSchema);
+    }
     String recordExtractorClass = props.get(RECORD_EXTRACTOR_CONFIG_KEY);
     String recordExtractorConfigClass = props.get(RECORD_EXTRACTOR_CONFIG_CONFIG_KEY);
     // Backward compatibility to support Avro by default
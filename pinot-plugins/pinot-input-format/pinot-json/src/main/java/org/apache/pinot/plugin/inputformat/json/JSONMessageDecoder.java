@@ -18,8 +18,15 @@
  */
 package org.apache.pinot.plugin.inputformat.json;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import org.apache.pinot.spi.data.readers.GenericRow;
@@ -33,6 +40,9 @@ import org.slf4j.LoggerFactory;
 
 /**
  * An implementation of StreamMessageDecoder to read JSON records from a stream.
+ * <p>When {@link #FIELD_PROJECTION_CONFIG_KEY} is enabled with the default record extractor, the top level fields of
+ * the messages are read with a streaming parser: the fields to read are parsed directly into the row, and the other
+ * fields are skipped without building the JSON tree and the map of the whole message.
  */
 public class JSONMessageDecoder implements StreamMessageDecoder<byte[]> {
   private static final Logger LOGGER = LoggerFactory.getLogger(JSONMessageDecoder.class);
@@ -41,6 +51,14 @@ public class JSONMessageDecoder implements StreamMessageDecoder<byte[]> {
 
   private RecordExtractor<Map<String, Object>> _jsonRecordExtractor;
 
+  // For field projection
+  private JSONRecordExtractor _projectionExtractor;
+  private JsonFactory _jsonFactory;
+  private ObjectReader _valueReader;
+  private Map<String, Integer> _fieldIndexMap;
+  private String[] _fieldNames;
+  private boolean[] _fieldRead;
+
   @Override
   public void init(Map<String, String> props, Set<String> fieldsToRead, String topicName)
       throws Exception {
@@ -53,10 +71,33 @@ public class JSONMessageDecoder implements StreamMessageDecoder<byte[]> {
     }
     _jsonRecordExtractor = PluginManager.get().createInstance(recordExtractorClass);
     _jsonRecordExtractor.init(fieldsToRead, null);
+
+    if (props != null && Boolean.parseBoolean(props.get(FIELD_PROJECTION_CONFIG_KEY))) {
+      if (fieldsToRead == null || fieldsToRead.isEmpty()
+          || _jsonRecordExtractor.getClass() != JSONRecordExtractor.class) {
+        LOGGER.warn("Field projection is only supported with explicit fields to read and the default record extractor, "
+            + "decoding the whole messages for topic: {}", topicName);
+      } else {
+        _projectionExtractor = (JSONRecordExtractor) _jsonRecordExtractor;
+        _jsonFactory = JsonUtils.DEFAULT_READER.getFactory();
+        _valueReader = JsonUtils.DEFAULT_READER.forType(Object.class);
+        int numFields = fieldsToRead.size();
+        _fieldIndexMap = new HashMap<>();
+        _fieldNames = new String[numFields];
+        _fieldRead = new boolean[numFields];
+        for (String field : fieldsToRead) {
+          _fieldNames[_fieldIndexMap.size()] = field;
+          _fieldIndexMap.put(field, _fieldIndexMap.size());
+        }
+      }
+    }
   }
 
   @Override
   public GenericRow decode(byte[] payload, GenericRow destination) {
+    if (_projectionExtractor != null) {
+      return decode(payload, 0, payload.length, destination);
+    }
     try {
       JsonNode message = JsonUtils.bytesToJsonNode(payload);
       Map<String, Object> from = JsonUtils.jsonNodeToMap(message);
@@ -70,6 +111,71 @@ public class JSONMessageDecoder implements StreamMessageDecoder<byte[]> {
 
   @Override
   public GenericRow decode(byte[] payload, int offset, int length, GenericRow destination) {
+    if (_projectionExtractor != null) {
+      try {
+        return decodeProjected(payload, offset, length, destination);
+      } catch (Exception e) {
+        LOGGER.error("Caught exception while decoding row, discarding row. Payload is {}",
+            new String(payload, offset, length, StandardCharsets.UTF_8), e);
+        return null;
+      }
+    }
     return decode(Arrays.copyOfRange(payload, offset, offset + length), destination);
   }
+
+  /**
+   * Reads the fields to read from the top level JSON object, and skips the other fields. The values are converted the
+   * same way as the default record extractor, and the missing fields are set to {@code null}.
+   */
+  private GenericRow decodeProjected(byte[] payload, int offset, int length, GenericRow destination)
+      throws IOException {
+    Arrays.fill(_fieldRead, false);
+    try (JsonParser parser = _jsonFactory.createParser(payload, offset, length)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Expected JSON object, got: " + parser.currentToken());
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        Integer fieldIndex = _fieldIndexMap.get(parser.getCurrentName());
+        JsonToken token = parser.nextToken();
+        if (fieldIndex == null) {
+          parser.skipChildren();
+          continue;
+        }
+        Object value;
+        switch (token) {
+          case VALUE_STRING:
+            value = parser.getText();
+            break;
+          case VALUE_NUMBER_INT:
+          case VALUE_NUMBER_FLOAT:
+            value = parser.getNumberValue();
+            break;
+          case VALUE_TRUE:
+            value = Boolean.TRUE;
+            break;
+          case VALUE_FALSE:
+            value = Boolean.FALSE;
+            break;
+          case VALUE_NULL:
+            value = null;
+            break;
+          default:
+            // Nested array or object
+            value = _valueReader.readValue(parser);
+            break;
+        }
+        if (value != null) {
+          value = _projectionExtractor.convert(value);
+        }
+        destination.putValue(_fieldNames[fieldIndex], value);
+        _fieldRead[fieldIndex] = true;
+      }
+    }
+    for (int i = 0; i < _fieldNames.length; i++) {
+      if (!_fieldRead[i]) {
+        destination.putValue(_fieldNames[i], null);
+      }
+    }
+    return destination;
+  }
 }
@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.plugin.inputformat.json;
+
+import com.google.common.collect.ImmutableSet;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.stream.StreamMessageDecoder;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+
+public class JSONMessageDecoderTest {
+  private static final Set<String> FIELDS_TO_READ =
+      ImmutableSet.of("myInt", "myLong", "myDouble", "myString", "myNull", "myArray", "myMap", "myMissing");
+  private static final String[] MESSAGES = new String[]{
+      "{\"myInt\": 1, \"myLong\": 12345678901, \"myDouble\": 1.5, \"myString\": \"a\", \"myNull\": null, "
+          + "\"myArray\": [1, 2, 3], \"myMap\": {\"k1\": \"v1\", \"k2\": [4, 5]}, "
+          + "\"unused\": {\"nested\": [{\"a\": 1}, \"b\"]}, \"unusedString\": \"c\"}",
+      "{\"unused\": [1, [2, 3]], \"myString\": \"b\", \"myArray\": [], \"myMap\": {}, \"myBoolean\": true, "
+          + "\"myInt\": -2, \"myLong\": 123456789012345678901234567890}",
+      "{}"
+  };
+
+  @Test
+  public void testFieldProjection()
+      throws Exception {
+    JSONMessageDecoder decoder = new JSONMessageDecoder();
+    decoder.init(Collections.emptyMap(), FIELDS_TO_READ, "testTopic");
+    JSONMessageDecoder projectionDecoder = new JSONMessageDecoder();
+    projectionDecoder.init(Collections.singletonMap(StreamMessageDecoder.FIELD_PROJECTION_CONFIG_KEY, "true"),
+        FIELDS_TO_READ, "testTopic");
+
+    GenericRow expected = new GenericRow();
+    GenericRow actual = new GenericRow();
+    for (String message : MESSAGES) {
+      byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+      decoder.decode(payload, expected);
+      projectionDecoder.decode(payload, actual);
+      assertEquals(actual, expected);
+      assertEquals(actual.getFieldToValueMap().keySet(), FIELDS_TO_READ);
+      expected.clear();
+      actual.clear();
+    }
+
+    // Decode from the middle of the buffer
+    byte[] message = MESSAGES[0].getBytes(StandardCharsets.UTF_8);
+    byte[] payload = new byte[message.length + 10];
+    System.arraycopy(message, 0, payload, 5, message.length);
+    decoder.decode(message, expected);
+    projectionDecoder.decode(payload, 5, message.length, actual);
+    assertEquals(actual, expected);
+    Map<String, Object> map = (Map<String, Object>) actual.getValue("myMap");
+    assertEquals(map.get("k1"), "v1");
+  }
+
+  @Test
+  public void testFieldProjectionInvalidMessage()
+      throws Exception {
+    JSONMessageDecoder projectionDecoder = new JSONMessageDecoder();
+    projectionDecoder.init(Collections.singletonMap(StreamMessageDecoder.FIELD_PROJECTION_CONFIG_KEY, "true"),
+        FIELDS_TO_READ, "testTopic");
+    assertNull(projectionDecoder.decode("[1, 2]".getBytes(StandardCharsets.UTF_8), new GenericRow()));
+    assertNull(projectionDecoder.decode("{\"myInt\": ".getBytes(StandardCharsets.UTF_8), new GenericRow()));
+  }
+}
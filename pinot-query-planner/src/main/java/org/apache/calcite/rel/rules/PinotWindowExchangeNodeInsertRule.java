@@ -49,7 +49,8 @@ public class PinotWindowExchangeNodeInsertRule extends RelOptRule {
   // Supported window functions
   // OTHER_FUNCTION supported are: BOOL_AND, BOOL_OR
   private static final Set<SqlKind> SUPPORTED_WINDOW_FUNCTION_KIND = ImmutableSet.of(SqlKind.SUM, SqlKind.SUM0,
-      SqlKind.MIN, SqlKind.MAX, SqlKind.COUNT, SqlKind.OTHER_FUNCTION);
+      SqlKind.MIN, SqlKind.MAX, SqlKind.COUNT, SqlKind.ROW_NUMBER, SqlKind.RANK, SqlKind.DENSE_RANK, SqlKind.LAG,
+      SqlKind.LEAD, SqlKind.OTHER_FUNCTION);
 
   public PinotWindowExchangeNodeInsertRule(RelBuilderFactory factory) {
     super(operand(LogicalWindow.class, any()), factory, null);
@@ -140,16 +141,20 @@ public class PinotWindowExchangeNodeInsertRule extends RelOptRule {
       Window.RexWinAggCall aggCall = windowGroup.aggCalls.get(i);
       SqlKind aggKind = aggCall.getKind();
       Preconditions.checkState(SUPPORTED_WINDOW_FUNCTION_KIND.contains(aggKind),
-          String.format("Unsupported Window function kind: %s. Only aggregation functions are supported!", aggKind));
+          String.format("Unsupported Window function kind: %s. Only aggregation, rank and value functions are "
+              + "supported!", aggKind));
     }
   }
 
   private void validateWindowFrames(Window.Group windowGroup) {
-    // For Phase 1 only the default frame is supported
-    Preconditions.checkState(!windowGroup.isRows, "Default frame must be of type RANGE and not ROWS");
+    // For Phase 1 only the default frame is supported, along with ROWS frames ending at the current row which can be
+    // evaluated incrementally
     Preconditions.checkState(windowGroup.lowerBound.isPreceding() && windowGroup.lowerBound.isUnbounded(),
         String.format("Lower bound must be UNBOUNDED PRECEDING but it is: %s", windowGroup.lowerBound));
-    if (windowGroup.orderKeys.getKeys().isEmpty()) {
+    if (windowGroup.isRows) {
+      Preconditions.checkState(windowGroup.upperBound.isCurrentRow(),
+          String.format("Upper bound of ROWS type frame must be CURRENT ROW but it is: %s", windowGroup.upperBound));
+    } else if (windowGroup.orderKeys.getKeys().isEmpty()) {
       Preconditions.checkState(windowGroup.upperBound.isFollowing() && windowGroup.upperBound.isUnbounded(),
           String.format("Upper bound must be UNBOUNDED PRECEDING but it is: %s", windowGroup.upperBound));
     } else {
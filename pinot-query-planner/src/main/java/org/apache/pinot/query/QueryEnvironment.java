@@ -20,7 +20,10 @@ package org.apache.pinot.query;
 
 import com.google.common.annotations.VisibleForTesting;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import javax.annotation.Nullable;
 import org.apache.calcite.config.CalciteConnectionConfigImpl;
 import org.apache.calcite.config.CalciteConnectionProperty;
 import org.apache.calcite.jdbc.CalciteSchema;
@@ -52,14 +55,21 @@ import org.apache.calcite.sql2rel.StandardConvertletTable;
 import org.apache.calcite.tools.FrameworkConfig;
 import org.apache.calcite.tools.Frameworks;
 import org.apache.pinot.common.config.provider.TableCache;
+import org.apache.pinot.common.utils.config.QueryOptionsUtils;
 import org.apache.pinot.query.context.PlannerContext;
 import org.apache.pinot.query.planner.PlannerUtils;
 import org.apache.pinot.query.planner.QueryPlan;
+import org.apache.pinot.query.planner.cache.ParameterizedQuery;
+import org.apache.pinot.query.planner.cache.QueryPlanCache;
+import org.apache.pinot.query.planner.cache.StagePlanTemplate;
 import org.apache.pinot.query.planner.logical.StagePlanner;
+import org.apache.pinot.query.planner.stage.StageNode;
 import org.apache.pinot.query.routing.WorkerManager;
 import org.apache.pinot.query.type.TypeFactory;
 import org.apache.pinot.sql.parsers.CalciteSqlParser;
 import org.apache.pinot.sql.parsers.SqlNodeAndOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 /**
@@ -68,6 +78,8 @@ import org.apache.pinot.sql.parsers.SqlNodeAndOptions;
  * <p>It provide the higher level entry interface to convert a SQL string into a {@link QueryPlan}.
  */
 public class QueryEnvironment {
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueryEnvironment.class);
+
   // Calcite configurations
   private final FrameworkConfig _config;
 
@@ -81,13 +93,20 @@ public class QueryEnvironment {
   // Pinot extensions
   private final WorkerManager _workerManager;
   private final TableCache _tableCache;
+  private final QueryPlanCache _queryPlanCache;
 
   public QueryEnvironment(TypeFactory typeFactory, CalciteSchema rootSchema, WorkerManager workerManager,
       TableCache tableCache) {
+    this(typeFactory, rootSchema, workerManager, tableCache, null);
+  }
+
+  public QueryEnvironment(TypeFactory typeFactory, CalciteSchema rootSchema, WorkerManager workerManager,
+      TableCache tableCache, @Nullable QueryPlanCache queryPlanCache) {
     _typeFactory = typeFactory;
     _rootSchema = rootSchema;
     _workerManager = workerManager;
     _tableCache = tableCache;
+    _queryPlanCache = queryPlanCache;
 
     // catalog
     Properties catalogReaderConfigProperties = new Properties();
@@ -140,6 +159,10 @@ public class QueryEnvironment {
    * TODO: follow benchmark and profile to measure whether it make sense for the latency-concurrency trade-off
    * between reusing plannerImpl vs. create a new planner for each query.
    *
+   * When the query plan cache is enabled, the stage tree of the query is reused from the cache if the same query or a
+   * query only differing by the literal values has already been planned, and only the workers are assigned for the
+   * request.
+   *
    * @param sqlQuery SQL query string.
    * @param sqlNodeAndOptions parsed SQL query.
    * @return a dispatchable query plan
@@ -147,6 +170,9 @@ public class QueryEnvironment {
   public QueryPlan planQuery(String sqlQuery, SqlNodeAndOptions sqlNodeAndOptions, long requestId) {
     try (PlannerContext plannerContext = new PlannerContext(_config, _catalogReader, _typeFactory, _hepProgram)) {
       plannerContext.setOptions(sqlNodeAndOptions.getOptions());
+      if (_queryPlanCache != null && !QueryOptionsUtils.isSkipPlanCache(sqlNodeAndOptions.getOptions())) {
+        return planQueryWithCache(sqlQuery, sqlNodeAndOptions, plannerContext, requestId);
+      }
       RelRoot relRoot = compileQuery(sqlNodeAndOptions.getSqlNode(), plannerContext);
       return toDispatchablePlan(relRoot, plannerContext, requestId);
     } catch (CalciteContextException e) {
@@ -182,6 +208,63 @@ public class QueryEnvironment {
     }
   }
 
+  private QueryPlan planQueryWithCache(String sqlQuery, SqlNodeAndOptions sqlNodeAndOptions,
+      PlannerContext plannerContext, long requestId)
+      throws Exception {
+    StagePlanner stagePlanner = new StagePlanner(plannerContext, _workerManager, requestId, _tableCache);
+    Map<String, String> options = sqlNodeAndOptions.getOptions();
+    // NOTE: The parameters must be extracted before compiling the query, which modifies the SqlNode in place.
+    ParameterizedQuery parameterizedQuery;
+    try {
+      parameterizedQuery = ParameterizedQuery.of(sqlNodeAndOptions.getSqlNode());
+    } catch (Exception e) {
+      LOGGER.debug("Caught exception while parameterizing query, skipping plan cache: {}", sqlQuery, e);
+      return stagePlanner.makePlan(compileQuery(sqlNodeAndOptions.getSqlNode(), plannerContext));
+    }
+    String shapeKey = QueryPlanCache.getShapeKey(parameterizedQuery, options);
+    List<Object> parameters = parameterizedQuery.getParameters();
+    StagePlanTemplate cachedTemplate = _queryPlanCache.get(shapeKey, parameters);
+    if (cachedTemplate != null) {
+      return stagePlanner.makePlan(cachedTemplate.getFields(), cachedTemplate.instantiate(parameters));
+    }
+
+    long cacheVersion = _queryPlanCache.getVersion();
+    RelRoot relRoot = compileQuery(sqlNodeAndOptions.getSqlNode(), plannerContext);
+    StageNode globalReceiverNode = stagePlanner.makeStagePlan(relRoot);
+    StagePlanTemplate template = StagePlanTemplate.create(relRoot.fields, globalReceiverNode);
+    StagePlanTemplate parameterizedTemplate =
+        parameters.isEmpty() ? template.parameterize(parameters, template, parameters)
+            : parameterize(sqlQuery, options, parameters, template, requestId);
+    _queryPlanCache.put(shapeKey, parameters,
+        parameterizedTemplate != null ? parameterizedTemplate : template, cacheVersion);
+    return stagePlanner.makePlan(relRoot.fields, globalReceiverNode);
+  }
+
+  /**
+   * Plans the query again with perturbed parameters to parameterize the template, or returns {@code null} if the
+   * template cannot be parameterized.
+   */
+  @Nullable
+  private StagePlanTemplate parameterize(String sqlQuery, Map<String, String> options, List<Object> parameters,
+      StagePlanTemplate template, long requestId) {
+    try (PlannerContext plannerContext = new PlannerContext(_config, _catalogReader, _typeFactory, _hepProgram)) {
+      plannerContext.setOptions(options);
+      // NOTE: Parse the query again because the original SqlNode has been modified by the validation
+      SqlNode perturbedSqlNode =
+          ParameterizedQuery.perturb(CalciteSqlParser.compileToSqlNodeAndOptions(sqlQuery).getSqlNode());
+      List<Object> perturbedParameters = ParameterizedQuery.of(perturbedSqlNode).getParameters();
+      RelRoot relRoot = compileQuery(perturbedSqlNode, plannerContext);
+      StageNode globalReceiverNode =
+          new StagePlanner(plannerContext, _workerManager, requestId, _tableCache).makeStagePlan(relRoot);
+      return template.parameterize(parameters, StagePlanTemplate.create(relRoot.fields, globalReceiverNode),
+          perturbedParameters);
+    } catch (Exception e) {
+      // The perturbed parameters might not be valid for the query
+      LOGGER.debug("Caught exception while planning query with perturbed parameters: {}", sqlQuery, e);
+      return null;
+    }
+  }
+
   @VisibleForTesting
   public QueryPlan planQuery(String sqlQuery) {
     return planQuery(sqlQuery, CalciteSqlParser.compileToSqlNodeAndOptions(sqlQuery), 0);
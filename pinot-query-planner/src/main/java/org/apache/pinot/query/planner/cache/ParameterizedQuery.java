@@ -0,0 +1,172 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.planner.cache;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.apache.calcite.sql.SqlCall;
+import org.apache.calcite.sql.SqlCharStringLiteral;
+import org.apache.calcite.sql.SqlDynamicParam;
+import org.apache.calcite.sql.SqlHint;
+import org.apache.calcite.sql.SqlLiteral;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.SqlNumericLiteral;
+import org.apache.calcite.sql.SqlOrderBy;
+import org.apache.calcite.sql.SqlSelect;
+import org.apache.calcite.sql.util.SqlShuttle;
+
+
+/**
+ * The {@code ParameterizedQuery} is the normalized shape of a parsed SQL query where the numeric and string literals
+ * are replaced with parameters, so that the queries only differing by the literal values share the same shape, e.g.
+ * {@code SELECT * FROM a WHERE col3 > 5 AND col2 = 'foo'} and {@code SELECT * FROM a WHERE col3 > 10 AND col2 = 'bar'}.
+ *
+ * <p>The kind of each literal (integer, decimal, approximate numeric or string) is part of the shape because it might
+ * change the types in the query plan. The literals of LIMIT/OFFSET and hints are kept in the shape as they are not
+ * represented as literals in the query plan.
+ */
+public class ParameterizedQuery {
+  // Value added to the numeric parameters (and appended to the string parameters) to perturb the query
+  private static final BigDecimal NUMERIC_PERTURBATION = BigDecimal.valueOf(7919);
+  private static final String STRING_PERTURBATION = "#";
+
+  private final String _shape;
+  private final List<Object> _parameters;
+
+  private ParameterizedQuery(String shape, List<Object> parameters) {
+    _shape = shape;
+    _parameters = parameters;
+  }
+
+  /**
+   * Extracts the parameters from the given parsed (not validated) SQL query.
+   */
+  public static ParameterizedQuery of(SqlNode sqlNode) {
+    StringBuilder literalKinds = new StringBuilder();
+    List<Object> parameters = new ArrayList<>();
+    SqlNode shapeNode = sqlNode.accept(new LiteralReplacer(literal -> {
+      literalKinds.append(getLiteralKind(literal));
+      parameters.add(getParameterValue(literal));
+      return new SqlDynamicParam(parameters.size() - 1, literal.getParserPosition());
+    }));
+    return new ParameterizedQuery(literalKinds + "|" + shapeNode, parameters);
+  }
+
+  /**
+   * Returns a copy of the given parsed (not validated) SQL query with all the parameters replaced with different values
+   * of the same kind.
+   */
+  public static SqlNode perturb(SqlNode sqlNode) {
+    return sqlNode.accept(new LiteralReplacer(literal -> {
+      if (literal instanceof SqlNumericLiteral) {
+        BigDecimal value = literal.getValueAs(BigDecimal.class).add(NUMERIC_PERTURBATION);
+        return ((SqlNumericLiteral) literal).isExact()
+            ? SqlLiteral.createExactNumeric(value.toPlainString(), literal.getParserPosition())
+            : SqlLiteral.createApproxNumeric(value.toString(), literal.getParserPosition());
+      } else {
+        return SqlLiteral.createCharString(literal.getValueAs(String.class) + STRING_PERTURBATION,
+            literal.getParserPosition());
+      }
+    }));
+  }
+
+  /**
+   * Returns the normalized shape of the query.
+   */
+  public String getShape() {
+    return _shape;
+  }
+
+  /**
+   * Returns the parameter values, as {@link BigDecimal} for numeric literals and {@link String} for string literals.
+   */
+  public List<Object> getParameters() {
+    return _parameters;
+  }
+
+  private static char getLiteralKind(SqlLiteral literal) {
+    if (literal instanceof SqlNumericLiteral) {
+      SqlNumericLiteral numericLiteral = (SqlNumericLiteral) literal;
+      if (numericLiteral.isExact()) {
+        return numericLiteral.isInteger() ? 'I' : 'D';
+      } else {
+        return 'F';
+      }
+    } else {
+      return 'S';
+    }
+  }
+
+  private static Object getParameterValue(SqlLiteral literal) {
+    return literal instanceof SqlNumericLiteral ? literal.getValueAs(BigDecimal.class)
+        : literal.getValueAs(String.class);
+  }
+
+  private static boolean isParameter(SqlLiteral literal) {
+    return literal instanceof SqlNumericLiteral || literal instanceof SqlCharStringLiteral;
+  }
+
+  /**
+   * Replaces the numeric and string literals in the query, except for LIMIT/OFFSET and hints. The literals are visited
+   * in the order they appear in the query.
+   */
+  private static class LiteralReplacer extends SqlShuttle {
+    private final Function<SqlLiteral, SqlNode> _replacer;
+    private final Set<SqlNode> _skippedNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    LiteralReplacer(Function<SqlLiteral, SqlNode> replacer) {
+      _replacer = replacer;
+    }
+
+    @Override
+    public SqlNode visit(SqlLiteral literal) {
+      if (!isParameter(literal) || _skippedNodes.contains(literal)) {
+        return literal;
+      }
+      return _replacer.apply(literal);
+    }
+
+    @Override
+    public SqlNode visit(SqlCall call) {
+      if (call instanceof SqlHint) {
+        return call;
+      }
+      if (call instanceof SqlSelect) {
+        skip(((SqlSelect) call).getFetch());
+        skip(((SqlSelect) call).getOffset());
+      } else if (call instanceof SqlOrderBy) {
+        skip(((SqlOrderBy) call).fetch);
+        skip(((SqlOrderBy) call).offset);
+      }
+      return super.visit(call);
+    }
+
+    private void skip(@Nullable SqlNode node) {
+      if (node != null) {
+        _skippedNodes.add(node);
+      }
+    }
+  }
+}
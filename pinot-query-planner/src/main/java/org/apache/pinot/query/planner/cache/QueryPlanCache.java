@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.planner.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.spi.env.PinotConfiguration;
+import org.apache.pinot.spi.utils.CommonConstants.Broker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The {@code QueryPlanCache} caches the {@link StagePlanTemplate}s of the multi-stage queries, so that only the worker
+ * assignment and the physical optimizations are computed for the queries already planned.
+ *
+ * <p>The parameterized templates are keyed by the query shape (see {@link ParameterizedQuery}) and the query options,
+ * and are shared by all the queries only differing by the literal values. The templates that cannot be parameterized
+ * are keyed by the query shape and the parameter values, i.e. the exact query, and the query shape maps to a
+ * non-parameterized template to indicate that the exact key should be looked up instead.
+ *
+ * <p>The cache must be invalidated on any change that might affect the query planning (schema and table config
+ * changes). The cache version is bumped on each invalidation, so that the templates planned before an invalidation are
+ * not put into the cache afterwards.
+ */
+@ThreadSafe
+public class QueryPlanCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueryPlanCache.class);
+  private static final String KEY_SEPARATOR = "\0";
+
+  private final Cache<String, StagePlanTemplate> _cache;
+  private final AtomicLong _version = new AtomicLong();
+
+  public QueryPlanCache(int maxEntries) {
+    _cache = CacheBuilder.newBuilder().maximumSize(maxEntries).build();
+  }
+
+  /**
+   * Returns the {@code QueryPlanCache} if it is enabled in the broker config, or {@code null} otherwise.
+   */
+  @Nullable
+  public static QueryPlanCache create(PinotConfiguration config) {
+    if (!config.getProperty(Broker.CONFIG_OF_BROKER_MULTI_STAGE_PLAN_CACHE_ENABLED,
+        Broker.DEFAULT_BROKER_MULTI_STAGE_PLAN_CACHE_ENABLED)) {
+      return null;
+    }
+    int maxEntries = config.getProperty(Broker.CONFIG_OF_BROKER_MULTI_STAGE_PLAN_CACHE_MAX_ENTRIES,
+        Broker.DEFAULT_BROKER_MULTI_STAGE_PLAN_CACHE_MAX_ENTRIES);
+    LOGGER.info("Enabling multi-stage query plan cache with max entries: {}", maxEntries);
+    return new QueryPlanCache(maxEntries);
+  }
+
+  /**
+   * Returns the cache key for the query shape, shared by all the queries only differing by the literal values.
+   */
+  public static String getShapeKey(ParameterizedQuery parameterizedQuery, Map<String, String> queryOptions) {
+    return new TreeMap<>(queryOptions) + KEY_SEPARATOR + parameterizedQuery.getShape();
+  }
+
+  /**
+   * Returns the cache key for the exact query, used when the query plan cannot be parameterized.
+   */
+  public static String getExactKey(String shapeKey, List<Object> parameters) {
+    StringBuilder stringBuilder = new StringBuilder(shapeKey);
+    for (Object parameter : parameters) {
+      // NOTE: Prefix the length so that the parameters cannot be confused with the separator
+      String value = parameter.toString();
+      stringBuilder.append(KEY_SEPARATOR).append(value.length()).append(':').append(value);
+    }
+    return stringBuilder.toString();
+  }
+
+  /**
+   * Returns the cached template that can be instantiated for the query, or {@code null} if not cached.
+   */
+  @Nullable
+  public StagePlanTemplate get(String shapeKey, List<Object> parameters) {
+    StagePlanTemplate template = _cache.getIfPresent(shapeKey);
+    if (template == null) {
+      return null;
+    }
+    if (template.isParameterized() && template.canInstantiate(parameters)) {
+      return template;
+    }
+    return _cache.getIfPresent(getExactKey(shapeKey, parameters));
+  }
+
+  /**
+   * Returns the current version of the cache, which should be read before planning the query to be cached.
+   */
+  public long getVersion() {
+    return _version.get();
+  }
+
+  /**
+   * Caches the template planned with the given cache version, unless the cache has been invalidated since then.
+   */
+  public void put(String shapeKey, List<Object> parameters, StagePlanTemplate template, long version) {
+    if (template.isParameterized()) {
+      _cache.put(shapeKey, template);
+      removeIfInvalid(shapeKey, template, version);
+    } else {
+      String exactKey = getExactKey(shapeKey, parameters);
+      _cache.put(exactKey, template);
+      removeIfInvalid(exactKey, template, version);
+      // Do not replace the parameterized template for the other parameter values
+      if (_cache.asMap().putIfAbsent(shapeKey, template) == null) {
+        removeIfInvalid(shapeKey, template, version);
+      }
+    }
+  }
+
+  /**
+   * Removes the template just put into the cache if the cache has been invalidated since the template was planned.
+   * NOTE: The version is checked after putting the template so that it is also removed if the cache is invalidated
+   *       concurrently.
+   */
+  private void removeIfInvalid(String key, StagePlanTemplate template, long version) {
+    if (_version.get() != version) {
+      _cache.asMap().remove(key, template);
+    }
+  }
+
+  /**
+   * Invalidates all the cached templates.
+   */
+  public void invalidateAll() {
+    _version.incrementAndGet();
+    _cache.invalidateAll();
+  }
+
+  @VisibleForTesting
+  long size() {
+    return _cache.size();
+  }
+}
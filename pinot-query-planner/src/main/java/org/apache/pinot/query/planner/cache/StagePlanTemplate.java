@@ -0,0 +1,452 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.planner.cache;
+
+import com.google.common.base.Preconditions;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import org.apache.calcite.rel.hint.RelHint;
+import org.apache.calcite.util.Pair;
+import org.apache.pinot.common.proto.Plan;
+import org.apache.pinot.query.planner.logical.RexExpression;
+import org.apache.pinot.query.planner.stage.AbstractStageNode;
+import org.apache.pinot.query.planner.stage.AggregateNode;
+import org.apache.pinot.query.planner.stage.MailboxReceiveNode;
+import org.apache.pinot.query.planner.stage.StageNode;
+import org.apache.pinot.query.planner.stage.StageNodeSerDeUtils;
+
+
+/**
+ * The {@code StagePlanTemplate} holds the stage tree of a query before the workers are assigned (see
+ * {@link org.apache.pinot.query.planner.logical.StagePlanner#makeStagePlan}) in serialized form, from which a new
+ * stage tree can be created for each request without going through the Calcite planning again.
+ *
+ * <p>A parameterized template additionally records the literal in the stage tree for each parameter of the query (see
+ * {@link ParameterizedQuery}), so that it can be instantiated for other parameter values. The literal for each
+ * parameter is found by planning the query again with perturbed parameter values: the template is only parameterized
+ * when the two stage trees are identical except for one distinct literal per parameter, i.e. when the stage tree does
+ * not depend on the parameter values other than through these literals.
+ */
+@Immutable
+public class StagePlanTemplate {
+  private static final String LITERAL_CLASS_NAME = RexExpression.Literal.class.getName();
+  // Name of the member variable holding the value of the RexExpression.Literal
+  private static final String LITERAL_VALUE_KEY = "_value";
+
+  private final List<Pair<Integer, String>> _fields;
+  // Serialized root of each stage keyed by stage id, in stage id order
+  private final TreeMap<Integer, Plan.StageNode> _stageRoots;
+  // Hints of the aggregate nodes in traversal order, which are not serialized
+  private final List<List<RelHint>> _aggregateHints;
+  // Index of the literal (in traversal order) for each parameter, or null if the template is not parameterized
+  private final int[] _parameterLiteralIds;
+  // Value class of the literal for each parameter
+  private final Class<?>[] _parameterClasses;
+
+  private StagePlanTemplate(List<Pair<Integer, String>> fields, TreeMap<Integer, Plan.StageNode> stageRoots,
+      List<List<RelHint>> aggregateHints, @Nullable int[] parameterLiteralIds, @Nullable Class<?>[] parameterClasses) {
+    _fields = fields;
+    _stageRoots = stageRoots;
+    _aggregateHints = aggregateHints;
+    _parameterLiteralIds = parameterLiteralIds;
+    _parameterClasses = parameterClasses;
+  }
+
+  /**
+   * Creates a non-parameterized template from the given stage tree, which must not be modified yet by the physical
+   * optimizations.
+   *
+   * @param fields query result fields.
+   * @param globalReceiverNode global receiver node (root of stage 0).
+   */
+  public static StagePlanTemplate create(List<Pair<Integer, String>> fields, StageNode globalReceiverNode) {
+    Map<Integer, StageNode> stageRoots = new HashMap<>();
+    collectStageRoots(globalReceiverNode, stageRoots);
+    TreeMap<Integer, Plan.StageNode> serializedStageRoots = new TreeMap<>();
+    List<List<RelHint>> aggregateHints = new ArrayList<>();
+    for (StageNode stageRoot : new TreeMap<>(stageRoots).values()) {
+      serializedStageRoots.put(stageRoot.getStageId(),
+          StageNodeSerDeUtils.serializeStageNode((AbstractStageNode) stageRoot));
+      collectAggregateHints(stageRoot, aggregateHints);
+    }
+    return new StagePlanTemplate(fields, serializedStageRoots, aggregateHints, null, null);
+  }
+
+  /**
+   * Returns a parameterized copy of this template, or {@code null} if the stage tree cannot be parameterized.
+   *
+   * @param parameters parameter values of the query planned into this template.
+   * @param perturbedTemplate template planned from the same query with the perturbed parameters.
+   * @param perturbedParameters perturbed parameter values.
+   */
+  @Nullable
+  public StagePlanTemplate parameterize(List<Object> parameters, StagePlanTemplate perturbedTemplate,
+      List<Object> perturbedParameters) {
+    int numParameters = parameters.size();
+    if (numParameters == 0) {
+      return new StagePlanTemplate(_fields, _stageRoots, _aggregateHints, new int[0], new Class<?>[0]);
+    }
+    if (perturbedParameters.size() != numParameters || !_fields.equals(perturbedTemplate._fields)) {
+      return null;
+    }
+    List<Object> literalValues = collectLiteralValues(_stageRoots);
+    List<Object> perturbedLiteralValues = collectLiteralValues(perturbedTemplate._stageRoots);
+    int numLiterals = literalValues.size();
+    if (perturbedLiteralValues.size() != numLiterals) {
+      return null;
+    }
+
+    // Find the only literal changed from the parameter to the perturbed parameter for each parameter
+    int[] parameterLiteralIds = new int[numParameters];
+    Class<?>[] parameterClasses = new Class<?>[numParameters];
+    Map<Integer, Object> perturbedLiterals = new HashMap<>();
+    for (int i = 0; i < numParameters; i++) {
+      int parameterLiteralId = -1;
+      for (int literalId = 0; literalId < numLiterals; literalId++) {
+        Object literalValue = literalValues.get(literalId);
+        Object perturbedLiteralValue = perturbedLiteralValues.get(literalId);
+        if (!Objects.equals(literalValue, perturbedLiteralValue) && matches(literalValue, parameters.get(i))
+            && matches(perturbedLiteralValue, perturbedParameters.get(i))) {
+          if (parameterLiteralId >= 0) {
+            return null;
+          }
+          parameterLiteralId = literalId;
+        }
+      }
+      if (parameterLiteralId < 0 || perturbedLiterals.containsKey(parameterLiteralId)) {
+        return null;
+      }
+      parameterLiteralIds[i] = parameterLiteralId;
+      parameterClasses[i] = literalValues.get(parameterLiteralId).getClass();
+      perturbedLiterals.put(parameterLiteralId, perturbedLiteralValues.get(parameterLiteralId));
+    }
+
+    // Make sure nothing else changed with the parameters
+    if (!replaceLiterals(_stageRoots, perturbedLiterals).equals(perturbedTemplate._stageRoots)) {
+      return null;
+    }
+    return new StagePlanTemplate(_fields, _stageRoots, _aggregateHints, parameterLiteralIds, parameterClasses);
+  }
+
+  public boolean isParameterized() {
+    return _parameterLiteralIds != null;
+  }
+
+  public List<Pair<Integer, String>> getFields() {
+    return _fields;
+  }
+
+  /**
+   * Returns whether the template can be instantiated with the given parameter values, i.e. the template is not
+   * parameterized, or the parameter values can be represented with the literal types of the template (e.g. not a
+   * decimal value for an INT literal).
+   */
+  public boolean canInstantiate(List<Object> parameters) {
+    if (_parameterLiteralIds == null) {
+      return true;
+    }
+    for (int i = 0; i < _parameterLiteralIds.length; i++) {
+      if (toLiteralValue(parameters.get(i), _parameterClasses[i]) == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Creates a new stage tree from the template with the given parameter values. The parameters are ignored for a
+   * non-parameterized template.
+   *
+   * @return global receiver node (root of stage 0).
+   */
+  public StageNode instantiate(List<Object> parameters) {
+    Map<Integer, Plan.StageNode> serializedStageRoots = _stageRoots;
+    if (_parameterLiteralIds != null && _parameterLiteralIds.length > 0) {
+      Map<Integer, Object> literals = new HashMap<>();
+      for (int i = 0; i < _parameterLiteralIds.length; i++) {
+        Object literalValue = toLiteralValue(parameters.get(i), _parameterClasses[i]);
+        Preconditions.checkArgument(literalValue != null, "Cannot instantiate template with parameter: %s",
+            parameters.get(i));
+        literals.put(_parameterLiteralIds[i], literalValue);
+      }
+      serializedStageRoots = replaceLiterals(_stageRoots, literals);
+    }
+
+    Map<Integer, StageNode> stageRoots = new HashMap<>();
+    for (Map.Entry<Integer, Plan.StageNode> entry : serializedStageRoots.entrySet()) {
+      stageRoots.put(entry.getKey(), StageNodeSerDeUtils.deserializeStageNode(entry.getValue()));
+    }
+    // Restore the planning only states that are not serialized
+    Iterator<List<RelHint>> aggregateHintsIterator = _aggregateHints.iterator();
+    for (StageNode stageRoot : new TreeMap<>(stageRoots).values()) {
+      restoreStageNode(stageRoot, stageRoots, aggregateHintsIterator);
+    }
+    return stageRoots.get(0);
+  }
+
+  private static void collectStageRoots(StageNode node, Map<Integer, StageNode> stageRoots) {
+    if (node instanceof MailboxReceiveNode) {
+      if (node.getStageId() == 0) {
+        stageRoots.put(0, node);
+      }
+      StageNode sender = ((MailboxReceiveNode) node).getSender();
+      stageRoots.put(sender.getStageId(), sender);
+      collectStageRoots(sender, stageRoots);
+    } else {
+      for (StageNode input : node.getInputs()) {
+        collectStageRoots(input, stageRoots);
+      }
+    }
+  }
+
+  private static void collectAggregateHints(StageNode node, List<List<RelHint>> aggregateHints) {
+    if (node instanceof AggregateNode) {
+      aggregateHints.add(((AggregateNode) node).getRelHints());
+    }
+    for (StageNode input : node.getInputs()) {
+      collectAggregateHints(input, aggregateHints);
+    }
+  }
+
+  private static void restoreStageNode(StageNode node, Map<Integer, StageNode> stageRoots,
+      Iterator<List<RelHint>> aggregateHintsIterator) {
+    if (node instanceof AggregateNode) {
+      ((AggregateNode) node).setRelHints(aggregateHintsIterator.next());
+    } else if (node instanceof MailboxReceiveNode) {
+      MailboxReceiveNode receiveNode = (MailboxReceiveNode) node;
+      receiveNode.setSender(stageRoots.get(receiveNode.getSenderStageId()));
+    }
+    for (StageNode input : node.getInputs()) {
+      restoreStageNode(input, stageRoots, aggregateHintsIterator);
+    }
+  }
+
+  /**
+   * Returns whether the value of a literal in the stage tree matches the parameter value.
+   */
+  private static boolean matches(@Nullable Object literalValue, Object parameter) {
+    if (parameter instanceof String) {
+      return parameter.equals(literalValue);
+    }
+    if (literalValue instanceof Integer || literalValue instanceof Long || literalValue instanceof Float
+        || literalValue instanceof Double) {
+      try {
+        return new BigDecimal(literalValue.toString()).compareTo((BigDecimal) parameter) == 0;
+      } catch (NumberFormatException e) {
+        // NaN or infinity
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Converts the parameter value into the literal value class, or returns {@code null} if it cannot be converted.
+   */
+  @Nullable
+  private static Object toLiteralValue(Object parameter, Class<?> literalClass) {
+    if (literalClass == String.class) {
+      return parameter instanceof String ? parameter : null;
+    }
+    if (!(parameter instanceof BigDecimal)) {
+      return null;
+    }
+    BigDecimal value = (BigDecimal) parameter;
+    try {
+      if (literalClass == Integer.class) {
+        return value.intValueExact();
+      } else if (literalClass == Long.class) {
+        return value.longValueExact();
+      } else if (literalClass == Float.class) {
+        return value.floatValue();
+      } else if (literalClass == Double.class) {
+        return value.doubleValue();
+      } else {
+        return null;
+      }
+    } catch (ArithmeticException e) {
+      return null;
+    }
+  }
+
+  // --------------------------------------------------------------------------
+  // Serialized literal utils
+  // --------------------------------------------------------------------------
+  // The literals are identified by their index in the traversal order of the serialized stage trees: stage id order,
+  // then depth first with the member variables in name order.
+
+  private static List<Object> collectLiteralValues(TreeMap<Integer, Plan.StageNode> stageRoots) {
+    List<Object> literalValues = new ArrayList<>();
+    LiteralRewriter collector = (literalId, literal) -> {
+      literalValues.add(getLiteralValue(literal));
+      return literal;
+    };
+    int[] nextLiteralId = new int[1];
+    for (Plan.StageNode stageRoot : stageRoots.values()) {
+      rewriteStageNode(stageRoot, collector, nextLiteralId);
+    }
+    return literalValues;
+  }
+
+  private static TreeMap<Integer, Plan.StageNode> replaceLiterals(TreeMap<Integer, Plan.StageNode> stageRoots,
+      Map<Integer, Object> literalValues) {
+    LiteralRewriter replacer = (literalId, literal) -> {
+      Object value = literalValues.get(literalId);
+      return value != null ? setLiteralValue(literal, value) : literal;
+    };
+    int[] nextLiteralId = new int[1];
+    TreeMap<Integer, Plan.StageNode> rewrittenStageRoots = new TreeMap<>();
+    for (Map.Entry<Integer, Plan.StageNode> entry : stageRoots.entrySet()) {
+      rewrittenStageRoots.put(entry.getKey(), rewriteStageNode(entry.getValue(), replacer, nextLiteralId));
+    }
+    return rewrittenStageRoots;
+  }
+
+  @Nullable
+  private static Object getLiteralValue(Plan.ObjectField literal) {
+    Plan.MemberVariableField value = literal.getMemberVariablesMap().get(LITERAL_VALUE_KEY);
+    if (value == null || !value.hasLiteralField()) {
+      return null;
+    }
+    Plan.LiteralField literalField = value.getLiteralField();
+    switch (literalField.getLiteralFieldCase()) {
+      case BOOLFIELD:
+        return literalField.getBoolField();
+      case INTFIELD:
+        return literalField.getIntField();
+      case LONGFIELD:
+        return literalField.getLongField();
+      case FLOATFIELD:
+        return literalField.getFloatField();
+      case DOUBLEFIELD:
+        return literalField.getDoubleField();
+      case STRINGFIELD:
+        return literalField.getStringField();
+      default:
+        return null;
+    }
+  }
+
+  private static Plan.ObjectField setLiteralValue(Plan.ObjectField literal, Object value) {
+    Plan.LiteralField.Builder literalField = Plan.LiteralField.newBuilder();
+    if (value instanceof Integer) {
+      literalField.setIntField((Integer) value);
+    } else if (value instanceof Long) {
+      literalField.setLongField((Long) value);
+    } else if (value instanceof Float) {
+      literalField.setFloatField((Float) value);
+    } else if (value instanceof Double) {
+      literalField.setDoubleField((Double) value);
+    } else {
+      literalField.setStringField((String) value);
+    }
+    return literal.toBuilder().putMemberVariables(LITERAL_VALUE_KEY,
+        Plan.MemberVariableField.newBuilder().setLiteralField(literalField).build()).build();
+  }
+
+  private static Plan.StageNode rewriteStageNode(Plan.StageNode node, LiteralRewriter rewriter, int[] nextLiteralId) {
+    Plan.ObjectField objectField = rewriteObject(node.getObjectField(), rewriter, nextLiteralId);
+    List<Plan.StageNode> inputs = node.getInputsList();
+    List<Plan.StageNode> rewrittenInputs = new ArrayList<>(inputs.size());
+    boolean changed = objectField != node.getObjectField();
+    for (Plan.StageNode input : inputs) {
+      Plan.StageNode rewrittenInput = rewriteStageNode(input, rewriter, nextLiteralId);
+      rewrittenInputs.add(rewrittenInput);
+      changed |= rewrittenInput != input;
+    }
+    if (!changed) {
+      return node;
+    }
+    return node.toBuilder().setObjectField(objectField).clearInputs().addAllInputs(rewrittenInputs).build();
+  }
+
+  private static Plan.ObjectField rewriteObject(Plan.ObjectField object, LiteralRewriter rewriter,
+      int[] nextLiteralId) {
+    if (LITERAL_CLASS_NAME.equals(object.getObjectClassName())) {
+      return rewriter.rewrite(nextLiteralId[0]++, object);
+    }
+    Map<String, Plan.MemberVariableField> memberVariables = object.getMemberVariablesMap();
+    Plan.ObjectField.Builder builder = null;
+    for (String name : new TreeSet<>(memberVariables.keySet())) {
+      Plan.MemberVariableField memberVariable = memberVariables.get(name);
+      Plan.MemberVariableField rewrittenMemberVariable = rewriteMemberVariable(memberVariable, rewriter, nextLiteralId);
+      if (rewrittenMemberVariable != memberVariable) {
+        if (builder == null) {
+          builder = object.toBuilder();
+        }
+        builder.putMemberVariables(name, rewrittenMemberVariable);
+      }
+    }
+    return builder != null ? builder.build() : object;
+  }
+
+  private static Plan.MemberVariableField rewriteMemberVariable(Plan.MemberVariableField memberVariable,
+      LiteralRewriter rewriter, int[] nextLiteralId) {
+    switch (memberVariable.getMemberVariableFieldCase()) {
+      case OBJECTFIELD: {
+        Plan.ObjectField objectField = memberVariable.getObjectField();
+        Plan.ObjectField rewrittenObjectField = rewriteObject(objectField, rewriter, nextLiteralId);
+        return rewrittenObjectField != objectField ? Plan.MemberVariableField.newBuilder()
+            .setObjectField(rewrittenObjectField).build() : memberVariable;
+      }
+      case LISTFIELD: {
+        List<Plan.MemberVariableField> content = memberVariable.getListField().getContentList();
+        List<Plan.MemberVariableField> rewrittenContent = new ArrayList<>(content.size());
+        boolean changed = false;
+        for (Plan.MemberVariableField element : content) {
+          Plan.MemberVariableField rewrittenElement = rewriteMemberVariable(element, rewriter, nextLiteralId);
+          rewrittenContent.add(rewrittenElement);
+          changed |= rewrittenElement != element;
+        }
+        return changed ? Plan.MemberVariableField.newBuilder()
+            .setListField(Plan.ListField.newBuilder().addAllContent(rewrittenContent)).build() : memberVariable;
+      }
+      case MAPFIELD: {
+        Map<String, Plan.MemberVariableField> content = memberVariable.getMapField().getContentMap();
+        Plan.MapField.Builder builder = null;
+        for (String key : new TreeSet<>(content.keySet())) {
+          Plan.MemberVariableField value = content.get(key);
+          Plan.MemberVariableField rewrittenValue = rewriteMemberVariable(value, rewriter, nextLiteralId);
+          if (rewrittenValue != value) {
+            if (builder == null) {
+              builder = memberVariable.getMapField().toBuilder();
+            }
+            builder.putContent(key, rewrittenValue);
+          }
+        }
+        return builder != null ? Plan.MemberVariableField.newBuilder().setMapField(builder).build() : memberVariable;
+      }
+      default:
+        return memberVariable;
+    }
+  }
+
+  private interface LiteralRewriter {
+    Plan.ObjectField rewrite(int literalId, Plan.ObjectField literal);
+  }
+}
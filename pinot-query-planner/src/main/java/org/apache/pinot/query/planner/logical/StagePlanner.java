@@ -27,12 +27,15 @@ import org.apache.calcite.rel.RelRoot;
 import org.apache.calcite.rel.core.Exchange;
 import org.apache.calcite.rel.core.SortExchange;
 import org.apache.calcite.rel.logical.PinotLogicalSortExchange;
+import org.apache.calcite.util.Pair;
 import org.apache.pinot.common.config.provider.TableCache;
 import org.apache.pinot.query.context.PlannerContext;
 import org.apache.pinot.query.planner.QueryPlan;
 import org.apache.pinot.query.planner.StageMetadata;
 import org.apache.pinot.query.planner.partitioning.FieldSelectionKeySelector;
 import org.apache.pinot.query.planner.partitioning.KeySelector;
+import org.apache.pinot.query.planner.physical.JoinStrategyOptimizer;
+import org.apache.pinot.query.planner.physical.RuntimeFilterOptimizer;
 import org.apache.pinot.query.planner.physical.colocated.GreedyShuffleRewriteVisitor;
 import org.apache.pinot.query.planner.stage.MailboxReceiveNode;
 import org.apache.pinot.query.planner.stage.MailboxSendNode;
@@ -67,6 +70,18 @@ public class StagePlanner {
    * @return dispatchable plan.
    */
   public QueryPlan makePlan(RelRoot relRoot) {
+    return makePlan(relRoot.fields, makeStagePlan(relRoot));
+  }
+
+  /**
+   * Construct the stage tree from relational logical plan, without assigning workers to the stages. The returned
+   * global receiver node only depends on the logical plan, and can be turned into a dispatchable plan with
+   * {@link #makePlan(List, StageNode)}.
+   *
+   * @param relRoot relational plan root.
+   * @return global receiver node (root of stage 0).
+   */
+  public StageNode makeStagePlan(RelRoot relRoot) {
     RelNode relRootNode = relRoot.rel;
     // Stage ID starts with 1, 0 will be reserved for ROOT stage.
     _stageIdCounter = 1;
@@ -80,11 +95,20 @@ public class StagePlanner {
         0, RelDistribution.Type.RANDOM_DISTRIBUTED, null, null, false);
     globalSenderNode.addInput(globalStageRoot);
 
-    StageNode globalReceiverNode =
-        new MailboxReceiveNode(0, globalStageRoot.getDataSchema(), globalStageRoot.getStageId(),
-            RelDistribution.Type.RANDOM_DISTRIBUTED, null, null, false, false, globalSenderNode);
+    return new MailboxReceiveNode(0, globalStageRoot.getDataSchema(), globalStageRoot.getStageId(),
+        RelDistribution.Type.RANDOM_DISTRIBUTED, null, null, false, false, globalSenderNode);
+  }
 
-    QueryPlan queryPlan = StageMetadataVisitor.attachMetadata(relRoot.fields, globalReceiverNode);
+  /**
+   * Construct the dispatchable plan from the stage tree returned by {@link #makeStagePlan(RelRoot)}. The stage tree is
+   * modified in place by the physical optimizations, so it cannot be reused for another plan.
+   *
+   * @param fields query result fields.
+   * @param globalReceiverNode global receiver node (root of stage 0).
+   * @return dispatchable plan.
+   */
+  public QueryPlan makePlan(List<Pair<Integer, String>> fields, StageNode globalReceiverNode) {
+    QueryPlan queryPlan = StageMetadataVisitor.attachMetadata(fields, globalReceiverNode);
 
     // assign workers to each stage.
     for (Map.Entry<Integer, StageMetadata> e : queryPlan.getStageMetadataMap().entrySet()) {
@@ -128,9 +152,11 @@ public class StagePlanner {
 
   // TODO: Switch to Worker SPI to avoid multiple-places where workers are assigned.
   private void runPhysicalOptimizers(QueryPlan queryPlan) {
+    JoinStrategyOptimizer.optimizeJoins(queryPlan, _workerManager, _plannerContext.getOptions());
     if (_plannerContext.getOptions().getOrDefault("useColocatedJoin", "false").equals("true")) {
-      GreedyShuffleRewriteVisitor.optimizeShuffles(queryPlan, _tableCache);
+      GreedyShuffleRewriteVisitor.optimizeShuffles(queryPlan, _tableCache, _workerManager);
     }
+    RuntimeFilterOptimizer.optimizeRuntimeFilters(queryPlan, _workerManager, _plannerContext.getOptions());
   }
 
   private StageNode createSendReceivePair(StageNode nextStageRoot, RelDistribution distribution, RelCollation collation,
@@ -0,0 +1,323 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.planner.physical;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+import org.apache.calcite.rel.RelDistribution;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.core.transport.ServerInstance;
+import org.apache.pinot.query.planner.QueryPlan;
+import org.apache.pinot.query.planner.StageMetadata;
+import org.apache.pinot.query.planner.logical.RexExpression;
+import org.apache.pinot.query.planner.partitioning.FieldSelectionKeySelector;
+import org.apache.pinot.query.planner.stage.JoinNode;
+import org.apache.pinot.query.planner.stage.MailboxReceiveNode;
+import org.apache.pinot.query.planner.stage.MailboxSendNode;
+import org.apache.pinot.query.planner.stage.ProjectNode;
+import org.apache.pinot.query.planner.stage.StageNode;
+import org.apache.pinot.query.routing.VirtualServer;
+import org.apache.pinot.query.routing.WorkerManager;
+import org.apache.pinot.spi.utils.CommonConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * {@code JoinStrategyOptimizer} picks the strategy to execute each join based on the estimated number of rows of the
+ * join inputs (see {@link RowCountEstimator}):
+ * <ul>
+ *   <li>
+ *     HASH: both inputs are hash partitioned on the join keys, which costs shuffling both inputs. The smaller input is
+ *     moved to the right side so that it is used to build the hash table.
+ *   </li>
+ *   <li>
+ *     BROADCAST: the right (smaller) input is broadcast to all the workers of the left input, and the join stage is
+ *     executed on the same workers as the left input so that the left input is not shuffled. This costs shuffling the
+ *     right input once per worker, and is only picked when it is cheaper than HASH.
+ *   </li>
+ * </ul>
+ * The strategy can be forced with the {@link CommonConstants.Broker.Request.QueryOptionKey#JOIN_STRATEGY} query
+ * option. The joins are left unchanged when the number of rows cannot be estimated.
+ */
+public class JoinStrategyOptimizer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(JoinStrategyOptimizer.class);
+
+  // Max number of rows of the input to broadcast. The broadcast input is fully materialized on each worker.
+  static final long MAX_BROADCAST_NUM_ROWS = 1_000_000L;
+
+  private final Map<Integer, StageMetadata> _stageMetadataMap;
+  private final RowCountEstimator _rowCountEstimator;
+  private final JoinNode.JoinStrategy _forcedJoinStrategy;
+  private final boolean _allowBroadcast;
+
+  private JoinStrategyOptimizer(Map<Integer, StageMetadata> stageMetadataMap, WorkerManager workerManager,
+      @Nullable JoinNode.JoinStrategy forcedJoinStrategy, boolean allowBroadcast) {
+    _stageMetadataMap = stageMetadataMap;
+    _rowCountEstimator = new RowCountEstimator(stageMetadataMap, workerManager);
+    _forcedJoinStrategy = forcedJoinStrategy;
+    _allowBroadcast = allowBroadcast;
+  }
+
+  /**
+   * Picks the strategy of all the joins within the query plan.
+   *
+   * @param queryPlan query plan with the workers assigned to each stage
+   * @param workerManager worker manager to look up the table statistics
+   * @param options query options
+   */
+  public static void optimizeJoins(QueryPlan queryPlan, WorkerManager workerManager, Map<String, String> options) {
+    String joinStrategyOption = options.get(CommonConstants.Broker.Request.QueryOptionKey.JOIN_STRATEGY);
+    JoinNode.JoinStrategy forcedJoinStrategy = null;
+    if (joinStrategyOption != null) {
+      try {
+        forcedJoinStrategy = JoinNode.JoinStrategy.valueOf(joinStrategyOption.toUpperCase());
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(
+            String.format("Invalid value: '%s' for query option: %s, valid values are: 'hash', 'broadcast'",
+                joinStrategyOption, CommonConstants.Broker.Request.QueryOptionKey.JOIN_STRATEGY));
+      }
+      Preconditions.checkArgument(forcedJoinStrategy != JoinNode.JoinStrategy.COLOCATED,
+          "Colocated join should be enabled with the 'useColocatedJoin' query option");
+      if (forcedJoinStrategy == JoinNode.JoinStrategy.HASH) {
+        return;
+      }
+    }
+    // Colocated join is decided after this optimizer based on the partitioning of the inputs, so only swap the join
+    // inputs without changing the exchanges
+    boolean allowBroadcast = !Boolean.parseBoolean(options.get("useColocatedJoin"));
+    JoinStrategyOptimizer optimizer =
+        new JoinStrategyOptimizer(queryPlan.getStageMetadataMap(), workerManager, forcedJoinStrategy, allowBroadcast);
+    // Optimize the joins bottom-up (stage id of the child stage is always larger than the parent stage) so that the
+    // estimation of the upper joins reflects the optimized lower joins
+    Map<Integer, StageNode> queryStageMap = new TreeMap<>((a, b) -> Integer.compare(b, a));
+    queryStageMap.putAll(queryPlan.getQueryStageMap());
+    for (StageNode stageRoot : queryStageMap.values()) {
+      optimizer.optimizeStage(null, stageRoot);
+    }
+  }
+
+  private void optimizeStage(@Nullable StageNode parent, StageNode node) {
+    if (node instanceof MailboxReceiveNode) {
+      // Stop at the stage boundary
+      return;
+    }
+    for (StageNode input : new ArrayList<>(node.getInputs())) {
+      optimizeStage(node, input);
+    }
+    if (node instanceof JoinNode) {
+      Preconditions.checkState(parent != null, "Join cannot be the root of a stage");
+      optimizeJoin(parent, (JoinNode) node);
+    }
+  }
+
+  private void optimizeJoin(StageNode parent, JoinNode joinNode) {
+    List<StageNode> inputs = joinNode.getInputs();
+    if (!(inputs.get(0) instanceof MailboxReceiveNode) || !(inputs.get(1) instanceof MailboxReceiveNode)) {
+      return;
+    }
+    StageMetadata joinStageMetadata = _stageMetadataMap.get(joinNode.getStageId());
+    if (joinNode.getJoinStrategy() == JoinNode.JoinStrategy.BROADCAST) {
+      // Join without equality keys, where the right side is always broadcast. Avoid shuffling the left side if possible
+      MailboxReceiveNode leftReceiveNode = (MailboxReceiveNode) inputs.get(0);
+      if (_allowBroadcast && canKeepLocal(leftReceiveNode, joinStageMetadata)) {
+        localize(leftReceiveNode, joinStageMetadata);
+      }
+      return;
+    }
+
+    long leftNumRows = joinNode.getInputs().get(0).visit(_rowCountEstimator, null);
+    long rightNumRows = joinNode.getInputs().get(1).visit(_rowCountEstimator, null);
+    if (_forcedJoinStrategy == null && (leftNumRows < 0 || rightNumRows < 0)) {
+      return;
+    }
+    JoinRelType joinRelType = joinNode.getJoinRelType();
+    boolean canSwap = joinRelType != JoinRelType.SEMI && joinRelType != JoinRelType.ANTI;
+
+    // Evaluate the broadcast options, where the right side is broadcast to the workers of the left side
+    long broadcastCost = Long.MAX_VALUE;
+    boolean swapForBroadcast = false;
+    if (_allowBroadcast) {
+      if (canBroadcastRight(joinRelType) && canKeepLocal((MailboxReceiveNode) inputs.get(0), joinStageMetadata)) {
+        broadcastCost = getBroadcastCost(rightNumRows, (MailboxReceiveNode) inputs.get(0));
+      }
+      if (canSwap && canBroadcastRight(swap(joinRelType)) && canKeepLocal((MailboxReceiveNode) inputs.get(1),
+          joinStageMetadata)) {
+        long swappedBroadcastCost = getBroadcastCost(leftNumRows, (MailboxReceiveNode) inputs.get(1));
+        if (swappedBroadcastCost < broadcastCost) {
+          broadcastCost = swappedBroadcastCost;
+          swapForBroadcast = true;
+        }
+      }
+    }
+
+    boolean useBroadcast;
+    if (_forcedJoinStrategy == JoinNode.JoinStrategy.BROADCAST) {
+      useBroadcast = broadcastCost != Long.MAX_VALUE;
+    } else {
+      long hashCost = leftNumRows + rightNumRows;
+      long broadcastNumRows = swapForBroadcast ? leftNumRows : rightNumRows;
+      useBroadcast = broadcastCost < hashCost && broadcastNumRows <= MAX_BROADCAST_NUM_ROWS;
+    }
+
+    if (useBroadcast) {
+      JoinNode optimizedJoinNode = swapForBroadcast ? swapInputs(parent, joinNode) : joinNode;
+      LOGGER.debug("Broadcasting the {} side of join in stage: {}, left rows: {}, right rows: {}",
+          swapForBroadcast ? "left" : "right", joinNode.getStageId(), leftNumRows, rightNumRows);
+      localize((MailboxReceiveNode) optimizedJoinNode.getInputs().get(0), joinStageMetadata);
+      broadcast((MailboxReceiveNode) optimizedJoinNode.getInputs().get(1));
+      optimizedJoinNode.setJoinStrategy(JoinNode.JoinStrategy.BROADCAST);
+    } else if (canSwap && leftNumRows >= 0 && rightNumRows > leftNumRows) {
+      // Build the hash table on the smaller side
+      LOGGER.debug("Swapping the inputs of join in stage: {}, left rows: {}, right rows: {}", joinNode.getStageId(),
+          leftNumRows, rightNumRows);
+      swapInputs(parent, joinNode);
+    }
+  }
+
+  /**
+   * Cost of broadcasting the given number of rows to all the workers of the other input.
+   */
+  private long getBroadcastCost(long broadcastNumRows, MailboxReceiveNode localReceiveNode) {
+    if (broadcastNumRows < 0) {
+      // Only reachable when broadcast is forced, where any valid broadcast option can be picked
+      return Long.MAX_VALUE - 1;
+    }
+    int numWorkers = _stageMetadataMap.get(localReceiveNode.getSenderStageId()).getServerInstances().size();
+    return broadcastNumRows * numWorkers;
+  }
+
+  /**
+   * The right side can be broadcast only when the unmatched rows from the right side are not preserved.
+   */
+  private static boolean canBroadcastRight(JoinRelType joinRelType) {
+    return joinRelType == JoinRelType.INNER || joinRelType == JoinRelType.LEFT || joinRelType == JoinRelType.SEMI
+        || joinRelType == JoinRelType.ANTI;
+  }
+
+  /**
+   * Returns whether the join stage can be executed on the workers of the sender of the given input, where the input
+   * is directly sent to the worker on the same server.
+   */
+  private boolean canKeepLocal(MailboxReceiveNode receiveNode, StageMetadata joinStageMetadata) {
+    if (joinStageMetadata.isRequiresSingletonInstance()) {
+      return false;
+    }
+    List<VirtualServer> senderServers = _stageMetadataMap.get(receiveNode.getSenderStageId()).getServerInstances();
+    if (senderServers.isEmpty()) {
+      return false;
+    }
+    // Singleton exchange requires exactly one worker on each server
+    Set<ServerInstance> servers = new HashSet<>();
+    for (VirtualServer senderServer : senderServers) {
+      if (!servers.add(senderServer.getServer())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void localize(MailboxReceiveNode receiveNode, StageMetadata joinStageMetadata) {
+    joinStageMetadata.setServerInstances(
+        new ArrayList<>(_stageMetadataMap.get(receiveNode.getSenderStageId()).getServerInstances()));
+    receiveNode.setExchangeType(RelDistribution.Type.SINGLETON);
+    ((MailboxSendNode) receiveNode.getSender()).setExchangeType(RelDistribution.Type.SINGLETON);
+  }
+
+  private static void broadcast(MailboxReceiveNode receiveNode) {
+    receiveNode.setExchangeType(RelDistribution.Type.BROADCAST_DISTRIBUTED);
+    ((MailboxSendNode) receiveNode.getSender()).setExchangeType(RelDistribution.Type.BROADCAST_DISTRIBUTED);
+  }
+
+  private static JoinRelType swap(JoinRelType joinRelType) {
+    switch (joinRelType) {
+      case LEFT:
+        return JoinRelType.RIGHT;
+      case RIGHT:
+        return JoinRelType.LEFT;
+      default:
+        return joinRelType;
+    }
+  }
+
+  /**
+   * Swaps the left and right inputs of the join, and adds a project on top of the join to restore the original column
+   * order. Returns the new join node.
+   */
+  private static JoinNode swapInputs(StageNode parent, JoinNode joinNode) {
+    StageNode left = joinNode.getInputs().get(0);
+    StageNode right = joinNode.getInputs().get(1);
+    int numLeftColumns = left.getDataSchema().size();
+    int numRightColumns = right.getDataSchema().size();
+    int numColumns = numLeftColumns + numRightColumns;
+
+    // Original column i maps to swapped column newIndex(i), and swapped column j maps to original column oldIndex(j)
+    DataSchema dataSchema = joinNode.getDataSchema();
+    String[] columnNames = new String[numColumns];
+    DataSchema.ColumnDataType[] columnDataTypes = new DataSchema.ColumnDataType[numColumns];
+    List<RexExpression> projects = new ArrayList<>(numColumns);
+    for (int i = 0; i < numColumns; i++) {
+      int oldIndex = i < numRightColumns ? i + numLeftColumns : i - numRightColumns;
+      columnNames[i] = dataSchema.getColumnName(oldIndex);
+      columnDataTypes[i] = dataSchema.getColumnDataType(oldIndex);
+      projects.add(new RexExpression.InputRef(i < numLeftColumns ? i + numRightColumns : i - numLeftColumns));
+    }
+    List<RexExpression> joinClause = new ArrayList<>(joinNode.getJoinClauses().size());
+    for (RexExpression expression : joinNode.getJoinClauses()) {
+      joinClause.add(remapInputRefs(expression, numLeftColumns, numRightColumns));
+    }
+    JoinNode.JoinKeys joinKeys = joinNode.getJoinKeys();
+    JoinNode swappedJoinNode = new JoinNode(joinNode.getStageId(), new DataSchema(columnNames, columnDataTypes),
+        right.getDataSchema(), left.getDataSchema(), swap(joinNode.getJoinRelType()),
+        new JoinNode.JoinKeys((FieldSelectionKeySelector) joinKeys.getRightJoinKeySelector(),
+            (FieldSelectionKeySelector) joinKeys.getLeftJoinKeySelector()), joinClause);
+    swappedJoinNode.addInput(right);
+    swappedJoinNode.addInput(left);
+
+    ProjectNode projectNode = new ProjectNode(joinNode.getStageId(), projects, dataSchema);
+    projectNode.addInput(swappedJoinNode);
+    List<StageNode> parentInputs = parent.getInputs();
+    parentInputs.set(parentInputs.indexOf(joinNode), projectNode);
+    return swappedJoinNode;
+  }
+
+  private static RexExpression remapInputRefs(RexExpression expression, int numLeftColumns, int numRightColumns) {
+    if (expression instanceof RexExpression.InputRef) {
+      int index = ((RexExpression.InputRef) expression).getIndex();
+      return new RexExpression.InputRef(index < numLeftColumns ? index + numRightColumns : index - numLeftColumns);
+    }
+    if (expression instanceof RexExpression.FunctionCall) {
+      RexExpression.FunctionCall functionCall = (RexExpression.FunctionCall) expression;
+      List<RexExpression> operands = new ArrayList<>(functionCall.getFunctionOperands().size());
+      for (RexExpression operand : functionCall.getFunctionOperands()) {
+        operands.add(remapInputRefs(operand, numLeftColumns, numRightColumns));
+      }
+      return new RexExpression.FunctionCall(functionCall.getKind(), functionCall.getDataType(),
+          functionCall.getFunctionName(), operands);
+    }
+    return expression;
+  }
+}
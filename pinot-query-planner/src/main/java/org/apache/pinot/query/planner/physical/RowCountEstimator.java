@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.planner.physical;
+
+import java.util.Map;
+import org.apache.pinot.query.planner.StageMetadata;
+import org.apache.pinot.query.planner.stage.AggregateNode;
+import org.apache.pinot.query.planner.stage.FilterNode;
+import org.apache.pinot.query.planner.stage.JoinNode;
+import org.apache.pinot.query.planner.stage.MailboxReceiveNode;
+import org.apache.pinot.query.planner.stage.MailboxSendNode;
+import org.apache.pinot.query.planner.stage.ProjectNode;
+import org.apache.pinot.query.planner.stage.SortNode;
+import org.apache.pinot.query.planner.stage.StageNodeVisitor;
+import org.apache.pinot.query.planner.stage.TableScanNode;
+import org.apache.pinot.query.planner.stage.ValueNode;
+import org.apache.pinot.query.planner.stage.WindowNode;
+import org.apache.pinot.query.routing.WorkerManager;
+
+
+/**
+ * {@code RowCountEstimator} estimates the number of rows produced by a stage node (across all the workers of the
+ * stage) based on the number of documents of the scanned tables. The estimation is only meant to compare the relative
+ * sizes of the join inputs, and returns -1 when it cannot be estimated (e.g. the table statistics are not available).
+ * <p>Filters and aggregations are estimated with fixed selectivities. The column histograms and NDV sketches are kept
+ * in the segment metadata on the servers, but only the segment ZK metadata (number of documents) is available to the
+ * broker when planning the query.
+ * TODO: Use the column histograms for the filter selectivity and the NDV sketches for the group-by cardinality once
+ *       they are propagated to the broker.
+ */
+public class RowCountEstimator implements StageNodeVisitor<Long, Void> {
+  // Default fraction of the input rows returned by a filter
+  static final double FILTER_SELECTIVITY = 0.5;
+  // Default fraction of the input rows returned by a group-by aggregation
+  static final double GROUP_BY_SELECTIVITY = 0.5;
+
+  private final Map<Integer, StageMetadata> _stageMetadataMap;
+  private final WorkerManager _workerManager;
+
+  public RowCountEstimator(Map<Integer, StageMetadata> stageMetadataMap, WorkerManager workerManager) {
+    _stageMetadataMap = stageMetadataMap;
+    _workerManager = workerManager;
+  }
+
+  @Override
+  public Long visitAggregate(AggregateNode node, Void context) {
+    if (node.getGroupSet().isEmpty()) {
+      return 1L;
+    }
+    return scale(node.getInputs().get(0).visit(this, context), GROUP_BY_SELECTIVITY);
+  }
+
+  @Override
+  public Long visitFilter(FilterNode node, Void context) {
+    return scale(node.getInputs().get(0).visit(this, context), FILTER_SELECTIVITY);
+  }
+
+  @Override
+  public Long visitJoin(JoinNode node, Void context) {
+    long leftNumRows = node.getInputs().get(0).visit(this, context);
+    long rightNumRows = node.getInputs().get(1).visit(this, context);
+    switch (node.getJoinRelType()) {
+      case LEFT:
+      case SEMI:
+      case ANTI:
+        return leftNumRows;
+      case RIGHT:
+        return rightNumRows;
+      case FULL:
+        return leftNumRows < 0 || rightNumRows < 0 ? -1 : leftNumRows + rightNumRows;
+      default:
+        // Assume a primary key - foreign key join for inner join
+        return leftNumRows < 0 || rightNumRows < 0 ? -1 : Math.max(leftNumRows, rightNumRows);
+    }
+  }
+
+  @Override
+  public Long visitMailboxReceive(MailboxReceiveNode node, Void context) {
+    return node.getSender().visit(this, context);
+  }
+
+  @Override
+  public Long visitMailboxSend(MailboxSendNode node, Void context) {
+    return node.getInputs().get(0).visit(this, context);
+  }
+
+  @Override
+  public Long visitProject(ProjectNode node, Void context) {
+    return node.getInputs().get(0).visit(this, context);
+  }
+
+  @Override
+  public Long visitSort(SortNode node, Void context) {
+    long numRows = node.getInputs().get(0).visit(this, context);
+    if (node.getFetch() > 0) {
+      long limit = (long) node.getFetch() + Math.max(node.getOffset(), 0);
+      return numRows < 0 ? limit : Math.min(numRows, limit);
+    }
+    return numRows;
+  }
+
+  @Override
+  public Long visitTableScan(TableScanNode node, Void context) {
+    return _workerManager.getEstimatedNumDocs(_stageMetadataMap.get(node.getStageId()));
+  }
+
+  @Override
+  public Long visitValue(ValueNode node, Void context) {
+    return (long) node.getLiteralRows().size();
+  }
+
+  @Override
+  public Long visitWindow(WindowNode node, Void context) {
+    return node.getInputs().get(0).visit(this, context);
+  }
+
+  private static long scale(long numRows, double selectivity) {
+    return numRows < 0 ? -1 : (long) Math.ceil(numRows * selectivity);
+  }
+}
@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.planner.physical;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.query.planner.QueryPlan;
+import org.apache.pinot.query.planner.StageMetadata;
+import org.apache.pinot.query.planner.partitioning.FieldSelectionKeySelector;
+import org.apache.pinot.query.planner.stage.FilterNode;
+import org.apache.pinot.query.planner.stage.JoinNode;
+import org.apache.pinot.query.planner.stage.MailboxReceiveNode;
+import org.apache.pinot.query.planner.stage.MailboxSendNode;
+import org.apache.pinot.query.planner.stage.ProjectNode;
+import org.apache.pinot.query.planner.stage.StageNode;
+import org.apache.pinot.query.planner.stage.TableScanNode;
+import org.apache.pinot.query.routing.WorkerManager;
+import org.apache.pinot.spi.utils.CommonConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * {@code RuntimeFilterOptimizer} enables the runtime filter for the joins where the right (build) side is expected to
+ * be much smaller than the left (probe) side. Once the hash table is built, the join publishes the keys of the right
+ * side to the leaf stage scanning the left side, which then applies them as an extra IN filter on the table (and prunes
+ * the segments that cannot match) instead of shipping every row to the join.
+ *
+ * <p>The runtime filter can only be applied when:
+ * <ul>
+ *   <li>The rows of the left side without a match are not preserved (INNER, RIGHT and SEMI join)</li>
+ *   <li>The left side is directly sent from a leaf stage without aggregation, sort or limit</li>
+ *   <li>The join keys have the same type on both sides, and the type can be represented as a literal</li>
+ * </ul>
+ * The runtime filter can be forced on or off with the
+ * {@link CommonConstants.Broker.Request.QueryOptionKey#RUNTIME_FILTER} query option. Otherwise it is enabled only when
+ * the number of rows of the join inputs can be estimated (see {@link RowCountEstimator}).
+ */
+public class RuntimeFilterOptimizer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RuntimeFilterOptimizer.class);
+
+  // Max number of rows of the right side to enable the runtime filter without the query option. The join gives up
+  // publishing the keys at runtime when there are too many distinct keys.
+  static final long MAX_BUILD_NUM_ROWS = 1_000_000L;
+
+  private static final Set<JoinRelType> SUPPORTED_JOIN_TYPES =
+      ImmutableSet.of(JoinRelType.INNER, JoinRelType.RIGHT, JoinRelType.SEMI);
+  private static final Set<DataSchema.ColumnDataType> SUPPORTED_KEY_TYPES =
+      ImmutableSet.of(DataSchema.ColumnDataType.INT, DataSchema.ColumnDataType.LONG, DataSchema.ColumnDataType.DOUBLE,
+          DataSchema.ColumnDataType.STRING);
+
+  private final Map<Integer, StageMetadata> _stageMetadataMap;
+  private final RowCountEstimator _rowCountEstimator;
+  private final boolean _forceEnabled;
+
+  private RuntimeFilterOptimizer(Map<Integer, StageMetadata> stageMetadataMap, WorkerManager workerManager,
+      boolean forceEnabled) {
+    _stageMetadataMap = stageMetadataMap;
+    _rowCountEstimator = new RowCountEstimator(stageMetadataMap, workerManager);
+    _forceEnabled = forceEnabled;
+  }
+
+  /**
+   * Enables the runtime filter for the applicable joins within the query plan.
+   *
+   * @param queryPlan query plan with the join strategies picked
+   * @param workerManager worker manager to look up the table statistics
+   * @param options query options
+   */
+  public static void optimizeRuntimeFilters(QueryPlan queryPlan, WorkerManager workerManager,
+      Map<String, String> options) {
+    String runtimeFilterOption = options.get(CommonConstants.Broker.Request.QueryOptionKey.RUNTIME_FILTER);
+    if (runtimeFilterOption != null && !Boolean.parseBoolean(runtimeFilterOption)) {
+      return;
+    }
+    RuntimeFilterOptimizer optimizer = new RuntimeFilterOptimizer(queryPlan.getStageMetadataMap(), workerManager,
+        Boolean.parseBoolean(runtimeFilterOption));
+    for (StageNode stageRoot : queryPlan.getQueryStageMap().values()) {
+      optimizer.optimizeStage(stageRoot);
+    }
+  }
+
+  private void optimizeStage(StageNode node) {
+    if (node instanceof MailboxReceiveNode) {
+      // Stop at the stage boundary
+      return;
+    }
+    for (StageNode input : node.getInputs()) {
+      optimizeStage(input);
+    }
+    if (node instanceof JoinNode) {
+      optimizeJoin((JoinNode) node);
+    }
+  }
+
+  private void optimizeJoin(JoinNode joinNode) {
+    List<StageNode> inputs = joinNode.getInputs();
+    if (!SUPPORTED_JOIN_TYPES.contains(joinNode.getJoinRelType()) || !(inputs.get(0) instanceof MailboxReceiveNode)
+        || !(inputs.get(1) instanceof MailboxReceiveNode)) {
+      return;
+    }
+    MailboxSendNode leftSendNode = (MailboxSendNode) ((MailboxReceiveNode) inputs.get(0)).getSender();
+    if (!isScanOnly(leftSendNode.getInputs().get(0))) {
+      return;
+    }
+    List<Integer> leftKeys =
+        ((FieldSelectionKeySelector) joinNode.getJoinKeys().getLeftJoinKeySelector()).getColumnIndices();
+    List<Integer> rightKeys =
+        ((FieldSelectionKeySelector) joinNode.getJoinKeys().getRightJoinKeySelector()).getColumnIndices();
+    if (leftKeys.isEmpty()) {
+      return;
+    }
+    DataSchema leftSchema = inputs.get(0).getDataSchema();
+    DataSchema rightSchema = inputs.get(1).getDataSchema();
+    for (int i = 0; i < leftKeys.size(); i++) {
+      DataSchema.ColumnDataType leftKeyType = leftSchema.getColumnDataType(leftKeys.get(i));
+      if (!SUPPORTED_KEY_TYPES.contains(leftKeyType) || leftKeyType != rightSchema.getColumnDataType(
+          rightKeys.get(i))) {
+        return;
+      }
+    }
+
+    if (!_forceEnabled) {
+      long leftNumRows = inputs.get(0).visit(_rowCountEstimator, null);
+      long rightNumRows = inputs.get(1).visit(_rowCountEstimator, null);
+      if (leftNumRows < 0 || rightNumRows < 0 || rightNumRows > MAX_BUILD_NUM_ROWS || rightNumRows >= leftNumRows) {
+        return;
+      }
+      LOGGER.debug("Enabling runtime filter for join in stage: {}, left rows: {}, right rows: {}",
+          joinNode.getStageId(), leftNumRows, rightNumRows);
+    }
+    joinNode.setRuntimeFilterEnabled(true);
+    leftSendNode.setRuntimeFilterKeys(leftKeys);
+  }
+
+  /**
+   * Returns whether the leaf stage only scans, filters and projects the table, where the output columns can be filtered
+   * before the scan without changing the result.
+   */
+  private static boolean isScanOnly(StageNode node) {
+    while (node instanceof ProjectNode || node instanceof FilterNode) {
+      node = node.getInputs().get(0);
+    }
+    return node instanceof TableScanNode;
+  }
+}
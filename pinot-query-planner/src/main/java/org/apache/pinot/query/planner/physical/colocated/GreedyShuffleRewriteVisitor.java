@@ -46,9 +46,11 @@ import org.apache.pinot.query.planner.stage.TableScanNode;
 import org.apache.pinot.query.planner.stage.ValueNode;
 import org.apache.pinot.query.planner.stage.WindowNode;
 import org.apache.pinot.query.routing.VirtualServer;
+import org.apache.pinot.query.routing.WorkerManager;
 import org.apache.pinot.spi.config.table.ColumnPartitionConfig;
 import org.apache.pinot.spi.config.table.IndexingConfig;
 import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.utils.builder.TableNameBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,7 +59,7 @@ import org.slf4j.LoggerFactory;
  * This shuffle optimizer can avoid shuffles by taking into account all of the following:
  *
  * 1. Servers assigned to the stages. The optimizer may also choose to change the server assignment if skipping
- *    shuffles is possible.
+ *    shuffles is possible, e.g. the leaf stages of a join on 2 partitioned tables are assigned by partition id.
  * 2. The hash-algorithm and the number of partitions of the data in sender/receiver nodes. So for instance if we do a
  *    join on two tables where the left table is partitioned using Murmur but the right table is partitioned using
  *    hashCode, then this optimizer can detect this case and keep the shuffle.
@@ -69,10 +71,11 @@ public class GreedyShuffleRewriteVisitor
   private static final Logger LOGGER = LoggerFactory.getLogger(GreedyShuffleRewriteVisitor.class);
 
   private final TableCache _tableCache;
+  private final WorkerManager _workerManager;
   private final Map<Integer, StageMetadata> _stageMetadataMap;
   private boolean _canSkipShuffleForJoin;
 
-  public static void optimizeShuffles(QueryPlan queryPlan, TableCache tableCache) {
+  public static void optimizeShuffles(QueryPlan queryPlan, TableCache tableCache, WorkerManager workerManager) {
     StageNode rootStageNode = queryPlan.getQueryStageMap().get(0);
     Map<Integer, StageMetadata> stageMetadataMap = queryPlan.getStageMetadataMap();
     GreedyShuffleRewriteContext context = GreedyShuffleRewritePreComputeVisitor.preComputeContext(rootStageNode);
@@ -80,12 +83,14 @@ public class GreedyShuffleRewriteVisitor
     // TODO: If this assumption is wrong, we can compute the reverse topological ordering explicitly.
     for (int stageId = stageMetadataMap.size() - 1; stageId >= 0; stageId--) {
       StageNode stageNode = context.getRootStageNode(stageId);
-      stageNode.visit(new GreedyShuffleRewriteVisitor(tableCache, stageMetadataMap), context);
+      stageNode.visit(new GreedyShuffleRewriteVisitor(tableCache, workerManager, stageMetadataMap), context);
     }
   }
 
-  private GreedyShuffleRewriteVisitor(TableCache tableCache, Map<Integer, StageMetadata> stageMetadataMap) {
+  private GreedyShuffleRewriteVisitor(TableCache tableCache, WorkerManager workerManager,
+      Map<Integer, StageMetadata> stageMetadataMap) {
     _tableCache = tableCache;
+    _workerManager = workerManager;
     _stageMetadataMap = stageMetadataMap;
     _canSkipShuffleForJoin = false;
   }
@@ -121,23 +126,27 @@ public class GreedyShuffleRewriteVisitor
     // Multiple checks need to be made to ensure that shuffle can be skipped for a join.
     // Step-1: Join can be skipped only for equality joins.
     boolean canColocate = canJoinBeColocated(node);
-    // Step-2: Only if the servers assigned to both left and right nodes are equal and the servers assigned to the join
-    //         stage are a superset of those servers, can we skip shuffles.
-    canColocate = canColocate && canServerAssignmentAllowShuffleSkip(node.getStageId(),
-        innerLeafNodes.get(0).getSenderStageId(), innerLeafNodes.get(1).getSenderStageId());
-    // Step-3: For both left/right MailboxReceiveNode/MailboxSendNode pairs, check whether the key partitioning can
+    // Step-2: For both left/right MailboxReceiveNode/MailboxSendNode pairs, check whether the key partitioning can
     //         allow shuffle skip.
     canColocate = canColocate && partitionKeyConditionForJoin(innerLeafNodes.get(0),
         (MailboxSendNode) innerLeafNodes.get(0).getSender(), context);
     canColocate = canColocate && partitionKeyConditionForJoin(innerLeafNodes.get(1),
         (MailboxSendNode) innerLeafNodes.get(1).getSender(), context);
-    // Step-4: Finally, ensure that the number of partitions and the hash algorithm is same for partition keys of both
-    //         children.
+    // Step-3: Ensure that the number of partitions and the hash algorithm is same for partition keys of both children.
     canColocate = canColocate && checkPartitionScheme(innerLeafNodes.get(0), innerLeafNodes.get(1), context);
+    // Step-4: When the inputs are partitioned tables, assign the segments of the same partition of both tables to the
+    //         same server.
+    canColocate = canColocate && assignWorkersByPartition(innerLeafNodes.get(0).getSenderStageId(),
+        innerLeafNodes.get(1).getSenderStageId());
+    // Step-5: Finally, only if the servers assigned to both left and right nodes are equal and the servers assigned to
+    //         the join stage are a superset of those servers, can we skip shuffles.
+    canColocate = canColocate && canServerAssignmentAllowShuffleSkip(node.getStageId(),
+        innerLeafNodes.get(0).getSenderStageId(), innerLeafNodes.get(1).getSenderStageId());
     if (canColocate) {
       // If shuffle can be skipped, reassign servers.
       _stageMetadataMap.get(node.getStageId()).setServerInstances(
           _stageMetadataMap.get(innerLeafNodes.get(0).getSenderStageId()).getServerInstances());
+      node.setJoinStrategy(JoinNode.JoinStrategy.COLOCATED);
       _canSkipShuffleForJoin = true;
     }
 
@@ -253,12 +262,47 @@ public class GreedyShuffleRewriteVisitor
 
   @Override
   public Set<ColocationKey> visitTableScan(TableScanNode node, GreedyShuffleRewriteContext context) {
-    TableConfig tableConfig =
-        _tableCache.getTableConfig(node.getTableName());
-    if (tableConfig == null) {
+    List<TableConfig> tableConfigs = getTableConfigs(node.getTableName());
+    if (tableConfigs.isEmpty()) {
       LOGGER.warn("Couldn't find tableConfig for {}", node.getTableName());
       return new HashSet<>();
     }
+    // For hybrid table, only keep the partition keys shared by both OFFLINE and REALTIME table
+    Set<ColocationKey> colocationKeys = null;
+    for (TableConfig tableConfig : tableConfigs) {
+      Set<ColocationKey> tableColocationKeys = getColocationKeys(node, tableConfig);
+      if (colocationKeys == null) {
+        colocationKeys = tableColocationKeys;
+      } else {
+        colocationKeys.retainAll(tableColocationKeys);
+      }
+    }
+    return colocationKeys;
+  }
+
+  private List<TableConfig> getTableConfigs(String tableName) {
+    List<TableConfig> tableConfigs = new ArrayList<>();
+    if (TableNameBuilder.getTableTypeFromTableName(tableName) != null) {
+      TableConfig tableConfig = _tableCache.getTableConfig(tableName);
+      if (tableConfig != null) {
+        tableConfigs.add(tableConfig);
+      }
+    } else {
+      TableConfig offlineTableConfig =
+          _tableCache.getTableConfig(TableNameBuilder.OFFLINE.tableNameWithType(tableName));
+      if (offlineTableConfig != null) {
+        tableConfigs.add(offlineTableConfig);
+      }
+      TableConfig realtimeTableConfig =
+          _tableCache.getTableConfig(TableNameBuilder.REALTIME.tableNameWithType(tableName));
+      if (realtimeTableConfig != null) {
+        tableConfigs.add(realtimeTableConfig);
+      }
+    }
+    return tableConfigs;
+  }
+
+  private static Set<ColocationKey> getColocationKeys(TableScanNode node, TableConfig tableConfig) {
     IndexingConfig indexingConfig = tableConfig.getIndexingConfig();
     if (indexingConfig != null && indexingConfig.getSegmentPartitionConfig() != null) {
       Map<String, ColumnPartitionConfig> columnPartitionMap =
@@ -285,9 +329,31 @@ public class GreedyShuffleRewriteVisitor
     return new HashSet<>();
   }
 
-  // TODO: Only equality joins can be colocated. We don't have join clause info available right now.
+  /**
+   * Only equality joins can be colocated.
+   */
   private boolean canJoinBeColocated(JoinNode joinNode) {
-    return true;
+    return !((FieldSelectionKeySelector) joinNode.getJoinKeys().getLeftJoinKeySelector()).getColumnIndices().isEmpty();
+  }
+
+  /**
+   * Assigns the same partition of the left and right stages to the same server. The partitions of the leaf stages come
+   * from the segments of the partitioned tables, so the leaf stages are reassigned by partition id instead of relying
+   * on the routing. The partitions of the intermediate stages are created by the hash exchange based on the order of
+   * the servers, which is already covered by the server assignment check.
+   */
+  private boolean assignWorkersByPartition(int leftStageId, int rightStageId) {
+    StageMetadata leftStageMetadata = _stageMetadataMap.get(leftStageId);
+    StageMetadata rightStageMetadata = _stageMetadataMap.get(rightStageId);
+    boolean isLeftLeafStage = !leftStageMetadata.getScannedTables().isEmpty();
+    boolean isRightLeafStage = !rightStageMetadata.getScannedTables().isEmpty();
+    if (!isLeftLeafStage && !isRightLeafStage) {
+      return true;
+    }
+    if (!isLeftLeafStage || !isRightLeafStage) {
+      return false;
+    }
+    return _workerManager.assignWorkersByPartition(leftStageMetadata, rightStageMetadata);
   }
 
   /**
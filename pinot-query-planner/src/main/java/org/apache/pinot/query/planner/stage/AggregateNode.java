@@ -75,6 +75,10 @@ public class AggregateNode extends AbstractStageNode {
     return _relHints;
   }
 
+  public void setRelHints(List<RelHint> relHints) {
+    _relHints = relHints;
+  }
+
   @Override
   public String explain() {
     return "AGGREGATE";
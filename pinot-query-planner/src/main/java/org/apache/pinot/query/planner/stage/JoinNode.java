@@ -39,6 +39,10 @@ public class JoinNode extends AbstractStageNode {
   private List<String> _leftColumnNames;
   @ProtoProperties
   private List<String> _rightColumnNames;
+  @ProtoProperties
+  private JoinStrategy _joinStrategy;
+  @ProtoProperties
+  private boolean _runtimeFilterEnabled;
 
   public JoinNode(int stageId) {
     super(stageId);
@@ -52,6 +56,9 @@ public class JoinNode extends AbstractStageNode {
     _joinRelType = joinRelType;
     _joinKeys = joinKeys;
     _joinClause = joinClause;
+    // Join without equality keys is always executed by broadcasting the right side
+    _joinStrategy = ((FieldSelectionKeySelector) joinKeys.getLeftJoinKeySelector()).getColumnIndices().isEmpty()
+        ? JoinStrategy.BROADCAST : JoinStrategy.HASH;
   }
 
   public JoinRelType getJoinRelType() {
@@ -74,9 +81,29 @@ public class JoinNode extends AbstractStageNode {
     return _rightColumnNames;
   }
 
+  public JoinStrategy getJoinStrategy() {
+    return _joinStrategy;
+  }
+
+  public void setJoinStrategy(JoinStrategy joinStrategy) {
+    _joinStrategy = joinStrategy;
+  }
+
+  /**
+   * Whether the join publishes the keys of the right (build) side to the left (probe) side leaf stage, which applies
+   * them as an extra filter when scanning the table.
+   */
+  public boolean isRuntimeFilterEnabled() {
+    return _runtimeFilterEnabled;
+  }
+
+  public void setRuntimeFilterEnabled(boolean runtimeFilterEnabled) {
+    _runtimeFilterEnabled = runtimeFilterEnabled;
+  }
+
   @Override
   public String explain() {
-    return "JOIN";
+    return _joinStrategy != null ? "JOIN(" + _joinStrategy + ")" : "JOIN";
   }
 
   @Override
@@ -84,6 +111,18 @@ public class JoinNode extends AbstractStageNode {
     return visitor.visitJoin(this, context);
   }
 
+  /**
+   * The strategy to distribute the join inputs among the workers of the join stage.
+   */
+  public enum JoinStrategy {
+    // Both sides are hash partitioned on the join keys
+    HASH,
+    // The right side is broadcast to all the workers, and the left side is not shuffled when possible
+    BROADCAST,
+    // Both sides are already partitioned on the join keys, and are joined without shuffle
+    COLOCATED
+  }
+
   public static class JoinKeys {
     @ProtoProperties
     private KeySelector<Object[], Object[]> _leftJoinKeySelector;
@@ -44,6 +44,8 @@ public class MailboxReceiveNode extends AbstractStageNode {
   @ProtoProperties
   private List<RelFieldCollation.Direction> _collationDirections;
   @ProtoProperties
+  private List<RelFieldCollation.NullDirection> _collationNullDirections;
+  @ProtoProperties
   private boolean _isSortOnSender;
   @ProtoProperties
   private boolean _isSortOnReceiver;
@@ -67,13 +69,16 @@ public class MailboxReceiveNode extends AbstractStageNode {
     if (!CollectionUtils.isEmpty(fieldCollations)) {
       _collationKeys = new ArrayList<>(fieldCollations.size());
       _collationDirections = new ArrayList<>(fieldCollations.size());
+      _collationNullDirections = new ArrayList<>(fieldCollations.size());
       for (RelFieldCollation fieldCollation : fieldCollations) {
         _collationDirections.add(fieldCollation.getDirection());
+        _collationNullDirections.add(fieldCollation.nullDirection);
         _collationKeys.add(new RexExpression.InputRef(fieldCollation.getFieldIndex()));
       }
     } else {
       _collationKeys = Collections.emptyList();
       _collationDirections = Collections.emptyList();
+      _collationNullDirections = Collections.emptyList();
     }
     _isSortOnSender = isSortOnSender;
     Preconditions.checkState(!isSortOnSender, "Input shouldn't be sorted as ordering on send is not yet implemented!");
@@ -105,6 +110,10 @@ public class MailboxReceiveNode extends AbstractStageNode {
     return _collationDirections;
   }
 
+  public List<RelFieldCollation.NullDirection> getCollationNullDirections() {
+    return _collationNullDirections;
+  }
+
   public boolean isSortOnSender() {
     return _isSortOnSender;
   }
@@ -117,6 +126,10 @@ public class MailboxReceiveNode extends AbstractStageNode {
     return _sender;
   }
 
+  public void setSender(StageNode sender) {
+    _sender = sender;
+  }
+
   @Override
   public String explain() {
     return "MAIL_RECEIVE(" + _exchangeType + ")";
@@ -45,6 +45,8 @@ public class MailboxSendNode extends AbstractStageNode {
   private List<RelFieldCollation.Direction> _collationDirections;
   @ProtoProperties
   private boolean _isSortOnSender;
+  @ProtoProperties
+  private List<Integer> _runtimeFilterKeys = Collections.emptyList();
 
   public MailboxSendNode(int stageId) {
     super(stageId);
@@ -101,6 +103,18 @@ public class MailboxSendNode extends AbstractStageNode {
     return _isSortOnSender;
   }
 
+  /**
+   * Returns the indices of the output columns to be filtered with the keys published by the join in the receiver stage
+   * (see {@link JoinNode#isRuntimeFilterEnabled()}). Only set for leaf stages.
+   */
+  public List<Integer> getRuntimeFilterKeys() {
+    return _runtimeFilterKeys;
+  }
+
+  public void setRuntimeFilterKeys(List<Integer> runtimeFilterKeys) {
+    _runtimeFilterKeys = runtimeFilterKeys;
+  }
+
   @Override
   public String explain() {
     return "MAIL_SEND(" + _exchangeType + ")";
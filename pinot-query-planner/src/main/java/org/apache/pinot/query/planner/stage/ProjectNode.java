@@ -38,6 +38,11 @@ public class ProjectNode extends AbstractStageNode {
     _projects = projects.stream().map(RexExpression::toRexExpression).collect(Collectors.toList());
   }
 
+  public ProjectNode(int currentStageId, List<RexExpression> projects, DataSchema dataSchema) {
+    super(currentStageId, dataSchema);
+    _projects = projects;
+  }
+
   public List<RexExpression> getProjects() {
     return _projects;
   }
@@ -21,14 +21,21 @@ package org.apache.pinot.query.routing;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.apache.pinot.core.routing.RoutingManager;
 import org.apache.pinot.core.routing.RoutingTable;
+import org.apache.pinot.core.routing.TablePartitionInfo;
 import org.apache.pinot.core.routing.TimeBoundaryInfo;
 import org.apache.pinot.core.transport.ServerInstance;
 import org.apache.pinot.query.planner.PlannerUtils;
@@ -98,12 +105,7 @@ public class WorkerManager {
               "Entry for server {} and table type: {} already exist!", serverEntry.getKey(), tableType);
         }
       }
-      stageMetadata.setServerInstances(new ArrayList<>(
-          serverInstanceToSegmentsMap.keySet()
-              .stream()
-              .map(server -> new VirtualServer(server, 0)) // the leaf stage only has one server, so always use 0 here
-              .collect(Collectors.toList())));
-      stageMetadata.setServerInstanceToSegmentsMap(serverInstanceToSegmentsMap);
+      setLeafStageServers(stageMetadata, serverInstanceToSegmentsMap);
     } else if (PlannerUtils.isRootStage(stageId)) {
       // --- ROOT STAGE / BROKER REDUCE STAGE ---
       // ROOT stage doesn't have a QueryServer as it is strictly only reducing results.
@@ -148,6 +150,217 @@ public class WorkerManager {
     return serverInstances;
   }
 
+  /**
+   * Returns the estimated number of documents scanned by the given leaf stage based on the table statistics from the
+   * routing manager, or -1 if it cannot be estimated.
+   */
+  public long getEstimatedNumDocs(StageMetadata leafStageMetadata) {
+    String rawTableName = TableNameBuilder.extractRawTableName(leafStageMetadata.getScannedTables().get(0));
+    // only count the table types (for hybrid table) with segments routed
+    Set<String> tableTypes = new HashSet<>();
+    for (Map<String, List<String>> tableTypeToSegmentsMap
+        : leafStageMetadata.getServerInstanceToSegmentsMap().values()) {
+      tableTypes.addAll(tableTypeToSegmentsMap.keySet());
+    }
+    long numDocs = 0;
+    for (String tableType : tableTypes) {
+      long tableNumDocs = _routingManager.getEstimatedNumDocs(
+          TableNameBuilder.forType(TableType.valueOf(tableType)).tableNameWithType(rawTableName));
+      if (tableNumDocs < 0) {
+        return -1;
+      }
+      numDocs += tableNumDocs;
+    }
+    return numDocs;
+  }
+
+  /**
+   * Reassigns the segments of the given leaf stages by partition id, so that the same partition of both stages is
+   * processed by the same server and the 2 partitioned tables can be joined without shuffling the data. Each partition
+   * is assigned to a server serving all the segments of the partition for both tables, preferring the servers picked
+   * by the routing, then the servers with fewer partitions assigned.
+   * <p>Returns {@code false} and keeps the assignment unchanged if the routed segments are not all partitioned with the
+   * same partition function and number of partitions, or if no server serves all the segments of a partition.
+   */
+  public boolean assignWorkersByPartition(StageMetadata leftLeafStageMetadata, StageMetadata rightLeafStageMetadata) {
+    PartitionedSegments leftPartitionedSegments = getPartitionedSegments(leftLeafStageMetadata);
+    if (leftPartitionedSegments == null) {
+      return false;
+    }
+    PartitionedSegments rightPartitionedSegments = getPartitionedSegments(rightLeafStageMetadata);
+    if (rightPartitionedSegments == null) {
+      return false;
+    }
+    if (!leftPartitionedSegments._partitionFunctionName.equalsIgnoreCase(
+        rightPartitionedSegments._partitionFunctionName)
+        || leftPartitionedSegments._numPartitions != rightPartitionedSegments._numPartitions) {
+      return false;
+    }
+
+    Map<String, ServerInstance> enabledServerInstanceMap = new HashMap<>();
+    for (ServerInstance server : _routingManager.getEnabledServerInstanceMap().values()) {
+      if (server.getQueryServicePort() > 0 && server.getQueryMailboxPort() > 0) {
+        enabledServerInstanceMap.put(server.getInstanceId(), server);
+      }
+    }
+    Set<Integer> partitionIds = new TreeSet<>(leftPartitionedSegments._partitionToSegmentsMap.keySet());
+    partitionIds.addAll(rightPartitionedSegments._partitionToSegmentsMap.keySet());
+    Map<Integer, ServerInstance> partitionToServerMap = new HashMap<>();
+    Map<String, Integer> instanceToNumPartitionsMap = new HashMap<>();
+    for (int partitionId : partitionIds) {
+      // sorted to make the assignment deterministic
+      Set<String> candidateInstances = new TreeSet<>(enabledServerInstanceMap.keySet());
+      Set<String> routedInstances = new HashSet<>();
+      for (PartitionedSegments partitionedSegments : Arrays.asList(leftPartitionedSegments,
+          rightPartitionedSegments)) {
+        if (partitionedSegments._partitionToSegmentsMap.containsKey(partitionId)) {
+          candidateInstances.retainAll(partitionedSegments._partitionToInstancesMap.get(partitionId));
+          routedInstances.addAll(partitionedSegments._partitionToRoutedInstancesMap.get(partitionId));
+        }
+      }
+      String selectedInstance = null;
+      boolean selectedInstanceRouted = false;
+      int selectedInstanceNumPartitions = 0;
+      for (String instance : candidateInstances) {
+        boolean routed = routedInstances.contains(instance);
+        int numPartitions = instanceToNumPartitionsMap.getOrDefault(instance, 0);
+        if (selectedInstance == null || (routed && !selectedInstanceRouted) || (routed == selectedInstanceRouted
+            && numPartitions < selectedInstanceNumPartitions)) {
+          selectedInstance = instance;
+          selectedInstanceRouted = routed;
+          selectedInstanceNumPartitions = numPartitions;
+        }
+      }
+      if (selectedInstance == null) {
+        return false;
+      }
+      partitionToServerMap.put(partitionId, enabledServerInstanceMap.get(selectedInstance));
+      instanceToNumPartitionsMap.merge(selectedInstance, 1, Integer::sum);
+    }
+
+    setLeafStageServers(leftLeafStageMetadata, leftPartitionedSegments.getServerInstanceToSegmentsMap(
+        partitionToServerMap));
+    setLeafStageServers(rightLeafStageMetadata, rightPartitionedSegments.getServerInstanceToSegmentsMap(
+        partitionToServerMap));
+    return true;
+  }
+
+  /**
+   * Returns the routed segments of the given leaf stage grouped by partition id if they are all partitioned with the
+   * same partition scheme, or {@code null} otherwise.
+   */
+  @Nullable
+  private PartitionedSegments getPartitionedSegments(StageMetadata leafStageMetadata) {
+    String rawTableName = TableNameBuilder.extractRawTableName(leafStageMetadata.getScannedTables().get(0));
+    Map<String, TablePartitionInfo> tablePartitionInfoMap = new HashMap<>();
+    TablePartitionInfo firstTablePartitionInfo = null;
+    Map<Integer, Map<String, List<String>>> partitionToSegmentsMap = new HashMap<>();
+    Map<Integer, Set<String>> partitionToInstancesMap = new HashMap<>();
+    Map<Integer, Set<String>> partitionToRoutedInstancesMap = new HashMap<>();
+    for (Map.Entry<ServerInstance, Map<String, List<String>>> serverEntry
+        : leafStageMetadata.getServerInstanceToSegmentsMap().entrySet()) {
+      String routedInstance = serverEntry.getKey().getInstanceId();
+      for (Map.Entry<String, List<String>> tableTypeEntry : serverEntry.getValue().entrySet()) {
+        String tableType = tableTypeEntry.getKey();
+        TablePartitionInfo tablePartitionInfo = tablePartitionInfoMap.get(tableType);
+        if (tablePartitionInfo == null) {
+          tablePartitionInfo = _routingManager.getTablePartitionInfo(
+              TableNameBuilder.forType(TableType.valueOf(tableType)).tableNameWithType(rawTableName));
+          if (tablePartitionInfo == null) {
+            return null;
+          }
+          if (firstTablePartitionInfo == null) {
+            firstTablePartitionInfo = tablePartitionInfo;
+          } else if (!isSamePartitionScheme(firstTablePartitionInfo, tablePartitionInfo)) {
+            // OFFLINE and REALTIME table of a hybrid table are partitioned differently
+            return null;
+          }
+          tablePartitionInfoMap.put(tableType, tablePartitionInfo);
+        }
+        for (String segment : tableTypeEntry.getValue()) {
+          Integer partitionId = tablePartitionInfo.getSegmentToPartitionIdMap().get(segment);
+          if (partitionId == null) {
+            return null;
+          }
+          partitionToSegmentsMap.computeIfAbsent(partitionId, k -> new HashMap<>())
+              .computeIfAbsent(tableType, k -> new ArrayList<>()).add(segment);
+          partitionToRoutedInstancesMap.computeIfAbsent(partitionId, k -> new HashSet<>()).add(routedInstance);
+        }
+      }
+    }
+    // For hybrid table, keep the instances serving the partition for both OFFLINE and REALTIME table
+    for (Map.Entry<Integer, Map<String, List<String>>> partitionEntry : partitionToSegmentsMap.entrySet()) {
+      int partitionId = partitionEntry.getKey();
+      for (String tableType : partitionEntry.getValue().keySet()) {
+        Set<String> instances = tablePartitionInfoMap.get(tableType).getPartitionToInstancesMap()
+            .getOrDefault(partitionId, Collections.emptySet());
+        Set<String> partitionInstances = partitionToInstancesMap.get(partitionId);
+        if (partitionInstances == null) {
+          partitionToInstancesMap.put(partitionId, new HashSet<>(instances));
+        } else {
+          partitionInstances.retainAll(instances);
+        }
+      }
+    }
+    return firstTablePartitionInfo != null ? new PartitionedSegments(firstTablePartitionInfo.getPartitionFunctionName(),
+        firstTablePartitionInfo.getNumPartitions(), partitionToSegmentsMap, partitionToInstancesMap,
+        partitionToRoutedInstancesMap) : null;
+  }
+
+  private static boolean isSamePartitionScheme(TablePartitionInfo info1, TablePartitionInfo info2) {
+    return info1.getPartitionColumn().equals(info2.getPartitionColumn())
+        && info1.getPartitionFunctionName().equalsIgnoreCase(info2.getPartitionFunctionName())
+        && info1.getNumPartitions() == info2.getNumPartitions();
+  }
+
+  private static void setLeafStageServers(StageMetadata stageMetadata,
+      Map<ServerInstance, Map<String, List<String>>> serverInstanceToSegmentsMap) {
+    stageMetadata.setServerInstances(new ArrayList<>(
+        serverInstanceToSegmentsMap.keySet()
+            .stream()
+            .map(server -> new VirtualServer(server, 0)) // the leaf stage only has one server, so always use 0 here
+            .collect(Collectors.toList())));
+    stageMetadata.setServerInstanceToSegmentsMap(serverInstanceToSegmentsMap);
+  }
+
+  /**
+   * The routed segments of a leaf stage grouped by partition id.
+   */
+  private static class PartitionedSegments {
+    final String _partitionFunctionName;
+    final int _numPartitions;
+    // Partition id -> table type -> segments
+    final Map<Integer, Map<String, List<String>>> _partitionToSegmentsMap;
+    // Partition id -> instances serving all the segments of the partition
+    final Map<Integer, Set<String>> _partitionToInstancesMap;
+    // Partition id -> instances picked by the routing for the segments of the partition
+    final Map<Integer, Set<String>> _partitionToRoutedInstancesMap;
+
+    PartitionedSegments(String partitionFunctionName, int numPartitions,
+        Map<Integer, Map<String, List<String>>> partitionToSegmentsMap,
+        Map<Integer, Set<String>> partitionToInstancesMap, Map<Integer, Set<String>> partitionToRoutedInstancesMap) {
+      _partitionFunctionName = partitionFunctionName;
+      _numPartitions = numPartitions;
+      _partitionToSegmentsMap = partitionToSegmentsMap;
+      _partitionToInstancesMap = partitionToInstancesMap;
+      _partitionToRoutedInstancesMap = partitionToRoutedInstancesMap;
+    }
+
+    Map<ServerInstance, Map<String, List<String>>> getServerInstanceToSegmentsMap(
+        Map<Integer, ServerInstance> partitionToServerMap) {
+      Map<ServerInstance, Map<String, List<String>>> serverInstanceToSegmentsMap = new HashMap<>();
+      for (Map.Entry<Integer, Map<String, List<String>>> partitionEntry : _partitionToSegmentsMap.entrySet()) {
+        Map<String, List<String>> tableTypeToSegmentsMap = serverInstanceToSegmentsMap.computeIfAbsent(
+            partitionToServerMap.get(partitionEntry.getKey()), k -> new HashMap<>());
+        for (Map.Entry<String, List<String>> tableTypeEntry : partitionEntry.getValue().entrySet()) {
+          tableTypeToSegmentsMap.computeIfAbsent(tableTypeEntry.getKey(), k -> new ArrayList<>())
+              .addAll(tableTypeEntry.getValue());
+        }
+      }
+      return serverInstanceToSegmentsMap;
+    }
+  }
+
   /**
    * Acquire routing table for items listed in {@link org.apache.pinot.query.planner.stage.TableScanNode}.
    *
@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.planner.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.pinot.common.proto.Plan;
+import org.apache.pinot.query.QueryEnvironment;
+import org.apache.pinot.query.QueryEnvironmentTestBase;
+import org.apache.pinot.query.planner.QueryPlan;
+import org.apache.pinot.query.planner.stage.AbstractStageNode;
+import org.apache.pinot.query.planner.stage.StageNode;
+import org.apache.pinot.query.planner.stage.StageNodeSerDeUtils;
+import org.apache.pinot.sql.parsers.CalciteSqlParser;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+public class QueryPlanCacheTest extends QueryEnvironmentTestBase {
+  private QueryPlanCache _queryPlanCache;
+  private QueryEnvironment _cachedQueryEnvironment;
+
+  @BeforeMethod
+  public void setUpPlanCache() {
+    _queryPlanCache = new QueryPlanCache(100);
+    _cachedQueryEnvironment =
+        getQueryEnvironment(3, 1, 2, TABLE_SCHEMAS, SERVER1_SEGMENTS, SERVER2_SEGMENTS, _queryPlanCache);
+  }
+
+  @Test(dataProvider = "testQueryDataProvider")
+  public void testCachedPlanMatchesPlan(String query) {
+    QueryPlan expectedPlan = _queryEnvironment.planQuery(query);
+    assertSamePlan(_cachedQueryEnvironment.planQuery(query), expectedPlan);
+    long cacheSize = _queryPlanCache.size();
+    Assert.assertTrue(cacheSize > 0);
+
+    // Plan again from the cache
+    assertSamePlan(_cachedQueryEnvironment.planQuery(query), expectedPlan);
+    Assert.assertEquals(_queryPlanCache.size(), cacheSize);
+  }
+
+  @Test
+  public void testParameterizedPlan() {
+    String query = "SELECT a.col1, SUM(a.col3) FROM a WHERE a.col3 >= 0 AND a.col2 = 'a' GROUP BY a.col1";
+    _cachedQueryEnvironment.planQuery(query);
+    Assert.assertEquals(_queryPlanCache.size(), 1);
+    Assert.assertTrue(getCachedTemplate(query).isParameterized());
+
+    // Other literal values should reuse the parameterized template
+    String otherQuery = "SELECT a.col1, SUM(a.col3) FROM a WHERE a.col3 >= 5 AND a.col2 = 'foo' GROUP BY a.col1";
+    assertSamePlan(_cachedQueryEnvironment.planQuery(otherQuery), _queryEnvironment.planQuery(otherQuery));
+    Assert.assertEquals(_queryPlanCache.size(), 1);
+
+    // Literals of other kinds should not share the template
+    String decimalQuery = "SELECT a.col1, SUM(a.col3) FROM a WHERE a.col3 >= 5.5 AND a.col2 = 'foo' GROUP BY a.col1";
+    assertSamePlan(_cachedQueryEnvironment.planQuery(decimalQuery), _queryEnvironment.planQuery(decimalQuery));
+    Assert.assertEquals(_queryPlanCache.size(), 2);
+  }
+
+  @Test
+  public void testNonParameterizedPlan() {
+    // The same literal value for both parameters cannot be mapped to the literals in the plan
+    String query = "SELECT a.col1, a.col3 + 5 FROM a WHERE a.col3 > 5";
+    _cachedQueryEnvironment.planQuery(query);
+    Assert.assertFalse(getCachedTemplate(query).isParameterized());
+    // Both the query shape and the exact query are cached
+    Assert.assertEquals(_queryPlanCache.size(), 2);
+
+    assertSamePlan(_cachedQueryEnvironment.planQuery(query), _queryEnvironment.planQuery(query));
+    Assert.assertEquals(_queryPlanCache.size(), 2);
+
+    String otherQuery = "SELECT a.col1, a.col3 + 10 FROM a WHERE a.col3 > 10";
+    assertSamePlan(_cachedQueryEnvironment.planQuery(otherQuery), _queryEnvironment.planQuery(otherQuery));
+    Assert.assertEquals(_queryPlanCache.size(), 3);
+  }
+
+  @Test
+  public void testSkipPlanCache() {
+    _cachedQueryEnvironment.planQuery("SET usePlanCache = false; SELECT * FROM a WHERE a.col3 > 5");
+    Assert.assertEquals(_queryPlanCache.size(), 0);
+  }
+
+  @Test
+  public void testInvalidateAll() {
+    String query = "SELECT * FROM a WHERE a.col3 > 5";
+    _cachedQueryEnvironment.planQuery(query);
+    Assert.assertEquals(_queryPlanCache.size(), 1);
+    long version = _queryPlanCache.getVersion();
+
+    _queryPlanCache.invalidateAll();
+    Assert.assertEquals(_queryPlanCache.size(), 0);
+    Assert.assertNotEquals(_queryPlanCache.getVersion(), version);
+
+    // Template planned before the invalidation should not be cached
+    ParameterizedQuery parameterizedQuery =
+        ParameterizedQuery.of(CalciteSqlParser.compileToSqlNodeAndOptions(query).getSqlNode());
+    QueryPlan queryPlan = _queryEnvironment.planQuery(query);
+    StagePlanTemplate template =
+        StagePlanTemplate.create(queryPlan.getQueryResultFields(), queryPlan.getQueryStageMap().get(0));
+    _queryPlanCache.put("key", parameterizedQuery.getParameters(), template, version);
+    Assert.assertEquals(_queryPlanCache.size(), 0);
+  }
+
+  @Test
+  public void testParameterizedQuery() {
+    ParameterizedQuery query = ParameterizedQuery.of(CalciteSqlParser.compileToSqlNodeAndOptions(
+        "SELECT col1, 'x' FROM a WHERE col3 > 5 AND col2 IN ('a', 'b') ORDER BY col1 LIMIT 10").getSqlNode());
+    ParameterizedQuery otherQuery = ParameterizedQuery.of(CalciteSqlParser.compileToSqlNodeAndOptions(
+        "SELECT col1, 'y' FROM a WHERE col3 > 7 AND col2 IN ('c', 'd') ORDER BY col1 LIMIT 10").getSqlNode());
+    Assert.assertEquals(query.getShape(), otherQuery.getShape());
+    Assert.assertEquals(query.getParameters().size(), 4);
+    Assert.assertEquals(query.getParameters().get(0), "x");
+    Assert.assertEquals(query.getParameters().get(2), "a");
+    Assert.assertEquals(otherQuery.getParameters().get(3), "d");
+
+    // LIMIT is part of the shape
+    ParameterizedQuery limitQuery = ParameterizedQuery.of(CalciteSqlParser.compileToSqlNodeAndOptions(
+        "SELECT col1, 'x' FROM a WHERE col3 > 5 AND col2 IN ('a', 'b') ORDER BY col1 LIMIT 20").getSqlNode());
+    Assert.assertNotEquals(limitQuery.getShape(), query.getShape());
+  }
+
+  private StagePlanTemplate getCachedTemplate(String query) {
+    ParameterizedQuery parameterizedQuery =
+        ParameterizedQuery.of(CalciteSqlParser.compileToSqlNodeAndOptions(query).getSqlNode());
+    StagePlanTemplate template = _queryPlanCache.get(QueryPlanCache.getShapeKey(parameterizedQuery, new HashMap<>()),
+        parameterizedQuery.getParameters());
+    Assert.assertNotNull(template);
+    return template;
+  }
+
+  private static void assertSamePlan(QueryPlan actual, QueryPlan expected) {
+    Assert.assertEquals(actual.getQueryResultFields(), expected.getQueryResultFields());
+    Assert.assertEquals(serializeStages(actual), serializeStages(expected));
+  }
+
+  private static Map<Integer, Plan.StageNode> serializeStages(QueryPlan queryPlan) {
+    Map<Integer, Plan.StageNode> serializedStages = new HashMap<>();
+    for (Map.Entry<Integer, StageNode> entry : queryPlan.getQueryStageMap().entrySet()) {
+      serializedStages.put(entry.getKey(),
+          StageNodeSerDeUtils.serializeStageNode((AbstractStageNode) entry.getValue()));
+    }
+    return serializedStages;
+  }
+}
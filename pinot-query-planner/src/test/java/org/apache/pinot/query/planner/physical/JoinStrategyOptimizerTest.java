@@ -0,0 +1,225 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.planner.physical;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.calcite.jdbc.CalciteSchemaBuilder;
+import org.apache.calcite.rel.RelDistribution;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.pinot.common.config.provider.TableCache;
+import org.apache.pinot.query.QueryEnvironment;
+import org.apache.pinot.query.QueryEnvironmentTestBase;
+import org.apache.pinot.query.catalog.PinotCatalog;
+import org.apache.pinot.query.planner.QueryPlan;
+import org.apache.pinot.query.planner.partitioning.FieldSelectionKeySelector;
+import org.apache.pinot.query.planner.stage.JoinNode;
+import org.apache.pinot.query.planner.stage.MailboxReceiveNode;
+import org.apache.pinot.query.planner.stage.MailboxSendNode;
+import org.apache.pinot.query.planner.stage.ProjectNode;
+import org.apache.pinot.query.planner.stage.StageNode;
+import org.apache.pinot.query.routing.WorkerManager;
+import org.apache.pinot.query.testutils.MockRoutingManagerFactory;
+import org.apache.pinot.query.type.TypeFactory;
+import org.apache.pinot.query.type.TypeSystem;
+import org.apache.pinot.spi.data.Schema;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class JoinStrategyOptimizerTest {
+  private static final String QUERY = "SELECT * FROM a JOIN b ON a.col1 = b.col2";
+
+  @Test
+  public void testBroadcastSmallRightSide() {
+    QueryPlan queryPlan = getQueryEnvironment(10_000_000L, 1_000L).planQuery(QUERY);
+    JoinNode joinNode = findJoinNode(queryPlan);
+    Assert.assertEquals(joinNode.getJoinStrategy(), JoinNode.JoinStrategy.BROADCAST);
+    MailboxReceiveNode left = (MailboxReceiveNode) joinNode.getInputs().get(0);
+    MailboxReceiveNode right = (MailboxReceiveNode) joinNode.getInputs().get(1);
+    Assert.assertEquals(getScannedTable(queryPlan, left), "a");
+    Assert.assertEquals(getScannedTable(queryPlan, right), "b");
+    assertExchangeType(left, RelDistribution.Type.SINGLETON);
+    assertExchangeType(right, RelDistribution.Type.BROADCAST_DISTRIBUTED);
+    // join stage should be executed on the servers of the left side
+    Assert.assertEquals(queryPlan.getStageMetadataMap().get(joinNode.getStageId()).getServerInstances(),
+        queryPlan.getStageMetadataMap().get(left.getSenderStageId()).getServerInstances());
+    Assert.assertTrue(queryPlan.explain().contains("JOIN(BROADCAST)"));
+  }
+
+  @Test
+  public void testBroadcastSmallLeftSide() {
+    QueryPlan queryPlan = getQueryEnvironment(1_000L, 10_000_000L).planQuery(QUERY);
+    JoinNode joinNode = findJoinNode(queryPlan);
+    Assert.assertEquals(joinNode.getJoinStrategy(), JoinNode.JoinStrategy.BROADCAST);
+    // inputs should be swapped so that the smaller table is broadcast
+    MailboxReceiveNode left = (MailboxReceiveNode) joinNode.getInputs().get(0);
+    MailboxReceiveNode right = (MailboxReceiveNode) joinNode.getInputs().get(1);
+    Assert.assertEquals(getScannedTable(queryPlan, left), "b");
+    Assert.assertEquals(getScannedTable(queryPlan, right), "a");
+    assertExchangeType(left, RelDistribution.Type.SINGLETON);
+    assertExchangeType(right, RelDistribution.Type.BROADCAST_DISTRIBUTED);
+    assertSwapped(queryPlan, joinNode);
+  }
+
+  @Test
+  public void testHashJoinWithSmallerRightSide() {
+    QueryPlan queryPlan = getQueryEnvironment(5_000_000L, 10_000_000L).planQuery(QUERY);
+    JoinNode joinNode = findJoinNode(queryPlan);
+    Assert.assertEquals(joinNode.getJoinStrategy(), JoinNode.JoinStrategy.HASH);
+    // the smaller table should be used to build the hash table
+    MailboxReceiveNode left = (MailboxReceiveNode) joinNode.getInputs().get(0);
+    MailboxReceiveNode right = (MailboxReceiveNode) joinNode.getInputs().get(1);
+    Assert.assertEquals(getScannedTable(queryPlan, left), "b");
+    Assert.assertEquals(getScannedTable(queryPlan, right), "a");
+    assertExchangeType(left, RelDistribution.Type.HASH_DISTRIBUTED);
+    assertExchangeType(right, RelDistribution.Type.HASH_DISTRIBUTED);
+    assertSwapped(queryPlan, joinNode);
+    Assert.assertTrue(queryPlan.explain().contains("JOIN(HASH)"));
+  }
+
+  @Test
+  public void testWithoutStats() {
+    QueryPlan queryPlan = getQueryEnvironment(-1L, -1L).planQuery(QUERY);
+    JoinNode joinNode = findJoinNode(queryPlan);
+    Assert.assertEquals(joinNode.getJoinStrategy(), JoinNode.JoinStrategy.HASH);
+    Assert.assertEquals(getScannedTable(queryPlan, (MailboxReceiveNode) joinNode.getInputs().get(0)), "a");
+    assertExchangeType((MailboxReceiveNode) joinNode.getInputs().get(0), RelDistribution.Type.HASH_DISTRIBUTED);
+  }
+
+  @Test
+  public void testForcedJoinStrategy() {
+    QueryEnvironment queryEnvironment = getQueryEnvironment(10_000_000L, 1_000L);
+    JoinNode joinNode = findJoinNode(queryEnvironment.planQuery("SET joinStrategy = 'hash'; " + QUERY));
+    Assert.assertEquals(joinNode.getJoinStrategy(), JoinNode.JoinStrategy.HASH);
+
+    queryEnvironment = getQueryEnvironment(20_000_000L, 10_000_000L);
+    joinNode = findJoinNode(queryEnvironment.planQuery(QUERY));
+    Assert.assertEquals(joinNode.getJoinStrategy(), JoinNode.JoinStrategy.HASH);
+    joinNode = findJoinNode(queryEnvironment.planQuery("SET joinStrategy = 'broadcast'; " + QUERY));
+    Assert.assertEquals(joinNode.getJoinStrategy(), JoinNode.JoinStrategy.BROADCAST);
+
+    try {
+      queryEnvironment.planQuery("SET joinStrategy = 'shuffle'; " + QUERY);
+      Assert.fail("Should fail on invalid join strategy");
+    } catch (RuntimeException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+      Assert.assertTrue(e.getCause().getMessage().contains("valid values are: 'hash', 'broadcast'"));
+    }
+  }
+
+  @Test
+  public void testOuterJoin() {
+    // right side of the RIGHT join cannot be broadcast, so the inputs should be swapped into a LEFT join
+    QueryPlan queryPlan =
+        getQueryEnvironment(10_000_000L, 1_000L).planQuery("SELECT * FROM b RIGHT JOIN a ON a.col1 = b.col2");
+    JoinNode joinNode = findJoinNode(queryPlan);
+    Assert.assertEquals(joinNode.getJoinStrategy(), JoinNode.JoinStrategy.BROADCAST);
+    Assert.assertEquals(joinNode.getJoinRelType(), JoinRelType.LEFT);
+    Assert.assertEquals(getScannedTable(queryPlan, (MailboxReceiveNode) joinNode.getInputs().get(0)), "a");
+
+    // neither side of the FULL join can be broadcast
+    queryPlan = getQueryEnvironment(10_000_000L, 1_000L).planQuery("SELECT * FROM a FULL JOIN b ON a.col1 = b.col2");
+    Assert.assertEquals(findJoinNode(queryPlan).getJoinStrategy(), JoinNode.JoinStrategy.HASH);
+  }
+
+  private static QueryEnvironment getQueryEnvironment(long numDocsA, long numDocsB) {
+    MockRoutingManagerFactory factory = new MockRoutingManagerFactory(1, 2);
+    for (Map.Entry<String, Schema> entry : QueryEnvironmentTestBase.TABLE_SCHEMAS.entrySet()) {
+      factory.registerTable(entry.getValue(), entry.getKey());
+    }
+    for (Map.Entry<Integer, Map<String, List<String>>> entry : ImmutableMap.of(1,
+        QueryEnvironmentTestBase.SERVER1_SEGMENTS, 2, QueryEnvironmentTestBase.SERVER2_SEGMENTS).entrySet()) {
+      for (Map.Entry<String, List<String>> tableEntry : entry.getValue().entrySet()) {
+        for (String segment : tableEntry.getValue()) {
+          factory.registerSegment(entry.getKey(), tableEntry.getKey(), segment);
+        }
+      }
+    }
+    if (numDocsA >= 0) {
+      factory.setNumDocs("a_REALTIME", numDocsA);
+    }
+    if (numDocsB >= 0) {
+      factory.setNumDocs("b_REALTIME", numDocsB);
+    }
+    TableCache tableCache = factory.buildTableCache();
+    return new QueryEnvironment(new TypeFactory(new TypeSystem()),
+        CalciteSchemaBuilder.asRootSchema(new PinotCatalog(tableCache)),
+        new WorkerManager("localhost", 3, factory.buildRoutingManager()), tableCache);
+  }
+
+  private static JoinNode findJoinNode(QueryPlan queryPlan) {
+    for (StageNode stageRoot : queryPlan.getQueryStageMap().values()) {
+      JoinNode joinNode = findJoinNode(stageRoot);
+      if (joinNode != null) {
+        return joinNode;
+      }
+    }
+    throw new IllegalStateException("Failed to find join in the query plan");
+  }
+
+  private static JoinNode findJoinNode(StageNode node) {
+    if (node instanceof JoinNode) {
+      return (JoinNode) node;
+    }
+    if (node instanceof MailboxReceiveNode) {
+      return null;
+    }
+    for (StageNode input : node.getInputs()) {
+      JoinNode joinNode = findJoinNode(input);
+      if (joinNode != null) {
+        return joinNode;
+      }
+    }
+    return null;
+  }
+
+  private static String getScannedTable(QueryPlan queryPlan, MailboxReceiveNode receiveNode) {
+    return queryPlan.getStageMetadataMap().get(receiveNode.getSenderStageId()).getScannedTables().get(0);
+  }
+
+  private static void assertExchangeType(MailboxReceiveNode receiveNode, RelDistribution.Type exchangeType) {
+    Assert.assertEquals(receiveNode.getExchangeType(), exchangeType);
+    Assert.assertEquals(((MailboxSendNode) receiveNode.getSender()).getExchangeType(), exchangeType);
+  }
+
+  private static void assertSwapped(QueryPlan queryPlan, JoinNode joinNode) {
+    // b columns come before a columns in the swapped join, and the project restores the original order
+    StageNode parent = queryPlan.getQueryStageMap().get(joinNode.getStageId());
+    while (!parent.getInputs().contains(joinNode)) {
+      parent = parent.getInputs().get(0);
+    }
+    Assert.assertTrue(parent instanceof ProjectNode);
+    int numColumnsA = joinNode.getInputs().get(1).getDataSchema().size();
+    String[] swappedColumnNames = joinNode.getDataSchema().getColumnNames();
+    String[] columnNames = parent.getDataSchema().getColumnNames();
+    Assert.assertEquals(Arrays.copyOfRange(swappedColumnNames, columnNames.length - numColumnsA, columnNames.length),
+        Arrays.copyOfRange(columnNames, 0, numColumnsA));
+    // join keys should be swapped as well (a.col1 = b.col2)
+    Assert.assertEquals(
+        ((FieldSelectionKeySelector) joinNode.getJoinKeys().getLeftJoinKeySelector()).getColumnIndices(),
+        Collections.singletonList(1));
+    Assert.assertEquals(
+        ((FieldSelectionKeySelector) joinNode.getJoinKeys().getRightJoinKeySelector()).getColumnIndices(),
+        Collections.singletonList(0));
+  }
+}
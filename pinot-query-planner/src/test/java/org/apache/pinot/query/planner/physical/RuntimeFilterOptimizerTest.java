@@ -0,0 +1,167 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.planner.physical;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.calcite.jdbc.CalciteSchemaBuilder;
+import org.apache.pinot.common.config.provider.TableCache;
+import org.apache.pinot.query.QueryEnvironment;
+import org.apache.pinot.query.QueryEnvironmentTestBase;
+import org.apache.pinot.query.catalog.PinotCatalog;
+import org.apache.pinot.query.planner.QueryPlan;
+import org.apache.pinot.query.planner.partitioning.FieldSelectionKeySelector;
+import org.apache.pinot.query.planner.stage.JoinNode;
+import org.apache.pinot.query.planner.stage.MailboxReceiveNode;
+import org.apache.pinot.query.planner.stage.MailboxSendNode;
+import org.apache.pinot.query.planner.stage.StageNode;
+import org.apache.pinot.query.routing.WorkerManager;
+import org.apache.pinot.query.testutils.MockRoutingManagerFactory;
+import org.apache.pinot.query.type.TypeFactory;
+import org.apache.pinot.query.type.TypeSystem;
+import org.apache.pinot.spi.data.Schema;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class RuntimeFilterOptimizerTest {
+  private static final String QUERY = "SELECT * FROM a JOIN b ON a.col1 = b.col2";
+
+  @Test
+  public void testSmallRightSide() {
+    QueryPlan queryPlan = getQueryEnvironment(10_000_000L, 1_000L).planQuery(QUERY);
+    JoinNode joinNode = findJoinNode(queryPlan);
+    assertRuntimeFilterEnabled(joinNode);
+    Assert.assertEquals(getScannedTable(queryPlan, (MailboxReceiveNode) joinNode.getInputs().get(0)), "a");
+  }
+
+  @Test
+  public void testSmallLeftSide() {
+    // inputs are swapped by the join strategy optimizer so that the smaller table is on the right side
+    QueryPlan queryPlan = getQueryEnvironment(1_000L, 10_000_000L).planQuery(QUERY);
+    JoinNode joinNode = findJoinNode(queryPlan);
+    assertRuntimeFilterEnabled(joinNode);
+    Assert.assertEquals(getScannedTable(queryPlan, (MailboxReceiveNode) joinNode.getInputs().get(0)), "b");
+  }
+
+  @Test
+  public void testLargeRightSide() {
+    JoinNode joinNode = findJoinNode(getQueryEnvironment(20_000_000L, 10_000_000L).planQuery(QUERY));
+    assertRuntimeFilterDisabled(joinNode);
+  }
+
+  @Test
+  public void testWithoutStats() {
+    QueryEnvironment queryEnvironment = getQueryEnvironment(-1L, -1L);
+    assertRuntimeFilterDisabled(findJoinNode(queryEnvironment.planQuery(QUERY)));
+    assertRuntimeFilterEnabled(findJoinNode(queryEnvironment.planQuery("SET runtimeFilter = true; " + QUERY)));
+  }
+
+  @Test
+  public void testDisabledByQueryOption() {
+    QueryEnvironment queryEnvironment = getQueryEnvironment(10_000_000L, 1_000L);
+    assertRuntimeFilterDisabled(findJoinNode(queryEnvironment.planQuery("SET runtimeFilter = false; " + QUERY)));
+  }
+
+  @Test
+  public void testUnsupportedJoins() {
+    QueryEnvironment queryEnvironment = getQueryEnvironment(-1L, -1L);
+    // unmatched rows from the left side are preserved
+    assertRuntimeFilterDisabled(findJoinNode(
+        queryEnvironment.planQuery("SET runtimeFilter = true; SELECT * FROM a LEFT JOIN b ON a.col1 = b.col2")));
+    // left side is aggregated before the join
+    assertRuntimeFilterDisabled(findJoinNode(queryEnvironment.planQuery("SET runtimeFilter = true; "
+        + "SELECT * FROM (SELECT col1, COUNT(*) AS cnt FROM a GROUP BY col1) AS t JOIN b ON t.col1 = b.col2")));
+    // join without equality keys
+    assertRuntimeFilterDisabled(findJoinNode(
+        queryEnvironment.planQuery("SET runtimeFilter = true; SELECT * FROM a JOIN b ON a.col3 > b.col3")));
+  }
+
+  private static void assertRuntimeFilterEnabled(JoinNode joinNode) {
+    Assert.assertTrue(joinNode.isRuntimeFilterEnabled());
+    Assert.assertEquals(getLeftSendNode(joinNode).getRuntimeFilterKeys(),
+        ((FieldSelectionKeySelector) joinNode.getJoinKeys().getLeftJoinKeySelector()).getColumnIndices());
+  }
+
+  private static void assertRuntimeFilterDisabled(JoinNode joinNode) {
+    Assert.assertFalse(joinNode.isRuntimeFilterEnabled());
+    Assert.assertEquals(getLeftSendNode(joinNode).getRuntimeFilterKeys(), Collections.emptyList());
+  }
+
+  private static MailboxSendNode getLeftSendNode(JoinNode joinNode) {
+    return (MailboxSendNode) ((MailboxReceiveNode) joinNode.getInputs().get(0)).getSender();
+  }
+
+  private static QueryEnvironment getQueryEnvironment(long numDocsA, long numDocsB) {
+    MockRoutingManagerFactory factory = new MockRoutingManagerFactory(1, 2);
+    for (Map.Entry<String, Schema> entry : QueryEnvironmentTestBase.TABLE_SCHEMAS.entrySet()) {
+      factory.registerTable(entry.getValue(), entry.getKey());
+    }
+    for (Map.Entry<Integer, Map<String, List<String>>> entry : ImmutableMap.of(1,
+        QueryEnvironmentTestBase.SERVER1_SEGMENTS, 2, QueryEnvironmentTestBase.SERVER2_SEGMENTS).entrySet()) {
+      for (Map.Entry<String, List<String>> tableEntry : entry.getValue().entrySet()) {
+        for (String segment : tableEntry.getValue()) {
+          factory.registerSegment(entry.getKey(), tableEntry.getKey(), segment);
+        }
+      }
+    }
+    if (numDocsA >= 0) {
+      factory.setNumDocs("a_REALTIME", numDocsA);
+    }
+    if (numDocsB >= 0) {
+      factory.setNumDocs("b_REALTIME", numDocsB);
+    }
+    TableCache tableCache = factory.buildTableCache();
+    return new QueryEnvironment(new TypeFactory(new TypeSystem()),
+        CalciteSchemaBuilder.asRootSchema(new PinotCatalog(tableCache)),
+        new WorkerManager("localhost", 3, factory.buildRoutingManager()), tableCache);
+  }
+
+  private static JoinNode findJoinNode(QueryPlan queryPlan) {
+    for (StageNode stageRoot : queryPlan.getQueryStageMap().values()) {
+      JoinNode joinNode = findJoinNode(stageRoot);
+      if (joinNode != null) {
+        return joinNode;
+      }
+    }
+    throw new IllegalStateException("Failed to find join in the query plan");
+  }
+
+  private static JoinNode findJoinNode(StageNode node) {
+    if (node instanceof JoinNode) {
+      return (JoinNode) node;
+    }
+    if (node instanceof MailboxReceiveNode) {
+      return null;
+    }
+    for (StageNode input : node.getInputs()) {
+      JoinNode joinNode = findJoinNode(input);
+      if (joinNode != null) {
+        return joinNode;
+      }
+    }
+    return null;
+  }
+
+  private static String getScannedTable(QueryPlan queryPlan, MailboxReceiveNode receiveNode) {
+    return queryPlan.getStageMetadataMap().get(receiveNode.getSenderStageId()).getScannedTables().get(0);
+  }
+}
@@ -0,0 +1,199 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.planner.physical.colocated;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.calcite.jdbc.CalciteSchemaBuilder;
+import org.apache.calcite.rel.RelDistribution;
+import org.apache.pinot.common.config.provider.TableCache;
+import org.apache.pinot.core.routing.TablePartitionInfo;
+import org.apache.pinot.core.transport.ServerInstance;
+import org.apache.pinot.query.QueryEnvironment;
+import org.apache.pinot.query.QueryEnvironmentTestBase;
+import org.apache.pinot.query.catalog.PinotCatalog;
+import org.apache.pinot.query.planner.QueryPlan;
+import org.apache.pinot.query.planner.StageMetadata;
+import org.apache.pinot.query.planner.stage.JoinNode;
+import org.apache.pinot.query.planner.stage.MailboxReceiveNode;
+import org.apache.pinot.query.planner.stage.MailboxSendNode;
+import org.apache.pinot.query.planner.stage.StageNode;
+import org.apache.pinot.query.routing.WorkerManager;
+import org.apache.pinot.query.testutils.MockRoutingManagerFactory;
+import org.apache.pinot.query.type.TypeFactory;
+import org.apache.pinot.query.type.TypeSystem;
+import org.apache.pinot.spi.config.table.ColumnPartitionConfig;
+import org.apache.pinot.spi.config.table.SegmentPartitionConfig;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.when;
+
+
+public class GreedyShuffleRewriteVisitorTest {
+  private static final String PARTITION_COLUMN = "col1";
+  private static final String PARTITION_FUNCTION = "Murmur";
+  private static final int NUM_PARTITIONS = 4;
+  private static final String SERVER_1 = "Server_localhost_1";
+  private static final String SERVER_2 = "Server_localhost_2";
+  private static final String QUERY = "SET useColocatedJoin = true; SELECT * FROM a JOIN b ON a.col1 = b.col1";
+
+  @Test
+  public void testColocatedJoin() {
+    // partition 0 and 1 on server 1, partition 2 on server 2 for both tables
+    QueryPlan queryPlan = getQueryEnvironment(ImmutableMap.of("a1", 0, "a2", 1, "a3", 2),
+        ImmutableMap.of("b1", 0, "b2", 1, "b3", 2), false).planQuery(QUERY);
+    assertColocated(queryPlan);
+  }
+
+  @Test
+  public void testJoinWithMisplacedPartitions() {
+    // partition 1 is on server 1 for table a, but on server 2 for table b
+    QueryPlan queryPlan = getQueryEnvironment(ImmutableMap.of("a1", 0, "a2", 1, "a3", 2),
+        ImmutableMap.of("b1", 0, "b2", 2, "b3", 1), false).planQuery(QUERY);
+    JoinNode joinNode = findJoinNode(queryPlan);
+    Assert.assertEquals(joinNode.getJoinStrategy(), JoinNode.JoinStrategy.HASH);
+    for (StageNode input : joinNode.getInputs()) {
+      Assert.assertEquals(((MailboxReceiveNode) input).getExchangeType(), RelDistribution.Type.HASH_DISTRIBUTED);
+    }
+  }
+
+  @Test
+  public void testJoinWithMisplacedReplicatedPartitions() {
+    // partition 1 is routed to server 1 for table a, but to server 2 for table b, and all the segments are served by
+    // both servers, so the leaf stages are reassigned by partition id
+    QueryPlan queryPlan = getQueryEnvironment(ImmutableMap.of("a1", 0, "a2", 1, "a3", 2),
+        ImmutableMap.of("b1", 0, "b2", 2, "b3", 1), true).planQuery(QUERY);
+    assertColocated(queryPlan);
+    Map<String, ServerInstance> segmentToServerMap = getLeafSegmentToServerMap(queryPlan);
+    Assert.assertEquals(segmentToServerMap.size(), 6);
+    Assert.assertEquals(segmentToServerMap.get("a1"), segmentToServerMap.get("b1"));
+    Assert.assertEquals(segmentToServerMap.get("a2"), segmentToServerMap.get("b3"));
+    Assert.assertEquals(segmentToServerMap.get("a3"), segmentToServerMap.get("b2"));
+  }
+
+  @Test
+  public void testJoinWithoutPartitionInfo() {
+    QueryPlan queryPlan =
+        getQueryEnvironment(null, ImmutableMap.of("b1", 0, "b2", 1, "b3", 2), false).planQuery(QUERY);
+    Assert.assertEquals(findJoinNode(queryPlan).getJoinStrategy(), JoinNode.JoinStrategy.HASH);
+  }
+
+  private static void assertColocated(QueryPlan queryPlan) {
+    JoinNode joinNode = findJoinNode(queryPlan);
+    Assert.assertEquals(joinNode.getJoinStrategy(), JoinNode.JoinStrategy.COLOCATED);
+    for (StageNode input : joinNode.getInputs()) {
+      MailboxReceiveNode receiveNode = (MailboxReceiveNode) input;
+      Assert.assertEquals(receiveNode.getExchangeType(), RelDistribution.Type.SINGLETON);
+      Assert.assertEquals(((MailboxSendNode) receiveNode.getSender()).getExchangeType(),
+          RelDistribution.Type.SINGLETON);
+    }
+  }
+
+  private static Map<String, ServerInstance> getLeafSegmentToServerMap(QueryPlan queryPlan) {
+    Map<String, ServerInstance> segmentToServerMap = new HashMap<>();
+    for (StageMetadata stageMetadata : queryPlan.getStageMetadataMap().values()) {
+      if (stageMetadata.getScannedTables().isEmpty()) {
+        continue;
+      }
+      for (Map.Entry<ServerInstance, Map<String, List<String>>> entry
+          : stageMetadata.getServerInstanceToSegmentsMap().entrySet()) {
+        for (List<String> segments : entry.getValue().values()) {
+          for (String segment : segments) {
+            segmentToServerMap.put(segment, entry.getKey());
+          }
+        }
+      }
+    }
+    return segmentToServerMap;
+  }
+
+  /**
+   * Segments x1, x2 are routed to server 1, and x3 is routed to server 2 for both table a and b. When replicated, all
+   * the segments are served by both servers.
+   */
+  private static QueryEnvironment getQueryEnvironment(Map<String, Integer> segmentPartitionsA,
+      Map<String, Integer> segmentPartitionsB, boolean replicated) {
+    MockRoutingManagerFactory factory = new MockRoutingManagerFactory(1, 2);
+    factory.registerTable(QueryEnvironmentTestBase.TABLE_SCHEMAS.get("a_REALTIME"), "a_REALTIME");
+    factory.registerTable(QueryEnvironmentTestBase.TABLE_SCHEMAS.get("b_REALTIME"), "b_REALTIME");
+    for (String table : new String[]{"a", "b"}) {
+      factory.registerSegment(1, table + "_REALTIME", table + "1");
+      factory.registerSegment(1, table + "_REALTIME", table + "2");
+      factory.registerSegment(2, table + "_REALTIME", table + "3");
+    }
+    if (segmentPartitionsA != null) {
+      factory.setTablePartitionInfo(getTablePartitionInfo("a_REALTIME", segmentPartitionsA, replicated));
+    }
+    if (segmentPartitionsB != null) {
+      factory.setTablePartitionInfo(getTablePartitionInfo("b_REALTIME", segmentPartitionsB, replicated));
+    }
+    TableCache tableCache = factory.buildTableCache();
+    SegmentPartitionConfig segmentPartitionConfig = new SegmentPartitionConfig(
+        Collections.singletonMap(PARTITION_COLUMN, new ColumnPartitionConfig(PARTITION_FUNCTION, NUM_PARTITIONS)));
+    for (String table : new String[]{"a", "b"}) {
+      when(tableCache.getTableConfig(table + "_REALTIME")).thenReturn(
+          new TableConfigBuilder(TableType.REALTIME).setTableName(table)
+              .setSegmentPartitionConfig(segmentPartitionConfig).build());
+    }
+    return new QueryEnvironment(new TypeFactory(new TypeSystem()),
+        CalciteSchemaBuilder.asRootSchema(new PinotCatalog(tableCache)),
+        new WorkerManager("localhost", 3, factory.buildRoutingManager()), tableCache);
+  }
+
+  private static TablePartitionInfo getTablePartitionInfo(String tableNameWithType,
+      Map<String, Integer> segmentPartitions, boolean replicated) {
+    Map<Integer, Set<String>> partitionToInstancesMap = new HashMap<>();
+    for (Map.Entry<String, Integer> entry : segmentPartitions.entrySet()) {
+      Set<String> instances;
+      if (replicated) {
+        instances = ImmutableSet.of(SERVER_1, SERVER_2);
+      } else {
+        instances = Collections.singleton(entry.getKey().endsWith("3") ? SERVER_2 : SERVER_1);
+      }
+      partitionToInstancesMap.merge(entry.getValue(), new HashSet<>(instances), (s1, s2) -> {
+        s1.retainAll(s2);
+        return s1;
+      });
+    }
+    return new TablePartitionInfo(tableNameWithType, PARTITION_COLUMN, PARTITION_FUNCTION, NUM_PARTITIONS,
+        segmentPartitions, Collections.emptySet(), partitionToInstancesMap);
+  }
+
+  private static JoinNode findJoinNode(QueryPlan queryPlan) {
+    for (StageNode stageRoot : queryPlan.getQueryStageMap().values()) {
+      StageNode node = stageRoot;
+      while (!node.getInputs().isEmpty() && !(node instanceof MailboxReceiveNode)) {
+        if (node instanceof JoinNode) {
+          return (JoinNode) node;
+        }
+        node = node.getInputs().get(0);
+      }
+    }
+    throw new IllegalStateException("Failed to find join in the query plan");
+  }
+}
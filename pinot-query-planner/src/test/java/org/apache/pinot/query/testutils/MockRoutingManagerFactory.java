@@ -28,6 +28,7 @@ import org.apache.pinot.common.config.provider.TableCache;
 import org.apache.pinot.common.request.BrokerRequest;
 import org.apache.pinot.core.routing.RoutingManager;
 import org.apache.pinot.core.routing.RoutingTable;
+import org.apache.pinot.core.routing.TablePartitionInfo;
 import org.apache.pinot.core.routing.TimeBoundaryInfo;
 import org.apache.pinot.core.transport.ServerInstance;
 import org.apache.pinot.query.routing.WorkerInstance;
@@ -55,6 +56,8 @@ public class MockRoutingManagerFactory {
   private final List<String> _hybridTables;
 
   private final Map<String, Map<ServerInstance, List<String>>> _tableServerSegmentMap;
+  private final Map<String, Long> _tableNumDocsMap;
+  private final Map<String, TablePartitionInfo> _tablePartitionInfoMap;
 
   public MockRoutingManagerFactory(int... ports) {
     _hybridTables = new ArrayList<>();
@@ -64,6 +67,8 @@ public class MockRoutingManagerFactory {
     _routingTableMap = new HashMap<>();
 
     _tableServerSegmentMap = new HashMap<>();
+    _tableNumDocsMap = new HashMap<>();
+    _tablePartitionInfoMap = new HashMap<>();
     for (int port : ports) {
       _serverInstances.put(toHostname(port), new WorkerInstance(HOST_NAME, port, port, port, port));
     }
@@ -94,6 +99,16 @@ public class MockRoutingManagerFactory {
     return this;
   }
 
+  public MockRoutingManagerFactory setNumDocs(String tableNameWithType, long numDocs) {
+    _tableNumDocsMap.put(tableNameWithType, numDocs);
+    return this;
+  }
+
+  public MockRoutingManagerFactory setTablePartitionInfo(TablePartitionInfo tablePartitionInfo) {
+    _tablePartitionInfoMap.put(tablePartitionInfo.getTableNameWithType(), tablePartitionInfo);
+    return this;
+  }
+
   public RoutingManager buildRoutingManager() {
     // create all the fake routing tables
     _routingTableMap.clear();
@@ -102,7 +117,8 @@ public class MockRoutingManagerFactory {
       RoutingTable fakeRoutingTable = new RoutingTable(tableEntry.getValue(), Collections.emptyList(), 0);
       _routingTableMap.put(tableNameWithType, fakeRoutingTable);
     }
-    return new FakeRoutingManager(_routingTableMap, _serverInstances, _hybridTables);
+    return new FakeRoutingManager(_routingTableMap, _serverInstances, _hybridTables, _tableNumDocsMap,
+        _tablePartitionInfoMap);
   }
 
   public TableCache buildTableCache() {
@@ -130,12 +146,17 @@ public class MockRoutingManagerFactory {
     private final Map<String, RoutingTable> _routingTableMap;
     private final Map<String, ServerInstance> _serverInstances;
     private final List<String> _hybridTables;
+    private final Map<String, Long> _tableNumDocsMap;
+    private final Map<String, TablePartitionInfo> _tablePartitionInfoMap;
 
     public FakeRoutingManager(Map<String, RoutingTable> routingTableMap, Map<String, ServerInstance> serverInstances,
-        List<String> hybridTables) {
+        List<String> hybridTables, Map<String, Long> tableNumDocsMap,
+        Map<String, TablePartitionInfo> tablePartitionInfoMap) {
       _routingTableMap = routingTableMap;
       _serverInstances = serverInstances;
       _hybridTables = hybridTables;
+      _tableNumDocsMap = tableNumDocsMap;
+      _tablePartitionInfoMap = tablePartitionInfoMap;
     }
 
     @Override
@@ -161,5 +182,15 @@ public class MockRoutingManagerFactory {
       return _hybridTables.contains(rawTableName) ? new TimeBoundaryInfo(TIME_BOUNDARY_COLUMN,
           String.valueOf(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1))) : null;
     }
+
+    @Override
+    public long getEstimatedNumDocs(String tableNameWithType) {
+      return _tableNumDocsMap.getOrDefault(tableNameWithType, -1L);
+    }
+
+    @Override
+    public TablePartitionInfo getTablePartitionInfo(String tableNameWithType) {
+      return _tablePartitionInfoMap.get(tableNameWithType);
+    }
   }
 }
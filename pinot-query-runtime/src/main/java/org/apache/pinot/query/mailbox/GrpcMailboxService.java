@@ -108,7 +108,9 @@ public class GrpcMailboxService implements MailboxService<TransferableBlock> {
    */
   @Override
   public SendingMailbox<TransferableBlock> getSendingMailbox(MailboxIdentifier mailboxId, long deadlineMs) {
-    MailboxStatusStreamObserver statusStreamObserver = new MailboxStatusStreamObserver();
+    MailboxIdentifier creditMailboxId = toCreditMailboxId(mailboxId);
+    MailboxStatusStreamObserver statusStreamObserver =
+        new MailboxStatusStreamObserver(() -> _gotMailCallback.accept(creditMailboxId));
 
     GrpcSendingMailbox mailbox = new GrpcSendingMailbox(mailboxId.toString(), statusStreamObserver, (deadline) -> {
       ManagedChannel channel = getChannel(mailboxId.toString());
@@ -154,6 +156,15 @@ public class GrpcMailboxService implements MailboxService<TransferableBlock> {
     _receivingMailboxCache.invalidate(mailboxId.toString());
   }
 
+  /**
+   * Credits flow from the receiver back to the sender of the mailbox, so the sending OpChain is notified as if it
+   * received data on the reversed mailbox.
+   */
+  private static MailboxIdentifier toCreditMailboxId(MailboxIdentifier mailboxId) {
+    return new JsonMailboxIdentifier(mailboxId.getJobId(), mailboxId.getToHost(), mailboxId.getFromHost(),
+        mailboxId.getReceiverStageId(), mailboxId.getSenderStageId());
+  }
+
   private ManagedChannel getChannel(String mailboxId) {
     return _channelManager.getChannel(Utils.constructChannelId(mailboxId));
   }
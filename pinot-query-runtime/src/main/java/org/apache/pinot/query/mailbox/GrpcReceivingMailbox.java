@@ -112,6 +112,11 @@ public class GrpcReceivingMailbox implements ReceivingMailbox<TransferableBlock>
     }
   }
 
+  @Override
+  public int getQueueDepth() {
+    return isInitialized() ? _contentStreamObserver.getNumPendingContents() : 0;
+  }
+
   private boolean waitForInitialize()
       throws Exception {
     if (_initializationLatch.getCount() > 0) {
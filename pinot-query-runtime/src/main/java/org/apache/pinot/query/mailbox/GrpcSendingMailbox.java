@@ -20,9 +20,11 @@ package org.apache.pinot.query.mailbox;
 
 import com.google.common.base.Preconditions;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import org.apache.pinot.common.datablock.DataBlock;
@@ -70,6 +72,7 @@ public class GrpcSendingMailbox implements SendingMailbox<TransferableBlock> {
         "Called send when stream is already closed for mailbox=" + _mailboxId);
     MailboxContent data = toMailboxContent(block.getDataBlock());
     _mailboxContentStreamObserver.onNext(data);
+    _statusObserver.consumeCredit();
   }
 
   @Override
@@ -101,6 +104,12 @@ public class GrpcSendingMailbox implements SendingMailbox<TransferableBlock> {
     }
   }
 
+  @Override
+  public boolean isBackpressured() {
+    // once the stream is finished, let the sender go ahead so that it fails fast on the next send
+    return !_statusObserver.isFinished() && !_statusObserver.hasCredit();
+  }
+
   @Override
   public String getMailboxId() {
     return _mailboxId;
@@ -116,8 +125,14 @@ public class GrpcSendingMailbox implements SendingMailbox<TransferableBlock> {
 
   private MailboxContent toMailboxContent(DataBlock dataBlock) {
     try {
-      Mailbox.MailboxContent.Builder builder = Mailbox.MailboxContent.newBuilder().setMailboxId(_mailboxId)
-          .setPayload(ByteString.copyFrom(dataBlock.toBytes()));
+      // wrap the serialized sections of the block instead of copying them into a single byte array; the buffers are
+      // not modified after this point and are only read by gRPC when the message is written to the wire.
+      ByteString payload = ByteString.EMPTY;
+      for (ByteBuffer byteBuffer : dataBlock.toByteBuffers()) {
+        payload = payload.concat(UnsafeByteOperations.unsafeWrap(byteBuffer));
+      }
+      Mailbox.MailboxContent.Builder builder =
+          Mailbox.MailboxContent.newBuilder().setMailboxId(_mailboxId).setPayload(payload);
       if (dataBlock instanceof MetadataBlock) {
         builder.putMetadata(ChannelUtils.MAILBOX_METADATA_END_OF_STREAM_KEY, "true");
       }
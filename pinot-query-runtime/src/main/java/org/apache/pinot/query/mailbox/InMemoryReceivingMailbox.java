@@ -71,6 +71,11 @@ public class InMemoryReceivingMailbox implements ReceivingMailbox<TransferableBl
     }
   }
 
+  @Override
+  public int getQueueDepth() {
+    return _transferStream != null ? _transferStream.size() : 0;
+  }
+
   @Override
   public String getMailboxId() {
     return _mailboxId;
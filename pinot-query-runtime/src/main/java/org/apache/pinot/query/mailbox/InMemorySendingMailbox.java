@@ -70,6 +70,11 @@ public class InMemorySendingMailbox implements SendingMailbox<TransferableBlock>
     }
   }
 
+  @Override
+  public boolean isLocal() {
+    return true;
+  }
+
   private void initialize() {
     if (_transferStream == null) {
       _transferStream = _transferStreamProvider.get();
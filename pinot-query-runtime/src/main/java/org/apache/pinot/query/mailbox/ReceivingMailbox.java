@@ -72,4 +72,11 @@ public interface ReceivingMailbox<T> {
    * </p>
    */
   void cancel();
+
+  /**
+   * Returns the number of units of data that were received by the mailbox but not yet returned by {@link #receive()}.
+   */
+  default int getQueueDepth() {
+    return 0;
+  }
 }
@@ -67,4 +67,20 @@ public interface SendingMailbox<T> {
    * Allows terminating the underlying channel.
    */
   void cancel(Throwable t);
+
+  /**
+   * Whether the data is handed over to a receiver in the same JVM. Such data is passed by reference and is never
+   * serialized, thus it doesn't need to be split to fit the transport's message size limit.
+   */
+  default boolean isLocal() {
+    return false;
+  }
+
+  /**
+   * Whether the receiver can't accept more data for now. Callers should not block on this but stop sending and check
+   * again later, e.g. by yielding the OpChain until the receiver frees up room.
+   */
+  default boolean isBackpressured() {
+    return false;
+  }
 }
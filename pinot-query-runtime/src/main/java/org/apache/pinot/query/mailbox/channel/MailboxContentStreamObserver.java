@@ -42,8 +42,10 @@ import org.slf4j.LoggerFactory;
  * {@code MailboxContentStreamObserver} is the content streaming observer used to receive mailbox content.
  *
  * <p>When the observer onNext() is called (e.g. when data packet has arrived at the receiving end), it puts the
- * mailbox content to the receiving mailbox buffer; response with the remaining buffer size of the receiving mailbox
- * to the sender side.
+ * mailbox content to the receiving mailbox buffer. The buffer is bounded with credit based flow control: the sender
+ * starts with {@link #DEFAULT_MAX_PENDING_MAILBOX_CONTENT} credits and spends one per content, and every time the
+ * receiver polls a content from the buffer one credit is granted back to the sender via a
+ * {@link Mailbox.MailboxStatus}.
  */
 public class MailboxContentStreamObserver implements StreamObserver<Mailbox.MailboxContent> {
   public static final int DEFAULT_MAX_PENDING_MAILBOX_CONTENT = 5;
@@ -97,7 +99,18 @@ public class MailboxContentStreamObserver implements StreamObserver<Mailbox.Mail
       return null;
     }
 
-    return _receivingBuffer.poll();
+    Mailbox.MailboxContent mailboxContent = _receivingBuffer.poll();
+    if (mailboxContent != null) {
+      grantCredit();
+    }
+    return mailboxContent;
+  }
+
+  /**
+   * @return the number of contents received but not yet polled.
+   */
+  public int getNumPendingContents() {
+    return _receivingBuffer.size();
   }
 
   @Override
@@ -122,16 +135,20 @@ public class MailboxContentStreamObserver implements StreamObserver<Mailbox.Mail
           RuntimeException e = new RuntimeException("Timed out offering to the receivingBuffer: " + _mailboxId);
           LOGGER.error(e.getMessage());
           _errorContent = createErrorContent(e);
-          try {
-            _responseObserver.onError(Status.CANCELLED.asRuntimeException());
-          } catch (Exception ignored) {
-            // Exception can be thrown if the stream deadline has already been reached, so we simply ignore it.
+          synchronized (_responseObserver) {
+            try {
+              _responseObserver.onError(Status.CANCELLED.asRuntimeException());
+            } catch (Exception ignored) {
+              // Exception can be thrown if the stream deadline has already been reached, so we simply ignore it.
+            }
           }
         }
       } catch (InterruptedException e) {
         _errorContent = createErrorContent(e);
         LOGGER.error("Interrupted while polling receivingBuffer", e);
-        _responseObserver.onError(Status.CANCELLED.asRuntimeException());
+        synchronized (_responseObserver) {
+          _responseObserver.onError(Status.CANCELLED.asRuntimeException());
+        }
       }
       _gotMailCallback.accept(_mailboxId);
     }
@@ -148,7 +165,9 @@ public class MailboxContentStreamObserver implements StreamObserver<Mailbox.Mail
   @Override
   public void onCompleted() {
     _isCompleted.set(true);
-    _responseObserver.onCompleted();
+    synchronized (_responseObserver) {
+      _responseObserver.onCompleted();
+    }
   }
 
   /**
@@ -158,6 +177,27 @@ public class MailboxContentStreamObserver implements StreamObserver<Mailbox.Mail
     return _isCompleted.get() && _receivingBuffer.isEmpty();
   }
 
+  /**
+   * Grants one credit back to the sender. Called from the thread polling the receiving mailbox, hence the response
+   * observer is synchronized against the gRPC thread calling {@link #onNext} and {@link #onCompleted}.
+   */
+  private void grantCredit() {
+    synchronized (_responseObserver) {
+      // no more data is expected once the sender completed the stream or the stream errored out
+      if (_isCompleted.get() || _errorContent != null) {
+        return;
+      }
+      try {
+        _responseObserver.onNext(Mailbox.MailboxStatus.newBuilder().setMailboxId(_mailboxId.toString())
+            .putMetadata(ChannelUtils.MAILBOX_METADATA_CREDITS_KEY, "1").build());
+      } catch (Exception e) {
+        // Exception can be thrown if the stream was cancelled or the deadline has been reached, in which case the
+        // sender doesn't need more credits.
+        LOGGER.debug("Failed to grant credit for mailbox: {}", _mailboxId, e);
+      }
+    }
+  }
+
   private static Mailbox.MailboxContent createErrorContent(Throwable e) {
     try {
       return Mailbox.MailboxContent.newBuilder().setPayload(ByteString.copyFrom(
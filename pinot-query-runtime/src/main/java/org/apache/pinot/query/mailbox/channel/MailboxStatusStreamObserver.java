@@ -32,27 +32,41 @@ import org.slf4j.LoggerFactory;
  * <p>Once {@link org.apache.pinot.query.mailbox.GrpcSendingMailbox#init()} is called, one instances of this class is
  * created based on the opened GRPC connection returned {@link StreamObserver}.
  * end.
+ *
+ * <p>It also tracks the credits granted by the receiving end, see {@link MailboxContentStreamObserver} for the flow
+ * control protocol. The credits can go below zero when the sender has to send more contents than it has credits for
+ * (e.g. the end-of-stream), in which case the receiving buffer still bounds the memory used on the receiving end.
  */
 public class MailboxStatusStreamObserver implements StreamObserver<Mailbox.MailboxStatus> {
   private static final Logger LOGGER = LoggerFactory.getLogger(MailboxStatusStreamObserver.class);
-  private static final int DEFAULT_MAILBOX_QUEUE_CAPACITY = 5;
-  private final AtomicInteger _bufferSize = new AtomicInteger(5);
+  private final AtomicInteger _credits =
+      new AtomicInteger(MailboxContentStreamObserver.DEFAULT_MAX_PENDING_MAILBOX_CONTENT);
+  private final Runnable _creditAvailableCallback;
 
   private final CountDownLatch _finishLatch = new CountDownLatch(1);
 
   public MailboxStatusStreamObserver() {
+    this(() -> {
+    });
+  }
+
+  /**
+   * @param creditAvailableCallback called when the sender can resume sending, either because credits were granted
+   *                                after they ran out, or because the stream is finished.
+   */
+  public MailboxStatusStreamObserver(Runnable creditAvailableCallback) {
+    _creditAvailableCallback = creditAvailableCallback;
   }
 
   @Override
   public void onNext(Mailbox.MailboxStatus mailboxStatus) {
-    // when received a mailbox status from the receiving end, sending end update the known buffer size available
-    // so we can make better throughput send judgement. here is a simple example.
-    // TODO: this feedback info is not used to throttle the send speed. it is currently being discarded.
-    if (mailboxStatus.getMetadataMap().containsKey(ChannelUtils.MAILBOX_METADATA_BUFFER_SIZE_KEY)) {
-      _bufferSize.set(
-          Integer.parseInt(mailboxStatus.getMetadataMap().get(ChannelUtils.MAILBOX_METADATA_BUFFER_SIZE_KEY)));
-    } else {
-      _bufferSize.set(DEFAULT_MAILBOX_QUEUE_CAPACITY); // DEFAULT_AVAILABILITY;
+    String credits = mailboxStatus.getMetadataMap().get(ChannelUtils.MAILBOX_METADATA_CREDITS_KEY);
+    if (credits != null) {
+      int grantedCredits = Integer.parseInt(credits);
+      int previousCredits = _credits.getAndAdd(grantedCredits);
+      if (previousCredits <= 0 && previousCredits + grantedCredits > 0) {
+        _creditAvailableCallback.run();
+      }
     }
   }
 
@@ -60,14 +74,30 @@ public class MailboxStatusStreamObserver implements StreamObserver<Mailbox.Mailb
   public void onError(Throwable e) {
     _finishLatch.countDown();
     LOGGER.error("[mailbox] Server returned onError", e);
+    _creditAvailableCallback.run();
   }
 
   @Override
   public void onCompleted() {
     _finishLatch.countDown();
+    _creditAvailableCallback.run();
   }
 
   public boolean isFinished() {
     return _finishLatch.getCount() == 0;
   }
+
+  /**
+   * @return true if the receiving end has room for more contents.
+   */
+  public boolean hasCredit() {
+    return _credits.get() > 0;
+  }
+
+  /**
+   * Spends one credit for a content sent to the receiving end.
+   */
+  public void consumeCredit() {
+    _credits.decrementAndGet();
+  }
 }
@@ -20,12 +20,15 @@ package org.apache.pinot.query.runtime;
 
 import com.google.common.base.Preconditions;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import javax.annotation.Nullable;
 import org.apache.helix.HelixManager;
 import org.apache.helix.store.zk.ZkHelixPropertyStore;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
@@ -33,6 +36,7 @@ import org.apache.pinot.common.exception.QueryException;
 import org.apache.pinot.common.metadata.ZKMetadataProvider;
 import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.common.utils.NamedThreadFactory;
+import org.apache.pinot.common.utils.config.QueryOptionsUtils;
 import org.apache.pinot.core.data.manager.InstanceDataManager;
 import org.apache.pinot.core.operator.blocks.InstanceResponseBlock;
 import org.apache.pinot.core.operator.combine.BaseCombineOperator;
@@ -48,12 +52,16 @@ import org.apache.pinot.query.routing.VirtualServer;
 import org.apache.pinot.query.routing.VirtualServerAddress;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
+import org.apache.pinot.query.runtime.executor.FairPriorityScheduler;
+import org.apache.pinot.query.runtime.executor.OpChainScheduler;
 import org.apache.pinot.query.runtime.executor.OpChainSchedulerService;
 import org.apache.pinot.query.runtime.executor.RoundRobinScheduler;
 import org.apache.pinot.query.runtime.operator.LeafStageTransferableBlockOperator;
 import org.apache.pinot.query.runtime.operator.MailboxSendOperator;
 import org.apache.pinot.query.runtime.operator.MultiStageOperator;
 import org.apache.pinot.query.runtime.operator.OpChain;
+import org.apache.pinot.query.runtime.operator.utils.RuntimeFilterUtils;
+import org.apache.pinot.query.runtime.operator.utils.SpillConfig;
 import org.apache.pinot.query.runtime.plan.DistributedStagePlan;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
 import org.apache.pinot.query.runtime.plan.PhysicalPlanVisitor;
@@ -114,6 +122,9 @@ public class QueryRunner {
    */
   private ExecutorService _queryRunnerExecutorService;
   private OpChainSchedulerService _scheduler;
+  private long _runtimeFilterWaitMs;
+  private SpillConfig _spillConfig;
+  private RuntimeFilterUtils.DataAvailableNotifier _runtimeFilterNotifier;
 
   /**
    * Initializes the query executor.
@@ -137,8 +148,24 @@ public class QueryRunner {
       _queryRunnerExecutorService = Executors.newFixedThreadPool(
           ResourceManager.DEFAULT_QUERY_RUNNER_THREADS,
           new NamedThreadFactory("query_runner_on_" + _port + "_port"));
-      _scheduler = new OpChainSchedulerService(new RoundRobinScheduler(releaseMs), _queryWorkerExecutorService);
-      _mailboxService = MultiplexingMailboxService.newInstance(_hostname, _port, config, _scheduler::onDataAvailable);
+      _runtimeFilterWaitMs =
+          config.getProperty(QueryConfig.KEY_OF_RUNTIME_FILTER_WAIT_MS, QueryConfig.DEFAULT_RUNTIME_FILTER_WAIT_MS);
+      _spillConfig = SpillConfig.fromConfig(config);
+      String schedulerType = config.getProperty(QueryConfig.KEY_OF_SCHEDULER_TYPE, QueryConfig.DEFAULT_SCHEDULER_TYPE);
+      OpChainScheduler opChainScheduler;
+      if (QueryConfig.SCHEDULER_TYPE_FAIR_PRIORITY.equalsIgnoreCase(schedulerType)) {
+        opChainScheduler = new FairPriorityScheduler(releaseMs);
+      } else {
+        Preconditions.checkState(QueryConfig.SCHEDULER_TYPE_ROUND_ROBIN.equalsIgnoreCase(schedulerType),
+            "Unsupported scheduler type: %s", schedulerType);
+        opChainScheduler = new RoundRobinScheduler(releaseMs);
+      }
+      _scheduler = new OpChainSchedulerService(opChainScheduler, _queryWorkerExecutorService);
+      _runtimeFilterNotifier = new RuntimeFilterUtils.DataAvailableNotifier();
+      _mailboxService = MultiplexingMailboxService.newInstance(_hostname, _port, config, mailboxId -> {
+        _scheduler.onDataAvailable(mailboxId);
+        _runtimeFilterNotifier.accept(mailboxId);
+      });
       _serverExecutor = new ServerQueryExecutorV1Impl();
       _serverExecutor.init(config.subset(PINOT_V1_SERVER_QUERY_CONFIG_PREFIX), instanceDataManager, serverMetrics);
     } catch (Exception e) {
@@ -171,8 +198,10 @@ public class QueryRunner {
       StageNode stageRoot = distributedStagePlan.getStageRoot();
       OpChain rootOperator = PhysicalPlanVisitor.build(stageRoot,
           new PlanRequestContext(_mailboxService, requestId, stageRoot.getStageId(), timeoutMs, deadlineMs,
-              new VirtualServerAddress(distributedStagePlan.getServer()), distributedStagePlan.getMetadataMap()));
-      _scheduler.register(rootOperator);
+              new VirtualServerAddress(distributedStagePlan.getServer()), distributedStagePlan.getMetadataMap(),
+              _spillConfig));
+      Integer priority = QueryOptionsUtils.getSchedulerPriority(requestMetadataMap);
+      _scheduler.register(rootOperator, priority != null ? priority : OpChainScheduler.DEFAULT_PRIORITY);
     }
   }
 
@@ -196,21 +225,32 @@ public class QueryRunner {
     MailboxSendOperator mailboxSendOperator = null;
     try {
       long leafStageStartMillis = System.currentTimeMillis();
-      List<ServerPlanRequestContext> serverQueryRequests =
-          constructServerQueryRequests(distributedStagePlan, requestMetadataMap, _helixPropertyStore, _mailboxService,
-              deadlineMs);
+      MailboxSendNode sendNode = (MailboxSendNode) distributedStagePlan.getStageRoot();
+      List<Set<Object>> runtimeFilter = null;
+      if (!sendNode.getRuntimeFilterKeys().isEmpty()) {
+        runtimeFilter = receiveRuntimeFilter(distributedStagePlan, sendNode, requestId, deadlineMs);
+      }
+
+      List<InstanceResponseBlock> serverQueryResults;
+      if (runtimeFilter != null && runtimeFilter.get(0).isEmpty()) {
+        // The join on the output doesn't have any key to match, skip scanning the table
+        serverQueryResults = Collections.emptyList();
+      } else {
+        List<ServerPlanRequestContext> serverQueryRequests =
+            constructServerQueryRequests(distributedStagePlan, requestMetadataMap, _helixPropertyStore,
+                _mailboxService, deadlineMs, runtimeFilter);
 
-      // send the data table via mailbox in one-off fashion (e.g. no block-level split, one data table/partition key)
-      List<InstanceResponseBlock> serverQueryResults = new ArrayList<>(serverQueryRequests.size());
-      for (ServerPlanRequestContext requestContext : serverQueryRequests) {
-        ServerQueryRequest request = new ServerQueryRequest(requestContext.getInstanceRequest(),
-            new ServerMetrics(PinotMetricUtils.getPinotMetricsRegistry()), System.currentTimeMillis());
-        serverQueryResults.add(processServerQuery(request, _scheduler.getWorkerPool()));
+        // send the data table via mailbox in one-off fashion (e.g. no block-level split, one data table/partition key)
+        serverQueryResults = new ArrayList<>(serverQueryRequests.size());
+        for (ServerPlanRequestContext requestContext : serverQueryRequests) {
+          ServerQueryRequest request = new ServerQueryRequest(requestContext.getInstanceRequest(),
+              new ServerMetrics(PinotMetricUtils.getPinotMetricsRegistry()), System.currentTimeMillis());
+          serverQueryResults.add(processServerQuery(request, _scheduler.getWorkerPool()));
+        }
       }
       LOGGER.debug(
           "RequestId:" + requestId + " StageId:" + distributedStagePlan.getStageId() + " Leaf stage v1 processing time:"
               + (System.currentTimeMillis() - leafStageStartMillis) + " ms");
-      MailboxSendNode sendNode = (MailboxSendNode) distributedStagePlan.getStageRoot();
       OpChainExecutionContext opChainExecutionContext =
           new OpChainExecutionContext(_mailboxService, requestId, sendNode.getStageId(), _rootServer, deadlineMs,
               deadlineMs, distributedStagePlan.getMetadataMap());
@@ -233,9 +273,24 @@ public class QueryRunner {
     }
   }
 
+  /**
+   * Waits for the runtime filter published by the join on the output of the leaf stage, and returns the values of each
+   * filtered column, or {@code null} if the leaf stage should scan the table without the runtime filter.
+   */
+  @Nullable
+  private List<Set<Object>> receiveRuntimeFilter(DistributedStagePlan distributedStagePlan, MailboxSendNode sendNode,
+      long requestId, long deadlineMs) {
+    long waitDeadlineMs = Math.min(System.currentTimeMillis() + _runtimeFilterWaitMs, deadlineMs);
+    List<VirtualServer> joinServers =
+        distributedStagePlan.getMetadataMap().get(sendNode.getReceiverStageId()).getServerInstances();
+    return RuntimeFilterUtils.receive(_mailboxService, _runtimeFilterNotifier, requestId,
+        distributedStagePlan.getStageId(), new VirtualServerAddress(distributedStagePlan.getServer()),
+        sendNode.getReceiverStageId(), joinServers, sendNode.getRuntimeFilterKeys().size(), waitDeadlineMs);
+  }
+
   private static List<ServerPlanRequestContext> constructServerQueryRequests(DistributedStagePlan distributedStagePlan,
       Map<String, String> requestMetadataMap, ZkHelixPropertyStore<ZNRecord> helixPropertyStore,
-      MailboxService<TransferableBlock> mailboxService, long deadlineMs) {
+      MailboxService<TransferableBlock> mailboxService, long deadlineMs, @Nullable List<Set<Object>> runtimeFilter) {
     StageMetadata stageMetadata = distributedStagePlan.getMetadataMap().get(distributedStagePlan.getStageId());
     Preconditions.checkState(stageMetadata.getScannedTables().size() == 1,
         "Server request for V2 engine should only have 1 scan table per request.");
@@ -255,7 +310,8 @@ public class QueryRunner {
             TableNameBuilder.forType(TableType.OFFLINE).tableNameWithType(rawTableName));
         requests.add(
             ServerRequestPlanVisitor.build(mailboxService, distributedStagePlan, requestMetadataMap, tableConfig,
-                schema, stageMetadata.getTimeBoundaryInfo(), TableType.OFFLINE, tableEntry.getValue(), deadlineMs));
+                schema, stageMetadata.getTimeBoundaryInfo(), TableType.OFFLINE, tableEntry.getValue(), deadlineMs,
+                runtimeFilter));
       } else if (TableType.REALTIME.name().equals(tableType)) {
         TableConfig tableConfig = ZKMetadataProvider.getTableConfig(helixPropertyStore,
             TableNameBuilder.forType(TableType.REALTIME).tableNameWithType(rawTableName));
@@ -263,7 +319,8 @@ public class QueryRunner {
             TableNameBuilder.forType(TableType.REALTIME).tableNameWithType(rawTableName));
         requests.add(
             ServerRequestPlanVisitor.build(mailboxService, distributedStagePlan, requestMetadataMap, tableConfig,
-                schema, stageMetadata.getTimeBoundaryInfo(), TableType.REALTIME, tableEntry.getValue(), deadlineMs));
+                schema, stageMetadata.getTimeBoundaryInfo(), TableType.REALTIME, tableEntry.getValue(), deadlineMs,
+                runtimeFilter));
       } else {
         throw new IllegalArgumentException("Unsupported table type key: " + tableType);
       }
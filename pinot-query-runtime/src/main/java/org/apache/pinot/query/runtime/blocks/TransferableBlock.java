@@ -19,6 +19,7 @@
 package org.apache.pinot.query.runtime.blocks;
 
 import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -56,7 +57,12 @@ public class TransferableBlock implements Block {
     _container = container;
     _dataSchema = dataSchema;
     _type = containerType;
-    _numRows = _container.size();
+    if (containerType == DataBlock.Type.COLUMNAR) {
+      // columnar container holds one array per column, each with one entry per row
+      _numRows = _container.isEmpty() ? 0 : _container.get(0).length;
+    } else {
+      _numRows = _container.size();
+    }
   }
 
   public TransferableBlock(DataBlock dataBlock) {
@@ -85,7 +91,7 @@ public class TransferableBlock implements Block {
   /**
    * Retrieve the extracted {@link TransferableBlock#_container} of the transferable block.
    * If not already constructed. It will use {@link DataBlockUtils} to extract the row/columnar data from the
-   * binary-packed format.
+   * binary-packed format. For {@link DataBlock.Type#COLUMNAR} blocks the container holds one array per column.
    *
    * @return data container.
    */
@@ -96,6 +102,8 @@ public class TransferableBlock implements Block {
           _container = DataBlockUtils.extractRows(_dataBlock, ObjectSerDeUtils::deserialize);
           break;
         case COLUMNAR:
+          _container = DataBlockUtils.extractColumns(_dataBlock, ObjectSerDeUtils::deserialize);
+          break;
         case METADATA:
         default:
           throw new UnsupportedOperationException("Unable to extract from container with type: " + _type);
@@ -104,6 +112,33 @@ public class TransferableBlock implements Block {
     return _container;
   }
 
+  /**
+   * Retrieve the rows of the transferable block. For {@link DataBlock.Type#ROW} blocks this is the same as
+   * {@link #getContainer()}, and for {@link DataBlock.Type#COLUMNAR} blocks the columns are transposed into rows.
+   * Operators that can process the columns directly should use {@link #getContainer()} instead.
+   *
+   * @return rows of the block.
+   */
+  public List<Object[]> getRows() {
+    if (_type != DataBlock.Type.COLUMNAR) {
+      return getContainer();
+    }
+    if (_container == null) {
+      return DataBlockUtils.extractRows(_dataBlock, ObjectSerDeUtils::deserialize);
+    }
+    List<Object[]> columns = _container;
+    int numColumns = columns.size();
+    List<Object[]> rows = new ArrayList<>(_numRows);
+    for (int rowId = 0; rowId < _numRows; rowId++) {
+      Object[] row = new Object[numColumns];
+      for (int colId = 0; colId < numColumns; colId++) {
+        row[colId] = columns.get(colId)[rowId];
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+
   /**
    * Retrieve the binary-packed version of the data block.
    * If not already constructed. It will use {@link DataBlockBuilder} to construct the binary-packed format from
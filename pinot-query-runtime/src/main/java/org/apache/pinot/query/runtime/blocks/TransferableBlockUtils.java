@@ -21,6 +21,7 @@ package org.apache.pinot.query.runtime.blocks;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterators;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -68,9 +69,11 @@ public final class TransferableBlockUtils {
    *  Split a block into multiple block so that each block size is within maxBlockSize. Currently,
    *  <ul>
    *    <li>For row data block, we split for row type dataBlock.</li>
-   *    <li>For columnar data block, exceptions are thrown.</li>
+   *    <li>For columnar data block, we split each column by the same row ranges.</li>
    *    <li>For metadata block, split is not supported.</li>
    *  </ul>
+   *  A block that already fits in a single chunk is returned as is, so that an already serialized block doesn't have
+   *  to be extracted and re-serialized before being sent.
    *
    * @param block the data block
    * @param type type of block
@@ -78,14 +81,23 @@ public final class TransferableBlockUtils {
    * @return a list of data block chunks
    */
   public static Iterator<TransferableBlock> splitBlock(TransferableBlock block, DataBlock.Type type, int maxBlockSize) {
+    if (type == DataBlock.Type.METADATA) {
+      return Iterators.singletonIterator(block);
+    }
+    if (type != DataBlock.Type.ROW && type != DataBlock.Type.COLUMNAR) {
+      throw new IllegalArgumentException("Unsupported data block type: " + type);
+    }
+    // Use estimated row size, this estimate is not accurate and is used to estimate numRowsPerChunk only.
+    int estimatedRowSizeInBytes = block.getDataSchema().getColumnNames().length * MEDIAN_COLUMN_SIZE_BYTES;
+    int numRowsPerChunk = maxBlockSize / estimatedRowSizeInBytes;
+    Preconditions.checkState(numRowsPerChunk > 0, "row size too large for query engine to handle, abort!");
+
+    int totalNumRows = block.getNumRows();
+    if (totalNumRows <= numRowsPerChunk) {
+      return Iterators.singletonIterator(block);
+    }
     List<TransferableBlock> blockChunks = new ArrayList<>();
     if (type == DataBlock.Type.ROW) {
-      // Use estimated row size, this estimate is not accurate and is used to estimate numRowsPerChunk only.
-      int estimatedRowSizeInBytes = block.getDataSchema().getColumnNames().length * MEDIAN_COLUMN_SIZE_BYTES;
-      int numRowsPerChunk = maxBlockSize / estimatedRowSizeInBytes;
-      Preconditions.checkState(numRowsPerChunk > 0, "row size too large for query engine to handle, abort!");
-
-      int totalNumRows = block.getNumRows();
       List<Object[]> allRows = block.getContainer();
       int currentRow = 0;
       while (currentRow < totalNumRows) {
@@ -93,11 +105,18 @@ public final class TransferableBlockUtils {
         currentRow += numRowsPerChunk;
         blockChunks.add(new TransferableBlock(chunk, block.getDataSchema(), block.getType()));
       }
-      return blockChunks.iterator();
-    } else if (type == DataBlock.Type.METADATA) {
-      return Iterators.singletonIterator(block);
     } else {
-      throw new IllegalArgumentException("Unsupported data block type: " + type);
+      List<Object[]> allColumns = block.getContainer();
+      int numColumns = allColumns.size();
+      for (int currentRow = 0; currentRow < totalNumRows; currentRow += numRowsPerChunk) {
+        int endRow = Math.min(currentRow + numRowsPerChunk, totalNumRows);
+        List<Object[]> chunk = new ArrayList<>(numColumns);
+        for (Object[] column : allColumns) {
+          chunk.add(Arrays.copyOfRange(column, currentRow, endRow));
+        }
+        blockChunks.add(new TransferableBlock(chunk, block.getDataSchema(), block.getType()));
+      }
     }
+    return blockChunks.iterator();
   }
 }
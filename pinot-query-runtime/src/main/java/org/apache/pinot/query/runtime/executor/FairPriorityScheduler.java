@@ -0,0 +1,323 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.executor;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.query.mailbox.MailboxIdentifier;
+import org.apache.pinot.query.runtime.operator.OpChain;
+import org.apache.pinot.query.runtime.operator.OpChainId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A scheduler that shares the query workers fairly across queries instead of across OpChains, weighted by the priority
+ * of the queries.
+ * <p>
+ *   The OpChains go through the same Ready, Available/Yielded and Running states as in the {@link RoundRobinScheduler}:
+ *   OpChains are woken up by the {@link #onDataAvailable} callback, or by the release timeout when a sender has died
+ *   or hasn't sent any data in the last releaseTimeoutMs milliseconds.
+ *
+ *   Ready OpChains are queued per query. Every time an OpChain of a query is returned by {@link #next}, the virtual
+ *   runtime of the query grows by {@code 2^(MAX_PRIORITY - priority)}, and {@link #next} always picks the query with
+ *   the lowest virtual runtime. This way a query with many OpChains (e.g. a heavy join with a high stage parallelism)
+ *   cannot starve a short query with a few OpChains, and a query gets twice the share of a query with a priority lower
+ *   by one. A query that becomes ready after being idle starts from the virtual runtime of the last scheduled query
+ *   so that it doesn't accumulate credit while it is waiting for data.
+ * </p>
+ */
+@ThreadSafe
+public class FairPriorityScheduler implements OpChainScheduler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FairPriorityScheduler.class);
+  private static final String AVAILABLE_RELEASE_THREAD_NAME = "fair-priority-scheduler-release-thread";
+
+  public static final int MIN_PRIORITY = 0;
+  public static final int MAX_PRIORITY = 10;
+
+  private final long _releaseTimeoutMs;
+  private final Supplier<Long> _ticker;
+
+  private final ReentrantLock _lock = new ReentrantLock();
+  private final Condition _notEmpty = _lock.newCondition();
+
+  // all the state below is guarded by _lock
+  private final Map<OpChainId, OpChain> _aliveChains = new HashMap<>();
+  private final Map<Long, QueryState> _queries = new HashMap<>();
+  private final Set<OpChainId> _seenMail = new HashSet<>();
+  private final Map<OpChainId, Long> _available = new HashMap<>();
+  // queries with ready OpChains, ordered by virtual runtime
+  private final PriorityQueue<QueryState> _readyQueries = new PriorityQueue<>(
+      Comparator.comparingLong((QueryState queryState) -> queryState._virtualRuntime)
+          .thenComparingLong(queryState -> queryState._readySequence));
+  private long _virtualTime;
+  private long _readySequence;
+  private int _numReadyChains;
+
+  private final ScheduledExecutorService _availableOpChainReleaseService;
+
+  public FairPriorityScheduler(long releaseTimeoutMs) {
+    this(releaseTimeoutMs, System::currentTimeMillis);
+  }
+
+  FairPriorityScheduler(long releaseTimeoutMs, Supplier<Long> ticker) {
+    Preconditions.checkArgument(releaseTimeoutMs > 0, "Release timeout for fair priority scheduler should be > 0ms");
+    _releaseTimeoutMs = releaseTimeoutMs;
+    _ticker = ticker;
+    _availableOpChainReleaseService = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r);
+      t.setName(AVAILABLE_RELEASE_THREAD_NAME);
+      t.setDaemon(true);
+      return t;
+    });
+    _availableOpChainReleaseService.scheduleAtFixedRate(this::releaseTimedOutOpChains, _releaseTimeoutMs,
+        _releaseTimeoutMs, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void register(OpChain operatorChain) {
+    register(operatorChain, DEFAULT_PRIORITY);
+  }
+
+  @Override
+  public void register(OpChain operatorChain, int priority) {
+    OpChainId chainId = operatorChain.getId();
+    _lock.lock();
+    try {
+      Preconditions.checkState(!_aliveChains.containsKey(chainId),
+          String.format("Tried to re-register op-chain: %s", chainId));
+      _aliveChains.put(chainId, operatorChain);
+      QueryState queryState = _queries.computeIfAbsent(chainId.getRequestId(), QueryState::new);
+      // the priority is the same for all the OpChains of a query
+      queryState._priority = Math.max(MIN_PRIORITY, Math.min(MAX_PRIORITY, priority));
+      queryState._numAliveChains++;
+      markReady(operatorChain);
+    } finally {
+      _lock.unlock();
+    }
+    LOGGER.trace("Registered {}", operatorChain);
+  }
+
+  @Override
+  public void deregister(OpChain operatorChain) {
+    OpChainId chainId = operatorChain.getId();
+    _lock.lock();
+    try {
+      Preconditions.checkState(_aliveChains.containsKey(chainId), "Tried to de-register an un-registered op-chain");
+      _aliveChains.remove(chainId);
+      // it could be that the onDataAvailable callback was called when the OpChain was executing, in which case there
+      // could be a dangling entry in _seenMail.
+      _seenMail.remove(chainId);
+      QueryState queryState = _queries.get(chainId.getRequestId());
+      if (--queryState._numAliveChains == 0) {
+        _queries.remove(chainId.getRequestId());
+      }
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  @Override
+  public void yield(OpChain operatorChain) {
+    long releaseTs = _ticker.get() + _releaseTimeoutMs;
+    OpChainId chainId = operatorChain.getId();
+    _lock.lock();
+    try {
+      // It could be that this OpChain received data before it could be yielded completely. In that case, mark it ready
+      // to get it scheduled asap.
+      if (_seenMail.remove(chainId)) {
+        markReady(operatorChain);
+      } else {
+        _available.put(chainId, releaseTs);
+      }
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  @Override
+  public void onDataAvailable(MailboxIdentifier mailbox) {
+    OpChainId chainId = new OpChainId(Long.parseLong(mailbox.getJobId().split("_")[0]),
+        mailbox.getToHost().virtualId(), mailbox.getReceiverStageId());
+    _lock.lock();
+    try {
+      // If this chain isn't alive as per the scheduler, don't do anything. If the OpChain is registered after this, it
+      // will anyways be scheduled to run since new OpChains are run immediately.
+      OpChain operatorChain = _aliveChains.get(chainId);
+      if (operatorChain == null) {
+        return;
+      }
+      if (_available.remove(chainId) != null) {
+        markReady(operatorChain);
+      } else {
+        // The OpChain is either ready or running, make sure it is run again after it yields
+        _seenMail.add(chainId);
+      }
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  @Nullable
+  @Override
+  public OpChain next(long time, TimeUnit timeUnit)
+      throws InterruptedException {
+    long remainingNs = timeUnit.toNanos(time);
+    _lock.lockInterruptibly();
+    try {
+      while (_readyQueries.isEmpty()) {
+        if (remainingNs <= 0) {
+          return null;
+        }
+        remainingNs = _notEmpty.awaitNanos(remainingNs);
+      }
+      QueryState queryState = _readyQueries.poll();
+      OpChain operatorChain = queryState._readyChains.poll();
+      _numReadyChains--;
+      _virtualTime = queryState._virtualRuntime;
+      queryState._virtualRuntime += 1L << (MAX_PRIORITY - queryState._priority);
+      if (!queryState._readyChains.isEmpty()) {
+        _readyQueries.offer(queryState);
+      }
+      // the data received while the OpChain was waiting to run will be processed by this run
+      _seenMail.remove(operatorChain.getId());
+      return operatorChain;
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    _lock.lock();
+    try {
+      return _aliveChains.size();
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  @Override
+  public void shutdownNow() {
+    _availableOpChainReleaseService.shutdownNow();
+  }
+
+  private void markReady(OpChain operatorChain) {
+    QueryState queryState = _queries.get(operatorChain.getId().getRequestId());
+    if (queryState._readyChains.isEmpty()) {
+      queryState._virtualRuntime = Math.max(queryState._virtualRuntime, _virtualTime);
+      queryState._readySequence = _readySequence++;
+      _readyQueries.offer(queryState);
+    }
+    queryState._readyChains.offer(operatorChain);
+    _numReadyChains++;
+    operatorChain.getStats().ready();
+    _notEmpty.signal();
+  }
+
+  private void releaseTimedOutOpChains() {
+    long now = _ticker.get();
+    _lock.lock();
+    try {
+      List<OpChainId> timedOutWaiting = new ArrayList<>();
+      for (Map.Entry<OpChainId, Long> entry : _available.entrySet()) {
+        if (now > entry.getValue()) {
+          timedOutWaiting.add(entry.getKey());
+        }
+      }
+      for (OpChainId chainId : timedOutWaiting) {
+        _available.remove(chainId);
+        markReady(_aliveChains.get(chainId));
+      }
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  @VisibleForTesting
+  int readySize() {
+    _lock.lock();
+    try {
+      return _numReadyChains;
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  @VisibleForTesting
+  int availableSize() {
+    _lock.lock();
+    try {
+      return _available.size();
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  @VisibleForTesting
+  int seenMailSize() {
+    _lock.lock();
+    try {
+      return _seenMail.size();
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  @VisibleForTesting
+  int queriesSize() {
+    _lock.lock();
+    try {
+      return _queries.size();
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  private static class QueryState {
+    final long _requestId;
+    final Deque<OpChain> _readyChains = new ArrayDeque<>();
+    int _priority;
+    int _numAliveChains;
+    long _virtualRuntime;
+    long _readySequence;
+
+    QueryState(long requestId) {
+      _requestId = requestId;
+    }
+  }
+}
@@ -30,12 +30,27 @@ import org.apache.pinot.query.runtime.operator.OpChain;
  */
 @ThreadSafe
 public interface OpChainScheduler {
+  /**
+   * Priority of the OpChains registered without an explicit priority.
+   */
+  int DEFAULT_PRIORITY = 0;
+
   /**
    * Registers a new OpChain with the scheduler.
    * @param operatorChain the operator chain to register
    */
   void register(OpChain operatorChain);
 
+  /**
+   * Registers a new OpChain with the scheduler, with the priority of its query. Schedulers that don't prioritize
+   * queries ignore the priority.
+   * @param operatorChain the operator chain to register
+   * @param priority the priority of the query of the operator chain, higher values are scheduled more often
+   */
+  default void register(OpChain operatorChain, int priority) {
+    register(operatorChain);
+  }
+
   /**
    * When the OpChain is finished, error or otherwise, deregister is called for it so the scheduler can do any required
    * cleanup. After an OpChain is de-registered, the scheduler service will never call any other method for it.
@@ -135,8 +135,18 @@ public class OpChainSchedulerService extends AbstractExecutionThreadService {
    * @param operatorChain the chain to register
    */
   public final void register(OpChain operatorChain) {
+    register(operatorChain, OpChainScheduler.DEFAULT_PRIORITY);
+  }
+
+  /**
+   * Register a new operator chain with the scheduler.
+   *
+   * @param operatorChain the chain to register
+   * @param priority the priority of the query of the chain
+   */
+  public final void register(OpChain operatorChain, int priority) {
     operatorChain.getStats().queued();
-    _scheduler.register(operatorChain);
+    _scheduler.register(operatorChain, priority);
     LOGGER.debug("({}): Scheduler is now handling operator chain listening to mailboxes {}. "
             + "There are a total of {} chains awaiting execution.",
         operatorChain,
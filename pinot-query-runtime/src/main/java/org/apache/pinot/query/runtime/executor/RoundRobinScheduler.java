@@ -135,7 +135,7 @@ public class RoundRobinScheduler implements OpChainScheduler {
         try {
           if (_available.containsKey(opChainId)) {
             _available.remove(opChainId);
-            _ready.offer(_aliveChains.get(opChainId));
+            markReady(_aliveChains.get(opChainId));
           }
         } finally {
           _lock.unlock();
@@ -151,7 +151,7 @@ public class RoundRobinScheduler implements OpChainScheduler {
     _lock.lock();
     try {
       _aliveChains.put(operatorChain.getId(), operatorChain);
-      _ready.offer(operatorChain);
+      markReady(operatorChain);
     } finally {
       _lock.unlock();
     }
@@ -183,7 +183,7 @@ public class RoundRobinScheduler implements OpChainScheduler {
       // to get it scheduled asap.
       if (_seenMail.contains(operatorChain.getId())) {
         _seenMail.remove(operatorChain.getId());
-        _ready.add(operatorChain);
+        markReady(operatorChain);
         return;
       }
       _available.put(operatorChain.getId(), releaseTs);
@@ -210,7 +210,7 @@ public class RoundRobinScheduler implements OpChainScheduler {
       }
       if (_available.containsKey(opChainId)) {
         _available.remove(opChainId);
-        _ready.offer(_aliveChains.get(opChainId));
+        markReady(_aliveChains.get(opChainId));
       } else {
         // There are two cases here:
         // 1. OpChain is in the _ready queue: the next time it gets polled, we'll remove the _seenMail entry.
@@ -260,6 +260,11 @@ public class RoundRobinScheduler implements OpChainScheduler {
     return _aliveChains.size();
   }
 
+  private void markReady(OpChain operatorChain) {
+    operatorChain.getStats().ready();
+    _ready.offer(operatorChain);
+  }
+
   private void trace(String operation) {
     LOGGER.trace("({}) Ready: {}, Available: {}, Mail: {}",
         operation, _ready, _available, _seenMail);
@@ -21,10 +21,16 @@ package org.apache.pinot.query.runtime.operator;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -38,6 +44,8 @@ import org.apache.pinot.query.planner.logical.RexExpression;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
 import org.apache.pinot.query.runtime.operator.utils.AggregationUtils;
+import org.apache.pinot.query.runtime.operator.utils.PrimitiveAccumulator;
+import org.apache.pinot.query.runtime.operator.utils.SpilledRowsFile;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
 import org.apache.pinot.segment.local.customobject.PinotFourthMoment;
 import org.slf4j.Logger;
@@ -57,10 +65,19 @@ import org.slf4j.LoggerFactory;
  *
  * Note: This class performs aggregation over the double value of input.
  * If the input is single value, the output type will be input type. Otherwise, the output type will be double.
+ *
+ * SUM/COUNT/MIN/MAX over numeric input are accumulated into primitive arrays indexed by group id. When all the
+ * aggregations are accumulated this way (or for distinct), the number of groups held in memory is bounded: once it
+ * exceeds the limit, the partial aggregates are spilled to disk partitioned by group key, and each partition is
+ * re-aggregated on its own after the input is exhausted. A partition that does not fit in memory either is split again
+ * with a different hash of the group key, up to {@link #MAX_SPILL_LEVEL} times.
  */
 public class AggregateOperator extends MultiStageOperator {
   private static final String EXPLAIN_NAME = "AGGREGATE_OPERATOR";
   private static final Logger LOGGER = LoggerFactory.getLogger(AggregateOperator.class);
+  private static final int NUM_SPILL_PARTITIONS = 16;
+  private static final int MAX_SPILL_LEVEL = 8;
+  private static final String SPILL_FILE_PREFIX = "pinot-agg-partition-";
 
   private final MultiStageOperator _inputOperator;
 
@@ -70,7 +87,20 @@ public class AggregateOperator extends MultiStageOperator {
 
   private final DataSchema _resultSchema;
   private final AggregateAccumulator[] _accumulators;
-  private final Map<Key, Object[]> _groupByKeyHolder;
+  // primitive version of each accumulator, or null if the aggregation does not support it
+  private final PrimitiveAccumulator[] _primitiveAccumulators;
+  private final Object2IntOpenHashMap<Key> _groupIdMap;
+  private final List<Key> _groupKeys;
+  private final int _maxGroupsInMemory;
+  // schema of the spilled partial aggregates (group by keys followed by the partial aggregates), null if the groups
+  // cannot be spilled
+  private final DataSchema _spillSchema;
+  // first column of the partial aggregate of each aggregation in the spilled rows
+  private final int[] _partialResultOffsets;
+  // partitions written by the current pass over the input or over a spilled partition, null if nothing was spilled
+  private SpilledRowsFile[] _spillingPartitions;
+  // spilled partitions left to re-aggregate, null if no groups have been spilled
+  private Deque<SpilledPartition> _spilledPartitions;
   private TransferableBlock _upstreamErrorBlock;
 
   private boolean _readyToConstruct;
@@ -90,6 +120,14 @@ public class AggregateOperator extends MultiStageOperator {
   AggregateOperator(OpChainExecutionContext context, MultiStageOperator inputOperator, DataSchema dataSchema,
       List<RexExpression> aggCalls, List<RexExpression> groupSet, DataSchema inputSchema,
       Map<String, Function<DataSchema.ColumnDataType, AggregationUtils.Merger>> mergers) {
+    this(context, inputOperator, dataSchema, aggCalls, groupSet, inputSchema, mergers,
+        context.getSpillConfig().getAggregateMaxGroupsInMemory());
+  }
+
+  @VisibleForTesting
+  AggregateOperator(OpChainExecutionContext context, MultiStageOperator inputOperator, DataSchema dataSchema,
+      List<RexExpression> aggCalls, List<RexExpression> groupSet, DataSchema inputSchema,
+      Map<String, Function<DataSchema.ColumnDataType, AggregationUtils.Merger>> mergers, int maxGroupsInMemory) {
     super(context);
     _inputOperator = inputOperator;
     _groupSet = groupSet;
@@ -99,6 +137,8 @@ public class AggregateOperator extends MultiStageOperator {
     _aggCalls = aggCalls.stream().map(RexExpression.FunctionCall.class::cast).collect(Collectors.toList());
 
     _accumulators = new AggregateAccumulator[_aggCalls.size()];
+    _primitiveAccumulators = new PrimitiveAccumulator[_aggCalls.size()];
+    boolean isSpillable = true;
     for (int i = 0; i < _aggCalls.size(); i++) {
       RexExpression.FunctionCall agg = _aggCalls.get(i);
       String functionName = agg.getFunctionName();
@@ -106,9 +146,21 @@ public class AggregateOperator extends MultiStageOperator {
         throw new IllegalStateException("Unexpected value: " + functionName);
       }
       _accumulators[i] = new AggregateAccumulator(agg, mergers, functionName, inputSchema);
+      _primitiveAccumulators[i] = PrimitiveAccumulator.create(_accumulators[i], functionName, mergers);
+      isSpillable &= _primitiveAccumulators[i] != null;
+    }
+    if (isSpillable) {
+      _partialResultOffsets = new int[_aggCalls.size()];
+      _spillSchema = getSpillSchema(groupSet, inputSchema, _primitiveAccumulators, _partialResultOffsets);
+    } else {
+      _partialResultOffsets = null;
+      _spillSchema = null;
     }
 
-    _groupByKeyHolder = new HashMap<>();
+    _groupIdMap = new Object2IntOpenHashMap<>();
+    _groupIdMap.defaultReturnValue(-1);
+    _groupKeys = new ArrayList<>();
+    _maxGroupsInMemory = maxGroupsInMemory;
     _resultSchema = dataSchema;
     _readyToConstruct = false;
     _hasReturnedAggregateBlock = false;
@@ -119,6 +171,18 @@ public class AggregateOperator extends MultiStageOperator {
     return ImmutableList.of(_inputOperator);
   }
 
+  @Override
+  public void close() {
+    super.close();
+    deleteSpilledPartitions();
+  }
+
+  @Override
+  public void cancel(Throwable e) {
+    super.cancel(e);
+    deleteSpilledPartitions();
+  }
+
   @Nullable
   @Override
   public String toExplainString() {
@@ -136,7 +200,9 @@ public class AggregateOperator extends MultiStageOperator {
         return _upstreamErrorBlock;
       }
 
-      if (!_hasReturnedAggregateBlock) {
+      if (_spilledPartitions != null) {
+        return produceAggregatedBlockFromSpilledPartitions();
+      } else if (!_hasReturnedAggregateBlock) {
         return produceAggregatedBlock();
       } else {
         // TODO: Move to close call.
@@ -148,16 +214,7 @@ public class AggregateOperator extends MultiStageOperator {
   }
 
   private TransferableBlock produceAggregatedBlock() {
-    List<Object[]> rows = new ArrayList<>(_groupByKeyHolder.size());
-    for (Map.Entry<Key, Object[]> e : _groupByKeyHolder.entrySet()) {
-      Object[] row = new Object[_aggCalls.size() + _groupSet.size()];
-      Object[] keyElements = e.getValue();
-      System.arraycopy(keyElements, 0, row, 0, keyElements.length);
-      for (int i = 0; i < _accumulators.length; i++) {
-        row[i + _groupSet.size()] = _accumulators[i].getResults().get(e.getKey());
-      }
-      rows.add(row);
-    }
+    List<Object[]> rows = buildAggregatedRows();
 
     _hasReturnedAggregateBlock = true;
     if (rows.size() == 0) {
@@ -171,6 +228,76 @@ public class AggregateOperator extends MultiStageOperator {
     }
   }
 
+  private List<Object[]> buildAggregatedRows() {
+    int numGroups = _groupKeys.size();
+    List<Object[]> rows = new ArrayList<>(numGroups);
+    for (int groupId = 0; groupId < numGroups; groupId++) {
+      Object[] row = new Object[_aggCalls.size() + _groupSet.size()];
+      Key key = _groupKeys.get(groupId);
+      Object[] keyElements = key.getValues();
+      System.arraycopy(keyElements, 0, row, 0, keyElements.length);
+      for (int i = 0; i < _accumulators.length; i++) {
+        row[i + _groupSet.size()] = _primitiveAccumulators[i] != null ? _primitiveAccumulators[i].getResult(groupId)
+            : _accumulators[i].getResults().get(key);
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  /**
+   * Re-aggregates the partial aggregates of the next non-empty spilled partition, and returns EOS once all the
+   * partitions have been processed. A partition with more groups than fit in memory is split into smaller partitions
+   * which are re-aggregated next.
+   */
+  private TransferableBlock produceAggregatedBlockFromSpilledPartitions()
+      throws IOException {
+    while (!_spilledPartitions.isEmpty()) {
+      SpilledPartition partition = _spilledPartitions.poll();
+      int level = partition._level;
+      boolean canSplit = level < MAX_SPILL_LEVEL;
+      try {
+        Iterator<Object[]> partialRows = partition._file.read();
+        int numKeys = _groupSet.size();
+        while (partialRows.hasNext()) {
+          Object[] partialRow = partialRows.next();
+          Key key = new Key(Arrays.copyOf(partialRow, numKeys));
+          int groupId = _groupIdMap.getInt(key);
+          boolean isNewGroup = groupId == -1;
+          if (isNewGroup) {
+            if (canSplit && _groupKeys.size() >= _maxGroupsInMemory) {
+              spillGroups(level + 1);
+            }
+            groupId = addGroup(key);
+          }
+          for (int i = 0; i < _primitiveAccumulators.length; i++) {
+            _primitiveAccumulators[i].mergePartialResult(groupId, partialRow, _partialResultOffsets[i], isNewGroup);
+          }
+        }
+      } finally {
+        partition._file.close();
+      }
+      if (_spillingPartitions != null) {
+        // the partition was split, re-aggregate the smaller partitions first
+        spillGroups(level + 1);
+        finishSpilling(level + 1);
+        continue;
+      }
+      if (!canSplit && _groupKeys.size() > _maxGroupsInMemory) {
+        LOGGER.warn("Re-aggregated {} groups in memory after splitting the spilled partition {} times",
+            _groupKeys.size(), level);
+      }
+      if (!_groupKeys.isEmpty()) {
+        List<Object[]> rows = buildAggregatedRows();
+        clearGroups();
+        return new TransferableBlock(rows, _resultSchema, DataBlock.Type.ROW);
+      }
+    }
+    _spilledPartitions = null;
+    _hasReturnedAggregateBlock = true;
+    return TransferableBlockUtils.getEndOfStreamTransferableBlock();
+  }
+
   /**
    * @return an empty agg result block for non-group-by aggregation.
    */
@@ -185,7 +312,8 @@ public class AggregateOperator extends MultiStageOperator {
   /**
    * @return whether or not the operator is ready to move on (EOS or ERROR)
    */
-  private boolean consumeInputBlocks() {
+  private boolean consumeInputBlocks()
+      throws IOException {
     TransferableBlock block = _inputOperator.nextBlock();
     while (!block.isNoOpBlock()) {
       // setting upstream error block
@@ -193,16 +321,32 @@ public class AggregateOperator extends MultiStageOperator {
         _upstreamErrorBlock = block;
         return true;
       } else if (block.isEndOfStreamBlock()) {
+        if (_spillingPartitions != null) {
+          // the remaining groups are spilled as well so that each partition can be re-aggregated on its own
+          spillGroups(0);
+          finishSpilling(0);
+        }
         _readyToConstruct = true;
         return true;
       }
 
-      List<Object[]> container = block.getContainer();
+      List<Object[]> container = block.getRows();
       for (Object[] row : container) {
         Key key = AggregationUtils.extractRowKey(row, _groupSet);
-        _groupByKeyHolder.put(key, key.getValues());
+        int groupId = _groupIdMap.getInt(key);
+        boolean isNewGroup = groupId == -1;
+        if (isNewGroup) {
+          if (_spillSchema != null && _groupKeys.size() >= _maxGroupsInMemory) {
+            spillGroups(0);
+          }
+          groupId = addGroup(key);
+        }
         for (int i = 0; i < _aggCalls.size(); i++) {
-          _accumulators[i].accumulate(key, row);
+          if (_primitiveAccumulators[i] != null) {
+            _primitiveAccumulators[i].accumulate(groupId, row, isNewGroup);
+          } else {
+            _accumulators[i].accumulate(key, row);
+          }
         }
       }
       block = _inputOperator.nextBlock();
@@ -210,6 +354,136 @@ public class AggregateOperator extends MultiStageOperator {
     return false;
   }
 
+  private int addGroup(Key key) {
+    int groupId = _groupKeys.size();
+    _groupIdMap.put(key, groupId);
+    _groupKeys.add(key);
+    return groupId;
+  }
+
+  private void clearGroups() {
+    _groupIdMap.clear();
+    _groupKeys.clear();
+    for (PrimitiveAccumulator accumulator : _primitiveAccumulators) {
+      accumulator.clear();
+    }
+  }
+
+  /**
+   * Spills the partial aggregates of all the groups in memory, partitioned by group key, and clears them.
+   *
+   * @param level number of times the groups have been spilled before, which selects the hash of the group key so that
+   *              a partition spilled again is split into different partitions
+   */
+  private void spillGroups(int level)
+      throws IOException {
+    if (_spillingPartitions == null) {
+      _spillingPartitions = new SpilledRowsFile[NUM_SPILL_PARTITIONS];
+    }
+    List<List<Object[]>> partitionedRows = new ArrayList<>(NUM_SPILL_PARTITIONS);
+    for (int i = 0; i < NUM_SPILL_PARTITIONS; i++) {
+      partitionedRows.add(new ArrayList<>());
+    }
+    int numKeys = _groupSet.size();
+    int numColumns = _spillSchema.size();
+    int numGroups = _groupKeys.size();
+    for (int groupId = 0; groupId < numGroups; groupId++) {
+      Key key = _groupKeys.get(groupId);
+      Object[] partialRow = Arrays.copyOf(key.getValues(), numColumns);
+      for (int i = 0; i < _primitiveAccumulators.length; i++) {
+        _primitiveAccumulators[i].getPartialResult(groupId, partialRow, _partialResultOffsets[i]);
+      }
+      int partitionId = (HashCommon.murmurHash3(key.hashCode() + level) & Integer.MAX_VALUE) % NUM_SPILL_PARTITIONS;
+      partitionedRows.get(partitionId).add(partialRow);
+    }
+    for (int i = 0; i < NUM_SPILL_PARTITIONS; i++) {
+      List<Object[]> rows = partitionedRows.get(i);
+      if (!rows.isEmpty()) {
+        if (_spillingPartitions[i] == null) {
+          _spillingPartitions[i] = new SpilledRowsFile(_context.getSpillConfig().getSpillDir(), SPILL_FILE_PREFIX,
+              _spillSchema);
+        }
+        _spillingPartitions[i].append(rows);
+      }
+    }
+    LOGGER.debug("Spilled {} groups to disk at level {}", numGroups, level);
+    clearGroups();
+  }
+
+  /**
+   * Queues the partitions written by the current pass to be re-aggregated before the previously queued ones, which
+   * bounds the number of spilled files.
+   */
+  private void finishSpilling(int level) {
+    if (_spilledPartitions == null) {
+      _spilledPartitions = new ArrayDeque<>();
+    }
+    for (int i = NUM_SPILL_PARTITIONS - 1; i >= 0; i--) {
+      if (_spillingPartitions[i] != null) {
+        _spilledPartitions.addFirst(new SpilledPartition(_spillingPartitions[i], level));
+      }
+    }
+    _spillingPartitions = null;
+  }
+
+  private void deleteSpilledPartitions() {
+    if (_spillingPartitions != null) {
+      for (SpilledRowsFile partition : _spillingPartitions) {
+        if (partition != null) {
+          deleteSpilledPartition(partition);
+        }
+      }
+      _spillingPartitions = null;
+    }
+    if (_spilledPartitions != null) {
+      for (SpilledPartition partition : _spilledPartitions) {
+        deleteSpilledPartition(partition._file);
+      }
+      _spilledPartitions = null;
+    }
+  }
+
+  private static void deleteSpilledPartition(SpilledRowsFile partition) {
+    try {
+      partition.close();
+    } catch (IOException e) {
+      LOGGER.warn("Failed to clean up spilled aggregation partition", e);
+    }
+  }
+
+  private static DataSchema getSpillSchema(List<RexExpression> groupSet, DataSchema inputSchema,
+      PrimitiveAccumulator[] accumulators, int[] partialResultOffsets) {
+    int numKeys = groupSet.size();
+    List<String> columnNames = new ArrayList<>();
+    List<DataSchema.ColumnDataType> columnDataTypes = new ArrayList<>();
+    for (int i = 0; i < numKeys; i++) {
+      int index = ((RexExpression.InputRef) groupSet.get(i)).getIndex();
+      columnNames.add(inputSchema.getColumnName(index));
+      columnDataTypes.add(inputSchema.getColumnDataType(index));
+    }
+    for (int i = 0; i < accumulators.length; i++) {
+      partialResultOffsets[i] = columnNames.size();
+      DataSchema.ColumnDataType[] partialResultColumnDataTypes = accumulators[i].getPartialResultColumnDataTypes();
+      for (int j = 0; j < partialResultColumnDataTypes.length; j++) {
+        columnNames.add("partial" + i + "_" + j);
+        columnDataTypes.add(partialResultColumnDataTypes[j]);
+      }
+    }
+    return new DataSchema(columnNames.toArray(new String[0]),
+        columnDataTypes.toArray(new DataSchema.ColumnDataType[0]));
+  }
+
+  private static class SpilledPartition {
+    final SpilledRowsFile _file;
+    // number of times the groups of the partition have been spilled
+    final int _level;
+
+    SpilledPartition(SpilledRowsFile file, int level) {
+      _file = file;
+      _level = level;
+    }
+  }
+
   // NOTE: the below two classes are needed depending on where the
   // fourth moment is being executed - if the leaf stage gets a
   // fourth moment pushed down to it, it will return a PinotFourthMoment
@@ -97,6 +97,9 @@ public class FilterOperator extends MultiStageOperator {
       return block;
     }
 
+    if (block.getType() == DataBlock.Type.COLUMNAR) {
+      return filterColumnar(block);
+    }
     List<Object[]> resultRows = new ArrayList<>();
     List<Object[]> container = block.getContainer();
     for (Object[] row : container) {
@@ -106,4 +109,37 @@ public class FilterOperator extends MultiStageOperator {
     }
     return new TransferableBlock(resultRows, _dataSchema, DataBlock.Type.ROW);
   }
+
+  /**
+   * Filters a columnar block without materializing its rows: a single row buffer is reused to evaluate the filter on
+   * each row, and the columns are compacted to the matching row ids.
+   */
+  private TransferableBlock filterColumnar(TransferableBlock block) {
+    List<Object[]> columns = block.getContainer();
+    int numColumns = columns.size();
+    int numRows = block.getNumRows();
+    int[] matchingRowIds = new int[numRows];
+    int numMatchingRows = 0;
+    Object[] row = new Object[numColumns];
+    for (int rowId = 0; rowId < numRows; rowId++) {
+      for (int colId = 0; colId < numColumns; colId++) {
+        row[colId] = columns.get(colId)[rowId];
+      }
+      if ((Boolean) FunctionInvokeUtils.convert(_filterOperand.apply(row), DataSchema.ColumnDataType.BOOLEAN)) {
+        matchingRowIds[numMatchingRows++] = rowId;
+      }
+    }
+    if (numMatchingRows == numRows) {
+      return new TransferableBlock(columns, _dataSchema, DataBlock.Type.COLUMNAR);
+    }
+    List<Object[]> resultColumns = new ArrayList<>(numColumns);
+    for (Object[] column : columns) {
+      Object[] resultColumn = new Object[numMatchingRows];
+      for (int i = 0; i < numMatchingRows; i++) {
+        resultColumn[i] = column[matchingRowIds[i]];
+      }
+      resultColumns.add(resultColumn);
+    }
+    return new TransferableBlock(resultColumns, _dataSchema, DataBlock.Type.COLUMNAR);
+  }
 }
@@ -21,36 +21,49 @@ package org.apache.pinot.query.runtime.operator;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import it.unimi.dsi.fastutil.HashCommon;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
 import org.apache.calcite.rel.core.JoinRelType;
 import org.apache.pinot.common.datablock.DataBlock;
 import org.apache.pinot.common.utils.DataSchema;
-import org.apache.pinot.core.data.table.Key;
 import org.apache.pinot.query.planner.logical.RexExpression;
+import org.apache.pinot.query.planner.partitioning.FieldSelectionKeySelector;
 import org.apache.pinot.query.planner.partitioning.KeySelector;
 import org.apache.pinot.query.planner.stage.JoinNode;
+import org.apache.pinot.query.planner.stage.MailboxReceiveNode;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
 import org.apache.pinot.query.runtime.operator.operands.TransformOperand;
 import org.apache.pinot.query.runtime.operator.utils.FunctionInvokeUtils;
+import org.apache.pinot.query.runtime.operator.utils.JoinHashTable;
+import org.apache.pinot.query.runtime.operator.utils.RuntimeFilterUtils;
+import org.apache.pinot.query.runtime.operator.utils.SpilledRowsFile;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 /**
  * This basic {@code BroadcastJoinOperator} implement a basic broadcast join algorithm.
- * This algorithm assumes that the broadcast table has to fit in memory since we are not supporting any spilling.
  *
  * For left join, inner join, right join and full join,
  * <p>It takes the right table as the broadcast side and materialize a hash table. Then for each of the left table row,
  * it looks up for the corresponding row(s) from the hash table and create a joint row.
+ * <p>The hash table is a {@link JoinHashTable} which addresses the right rows by dense row ids, so that the matched
+ * right rows for right join and full join can be tracked with a bitmap.
+ *
+ * <p>When the right table exceeds the memory budget of the join, it falls back to a grace hash join: the right rows
+ * and then all the left rows are partitioned by join key into files on disk, and each pair of partitions is joined on
+ * its own with the same algorithm, so that only the right rows of one partition are held in memory at a time.
  *
  * <p>For each of the data block received from the left table, it will generate a joint data block.
  * We currently support left join, inner join, right join and full join.
@@ -61,20 +74,28 @@ public class HashJoinOperator extends MultiStageOperator {
   private static final String EXPLAIN_NAME = "HASH_JOIN";
   private static final Logger LOGGER = LoggerFactory.getLogger(AggregateOperator.class);
 
+  private static final int NUM_SPILL_PARTITIONS = 16;
+  private static final String LEFT_SPILL_FILE_PREFIX = "pinot-join-left-";
+  private static final String RIGHT_SPILL_FILE_PREFIX = "pinot-join-right-";
+  // Maximum number of left rows joined per output block when joining the spilled partitions
+  private static final int MAX_SPILLED_LEFT_ROWS_PER_BLOCK = 10_000;
+
   private static final Set<JoinRelType> SUPPORTED_JOIN_TYPES = ImmutableSet.of(
       JoinRelType.INNER, JoinRelType.LEFT, JoinRelType.RIGHT, JoinRelType.FULL, JoinRelType.SEMI, JoinRelType.ANTI);
 
-  private final HashMap<Key, List<Object[]>> _broadcastRightTable;
+  private JoinHashTable _broadcastRightTable;
 
-  // Used to track matched right rows.
+  // Used to track matched right row ids.
   // Only used for right join and full join to output non-matched right rows.
-  // TODO: Replace hashset with rolling bit map.
-  private final HashMap<Key, HashSet<Integer>> _matchedRightRows;
+  private final RoaringBitmap _matchedRightRows;
 
   private final MultiStageOperator _leftTableOperator;
   private final MultiStageOperator _rightTableOperator;
   private final JoinRelType _joinType;
   private final DataSchema _resultSchema;
+  private final DataSchema _leftSchema;
+  private final DataSchema.ColumnDataType[] _keyColumnDataTypes;
+  private final int _maxRowsInMemory;
   private final int _leftRowSize;
   private final int _resultRowSize;
   private final List<TransformOperand> _joinClauseEvaluators;
@@ -88,6 +109,20 @@ public class HashJoinOperator extends MultiStageOperator {
   private KeySelector<Object[], Object[]> _leftKeySelector;
   private KeySelector<Object[], Object[]> _rightKeySelector;
 
+  // Stage id of the leaf stage on the left side to publish the runtime filter to, or -1 if the runtime filter is not
+  // enabled or already published.
+  private int _runtimeFilterStageId;
+  private final DataSchema _runtimeFilterSchema;
+
+  // Right and left rows partitioned by join key when the right table does not fit in memory, null otherwise
+  private SpilledRowsFile[] _spilledRightPartitions;
+  private SpilledRowsFile[] _spilledLeftPartitions;
+  private DataSchema _rightSchema;
+  private boolean _isLeftTableSpilled;
+  private int _nextSpilledPartitionId;
+  // Left rows of the spilled partition being joined, null if no partition is loaded
+  private Iterator<Object[]> _spilledLeftRows;
+
   public HashJoinOperator(OpChainExecutionContext context, MultiStageOperator leftTableOperator,
       MultiStageOperator rightTableOperator, DataSchema leftSchema, JoinNode node) {
     super(context);
@@ -98,6 +133,9 @@ public class HashJoinOperator extends MultiStageOperator {
     _rightKeySelector = node.getJoinKeys().getRightJoinKeySelector();
     Preconditions.checkState(_leftKeySelector != null, "LeftKeySelector for join cannot be null");
     Preconditions.checkState(_rightKeySelector != null, "RightKeySelector for join cannot be null");
+    _leftSchema = leftSchema;
+    _keyColumnDataTypes = getKeyColumnDataTypes(_leftKeySelector, leftSchema);
+    _maxRowsInMemory = context.getSpillConfig().getJoinMaxRowsInMemory();
     _leftRowSize = leftSchema.size();
     Preconditions.checkState(_leftRowSize > 0, "leftRowSize has to be greater than zero:" + _leftRowSize);
     _resultSchema = node.getDataSchema();
@@ -111,13 +149,20 @@ public class HashJoinOperator extends MultiStageOperator {
       _joinClauseEvaluators.add(TransformOperand.toTransformOperand(joinClause, _resultSchema));
     }
     _isHashTableBuilt = false;
-    _broadcastRightTable = new HashMap<>();
+    _broadcastRightTable = JoinHashTable.create(_rightKeySelector, _leftKeySelector, _keyColumnDataTypes);
     if (needUnmatchedRightRows()) {
-      _matchedRightRows = new HashMap<>();
+      _matchedRightRows = new RoaringBitmap();
     } else {
       _matchedRightRows = null;
     }
     _upstreamErrorBlock = null;
+    if (node.isRuntimeFilterEnabled()) {
+      _runtimeFilterStageId = ((MailboxReceiveNode) node.getInputs().get(0)).getSenderStageId();
+      _runtimeFilterSchema = getKeySchema(_rightKeySelector, node.getInputs().get(1).getDataSchema());
+    } else {
+      _runtimeFilterStageId = -1;
+      _runtimeFilterSchema = null;
+    }
   }
 
   // TODO: Separate left and right table operator.
@@ -126,6 +171,18 @@ public class HashJoinOperator extends MultiStageOperator {
     return ImmutableList.of(_leftTableOperator, _rightTableOperator);
   }
 
+  @Override
+  public void close() {
+    super.close();
+    deleteSpilledPartitions();
+  }
+
+  @Override
+  public void cancel(Throwable e) {
+    super.cancel(e);
+    deleteSpilledPartitions();
+  }
+
   @Nullable
   @Override
   public String toExplainString() {
@@ -147,6 +204,9 @@ public class HashJoinOperator extends MultiStageOperator {
       } else if (!_isHashTableBuilt) {
         return TransferableBlockUtils.getNoOpTransferableBlock();
       }
+      if (_spilledRightPartitions != null) {
+        return buildJoinedDataBlockFromSpilledPartitions();
+      }
       TransferableBlock leftBlock = _leftTableOperator.nextBlock();
       // JOIN each left block with the right block.
       return buildJoinedDataBlock(leftBlock);
@@ -155,23 +215,35 @@ public class HashJoinOperator extends MultiStageOperator {
     }
   }
 
-  private void buildBroadcastHashTable() {
+  private void buildBroadcastHashTable()
+      throws IOException {
     TransferableBlock rightBlock = _rightTableOperator.nextBlock();
     while (!rightBlock.isNoOpBlock()) {
       if (rightBlock.isErrorBlock()) {
         _upstreamErrorBlock = rightBlock;
+        publishRuntimeFilter(false);
         return;
       }
       if (TransferableBlockUtils.isEndOfStream(rightBlock)) {
         _isHashTableBuilt = true;
+        publishRuntimeFilter(true);
         return;
       }
-      List<Object[]> container = rightBlock.getContainer();
-      // put all the rows into corresponding hash collections keyed by the key selector function.
-      for (Object[] row : container) {
-        List<Object[]> hashCollection =
-            _broadcastRightTable.computeIfAbsent(new Key(_rightKeySelector.getKey(row)), k -> new ArrayList<>());
-        hashCollection.add(row);
+      List<Object[]> container = rightBlock.getRows();
+      if (_spilledRightPartitions != null) {
+        spillRows(_spilledRightPartitions, container, _rightKeySelector, _rightSchema, RIGHT_SPILL_FILE_PREFIX);
+      } else {
+        // put all the rows into corresponding hash collections keyed by the key selector function.
+        for (Object[] row : container) {
+          _broadcastRightTable.addRow(row);
+        }
+        if (_broadcastRightTable.getNumKeys() > RuntimeFilterUtils.MAX_NUM_KEYS) {
+          // Too many keys to filter the left side, let the leaf stage proceed without waiting for the whole right side
+          publishRuntimeFilter(false);
+        }
+        if (_broadcastRightTable.getNumRows() > _maxRowsInMemory) {
+          spillBroadcastHashTable(rightBlock.getDataSchema());
+        }
       }
       rightBlock = _rightTableOperator.nextBlock();
     }
@@ -196,51 +268,35 @@ public class HashJoinOperator extends MultiStageOperator {
     // TODO: Moved to a different function.
     if (leftBlock.isSuccessfulEndOfStreamBlock() && needUnmatchedRightRows()) {
       // Return remaining non-matched rows for non-inner join.
-      List<Object[]> returnRows = new ArrayList<>();
-      for (Map.Entry<Key, List<Object[]>> entry : _broadcastRightTable.entrySet()) {
-        Set<Integer> matchedIdx = _matchedRightRows.getOrDefault(entry.getKey(), new HashSet<>());
-        List<Object[]> rightRows = entry.getValue();
-        if (rightRows.size() == matchedIdx.size()) {
-          continue;
-        }
-        for (int i = 0; i < rightRows.size(); i++) {
-          if (!matchedIdx.contains(i)) {
-            returnRows.add(joinRow(null, rightRows.get(i)));
-          }
-        }
-      }
       _isTerminated = true;
-      return new TransferableBlock(returnRows, _resultSchema, DataBlock.Type.ROW);
+      return new TransferableBlock(getUnmatchedRightRows(), _resultSchema, DataBlock.Type.ROW);
     }
+    List<Object[]> container = leftBlock.isEndOfStreamBlock() ? new ArrayList<>() : leftBlock.getRows();
+    return new TransferableBlock(joinLeftRows(container), _resultSchema, DataBlock.Type.ROW);
+  }
+
+  private List<Object[]> joinLeftRows(List<Object[]> leftRows) {
     List<Object[]> rows = new ArrayList<>();
-    List<Object[]> container = leftBlock.isEndOfStreamBlock() ? new ArrayList<>() : leftBlock.getContainer();
-    for (Object[] leftRow : container) {
-      Key key = new Key(_leftKeySelector.getKey(leftRow));
+    for (Object[] leftRow : leftRows) {
       switch (_joinType) {
         case SEMI:
           // SEMI-JOIN only checks existence of the key
-          if (_broadcastRightTable.containsKey(key)) {
+          if (_broadcastRightTable.containsKey(leftRow)) {
             rows.add(joinRow(leftRow, null));
           }
           break;
         case ANTI:
           // ANTI-JOIN only checks non-existence of the key
-          if (!_broadcastRightTable.containsKey(key)) {
+          if (!_broadcastRightTable.containsKey(leftRow)) {
             rows.add(joinRow(leftRow, null));
           }
           break;
         default: // INNER, LEFT, RIGHT, FULL
           // NOTE: Empty key selector will always give same hash code.
-          List<Object[]> matchedRightRows = _broadcastRightTable.getOrDefault(key, null);
-          if (matchedRightRows == null) {
-            if (needUnmatchedLeftRows()) {
-              rows.add(joinRow(leftRow, null));
-            }
-            continue;
-          }
+          int rightRowId = _broadcastRightTable.getFirstRowId(leftRow);
           boolean hasMatchForLeftRow = false;
-          for (int i = 0; i < matchedRightRows.size(); i++) {
-            Object[] rightRow = matchedRightRows.get(i);
+          for (; rightRowId >= 0; rightRowId = _broadcastRightTable.getNextRowId(rightRowId)) {
+            Object[] rightRow = _broadcastRightTable.getRow(rightRowId);
             // TODO: Optimize this to avoid unnecessary object copy.
             Object[] resultRow = joinRow(leftRow, rightRow);
             if (_joinClauseEvaluators.isEmpty() || _joinClauseEvaluators.stream().allMatch(
@@ -249,8 +305,7 @@ public class HashJoinOperator extends MultiStageOperator {
               rows.add(resultRow);
               hasMatchForLeftRow = true;
               if (_matchedRightRows != null) {
-                HashSet<Integer> matchedRows = _matchedRightRows.computeIfAbsent(key, k -> new HashSet<>());
-                matchedRows.add(i);
+                _matchedRightRows.add(rightRowId);
               }
             }
           }
@@ -260,7 +315,199 @@ public class HashJoinOperator extends MultiStageOperator {
           break;
       }
     }
-    return new TransferableBlock(rows, _resultSchema, DataBlock.Type.ROW);
+    return rows;
+  }
+
+  private List<Object[]> getUnmatchedRightRows() {
+    RoaringBitmap unmatchedRightRows = RoaringBitmap.flip(_matchedRightRows, 0L, _broadcastRightTable.getNumRows());
+    List<Object[]> rows = new ArrayList<>(unmatchedRightRows.getCardinality());
+    PeekableIntIterator iterator = unmatchedRightRows.getIntIterator();
+    while (iterator.hasNext()) {
+      rows.add(joinRow(null, _broadcastRightTable.getRow(iterator.next())));
+    }
+    return rows;
+  }
+
+  /**
+   * Moves the right rows in memory to the spilled right partitions, after which the following right rows are spilled
+   * directly. The runtime filter is not published because the keys are no longer all in memory.
+   */
+  private void spillBroadcastHashTable(DataSchema rightSchema)
+      throws IOException {
+    publishRuntimeFilter(false);
+    int numRows = _broadcastRightTable.getNumRows();
+    List<Object[]> rows = new ArrayList<>(numRows);
+    for (int rowId = 0; rowId < numRows; rowId++) {
+      rows.add(_broadcastRightTable.getRow(rowId));
+    }
+    _rightSchema = rightSchema;
+    _spilledRightPartitions = new SpilledRowsFile[NUM_SPILL_PARTITIONS];
+    _spilledLeftPartitions = new SpilledRowsFile[NUM_SPILL_PARTITIONS];
+    spillRows(_spilledRightPartitions, rows, _rightKeySelector, _rightSchema, RIGHT_SPILL_FILE_PREFIX);
+    _broadcastRightTable = JoinHashTable.create(_rightKeySelector, _leftKeySelector, _keyColumnDataTypes);
+    LOGGER.debug("Spilled {} right rows to disk", numRows);
+  }
+
+  /**
+   * Spills all the left rows once the right rows are spilled, then joins the spilled partitions one at a time and
+   * returns EOS once all the partitions have been processed.
+   */
+  private TransferableBlock buildJoinedDataBlockFromSpilledPartitions()
+      throws IOException {
+    if (!_isLeftTableSpilled) {
+      TransferableBlock leftBlock = _leftTableOperator.nextBlock();
+      while (!leftBlock.isNoOpBlock()) {
+        if (leftBlock.isErrorBlock()) {
+          _upstreamErrorBlock = leftBlock;
+          return _upstreamErrorBlock;
+        }
+        if (leftBlock.isEndOfStreamBlock()) {
+          _isLeftTableSpilled = true;
+          break;
+        }
+        spillRows(_spilledLeftPartitions, leftBlock.getRows(), _leftKeySelector, _leftSchema,
+            LEFT_SPILL_FILE_PREFIX);
+        leftBlock = _leftTableOperator.nextBlock();
+      }
+      if (!_isLeftTableSpilled) {
+        return TransferableBlockUtils.getNoOpTransferableBlock();
+      }
+    }
+    while (true) {
+      if (_spilledLeftRows == null) {
+        if (_nextSpilledPartitionId == NUM_SPILL_PARTITIONS) {
+          _isTerminated = true;
+          deleteSpilledPartitions();
+          return TransferableBlockUtils.getEndOfStreamTransferableBlock();
+        }
+        loadSpilledPartition(_nextSpilledPartitionId++);
+      }
+      if (_spilledLeftRows.hasNext()) {
+        List<Object[]> leftRows = new ArrayList<>();
+        while (leftRows.size() < MAX_SPILLED_LEFT_ROWS_PER_BLOCK && _spilledLeftRows.hasNext()) {
+          leftRows.add(_spilledLeftRows.next());
+        }
+        return new TransferableBlock(joinLeftRows(leftRows), _resultSchema, DataBlock.Type.ROW);
+      }
+      // The left rows of the partition are exhausted
+      _spilledLeftRows = null;
+      SpilledRowsFile leftPartition = _spilledLeftPartitions[_nextSpilledPartitionId - 1];
+      if (leftPartition != null) {
+        leftPartition.close();
+        _spilledLeftPartitions[_nextSpilledPartitionId - 1] = null;
+      }
+      if (needUnmatchedRightRows()) {
+        List<Object[]> unmatchedRightRows = getUnmatchedRightRows();
+        if (!unmatchedRightRows.isEmpty()) {
+          return new TransferableBlock(unmatchedRightRows, _resultSchema, DataBlock.Type.ROW);
+        }
+      }
+    }
+  }
+
+  /**
+   * Loads the right rows of the given spilled partition into the hash table, and starts reading its left rows.
+   */
+  private void loadSpilledPartition(int partitionId)
+      throws IOException {
+    _broadcastRightTable = JoinHashTable.create(_rightKeySelector, _leftKeySelector, _keyColumnDataTypes);
+    if (_matchedRightRows != null) {
+      _matchedRightRows.clear();
+    }
+    SpilledRowsFile rightPartition = _spilledRightPartitions[partitionId];
+    if (rightPartition != null) {
+      Iterator<Object[]> rightRows = rightPartition.read();
+      while (rightRows.hasNext()) {
+        _broadcastRightTable.addRow(rightRows.next());
+      }
+      rightPartition.close();
+      _spilledRightPartitions[partitionId] = null;
+      if (_broadcastRightTable.getNumRows() > _maxRowsInMemory) {
+        LOGGER.warn("Loaded {} right rows of spilled partition {} in memory, exceeding the budget of {} rows",
+            _broadcastRightTable.getNumRows(), partitionId, _maxRowsInMemory);
+      }
+    }
+    SpilledRowsFile leftPartition = _spilledLeftPartitions[partitionId];
+    _spilledLeftRows = leftPartition != null ? leftPartition.read() : Collections.emptyIterator();
+  }
+
+  /**
+   * Appends the rows to the spilled partitions selected by the hash of their join key. The hash is mixed so that the
+   * partitions are independent of the hash exchange which routed the rows to this worker.
+   */
+  private void spillRows(SpilledRowsFile[] partitions, List<Object[]> rows, KeySelector<Object[], Object[]> keySelector,
+      DataSchema dataSchema, String filePrefix)
+      throws IOException {
+    List<List<Object[]>> partitionedRows = new ArrayList<>(NUM_SPILL_PARTITIONS);
+    for (int i = 0; i < NUM_SPILL_PARTITIONS; i++) {
+      partitionedRows.add(new ArrayList<>());
+    }
+    for (Object[] row : rows) {
+      int hash = HashCommon.murmurHash3(Arrays.hashCode(keySelector.getKey(row)));
+      partitionedRows.get((hash & Integer.MAX_VALUE) % NUM_SPILL_PARTITIONS).add(row);
+    }
+    for (int i = 0; i < NUM_SPILL_PARTITIONS; i++) {
+      List<Object[]> partitionRows = partitionedRows.get(i);
+      if (!partitionRows.isEmpty()) {
+        if (partitions[i] == null) {
+          partitions[i] = new SpilledRowsFile(_context.getSpillConfig().getSpillDir(), filePrefix, dataSchema);
+        }
+        partitions[i].append(partitionRows);
+      }
+    }
+  }
+
+  private void deleteSpilledPartitions() {
+    deleteSpilledPartitions(_spilledRightPartitions);
+    deleteSpilledPartitions(_spilledLeftPartitions);
+  }
+
+  private static void deleteSpilledPartitions(@Nullable SpilledRowsFile[] partitions) {
+    if (partitions == null) {
+      return;
+    }
+    for (int i = 0; i < partitions.length; i++) {
+      if (partitions[i] != null) {
+        try {
+          partitions[i].close();
+        } catch (IOException e) {
+          LOGGER.warn("Failed to clean up spilled join partition", e);
+        }
+        partitions[i] = null;
+      }
+    }
+  }
+
+  /**
+   * Publishes the distinct keys of the right side to the leaf stage on the left side if the runtime filter is enabled
+   * and not yet published, or lets the leaf stage know that there won't be a runtime filter.
+   */
+  private void publishRuntimeFilter(boolean publishKeys) {
+    if (_runtimeFilterStageId < 0) {
+      return;
+    }
+    TransferableBlock keysBlock = null;
+    if (publishKeys) {
+      List<Integer> keyColumnIndices = ((FieldSelectionKeySelector) _rightKeySelector).getColumnIndices();
+      int numKeys = _broadcastRightTable.getNumKeys();
+      List<Object[]> keys = new ArrayList<>(numKeys);
+      for (int keyId = 0; keyId < numKeys; keyId++) {
+        Object[] row = _broadcastRightTable.getFirstRowOfKey(keyId);
+        Object[] key = new Object[keyColumnIndices.size()];
+        boolean hasNull = false;
+        for (int i = 0; i < key.length; i++) {
+          key[i] = row[keyColumnIndices.get(i)];
+          hasNull |= key[i] == null;
+        }
+        // Null keys never match
+        if (!hasNull) {
+          keys.add(key);
+        }
+      }
+      keysBlock = new TransferableBlock(keys, _runtimeFilterSchema, DataBlock.Type.ROW);
+    }
+    RuntimeFilterUtils.publish(_context, _runtimeFilterStageId, keysBlock);
+    _runtimeFilterStageId = -1;
   }
 
   private Object[] joinRow(@Nullable Object[] leftRow, @Nullable Object[] rightRow) {
@@ -281,6 +528,30 @@ public class HashJoinOperator extends MultiStageOperator {
     return resultRow;
   }
 
+  private static DataSchema.ColumnDataType[] getKeyColumnDataTypes(KeySelector<Object[], Object[]> keySelector,
+      DataSchema schema) {
+    if (!(keySelector instanceof FieldSelectionKeySelector)) {
+      return new DataSchema.ColumnDataType[0];
+    }
+    List<Integer> columnIndices = ((FieldSelectionKeySelector) keySelector).getColumnIndices();
+    DataSchema.ColumnDataType[] keyColumnDataTypes = new DataSchema.ColumnDataType[columnIndices.size()];
+    for (int i = 0; i < keyColumnDataTypes.length; i++) {
+      keyColumnDataTypes[i] = schema.getColumnDataType(columnIndices.get(i));
+    }
+    return keyColumnDataTypes;
+  }
+
+  private static DataSchema getKeySchema(KeySelector<Object[], Object[]> keySelector, DataSchema schema) {
+    List<Integer> columnIndices = ((FieldSelectionKeySelector) keySelector).getColumnIndices();
+    String[] columnNames = new String[columnIndices.size()];
+    DataSchema.ColumnDataType[] columnDataTypes = new DataSchema.ColumnDataType[columnIndices.size()];
+    for (int i = 0; i < columnNames.length; i++) {
+      columnNames[i] = schema.getColumnName(columnIndices.get(i));
+      columnDataTypes[i] = schema.getColumnDataType(columnIndices.get(i));
+    }
+    return new DataSchema(columnNames, columnDataTypes);
+  }
+
   private boolean needUnmatchedRightRows() {
     return _joinType == JoinRelType.RIGHT || _joinType == JoinRelType.FULL;
   }
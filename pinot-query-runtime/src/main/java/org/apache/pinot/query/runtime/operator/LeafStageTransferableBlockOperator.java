@@ -20,7 +20,6 @@ package org.apache.pinot.query.runtime.operator;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -229,19 +228,7 @@ public class LeafStageTransferableBlockOperator extends MultiStageOperator {
    */
   private static TransferableBlock composeColumnIndexedTransferableBlock(InstanceResponseBlock responseBlock,
       DataSchema desiredDataSchema, int[] columnIndices) {
-    Collection<Object[]> resultRows = responseBlock.getRows();
-    List<Object[]> extractedRows = new ArrayList<>(resultRows.size());
-    if (resultRows instanceof List) {
-      for (Object[] row : resultRows) {
-        extractedRows.add(canonicalizeRow(row, desiredDataSchema, columnIndices));
-      }
-    } else if (resultRows instanceof PriorityQueue) {
-      PriorityQueue<Object[]> priorityQueue = (PriorityQueue<Object[]>) resultRows;
-      while (!priorityQueue.isEmpty()) {
-        extractedRows.add(canonicalizeRow(priorityQueue.poll(), desiredDataSchema, columnIndices));
-      }
-    }
-    return new TransferableBlock(extractedRows, desiredDataSchema, DataBlock.Type.ROW);
+    return composeColumnarTransferableBlock(responseBlock, desiredDataSchema, columnIndices);
   }
 
   /**
@@ -252,21 +239,40 @@ public class LeafStageTransferableBlockOperator extends MultiStageOperator {
    */
   private static TransferableBlock composeDirectTransferableBlock(InstanceResponseBlock responseBlock,
       DataSchema desiredDataSchema) {
+    int numColumns = desiredDataSchema.size();
+    int[] columnIndices = new int[numColumns];
+    for (int colId = 0; colId < numColumns; colId++) {
+      columnIndices[colId] = colId;
+    }
+    return composeColumnarTransferableBlock(responseBlock, desiredDataSchema, columnIndices);
+  }
+
+  /**
+   * Transposes the V1 result rows into a {@link DataBlock.Type#COLUMNAR} block, canonicalizing the values into the
+   * desired data schema on the fly. The intermediate stage operators process the columns directly, and the columns are
+   * serialized into contiguous typed buffers when sent to the next stage, instead of being re-packed row by row.
+   */
+  private static TransferableBlock composeColumnarTransferableBlock(InstanceResponseBlock responseBlock,
+      DataSchema desiredDataSchema, int[] columnIndices) {
     Collection<Object[]> resultRows = responseBlock.getRows();
-    List<Object[]> extractedRows = new ArrayList<>(resultRows.size());
+    int numRows = resultRows.size();
+    int numColumns = columnIndices.length;
+    Object[][] columns = new Object[numColumns][numRows];
     if (resultRows instanceof List) {
-      for (Object[] orgRow : resultRows) {
-        extractedRows.add(canonicalizeRow(orgRow, desiredDataSchema));
+      int rowId = 0;
+      for (Object[] row : resultRows) {
+        canonicalizeRow(row, desiredDataSchema, columnIndices, columns, rowId++);
       }
     } else if (resultRows instanceof PriorityQueue) {
       PriorityQueue<Object[]> priorityQueue = (PriorityQueue<Object[]>) resultRows;
+      int rowId = 0;
       while (!priorityQueue.isEmpty()) {
-        extractedRows.add(canonicalizeRow(priorityQueue.poll(), desiredDataSchema));
+        canonicalizeRow(priorityQueue.poll(), desiredDataSchema, columnIndices, columns, rowId++);
       }
     } else {
       throw new UnsupportedOperationException("Unsupported collection type: " + resultRows.getClass());
     }
-    return new TransferableBlock(extractedRows, desiredDataSchema, DataBlock.Type.ROW);
+    return new TransferableBlock(Arrays.asList(columns), desiredDataSchema, DataBlock.Type.COLUMNAR);
   }
 
   private static boolean inOrder(int[] columnIndices) {
@@ -285,32 +291,22 @@ public class LeafStageTransferableBlockOperator extends MultiStageOperator {
    *
    * @param row un-canonicalize row.
    * @param dataSchema data schema desired for the row.
-   * @return canonicalize row.
+   * @param columnIndices index of each desired column in the row.
+   * @param columns canonicalized columns to write the row into.
+   * @param rowId id of the row in the columns.
    */
-  private static Object[] canonicalizeRow(Object[] row, DataSchema dataSchema) {
-    Object[] resultRow = new Object[row.length];
-    for (int colId = 0; colId < row.length; colId++) {
-      Object value = row[colId];
+  private static void canonicalizeRow(Object[] row, DataSchema dataSchema, int[] columnIndices, Object[][] columns,
+      int rowId) {
+    for (int colId = 0; colId < columnIndices.length; colId++) {
+      Object value = row[columnIndices[colId]];
       if (value != null) {
         if (dataSchema.getColumnDataType(colId) == DataSchema.ColumnDataType.OBJECT) {
-          resultRow[colId] = value;
+          columns[colId][rowId] = value;
         } else {
-          resultRow[colId] = dataSchema.getColumnDataType(colId).convert(value);
+          columns[colId][rowId] = dataSchema.getColumnDataType(colId).convert(value);
         }
       }
     }
-    return resultRow;
-  }
-
-  private static Object[] canonicalizeRow(Object[] row, DataSchema dataSchema, int[] columnIndices) {
-    Object[] resultRow = new Object[columnIndices.length];
-    for (int colId = 0; colId < columnIndices.length; colId++) {
-      Object value = row[columnIndices[colId]];
-      if (value != null) {
-        resultRow[colId] = dataSchema.getColumnDataType(colId).convert(value);
-      }
-    }
-    return resultRow;
   }
 
   private static boolean isDataSchemaColumnTypesCompatible(DataSchema.ColumnDataType[] desiredTypes,
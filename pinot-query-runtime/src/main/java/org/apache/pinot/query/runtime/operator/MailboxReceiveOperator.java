@@ -33,6 +33,7 @@ import org.apache.calcite.rel.RelDistribution;
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.pinot.common.datablock.DataBlock;
+import org.apache.pinot.common.datatable.DataTable;
 import org.apache.pinot.common.exception.QueryException;
 import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.query.mailbox.JsonMailboxIdentifier;
@@ -85,6 +86,7 @@ public class MailboxReceiveOperator extends MultiStageOperator {
   private int _serverIdx;
   private TransferableBlock _upstreamErrorBlock;
   private boolean _isSortedBlockConstructed;
+  private int _maxQueueDepth;
 
   private static MailboxIdentifier toMailboxId(VirtualServer sender, long jobId, int senderStageId,
       int receiverStageId, VirtualServerAddress receiver) {
@@ -99,17 +101,34 @@ public class MailboxReceiveOperator extends MultiStageOperator {
   public MailboxReceiveOperator(OpChainExecutionContext context, RelDistribution.Type exchangeType,
       List<RexExpression> collationKeys, List<RelFieldCollation.Direction> collationDirections, boolean isSortOnSender,
       boolean isSortOnReceiver, DataSchema dataSchema, int senderStageId, int receiverStageId) {
+    this(context, exchangeType, collationKeys, collationDirections, null, isSortOnSender, isSortOnReceiver, dataSchema,
+        senderStageId, receiverStageId);
+  }
+
+  public MailboxReceiveOperator(OpChainExecutionContext context, RelDistribution.Type exchangeType,
+      List<RexExpression> collationKeys, List<RelFieldCollation.Direction> collationDirections,
+      @Nullable List<RelFieldCollation.NullDirection> collationNullDirections, boolean isSortOnSender,
+      boolean isSortOnReceiver, DataSchema dataSchema, int senderStageId, int receiverStageId) {
     this(context, context.getMetadataMap().get(senderStageId).getServerInstances(), exchangeType, collationKeys,
-        collationDirections, isSortOnSender, isSortOnReceiver, dataSchema, senderStageId,
+        collationDirections, collationNullDirections, isSortOnSender, isSortOnReceiver, dataSchema, senderStageId,
         receiverStageId, context.getTimeoutMs());
   }
 
-  // TODO: Move deadlineInNanoSeconds to OperatorContext.
-  // TODO: Remove boxed timeoutMs value from here and use long deadlineMs from context.
   public MailboxReceiveOperator(OpChainExecutionContext context, List<VirtualServer> sendingStageInstances,
       RelDistribution.Type exchangeType, List<RexExpression> collationKeys,
       List<RelFieldCollation.Direction> collationDirections, boolean isSortOnSender, boolean isSortOnReceiver,
       DataSchema dataSchema, int senderStageId, int receiverStageId, Long timeoutMs) {
+    this(context, sendingStageInstances, exchangeType, collationKeys, collationDirections, null, isSortOnSender,
+        isSortOnReceiver, dataSchema, senderStageId, receiverStageId, timeoutMs);
+  }
+
+  // TODO: Move deadlineInNanoSeconds to OperatorContext.
+  // TODO: Remove boxed timeoutMs value from here and use long deadlineMs from context.
+  public MailboxReceiveOperator(OpChainExecutionContext context, List<VirtualServer> sendingStageInstances,
+      RelDistribution.Type exchangeType, List<RexExpression> collationKeys,
+      List<RelFieldCollation.Direction> collationDirections,
+      @Nullable List<RelFieldCollation.NullDirection> collationNullDirections, boolean isSortOnSender,
+      boolean isSortOnReceiver, DataSchema dataSchema, int senderStageId, int receiverStageId, Long timeoutMs) {
     super(context);
     _mailboxService = context.getMailboxService();
     VirtualServerAddress receiver = context.getServer();
@@ -153,7 +172,7 @@ public class MailboxReceiveOperator extends MultiStageOperator {
       _priorityQueue = null;
     } else {
       _priorityQueue = new PriorityQueue<>(new SortUtils.SortComparator(collationKeys, collationDirections,
-          dataSchema, false));
+          collationNullDirections, dataSchema, false));
     }
     _upstreamErrorBlock = null;
     _serverIdx = 0;
@@ -197,6 +216,7 @@ public class MailboxReceiveOperator extends MultiStageOperator {
         ReceivingMailbox<TransferableBlock> mailbox = _mailboxService.getReceivingMailbox(mailboxId);
         if (!mailbox.isClosed()) {
           openMailboxCount++;
+          recordQueueDepth(mailbox.getQueueDepth());
           TransferableBlock block = mailbox.receive();
           // Get null block when pulling times out from mailbox.
           if (block != null) {
@@ -209,7 +229,7 @@ public class MailboxReceiveOperator extends MultiStageOperator {
             if (!block.isEndOfStreamBlock()) {
               if (_priorityQueue != null) {
                 // Ordering is enabled, add rows to the PriorityQueue
-                List<Object[]> container = block.getContainer();
+                List<Object[]> container = block.getRows();
                 _priorityQueue.addAll(container);
               } else {
                 // Ordering is not enabled, return the input block as is
@@ -254,6 +274,14 @@ public class MailboxReceiveOperator extends MultiStageOperator {
     return block;
   }
 
+  private void recordQueueDepth(int queueDepth) {
+    if (queueDepth > _maxQueueDepth) {
+      _maxQueueDepth = queueDepth;
+      getOperatorStats().recordSingleStat(DataTable.MetadataKey.MAX_MAILBOX_QUEUE_DEPTH.getName(),
+          String.valueOf(queueDepth));
+    }
+  }
+
   private void cleanUpResourcesOnError() {
     if (_priorityQueue != null) {
       _priorityQueue.clear();
@@ -25,10 +25,12 @@ import com.google.common.collect.ImmutableSet;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.apache.calcite.rel.RelDistribution;
 import org.apache.calcite.rel.RelFieldCollation;
+import org.apache.pinot.common.datatable.DataTable;
 import org.apache.pinot.query.mailbox.JsonMailboxIdentifier;
 import org.apache.pinot.query.mailbox.MailboxIdentifier;
 import org.apache.pinot.query.mailbox.MailboxService;
@@ -65,6 +67,11 @@ public class MailboxSendOperator extends MultiStageOperator {
   private final List<RelFieldCollation.Direction> _collationDirections;
   private final boolean _isSortOnSender;
 
+  // start of the current stall on receivers' backpressure, or -1 if not stalled
+  private long _stallStartTimeNs = -1;
+  private int _numStalls = 0;
+  private long _stallTimeNs = 0;
+
   @VisibleForTesting
   interface BlockExchangeFactory {
     BlockExchange build(MailboxService<TransferableBlock> mailboxService, List<MailboxIdentifier> destinations,
@@ -150,6 +157,10 @@ public class MailboxSendOperator extends MultiStageOperator {
   protected TransferableBlock getNextBlock() {
     TransferableBlock transferableBlock;
     try {
+      if (_exchange.isBackpressured()) {
+        return stall();
+      }
+      resumeFromStall();
       transferableBlock = _dataTableBlockBaseOperator.nextBlock();
       while (!transferableBlock.isNoOpBlock()) {
         if (transferableBlock.isEndOfStreamBlock()) {
@@ -165,6 +176,10 @@ public class MailboxSendOperator extends MultiStageOperator {
           return transferableBlock;
         }
         _exchange.send(transferableBlock);
+        if (_exchange.isBackpressured()) {
+          // yield the OpChain instead of blocking the thread, it is rescheduled once the receivers grant credits
+          return stall();
+        }
         transferableBlock = _dataTableBlockBaseOperator.nextBlock();
       }
     } catch (final Exception e) {
@@ -178,6 +193,26 @@ public class MailboxSendOperator extends MultiStageOperator {
     return transferableBlock;
   }
 
+  private TransferableBlock stall() {
+    if (_stallStartTimeNs < 0) {
+      _stallStartTimeNs = System.nanoTime();
+      _numStalls++;
+    }
+    return TransferableBlockUtils.getNoOpTransferableBlock();
+  }
+
+  private void resumeFromStall() {
+    if (_stallStartTimeNs >= 0) {
+      _stallTimeNs += System.nanoTime() - _stallStartTimeNs;
+      _stallStartTimeNs = -1;
+      OperatorStats operatorStats = getOperatorStats();
+      operatorStats.recordSingleStat(DataTable.MetadataKey.NUM_BACKPRESSURE_STALLS.getName(),
+          String.valueOf(_numStalls));
+      operatorStats.recordSingleStat(DataTable.MetadataKey.BACKPRESSURE_STALL_TIME_MS.getName(),
+          String.valueOf(TimeUnit.NANOSECONDS.toMillis(_stallTimeNs)));
+    }
+  }
+
   @Override
   public void close() {
     super.close();
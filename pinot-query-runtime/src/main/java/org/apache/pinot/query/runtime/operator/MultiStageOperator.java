@@ -33,7 +33,7 @@ public abstract class MultiStageOperator implements Operator<TransferableBlock>,
   private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(MultiStageOperator.class);
 
   private final String _operatorId;
-  private final OpChainExecutionContext _context;
+  protected final OpChainExecutionContext _context;
   protected final OpChainStats _opChainStats;
 
   public MultiStageOperator(OpChainExecutionContext context) {
@@ -49,7 +49,7 @@ public abstract class MultiStageOperator implements Operator<TransferableBlock>,
       throw new EarlyTerminationException("Interrupted while processing next block");
     }
     try (InvocationScope ignored = Tracing.getTracer().createScope(getClass())) {
-      OperatorStats operatorStats = _opChainStats.getOperatorStats(_context, _operatorId);
+      OperatorStats operatorStats = getOperatorStats();
       operatorStats.startTimer();
       TransferableBlock nextBlock = getNextBlock();
       operatorStats.recordRow(1, nextBlock.getNumRows());
@@ -62,6 +62,10 @@ public abstract class MultiStageOperator implements Operator<TransferableBlock>,
     return _operatorId;
   }
 
+  protected OperatorStats getOperatorStats() {
+    return _opChainStats.getOperatorStats(_context, _operatorId);
+  }
+
   // Make it protected because we should always call nextBlock()
   protected abstract TransferableBlock getNextBlock();
 
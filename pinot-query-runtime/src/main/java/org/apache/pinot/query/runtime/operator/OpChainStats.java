@@ -48,6 +48,8 @@ public class OpChainStats {
 
   private final Stopwatch _executeStopwatch = Stopwatch.createUnstarted();
   private final Stopwatch _queuedStopwatch = Stopwatch.createUnstarted();
+  // time spent ready to run but waiting for a query worker
+  private final Stopwatch _schedulingStopwatch = Stopwatch.createUnstarted();
   private final AtomicLong _queuedCount = new AtomicLong();
 
   private final String _id;
@@ -62,6 +64,18 @@ public class OpChainStats {
     if (_queuedStopwatch.isRunning()) {
       _queuedStopwatch.stop();
     }
+    if (_schedulingStopwatch.isRunning()) {
+      _schedulingStopwatch.stop();
+    }
+  }
+
+  /**
+   * Called by the scheduler when the OpChain is ready to run, i.e. when it has data to process.
+   */
+  public void ready() {
+    if (!_schedulingStopwatch.isRunning()) {
+      _schedulingStopwatch.start();
+    }
   }
 
   public void queued() {
@@ -98,10 +112,18 @@ public class OpChainStats {
     return _executeStopwatch.elapsed(TimeUnit.MILLISECONDS);
   }
 
+  public long getQueuedTime() {
+    return _queuedStopwatch.elapsed(TimeUnit.MILLISECONDS);
+  }
+
+  public long getSchedulingLatency() {
+    return _schedulingStopwatch.elapsed(TimeUnit.MILLISECONDS);
+  }
+
   @Override
   public String toString() {
-    return String.format("(%s) Queued Count: %s, Executing Time: %sms, Queued Time: %sms", _id, _queuedCount.get(),
-        _exTimerStarted ? _executeStopwatch.elapsed(TimeUnit.MILLISECONDS) : 0,
-        _queuedStopwatch.elapsed(TimeUnit.MILLISECONDS));
+    return String.format("(%s) Queued Count: %s, Executing Time: %sms, Queued Time: %sms, Scheduling Latency: %sms",
+        _id, _queuedCount.get(), _exTimerStarted ? _executeStopwatch.elapsed(TimeUnit.MILLISECONDS) : 0,
+        _queuedStopwatch.elapsed(TimeUnit.MILLISECONDS), _schedulingStopwatch.elapsed(TimeUnit.MILLISECONDS));
   }
 }
@@ -20,7 +20,10 @@ package org.apache.pinot.query.runtime.operator;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.PriorityQueue;
@@ -32,7 +35,9 @@ import org.apache.pinot.core.query.selection.SelectionOperatorUtils;
 import org.apache.pinot.query.planner.logical.RexExpression;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
+import org.apache.pinot.query.runtime.operator.utils.ExternalSorter;
 import org.apache.pinot.query.runtime.operator.utils.SortUtils;
+import org.apache.pinot.query.runtime.operator.utils.SpillConfig;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +46,8 @@ import org.slf4j.LoggerFactory;
 public class SortOperator extends MultiStageOperator {
   private static final String EXPLAIN_NAME = "SORT";
   private static final Logger LOGGER = LoggerFactory.getLogger(SortOperator.class);
+  // Maximum number of rows per output block when streaming the result of an external sort.
+  private static final int MAX_ROWS_PER_BLOCK = 10_000;
 
   private final MultiStageOperator _upstreamOperator;
   private final int _fetch;
@@ -49,7 +56,9 @@ public class SortOperator extends MultiStageOperator {
   private final PriorityQueue<Object[]> _priorityQueue;
   private final ArrayList<Object[]> _rows;
   private final int _numRowsToKeep;
+  private final ExternalSorter _externalSorter;
 
+  private Iterator<Object[]> _externallySortedRows;
   private boolean _readyToConstruct;
   private boolean _isSortedBlockConstructed;
   private TransferableBlock _upstreamErrorBlock;
@@ -58,13 +67,13 @@ public class SortOperator extends MultiStageOperator {
       List<RexExpression> collationKeys, List<RelFieldCollation.Direction> collationDirections, int fetch, int offset,
       DataSchema dataSchema, boolean isInputSorted) {
     this(context, upstreamOperator, collationKeys, collationDirections, fetch, offset, dataSchema, isInputSorted,
-        SelectionOperatorUtils.MAX_ROW_HOLDER_INITIAL_CAPACITY);
+        SelectionOperatorUtils.MAX_ROW_HOLDER_INITIAL_CAPACITY, context.getSpillConfig().getSortMaxRowsInMemory());
   }
 
   @VisibleForTesting
   SortOperator(OpChainExecutionContext context, MultiStageOperator upstreamOperator, List<RexExpression> collationKeys,
       List<RelFieldCollation.Direction> collationDirections, int fetch, int offset, DataSchema dataSchema,
-      boolean isInputSorted, int defaultHolderCapacity) {
+      boolean isInputSorted, int defaultHolderCapacity, int maxRowsInMemory) {
     super(context);
     _upstreamOperator = upstreamOperator;
     _fetch = fetch;
@@ -76,12 +85,25 @@ public class SortOperator extends MultiStageOperator {
     // Under the following circumstances, the SortOperator is a simple selection with row trim on limit & offset:
     // - There are no collationKeys
     // - 'isInputSorted' is set to true indicating that the data was already sorted
+    // Otherwise rows are sorted with a bounded heap when at most 'maxRowsInMemory' rows need to be kept, and with an
+    // external merge sort spilling to disk beyond that.
     if (collationKeys.isEmpty() || isInputSorted) {
       _priorityQueue = null;
       _rows = new ArrayList<>();
+      _externalSorter = null;
     } else {
-      _priorityQueue = new PriorityQueue<>(_numRowsToKeep,
-          new SortUtils.SortComparator(collationKeys, collationDirections, dataSchema, false));
+      SortUtils.SortComparator comparator =
+          new SortUtils.SortComparator(collationKeys, collationDirections, dataSchema, false);
+      if (_numRowsToKeep > maxRowsInMemory) {
+        _priorityQueue = null;
+        // SortComparator orders the rows to evict first, so the output order is the reverse of it
+        SpillConfig spillConfig = context.getSpillConfig();
+        _externalSorter = new ExternalSorter(comparator.reversed(), dataSchema, spillConfig.getSpillDir(),
+            maxRowsInMemory, spillConfig.getSortMaxMergeFanIn(), _numRowsToKeep);
+      } else {
+        _priorityQueue = new PriorityQueue<>(_numRowsToKeep, comparator);
+        _externalSorter = null;
+      }
       _rows = null;
     }
   }
@@ -91,8 +113,15 @@ public class SortOperator extends MultiStageOperator {
     return ImmutableList.of(_upstreamOperator);
   }
 
+  @Override
+  public void close() {
+    super.close();
+    closeExternalSorter();
+  }
+
   @Override
   public void cancel(Throwable e) {
+    closeExternalSorter();
   }
 
   @Nullable
@@ -111,13 +140,17 @@ public class SortOperator extends MultiStageOperator {
     }
   }
 
-  private TransferableBlock produceSortedBlock() {
+  private TransferableBlock produceSortedBlock()
+      throws IOException {
     if (_upstreamErrorBlock != null) {
       return _upstreamErrorBlock;
     } else if (!_readyToConstruct) {
       return TransferableBlockUtils.getNoOpTransferableBlock();
     }
 
+    if (_externalSorter != null) {
+      return produceExternallySortedBlock();
+    }
     if (!_isSortedBlockConstructed) {
       _isSortedBlockConstructed = true;
       if (_priorityQueue == null) {
@@ -144,8 +177,36 @@ public class SortOperator extends MultiStageOperator {
     }
   }
 
-  private void consumeInputBlocks() {
-    if (!_isSortedBlockConstructed) {
+  private TransferableBlock produceExternallySortedBlock()
+      throws IOException {
+    if (_externallySortedRows == null) {
+      _externallySortedRows = _externalSorter.sortedIterator();
+      Iterators.advance(_externallySortedRows, _offset);
+    }
+    List<Object[]> rows = new ArrayList<>();
+    while (rows.size() < MAX_ROWS_PER_BLOCK && _externallySortedRows.hasNext()) {
+      rows.add(_externallySortedRows.next());
+    }
+    if (rows.isEmpty()) {
+      closeExternalSorter();
+      return TransferableBlockUtils.getEndOfStreamTransferableBlock();
+    }
+    return new TransferableBlock(rows, _dataSchema, DataBlock.Type.ROW);
+  }
+
+  private void closeExternalSorter() {
+    if (_externalSorter != null) {
+      try {
+        _externalSorter.close();
+      } catch (IOException e) {
+        LOGGER.warn("Failed to clean up spilled sort runs", e);
+      }
+    }
+  }
+
+  private void consumeInputBlocks()
+      throws IOException {
+    if (!_readyToConstruct && _upstreamErrorBlock == null) {
       TransferableBlock block = _upstreamOperator.nextBlock();
       while (!block.isNoOpBlock()) {
         // setting upstream error block
@@ -157,8 +218,12 @@ public class SortOperator extends MultiStageOperator {
           return;
         }
 
-        List<Object[]> container = block.getContainer();
-        if (_priorityQueue == null) {
+        List<Object[]> container = block.getRows();
+        if (_externalSorter != null) {
+          for (Object[] row : container) {
+            _externalSorter.add(row);
+          }
+        } else if (_priorityQueue == null) {
           // TODO: when push-down properly, we shouldn't get more than _numRowsToKeep
           if (_rows.size() <= _numRowsToKeep) {
             if (_rows.size() + container.size() <= _numRowsToKeep) {
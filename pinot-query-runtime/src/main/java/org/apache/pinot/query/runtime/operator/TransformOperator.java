@@ -28,6 +28,7 @@ import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.query.planner.logical.RexExpression;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
+import org.apache.pinot.query.runtime.operator.operands.ReferenceOperand;
 import org.apache.pinot.query.runtime.operator.operands.TransformOperand;
 import org.apache.pinot.query.runtime.operator.utils.FunctionInvokeUtils;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
@@ -108,6 +109,9 @@ public class TransformOperator extends MultiStageOperator {
       return block;
     }
 
+    if (block.getType() == DataBlock.Type.COLUMNAR) {
+      return transformColumnar(block);
+    }
     List<Object[]> resultRows = new ArrayList<>();
     List<Object[]> container = block.getContainer();
     for (Object[] row : container) {
@@ -120,4 +124,46 @@ public class TransformOperator extends MultiStageOperator {
     }
     return new TransferableBlock(resultRows, _resultSchema, DataBlock.Type.ROW);
   }
+
+  /**
+   * Transforms a columnar block without materializing its rows. The input references are computed column by column,
+   * and a single row buffer is reused to evaluate the other operands on each row.
+   */
+  private TransferableBlock transformColumnar(TransferableBlock block) {
+    List<Object[]> columns = block.getContainer();
+    int numColumns = columns.size();
+    int numRows = block.getNumRows();
+    List<Object[]> resultColumns = new ArrayList<>(_resultColumnSize);
+    boolean hasNonReferenceOperand = false;
+    for (int i = 0; i < _resultColumnSize; i++) {
+      TransformOperand transformOperand = _transformOperandsList.get(i);
+      Object[] resultColumn = new Object[numRows];
+      if (transformOperand instanceof ReferenceOperand) {
+        Object[] column = columns.get(((ReferenceOperand) transformOperand).getRefIndex());
+        DataSchema.ColumnDataType resultType = _resultSchema.getColumnDataType(i);
+        for (int rowId = 0; rowId < numRows; rowId++) {
+          resultColumn[rowId] = FunctionInvokeUtils.convert(column[rowId], resultType);
+        }
+      } else {
+        hasNonReferenceOperand = true;
+      }
+      resultColumns.add(resultColumn);
+    }
+    if (hasNonReferenceOperand) {
+      Object[] row = new Object[numColumns];
+      for (int rowId = 0; rowId < numRows; rowId++) {
+        for (int colId = 0; colId < numColumns; colId++) {
+          row[colId] = columns.get(colId)[rowId];
+        }
+        for (int i = 0; i < _resultColumnSize; i++) {
+          TransformOperand transformOperand = _transformOperandsList.get(i);
+          if (!(transformOperand instanceof ReferenceOperand)) {
+            resultColumns.get(i)[rowId] =
+                FunctionInvokeUtils.convert(transformOperand.apply(row), _resultSchema.getColumnDataType(i));
+          }
+        }
+      }
+    }
+    return new TransferableBlock(resultColumns, _resultSchema, DataBlock.Type.COLUMNAR);
+  }
 }
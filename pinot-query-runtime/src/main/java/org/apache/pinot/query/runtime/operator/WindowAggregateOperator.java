@@ -52,8 +52,8 @@ import org.slf4j.LoggerFactory;
  * columns and in addition will add the aggregation columns to the output data.
  * [input columns, aggregate result1, ... aggregate resultN]
  *
- * The window functions supported today are SUM/COUNT/MIN/MAX/AVG/BOOL_OR/BOOL_AND aggregations. Window functions also
- * include other types of functions such as rank and value functions.
+ * The window functions supported today are SUM/COUNT/MIN/MAX/AVG/BOOL_OR/BOOL_AND aggregations, the
+ * ROW_NUMBER/RANK/DENSE_RANK rank functions and the LAG/LEAD value functions.
  *
  * Unlike the AggregateOperator which will output one row per group, the WindowAggregateOperator
  * will output as many rows as input rows.
@@ -61,21 +61,30 @@ import org.slf4j.LoggerFactory;
  * For queries using an 'ORDER BY' clause within the 'OVER()', this WindowAggregateOperator expects that the incoming
  * keys are already ordered based on the 'ORDER BY' keys. No ordering is performed in this operator. The planner
  * should handle adding a 'SortExchange' to do the ordering prior to pipelining the data to the upstream operators
- * wherever ordering is required.
+ * wherever ordering is required. The 'SortExchange' also places the null ORDER BY keys based on their null direction
+ * (NULLS FIRST / NULLS LAST), and null keys are peers of each other.
+ *
+ * Window aggregations are evaluated incrementally, keeping a single running result per partition:
+ * - For ROWS frames (which end at the CURRENT ROW), each row is emitted as soon as it is consumed.
+ * - For RANGE frames with ORDER BY keys (which end at the CURRENT ROW), the rows sharing the same ORDER BY keys
+ *   (peers) are emitted as soon as a row with different ORDER BY keys is consumed. Since the input is sorted on the
+ *   ORDER BY keys, the peers of all the partitions are contiguous.
+ * - For frames covering the whole partition (PARTITION BY only queries), the rows are buffered until the input is
+ *   exhausted.
+ * LAG only depends on the rows consumed so far, and keeps the last offset values of each partition. LEAD depends on
+ * the following rows, so when it is present the rows are buffered per partition until the input is exhausted.
  *
  * Note: This class performs aggregation over the double value of input.
  * If the input is single value, the output type will be input type. Otherwise, the output type will be double.
  *
  * TODO:
- *     1. Add support for rank window functions
- *     2. Add support for value window functions
- *     3. Add support for custom frames (including ROWS support)
- *     4. Add support for null direction handling (even for PARTITION BY only queries with custom null direction)
- *     5. Add support for multiple window groups (each WindowAggregateOperator should still work on a single group)
+ *     1. Add support for custom frames (bounded PRECEDING / FOLLOWING)
+ *     2. Add support for multiple window groups (each WindowAggregateOperator should still work on a single group)
  */
 public class WindowAggregateOperator extends MultiStageOperator {
   private static final String EXPLAIN_NAME = "WINDOW";
   private static final Logger LOGGER = LoggerFactory.getLogger(WindowAggregateOperator.class);
+  private static final Key EMPTY_ORDER_KEY = AggregationUtils.extractEmptyKey();
 
   private final MultiStageOperator _inputOperator;
   private final List<RexExpression> _groupSet;
@@ -84,9 +93,23 @@ public class WindowAggregateOperator extends MultiStageOperator {
   private final List<RexExpression.FunctionCall> _aggCalls;
   private final List<RexExpression> _constants;
   private final DataSchema _resultSchema;
+  // accumulator for each aggregation call, null for rank functions
   private final WindowAggregateAccumulator[] _windowAccumulators;
-  private final Map<Key, List<Object[]>> _partitionRows;
+  // rank function for each aggregation call, null for other functions
+  private final RankFunction[] _rankFunctions;
+  // value function (LAG/LEAD) for each aggregation call, null for other functions
+  private final ValueFunction[] _valueFunctions;
+  // whether the rows are buffered per partition until the input is exhausted to compute LEAD
+  private final boolean _hasLeadFunction;
+  private final Map<Key, PartitionState> _partitionStates;
   private final boolean _isPartitionByOnly;
+  // whether the rows are emitted while consuming the input instead of after consuming all of it
+  private final boolean _isStreaming;
+
+  // rows sharing the current ORDER BY keys, waiting for the aggregation results of their partition for RANGE frames
+  private final List<Object[]> _peerRows;
+  private final List<PartitionState> _peerRowPartitions;
+  private Key _peerOrderKey;
 
   private TransferableBlock _upstreamErrorBlock;
 
@@ -118,8 +141,9 @@ public class WindowAggregateOperator extends MultiStageOperator {
     _orderSetInfo = new OrderSetInfo(orderSet, orderSetDirection, orderSetNullDirection, _isPartitionByOnly);
     _windowFrame = new WindowFrame(lowerBound, upperBound, windowFrameType);
 
-    Preconditions.checkState(_windowFrame.getWindowFrameType() == WindowNode.WindowFrameType.RANGE,
-        "Only RANGE type frames are supported at present");
+    Preconditions.checkState(_windowFrame.getWindowFrameType() == WindowNode.WindowFrameType.RANGE
+            || _windowFrame.isUpperBoundCurrentRow(),
+        "Only RANGE type frames or ROWS type frames ending at CURRENT ROW are supported at present");
     Preconditions.checkState(_windowFrame.isUnboundedPreceding(),
         "Only default frame is supported, lowerBound must be UNBOUNDED PRECEDING");
     Preconditions.checkState(_windowFrame.isUnboundedFollowing() || _windowFrame.isUpperBoundCurrentRow(),
@@ -130,18 +154,36 @@ public class WindowAggregateOperator extends MultiStageOperator {
     _constants = constants;
     _resultSchema = resultSchema;
 
-    _windowAccumulators = new WindowAggregateAccumulator[_aggCalls.size()];
     int aggCallsSize = _aggCalls.size();
+    _windowAccumulators = new WindowAggregateAccumulator[aggCallsSize];
+    _rankFunctions = new RankFunction[aggCallsSize];
+    _valueFunctions = new ValueFunction[aggCallsSize];
+    boolean hasLeadFunction = false;
     for (int i = 0; i < aggCallsSize; i++) {
       RexExpression.FunctionCall agg = _aggCalls.get(i);
       String functionName = agg.getFunctionName();
-      if (!mergers.containsKey(functionName)) {
+      RankFunction rankFunction = RankFunction.fromFunctionName(functionName);
+      if (rankFunction != null) {
+        _rankFunctions[i] = rankFunction;
+      } else if (ValueFunction.isValueFunction(functionName)) {
+        _valueFunctions[i] = new ValueFunction(agg, constants, inputSchema,
+            resultSchema.getColumnDataType(inputSchema.size() + i));
+        hasLeadFunction |= _valueFunctions[i]._isLead;
+      } else if (mergers.containsKey(functionName)) {
+        _windowAccumulators[i] = new WindowAggregateAccumulator(agg, mergers, functionName, inputSchema);
+      } else {
         throw new IllegalStateException("Unexpected aggregation function name: " + functionName);
       }
-      _windowAccumulators[i] = new WindowAggregateAccumulator(agg, mergers, functionName, inputSchema, _orderSetInfo);
     }
 
-    _partitionRows = new HashMap<>();
+    _hasLeadFunction = hasLeadFunction;
+    _partitionStates = new HashMap<>();
+    // The window of a row is known once it has been consumed for ROWS frames, and once all its peers have been
+    // consumed for RANGE frames with ORDER BY keys. PARTITION BY only queries have all the rows of the partition as
+    // peers.
+    _isStreaming = _windowFrame.getWindowFrameType() == WindowNode.WindowFrameType.ROW || !_isPartitionByOnly;
+    _peerRows = new ArrayList<>();
+    _peerRowPartitions = new ArrayList<>();
 
     _numRows = 0;
     _readyToConstruct = false;
@@ -162,6 +204,10 @@ public class WindowAggregateOperator extends MultiStageOperator {
   @Override
   protected TransferableBlock getNextBlock() {
     try {
+      if (_isStreaming) {
+        return produceStreamingWindowAggregatedBlock();
+      }
+
       if (!_readyToConstruct && !consumeInputBlocks()) {
         return TransferableBlockUtils.getNoOpTransferableBlock();
       }
@@ -203,21 +249,13 @@ public class WindowAggregateOperator extends MultiStageOperator {
   }
 
   private TransferableBlock produceWindowAggregatedBlock() {
-    Key emptyOrderKey = AggregationUtils.extractEmptyKey();
     List<Object[]> rows = new ArrayList<>(_numRows);
-    for (Map.Entry<Key, List<Object[]>> e : _partitionRows.entrySet()) {
-      Key partitionKey = e.getKey();
-      List<Object[]> rowList = e.getValue();
-      for (Object[] existingRow : rowList) {
-        Object[] row = new Object[existingRow.length + _aggCalls.size()];
-        Key orderKey = _isPartitionByOnly ? emptyOrderKey
-            : AggregationUtils.extractRowKey(existingRow, _orderSetInfo.getOrderSet());
-        System.arraycopy(existingRow, 0, row, 0, existingRow.length);
-        for (int i = 0; i < _windowAccumulators.length; i++) {
-          row[i + existingRow.length] = _windowAccumulators[i].getResultForKeys(partitionKey, orderKey);
-        }
+    for (PartitionState partitionState : _partitionStates.values()) {
+      for (Object[] row : partitionState._rows) {
+        setAggregationResults(row, partitionState);
         rows.add(row);
       }
+      setLeadResults(partitionState);
     }
     _hasReturnedWindowAggregateBlock = true;
     if (rows.size() == 0) {
@@ -231,7 +269,6 @@ public class WindowAggregateOperator extends MultiStageOperator {
    * @return whether or not the operator is ready to move on (EOS or ERROR)
    */
   private boolean consumeInputBlocks() {
-    Key emptyOrderKey = AggregationUtils.extractEmptyKey();
     TransferableBlock block = _inputOperator.nextBlock();
     while (!block.isNoOpBlock()) {
       // setting upstream error block
@@ -243,24 +280,312 @@ public class WindowAggregateOperator extends MultiStageOperator {
         return true;
       }
 
-      List<Object[]> container = block.getContainer();
+      List<Object[]> container = block.getRows();
       for (Object[] row : container) {
         _numRows++;
-        // TODO: Revisit null direction handling for all query types
-        Key key = AggregationUtils.extractRowKey(row, _groupSet);
-        Key orderKey = _isPartitionByOnly ? emptyOrderKey
-            : AggregationUtils.extractRowKey(row, _orderSetInfo.getOrderSet());
-        _partitionRows.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
-        int aggCallsSize = _aggCalls.size();
-        for (int i = 0; i < aggCallsSize; i++) {
-          _windowAccumulators[i].accumulate(key, orderKey, row);
-        }
+        Object[] outputRow = new Object[row.length + _aggCalls.size()];
+        System.arraycopy(row, 0, outputRow, 0, row.length);
+        PartitionState partitionState = accumulate(row, extractOrderKey(row), outputRow);
+        partitionState._rows.add(outputRow);
       }
       block = _inputOperator.nextBlock();
     }
     return false;
   }
 
+  /**
+   * Consumes input blocks until some rows can be emitted, and returns them.
+   */
+  private TransferableBlock produceStreamingWindowAggregatedBlock() {
+    if (_upstreamErrorBlock != null) {
+      return _upstreamErrorBlock;
+    }
+    if (_readyToConstruct) {
+      _hasReturnedWindowAggregateBlock = true;
+      return TransferableBlockUtils.getEndOfStreamTransferableBlock();
+    }
+    List<Object[]> rows = new ArrayList<>();
+    TransferableBlock block = _inputOperator.nextBlock();
+    while (!block.isNoOpBlock()) {
+      if (block.isErrorBlock()) {
+        _upstreamErrorBlock = block;
+        return block;
+      } else if (block.isEndOfStreamBlock()) {
+        _readyToConstruct = true;
+        emitPeerRows(rows);
+        if (_hasLeadFunction) {
+          for (PartitionState partitionState : _partitionStates.values()) {
+            setLeadResults(partitionState);
+            rows.addAll(partitionState._rows);
+          }
+        }
+        if (rows.isEmpty()) {
+          _hasReturnedWindowAggregateBlock = true;
+          return block;
+        }
+        return new TransferableBlock(rows, _resultSchema, DataBlock.Type.ROW);
+      }
+
+      boolean isRowsFrame = _windowFrame.getWindowFrameType() == WindowNode.WindowFrameType.ROW;
+      List<Object[]> container = block.getRows();
+      for (Object[] row : container) {
+        _numRows++;
+        Key orderKey = extractOrderKey(row);
+        if (!isRowsFrame && (_peerOrderKey == null || !orderKey.equals(_peerOrderKey))) {
+          // all the peers of the previous rows have been consumed
+          emitPeerRows(rows);
+          _peerOrderKey = orderKey;
+        }
+        Object[] outputRow = new Object[row.length + _aggCalls.size()];
+        System.arraycopy(row, 0, outputRow, 0, row.length);
+        PartitionState partitionState = accumulate(row, orderKey, outputRow);
+        if (isRowsFrame) {
+          setAggregationResults(outputRow, partitionState);
+          emitRow(rows, outputRow, partitionState);
+        } else {
+          _peerRows.add(outputRow);
+          _peerRowPartitions.add(partitionState);
+        }
+      }
+      if (!rows.isEmpty()) {
+        return new TransferableBlock(rows, _resultSchema, DataBlock.Type.ROW);
+      }
+      block = _inputOperator.nextBlock();
+    }
+    return block;
+  }
+
+  private void emitPeerRows(List<Object[]> rows) {
+    int numPeerRows = _peerRows.size();
+    for (int i = 0; i < numPeerRows; i++) {
+      Object[] row = _peerRows.get(i);
+      PartitionState partitionState = _peerRowPartitions.get(i);
+      setAggregationResults(row, partitionState);
+      emitRow(rows, row, partitionState);
+    }
+    _peerRows.clear();
+    _peerRowPartitions.clear();
+  }
+
+  /**
+   * Emits a row whose aggregation results are computed, or buffers it in its partition until the input is exhausted
+   * when LEAD needs to be computed.
+   */
+  private void emitRow(List<Object[]> rows, Object[] row, PartitionState partitionState) {
+    if (_hasLeadFunction) {
+      partitionState._rows.add(row);
+    } else {
+      rows.add(row);
+    }
+  }
+
+  private Key extractOrderKey(Object[] row) {
+    return _isPartitionByOnly ? EMPTY_ORDER_KEY : AggregationUtils.extractRowKey(row, _orderSetInfo.getOrderSet());
+  }
+
+  /**
+   * Accumulates the row into the state of its partition, and sets the results of the rank functions and LAG in the
+   * output row as they only depend on the rows consumed so far.
+   */
+  private PartitionState accumulate(Object[] row, Key orderKey, Object[] outputRow) {
+    Key partitionKey = AggregationUtils.extractRowKey(row, _groupSet);
+    PartitionState partitionState =
+        _partitionStates.computeIfAbsent(partitionKey,
+            k -> new PartitionState(_aggCalls.size(), !_isStreaming || _hasLeadFunction));
+    partitionState._numRows++;
+    if (partitionState._lastOrderKey == null || !orderKey.equals(partitionState._lastOrderKey)) {
+      partitionState._rank = partitionState._numRows;
+      partitionState._denseRank++;
+      partitionState._lastOrderKey = orderKey;
+    }
+    int aggCallsSize = _aggCalls.size();
+    for (int i = 0; i < aggCallsSize; i++) {
+      if (_windowAccumulators[i] != null) {
+        partitionState._aggResults[i] = _windowAccumulators[i].accumulate(partitionState._aggResults[i], row);
+      } else if (_rankFunctions[i] != null) {
+        outputRow[row.length + i] = _rankFunctions[i].getResult(partitionState);
+      } else if (!_valueFunctions[i]._isLead) {
+        outputRow[row.length + i] = _valueFunctions[i].getLagResult(partitionState, i, row);
+      }
+    }
+    return partitionState;
+  }
+
+  private void setAggregationResults(Object[] outputRow, PartitionState partitionState) {
+    int numInputColumns = outputRow.length - _aggCalls.size();
+    for (int i = 0; i < _windowAccumulators.length; i++) {
+      if (_windowAccumulators[i] != null) {
+        outputRow[numInputColumns + i] = partitionState._aggResults[i];
+      }
+    }
+  }
+
+  /**
+   * Sets the results of LEAD for the buffered rows of the partition, which must contain all the rows of the partition.
+   */
+  private void setLeadResults(PartitionState partitionState) {
+    List<Object[]> rows = partitionState._rows;
+    int numRows = rows.size();
+    int numAggCalls = _aggCalls.size();
+    for (int i = 0; i < numAggCalls; i++) {
+      ValueFunction valueFunction = _valueFunctions[i];
+      if (valueFunction == null || !valueFunction._isLead) {
+        continue;
+      }
+      for (int rowId = 0; rowId < numRows; rowId++) {
+        Object[] row = rows.get(rowId);
+        int leadRowId = rowId + valueFunction._offset;
+        row[row.length - numAggCalls + i] =
+            leadRowId < numRows ? rows.get(leadRowId)[valueFunction._inputRef] : valueFunction._defaultValue;
+      }
+    }
+  }
+
+  /**
+   * Running state of a partition: the aggregation results over the rows consumed so far, the rank of the last row and
+   * the last values consumed for LAG.
+   */
+  private static class PartitionState {
+    final Object[] _aggResults;
+    // last values of the LAG input for each aggregation call, used as a ring buffer indexed by row number
+    final Object[][] _lagValues;
+    // rows of the partition, only kept when the results can only be computed after consuming all the rows
+    final List<Object[]> _rows;
+    long _numRows;
+    long _rank;
+    long _denseRank;
+    Key _lastOrderKey;
+
+    PartitionState(int numAggCalls, boolean keepRows) {
+      _aggResults = new Object[numAggCalls];
+      _lagValues = new Object[numAggCalls][];
+      _rows = keepRows ? new ArrayList<>() : null;
+    }
+  }
+
+  private enum RankFunction {
+    ROW_NUMBER, RANK, DENSE_RANK;
+
+    @Nullable
+    static RankFunction fromFunctionName(String functionName) {
+      for (RankFunction rankFunction : values()) {
+        if (rankFunction.name().equals(functionName)) {
+          return rankFunction;
+        }
+      }
+      return null;
+    }
+
+    long getResult(PartitionState partitionState) {
+      switch (this) {
+        case ROW_NUMBER:
+          return partitionState._numRows;
+        case RANK:
+          return partitionState._rank;
+        case DENSE_RANK:
+          return partitionState._denseRank;
+        default:
+          throw new IllegalStateException("Unsupported rank function: " + this);
+      }
+    }
+  }
+
+  /**
+   * LAG and LEAD value functions, which return the value of the input expression for the row at the given offset
+   * before (LAG) or after (LEAD) the current row within the partition, or the default value when there is no such row.
+   */
+  private static class ValueFunction {
+    final boolean _isLead;
+    final int _inputRef;
+    final int _offset;
+    final Object _defaultValue;
+
+    static boolean isValueFunction(String functionName) {
+      return functionName.equals("LAG") || functionName.equals("LEAD");
+    }
+
+    ValueFunction(RexExpression.FunctionCall functionCall, List<RexExpression> constants, DataSchema inputSchema,
+        DataSchema.ColumnDataType resultType) {
+      List<RexExpression> operands = functionCall.getFunctionOperands();
+      Preconditions.checkState(!operands.isEmpty() && operands.size() <= 3,
+          "%s takes 1 to 3 arguments, got: %s", functionCall.getFunctionName(), operands.size());
+      RexExpression input = operands.get(0);
+      Preconditions.checkState(input instanceof RexExpression.InputRef
+              && ((RexExpression.InputRef) input).getIndex() < inputSchema.size(),
+          "First argument of %s must be an input column", functionCall.getFunctionName());
+      _inputRef = ((RexExpression.InputRef) input).getIndex();
+      int offset = 1;
+      if (operands.size() > 1) {
+        Object offsetValue = getConstantValue(operands.get(1), constants, inputSchema);
+        Preconditions.checkState(offsetValue instanceof Number, "Offset of %s must be a constant integer",
+            functionCall.getFunctionName());
+        offset = ((Number) offsetValue).intValue();
+      }
+      // A negative offset looks at the rows in the other direction
+      boolean isLead = functionCall.getFunctionName().equals("LEAD");
+      _isLead = offset < 0 ? !isLead : isLead;
+      _offset = Math.abs(offset);
+      _defaultValue = operands.size() > 2
+          ? convertDefaultValue(getConstantValue(operands.get(2), constants, inputSchema), resultType) : null;
+    }
+
+    /**
+     * Returns the value of the constant argument, which is either a literal or a reference to the window constants
+     * (offset by the number of input columns).
+     */
+    @Nullable
+    private static Object getConstantValue(RexExpression operand, List<RexExpression> constants,
+        DataSchema inputSchema) {
+      if (operand instanceof RexExpression.Literal) {
+        return ((RexExpression.Literal) operand).getValue();
+      }
+      Preconditions.checkState(operand instanceof RexExpression.InputRef, "Unsupported argument: %s", operand);
+      int constantIndex = ((RexExpression.InputRef) operand).getIndex() - inputSchema.size();
+      Preconditions.checkState(constantIndex >= 0 && constantIndex < constants.size(),
+          "Argument must be a constant: %s", operand);
+      return ((RexExpression.Literal) constants.get(constantIndex)).getValue();
+    }
+
+    @Nullable
+    private static Object convertDefaultValue(@Nullable Object value, DataSchema.ColumnDataType resultType) {
+      if (!(value instanceof Number)) {
+        return value;
+      }
+      switch (resultType) {
+        case INT:
+          return ((Number) value).intValue();
+        case LONG:
+          return ((Number) value).longValue();
+        case FLOAT:
+          return ((Number) value).floatValue();
+        case DOUBLE:
+          return ((Number) value).doubleValue();
+        default:
+          return value;
+      }
+    }
+
+    /**
+     * Returns the result of LAG for the current row, which has already been counted in the partition state.
+     */
+    Object getLagResult(PartitionState partitionState, int callIndex, Object[] row) {
+      Object value = row[_inputRef];
+      if (_offset == 0) {
+        return value;
+      }
+      Object[] lagValues = partitionState._lagValues[callIndex];
+      if (lagValues == null) {
+        lagValues = new Object[_offset];
+        partitionState._lagValues[callIndex] = lagValues;
+      }
+      long rowIndex = partitionState._numRows - 1;
+      int slot = (int) (rowIndex % _offset);
+      Object result = rowIndex >= _offset ? lagValues[slot] : _defaultValue;
+      lagValues[slot] = value;
+      return result;
+    }
+  }
+
   /**
    * Contains all the ORDER BY key related information such as the keys, direction, and null direction
    */
@@ -348,81 +673,19 @@ public class WindowAggregateOperator extends MultiStageOperator {
             .putAll(AggregationUtils.Accumulator.MERGERS)
             .build();
 
-    private final Map<Key, OrderKeyResult> _orderByResults = new HashMap<>();
-    private final boolean _isPartitionByOnly;
-    private final Key _emptyOrderKey;
-
     WindowAggregateAccumulator(RexExpression.FunctionCall aggCall, Map<String,
         Function<DataSchema.ColumnDataType, AggregationUtils.Merger>> merger, String functionName,
-        DataSchema inputSchema, OrderSetInfo orderSetInfo) {
+        DataSchema inputSchema) {
       super(aggCall, merger, functionName, inputSchema);
-      _isPartitionByOnly = CollectionUtils.isEmpty(orderSetInfo.getOrderSet()) || orderSetInfo.isPartitionByOnly();
-      _emptyOrderKey = AggregationUtils.extractEmptyKey();
     }
 
-    public void accumulate(Key key, Key orderKey, Object[] row) {
-      if (_isPartitionByOnly) {
-        accumulate(key, row);
-        return;
-      }
-
+    /**
+     * Merges the value of the row into the running result of its partition.
+     */
+    Object accumulate(@Nullable Object currentRes, Object[] row) {
       // TODO: fix that single agg result (original type) has different type from multiple agg results (double).
-      Key previousOrderKeyIfPresent = _orderByResults.get(key) == null ? null
-          : _orderByResults.get(key).getPreviousOrderByKey();
-      Object currentRes = previousOrderKeyIfPresent == null ? null
-          : _orderByResults.get(key).getOrderByResults().get(previousOrderKeyIfPresent);
       Object value = _inputRef == -1 ? _literal : row[_inputRef];
-
-      _orderByResults.putIfAbsent(key, new OrderKeyResult());
-      if (currentRes == null) {
-        _orderByResults.get(key).addOrderByResult(orderKey, _merger.initialize(value, _dataType));
-      } else {
-        Object mergedResult;
-        if (orderKey.equals(previousOrderKeyIfPresent)) {
-          mergedResult = _merger.merge(currentRes, value);
-        } else {
-          Object previousValue = _orderByResults.get(key).getOrderByResults().get(previousOrderKeyIfPresent);
-          mergedResult = _merger.merge(previousValue, value);
-        }
-        _orderByResults.get(key).addOrderByResult(orderKey, mergedResult);
-      }
-    }
-
-    public Object getResultForKeys(Key key, Key orderKey) {
-      if (_isPartitionByOnly) {
-        return _results.get(key);
-      } else {
-        return _orderByResults.get(key).getOrderByResults().get(orderKey);
-      }
-    }
-
-    public Map<Key, OrderKeyResult> getOrderByResults() {
-      return _orderByResults;
-    }
-
-    static class OrderKeyResult {
-      final Map<Key, Object> _orderByResults;
-      Key _previousOrderByKey;
-
-      OrderKeyResult() {
-        _orderByResults = new HashMap<>();
-        _previousOrderByKey = null;
-      }
-
-      public void addOrderByResult(Key orderByKey, Object value) {
-        // We expect to get the rows in order based on the ORDER BY key so it is safe to blindly assign the
-        // current key as the previous key
-        _orderByResults.put(orderByKey, value);
-        _previousOrderByKey = orderByKey;
-      }
-
-      public Map<Key, Object> getOrderByResults() {
-        return _orderByResults;
-      }
-
-      public Key getPreviousOrderByKey() {
-        return _previousOrderByKey;
-      }
+      return currentRes == null ? _merger.initialize(value, _dataType) : _merger.merge(currentRes, value);
     }
   }
 }
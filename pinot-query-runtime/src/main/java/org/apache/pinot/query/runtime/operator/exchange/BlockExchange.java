@@ -92,6 +92,11 @@ public abstract class BlockExchange {
       sendingMailbox.complete();
       return;
     }
+    if (sendingMailbox.isLocal()) {
+      // in-memory mailboxes pass the block by reference, there is no message size limit to split for
+      sendingMailbox.send(block);
+      return;
+    }
 
     DataBlock.Type type = block.getType();
     Iterator<TransferableBlock> splits = _splitter.split(block, type, MAX_MAILBOX_CONTENT_SIZE_BYTES);
@@ -100,6 +105,19 @@ public abstract class BlockExchange {
     }
   }
 
+  /**
+   * Returns true if any of the receivers can't accept more data for now, in which case the caller should yield
+   * instead of sending more blocks. Note that end-of-stream blocks can always be sent.
+   */
+  public boolean isBackpressured() {
+    for (SendingMailbox<TransferableBlock> sendingMailbox : _sendingMailboxes) {
+      if (sendingMailbox.isBackpressured()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   protected abstract void route(List<SendingMailbox<TransferableBlock>> destinations, TransferableBlock block)
       throws Exception;
 
@@ -20,6 +20,7 @@ package org.apache.pinot.query.runtime.operator.exchange;
 
 import java.util.ArrayList;
 import java.util.List;
+import org.apache.pinot.common.datablock.DataBlock;
 import org.apache.pinot.query.mailbox.SendingMailbox;
 import org.apache.pinot.query.planner.partitioning.KeySelector;
 import org.apache.pinot.query.runtime.blocks.BlockSplitter;
@@ -45,6 +46,10 @@ class HashExchange extends BlockExchange {
   @Override
   protected void route(List<SendingMailbox<TransferableBlock>> destinations, TransferableBlock block)
       throws Exception {
+    if (block.getType() == DataBlock.Type.COLUMNAR) {
+      routeColumnar(destinations, block);
+      return;
+    }
     List<Object[]>[] destIdxToRows = new List[destinations.size()];
     for (Object[] row : block.getContainer()) {
       int partition = _keySelector.computeHash(row) % destinations.size();
@@ -59,4 +64,51 @@ class HashExchange extends BlockExchange {
       }
     }
   }
+
+  /**
+   * Routes a columnar block without materializing its rows: a single row buffer is reused to compute the partition of
+   * each row, and each destination receives the columns sliced to its row ids.
+   */
+  private void routeColumnar(List<SendingMailbox<TransferableBlock>> destinations, TransferableBlock block)
+      throws Exception {
+    List<Object[]> columns = block.getContainer();
+    int numColumns = columns.size();
+    int numRows = block.getNumRows();
+    int numDestinations = destinations.size();
+    int[] rowToPartition = new int[numRows];
+    int[] partitionSizes = new int[numDestinations];
+    Object[] row = new Object[numColumns];
+    for (int rowId = 0; rowId < numRows; rowId++) {
+      for (int colId = 0; colId < numColumns; colId++) {
+        row[colId] = columns.get(colId)[rowId];
+      }
+      int partition = _keySelector.computeHash(row) % numDestinations;
+      rowToPartition[rowId] = partition;
+      partitionSizes[partition]++;
+    }
+    for (int partition = 0; partition < numDestinations; partition++) {
+      int partitionSize = partitionSizes[partition];
+      if (partitionSize == 0) {
+        continue;
+      }
+      List<Object[]> partitionColumns;
+      if (partitionSize == numRows) {
+        partitionColumns = columns;
+      } else {
+        partitionColumns = new ArrayList<>(numColumns);
+        for (Object[] column : columns) {
+          Object[] partitionColumn = new Object[partitionSize];
+          int index = 0;
+          for (int rowId = 0; rowId < numRows; rowId++) {
+            if (rowToPartition[rowId] == partition) {
+              partitionColumn[index++] = column[rowId];
+            }
+          }
+          partitionColumns.add(partitionColumn);
+        }
+      }
+      sendBlock(destinations.get(partition),
+          new TransferableBlock(partitionColumns, block.getDataSchema(), DataBlock.Type.COLUMNAR));
+    }
+  }
 }
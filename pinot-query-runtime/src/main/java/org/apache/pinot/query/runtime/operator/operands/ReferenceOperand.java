@@ -31,6 +31,10 @@ public class ReferenceOperand extends TransformOperand {
     _resultName = dataSchema.getColumnName(_refIndex);
   }
 
+  public int getRefIndex() {
+    return _refIndex;
+  }
+
   @Override
   public Object apply(Object[] row) {
     return row[_refIndex];
@@ -0,0 +1,184 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.utils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.pinot.common.utils.DataSchema;
+
+
+/**
+ * Sorts rows under a memory budget. Rows are buffered in memory up to {@code maxRowsInMemory}, after which the buffer
+ * is sorted and spilled to disk as a sorted run (see {@link SpilledRowsFile}). The sorted output is then produced by a
+ * k-way merge over the runs, streaming each run from disk one chunk at a time.
+ *
+ * <p>At most {@code maxMergeFanIn} runs are merged at once, and the chunks are sized so that one chunk per merged run
+ * fits in the memory budget. When there are more runs than the fan-in, groups of runs are first merged into longer runs
+ * on disk until the remaining runs can be merged in a single pass.
+ *
+ * <p>Only the first {@code numRowsToKeep} rows of the sorted output are returned, so each run is trimmed to that many
+ * rows before being spilled.
+ */
+public class ExternalSorter implements Closeable {
+  private static final String SPILL_FILE_PREFIX = "pinot-sort-run-";
+  // Maximum number of rows serialized together when spilling a run, which is also the number of rows per run held in
+  // memory while merging.
+  private static final int MAX_SPILL_CHUNK_NUM_ROWS = 10_000;
+
+  private final Comparator<Object[]> _comparator;
+  private final DataSchema _dataSchema;
+  private final File _spillDir;
+  private final int _maxRowsInMemory;
+  private final int _maxMergeFanIn;
+  private final int _spillChunkNumRows;
+  private final int _numRowsToKeep;
+  private final Deque<SpilledRowsFile> _runs = new ArrayDeque<>();
+  private List<Object[]> _buffer = new ArrayList<>();
+
+  /**
+   * @param comparator order of the sorted output
+   * @param spillDir directory of the spilled runs, or {@code null} to use the default temporary directory
+   */
+  public ExternalSorter(Comparator<Object[]> comparator, DataSchema dataSchema, @Nullable File spillDir,
+      int maxRowsInMemory, int maxMergeFanIn, int numRowsToKeep) {
+    Preconditions.checkArgument(maxMergeFanIn >= 2, "Max merge fan-in must be at least 2, got: %s", maxMergeFanIn);
+    _comparator = comparator;
+    _dataSchema = dataSchema;
+    _spillDir = spillDir;
+    _maxRowsInMemory = maxRowsInMemory;
+    _maxMergeFanIn = maxMergeFanIn;
+    _spillChunkNumRows = Math.max(1, Math.min(MAX_SPILL_CHUNK_NUM_ROWS, maxRowsInMemory / maxMergeFanIn));
+    _numRowsToKeep = numRowsToKeep;
+  }
+
+  public void add(Object[] row)
+      throws IOException {
+    _buffer.add(row);
+    if (_buffer.size() >= _maxRowsInMemory) {
+      spill();
+    }
+  }
+
+  public int getNumSpilledRuns() {
+    return _runs.size();
+  }
+
+  /**
+   * Returns the sorted rows. No more rows should be added after this is called.
+   */
+  public Iterator<Object[]> sortedIterator()
+      throws IOException {
+    if (_runs.isEmpty()) {
+      return sortAndTrimBuffer().iterator();
+    }
+    // Spill the remaining rows as well so that only one chunk per run is held in memory while merging
+    if (!_buffer.isEmpty()) {
+      spill();
+    }
+    while (_runs.size() > _maxMergeFanIn) {
+      mergeRuns();
+    }
+    return Iterators.limit(Iterators.mergeSorted(readRuns(), _comparator), _numRowsToKeep);
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    _buffer = null;
+    IOException exception = null;
+    for (SpilledRowsFile run : _runs) {
+      try {
+        run.close();
+      } catch (IOException e) {
+        exception = e;
+      }
+    }
+    _runs.clear();
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  private void spill()
+      throws IOException {
+    List<Object[]> rows = sortAndTrimBuffer();
+    SpilledRowsFile run = new SpilledRowsFile(_spillDir, SPILL_FILE_PREFIX, _dataSchema);
+    _runs.add(run);
+    int numRows = rows.size();
+    for (int startRow = 0; startRow < numRows; startRow += _spillChunkNumRows) {
+      run.append(rows.subList(startRow, Math.min(startRow + _spillChunkNumRows, numRows)));
+    }
+    _buffer = new ArrayList<>();
+  }
+
+  /**
+   * Merges the oldest runs (up to the fan-in) into a new run appended to the end, so that each pass merges runs of
+   * similar length.
+   */
+  private void mergeRuns()
+      throws IOException {
+    List<SpilledRowsFile> runsToMerge = new ArrayList<>(_maxMergeFanIn);
+    List<Iterator<Object[]>> runIterators = new ArrayList<>(_maxMergeFanIn);
+    for (int i = 0; i < _maxMergeFanIn; i++) {
+      SpilledRowsFile run = _runs.poll();
+      runsToMerge.add(run);
+      runIterators.add(run.read());
+    }
+    SpilledRowsFile mergedRun = new SpilledRowsFile(_spillDir, SPILL_FILE_PREFIX, _dataSchema);
+    _runs.add(mergedRun);
+    Iterator<Object[]> mergedRows =
+        Iterators.limit(Iterators.mergeSorted(runIterators, _comparator), _numRowsToKeep);
+    List<Object[]> chunk = new ArrayList<>(_spillChunkNumRows);
+    while (mergedRows.hasNext()) {
+      chunk.add(mergedRows.next());
+      if (chunk.size() == _spillChunkNumRows) {
+        mergedRun.append(chunk);
+        chunk.clear();
+      }
+    }
+    mergedRun.append(chunk);
+    for (SpilledRowsFile run : runsToMerge) {
+      run.close();
+    }
+  }
+
+  private List<Iterator<Object[]>> readRuns()
+      throws IOException {
+    List<Iterator<Object[]>> runIterators = new ArrayList<>(_runs.size());
+    for (SpilledRowsFile run : _runs) {
+      runIterators.add(run.read());
+    }
+    return runIterators;
+  }
+
+  private List<Object[]> sortAndTrimBuffer() {
+    _buffer.sort(_comparator);
+    return _buffer.size() > _numRowsToKeep ? _buffer.subList(0, _numRowsToKeep) : _buffer;
+  }
+}
@@ -0,0 +1,291 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.utils;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.core.data.table.Key;
+import org.apache.pinot.query.planner.partitioning.FieldSelectionKeySelector;
+import org.apache.pinot.query.planner.partitioning.KeySelector;
+
+
+/**
+ * The {@code JoinHashTable} holds the build side rows of a hash join.
+ *
+ * <p>Rows are stored once in insertion order and addressed by a dense row id. Rows sharing the same join key are
+ * chained through a primitive next-row-id array, and the join key is mapped to its chain through an open addressing
+ * hash map. Single column INT and LONG keys are stored unboxed, other single column keys are stored as is, and only
+ * multi-column keys are wrapped into a {@link Key}. The dense row ids allow the caller to track matched rows with a
+ * bitmap instead of per-key collections.
+ *
+ * <p>Values that do not match the specialized key type (e.g. {@code null}) are kept in a fallback map so that the
+ * matching semantics are identical to the generic {@link Key} based lookup.
+ */
+public abstract class JoinHashTable {
+  protected static final int INVALID_ID = -1;
+
+  protected final List<Object[]> _rows = new ArrayList<>();
+  // Next row id with the same key for each row id
+  protected final IntArrayList _nextRowIds = new IntArrayList();
+  // First and last row id for each distinct key (indexed by key id)
+  protected final IntArrayList _firstRowIds = new IntArrayList();
+  protected final IntArrayList _lastRowIds = new IntArrayList();
+
+  /**
+   * Creates a {@code JoinHashTable} specialized for the key type when the join keys are selected from a single column.
+   *
+   * @param buildKeySelector key selector for the rows stored in the hash table
+   * @param probeKeySelector key selector for the rows used to look up the hash table
+   * @param keyColumnDataTypes data types of the join key columns
+   */
+  public static JoinHashTable create(KeySelector<Object[], Object[]> buildKeySelector,
+      KeySelector<Object[], Object[]> probeKeySelector, ColumnDataType[] keyColumnDataTypes) {
+    if (keyColumnDataTypes.length == 1 && buildKeySelector instanceof FieldSelectionKeySelector
+        && probeKeySelector instanceof FieldSelectionKeySelector) {
+      int buildColumnIndex = ((FieldSelectionKeySelector) buildKeySelector).getColumnIndices().get(0);
+      int probeColumnIndex = ((FieldSelectionKeySelector) probeKeySelector).getColumnIndices().get(0);
+      switch (keyColumnDataTypes[0]) {
+        case INT:
+          return new IntKeyJoinHashTable(buildColumnIndex, probeColumnIndex);
+        case LONG:
+          return new LongKeyJoinHashTable(buildColumnIndex, probeColumnIndex);
+        default:
+          return new SingleColumnKeyJoinHashTable(buildColumnIndex, probeColumnIndex);
+      }
+    }
+    return new MultiColumnKeyJoinHashTable(buildKeySelector, probeKeySelector);
+  }
+
+  /**
+   * Returns the key id for the given build side row, or creates a new one if the key does not exist.
+   */
+  protected abstract int getOrCreateKeyId(Object[] buildRow);
+
+  /**
+   * Returns the key id matching the given probe side row, or {@link #INVALID_ID} if the key does not exist.
+   */
+  protected abstract int getKeyId(Object[] probeRow);
+
+  protected <K> int getOrCreateKeyId(Object2IntOpenHashMap<K> keyIdMap, K key) {
+    int keyId = keyIdMap.getInt(key);
+    if (keyId == INVALID_ID) {
+      keyId = addKey();
+      keyIdMap.put(key, keyId);
+    }
+    return keyId;
+  }
+
+  protected int addKey() {
+    int keyId = _firstRowIds.size();
+    _firstRowIds.add(INVALID_ID);
+    _lastRowIds.add(INVALID_ID);
+    return keyId;
+  }
+
+  /**
+   * Adds a build side row into the hash table.
+   */
+  public void addRow(Object[] buildRow) {
+    int rowId = _rows.size();
+    _rows.add(buildRow);
+    _nextRowIds.add(INVALID_ID);
+    int keyId = getOrCreateKeyId(buildRow);
+    int lastRowId = _lastRowIds.getInt(keyId);
+    if (lastRowId == INVALID_ID) {
+      _firstRowIds.set(keyId, rowId);
+    } else {
+      _nextRowIds.set(lastRowId, rowId);
+    }
+    _lastRowIds.set(keyId, rowId);
+  }
+
+  /**
+   * Returns whether there are build side rows matching the key of the given probe side row.
+   */
+  public boolean containsKey(Object[] probeRow) {
+    return getKeyId(probeRow) != INVALID_ID;
+  }
+
+  /**
+   * Returns the id of the first build side row matching the key of the given probe side row, or a negative value if
+   * there is no match. The following matched rows can be iterated with {@link #getNextRowId(int)}.
+   */
+  public int getFirstRowId(Object[] probeRow) {
+    int keyId = getKeyId(probeRow);
+    return keyId != INVALID_ID ? _firstRowIds.getInt(keyId) : INVALID_ID;
+  }
+
+  /**
+   * Returns the id of the next build side row with the same key as the given row id, or a negative value if the given
+   * row is the last one.
+   */
+  public int getNextRowId(int rowId) {
+    return _nextRowIds.getInt(rowId);
+  }
+
+  public Object[] getRow(int rowId) {
+    return _rows.get(rowId);
+  }
+
+  public int getNumRows() {
+    return _rows.size();
+  }
+
+  public int getNumKeys() {
+    return _firstRowIds.size();
+  }
+
+  /**
+   * Returns the first build side row with the given key id (between 0 and the number of keys), which can be used to
+   * get the values of the key.
+   */
+  public Object[] getFirstRowOfKey(int keyId) {
+    return _rows.get(_firstRowIds.getInt(keyId));
+  }
+
+  private static class IntKeyJoinHashTable extends JoinHashTable {
+    private final int _buildColumnIndex;
+    private final int _probeColumnIndex;
+    private final Int2IntOpenHashMap _keyIdMap = new Int2IntOpenHashMap();
+    private final Object2IntOpenHashMap<Object> _fallbackKeyIdMap = new Object2IntOpenHashMap<>();
+
+    IntKeyJoinHashTable(int buildColumnIndex, int probeColumnIndex) {
+      _buildColumnIndex = buildColumnIndex;
+      _probeColumnIndex = probeColumnIndex;
+      _keyIdMap.defaultReturnValue(INVALID_ID);
+      _fallbackKeyIdMap.defaultReturnValue(INVALID_ID);
+    }
+
+    @Override
+    protected int getOrCreateKeyId(Object[] buildRow) {
+      Object value = buildRow[_buildColumnIndex];
+      if (value instanceof Integer) {
+        int intValue = (Integer) value;
+        int keyId = _keyIdMap.get(intValue);
+        if (keyId == INVALID_ID) {
+          keyId = addKey();
+          _keyIdMap.put(intValue, keyId);
+        }
+        return keyId;
+      } else {
+        return getOrCreateKeyId(_fallbackKeyIdMap, value);
+      }
+    }
+
+    @Override
+    protected int getKeyId(Object[] probeRow) {
+      Object value = probeRow[_probeColumnIndex];
+      if (value instanceof Integer) {
+        return _keyIdMap.get((int) (Integer) value);
+      } else {
+        return _fallbackKeyIdMap.getInt(value);
+      }
+    }
+  }
+
+  private static class LongKeyJoinHashTable extends JoinHashTable {
+    private final int _buildColumnIndex;
+    private final int _probeColumnIndex;
+    private final Long2IntOpenHashMap _keyIdMap = new Long2IntOpenHashMap();
+    private final Object2IntOpenHashMap<Object> _fallbackKeyIdMap = new Object2IntOpenHashMap<>();
+
+    LongKeyJoinHashTable(int buildColumnIndex, int probeColumnIndex) {
+      _buildColumnIndex = buildColumnIndex;
+      _probeColumnIndex = probeColumnIndex;
+      _keyIdMap.defaultReturnValue(INVALID_ID);
+      _fallbackKeyIdMap.defaultReturnValue(INVALID_ID);
+    }
+
+    @Override
+    protected int getOrCreateKeyId(Object[] buildRow) {
+      Object value = buildRow[_buildColumnIndex];
+      if (value instanceof Long) {
+        long longValue = (Long) value;
+        int keyId = _keyIdMap.get(longValue);
+        if (keyId == INVALID_ID) {
+          keyId = addKey();
+          _keyIdMap.put(longValue, keyId);
+        }
+        return keyId;
+      } else {
+        return getOrCreateKeyId(_fallbackKeyIdMap, value);
+      }
+    }
+
+    @Override
+    protected int getKeyId(Object[] probeRow) {
+      Object value = probeRow[_probeColumnIndex];
+      if (value instanceof Long) {
+        return _keyIdMap.get((long) (Long) value);
+      } else {
+        return _fallbackKeyIdMap.getInt(value);
+      }
+    }
+  }
+
+  private static class SingleColumnKeyJoinHashTable extends JoinHashTable {
+    private final int _buildColumnIndex;
+    private final int _probeColumnIndex;
+    private final Object2IntOpenHashMap<Object> _keyIdMap = new Object2IntOpenHashMap<>();
+
+    SingleColumnKeyJoinHashTable(int buildColumnIndex, int probeColumnIndex) {
+      _buildColumnIndex = buildColumnIndex;
+      _probeColumnIndex = probeColumnIndex;
+      _keyIdMap.defaultReturnValue(INVALID_ID);
+    }
+
+    @Override
+    protected int getOrCreateKeyId(Object[] buildRow) {
+      return getOrCreateKeyId(_keyIdMap, buildRow[_buildColumnIndex]);
+    }
+
+    @Override
+    protected int getKeyId(Object[] probeRow) {
+      return _keyIdMap.getInt(probeRow[_probeColumnIndex]);
+    }
+  }
+
+  private static class MultiColumnKeyJoinHashTable extends JoinHashTable {
+    private final KeySelector<Object[], Object[]> _buildKeySelector;
+    private final KeySelector<Object[], Object[]> _probeKeySelector;
+    private final Object2IntOpenHashMap<Key> _keyIdMap = new Object2IntOpenHashMap<>();
+
+    MultiColumnKeyJoinHashTable(KeySelector<Object[], Object[]> buildKeySelector,
+        KeySelector<Object[], Object[]> probeKeySelector) {
+      _buildKeySelector = buildKeySelector;
+      _probeKeySelector = probeKeySelector;
+      _keyIdMap.defaultReturnValue(INVALID_ID);
+    }
+
+    @Override
+    protected int getOrCreateKeyId(Object[] buildRow) {
+      return getOrCreateKeyId(_keyIdMap, new Key(_buildKeySelector.getKey(buildRow)));
+    }
+
+    @Override
+    protected int getKeyId(Object[] probeRow) {
+      return _keyIdMap.getInt(new Key(_probeKeySelector.getKey(probeRow)));
+    }
+  }
+}
@@ -0,0 +1,252 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.utils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.apache.pinot.common.utils.DataSchema;
+
+
+/**
+ * Accumulates SUM/COUNT/MIN/MAX over numeric values into a primitive array indexed by group id, instead of boxing a
+ * value per group into a map as {@link AggregationUtils.Accumulator} does.
+ *
+ * <p>Results follow the same semantics as the mergers in {@link AggregationUtils.Accumulator#MERGERS}: a group that
+ * accumulated a single value returns it in its original type, while merged groups return a double.
+ *
+ * <p>The accumulated values of a group can also be extracted as a partial aggregate with
+ * {@link #getPartialResult(int, Object[], int)} and merged back with
+ * {@link #mergePartialResult(int, Object[], int, boolean)}, which is used to re-aggregate groups spilled to disk.
+ */
+public class PrimitiveAccumulator {
+  private static final int INITIAL_CAPACITY = 128;
+
+  private enum Type {
+    SUM, COUNT, MIN, MAX
+  }
+
+  private final Type _type;
+  private final int _inputRef;
+  private final Object _literal;
+  private final DataSchema.ColumnDataType _dataType;
+
+  private double[] _values = new double[INITIAL_CAPACITY];
+  // exact first value of each group for LONG inputs, which cannot always be represented as a double
+  private long[] _firstLongValues;
+  // groups which accumulated more than one value
+  private final BitSet _mergedGroups = new BitSet();
+
+  private PrimitiveAccumulator(Type type, AggregationUtils.Accumulator accumulator) {
+    _type = type;
+    _inputRef = accumulator._inputRef;
+    _literal = accumulator._literal;
+    _dataType = accumulator.getDataType();
+    _firstLongValues = _dataType == DataSchema.ColumnDataType.LONG && _type != Type.COUNT
+        ? new long[INITIAL_CAPACITY] : null;
+  }
+
+  /**
+   * Returns a primitive accumulator equivalent to the given accumulator, or {@code null} if the aggregation function
+   * or its input type is not supported or a non-default merger is configured for the function.
+   */
+  @Nullable
+  public static PrimitiveAccumulator create(AggregationUtils.Accumulator accumulator, String functionName,
+      Map<String, Function<DataSchema.ColumnDataType, AggregationUtils.Merger>> mergers) {
+    if (mergers.get(functionName) != AggregationUtils.Accumulator.MERGERS.get(functionName)) {
+      return null;
+    }
+    Type type;
+    switch (functionName) {
+      case "SUM":
+      case "$SUM":
+      case "$SUM0":
+        type = Type.SUM;
+        break;
+      case "COUNT":
+        // COUNT does not read the values so it supports inputs of any type
+        return new PrimitiveAccumulator(Type.COUNT, accumulator);
+      case "MIN":
+      case "$MIN":
+      case "$MIN0":
+        type = Type.MIN;
+        break;
+      case "MAX":
+      case "$MAX":
+      case "$MAX0":
+        type = Type.MAX;
+        break;
+      default:
+        return null;
+    }
+    switch (accumulator.getDataType()) {
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        return new PrimitiveAccumulator(type, accumulator);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Accumulates the value of the row into the given group.
+   *
+   * @param isNewGroup whether this is the first row of the group
+   */
+  public void accumulate(int groupId, Object[] row, boolean isNewGroup) {
+    Object value = _inputRef == -1 ? _literal : row[_inputRef];
+    if (isNewGroup) {
+      ensureCapacity(groupId);
+      if (_type == Type.COUNT) {
+        _values[groupId] = value == null ? 0 : 1;
+      } else if (value == null) {
+        _values[groupId] = 0;
+        if (_firstLongValues != null) {
+          _firstLongValues[groupId] = 0;
+        }
+      } else {
+        _values[groupId] = ((Number) value).doubleValue();
+        if (_firstLongValues != null) {
+          _firstLongValues[groupId] = ((Number) value).longValue();
+        }
+      }
+    } else {
+      _mergedGroups.set(groupId);
+      switch (_type) {
+        case SUM:
+          _values[groupId] += ((Number) value).doubleValue();
+          break;
+        case COUNT:
+          _values[groupId] += value == null ? 0 : 1;
+          break;
+        case MIN:
+          _values[groupId] = Math.min(_values[groupId], ((Number) value).doubleValue());
+          break;
+        case MAX:
+          _values[groupId] = Math.max(_values[groupId], ((Number) value).doubleValue());
+          break;
+        default:
+          throw new IllegalStateException("Unsupported aggregation: " + _type);
+      }
+    }
+  }
+
+  public Object getResult(int groupId) {
+    double value = _values[groupId];
+    if (_mergedGroups.get(groupId)) {
+      return value;
+    }
+    if (_type == Type.COUNT) {
+      return (int) value;
+    }
+    switch (_dataType) {
+      case INT:
+        return (int) value;
+      case LONG:
+        return _firstLongValues[groupId];
+      case FLOAT:
+        return (float) value;
+      default:
+        return value;
+    }
+  }
+
+  /**
+   * Returns the types of the columns holding a partial aggregate: the accumulated value, whether the group accumulated
+   * more than one value, and the exact first value for LONG inputs so that single value groups keep their type and
+   * precision after being re-aggregated.
+   */
+  public DataSchema.ColumnDataType[] getPartialResultColumnDataTypes() {
+    return _firstLongValues != null ? new DataSchema.ColumnDataType[]{
+        DataSchema.ColumnDataType.DOUBLE, DataSchema.ColumnDataType.INT, DataSchema.ColumnDataType.LONG
+    } : new DataSchema.ColumnDataType[]{DataSchema.ColumnDataType.DOUBLE, DataSchema.ColumnDataType.INT};
+  }
+
+  /**
+   * Writes the partial aggregate of the given group into the row, starting at the given column.
+   */
+  public void getPartialResult(int groupId, Object[] row, int offset) {
+    row[offset] = _values[groupId];
+    row[offset + 1] = _mergedGroups.get(groupId) ? 1 : 0;
+    if (_firstLongValues != null) {
+      row[offset + 2] = _firstLongValues[groupId];
+    }
+  }
+
+  /**
+   * Merges a partial aggregate previously extracted with {@link #getPartialResult(int, Object[], int)} into the given
+   * group.
+   *
+   * @param isNewGroup whether this is the first partial aggregate of the group
+   */
+  public void mergePartialResult(int groupId, Object[] row, int offset, boolean isNewGroup) {
+    double partialResult = (Double) row[offset];
+    if (isNewGroup) {
+      ensureCapacity(groupId);
+      _values[groupId] = partialResult;
+      if ((Integer) row[offset + 1] != 0) {
+        _mergedGroups.set(groupId);
+      }
+      if (_firstLongValues != null) {
+        _firstLongValues[groupId] = (Long) row[offset + 2];
+      }
+      return;
+    }
+    _mergedGroups.set(groupId);
+    switch (_type) {
+      case SUM:
+      case COUNT:
+        _values[groupId] += partialResult;
+        break;
+      case MIN:
+        _values[groupId] = Math.min(_values[groupId], partialResult);
+        break;
+      case MAX:
+        _values[groupId] = Math.max(_values[groupId], partialResult);
+        break;
+      default:
+        throw new IllegalStateException("Unsupported aggregation: " + _type);
+    }
+  }
+
+  /**
+   * Drops all the accumulated groups.
+   */
+  public void clear() {
+    _values = new double[INITIAL_CAPACITY];
+    if (_firstLongValues != null) {
+      _firstLongValues = new long[INITIAL_CAPACITY];
+    }
+    _mergedGroups.clear();
+  }
+
+  private void ensureCapacity(int groupId) {
+    if (groupId >= _values.length) {
+      int newCapacity = Math.max(_values.length * 2, groupId + 1);
+      _values = Arrays.copyOf(_values, newCapacity);
+      if (_firstLongValues != null) {
+        _firstLongValues = Arrays.copyOf(_firstLongValues, newCapacity);
+      }
+    }
+  }
+}
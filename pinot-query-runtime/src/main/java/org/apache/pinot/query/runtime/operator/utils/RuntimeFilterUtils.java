@@ -0,0 +1,193 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.utils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import org.apache.pinot.query.mailbox.JsonMailboxIdentifier;
+import org.apache.pinot.query.mailbox.MailboxIdentifier;
+import org.apache.pinot.query.mailbox.MailboxService;
+import org.apache.pinot.query.mailbox.ReceivingMailbox;
+import org.apache.pinot.query.mailbox.SendingMailbox;
+import org.apache.pinot.query.routing.VirtualServer;
+import org.apache.pinot.query.routing.VirtualServerAddress;
+import org.apache.pinot.query.runtime.blocks.TransferableBlock;
+import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
+import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Utils to exchange the runtime filter between a hash join and the leaf stage of its left (probe) side.
+ *
+ * <p>Once the hash table is built, each worker of the join stage sends the distinct keys of the right (build) side to
+ * every worker of the leaf stage, through a mailbox going in the reverse direction of the left input. The keys are sent
+ * as a single data block followed by an end-of-stream block, and a worker gives up publishing the keys by sending the
+ * end-of-stream block only (e.g. when there are too many keys). The leaf stage waits for the keys from all the join
+ * workers and filters the scanned rows with the union of the keys. It is woken up by the {@link DataAvailableNotifier}
+ * chained to the mailbox callback instead of polling the mailboxes.
+ */
+public class RuntimeFilterUtils {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RuntimeFilterUtils.class);
+
+  // Max number of distinct keys published by a join worker, above which the filter is too expensive to evaluate and
+  // unlikely to be selective
+  public static final int MAX_NUM_KEYS = 10_000;
+
+  private RuntimeFilterUtils() {
+  }
+
+  /**
+   * Sends the keys to all the workers of the leaf stage, or only the end-of-stream if the keys are {@code null}.
+   * Failures are only logged as the leaf stage stops waiting for the keys after a while.
+   */
+  public static void publish(OpChainExecutionContext context, int leafStageId, @Nullable TransferableBlock keysBlock) {
+    for (VirtualServer leafServer : context.getMetadataMap().get(leafStageId).getServerInstances()) {
+      MailboxIdentifier mailboxId = toMailboxId(context.getRequestId(), context.getStageId(), context.getServer(),
+          leafStageId, new VirtualServerAddress(leafServer));
+      SendingMailbox<TransferableBlock> sendingMailbox =
+          context.getMailboxService().getSendingMailbox(mailboxId, context.getDeadlineMs());
+      try {
+        if (keysBlock != null) {
+          sendingMailbox.send(keysBlock);
+        }
+        sendingMailbox.send(TransferableBlockUtils.getEndOfStreamTransferableBlock());
+        sendingMailbox.complete();
+      } catch (Exception e) {
+        LOGGER.warn("Failed to publish runtime filter to mailbox: {}", mailboxId, e);
+        sendingMailbox.cancel(e);
+      }
+    }
+  }
+
+  /**
+   * Waits until the keys are received from all the workers of the join stage, and returns the distinct values of each
+   * key column. Returns {@code null} when any of the join workers gave up publishing the keys, or the keys were not
+   * received before the wait deadline.
+   */
+  @Nullable
+  public static List<Set<Object>> receive(MailboxService<TransferableBlock> mailboxService,
+      DataAvailableNotifier notifier, long requestId, int leafStageId, VirtualServerAddress leafServer,
+      int joinStageId, List<VirtualServer> joinServers, int numKeyColumns, long waitDeadlineMs) {
+    List<MailboxIdentifier> pendingMailboxIds = new ArrayList<>(joinServers.size());
+    for (VirtualServer joinServer : joinServers) {
+      pendingMailboxIds.add(
+          toMailboxId(requestId, joinStageId, new VirtualServerAddress(joinServer), leafStageId, leafServer));
+    }
+    List<MailboxIdentifier> mailboxIds = new ArrayList<>(pendingMailboxIds);
+    // Register before reading the mailboxes so that no notification is missed
+    Semaphore dataAvailable = new Semaphore(0);
+    notifier.register(mailboxIds, dataAvailable);
+    Set<MailboxIdentifier> publishedMailboxIds = new HashSet<>();
+    List<Set<Object>> keyValues = new ArrayList<>(numKeyColumns);
+    for (int i = 0; i < numKeyColumns; i++) {
+      keyValues.add(new HashSet<>());
+    }
+    try {
+      while (true) {
+        Iterator<MailboxIdentifier> iterator = pendingMailboxIds.iterator();
+        while (iterator.hasNext()) {
+          MailboxIdentifier mailboxId = iterator.next();
+          ReceivingMailbox<TransferableBlock> receivingMailbox = mailboxService.getReceivingMailbox(mailboxId);
+          TransferableBlock block;
+          while ((block = receivingMailbox.receive()) != null) {
+            if (block.isEndOfStreamBlock()) {
+              if (!block.isSuccessfulEndOfStreamBlock() || !publishedMailboxIds.contains(mailboxId)) {
+                return null;
+              }
+              iterator.remove();
+              break;
+            }
+            publishedMailboxIds.add(mailboxId);
+            for (Object[] row : block.getRows()) {
+              for (int i = 0; i < numKeyColumns; i++) {
+                keyValues.get(i).add(row[i]);
+              }
+            }
+          }
+        }
+        if (pendingMailboxIds.isEmpty()) {
+          return keyValues;
+        }
+        long waitTimeMs = waitDeadlineMs - System.currentTimeMillis();
+        if (waitTimeMs <= 0 || !dataAvailable.tryAcquire(waitTimeMs, TimeUnit.MILLISECONDS)) {
+          LOGGER.debug("Timed out waiting for runtime filter for requestId: {}, stageId: {}", requestId, leafStageId);
+          return null;
+        }
+        // Read all the blocks that have arrived, so the notifications for them are no longer needed
+        dataAvailable.drainPermits();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (Exception e) {
+      LOGGER.warn("Failed to receive runtime filter for requestId: {}, stageId: {}", requestId, leafStageId, e);
+      return null;
+    } finally {
+      notifier.deregister(mailboxIds);
+      for (MailboxIdentifier mailboxId : mailboxIds) {
+        mailboxService.releaseReceivingMailbox(mailboxId);
+      }
+    }
+  }
+
+  /**
+   * Mailbox callback that wakes up the leaf stages waiting for the runtime filter on the mailboxes with new data. It
+   * should be invoked for every mail received by the mailbox service, in addition to the op chain scheduler callback.
+   */
+  public static class DataAvailableNotifier implements Consumer<MailboxIdentifier> {
+    private final Map<MailboxIdentifier, Semaphore> _waitingMailboxes = new ConcurrentHashMap<>();
+
+    @Override
+    public void accept(MailboxIdentifier mailboxId) {
+      Semaphore dataAvailable = _waitingMailboxes.get(mailboxId);
+      if (dataAvailable != null) {
+        dataAvailable.release();
+      }
+    }
+
+    private void register(List<MailboxIdentifier> mailboxIds, Semaphore dataAvailable) {
+      for (MailboxIdentifier mailboxId : mailboxIds) {
+        _waitingMailboxes.put(mailboxId, dataAvailable);
+      }
+    }
+
+    private void deregister(List<MailboxIdentifier> mailboxIds) {
+      for (MailboxIdentifier mailboxId : mailboxIds) {
+        _waitingMailboxes.remove(mailboxId);
+      }
+    }
+  }
+
+  private static MailboxIdentifier toMailboxId(long requestId, int joinStageId, VirtualServerAddress joinServer,
+      int leafStageId, VirtualServerAddress leafServer) {
+    return new JsonMailboxIdentifier(String.format("%s_%s", requestId, joinStageId), joinServer, leafServer,
+        joinStageId, leafStageId);
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.pinot.query.runtime.operator.utils;
 
 import java.util.Comparator;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.query.planner.logical.RexExpression;
@@ -35,18 +36,37 @@ public class SortUtils {
     private final int[] _valueIndices;
     private final int[] _multipliers;
     private final boolean[] _useDoubleComparison;
+    private final boolean[] _nullsFirst;
 
     public SortComparator(List<RexExpression> collationKeys, List<RelFieldCollation.Direction> collationDirections,
         DataSchema dataSchema, boolean isNullHandlingEnabled) {
+      this(collationKeys, collationDirections, null, dataSchema, isNullHandlingEnabled);
+    }
+
+    /**
+     * Null values are placed based on the given null directions, or based on the default null direction of the sort
+     * direction (i.e. nulls are considered larger than the other values) when not specified.
+     */
+    public SortComparator(List<RexExpression> collationKeys, List<RelFieldCollation.Direction> collationDirections,
+        @Nullable List<RelFieldCollation.NullDirection> collationNullDirections, DataSchema dataSchema,
+        boolean isNullHandlingEnabled) {
       DataSchema.ColumnDataType[] columnDataTypes = dataSchema.getColumnDataTypes();
       _size = collationKeys.size();
       _valueIndices = new int[_size];
       _multipliers = new int[_size];
       _useDoubleComparison = new boolean[_size];
+      _nullsFirst = new boolean[_size];
       for (int i = 0; i < _size; i++) {
         _valueIndices[i] = ((RexExpression.InputRef) collationKeys.get(i)).getIndex();
-        _multipliers[i] = collationDirections.get(i).isDescending() ? 1 : -1;
+        RelFieldCollation.Direction direction = collationDirections.get(i);
+        _multipliers[i] = direction.isDescending() ? 1 : -1;
         _useDoubleComparison[i] = columnDataTypes[_valueIndices[i]].isNumber();
+        RelFieldCollation.NullDirection nullDirection =
+            collationNullDirections != null ? collationNullDirections.get(i) : null;
+        if (nullDirection == null || nullDirection == RelFieldCollation.NullDirection.UNSPECIFIED) {
+          nullDirection = direction.defaultNullDirection();
+        }
+        _nullsFirst[i] = nullDirection == RelFieldCollation.NullDirection.FIRST;
       }
     }
 
@@ -56,6 +76,14 @@ public class SortUtils {
         int index = _valueIndices[i];
         Object v1 = o1[index];
         Object v2 = o2[index];
+        if (v1 == null || v2 == null) {
+          if (v1 == v2) {
+            continue;
+          }
+          // The comparator is reversed (the sorted rows are polled from the end), and nulls are placed based on the
+          // null direction regardless of the sort direction
+          return (v1 == null) == _nullsFirst[i] ? 1 : -1;
+        }
         int result;
         if (_useDoubleComparison[i]) {
           result = Double.compare(((Number) v1).doubleValue(), ((Number) v2).doubleValue());
@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.utils;
+
+import com.google.common.base.Preconditions;
+import java.io.File;
+import javax.annotation.Nullable;
+import org.apache.pinot.query.service.QueryConfig;
+import org.apache.pinot.spi.env.PinotConfiguration;
+
+
+/**
+ * Memory budgets of the operators that spill to disk, and the directory holding the spilled files.
+ */
+public class SpillConfig {
+  public static final SpillConfig DEFAULT =
+      new SpillConfig(null, QueryConfig.DEFAULT_SORT_MAX_ROWS_IN_MEMORY, QueryConfig.DEFAULT_SORT_MAX_MERGE_FAN_IN,
+          QueryConfig.DEFAULT_AGGREGATE_MAX_GROUPS_IN_MEMORY, QueryConfig.DEFAULT_JOIN_MAX_ROWS_IN_MEMORY);
+
+  private final File _spillDir;
+  private final int _sortMaxRowsInMemory;
+  private final int _sortMaxMergeFanIn;
+  private final int _aggregateMaxGroupsInMemory;
+  private final int _joinMaxRowsInMemory;
+
+  /**
+   * @param spillDir directory of the spilled files, or {@code null} to use the default temporary directory
+   * @param sortMaxRowsInMemory maximum number of rows buffered by the sort before spilling a sorted run
+   * @param sortMaxMergeFanIn maximum number of sorted runs merged at once
+   * @param aggregateMaxGroupsInMemory maximum number of groups held by the aggregate before spilling partial aggregates
+   * @param joinMaxRowsInMemory maximum number of build side rows held by the hash join before spilling both sides
+   */
+  public SpillConfig(@Nullable File spillDir, int sortMaxRowsInMemory, int sortMaxMergeFanIn,
+      int aggregateMaxGroupsInMemory, int joinMaxRowsInMemory) {
+    Preconditions.checkArgument(sortMaxRowsInMemory > 0, "Sort max rows in memory must be positive, got: %s",
+        sortMaxRowsInMemory);
+    Preconditions.checkArgument(sortMaxMergeFanIn >= 2, "Sort max merge fan-in must be at least 2, got: %s",
+        sortMaxMergeFanIn);
+    Preconditions.checkArgument(aggregateMaxGroupsInMemory > 0,
+        "Aggregate max groups in memory must be positive, got: %s", aggregateMaxGroupsInMemory);
+    Preconditions.checkArgument(joinMaxRowsInMemory > 0, "Join max rows in memory must be positive, got: %s",
+        joinMaxRowsInMemory);
+    _spillDir = spillDir;
+    _sortMaxRowsInMemory = sortMaxRowsInMemory;
+    _sortMaxMergeFanIn = sortMaxMergeFanIn;
+    _aggregateMaxGroupsInMemory = aggregateMaxGroupsInMemory;
+    _joinMaxRowsInMemory = joinMaxRowsInMemory;
+  }
+
+  public static SpillConfig fromConfig(PinotConfiguration config) {
+    String spillDir = config.getProperty(QueryConfig.KEY_OF_SPILL_DIR);
+    return new SpillConfig(spillDir != null ? new File(spillDir) : null,
+        config.getProperty(QueryConfig.KEY_OF_SORT_MAX_ROWS_IN_MEMORY, QueryConfig.DEFAULT_SORT_MAX_ROWS_IN_MEMORY),
+        config.getProperty(QueryConfig.KEY_OF_SORT_MAX_MERGE_FAN_IN, QueryConfig.DEFAULT_SORT_MAX_MERGE_FAN_IN),
+        config.getProperty(QueryConfig.KEY_OF_AGGREGATE_MAX_GROUPS_IN_MEMORY,
+            QueryConfig.DEFAULT_AGGREGATE_MAX_GROUPS_IN_MEMORY),
+        config.getProperty(QueryConfig.KEY_OF_JOIN_MAX_ROWS_IN_MEMORY, QueryConfig.DEFAULT_JOIN_MAX_ROWS_IN_MEMORY));
+  }
+
+  @Nullable
+  public File getSpillDir() {
+    return _spillDir;
+  }
+
+  public int getSortMaxRowsInMemory() {
+    return _sortMaxRowsInMemory;
+  }
+
+  public int getSortMaxMergeFanIn() {
+    return _sortMaxMergeFanIn;
+  }
+
+  public int getAggregateMaxGroupsInMemory() {
+    return _aggregateMaxGroupsInMemory;
+  }
+
+  public int getJoinMaxRowsInMemory() {
+    return _joinMaxRowsInMemory;
+  }
+}
@@ -0,0 +1,174 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.datablock.DataBlockUtils;
+import org.apache.pinot.common.datablock.RowDataBlock;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.core.common.ObjectSerDeUtils;
+import org.apache.pinot.core.common.datablock.DataBlockBuilder;
+
+
+/**
+ * A temporary file holding rows spilled to disk by an operator that exceeded its memory budget. Rows are appended in
+ * chunks, each serialized as a {@link RowDataBlock}, and read back one chunk at a time so that only a single chunk per
+ * file needs to be held in memory.
+ */
+public class SpilledRowsFile implements Closeable {
+  private static final String SPILL_FILE_SUFFIX = ".spill";
+
+  private final File _file;
+  private final DataSchema _dataSchema;
+  private final List<DataInputStream> _readers = new ArrayList<>();
+  private DataOutputStream _outputStream;
+  private int _numChunks;
+  private int _numRows;
+
+  /**
+   * @param spillDir directory of the file, or {@code null} to use the default temporary directory
+   */
+  public SpilledRowsFile(@Nullable File spillDir, String prefix, DataSchema dataSchema)
+      throws IOException {
+    if (spillDir != null) {
+      FileUtils.forceMkdir(spillDir);
+    }
+    _file = File.createTempFile(prefix, SPILL_FILE_SUFFIX, spillDir);
+    _dataSchema = dataSchema;
+    _outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(_file)));
+  }
+
+  /**
+   * Appends the given rows as one chunk. Must not be called after {@link #read()}.
+   */
+  public void append(List<Object[]> rows)
+      throws IOException {
+    if (rows.isEmpty()) {
+      return;
+    }
+    byte[] bytes = DataBlockBuilder.buildFromRows(rows, _dataSchema).toBytes();
+    _outputStream.writeInt(bytes.length);
+    _outputStream.write(bytes);
+    _numChunks++;
+    _numRows += rows.size();
+  }
+
+  public int getNumRows() {
+    return _numRows;
+  }
+
+  /**
+   * Finishes writing the file and returns an iterator over the spilled rows, in the order they were appended.
+   */
+  public Iterator<Object[]> read()
+      throws IOException {
+    finishWriting();
+    if (_numChunks == 0) {
+      return Collections.emptyIterator();
+    }
+    DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(_file)));
+    _readers.add(inputStream);
+    return new RowIterator(inputStream, _numChunks);
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    try {
+      finishWriting();
+      for (DataInputStream reader : _readers) {
+        reader.close();
+      }
+    } finally {
+      FileUtils.deleteQuietly(_file);
+    }
+  }
+
+  private void finishWriting()
+      throws IOException {
+    if (_outputStream != null) {
+      _outputStream.close();
+      _outputStream = null;
+    }
+  }
+
+  private static class RowIterator implements Iterator<Object[]> {
+    private final DataInputStream _inputStream;
+    private int _numChunksLeft;
+    private List<Object[]> _chunk = Collections.emptyList();
+    private int _rowIdInChunk;
+
+    RowIterator(DataInputStream inputStream, int numChunks) {
+      _inputStream = inputStream;
+      _numChunksLeft = numChunks;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (_rowIdInChunk == _chunk.size()) {
+        if (_numChunksLeft == 0) {
+          return false;
+        }
+        readNextChunk();
+      }
+      return true;
+    }
+
+    @Override
+    public Object[] next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return _chunk.get(_rowIdInChunk++);
+    }
+
+    private void readNextChunk() {
+      try {
+        byte[] bytes = new byte[_inputStream.readInt()];
+        _inputStream.readFully(bytes);
+        _chunk = DataBlockUtils.extractRows(DataBlockUtils.getDataBlock(ByteBuffer.wrap(bytes)),
+            ObjectSerDeUtils::deserialize);
+        _rowIdInChunk = 0;
+        _numChunksLeft--;
+        if (_numChunksLeft == 0) {
+          _inputStream.close();
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to read spilled rows", e);
+      }
+    }
+  }
+}
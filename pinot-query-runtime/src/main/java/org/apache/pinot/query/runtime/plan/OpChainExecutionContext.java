@@ -25,6 +25,7 @@ import org.apache.pinot.query.routing.VirtualServerAddress;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.operator.OpChainId;
 import org.apache.pinot.query.runtime.operator.OpChainStats;
+import org.apache.pinot.query.runtime.operator.utils.SpillConfig;
 
 
 /**
@@ -40,11 +41,18 @@ public class OpChainExecutionContext {
   private final long _timeoutMs;
   private final long _deadlineMs;
   private final Map<Integer, StageMetadata> _metadataMap;
+  private final SpillConfig _spillConfig;
   private final OpChainId _id;
   private final OpChainStats _stats;
 
   public OpChainExecutionContext(MailboxService<TransferableBlock> mailboxService, long requestId, int stageId,
       VirtualServerAddress server, long timeoutMs, long deadlineMs, Map<Integer, StageMetadata> metadataMap) {
+    this(mailboxService, requestId, stageId, server, timeoutMs, deadlineMs, metadataMap, SpillConfig.DEFAULT);
+  }
+
+  public OpChainExecutionContext(MailboxService<TransferableBlock> mailboxService, long requestId, int stageId,
+      VirtualServerAddress server, long timeoutMs, long deadlineMs, Map<Integer, StageMetadata> metadataMap,
+      SpillConfig spillConfig) {
     _mailboxService = mailboxService;
     _requestId = requestId;
     _stageId = stageId;
@@ -52,6 +60,7 @@ public class OpChainExecutionContext {
     _timeoutMs = timeoutMs;
     _deadlineMs = deadlineMs;
     _metadataMap = metadataMap;
+    _spillConfig = spillConfig;
     _id = new OpChainId(requestId, server.virtualId(), stageId);
     _stats = new OpChainStats(_id.toString());
   }
@@ -59,7 +68,7 @@ public class OpChainExecutionContext {
   public OpChainExecutionContext(PlanRequestContext planRequestContext) {
     this(planRequestContext.getMailboxService(), planRequestContext.getRequestId(), planRequestContext.getStageId(),
         planRequestContext.getServer(), planRequestContext.getTimeoutMs(), planRequestContext.getDeadlineMs(),
-        planRequestContext.getMetadataMap());
+        planRequestContext.getMetadataMap(), planRequestContext.getSpillConfig());
   }
 
   public MailboxService<TransferableBlock> getMailboxService() {
@@ -90,6 +99,10 @@ public class OpChainExecutionContext {
     return _metadataMap;
   }
 
+  public SpillConfig getSpillConfig() {
+    return _spillConfig;
+  }
+
   public OpChainId getId() {
     return _id;
   }
@@ -63,8 +63,9 @@ public class PhysicalPlanVisitor implements StageNodeVisitor<MultiStageOperator,
   public MultiStageOperator visitMailboxReceive(MailboxReceiveNode node, PlanRequestContext context) {
     MailboxReceiveOperator mailboxReceiveOperator =
         new MailboxReceiveOperator(context.getOpChainExecutionContext(), node.getExchangeType(),
-            node.getCollationKeys(), node.getCollationDirections(), node.isSortOnSender(), node.isSortOnReceiver(),
-            node.getDataSchema(), node.getSenderStageId(), node.getStageId());
+            node.getCollationKeys(), node.getCollationDirections(), node.getCollationNullDirections(),
+            node.isSortOnSender(), node.isSortOnReceiver(), node.getDataSchema(), node.getSenderStageId(),
+            node.getStageId());
     context.addReceivingMailboxes(mailboxReceiveOperator.getSendingMailbox());
     return mailboxReceiveOperator;
   }
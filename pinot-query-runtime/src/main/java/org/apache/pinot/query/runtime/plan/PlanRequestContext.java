@@ -27,6 +27,7 @@ import org.apache.pinot.query.mailbox.MailboxService;
 import org.apache.pinot.query.planner.StageMetadata;
 import org.apache.pinot.query.routing.VirtualServerAddress;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
+import org.apache.pinot.query.runtime.operator.utils.SpillConfig;
 
 
 public class PlanRequestContext {
@@ -39,10 +40,17 @@ public class PlanRequestContext {
   protected final VirtualServerAddress _server;
   protected final Map<Integer, StageMetadata> _metadataMap;
   protected final List<MailboxIdentifier> _receivingMailboxes = new ArrayList<>();
+  private final SpillConfig _spillConfig;
   private final OpChainExecutionContext _opChainExecutionContext;
 
   public PlanRequestContext(MailboxService<TransferableBlock> mailboxService, long requestId, int stageId,
       long timeoutMs, long deadlineMs, VirtualServerAddress server, Map<Integer, StageMetadata> metadataMap) {
+    this(mailboxService, requestId, stageId, timeoutMs, deadlineMs, server, metadataMap, SpillConfig.DEFAULT);
+  }
+
+  public PlanRequestContext(MailboxService<TransferableBlock> mailboxService, long requestId, int stageId,
+      long timeoutMs, long deadlineMs, VirtualServerAddress server, Map<Integer, StageMetadata> metadataMap,
+      SpillConfig spillConfig) {
     _mailboxService = mailboxService;
     _requestId = requestId;
     _stageId = stageId;
@@ -50,6 +58,7 @@ public class PlanRequestContext {
     _deadlineMs = deadlineMs;
     _server = server;
     _metadataMap = metadataMap;
+    _spillConfig = spillConfig;
     _opChainExecutionContext = new OpChainExecutionContext(this);
   }
 
@@ -81,6 +90,10 @@ public class PlanRequestContext {
     return _mailboxService;
   }
 
+  public SpillConfig getSpillConfig() {
+    return _spillConfig;
+  }
+
   public void addReceivingMailboxes(List<MailboxIdentifier> ids) {
     _receivingMailboxes.addAll(ids);
   }
@@ -24,7 +24,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.apache.pinot.common.request.BrokerRequest;
 import org.apache.pinot.common.request.DataSource;
 import org.apache.pinot.common.request.Expression;
@@ -91,7 +93,8 @@ public class ServerRequestPlanVisitor implements StageNodeVisitor<Void, ServerPl
 
   public static ServerPlanRequestContext build(MailboxService<TransferableBlock> mailboxService,
       DistributedStagePlan stagePlan, Map<String, String> requestMetadataMap, TableConfig tableConfig, Schema schema,
-      TimeBoundaryInfo timeBoundaryInfo, TableType tableType, List<String> segmentList, long deadlineMs) {
+      TimeBoundaryInfo timeBoundaryInfo, TableType tableType, List<String> segmentList, long deadlineMs,
+      @Nullable List<Set<Object>> runtimeFilter) {
     // Before-visit: construct the ServerPlanRequestContext baseline
     // Making a unique requestId for leaf stages otherwise it causes problem on stats/metrics/tracing.
     long requestId = (Long.parseLong(requestMetadataMap.get(QueryConfig.KEY_OF_BROKER_REQUEST_ID)) << 16)
@@ -119,6 +122,10 @@ public class ServerRequestPlanVisitor implements StageNodeVisitor<Void, ServerPl
     if (timeBoundaryInfo != null) {
       attachTimeBoundary(pinotQuery, timeBoundaryInfo, tableType == TableType.OFFLINE);
     }
+    if (runtimeFilter != null) {
+      attachRuntimeFilter(pinotQuery, ((MailboxSendNode) stagePlan.getStageRoot()).getRuntimeFilterKeys(),
+          runtimeFilter);
+    }
     for (QueryRewriter queryRewriter : QUERY_REWRITERS) {
       pinotQuery = queryRewriter.rewrite(pinotQuery);
     }
@@ -247,6 +254,25 @@ public class ServerRequestPlanVisitor implements StageNodeVisitor<Void, ServerPl
     }
   }
 
+  /**
+   * Helper method to attach the runtime filter published by the join on the output to the given PinotQuery, where the
+   * output column for each of the runtime filter keys must be in the given values.
+   */
+  private static void attachRuntimeFilter(PinotQuery pinotQuery, List<Integer> runtimeFilterKeys,
+      List<Set<Object>> runtimeFilter) {
+    for (int i = 0; i < runtimeFilterKeys.size(); i++) {
+      Set<Object> values = runtimeFilter.get(i);
+      List<Expression> operands = new ArrayList<>(values.size() + 1);
+      operands.add(pinotQuery.getSelectList().get(runtimeFilterKeys.get(i)).deepCopy());
+      for (Object value : values) {
+        operands.add(RequestUtils.getLiteralExpression(value));
+      }
+      Expression inFilterExpression = RequestUtils.getFunctionExpression(FilterKind.IN.name());
+      inFilterExpression.getFunctionCall().setOperands(operands);
+      attachFilter(pinotQuery, inFilterExpression);
+    }
+  }
+
   /**
    * Helper method to attach the time boundary to the given PinotQuery.
    */
@@ -258,14 +284,17 @@ public class ServerRequestPlanVisitor implements StageNodeVisitor<Void, ServerPl
         isOfflineRequest ? FilterKind.LESS_THAN_OR_EQUAL.name() : FilterKind.GREATER_THAN.name());
     timeFilterExpression.getFunctionCall().setOperands(
         Arrays.asList(RequestUtils.getIdentifierExpression(timeColumn), RequestUtils.getLiteralExpression(timeValue)));
+    attachFilter(pinotQuery, timeFilterExpression);
+  }
 
+  private static void attachFilter(PinotQuery pinotQuery, Expression filter) {
     Expression filterExpression = pinotQuery.getFilterExpression();
     if (filterExpression != null) {
       Expression andFilterExpression = RequestUtils.getFunctionExpression(FilterKind.AND.name());
-      andFilterExpression.getFunctionCall().setOperands(Arrays.asList(filterExpression, timeFilterExpression));
+      andFilterExpression.getFunctionCall().setOperands(Arrays.asList(filterExpression, filter));
       pinotQuery.setFilterExpression(andFilterExpression);
     } else {
-      pinotQuery.setFilterExpression(timeFilterExpression);
+      pinotQuery.setFilterExpression(filter);
     }
   }
 }
@@ -72,6 +72,52 @@ public class QueryConfig {
   public static final String KEY_OF_SCHEDULER_RELEASE_TIMEOUT_MS = "pinot.query.scheduler.release.timeout.ms";
   public static final long DEFAULT_SCHEDULER_RELEASE_TIMEOUT_MS = 10_000;
 
+  /**
+   * The scheduling strategy of the operator chains: 'roundRobin' schedules the ready operator chains in round robin
+   * fashion, 'fairPriority' shares the query workers fairly across queries weighted by the 'schedulerPriority' query
+   * option.
+   */
+  public static final String KEY_OF_SCHEDULER_TYPE = "pinot.query.scheduler.type";
+  public static final String SCHEDULER_TYPE_ROUND_ROBIN = "roundRobin";
+  public static final String SCHEDULER_TYPE_FAIR_PRIORITY = "fairPriority";
+  public static final String DEFAULT_SCHEDULER_TYPE = SCHEDULER_TYPE_ROUND_ROBIN;
+
+  /**
+   * The maximum time that a leaf stage waits for the runtime filter published by the join on its output before it
+   * scans the table without the filter.
+   */
+  public static final String KEY_OF_RUNTIME_FILTER_WAIT_MS = "pinot.query.runner.runtime.filter.wait.ms";
+  public static final long DEFAULT_RUNTIME_FILTER_WAIT_MS = 1_000L;
+
+  /**
+   * Directory of the files spilled by the operators exceeding their memory budget. Defaults to the JVM temporary
+   * directory.
+   */
+  public static final String KEY_OF_SPILL_DIR = "pinot.query.runner.spill.dir";
+
+  /**
+   * The maximum number of rows buffered in memory by the sort before a sorted run is spilled to disk, and the maximum
+   * number of sorted runs merged at once. Runs beyond the fan-in are merged over multiple passes.
+   */
+  public static final String KEY_OF_SORT_MAX_ROWS_IN_MEMORY = "pinot.query.runner.sort.max.rows.in.memory";
+  public static final int DEFAULT_SORT_MAX_ROWS_IN_MEMORY = 100_000;
+  public static final String KEY_OF_SORT_MAX_MERGE_FAN_IN = "pinot.query.runner.sort.max.merge.fan.in";
+  public static final int DEFAULT_SORT_MAX_MERGE_FAN_IN = 64;
+
+  /**
+   * The maximum number of groups held in memory by the aggregate before the partial aggregates are spilled to disk.
+   */
+  public static final String KEY_OF_AGGREGATE_MAX_GROUPS_IN_MEMORY =
+      "pinot.query.runner.aggregate.max.groups.in.memory";
+  public static final int DEFAULT_AGGREGATE_MAX_GROUPS_IN_MEMORY = 1_000_000;
+
+  /**
+   * The maximum number of build side rows held in memory by the hash join before both sides are partitioned by join
+   * key and spilled to disk, and then joined one partition at a time.
+   */
+  public static final String KEY_OF_JOIN_MAX_ROWS_IN_MEMORY = "pinot.query.runner.join.max.rows.in.memory";
+  public static final int DEFAULT_JOIN_MAX_ROWS_IN_MEMORY = 1_000_000;
+
   private QueryConfig() {
     // do not instantiate.
   }
@@ -239,6 +239,55 @@ public class GrpcMailboxServiceTest {
     Assert.assertTrue(exceptions.values().iterator().next().contains("Timed out offering to the receivingBuffer"));
   }
 
+  /**
+   * This test ensures that the sender runs out of credits once it filled the receiving buffer, and that it is notified
+   * and can resume sending once the receiver consumed data from the buffer.
+   */
+  @Test(timeOut = 10_000L)
+  public void testCreditBasedFlowControl()
+      throws Exception {
+    final int bufferSize = MailboxContentStreamObserver.DEFAULT_MAX_PENDING_MAILBOX_CONTENT;
+    long deadlineMs = System.currentTimeMillis() + 10_000;
+    JsonMailboxIdentifier mailboxId = createMailboxId("flow-control");
+
+    GrpcSendingMailbox grpcSendingMailbox =
+        (GrpcSendingMailbox) _mailboxService1.getSendingMailbox(mailboxId, deadlineMs);
+    GrpcReceivingMailbox grpcReceivingMailbox =
+        (GrpcReceivingMailbox) _mailboxService2.getReceivingMailbox(mailboxId);
+
+    CountDownLatch bufferFullLatch = new CountDownLatch(bufferSize);
+    _mail2GotData.set(ignored -> bufferFullLatch.countDown());
+    AtomicReference<MailboxIdentifier> creditMailboxId = new AtomicReference<>();
+    CountDownLatch creditLatch = new CountDownLatch(1);
+    _mail1GotData.set(id -> {
+      creditMailboxId.set(id);
+      creditLatch.countDown();
+    });
+
+    for (int i = 0; i < bufferSize; i++) {
+      Assert.assertFalse(grpcSendingMailbox.isBackpressured());
+      grpcSendingMailbox.send(getTestTransferableBlock());
+    }
+    Assert.assertTrue(grpcSendingMailbox.isBackpressured());
+    Assert.assertTrue(bufferFullLatch.await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(grpcReceivingMailbox.getQueueDepth(), bufferSize);
+
+    // Consuming one block grants one credit back to the sender, which notifies the sending OpChain.
+    Assert.assertNotNull(grpcReceivingMailbox.receive());
+    Assert.assertTrue(creditLatch.await(5, TimeUnit.SECONDS));
+    Assert.assertFalse(grpcSendingMailbox.isBackpressured());
+    Assert.assertEquals(creditMailboxId.get().getToHost(), mailboxId.getFromHost());
+    Assert.assertEquals(creditMailboxId.get().getReceiverStageId(), DEFAULT_SENDER_STAGE_ID);
+
+    // Drain the stream so that no callbacks leak into other tests.
+    grpcSendingMailbox.complete();
+    while (!grpcReceivingMailbox.isClosed()) {
+      grpcReceivingMailbox.receive();
+    }
+    _mail1GotData.set(ignored -> { });
+    _mail2GotData.set(ignored -> { });
+  }
+
   /**
    * This test ensures that when a stream is cancelled by the receiver, any future sends by the sender will throw.
    */
@@ -20,6 +20,7 @@ package org.apache.pinot.query.runtime.blocks;
 
 import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import org.apache.pinot.common.datablock.BaseDataBlock;
@@ -78,6 +79,46 @@ public class TransferableBlockUtilsTest {
         DataBlock.Type.ROW, estRowSizeInBytes * splitRowCount + 1), rows, dataSchema);
   }
 
+  @Test(dataProvider = "splitRowCountProvider")
+  public void testSplitColumnarBlock(int splitRowCount)
+      throws Exception {
+    DataSchema dataSchema = getDataSchema();
+    int estRowSizeInBytes = dataSchema.size() * TEST_EST_BYTES_PER_COLUMN;
+    List<Object[]> rows = DataBlockTestUtils.getRandomRows(dataSchema, TOTAL_ROW_COUNT, 1);
+    List<Object[]> columns = DataBlockTestUtils.convertColumnar(dataSchema, rows);
+    ColumnarDataBlock columnarBlock = DataBlockBuilder.buildFromColumns(columns, dataSchema);
+    TransferableBlock transferableBlock = new TransferableBlock(columnarBlock);
+    Assert.assertEquals(transferableBlock.getNumRows(), TOTAL_ROW_COUNT);
+
+    Iterator<TransferableBlock> blocks = TransferableBlockUtils.splitBlock(transferableBlock, DataBlock.Type.COLUMNAR,
+        estRowSizeInBytes * splitRowCount + 1);
+    int rowId = 0;
+    while (blocks.hasNext()) {
+      TransferableBlock block = blocks.next();
+      Assert.assertEquals(block.getType(), DataBlock.Type.COLUMNAR);
+      Assert.assertTrue(block.getNumRows() <= Math.max(splitRowCount, 1));
+      List<Object[]> blockColumns = block.getContainer();
+      for (int colId = 0; colId < columns.size(); colId++) {
+        Assert.assertTrue(Arrays.deepEquals(blockColumns.get(colId),
+            Arrays.copyOfRange(columns.get(colId), rowId, rowId + block.getNumRows())));
+      }
+      rowId += block.getNumRows();
+    }
+    Assert.assertEquals(rowId, TOTAL_ROW_COUNT);
+  }
+
+  @Test
+  public void testBlockWithinLimitIsNotSplit()
+      throws Exception {
+    DataSchema dataSchema = getDataSchema();
+    List<Object[]> rows = DataBlockTestUtils.getRandomRows(dataSchema, TOTAL_ROW_COUNT, 1);
+    TransferableBlock block = new TransferableBlock(DataBlockBuilder.buildFromRows(rows, dataSchema));
+
+    Iterator<TransferableBlock> blocks = TransferableBlockUtils.splitBlock(block, DataBlock.Type.ROW, 4 * 1024 * 1024);
+    Assert.assertSame(blocks.next(), block);
+    Assert.assertFalse(blocks.hasNext());
+  }
+
   @Test
   public void testNonSplittableBlock()
       throws Exception {
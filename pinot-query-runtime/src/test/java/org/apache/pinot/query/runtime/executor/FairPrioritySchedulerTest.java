@@ -0,0 +1,215 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.executor;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.pinot.query.mailbox.JsonMailboxIdentifier;
+import org.apache.pinot.query.mailbox.MailboxIdentifier;
+import org.apache.pinot.query.routing.VirtualServerAddress;
+import org.apache.pinot.query.runtime.operator.MultiStageOperator;
+import org.apache.pinot.query.runtime.operator.OpChain;
+import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+public class FairPrioritySchedulerTest {
+  private static final int DEFAULT_SENDER_STAGE_ID = 0;
+  private static final int DEFAULT_RECEIVER_STAGE_ID = 1;
+  private static final int DEFAULT_VIRTUAL_SERVER_ID = 1;
+  private static final int DEFAULT_POLL_TIMEOUT_MS = 0;
+  private static final int DEFAULT_RELEASE_TIMEOUT_MS = 10;
+  private static final long DEFAULT_REQUEST_ID = 123;
+  private static final long OTHER_REQUEST_ID = 456;
+  private static final String DEFAULT_SENDER_SERIALIZED = "0@foo:2";
+  private static final String DEFAULT_JOB_ID = String.format("%s_%s", DEFAULT_REQUEST_ID, DEFAULT_RECEIVER_STAGE_ID);
+
+  private static final MailboxIdentifier MAILBOX_1 = new JsonMailboxIdentifier(DEFAULT_JOB_ID,
+      DEFAULT_SENDER_SERIALIZED, "1@bar:1", DEFAULT_SENDER_STAGE_ID, DEFAULT_RECEIVER_STAGE_ID);
+
+  @Mock
+  private MultiStageOperator _operator;
+
+  private AutoCloseable _mocks;
+
+  private FairPriorityScheduler _scheduler;
+
+  @BeforeClass
+  public void beforeClass() {
+    _mocks = MockitoAnnotations.openMocks(this);
+  }
+
+  @AfterClass
+  public void afterClass()
+      throws Exception {
+    _mocks.close();
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    _scheduler.shutdownNow();
+  }
+
+  @Test
+  public void testSchedulerHappyPath()
+      throws InterruptedException {
+    OpChain chain = getOpChain(DEFAULT_REQUEST_ID, DEFAULT_VIRTUAL_SERVER_ID);
+    _scheduler = new FairPriorityScheduler(DEFAULT_RELEASE_TIMEOUT_MS);
+    _scheduler.register(chain);
+
+    // OpChain is scheduled immediately
+    Assert.assertEquals(_scheduler.next(DEFAULT_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS), chain);
+    // No op-chains ready, so scheduler returns null
+    Assert.assertNull(_scheduler.next(DEFAULT_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    // When Op-Chain is done executing, yield is called
+    _scheduler.yield(chain);
+    // When data is received, callback is called
+    _scheduler.onDataAvailable(MAILBOX_1);
+    // next should return the OpChain immediately after the callback
+    Assert.assertEquals(_scheduler.next(DEFAULT_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS), chain);
+    // Say the OpChain is done, then a de-register will be called
+    _scheduler.deregister(chain);
+
+    // There should be no entries left in the scheduler
+    Assert.assertEquals(0, _scheduler.size() + _scheduler.queriesSize() + _scheduler.readySize()
+        + _scheduler.seenMailSize() + _scheduler.availableSize());
+  }
+
+  @Test
+  public void testSchedulerWhenSenderDies()
+      throws InterruptedException {
+    OpChain chain = getOpChain(DEFAULT_REQUEST_ID, DEFAULT_VIRTUAL_SERVER_ID);
+    _scheduler = new FairPriorityScheduler(DEFAULT_RELEASE_TIMEOUT_MS);
+    _scheduler.register(chain);
+
+    Assert.assertEquals(_scheduler.next(DEFAULT_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS), chain);
+    _scheduler.yield(chain);
+
+    // Unless a callback is called, the chain would remain suspended. However, the scheduler will automatically
+    // promote available OpChains to ready every releaseMs.
+    Assert.assertEquals(_scheduler.next(DEFAULT_RELEASE_TIMEOUT_MS + 100, TimeUnit.MILLISECONDS), chain);
+    _scheduler.deregister(chain);
+
+    Assert.assertEquals(0, _scheduler.size() + _scheduler.queriesSize() + _scheduler.readySize()
+        + _scheduler.seenMailSize() + _scheduler.availableSize());
+  }
+
+  @Test
+  public void testSchedulerWhenDataArrivesBeforeYield()
+      throws InterruptedException {
+    OpChain chain = getOpChain(DEFAULT_REQUEST_ID, DEFAULT_VIRTUAL_SERVER_ID);
+    _scheduler = new FairPriorityScheduler(10_000);
+    _scheduler.register(chain);
+
+    Assert.assertEquals(_scheduler.next(DEFAULT_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS), chain);
+    // Data is received while the OpChain is running, so it is ready again as soon as it yields
+    _scheduler.onDataAvailable(MAILBOX_1);
+    _scheduler.yield(chain);
+    Assert.assertEquals(_scheduler.next(DEFAULT_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS), chain);
+    Assert.assertNull(_scheduler.next(DEFAULT_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    _scheduler.deregister(chain);
+
+    Assert.assertEquals(0, _scheduler.size() + _scheduler.queriesSize() + _scheduler.readySize()
+        + _scheduler.seenMailSize() + _scheduler.availableSize());
+  }
+
+  @Test
+  public void testSchedulerIsFairAcrossQueries()
+      throws InterruptedException {
+    // A query with many OpChains should not hold back the OpChains of a query registered after it
+    _scheduler = new FairPriorityScheduler(10_000);
+    List<OpChain> heavyChains = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      OpChain chain = getOpChain(DEFAULT_REQUEST_ID, i);
+      heavyChains.add(chain);
+      _scheduler.register(chain);
+    }
+    OpChain lightChain = getOpChain(OTHER_REQUEST_ID, 0);
+    _scheduler.register(lightChain);
+
+    Assert.assertEquals(_scheduler.next(DEFAULT_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS), heavyChains.get(0));
+    Assert.assertEquals(_scheduler.next(DEFAULT_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS), lightChain);
+    Assert.assertEquals(_scheduler.next(DEFAULT_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS), heavyChains.get(1));
+    Assert.assertEquals(_scheduler.next(DEFAULT_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS), heavyChains.get(2));
+    Assert.assertNull(_scheduler.next(DEFAULT_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+    for (OpChain chain : heavyChains) {
+      _scheduler.deregister(chain);
+    }
+    _scheduler.deregister(lightChain);
+    Assert.assertEquals(0, _scheduler.size() + _scheduler.queriesSize() + _scheduler.readySize()
+        + _scheduler.seenMailSize() + _scheduler.availableSize());
+  }
+
+  @Test
+  public void testSchedulerIsWeightedByPriority()
+      throws InterruptedException {
+    // A query gets twice the share of a query with a priority lower by one
+    _scheduler = new FairPriorityScheduler(10_000);
+    List<OpChain> lowPriorityChains = new ArrayList<>();
+    List<OpChain> highPriorityChains = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      OpChain chain = getOpChain(DEFAULT_REQUEST_ID, i);
+      lowPriorityChains.add(chain);
+      _scheduler.register(chain, 0);
+    }
+    for (int i = 0; i < 4; i++) {
+      OpChain chain = getOpChain(OTHER_REQUEST_ID, i);
+      highPriorityChains.add(chain);
+      _scheduler.register(chain, 1);
+    }
+
+    List<OpChain> expectedOrder = ImmutableList.of(lowPriorityChains.get(0), highPriorityChains.get(0),
+        highPriorityChains.get(1), lowPriorityChains.get(1), highPriorityChains.get(2), highPriorityChains.get(3),
+        lowPriorityChains.get(2), lowPriorityChains.get(3));
+    for (OpChain expected : expectedOrder) {
+      Assert.assertEquals(_scheduler.next(DEFAULT_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS), expected);
+    }
+    Assert.assertNull(_scheduler.next(DEFAULT_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testSchedulerTracksSchedulingLatency()
+      throws InterruptedException {
+    OpChain chain = getOpChain(DEFAULT_REQUEST_ID, DEFAULT_VIRTUAL_SERVER_ID);
+    _scheduler = new FairPriorityScheduler(10_000);
+    _scheduler.register(chain);
+    Thread.sleep(20);
+
+    Assert.assertEquals(_scheduler.next(DEFAULT_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS), chain);
+    chain.getStats().executing();
+    Assert.assertTrue(chain.getStats().getSchedulingLatency() >= 20,
+        "Expected the time spent in the ready queue to be tracked");
+    _scheduler.deregister(chain);
+  }
+
+  private OpChain getOpChain(long requestId, int virtualServerId) {
+    OpChainExecutionContext context = new OpChainExecutionContext(null, requestId, DEFAULT_RECEIVER_STAGE_ID,
+        new VirtualServerAddress("localhost", 1234, virtualServerId), 0, 0, null);
+    return new OpChain(context, _operator, ImmutableList.of(MAILBOX_1));
+  }
+}
@@ -20,7 +20,9 @@ package org.apache.pinot.query.runtime.operator;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import org.apache.calcite.sql.SqlKind;
 import org.apache.pinot.common.utils.DataSchema;
@@ -41,6 +43,7 @@ import org.testng.annotations.Test;
 
 import static org.apache.pinot.common.utils.DataSchema.ColumnDataType.DOUBLE;
 import static org.apache.pinot.common.utils.DataSchema.ColumnDataType.INT;
+import static org.apache.pinot.common.utils.DataSchema.ColumnDataType.LONG;
 import static org.apache.pinot.common.utils.DataSchema.ColumnDataType.STRING;
 
 
@@ -280,6 +283,101 @@ public class AggregateOperatorTest {
         "expected it to fail with class cast exception");
   }
 
+  @Test
+  public void shouldSpillAndReaggregateGroupsWhenExceedingMaxGroupsInMemory() {
+    // Given:
+    List<RexExpression> calls = ImmutableList.of(getSum(new RexExpression.InputRef(1)),
+        new RexExpression.FunctionCall(SqlKind.MAX, FieldSpec.DataType.INT, "MAX",
+            ImmutableList.of(new RexExpression.InputRef(1))),
+        new RexExpression.FunctionCall(SqlKind.COUNT, FieldSpec.DataType.LONG, "COUNT", ImmutableList.of()));
+    List<RexExpression> group = ImmutableList.of(new RexExpression.InputRef(0));
+
+    DataSchema inSchema = new DataSchema(new String[]{"group", "arg"}, new ColumnDataType[]{INT, INT});
+    Mockito.when(_input.nextBlock())
+        .thenReturn(OperatorTestUtil.block(inSchema, new Object[]{1, 1}, new Object[]{2, 2}, new Object[]{3, 3},
+            new Object[]{1, 4}))
+        .thenReturn(OperatorTestUtil.block(inSchema, new Object[]{2, 5}, new Object[]{4, 6}))
+        .thenReturn(TransferableBlockUtils.getEndOfStreamTransferableBlock());
+
+    DataSchema outSchema = new DataSchema(new String[]{"group", "sum", "max", "count"},
+        new ColumnDataType[]{INT, DOUBLE, DOUBLE, LONG});
+    AggregateOperator operator =
+        new AggregateOperator(OperatorTestUtil.getDefaultContext(), _input, outSchema, calls, group, inSchema,
+            AggregationUtils.Accumulator.MERGERS, 2);
+
+    // When:
+    List<Object[]> resultRows = new ArrayList<>();
+    TransferableBlock block = operator.nextBlock();
+    while (!block.isEndOfStreamBlock()) {
+      Assert.assertFalse(block.isErrorBlock(), "Unexpected error block");
+      resultRows.addAll(block.getContainer());
+      block = operator.nextBlock();
+    }
+
+    // Then:
+    resultRows.sort(Comparator.comparingInt(row -> (Integer) row[0]));
+    Assert.assertEquals(resultRows.size(), 4, "Expected groups spilled in different partitions to be merged");
+    Assert.assertEquals(resultRows.get(0), new Object[]{1, 5.0, 4.0, 2.0});
+    Assert.assertEquals(resultRows.get(1), new Object[]{2, 7.0, 5.0, 2.0});
+    // groups with a single value keep the input type as when they are not spilled
+    Assert.assertEquals(resultRows.get(2), new Object[]{3, 3, 3, 1});
+    Assert.assertEquals(resultRows.get(3), new Object[]{4, 6, 6, 1});
+  }
+
+  @Test
+  public void shouldSplitSpilledPartitionsExceedingMaxGroupsInMemory() {
+    // Given:
+    List<RexExpression> calls = ImmutableList.of(
+        new RexExpression.FunctionCall(SqlKind.SUM, FieldSpec.DataType.LONG, "SUM",
+            ImmutableList.of(new RexExpression.InputRef(1))),
+        new RexExpression.FunctionCall(SqlKind.COUNT, FieldSpec.DataType.LONG, "COUNT", ImmutableList.of()));
+    List<RexExpression> group = ImmutableList.of(new RexExpression.InputRef(0));
+
+    DataSchema inSchema = new DataSchema(new String[]{"group", "arg"}, new ColumnDataType[]{INT, LONG});
+    int numGroups = 1000;
+    long largeValue = Long.MAX_VALUE - 1;
+    Object[][] rows = new Object[numGroups + numGroups / 2][];
+    for (int i = 0; i < numGroups; i++) {
+      rows[i] = new Object[]{i, largeValue};
+    }
+    // the first half of the groups get a second value
+    for (int i = 0; i < numGroups / 2; i++) {
+      rows[numGroups + i] = new Object[]{i, 1L};
+    }
+    Mockito.when(_input.nextBlock())
+        .thenReturn(OperatorTestUtil.block(inSchema, rows))
+        .thenReturn(TransferableBlockUtils.getEndOfStreamTransferableBlock());
+
+    DataSchema outSchema = new DataSchema(new String[]{"group", "sum", "count"},
+        new ColumnDataType[]{INT, LONG, LONG});
+    // each of the 16 spilled partitions holds about 60 groups, which is more than fits in memory
+    AggregateOperator operator =
+        new AggregateOperator(OperatorTestUtil.getDefaultContext(), _input, outSchema, calls, group, inSchema,
+            AggregationUtils.Accumulator.MERGERS, 10);
+
+    // When:
+    List<Object[]> resultRows = new ArrayList<>();
+    TransferableBlock block = operator.nextBlock();
+    while (!block.isEndOfStreamBlock()) {
+      Assert.assertFalse(block.isErrorBlock(), "Unexpected error block");
+      Assert.assertTrue(block.getNumRows() <= 10, "Expected re-aggregated partitions to fit in memory");
+      resultRows.addAll(block.getContainer());
+      block = operator.nextBlock();
+    }
+
+    // Then:
+    resultRows.sort(Comparator.comparingInt(row -> (Integer) row[0]));
+    Assert.assertEquals(resultRows.size(), numGroups);
+    for (int i = 0; i < numGroups; i++) {
+      if (i < numGroups / 2) {
+        Assert.assertEquals(resultRows.get(i), new Object[]{i, (double) largeValue + 1, 2.0});
+      } else {
+        Assert.assertEquals(resultRows.get(i), new Object[]{i, largeValue, 1},
+            "Expected single value groups to keep the exact long value");
+      }
+    }
+  }
+
   private static RexExpression.FunctionCall getSum(RexExpression arg) {
     return new RexExpression.FunctionCall(SqlKind.SUM, FieldSpec.DataType.INT, "SUM", ImmutableList.of(arg));
   }
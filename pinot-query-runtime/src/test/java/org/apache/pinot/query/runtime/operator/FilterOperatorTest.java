@@ -267,6 +267,27 @@ public class FilterOperatorTest {
     Assert.assertEquals(result.get(0), expectedResult.get(0));
   }
 
+  @Test
+  public void shouldHandleColumnarBlock() {
+    DataSchema inputSchema = new DataSchema(new String[]{"int0", "int1"}, new DataSchema.ColumnDataType[]{
+        DataSchema.ColumnDataType.INT, DataSchema.ColumnDataType.INT
+    });
+    Mockito.when(_upstreamOperator.nextBlock()).thenReturn(new TransferableBlock(
+        ImmutableList.of(new Object[]{1, 3, 1}, new Object[]{2, 2, 1}), inputSchema, DataBlock.Type.COLUMNAR));
+    RexExpression.FunctionCall greaterThan =
+        new RexExpression.FunctionCall(SqlKind.GREATER_THAN, FieldSpec.DataType.BOOLEAN, "greaterThan",
+            ImmutableList.of(new RexExpression.InputRef(0), new RexExpression.InputRef(1)));
+    FilterOperator op =
+        new FilterOperator(OperatorTestUtil.getDefaultContext(), _upstreamOperator, inputSchema, greaterThan);
+    TransferableBlock dataBlock = op.getNextBlock();
+    Assert.assertFalse(dataBlock.isErrorBlock());
+    Assert.assertEquals(dataBlock.getType(), DataBlock.Type.COLUMNAR);
+    Assert.assertEquals(dataBlock.getNumRows(), 1);
+    List<Object[]> result = dataBlock.getRows();
+    Assert.assertEquals(result.size(), 1);
+    Assert.assertEquals(result.get(0), new Object[]{3, 2});
+  }
+
   @Test
   public void shouldHandleBooleanFunction() {
     DataSchema inputSchema = new DataSchema(new String[]{"string1"}, new DataSchema.ColumnDataType[]{
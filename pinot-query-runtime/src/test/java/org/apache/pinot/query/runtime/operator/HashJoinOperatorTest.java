@@ -21,6 +21,7 @@ package org.apache.pinot.query.runtime.operator;
 import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import org.apache.calcite.rel.core.JoinRelType;
 import org.apache.calcite.sql.SqlKind;
@@ -33,6 +34,8 @@ import org.apache.pinot.query.planner.stage.JoinNode;
 import org.apache.pinot.query.routing.VirtualServerAddress;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
+import org.apache.pinot.query.runtime.operator.utils.SpillConfig;
+import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
 import org.apache.pinot.spi.data.FieldSpec;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -44,6 +47,9 @@ import org.testng.annotations.Test;
 
 
 public class HashJoinOperatorTest {
+  private static final List<JoinRelType> SUPPORTED_JOIN_TYPES = ImmutableList.of(
+      JoinRelType.INNER, JoinRelType.LEFT, JoinRelType.RIGHT, JoinRelType.FULL, JoinRelType.SEMI, JoinRelType.ANTI);
+
   private AutoCloseable _mocks;
 
   @Mock
@@ -701,5 +707,77 @@ public class HashJoinOperatorTest {
     result = join.nextBlock(); // last one is EOS.
     Assert.assertTrue(result.isEndOfStreamBlock());
   }
+
+  @Test
+  public void shouldSpillAndJoinPartitionsWhenRightTableExceedsMemoryBudget() {
+    DataSchema leftSchema = new DataSchema(new String[]{"int_col", "string_col"}, new DataSchema.ColumnDataType[]{
+        DataSchema.ColumnDataType.INT, DataSchema.ColumnDataType.STRING
+    });
+    DataSchema rightSchema = new DataSchema(new String[]{"int_col", "long_col"}, new DataSchema.ColumnDataType[]{
+        DataSchema.ColumnDataType.INT, DataSchema.ColumnDataType.LONG
+    });
+    List<Object[]> leftRows = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      leftRows.add(new Object[]{i, "left" + i});
+    }
+    // keys 10 to 39 on the right side, with two rows for the even keys
+    List<Object[]> rightRows = new ArrayList<>();
+    for (int i = 10; i < 40; i++) {
+      rightRows.add(new Object[]{i, (long) i});
+      if (i % 2 == 0) {
+        rightRows.add(new Object[]{i, (long) -i});
+      }
+    }
+    // the right rows are spilled once more than 5 are held in memory
+    OpChainExecutionContext spillingContext =
+        OperatorTestUtil.getContext(new SpillConfig(null, 10, 2, 10, 5));
+
+    for (JoinRelType joinType : SUPPORTED_JOIN_TYPES) {
+      boolean isSemiOrAnti = joinType == JoinRelType.SEMI || joinType == JoinRelType.ANTI;
+      DataSchema resultSchema = isSemiOrAnti ? leftSchema
+          : new DataSchema(new String[]{"int_col1", "string_col1", "int_col2", "long_col2"},
+              new DataSchema.ColumnDataType[]{
+                  DataSchema.ColumnDataType.INT, DataSchema.ColumnDataType.STRING, DataSchema.ColumnDataType.INT,
+                  DataSchema.ColumnDataType.LONG
+              });
+      JoinNode node = new JoinNode(1, resultSchema, leftSchema, rightSchema, joinType,
+          getJoinKeys(Arrays.asList(0), Arrays.asList(0)), new ArrayList<>());
+      List<Object[]> expectedRows =
+          runJoin(OperatorTestUtil.getDefaultContext(), leftSchema, leftRows, rightSchema, rightRows, node);
+      List<Object[]> spilledRows = runJoin(spillingContext, leftSchema, leftRows, rightSchema, rightRows, node);
+      Assert.assertFalse(expectedRows.isEmpty());
+      Assert.assertEquals(spilledRows.size(), expectedRows.size(), "Unexpected number of rows for " + joinType);
+      for (int i = 0; i < expectedRows.size(); i++) {
+        Assert.assertEquals(spilledRows.get(i), expectedRows.get(i), "Unexpected row for " + joinType);
+      }
+    }
+  }
+
+  private List<Object[]> runJoin(OpChainExecutionContext context, DataSchema leftSchema, List<Object[]> leftRows,
+      DataSchema rightSchema, List<Object[]> rightRows, JoinNode node) {
+    int half = rightRows.size() / 2;
+    Mockito.when(_leftOperator.nextBlock())
+        .thenReturn(OperatorTestUtil.block(leftSchema, leftRows.toArray(new Object[0][])))
+        .thenReturn(TransferableBlockUtils.getEndOfStreamTransferableBlock());
+    Mockito.when(_rightOperator.nextBlock())
+        .thenReturn(OperatorTestUtil.block(rightSchema, rightRows.subList(0, half).toArray(new Object[0][])))
+        .thenReturn(TransferableBlockUtils.getNoOpTransferableBlock())
+        .thenReturn(
+            OperatorTestUtil.block(rightSchema, rightRows.subList(half, rightRows.size()).toArray(new Object[0][])))
+        .thenReturn(TransferableBlockUtils.getEndOfStreamTransferableBlock());
+    HashJoinOperator join = new HashJoinOperator(context, _leftOperator, _rightOperator, leftSchema, node);
+    List<Object[]> resultRows = new ArrayList<>();
+    TransferableBlock result = join.nextBlock();
+    while (!result.isEndOfStreamBlock()) {
+      Assert.assertFalse(result.isErrorBlock(), "Unexpected error block");
+      if (!result.isNoOpBlock()) {
+        resultRows.addAll(result.getContainer());
+      }
+      result = join.nextBlock();
+    }
+    join.close();
+    resultRows.sort(Comparator.comparing(Arrays::toString));
+    return resultRows;
+  }
 }
 // TODO: Add more inequi join tests.
@@ -22,6 +22,7 @@ import java.sql.Timestamp;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import org.apache.pinot.common.datablock.DataBlock;
 import org.apache.pinot.common.exception.QueryException;
 import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.core.data.table.Record;
@@ -81,8 +82,9 @@ public class LeafStageTransferableBlockOperatorTest {
     TransferableBlock resultBlock = operator.nextBlock();
 
     // Then:
-    Assert.assertEquals(resultBlock.getContainer().get(0), new Object[]{"foo", 1});
-    Assert.assertEquals(resultBlock.getContainer().get(1), new Object[]{"", 2});
+    Assert.assertEquals(resultBlock.getType(), DataBlock.Type.COLUMNAR);
+    Assert.assertEquals(resultBlock.getRows().get(0), new Object[]{"foo", 1});
+    Assert.assertEquals(resultBlock.getRows().get(1), new Object[]{"", 2});
     Assert.assertTrue(operator.nextBlock().isEndOfStreamBlock(), "Expected EOS after reading two rows");
   }
 
@@ -107,8 +109,8 @@ public class LeafStageTransferableBlockOperatorTest {
     TransferableBlock resultBlock = operator.nextBlock();
 
     // Then:
-    Assert.assertEquals(resultBlock.getContainer().get(0), new Object[]{true, new Timestamp(1660000000000L), true});
-    Assert.assertEquals(resultBlock.getContainer().get(1), new Object[]{false, new Timestamp(1600000000000L), false});
+    Assert.assertEquals(resultBlock.getRows().get(0), new Object[]{true, new Timestamp(1660000000000L), true});
+    Assert.assertEquals(resultBlock.getRows().get(1), new Object[]{false, new Timestamp(1600000000000L), false});
     Assert.assertTrue(operator.nextBlock().isEndOfStreamBlock(), "Expected EOS after reading two rows");
   }
 
@@ -129,8 +131,8 @@ public class LeafStageTransferableBlockOperatorTest {
     TransferableBlock resultBlock = operator.nextBlock();
 
     // Then:
-    Assert.assertEquals(resultBlock.getContainer().get(0), new Object[]{true, new Timestamp(1660000000000L)});
-    Assert.assertEquals(resultBlock.getContainer().get(1), new Object[]{false, new Timestamp(1600000000000L)});
+    Assert.assertEquals(resultBlock.getRows().get(0), new Object[]{true, new Timestamp(1660000000000L)});
+    Assert.assertEquals(resultBlock.getRows().get(1), new Object[]{false, new Timestamp(1600000000000L)});
     Assert.assertTrue(operator.nextBlock().isEndOfStreamBlock(), "Expected EOS after reading two rows");
   }
 
@@ -156,11 +158,11 @@ public class LeafStageTransferableBlockOperatorTest {
     TransferableBlock resultBlock3 = operator.nextBlock();
 
     // Then:
-    Assert.assertEquals(resultBlock1.getContainer().get(0), new Object[]{"foo", 1});
-    Assert.assertEquals(resultBlock1.getContainer().get(1), new Object[]{"", 2});
-    Assert.assertEquals(resultBlock2.getContainer().get(0), new Object[]{"bar", 3});
-    Assert.assertEquals(resultBlock2.getContainer().get(1), new Object[]{"foo", 4});
-    Assert.assertEquals(resultBlock3.getContainer().size(), 0);
+    Assert.assertEquals(resultBlock1.getRows().get(0), new Object[]{"foo", 1});
+    Assert.assertEquals(resultBlock1.getRows().get(1), new Object[]{"", 2});
+    Assert.assertEquals(resultBlock2.getRows().get(0), new Object[]{"bar", 3});
+    Assert.assertEquals(resultBlock2.getRows().get(1), new Object[]{"foo", 4});
+    Assert.assertEquals(resultBlock3.getRows().size(), 0);
     Assert.assertTrue(operator.nextBlock().isEndOfStreamBlock(), "Expected EOS after reading two rows");
   }
 
@@ -205,8 +207,8 @@ public class LeafStageTransferableBlockOperatorTest {
     TransferableBlock resultBlock = operator.nextBlock();
 
     // Then:
-    Assert.assertEquals(resultBlock.getContainer().get(0), new Object[]{1, "foo"});
-    Assert.assertEquals(resultBlock.getContainer().get(1), new Object[]{2, "bar"});
+    Assert.assertEquals(resultBlock.getRows().get(0), new Object[]{1, "foo"});
+    Assert.assertEquals(resultBlock.getRows().get(1), new Object[]{2, "bar"});
   }
 
   @Test
@@ -226,8 +228,8 @@ public class LeafStageTransferableBlockOperatorTest {
     TransferableBlock resultBlock = operator.nextBlock();
 
     // Then:
-    Assert.assertEquals(resultBlock.getContainer().get(0), new Object[]{"foo", 1});
-    Assert.assertEquals(resultBlock.getContainer().get(1), new Object[]{"bar", 2});
+    Assert.assertEquals(resultBlock.getRows().get(0), new Object[]{"foo", 1});
+    Assert.assertEquals(resultBlock.getRows().get(1), new Object[]{"bar", 2});
   }
 
   @Test
@@ -312,7 +314,7 @@ public class LeafStageTransferableBlockOperatorTest {
     TransferableBlock resultBlock = operator.nextBlock();
 
     // Then:
-    Assert.assertEquals(resultBlock.getContainer().size(), 0);
+    Assert.assertEquals(resultBlock.getRows().size(), 0);
     Assert.assertEquals(resultBlock.getDataSchema(), desiredSchema);
   }
 
@@ -335,7 +337,7 @@ public class LeafStageTransferableBlockOperatorTest {
     TransferableBlock resultBlock = operator.nextBlock();
 
     // Then:
-    Assert.assertEquals(resultBlock.getContainer().size(), 0);
+    Assert.assertEquals(resultBlock.getRows().size(), 0);
     Assert.assertEquals(resultBlock.getDataSchema(), desiredSchema);
   }
 
@@ -357,7 +359,7 @@ public class LeafStageTransferableBlockOperatorTest {
     TransferableBlock resultBlock = operator.nextBlock();
 
     // Then:
-    Assert.assertEquals(resultBlock.getContainer().size(), 0);
+    Assert.assertEquals(resultBlock.getRows().size(), 0);
     Assert.assertEquals(resultBlock.getDataSchema(), desiredSchema);
   }
 }
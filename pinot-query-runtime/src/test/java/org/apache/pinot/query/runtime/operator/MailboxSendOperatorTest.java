@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.Map;
 import org.apache.calcite.rel.RelDistribution;
 import org.apache.pinot.common.datablock.DataBlock;
+import org.apache.pinot.common.datatable.DataTable;
 import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.query.mailbox.JsonMailboxIdentifier;
 import org.apache.pinot.query.mailbox.MailboxService;
@@ -196,6 +197,43 @@ public class MailboxSendOperatorTest {
     Assert.assertSame(captor.getValue().getType(), DataBlock.Type.ROW, "expected data block to propagate");
   }
 
+  @Test
+  public void shouldYieldWhenReceiversAreBackpressured()
+      throws Exception {
+    long deadlineMs = System.currentTimeMillis() + 10_000;
+    // Given:
+    OpChainExecutionContext context = getOpChainContext(deadlineMs);
+
+    MailboxSendOperator operator =
+        new MailboxSendOperator(context, _input, RelDistribution.Type.HASH_DISTRIBUTED, _selector, null, null, false,
+            server -> new JsonMailboxIdentifier("123", "0@from:1", "0@to:2", DEFAULT_SENDER_STAGE_ID,
+                DEFAULT_RECEIVER_STAGE_ID), _exchangeFactory, DEFAULT_RECEIVER_STAGE_ID);
+    TransferableBlock dataBlock = block(new DataSchema(new String[]{}, new DataSchema.ColumnDataType[]{}));
+    Mockito.when(_input.nextBlock()).thenReturn(dataBlock).thenReturn(dataBlock)
+        .thenReturn(TransferableBlockUtils.getNoOpTransferableBlock());
+    Mockito.when(_exchange.isBackpressured()).thenReturn(false, true, true, false);
+
+    // When:
+    TransferableBlock firstBlock = operator.nextBlock();
+    TransferableBlock secondBlock = operator.nextBlock();
+
+    // Then:
+    Assert.assertTrue(firstBlock.isNoOpBlock(), "expected to yield once the receivers are backpressured");
+    Assert.assertTrue(secondBlock.isNoOpBlock(), "expected to yield while the receivers are backpressured");
+    Mockito.verify(_input, Mockito.times(1)).nextBlock();
+    Mockito.verify(_exchange, Mockito.times(1)).send(Mockito.any());
+
+    // When:
+    operator.nextBlock();
+
+    // Then:
+    Mockito.verify(_exchange, Mockito.times(2)).send(Mockito.any());
+    Map<String, String> executionStats =
+        context.getStats().getOperatorStats(context, operator.getOperatorId()).getExecutionStats();
+    Assert.assertEquals(executionStats.get(DataTable.MetadataKey.NUM_BACKPRESSURE_STALLS.getName()), "1");
+    Assert.assertNotNull(executionStats.get(DataTable.MetadataKey.BACKPRESSURE_STALL_TIME_MS.getName()));
+  }
+
   private static TransferableBlock block(DataSchema schema, Object[]... rows) {
     return new TransferableBlock(Arrays.asList(rows), schema, DataBlock.Type.ROW);
   }
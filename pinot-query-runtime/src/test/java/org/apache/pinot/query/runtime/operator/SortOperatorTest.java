@@ -19,16 +19,21 @@
 package org.apache.pinot.query.runtime.operator;
 
 import com.google.common.collect.ImmutableList;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.apache.calcite.rel.RelFieldCollation.Direction;
+import org.apache.commons.io.FileUtils;
 import org.apache.pinot.common.datablock.DataBlock;
 import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.query.planner.logical.RexExpression;
 import org.apache.pinot.query.routing.VirtualServerAddress;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
+import org.apache.pinot.query.runtime.operator.utils.SpillConfig;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
@@ -333,8 +338,8 @@ public class SortOperatorTest {
     List<RexExpression> collation = collation(0);
     List<Direction> directions = ImmutableList.of(Direction.ASCENDING);
     DataSchema schema = new DataSchema(new String[]{"sort"}, new DataSchema.ColumnDataType[]{INT});
-    SortOperator op =
-        new SortOperator(OperatorTestUtil.getDefaultContext(), _input, collation, directions, 0, 0, schema, false, 1);
+    SortOperator op = new SortOperator(OperatorTestUtil.getDefaultContext(), _input, collation, directions, 0, 0,
+        schema, false, 1, 10);
 
     Mockito.when(_input.nextBlock()).thenReturn(block(schema, new Object[]{2}, new Object[]{1}, new Object[]{3}))
         .thenReturn(TransferableBlockUtils.getEndOfStreamTransferableBlock());
@@ -520,6 +525,112 @@ public class SortOperatorTest {
     Assert.assertTrue(block2.isEndOfStreamBlock(), "expected EOS block to propagate");
   }
 
+  @Test
+  public void shouldSpillAndMergeSortedRunsWhenExceedingMemoryBudget() {
+    // Given:
+    List<RexExpression> collation = collation(0, 1);
+    List<Direction> directions = ImmutableList.of(Direction.ASCENDING, Direction.DESCENDING);
+    DataSchema schema = new DataSchema(new String[]{"first", "second"}, new DataSchema.ColumnDataType[]{INT, STRING});
+    SortOperator op = new SortOperator(OperatorTestUtil.getDefaultContext(), _input, collation, directions, 0, 1,
+        schema, false, 10, 2);
+
+    Mockito.when(_input.nextBlock())
+        .thenReturn(block(schema, new Object[]{5, "a"}, new Object[]{3, "a"}, new Object[]{1, "a"}))
+        .thenReturn(TransferableBlockUtils.getNoOpTransferableBlock())
+        .thenReturn(block(schema, new Object[]{4, "a"}, new Object[]{2, "a"}, new Object[]{1, "b"}))
+        .thenReturn(TransferableBlockUtils.getEndOfStreamTransferableBlock());
+
+    // When:
+    TransferableBlock noOp = op.nextBlock(); // consume up until NOOP, create NOOP
+    TransferableBlock block = op.nextBlock(); // construct
+    TransferableBlock block2 = op.nextBlock(); // eos
+
+    // Then:
+    Assert.assertTrue(noOp.isNoOpBlock());
+    Assert.assertEquals(block.getNumRows(), 5, "expected all rows but the first because of the offset");
+    Assert.assertEquals(block.getContainer().get(0), new Object[]{1, "a"});
+    Assert.assertEquals(block.getContainer().get(1), new Object[]{2, "a"});
+    Assert.assertEquals(block.getContainer().get(2), new Object[]{3, "a"});
+    Assert.assertEquals(block.getContainer().get(3), new Object[]{4, "a"});
+    Assert.assertEquals(block.getContainer().get(4), new Object[]{5, "a"});
+    Assert.assertTrue(block2.isEndOfStreamBlock(), "expected EOS block to propagate");
+  }
+
+  @Test
+  public void shouldStreamExternallySortedRowsInMultipleBlocks() {
+    // Given:
+    List<RexExpression> collation = collation(0);
+    List<Direction> directions = ImmutableList.of(Direction.ASCENDING);
+    DataSchema schema = new DataSchema(new String[]{"sort"}, new DataSchema.ColumnDataType[]{INT});
+    int numRows = 25_000;
+    SortOperator op = new SortOperator(OperatorTestUtil.getDefaultContext(), _input, collation, directions, 0, 0,
+        schema, false, numRows, 1_000);
+
+    Object[][] rows = new Object[numRows][];
+    for (int i = 0; i < numRows; i++) {
+      rows[i] = new Object[]{numRows - i};
+    }
+    Mockito.when(_input.nextBlock()).thenReturn(block(schema, rows))
+        .thenReturn(TransferableBlockUtils.getEndOfStreamTransferableBlock());
+
+    // When:
+    List<Object[]> result = new ArrayList<>();
+    TransferableBlock block = op.nextBlock();
+    int numBlocks = 0;
+    while (!block.isEndOfStreamBlock()) {
+      Assert.assertFalse(block.isErrorBlock());
+      result.addAll(block.getContainer());
+      numBlocks++;
+      block = op.nextBlock();
+    }
+
+    // Then:
+    Assert.assertEquals(numBlocks, 3, "expected sorted rows to be streamed in bounded blocks");
+    Assert.assertEquals(result.size(), numRows);
+    for (int i = 0; i < numRows; i++) {
+      Assert.assertEquals(result.get(i), new Object[]{i + 1});
+    }
+  }
+
+  @Test
+  public void shouldMergeSortedRunsInMultiplePassesWhenExceedingMergeFanIn()
+      throws IOException {
+    // Given:
+    File spillDir = new File(FileUtils.getTempDirectory(), "SortOperatorTest");
+    FileUtils.deleteQuietly(spillDir);
+    List<RexExpression> collation = collation(0);
+    List<Direction> directions = ImmutableList.of(Direction.ASCENDING);
+    DataSchema schema = new DataSchema(new String[]{"sort"}, new DataSchema.ColumnDataType[]{INT});
+    int numRows = 100;
+    // 10 rows in memory spill 10 runs, which take multiple merge passes with a fan-in of 3
+    SortOperator op = new SortOperator(OperatorTestUtil.getContext(new SpillConfig(spillDir, 10, 3, 10, 10)), _input,
+        collation, directions, numRows, 0, schema, false);
+
+    Object[][] rows = new Object[numRows][];
+    for (int i = 0; i < numRows; i++) {
+      rows[i] = new Object[]{(i * 37) % numRows};
+    }
+    Mockito.when(_input.nextBlock()).thenReturn(block(schema, rows))
+        .thenReturn(TransferableBlockUtils.getEndOfStreamTransferableBlock());
+
+    try {
+      // When:
+      TransferableBlock block = op.nextBlock();
+      Assert.assertTrue(spillDir.isDirectory(), "expected runs to be spilled to the configured directory");
+      TransferableBlock block2 = op.nextBlock();
+
+      // Then:
+      Assert.assertEquals(block.getNumRows(), numRows);
+      for (int i = 0; i < numRows; i++) {
+        Assert.assertEquals(block.getContainer().get(i), new Object[]{i});
+      }
+      Assert.assertTrue(block2.isEndOfStreamBlock(), "expected EOS block to propagate");
+      Assert.assertEquals(spillDir.list().length, 0, "expected spilled runs to be deleted");
+    } finally {
+      FileUtils.deleteQuietly(spillDir);
+    }
+  }
+
   private static List<RexExpression> collation(int... indexes) {
     return Arrays.stream(indexes).mapToObj(RexExpression.InputRef::new).collect(Collectors.toList());
   }
@@ -83,6 +83,30 @@ public class TransformOperatorTest {
     Assert.assertEquals(resultRows.get(1), expectedRows.get(1));
   }
 
+  @Test
+  public void shouldHandleColumnarBlock() {
+    DataSchema upStreamSchema = new DataSchema(new String[]{"intCol", "doubleCol"}, new DataSchema.ColumnDataType[]{
+        DataSchema.ColumnDataType.INT, DataSchema.ColumnDataType.DOUBLE
+    });
+    Mockito.when(_upstreamOp.nextBlock()).thenReturn(new TransferableBlock(
+        ImmutableList.of(new Object[]{1, 2}, new Object[]{1.0, 3.0}), upStreamSchema, DataBlock.Type.COLUMNAR));
+    RexExpression.InputRef ref1 = new RexExpression.InputRef(1);
+    RexExpression.FunctionCall plus01 = new RexExpression.FunctionCall(PLUS, FieldSpec.DataType.DOUBLE, "plus",
+        ImmutableList.of(new RexExpression.InputRef(0), ref1));
+    DataSchema resultSchema = new DataSchema(new String[]{"doubleCol", "plusR"},
+        new DataSchema.ColumnDataType[]{DataSchema.ColumnDataType.DOUBLE, DataSchema.ColumnDataType.DOUBLE});
+    TransformOperator op = new TransformOperator(OperatorTestUtil.getDefaultContext(), _upstreamOp, resultSchema,
+        ImmutableList.of(ref1, plus01), upStreamSchema);
+    TransferableBlock result = op.nextBlock();
+
+    Assert.assertTrue(!result.isErrorBlock());
+    Assert.assertEquals(result.getType(), DataBlock.Type.COLUMNAR);
+    List<Object[]> resultRows = result.getRows();
+    Assert.assertEquals(resultRows.size(), 2);
+    Assert.assertEquals(resultRows.get(0), new Object[]{1.0, 2.0});
+    Assert.assertEquals(resultRows.get(1), new Object[]{3.0, 5.0});
+  }
+
   @Test
   public void shouldHandleLiteralTransform() {
     DataSchema upStreamSchema = new DataSchema(new String[]{"boolCol", "strCol"}, new DataSchema.ColumnDataType[]{
@@ -20,8 +20,10 @@ package org.apache.pinot.query.runtime.operator;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.calcite.sql.SqlKind;
@@ -43,6 +45,7 @@ import org.testng.annotations.Test;
 
 import static org.apache.pinot.common.utils.DataSchema.ColumnDataType.DOUBLE;
 import static org.apache.pinot.common.utils.DataSchema.ColumnDataType.INT;
+import static org.apache.pinot.common.utils.DataSchema.ColumnDataType.LONG;
 import static org.apache.pinot.common.utils.DataSchema.ColumnDataType.STRING;
 
 
@@ -384,22 +387,150 @@ public class WindowAggregateOperatorTest {
             WindowNode.WindowFrameType.RANGE, Collections.emptyList(), outSchema, inSchema);
   }
 
-  @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = ".*Unexpected aggregation "
-      + "function name: ROW_NUMBER.*")
-  public void testShouldThrowOnUnknownRankAggFunction() {
-    // TODO: Remove this test when support is added for RANK functions
+  @Test
+  public void testShouldComputeRankFunctions() {
     // Given:
-    List<RexExpression> calls = ImmutableList.of(
-        new RexExpression.FunctionCall(SqlKind.ROW_NUMBER, FieldSpec.DataType.INT, "ROW_NUMBER", ImmutableList.of()));
+    List<RexExpression> calls = ImmutableList.of(getRankFunction(SqlKind.ROW_NUMBER, "ROW_NUMBER"),
+        getRankFunction(SqlKind.RANK, "RANK"), getRankFunction(SqlKind.DENSE_RANK, "DENSE_RANK"));
     List<RexExpression> group = ImmutableList.of(new RexExpression.InputRef(0));
-    DataSchema outSchema = new DataSchema(new String[]{"unknown"}, new DataSchema.ColumnDataType[]{DOUBLE});
-    DataSchema inSchema = new DataSchema(new String[]{"unknown"}, new DataSchema.ColumnDataType[]{DOUBLE});
+    List<RexExpression> order = ImmutableList.of(new RexExpression.InputRef(1));
+
+    DataSchema inSchema = new DataSchema(new String[]{"group", "arg"}, new DataSchema.ColumnDataType[]{INT, INT});
+    // Input should be in sorted order on the order by key as SortExchange will handle pre-sorting the data
+    Mockito.when(_input.nextBlock())
+        .thenReturn(OperatorTestUtil.block(inSchema, new Object[]{1, 10}, new Object[]{1, 10}, new Object[]{2, 10},
+            new Object[]{1, 20}))
+        .thenReturn(OperatorTestUtil.block(inSchema, new Object[]{2, 30}, new Object[]{1, 30}, new Object[]{1, 40}))
+        .thenReturn(TransferableBlockUtils.getEndOfStreamTransferableBlock());
+
+    DataSchema outSchema = new DataSchema(new String[]{"group", "arg", "row_number", "rank", "dense_rank"},
+        new DataSchema.ColumnDataType[]{INT, INT, LONG, LONG, LONG});
+    WindowAggregateOperator operator =
+        new WindowAggregateOperator(OperatorTestUtil.getDefaultContext(), _input, group, order,
+            Arrays.asList(RelFieldCollation.Direction.ASCENDING), Arrays.asList(RelFieldCollation.NullDirection.LAST),
+            calls, Integer.MIN_VALUE, 0, WindowNode.WindowFrameType.ROW, Collections.emptyList(), outSchema,
+            inSchema);
 
     // When:
+    List<Object[]> resultRows = getAllRows(operator);
+
+    // Then:
+    List<Object[]> expectedRows = Arrays.asList(new Object[]{1, 10, 1L, 1L, 1L}, new Object[]{1, 10, 2L, 1L, 1L},
+        new Object[]{2, 10, 1L, 1L, 1L}, new Object[]{1, 20, 3L, 3L, 2L}, new Object[]{2, 30, 2L, 2L, 2L},
+        new Object[]{1, 30, 4L, 4L, 3L}, new Object[]{1, 40, 5L, 5L, 4L});
+    Assert.assertEquals(resultRows.size(), expectedRows.size());
+    for (int i = 0; i < expectedRows.size(); i++) {
+      Assert.assertEquals(resultRows.get(i), expectedRows.get(i));
+    }
+  }
+
+  @Test
+  public void testShouldComputeRankFunctionsForPartitionByOnlyQuery() {
+    // Given:
+    List<RexExpression> calls = ImmutableList.of(getRankFunction(SqlKind.ROW_NUMBER, "ROW_NUMBER"),
+        getRankFunction(SqlKind.RANK, "RANK"), getSum(new RexExpression.InputRef(1)));
+    List<RexExpression> group = ImmutableList.of(new RexExpression.InputRef(0));
+
+    DataSchema inSchema = new DataSchema(new String[]{"group", "arg"}, new DataSchema.ColumnDataType[]{INT, INT});
+    Mockito.when(_input.nextBlock())
+        .thenReturn(OperatorTestUtil.block(inSchema, new Object[]{1, 5}, new Object[]{1, 7}))
+        .thenReturn(TransferableBlockUtils.getEndOfStreamTransferableBlock());
+
+    DataSchema outSchema = new DataSchema(new String[]{"group", "arg", "row_number", "rank", "sum"},
+        new DataSchema.ColumnDataType[]{INT, INT, LONG, LONG, DOUBLE});
     WindowAggregateOperator operator =
         new WindowAggregateOperator(OperatorTestUtil.getDefaultContext(), _input, group, Collections.emptyList(),
             Collections.emptyList(), Collections.emptyList(), calls, Integer.MIN_VALUE, Integer.MAX_VALUE,
             WindowNode.WindowFrameType.RANGE, Collections.emptyList(), outSchema, inSchema);
+
+    // When:
+    TransferableBlock block1 = operator.nextBlock();
+    TransferableBlock block2 = operator.nextBlock();
+
+    // Then:
+    Assert.assertEquals(block1.getContainer().get(0), new Object[]{1, 5, 1L, 1L, 12.0});
+    Assert.assertEquals(block1.getContainer().get(1), new Object[]{1, 7, 2L, 1L, 12.0});
+    Assert.assertTrue(block2.isEndOfStreamBlock(), "Second block is EOS (done processing)");
+  }
+
+  @Test
+  public void testShouldComputeValueFunctions() {
+    // Given:
+    // LAG(arg), LAG(arg, 2, -1) with the arguments referencing the window constants, LEAD(arg, 1, 0)
+    List<RexExpression> calls = ImmutableList.of(
+        getValueFunction(SqlKind.LAG, "LAG", ImmutableList.of(new RexExpression.InputRef(1))),
+        getValueFunction(SqlKind.LAG, "LAG",
+            ImmutableList.of(new RexExpression.InputRef(1), new RexExpression.InputRef(2),
+                new RexExpression.InputRef(3))),
+        getValueFunction(SqlKind.LEAD, "LEAD",
+            ImmutableList.of(new RexExpression.InputRef(1), new RexExpression.Literal(FieldSpec.DataType.INT, 1),
+                new RexExpression.Literal(FieldSpec.DataType.INT, 0))));
+    List<RexExpression> constants = ImmutableList.of(new RexExpression.Literal(FieldSpec.DataType.INT, 2),
+        new RexExpression.Literal(FieldSpec.DataType.INT, -1));
+    List<RexExpression> group = ImmutableList.of(new RexExpression.InputRef(0));
+    List<RexExpression> order = ImmutableList.of(new RexExpression.InputRef(1));
+
+    DataSchema inSchema = new DataSchema(new String[]{"group", "arg"}, new DataSchema.ColumnDataType[]{INT, INT});
+    Mockito.when(_input.nextBlock())
+        .thenReturn(OperatorTestUtil.block(inSchema, new Object[]{1, 10}, new Object[]{2, 15}, new Object[]{1, 20}))
+        .thenReturn(OperatorTestUtil.block(inSchema, new Object[]{1, 30}, new Object[]{2, 25}))
+        .thenReturn(TransferableBlockUtils.getEndOfStreamTransferableBlock());
+
+    DataSchema outSchema = new DataSchema(new String[]{"group", "arg", "lag", "lag2", "lead"},
+        new DataSchema.ColumnDataType[]{INT, INT, INT, INT, INT});
+    WindowAggregateOperator operator =
+        new WindowAggregateOperator(OperatorTestUtil.getDefaultContext(), _input, group, order,
+            Arrays.asList(RelFieldCollation.Direction.ASCENDING), Arrays.asList(RelFieldCollation.NullDirection.LAST),
+            calls, Integer.MIN_VALUE, 0, WindowNode.WindowFrameType.RANGE, constants, outSchema, inSchema);
+
+    // When:
+    List<Object[]> resultRows = getAllRows(operator);
+
+    // Then:
+    // The rows are buffered until the end of the input to compute LEAD, and the partitions are not ordered
+    resultRows.sort(Comparator.comparingInt((Object[] row) -> (int) row[0]).thenComparingInt(row -> (int) row[1]));
+    List<Object[]> expectedRows = Arrays.asList(new Object[]{1, 10, null, -1, 20}, new Object[]{1, 20, 10, -1, 30},
+        new Object[]{1, 30, 20, 10, 0}, new Object[]{2, 15, null, -1, 25}, new Object[]{2, 25, 15, -1, 0});
+    Assert.assertEquals(resultRows.size(), expectedRows.size());
+    for (int i = 0; i < expectedRows.size(); i++) {
+      Assert.assertEquals(resultRows.get(i), expectedRows.get(i));
+    }
+  }
+
+  @Test
+  public void testShouldStreamRowsFrameEndingAtCurrentRow() {
+    // Given:
+    List<RexExpression> calls = ImmutableList.of(getSum(new RexExpression.InputRef(1)));
+    List<RexExpression> group = ImmutableList.of(new RexExpression.InputRef(0));
+    List<RexExpression> order = ImmutableList.of(new RexExpression.InputRef(1));
+
+    DataSchema inSchema = new DataSchema(new String[]{"group", "arg"}, new DataSchema.ColumnDataType[]{INT, INT});
+    Mockito.when(_input.nextBlock())
+        .thenReturn(OperatorTestUtil.block(inSchema, new Object[]{1, 1}, new Object[]{1, 2}))
+        .thenReturn(OperatorTestUtil.block(inSchema, new Object[]{1, 2}))
+        .thenReturn(TransferableBlockUtils.getEndOfStreamTransferableBlock());
+
+    DataSchema outSchema =
+        new DataSchema(new String[]{"group", "arg", "sum"}, new DataSchema.ColumnDataType[]{INT, INT, DOUBLE});
+    WindowAggregateOperator operator =
+        new WindowAggregateOperator(OperatorTestUtil.getDefaultContext(), _input, group, order,
+            Arrays.asList(RelFieldCollation.Direction.ASCENDING), Arrays.asList(RelFieldCollation.NullDirection.LAST),
+            calls, Integer.MIN_VALUE, 0, WindowNode.WindowFrameType.ROW, Collections.emptyList(), outSchema,
+            inSchema);
+
+    // When:
+    TransferableBlock block1 = operator.nextBlock();
+    TransferableBlock block2 = operator.nextBlock();
+    TransferableBlock block3 = operator.nextBlock();
+
+    // Then:
+    // rows are emitted as soon as each input block is consumed, and peers do not share the aggregation value
+    Assert.assertEquals(block1.getNumRows(), 2);
+    Assert.assertEquals(block1.getContainer().get(0), new Object[]{1, 1, 1});
+    Assert.assertEquals(block1.getContainer().get(1), new Object[]{1, 2, 3.0});
+    Assert.assertEquals(block2.getNumRows(), 1);
+    Assert.assertEquals(block2.getContainer().get(0), new Object[]{1, 2, 5.0});
+    Assert.assertTrue(block3.isEndOfStreamBlock(), "Third block is EOS (done processing)");
   }
 
   @Test
@@ -423,17 +554,19 @@ public class WindowAggregateOperatorTest {
     WindowAggregateOperator operator =
         new WindowAggregateOperator(OperatorTestUtil.getDefaultContext(), _input, group, order,
             Arrays.asList(RelFieldCollation.Direction.ASCENDING), Arrays.asList(RelFieldCollation.NullDirection.LAST),
-            calls, Integer.MIN_VALUE, Integer.MAX_VALUE, WindowNode.WindowFrameType.RANGE, Collections.emptyList(),
-            outSchema, inSchema);
+            calls, Integer.MIN_VALUE, 0, WindowNode.WindowFrameType.RANGE, Collections.emptyList(), outSchema,
+            inSchema);
 
-    TransferableBlock result = operator.getNextBlock();
-    while (result.isNoOpBlock()) {
-      result = operator.getNextBlock();
-    }
-    TransferableBlock eosBlock = operator.getNextBlock();
-    List<Object[]> resultRows = result.getContainer();
-    List<Object[]> expectedRows = Arrays.asList(new Object[]{1, "foo", 1}, new Object[]{2, "bar", 2},
-        new Object[]{2, "foo", 6.0}, new Object[]{2, "foo", 6.0}, new Object[]{3, "and", 3},
+    // When:
+    TransferableBlock firstBlock = operator.nextBlock();
+    List<Object[]> resultRows = new ArrayList<>(firstBlock.getContainer());
+    resultRows.addAll(getAllRows(operator));
+
+    // Then:
+    // the peers of an ORDER BY key are emitted as soon as a row with the next ORDER BY key is consumed
+    Assert.assertEquals(firstBlock.getNumRows(), 2);
+    List<Object[]> expectedRows = Arrays.asList(new Object[]{3, "and", 3}, new Object[]{2, "bar", 2},
+        new Object[]{2, "foo", 6.0}, new Object[]{1, "foo", 1}, new Object[]{2, "foo", 6.0},
         new Object[]{3, "true", 6.0});
     Assert.assertEquals(resultRows.size(), expectedRows.size());
     Assert.assertEquals(resultRows.get(0), expectedRows.get(0));
@@ -442,7 +575,6 @@ public class WindowAggregateOperatorTest {
     Assert.assertEquals(resultRows.get(3), expectedRows.get(3));
     Assert.assertEquals(resultRows.get(4), expectedRows.get(4));
     Assert.assertEquals(resultRows.get(5), expectedRows.get(5));
-    Assert.assertTrue(eosBlock.isEndOfStreamBlock(), "Second block is EOS (done processing)");
   }
 
   @Test
@@ -482,7 +614,7 @@ public class WindowAggregateOperatorTest {
   }
 
   @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = "Only RANGE type frames "
-      + "are supported at present")
+      + "or ROWS type frames ending at CURRENT ROW are supported at present")
   public void testShouldThrowOnCustomFramesRows() {
     // TODO: Remove this test once custom frame support is added
     // Given:
@@ -601,6 +733,28 @@ public class WindowAggregateOperatorTest {
         "expected it to fail with class cast exception");
   }
 
+  private static List<Object[]> getAllRows(MultiStageOperator operator) {
+    List<Object[]> rows = new ArrayList<>();
+    TransferableBlock block = operator.nextBlock();
+    while (!block.isEndOfStreamBlock()) {
+      Assert.assertFalse(block.isErrorBlock(), "Unexpected error block");
+      if (!block.isNoOpBlock()) {
+        rows.addAll(block.getContainer());
+      }
+      block = operator.nextBlock();
+    }
+    return rows;
+  }
+
+  private static RexExpression.FunctionCall getRankFunction(SqlKind kind, String functionName) {
+    return new RexExpression.FunctionCall(kind, FieldSpec.DataType.LONG, functionName, ImmutableList.of());
+  }
+
+  private static RexExpression.FunctionCall getValueFunction(SqlKind kind, String functionName,
+      List<RexExpression> operands) {
+    return new RexExpression.FunctionCall(kind, FieldSpec.DataType.INT, functionName, operands);
+  }
+
   private static RexExpression.FunctionCall getSum(RexExpression arg) {
     return new RexExpression.FunctionCall(SqlKind.SUM, FieldSpec.DataType.INT, "SUM", ImmutableList.of(arg));
   }
@@ -84,6 +84,35 @@ public class HashExchangeTest {
     Assert.assertEquals(captor.getValue().getContainer().get(0), new Object[]{2});
   }
 
+  @Test
+  public void shouldRouteColumnarBlocksBasedOnPartitionKey()
+      throws Exception {
+    // Given:
+    TestSelector selector = new TestSelector(Iterators.forArray(2, 0, 1));
+    DataSchema schema = new DataSchema(new String[]{"col1", "col2"},
+        new DataSchema.ColumnDataType[]{DataSchema.ColumnDataType.INT, DataSchema.ColumnDataType.STRING});
+    TransferableBlock block = new TransferableBlock(
+        ImmutableList.of(new Object[]{0, 1, 2}, new Object[]{"a", "b", "c"}), schema, DataBlock.Type.COLUMNAR);
+    ImmutableList<SendingMailbox<TransferableBlock>> destinations = ImmutableList.of(_mailbox1, _mailbox2);
+
+    // When:
+    new HashExchange(destinations, selector, TransferableBlockUtils::splitBlock).route(destinations, block);
+
+    // Then:
+    ArgumentCaptor<TransferableBlock> captor = ArgumentCaptor.forClass(TransferableBlock.class);
+
+    Mockito.verify(_mailbox1, Mockito.times(1)).send(captor.capture());
+    Assert.assertEquals(captor.getValue().getType(), DataBlock.Type.COLUMNAR);
+    Assert.assertEquals(captor.getValue().getNumRows(), 2);
+    Assert.assertEquals(captor.getValue().getContainer().get(0), new Object[]{0, 1});
+    Assert.assertEquals(captor.getValue().getContainer().get(1), new Object[]{"a", "b"});
+
+    Mockito.verify(_mailbox2, Mockito.times(1)).send(captor.capture());
+    Assert.assertEquals(captor.getValue().getNumRows(), 1);
+    Assert.assertEquals(captor.getValue().getContainer().get(0), new Object[]{2});
+    Assert.assertEquals(captor.getValue().getContainer().get(1), new Object[]{"c"});
+  }
+
   private static class TestSelector implements KeySelector<Object[], Object[]> {
     private static final String HASH_ALGORITHM = "dummyHash";
 
@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.query.planner.partitioning.FieldSelectionKeySelector;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+
+public class JoinHashTableTest {
+
+  @DataProvider(name = "singleColumnKeys")
+  public Object[][] singleColumnKeys() {
+    return new Object[][]{
+        new Object[]{ColumnDataType.INT, 1, 2, 3L},
+        new Object[]{ColumnDataType.LONG, 1L, 2L, 3},
+        new Object[]{ColumnDataType.STRING, "a", "b", "c"},
+    };
+  }
+
+  @Test(dataProvider = "singleColumnKeys")
+  public void testSingleColumnKey(ColumnDataType keyType, Object key1, Object key2, Object missingKey) {
+    // build side keys are on column 1, probe side keys are on column 0
+    JoinHashTable hashTable = JoinHashTable.create(new FieldSelectionKeySelector(1), new FieldSelectionKeySelector(0),
+        new ColumnDataType[]{keyType});
+    hashTable.addRow(new Object[]{"r0", key1});
+    hashTable.addRow(new Object[]{"r1", key2});
+    hashTable.addRow(new Object[]{"r2", key1});
+    hashTable.addRow(new Object[]{"r3", null});
+    Assert.assertEquals(hashTable.getNumRows(), 4);
+    Assert.assertEquals(hashTable.getNumKeys(), 3);
+    Assert.assertEquals(hashTable.getFirstRowOfKey(1), new Object[]{"r1", key2});
+
+    Assert.assertEquals(getMatchedRows(hashTable, new Object[]{key1}), new Object[]{"r0", "r2"});
+    Assert.assertEquals(getMatchedRows(hashTable, new Object[]{key2}), new Object[]{"r1"});
+    Assert.assertEquals(getMatchedRows(hashTable, new Object[]{null}), new Object[]{"r3"});
+    Assert.assertTrue(hashTable.containsKey(new Object[]{key1}));
+    // Values of a different type should never match the specialized keys
+    Assert.assertFalse(hashTable.containsKey(new Object[]{missingKey}));
+    Assert.assertTrue(hashTable.getFirstRowId(new Object[]{missingKey}) < 0);
+  }
+
+  @Test
+  public void testMultiColumnKey() {
+    JoinHashTable hashTable = JoinHashTable.create(new FieldSelectionKeySelector(1, 2),
+        new FieldSelectionKeySelector(1, 2), new ColumnDataType[]{ColumnDataType.INT, ColumnDataType.STRING});
+    hashTable.addRow(new Object[]{"r0", 1, "a"});
+    hashTable.addRow(new Object[]{"r1", 1, "b"});
+    hashTable.addRow(new Object[]{"r2", 1, "a"});
+    Assert.assertEquals(hashTable.getNumKeys(), 2);
+
+    Assert.assertEquals(getMatchedRows(hashTable, new Object[]{"x", 1, "a"}), new Object[]{"r0", "r2"});
+    Assert.assertEquals(getMatchedRows(hashTable, new Object[]{"x", 1, "b"}), new Object[]{"r1"});
+    Assert.assertFalse(hashTable.containsKey(new Object[]{"x", 2, "a"}));
+  }
+
+  private static Object[] getMatchedRows(JoinHashTable hashTable, Object[] probeRow) {
+    List<Object> matchedRows = new ArrayList<>();
+    for (int rowId = hashTable.getFirstRowId(probeRow); rowId >= 0; rowId = hashTable.getNextRowId(rowId)) {
+      matchedRows.add(hashTable.getRow(rowId)[0]);
+    }
+    return matchedRows.toArray();
+  }
+}
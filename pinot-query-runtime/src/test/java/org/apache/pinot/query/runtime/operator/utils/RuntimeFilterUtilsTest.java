@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.utils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.pinot.common.datablock.DataBlock;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.query.mailbox.MailboxIdentifier;
+import org.apache.pinot.query.mailbox.MailboxService;
+import org.apache.pinot.query.mailbox.ReceivingMailbox;
+import org.apache.pinot.query.mailbox.SendingMailbox;
+import org.apache.pinot.query.planner.StageMetadata;
+import org.apache.pinot.query.routing.VirtualServer;
+import org.apache.pinot.query.routing.VirtualServerAddress;
+import org.apache.pinot.query.runtime.blocks.TransferableBlock;
+import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+public class RuntimeFilterUtilsTest {
+  private static final long REQUEST_ID = 123L;
+  private static final int JOIN_STAGE_ID = 1;
+  private static final int LEAF_STAGE_ID = 2;
+  private static final DataSchema KEY_SCHEMA = new DataSchema(new String[]{"strKey", "intKey"},
+      new DataSchema.ColumnDataType[]{DataSchema.ColumnDataType.STRING, DataSchema.ColumnDataType.INT});
+
+  private RuntimeFilterUtils.DataAvailableNotifier _notifier;
+  private MailboxService<TransferableBlock> _mailboxService;
+  private List<VirtualServer> _joinServers;
+  private VirtualServer _leafServer;
+
+  /**
+   * The join and leaf workers have different addresses, so the mailboxes are mocked with in-memory queues that invoke
+   * the notifier on each block sent, like the mailbox callback.
+   */
+  @BeforeMethod
+  @SuppressWarnings("unchecked")
+  public void setUp()
+      throws Exception {
+    _notifier = new RuntimeFilterUtils.DataAvailableNotifier();
+    Map<MailboxIdentifier, Queue<TransferableBlock>> queues = new ConcurrentHashMap<>();
+    _mailboxService = Mockito.mock(MailboxService.class);
+    Mockito.when(_mailboxService.getSendingMailbox(Mockito.any(), Mockito.anyLong())).thenAnswer(invocation -> {
+      MailboxIdentifier mailboxId = invocation.getArgument(0);
+      SendingMailbox<TransferableBlock> sendingMailbox = Mockito.mock(SendingMailbox.class);
+      Mockito.doAnswer(sendInvocation -> {
+        queues.computeIfAbsent(mailboxId, k -> new ConcurrentLinkedQueue<>()).offer(sendInvocation.getArgument(0));
+        _notifier.accept(mailboxId);
+        return null;
+      }).when(sendingMailbox).send(Mockito.any());
+      return sendingMailbox;
+    });
+    Mockito.when(_mailboxService.getReceivingMailbox(Mockito.any())).thenAnswer(invocation -> {
+      MailboxIdentifier mailboxId = invocation.getArgument(0);
+      ReceivingMailbox<TransferableBlock> receivingMailbox = Mockito.mock(ReceivingMailbox.class);
+      Queue<TransferableBlock> queue = queues.computeIfAbsent(mailboxId, k -> new ConcurrentLinkedQueue<>());
+      Mockito.when(receivingMailbox.receive()).thenAnswer(receiveInvocation -> queue.poll());
+      return receivingMailbox;
+    });
+    _joinServers = ImmutableList.of(mockServer(0), mockServer(1));
+    _leafServer = mockServer(0);
+  }
+
+  @Test
+  public void testPublishAndReceive() {
+    long deadlineMs = System.currentTimeMillis() + 10_000L;
+    RuntimeFilterUtils.publish(getJoinContext(0, deadlineMs),
+        LEAF_STAGE_ID, block(new Object[]{"a", 1}, new Object[]{"b", 2}));
+    RuntimeFilterUtils.publish(getJoinContext(1, deadlineMs), LEAF_STAGE_ID, block(new Object[]{"b", 3}));
+
+    List<Set<Object>> runtimeFilter = receive(deadlineMs);
+    Assert.assertNotNull(runtimeFilter);
+    Assert.assertEquals(runtimeFilter.get(0), ImmutableSet.of("a", "b"));
+    Assert.assertEquals(runtimeFilter.get(1), ImmutableSet.of(1, 2, 3));
+  }
+
+  @Test
+  public void testReceiveKeysPublishedWhileWaiting()
+      throws Exception {
+    long deadlineMs = System.currentTimeMillis() + 10_000L;
+    CompletableFuture<List<Set<Object>>> future = CompletableFuture.supplyAsync(() -> receive(deadlineMs));
+    RuntimeFilterUtils.publish(getJoinContext(0, deadlineMs), LEAF_STAGE_ID, block(new Object[]{"a", 1}));
+    Thread.sleep(100L);
+    Assert.assertFalse(future.isDone());
+    RuntimeFilterUtils.publish(getJoinContext(1, deadlineMs), LEAF_STAGE_ID, block(new Object[]{"b", 2}));
+
+    List<Set<Object>> runtimeFilter = future.get(5, TimeUnit.SECONDS);
+    Assert.assertNotNull(runtimeFilter);
+    Assert.assertEquals(runtimeFilter.get(0), ImmutableSet.of("a", "b"));
+    Assert.assertEquals(runtimeFilter.get(1), ImmutableSet.of(1, 2));
+  }
+
+  @Test
+  public void testReceiveEmptyKeys() {
+    long deadlineMs = System.currentTimeMillis() + 10_000L;
+    RuntimeFilterUtils.publish(getJoinContext(0, deadlineMs), LEAF_STAGE_ID, block());
+    RuntimeFilterUtils.publish(getJoinContext(1, deadlineMs), LEAF_STAGE_ID, block());
+
+    List<Set<Object>> runtimeFilter = receive(deadlineMs);
+    Assert.assertNotNull(runtimeFilter);
+    Assert.assertTrue(runtimeFilter.get(0).isEmpty());
+    Assert.assertTrue(runtimeFilter.get(1).isEmpty());
+  }
+
+  @Test
+  public void testGiveUpPublishingKeys() {
+    long deadlineMs = System.currentTimeMillis() + 10_000L;
+    RuntimeFilterUtils.publish(getJoinContext(0, deadlineMs), LEAF_STAGE_ID, block(new Object[]{"a", 1}));
+    RuntimeFilterUtils.publish(getJoinContext(1, deadlineMs), LEAF_STAGE_ID, null);
+
+    Assert.assertNull(receive(deadlineMs));
+  }
+
+  @Test
+  public void testTimeoutWaitingForKeys() {
+    long deadlineMs = System.currentTimeMillis() + 10_000L;
+    RuntimeFilterUtils.publish(getJoinContext(0, deadlineMs), LEAF_STAGE_ID, block(new Object[]{"a", 1}));
+
+    long startTimeMs = System.currentTimeMillis();
+    Assert.assertNull(receive(startTimeMs + 100L));
+    Assert.assertTrue(System.currentTimeMillis() - startTimeMs >= 100L);
+  }
+
+  private List<Set<Object>> receive(long waitDeadlineMs) {
+    return RuntimeFilterUtils.receive(_mailboxService, _notifier, REQUEST_ID, LEAF_STAGE_ID,
+        new VirtualServerAddress(_leafServer), JOIN_STAGE_ID, _joinServers, KEY_SCHEMA.size(), waitDeadlineMs);
+  }
+
+  private OpChainExecutionContext getJoinContext(int joinServerIndex, long deadlineMs) {
+    StageMetadata leafStageMetadata = new StageMetadata();
+    leafStageMetadata.setServerInstances(ImmutableList.of(_leafServer));
+    StageMetadata joinStageMetadata = new StageMetadata();
+    joinStageMetadata.setServerInstances(_joinServers);
+    return new OpChainExecutionContext(_mailboxService, REQUEST_ID, JOIN_STAGE_ID,
+        new VirtualServerAddress(_joinServers.get(joinServerIndex)), deadlineMs, deadlineMs,
+        ImmutableMap.of(JOIN_STAGE_ID, joinStageMetadata, LEAF_STAGE_ID, leafStageMetadata));
+  }
+
+  private static TransferableBlock block(Object[]... rows) {
+    return new TransferableBlock(Arrays.asList(rows), KEY_SCHEMA, DataBlock.Type.ROW);
+  }
+
+  private static VirtualServer mockServer(int virtualId) {
+    VirtualServer server = Mockito.mock(VirtualServer.class);
+    Mockito.when(server.getHostname()).thenReturn("localhost");
+    Mockito.when(server.getQueryMailboxPort()).thenReturn(0);
+    Mockito.when(server.getVirtualId()).thenReturn(virtualId);
+    return server;
+  }
+}
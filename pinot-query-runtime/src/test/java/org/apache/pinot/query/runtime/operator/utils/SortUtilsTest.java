@@ -0,0 +1,74 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.utils;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import javax.annotation.Nullable;
+import org.apache.calcite.rel.RelFieldCollation;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.query.planner.logical.RexExpression;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class SortUtilsTest {
+  private static final DataSchema DATA_SCHEMA =
+      new DataSchema(new String[]{"key"}, new DataSchema.ColumnDataType[]{DataSchema.ColumnDataType.INT});
+
+  @Test
+  public void testNullDirection() {
+    Assert.assertEquals(sort(RelFieldCollation.Direction.ASCENDING, RelFieldCollation.NullDirection.FIRST),
+        Arrays.asList(null, null, 1, 2, 3));
+    Assert.assertEquals(sort(RelFieldCollation.Direction.ASCENDING, RelFieldCollation.NullDirection.LAST),
+        Arrays.asList(1, 2, 3, null, null));
+    Assert.assertEquals(sort(RelFieldCollation.Direction.DESCENDING, RelFieldCollation.NullDirection.FIRST),
+        Arrays.asList(null, null, 3, 2, 1));
+    Assert.assertEquals(sort(RelFieldCollation.Direction.DESCENDING, RelFieldCollation.NullDirection.LAST),
+        Arrays.asList(3, 2, 1, null, null));
+
+    // Nulls are considered larger than the other values by default
+    Assert.assertEquals(sort(RelFieldCollation.Direction.ASCENDING, RelFieldCollation.NullDirection.UNSPECIFIED),
+        Arrays.asList(1, 2, 3, null, null));
+    Assert.assertEquals(sort(RelFieldCollation.Direction.DESCENDING, null), Arrays.asList(null, null, 3, 2, 1));
+  }
+
+  /**
+   * Sorts the values the same way as the sorted mailbox receive: polls the rows from the priority queue and adds them
+   * in the reverse order.
+   */
+  private static List<Object> sort(RelFieldCollation.Direction direction,
+      @Nullable RelFieldCollation.NullDirection nullDirection) {
+    SortUtils.SortComparator comparator =
+        new SortUtils.SortComparator(ImmutableList.of(new RexExpression.InputRef(0)), ImmutableList.of(direction),
+            nullDirection != null ? ImmutableList.of(nullDirection) : null, DATA_SCHEMA, false);
+    PriorityQueue<Object[]> priorityQueue = new PriorityQueue<>(comparator);
+    for (Object value : Arrays.asList(2, null, 3, 1, null)) {
+      priorityQueue.add(new Object[]{value});
+    }
+    List<Object> values = new ArrayList<>();
+    while (!priorityQueue.isEmpty()) {
+      values.add(0, priorityQueue.poll()[0]);
+    }
+    return values;
+  }
+}
@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.dedup;
+
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.segment.local.utils.HashUtils;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.spi.config.table.HashFunction;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+
+
+/**
+ * Implementation of {@link DedupKeyStore} backed by an on-heap {@link ConcurrentHashMap}.
+ */
+@ThreadSafe
+public class ConcurrentMapDedupKeyStore implements DedupKeyStore {
+  private final HashFunction _hashFunction;
+  private final ConcurrentHashMap<Object, RecordLocation> _primaryKeyToLocationMap = new ConcurrentHashMap<>();
+
+  public ConcurrentMapDedupKeyStore(HashFunction hashFunction) {
+    _hashFunction = hashFunction;
+  }
+
+  @Override
+  public boolean contains(PrimaryKey primaryKey, double expiryThreshold) {
+    RecordLocation location = _primaryKeyToLocationMap.get(HashUtils.hashPrimaryKey(primaryKey, _hashFunction));
+    return location != null && !(location._dedupTime < expiryThreshold);
+  }
+
+  @Override
+  public boolean checkAndPut(PrimaryKey primaryKey, IndexSegment segment, double dedupTime, double expiryThreshold) {
+    boolean[] present = new boolean[1];
+    _primaryKeyToLocationMap.compute(HashUtils.hashPrimaryKey(primaryKey, _hashFunction), (k, currentLocation) -> {
+      if (currentLocation != null && !(currentLocation._dedupTime < expiryThreshold)) {
+        present[0] = true;
+        return currentLocation;
+      }
+      return new RecordLocation(segment, dedupTime);
+    });
+    return present[0];
+  }
+
+  @Override
+  public void put(PrimaryKey primaryKey, IndexSegment segment, double dedupTime) {
+    _primaryKeyToLocationMap.put(HashUtils.hashPrimaryKey(primaryKey, _hashFunction),
+        new RecordLocation(segment, dedupTime));
+  }
+
+  @Override
+  public void remove(PrimaryKey primaryKey, IndexSegment segment) {
+    _primaryKeyToLocationMap.computeIfPresent(HashUtils.hashPrimaryKey(primaryKey, _hashFunction),
+        (k, currentLocation) -> currentLocation._segment == segment ? null : currentLocation);
+  }
+
+  @Override
+  public int removeExpired(double expiryThreshold) {
+    int numPrimaryKeysBefore = _primaryKeyToLocationMap.size();
+    _primaryKeyToLocationMap.values().removeIf(location -> location._dedupTime < expiryThreshold);
+    return Math.max(numPrimaryKeysBefore - _primaryKeyToLocationMap.size(), 0);
+  }
+
+  @Nullable
+  @Override
+  public IndexSegment getSegment(PrimaryKey primaryKey) {
+    RecordLocation location = _primaryKeyToLocationMap.get(HashUtils.hashPrimaryKey(primaryKey, _hashFunction));
+    return location != null ? location._segment : null;
+  }
+
+  @Override
+  public long getNumPrimaryKeys() {
+    return _primaryKeyToLocationMap.size();
+  }
+
+  @Override
+  public void close() {
+    _primaryKeyToLocationMap.clear();
+  }
+
+  private static final class RecordLocation {
+    final IndexSegment _segment;
+    final double _dedupTime;
+
+    RecordLocation(IndexSegment segment, double dedupTime) {
+      _segment = segment;
+      _dedupTime = dedupTime;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.dedup;
+
+import java.io.Closeable;
+import javax.annotation.Nullable;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+
+
+/**
+ * Store of the primary keys of a dedup-enabled table partition, mapping each primary key to the segment holding it and
+ * its dedup time.
+ * <p>The dedup time is only meaningful when the metadata TTL is enabled, in which case the entries with dedup time
+ * smaller than the expiry threshold are treated as absent and can be removed via {@link #removeExpired(double)}. When
+ * the TTL is not enabled, {@link Double#NaN} can be used as the dedup time, which never expires.
+ */
+public interface DedupKeyStore extends Closeable {
+
+  /**
+   * Returns whether the primary key exists and is not expired.
+   */
+  boolean contains(PrimaryKey primaryKey, double expiryThreshold);
+
+  /**
+   * Returns {@code true} if the primary key exists and is not expired, otherwise puts the primary key into the store
+   * and returns {@code false}.
+   */
+  boolean checkAndPut(PrimaryKey primaryKey, IndexSegment segment, double dedupTime, double expiryThreshold);
+
+  /**
+   * Puts the primary key into the store, replacing the existing entry if any.
+   */
+  void put(PrimaryKey primaryKey, IndexSegment segment, double dedupTime);
+
+  /**
+   * Removes the primary key if it is mapped to the given segment.
+   */
+  void remove(PrimaryKey primaryKey, IndexSegment segment);
+
+  /**
+   * Invoked after all the primary keys of the segment are removed, so that the store can release the resources
+   * associated with the segment.
+   */
+  default void releaseSegment(IndexSegment segment) {
+  }
+
+  /**
+   * Removes the entries with dedup time smaller than the expiry threshold, and returns the number of removed entries.
+   */
+  int removeExpired(double expiryThreshold);
+
+  /**
+   * Removes the expired entries within a bounded part of the store, continuing from where the previous invocation
+   * stopped, so that the expired entries can be removed on the consuming thread without blocking it for a full scan of
+   * the store. Returns {@code true} when the scan over the whole store is finished, after which the next invocation
+   * starts a new scan. By default, all the expired entries are removed in one step.
+   */
+  default boolean removeExpiredIncrementally(double expiryThreshold) {
+    removeExpired(expiryThreshold);
+    return true;
+  }
+
+  /**
+   * Returns the segment the primary key is mapped to, or {@code null} if the primary key does not exist.
+   */
+  @Nullable
+  IndexSegment getSegment(PrimaryKey primaryKey);
+
+  long getNumPrimaryKeys();
+}
@@ -0,0 +1,239 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.dedup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.segment.local.utils.HashUtils;
+import org.apache.pinot.segment.local.utils.OffHeapHashedPrimaryKeyMap;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.spi.config.table.HashFunction;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+
+
+/**
+ * Implementation of {@link DedupKeyStore} that keeps the primary keys off-heap to bound the heap usage of tables with
+ * large number of primary keys.
+ * <p>The primary keys are stored as 128-bit hashes (MD5 if configured, MURMUR3 otherwise) in
+ * {@link OffHeapHashedPrimaryKeyMap}s, with the id of the segment and the dedup time as the values. The maps are
+ * striped by the hashed key to reduce the lock contention.
+ */
+@ThreadSafe
+public class OffHeapDedupKeyStore implements DedupKeyStore {
+  private static final int NUM_STRIPES = 64;
+  private static final int STRIPE_SHIFT = Long.SIZE - Integer.numberOfTrailingZeros(NUM_STRIPES);
+  private static final int INITIAL_STRIPE_CAPACITY = 1024;
+  // Max number of slots to scan in each step of removing the expired entries incrementally
+  private static final int MAX_NUM_SLOTS_TO_SCAN_PER_STEP = 1 << 16;
+
+  private final HashFunction _hashFunction;
+  private final OffHeapHashedPrimaryKeyMap[] _primaryKeyMaps = new OffHeapHashedPrimaryKeyMap[NUM_STRIPES];
+
+  // Segments referenced by the primary keys
+  private final Map<IndexSegment, Integer> _segmentToIdMap = new ConcurrentHashMap<>();
+  private final Map<Integer, IndexSegment> _idToSegmentMap = new ConcurrentHashMap<>();
+  private final AtomicInteger _nextSegmentId = new AtomicInteger();
+
+  // Position of the incremental removal of the expired entries, where the removal is serialized by the caller
+  private int _removeExpiredStripe;
+  private int _removeExpiredSlot;
+
+  public OffHeapDedupKeyStore(String tableNameWithType, int partitionId, HashFunction hashFunction) {
+    _hashFunction = hashFunction;
+    for (int i = 0; i < NUM_STRIPES; i++) {
+      _primaryKeyMaps[i] = new OffHeapHashedPrimaryKeyMap(INITIAL_STRIPE_CAPACITY,
+          String.format("DedupPrimaryKeyMap: %s, partition: %d, stripe: %d", tableNameWithType, partitionId, i));
+    }
+  }
+
+  private byte[] hashPrimaryKey(PrimaryKey primaryKey) {
+    byte[] bytes = primaryKey.asBytes();
+    return _hashFunction == HashFunction.MD5 ? HashUtils.hashMD5(bytes) : HashUtils.hashMurmur3(bytes);
+  }
+
+  private OffHeapHashedPrimaryKeyMap getPrimaryKeyMap(long keyHigh) {
+    return _primaryKeyMaps[(int) (keyHigh >>> STRIPE_SHIFT)];
+  }
+
+  private int getOrCreateSegmentId(IndexSegment segment) {
+    return _segmentToIdMap.computeIfAbsent(segment, k -> {
+      int segmentId = _nextSegmentId.getAndIncrement();
+      _idToSegmentMap.put(segmentId, k);
+      return segmentId;
+    });
+  }
+
+  private static long encodeDedupTime(double dedupTime) {
+    return Double.doubleToLongBits(dedupTime);
+  }
+
+  private static double decodeDedupTime(long encodedDedupTime) {
+    return Double.longBitsToDouble(encodedDedupTime);
+  }
+
+  @Override
+  public boolean contains(PrimaryKey primaryKey, double expiryThreshold) {
+    byte[] hashedKey = hashPrimaryKey(primaryKey);
+    long keyHigh = OffHeapHashedPrimaryKeyMap.getKeyHigh(hashedKey);
+    long keyLow = OffHeapHashedPrimaryKeyMap.getKeyLow(hashedKey);
+    OffHeapHashedPrimaryKeyMap primaryKeyMap = getPrimaryKeyMap(keyHigh);
+    synchronized (primaryKeyMap) {
+      int slot = primaryKeyMap.getSlot(keyHigh, keyLow);
+      return slot != OffHeapHashedPrimaryKeyMap.INVALID_SLOT
+          && !(decodeDedupTime(primaryKeyMap.getValue2(slot)) < expiryThreshold);
+    }
+  }
+
+  @Override
+  public boolean checkAndPut(PrimaryKey primaryKey, IndexSegment segment, double dedupTime, double expiryThreshold) {
+    byte[] hashedKey = hashPrimaryKey(primaryKey);
+    long keyHigh = OffHeapHashedPrimaryKeyMap.getKeyHigh(hashedKey);
+    long keyLow = OffHeapHashedPrimaryKeyMap.getKeyLow(hashedKey);
+    int segmentId = getOrCreateSegmentId(segment);
+    OffHeapHashedPrimaryKeyMap primaryKeyMap = getPrimaryKeyMap(keyHigh);
+    synchronized (primaryKeyMap) {
+      int slot = primaryKeyMap.getSlot(keyHigh, keyLow);
+      if (slot == OffHeapHashedPrimaryKeyMap.INVALID_SLOT) {
+        primaryKeyMap.put(keyHigh, keyLow, segmentId, encodeDedupTime(dedupTime));
+        return false;
+      }
+      if (!(decodeDedupTime(primaryKeyMap.getValue2(slot)) < expiryThreshold)) {
+        return true;
+      }
+      primaryKeyMap.setValues(slot, segmentId, encodeDedupTime(dedupTime));
+      return false;
+    }
+  }
+
+  @Override
+  public void put(PrimaryKey primaryKey, IndexSegment segment, double dedupTime) {
+    byte[] hashedKey = hashPrimaryKey(primaryKey);
+    long keyHigh = OffHeapHashedPrimaryKeyMap.getKeyHigh(hashedKey);
+    long keyLow = OffHeapHashedPrimaryKeyMap.getKeyLow(hashedKey);
+    int segmentId = getOrCreateSegmentId(segment);
+    OffHeapHashedPrimaryKeyMap primaryKeyMap = getPrimaryKeyMap(keyHigh);
+    synchronized (primaryKeyMap) {
+      primaryKeyMap.put(keyHigh, keyLow, segmentId, encodeDedupTime(dedupTime));
+    }
+  }
+
+  @Override
+  public void remove(PrimaryKey primaryKey, IndexSegment segment) {
+    Integer segmentId = _segmentToIdMap.get(segment);
+    if (segmentId == null) {
+      return;
+    }
+    byte[] hashedKey = hashPrimaryKey(primaryKey);
+    long keyHigh = OffHeapHashedPrimaryKeyMap.getKeyHigh(hashedKey);
+    long keyLow = OffHeapHashedPrimaryKeyMap.getKeyLow(hashedKey);
+    OffHeapHashedPrimaryKeyMap primaryKeyMap = getPrimaryKeyMap(keyHigh);
+    synchronized (primaryKeyMap) {
+      int slot = primaryKeyMap.getSlot(keyHigh, keyLow);
+      if (slot != OffHeapHashedPrimaryKeyMap.INVALID_SLOT && primaryKeyMap.getValue1(slot) == segmentId) {
+        primaryKeyMap.remove(slot);
+      }
+    }
+  }
+
+  @Override
+  public void releaseSegment(IndexSegment segment) {
+    Integer segmentId = _segmentToIdMap.remove(segment);
+    if (segmentId != null) {
+      _idToSegmentMap.remove(segmentId);
+    }
+  }
+
+  @Override
+  public int removeExpired(double expiryThreshold) {
+    int numRemoved = 0;
+    for (OffHeapHashedPrimaryKeyMap primaryKeyMap : _primaryKeyMaps) {
+      synchronized (primaryKeyMap) {
+        numRemoved += primaryKeyMap.removeIf((segmentId, dedupTime) -> decodeDedupTime(dedupTime) < expiryThreshold);
+      }
+    }
+    return numRemoved;
+  }
+
+  /**
+   * Scans up to {@link #MAX_NUM_SLOTS_TO_SCAN_PER_STEP} slots of the stripes, holding the lock of one stripe at a time.
+   * The expired entries not removed yet are still treated as absent by the other methods.
+   */
+  @Override
+  public boolean removeExpiredIncrementally(double expiryThreshold) {
+    int numSlotsToScan = MAX_NUM_SLOTS_TO_SCAN_PER_STEP;
+    while (numSlotsToScan > 0) {
+      OffHeapHashedPrimaryKeyMap primaryKeyMap = _primaryKeyMaps[_removeExpiredStripe];
+      synchronized (primaryKeyMap) {
+        int toSlot = (int) Math.min((long) _removeExpiredSlot + numSlotsToScan, primaryKeyMap.capacity());
+        primaryKeyMap.removeIf((segmentId, dedupTime) -> decodeDedupTime(dedupTime) < expiryThreshold,
+            _removeExpiredSlot, toSlot);
+        numSlotsToScan -= toSlot - _removeExpiredSlot;
+        if (toSlot < primaryKeyMap.capacity()) {
+          _removeExpiredSlot = toSlot;
+          continue;
+        }
+      }
+      _removeExpiredSlot = 0;
+      if (++_removeExpiredStripe == NUM_STRIPES) {
+        _removeExpiredStripe = 0;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Nullable
+  @Override
+  public IndexSegment getSegment(PrimaryKey primaryKey) {
+    byte[] hashedKey = hashPrimaryKey(primaryKey);
+    long keyHigh = OffHeapHashedPrimaryKeyMap.getKeyHigh(hashedKey);
+    long keyLow = OffHeapHashedPrimaryKeyMap.getKeyLow(hashedKey);
+    OffHeapHashedPrimaryKeyMap primaryKeyMap = getPrimaryKeyMap(keyHigh);
+    synchronized (primaryKeyMap) {
+      int slot = primaryKeyMap.getSlot(keyHigh, keyLow);
+      return slot != OffHeapHashedPrimaryKeyMap.INVALID_SLOT ? _idToSegmentMap.get(
+          (int) primaryKeyMap.getValue1(slot)) : null;
+    }
+  }
+
+  @Override
+  public long getNumPrimaryKeys() {
+    long numPrimaryKeys = 0;
+    for (OffHeapHashedPrimaryKeyMap primaryKeyMap : _primaryKeyMaps) {
+      synchronized (primaryKeyMap) {
+        numPrimaryKeys += primaryKeyMap.size();
+      }
+    }
+    return numPrimaryKeys;
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    for (OffHeapHashedPrimaryKeyMap primaryKeyMap : _primaryKeyMaps) {
+      synchronized (primaryKeyMap) {
+        primaryKeyMap.close();
+      }
+    }
+  }
+}
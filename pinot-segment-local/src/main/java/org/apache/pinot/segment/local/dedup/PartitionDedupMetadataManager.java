@@ -19,66 +19,149 @@
 package org.apache.pinot.segment.local.dedup;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.AtomicDouble;
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
 import org.apache.pinot.common.metrics.ServerGauge;
 import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.segment.local.segment.readers.PinotSegmentColumnReader;
-import org.apache.pinot.segment.local.utils.HashUtils;
 import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.datasource.DataSource;
+import org.apache.pinot.spi.config.table.DedupConfig;
 import org.apache.pinot.spi.config.table.HashFunction;
 import org.apache.pinot.spi.data.readers.PrimaryKey;
 import org.apache.pinot.spi.utils.ByteArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
-public class PartitionDedupMetadataManager {
+/**
+ * Manages the dedup metadata (primary keys) of a table partition, which is stored in a {@link DedupKeyStore}.
+ * <p>When the metadata TTL is enabled, the largest seen value of the dedup time column is tracked, and the primary keys
+ * with dedup time older than the largest seen time minus the TTL are treated as expired: records with such primary
+ * keys are no longer considered as duplicate. Each time the largest seen time moves into a new time bucket
+ * (1/{@link #NUM_TTL_BUCKETS} of the TTL), a scan removing the expired primary keys from the store is started, so that
+ * the number of primary keys is bounded by the TTL. The scan is performed incrementally while the records are added
+ * (see {@link DedupKeyStore#removeExpiredIncrementally(double)}). Records within the TTL window are always
+ * deduplicated.
+ */
+public class PartitionDedupMetadataManager implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PartitionDedupMetadataManager.class);
+  @VisibleForTesting
+  static final int NUM_TTL_BUCKETS = 10;
+
   private final String _tableNameWithType;
   private final List<String> _primaryKeyColumns;
   private final int _partitionId;
   private final ServerMetrics _serverMetrics;
-  private final HashFunction _hashFunction;
+  private final String _dedupTimeColumn;
+  private final double _metadataTTL;
+  private final double _ttlBucketSize;
+  private final AtomicDouble _largestSeenDedupTime = new AtomicDouble(Double.NEGATIVE_INFINITY);
+  private long _lastExpiryBucket = Long.MIN_VALUE;
+  private volatile boolean _removingExpiredPrimaryKeys;
 
   @VisibleForTesting
-  final ConcurrentHashMap<Object, IndexSegment> _primaryKeyToSegmentMap = new ConcurrentHashMap<>();
+  final DedupKeyStore _keyStore;
 
   public PartitionDedupMetadataManager(String tableNameWithType, List<String> primaryKeyColumns, int partitionId,
       ServerMetrics serverMetrics, HashFunction hashFunction) {
+    this(tableNameWithType, primaryKeyColumns, partitionId, serverMetrics, hashFunction,
+        DedupConfig.KeyStoreType.ON_HEAP, null, 0);
+  }
+
+  public PartitionDedupMetadataManager(String tableNameWithType, List<String> primaryKeyColumns, int partitionId,
+      ServerMetrics serverMetrics, HashFunction hashFunction, DedupConfig.KeyStoreType keyStoreType,
+      @Nullable String dedupTimeColumn, double metadataTTL) {
+    Preconditions.checkArgument(metadataTTL <= 0 || dedupTimeColumn != null,
+        "Dedup time column must be configured when metadata TTL is enabled for table: %s", tableNameWithType);
     _tableNameWithType = tableNameWithType;
     _primaryKeyColumns = primaryKeyColumns;
     _partitionId = partitionId;
     _serverMetrics = serverMetrics;
-    _hashFunction = hashFunction;
+    _dedupTimeColumn = metadataTTL > 0 ? dedupTimeColumn : null;
+    _metadataTTL = metadataTTL;
+    _ttlBucketSize = metadataTTL / NUM_TTL_BUCKETS;
+    switch (keyStoreType) {
+      case OFF_HEAP:
+        _keyStore = new OffHeapDedupKeyStore(tableNameWithType, partitionId, hashFunction);
+        break;
+      case ON_HEAP:
+        _keyStore = new ConcurrentMapDedupKeyStore(hashFunction);
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported dedup key store type: " + keyStoreType);
+    }
+  }
+
+  /**
+   * Returns the column to read the dedup time from, or {@code null} if the metadata TTL is not enabled.
+   */
+  @Nullable
+  public String getDedupTimeColumn() {
+    return _dedupTimeColumn;
   }
 
   public void addSegment(IndexSegment segment) {
-    // Add all PKs to _primaryKeyToSegmentMap
+    if (_dedupTimeColumn == null) {
+      // Add all PKs to the key store
+      Iterator<PrimaryKey> primaryKeyIterator = getPrimaryKeyIterator(segment);
+      while (primaryKeyIterator.hasNext()) {
+        _keyStore.put(primaryKeyIterator.next(), segment, Double.NaN);
+      }
+    } else {
+      addSegmentWithTTL(segment);
+    }
+    updatePrimaryKeyGauge();
+  }
+
+  /**
+   * Adds the PKs within the TTL window to the key store. Skips the whole segment if all its records are expired based
+   * on the max value of the dedup time column.
+   */
+  private void addSegmentWithTTL(IndexSegment segment) {
+    DataSource dataSource = segment.getDataSource(_dedupTimeColumn);
+    Comparable maxValue = dataSource.getDataSourceMetadata().getMaxValue();
+    if (maxValue instanceof Number) {
+      updateLargestSeenDedupTime(((Number) maxValue).doubleValue());
+      if (((Number) maxValue).doubleValue() < getExpiryThreshold()) {
+        LOGGER.info("Skipping adding segment: {} to dedup metadata for table: {} because all records are expired",
+            segment.getSegmentName(), _tableNameWithType);
+        return;
+      }
+    }
     Iterator<PrimaryKey> primaryKeyIterator = getPrimaryKeyIterator(segment);
-    while (primaryKeyIterator.hasNext()) {
-      PrimaryKey pk = primaryKeyIterator.next();
-      _primaryKeyToSegmentMap.put(HashUtils.hashPrimaryKey(pk, _hashFunction), segment);
+    try (PinotSegmentColumnReader dedupTimeReader = new PinotSegmentColumnReader(segment, _dedupTimeColumn)) {
+      int docId = 0;
+      while (primaryKeyIterator.hasNext()) {
+        PrimaryKey primaryKey = primaryKeyIterator.next();
+        double dedupTime = ((Number) dedupTimeReader.getValue(docId++)).doubleValue();
+        updateLargestSeenDedupTime(dedupTime);
+        if (dedupTime >= getExpiryThreshold()) {
+          _keyStore.put(primaryKey, segment, dedupTime);
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Caught exception while closing the dedup time reader for segment: "
+          + segment.getSegmentName(), e);
     }
-    _serverMetrics.setValueOfPartitionGauge(_tableNameWithType, _partitionId, ServerGauge.DEDUP_PRIMARY_KEYS_COUNT,
-        _primaryKeyToSegmentMap.size());
+    removeExpiredPrimaryKeysIfNeeded();
   }
 
   public void removeSegment(IndexSegment segment) {
     // TODO(saurabh): Explain reload scenario here
     Iterator<PrimaryKey> primaryKeyIterator = getPrimaryKeyIterator(segment);
     while (primaryKeyIterator.hasNext()) {
-      PrimaryKey pk = primaryKeyIterator.next();
-      _primaryKeyToSegmentMap.compute(HashUtils.hashPrimaryKey(pk, _hashFunction), (primaryKey, currentSegment) -> {
-        if (currentSegment == segment) {
-          return null;
-        } else {
-          return currentSegment;
-        }
-      });
+      _keyStore.remove(primaryKeyIterator.next(), segment);
     }
-    _serverMetrics.setValueOfPartitionGauge(_tableNameWithType, _partitionId, ServerGauge.DEDUP_PRIMARY_KEYS_COUNT,
-        _primaryKeyToSegmentMap.size());
+    _keyStore.releaseSegment(segment);
+    updatePrimaryKeyGauge();
   }
 
   @VisibleForTesting
@@ -113,13 +196,92 @@ public class PartitionDedupMetadataManager {
     };
   }
 
+  /**
+   * Returns whether the record is a duplicate, and adds the primary key to the metadata if not. Can only be used when
+   * the metadata TTL is not enabled.
+   */
   public boolean checkRecordPresentOrUpdate(PrimaryKey pk, IndexSegment indexSegment) {
-    boolean present =
-        _primaryKeyToSegmentMap.putIfAbsent(HashUtils.hashPrimaryKey(pk, _hashFunction), indexSegment) != null;
+    Preconditions.checkState(_dedupTimeColumn == null, "Dedup time is required when metadata TTL is enabled");
+    return checkRecordPresentOrUpdate(pk, Double.NaN, indexSegment);
+  }
+
+  /**
+   * Returns whether the record is a duplicate, and adds the primary key to the metadata if not. The dedup time is
+   * ignored when the metadata TTL is not enabled.
+   * <p>When the metadata TTL is enabled, the record is a duplicate only if the primary key exists with a dedup time
+   * within the TTL window. A record older than the TTL window is not a duplicate unless the primary key is within the
+   * window, and is not added to the metadata.
+   */
+  public boolean checkRecordPresentOrUpdate(PrimaryKey pk, double dedupTime, IndexSegment indexSegment) {
+    if (_dedupTimeColumn == null) {
+      boolean present = _keyStore.checkAndPut(pk, indexSegment, Double.NaN, Double.NEGATIVE_INFINITY);
+      if (!present) {
+        updatePrimaryKeyGauge();
+      }
+      return present;
+    }
+    updateLargestSeenDedupTime(dedupTime);
+    double expiryThreshold = getExpiryThreshold();
+    boolean present;
+    if (dedupTime < expiryThreshold) {
+      present = _keyStore.contains(pk, expiryThreshold);
+    } else {
+      present = _keyStore.checkAndPut(pk, indexSegment, dedupTime, expiryThreshold);
+    }
     if (!present) {
-      _serverMetrics.setValueOfPartitionGauge(_tableNameWithType, _partitionId, ServerGauge.DEDUP_PRIMARY_KEYS_COUNT,
-          _primaryKeyToSegmentMap.size());
+      removeExpiredPrimaryKeysIfNeeded();
+      updatePrimaryKeyGauge();
     }
     return present;
   }
+
+  private void updateLargestSeenDedupTime(double dedupTime) {
+    double largestSeenDedupTime = _largestSeenDedupTime.get();
+    while (dedupTime > largestSeenDedupTime && !_largestSeenDedupTime.compareAndSet(largestSeenDedupTime,
+        dedupTime)) {
+      largestSeenDedupTime = _largestSeenDedupTime.get();
+    }
+  }
+
+  @VisibleForTesting
+  double getExpiryThreshold() {
+    return _dedupTimeColumn != null ? _largestSeenDedupTime.get() - _metadataTTL : Double.NEGATIVE_INFINITY;
+  }
+
+  /**
+   * Starts removing the expired primary keys when the largest seen dedup time moves into a new time bucket, and
+   * continues the removal in progress.
+   */
+  private void removeExpiredPrimaryKeysIfNeeded() {
+    long expiryBucket = (long) Math.floor(_largestSeenDedupTime.get() / _ttlBucketSize);
+    if (expiryBucket <= _lastExpiryBucket && !_removingExpiredPrimaryKeys) {
+      return;
+    }
+    synchronized (this) {
+      if (expiryBucket > _lastExpiryBucket) {
+        _lastExpiryBucket = expiryBucket;
+        _removingExpiredPrimaryKeys = true;
+      }
+      if (!_removingExpiredPrimaryKeys) {
+        return;
+      }
+      double expiryThreshold = getExpiryThreshold();
+      if (_keyStore.removeExpiredIncrementally(expiryThreshold)) {
+        _removingExpiredPrimaryKeys = false;
+        LOGGER.info("Removed expired primary keys with dedup time smaller than: {} for table: {}, partition: {}, "
+            + "{} primary keys left", expiryThreshold, _tableNameWithType, _partitionId, _keyStore.getNumPrimaryKeys());
+      }
+    }
+  }
+
+  private void updatePrimaryKeyGauge() {
+    _serverMetrics.setValueOfPartitionGauge(_tableNameWithType, _partitionId, ServerGauge.DEDUP_PRIMARY_KEYS_COUNT,
+        _keyStore.getNumPrimaryKeys());
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    _keyStore.close();
+  }
 }
@@ -18,31 +18,57 @@
  */
 package org.apache.pinot.segment.local.dedup;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
 import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.spi.config.table.DedupConfig;
 import org.apache.pinot.spi.config.table.HashFunction;
 
 
-public class TableDedupMetadataManager {
+public class TableDedupMetadataManager implements Closeable {
   private final Map<Integer, PartitionDedupMetadataManager> _partitionMetadataManagerMap = new ConcurrentHashMap<>();
   private final String _tableNameWithType;
   private final List<String> _primaryKeyColumns;
   private final ServerMetrics _serverMetrics;
   private final HashFunction _hashFunction;
+  private final DedupConfig.KeyStoreType _keyStoreType;
+  private final String _dedupTimeColumn;
+  private final double _metadataTTL;
 
   public TableDedupMetadataManager(String tableNameWithType, List<String> primaryKeyColumns,
       ServerMetrics serverMetrics, HashFunction hashFunction) {
+    this(tableNameWithType, primaryKeyColumns, serverMetrics, new DedupConfig(true, hashFunction), null);
+  }
+
+  /**
+   * @param timeColumn the table time column, used as the dedup time column when not configured in the dedup config
+   */
+  public TableDedupMetadataManager(String tableNameWithType, List<String> primaryKeyColumns,
+      ServerMetrics serverMetrics, DedupConfig dedupConfig, @Nullable String timeColumn) {
     _tableNameWithType = tableNameWithType;
     _primaryKeyColumns = primaryKeyColumns;
     _serverMetrics = serverMetrics;
-    _hashFunction = hashFunction;
+    _hashFunction = dedupConfig.getHashFunction();
+    _keyStoreType = dedupConfig.getKeyStoreType();
+    _dedupTimeColumn = dedupConfig.getDedupTimeColumn() != null ? dedupConfig.getDedupTimeColumn() : timeColumn;
+    _metadataTTL = dedupConfig.getMetadataTTL();
   }
 
   public PartitionDedupMetadataManager getOrCreatePartitionManager(int partitionId) {
     return _partitionMetadataManagerMap.computeIfAbsent(partitionId,
         k -> new PartitionDedupMetadataManager(_tableNameWithType, _primaryKeyColumns, k, _serverMetrics,
-            _hashFunction));
+            _hashFunction, _keyStoreType, _dedupTimeColumn, _metadataTTL));
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    for (PartitionDedupMetadataManager metadataManager : _partitionMetadataManagerMap.values()) {
+      metadataManager.close();
+    }
   }
 }
@@ -167,6 +167,7 @@ public class MutableSegmentImpl implements MutableSegment {
   private final List<String> _upsertComparisonColumns;
   private final PartitionUpsertMetadataManager _partitionUpsertMetadataManager;
   private final PartitionDedupMetadataManager _partitionDedupMetadataManager;
+  private final String _dedupTimeColumn;
   // The valid doc ids are maintained locally instead of in the upsert metadata manager because:
   // 1. There is only one consuming segment per partition, the committed segments do not need to modify the valid doc
   //    ids for the consuming segment.
@@ -404,6 +405,8 @@ public class MutableSegmentImpl implements MutableSegment {
     // init upsert-related data structure
     _upsertMode = config.getUpsertMode();
     _partitionDedupMetadataManager = config.getPartitionDedupMetadataManager();
+    _dedupTimeColumn =
+        _partitionDedupMetadataManager != null ? _partitionDedupMetadataManager.getDedupTimeColumn() : null;
 
     if (isUpsertEnabled()) {
       Preconditions.checkState(!isAggregateMetricsEnabled(),
@@ -504,7 +507,7 @@ public class MutableSegmentImpl implements MutableSegment {
     }
 
     if (isDedupEnabled() && _partitionDedupMetadataManager.checkRecordPresentOrUpdate(recordInfo.getPrimaryKey(),
-        this)) {
+        getDedupTime(row), this)) {
       if (_serverMetrics != null) {
         _serverMetrics.addMeteredTableValue(_realtimeTableName, ServerMeter.REALTIME_DEDUP_DROPPED, 1);
       }
@@ -549,6 +552,467 @@ public class MutableSegmentImpl implements MutableSegment {
     return canTakeMore;
   }
 
+  /**
+   * Indexes a batch of records column by column. For each column, the values are added to the dictionary and the
+   * forward index in bulk, and the document ids are added to the inverted index in one batch, which amortizes the per
+   * record overhead of looking up the columns and the indexes. The records become queryable all together once all the
+   * indexes are updated.
+   * <p>If an exception is thrown, none of the records is indexed, and the records can be indexed again (e.g. one by
+   * one): the values of all the columns are validated before updating any index, because some indexes assign the
+   * document ids in the order of the added values (e.g. var-length raw forward index, text, json and H3 index), and the
+   * indexing errors of the secondary indexes are recorded without failing the batch.
+   * <p>NOTE: The records are indexed one by one when upsert, dedup or metrics aggregation is enabled because they
+   * depend on the previously indexed records, or when the batch does not fit in the segment.
+   */
+  @Override
+  public boolean index(List<GenericRow> rows, @Nullable RowMetadata rowMetadata)
+      throws IOException {
+    int numRows = rows.size();
+    int numDocsIndexed = _numDocsIndexed;
+    if (numRows <= 1 || numDocsIndexed + numRows > _capacity || isUpsertEnabled() || isDedupEnabled()
+        || isAggregateMetricsEnabled()) {
+      return MutableSegment.super.index(rows, rowMetadata);
+    }
+
+    try {
+      // Collect and validate the values of all the columns first, which throws exception on invalid values
+      for (Map.Entry<String, IndexContainer> entry : _indexContainerMap.entrySet()) {
+        collectColumnValues(entry.getKey(), entry.getValue(), rows);
+      }
+      // Then update dictionary and forward index, and the partitions and min/max values
+      for (Map.Entry<String, IndexContainer> entry : _indexContainerMap.entrySet()) {
+        addColumnValues(entry.getKey(), entry.getValue(), numDocsIndexed);
+      }
+      for (Map.Entry<String, IndexContainer> entry : _indexContainerMap.entrySet()) {
+        updatePartitionsAndMinMaxValue(entry.getKey(), entry.getValue());
+      }
+      // Then update the values info and the other indexes, where the indexing errors are recorded without failing the
+      // batch so that each record is added exactly once
+      for (Map.Entry<String, IndexContainer> entry : _indexContainerMap.entrySet()) {
+        updateColumnIndexes(entry.getKey(), entry.getValue(), rows, numDocsIndexed);
+      }
+    } finally {
+      for (IndexContainer indexContainer : _indexContainerMap.values()) {
+        indexContainer._batchValues = null;
+        indexContainer._batchDictIds = null;
+        indexContainer._batchMVDictIds = null;
+      }
+    }
+
+    // Update number of documents indexed at last to make the records queryable
+    numDocsIndexed += numRows;
+    _numDocsIndexed = numDocsIndexed;
+
+    // Update last indexed time and latest ingestion time
+    _lastIndexedTimeMs = System.currentTimeMillis();
+    if (rowMetadata != null) {
+      _latestIngestionTimeMs = Math.max(_latestIngestionTimeMs, rowMetadata.getRecordIngestionTimeMs());
+    }
+
+    return numDocsIndexed <= _capacity;
+  }
+
+  /**
+   * Collects the values of the column for a batch of records into the index container, and validates that the values
+   * match the stored type of the column so that they can be added to the indexes without failure.
+   */
+  private void collectColumnValues(String column, IndexContainer indexContainer, List<GenericRow> rows) {
+    int numRows = rows.size();
+    Object[] values = new Object[numRows];
+    FieldSpec fieldSpec = indexContainer._fieldSpec;
+    Class<?> valueClass = getValueClass(fieldSpec.getDataType().getStoredType());
+    for (int i = 0; i < numRows; i++) {
+      Object value = rows.get(i).getValue(column);
+      if (value != null && valueClass != null) {
+        if (fieldSpec.isSingleValueField()) {
+          Preconditions.checkArgument(valueClass.isInstance(value), "Invalid value: %s for column: %s", value, column);
+        } else {
+          Preconditions.checkArgument(value instanceof Object[], "Invalid value: %s for MV column: %s", value, column);
+          for (Object element : (Object[]) value) {
+            Preconditions.checkArgument(valueClass.isInstance(element), "Invalid value: %s for MV column: %s", element,
+                column);
+          }
+        }
+      }
+      values[i] = value;
+    }
+    indexContainer._batchValues = values;
+  }
+
+  @Nullable
+  private static Class<?> getValueClass(DataType storedType) {
+    switch (storedType) {
+      case INT:
+        return Integer.class;
+      case LONG:
+        return Long.class;
+      case FLOAT:
+        return Float.class;
+      case DOUBLE:
+        return Double.class;
+      case BIG_DECIMAL:
+        return BigDecimal.class;
+      case STRING:
+        return String.class;
+      case BYTES:
+        return byte[].class;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Adds the values of the column for a batch of records to the dictionary and the forward index. The dictionary ids
+   * are kept in the index container for {@link #updateColumnIndexes}.
+   */
+  private void addColumnValues(String column, IndexContainer indexContainer, int startDocId) {
+    Object[] values = indexContainer._batchValues;
+    int numRows = values.length;
+    boolean hasNullValue = false;
+    for (Object value : values) {
+      if (value == null) {
+        hasNullValue = true;
+        break;
+      }
+    }
+
+    FieldSpec fieldSpec = indexContainer._fieldSpec;
+    DataType dataType = fieldSpec.getDataType();
+    MutableForwardIndex forwardIndex = indexContainer._forwardIndex;
+    MutableDictionary dictionary = indexContainer._dictionary;
+    if (dictionary != null) {
+      if (fieldSpec.isSingleValueField()) {
+        int[] dictIds;
+        if (!hasNullValue) {
+          dictIds = dictionary.index(values);
+        } else {
+          dictIds = new int[numRows];
+          for (int i = 0; i < numRows; i++) {
+            if (values[i] != null) {
+              dictIds[i] = dictionary.index(values[i]);
+            } else {
+              recordIndexingError("DICTIONARY");
+            }
+          }
+        }
+        for (int i = 0; i < numRows; i++) {
+          if (values[i] != null) {
+            forwardIndex.setDictId(startDocId + i, dictIds[i]);
+          }
+        }
+        indexContainer._batchDictIds = dictIds;
+      } else {
+        int[][] dictIdsArray = new int[numRows][];
+        for (int i = 0; i < numRows; i++) {
+          if (values[i] != null) {
+            int[] dictIds = dictionary.index((Object[]) values[i]);
+            forwardIndex.setDictIdMV(startDocId + i, dictIds);
+            dictIdsArray[i] = dictIds;
+          } else {
+            recordIndexingError("DICTIONARY");
+          }
+        }
+        indexContainer._batchMVDictIds = dictIdsArray;
+      }
+
+      // Update min/max value from dictionary
+      indexContainer._minValue = dictionary.getMinVal();
+      indexContainer._maxValue = dictionary.getMaxVal();
+      return;
+    }
+
+    if (fieldSpec.isSingleValueField()) {
+      // Single-value column with raw index
+      switch (dataType.getStoredType()) {
+        case INT:
+          for (int i = 0; i < numRows; i++) {
+            if (values[i] != null) {
+              forwardIndex.setInt(startDocId + i, (Integer) values[i]);
+            }
+          }
+          break;
+        case LONG:
+          for (int i = 0; i < numRows; i++) {
+            if (values[i] != null) {
+              forwardIndex.setLong(startDocId + i, (Long) values[i]);
+            }
+          }
+          break;
+        case FLOAT:
+          for (int i = 0; i < numRows; i++) {
+            if (values[i] != null) {
+              forwardIndex.setFloat(startDocId + i, (Float) values[i]);
+            }
+          }
+          break;
+        case DOUBLE:
+          for (int i = 0; i < numRows; i++) {
+            if (values[i] != null) {
+              forwardIndex.setDouble(startDocId + i, (Double) values[i]);
+            }
+          }
+          break;
+        case BIG_DECIMAL:
+          for (int i = 0; i < numRows; i++) {
+            if (values[i] != null) {
+              forwardIndex.setBigDecimal(startDocId + i, (BigDecimal) values[i]);
+            }
+          }
+          break;
+        case STRING:
+          for (int i = 0; i < numRows; i++) {
+            if (values[i] != null) {
+              forwardIndex.setString(startDocId + i, (String) values[i]);
+            }
+          }
+          break;
+        case BYTES:
+          for (int i = 0; i < numRows; i++) {
+            if (values[i] != null) {
+              forwardIndex.setBytes(startDocId + i, (byte[]) values[i]);
+            }
+          }
+          break;
+        default:
+          throw new UnsupportedOperationException(
+              "Unsupported data type: " + dataType + " for no-dictionary column: " + column);
+      }
+    } else {
+      // Raw MV columns
+      for (int i = 0; i < numRows; i++) {
+        if (values[i] == null) {
+          continue;
+        }
+        int docId = startDocId + i;
+        Object[] mvValues = (Object[]) values[i];
+        int numValues = mvValues.length;
+        switch (dataType.getStoredType()) {
+          case INT:
+            int[] intValues = new int[numValues];
+            for (int j = 0; j < numValues; j++) {
+              intValues[j] = (Integer) mvValues[j];
+            }
+            forwardIndex.setIntMV(docId, intValues);
+            break;
+          case LONG:
+            long[] longValues = new long[numValues];
+            for (int j = 0; j < numValues; j++) {
+              longValues[j] = (Long) mvValues[j];
+            }
+            forwardIndex.setLongMV(docId, longValues);
+            break;
+          case FLOAT:
+            float[] floatValues = new float[numValues];
+            for (int j = 0; j < numValues; j++) {
+              floatValues[j] = (Float) mvValues[j];
+            }
+            forwardIndex.setFloatMV(docId, floatValues);
+            break;
+          case DOUBLE:
+            double[] doubleValues = new double[numValues];
+            for (int j = 0; j < numValues; j++) {
+              doubleValues[j] = (Double) mvValues[j];
+            }
+            forwardIndex.setDoubleMV(docId, doubleValues);
+            break;
+          default:
+            throw new UnsupportedOperationException(
+                "Unsupported data type: " + dataType + " for MV no-dictionary column: " + column);
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks the partitions of the single-value partition column, and updates the min/max value of the single-value raw
+   * column for a batch of records, after the values are added with {@link #addColumnValues}.
+   */
+  private void updatePartitionsAndMinMaxValue(String column, IndexContainer indexContainer) {
+    FieldSpec fieldSpec = indexContainer._fieldSpec;
+    if (!fieldSpec.isSingleValueField()) {
+      return;
+    }
+    Object[] values = indexContainer._batchValues;
+    DataType dataType = fieldSpec.getDataType();
+
+    // Check partitions
+    if (column.equals(_partitionColumn)) {
+      for (Object value : values) {
+        if (value == null) {
+          continue;
+        }
+        Object valueToPartition = (dataType == BYTES) ? new ByteArray((byte[]) value) : value;
+        int partition = _partitionFunction.getPartition(valueToPartition);
+        if (indexContainer._partitions.add(partition)) {
+          _logger.warn("Found new partition: {} from partition column: {}, value: {}", partition, column,
+              valueToPartition);
+          if (_serverMetrics != null) {
+            _serverMetrics.addMeteredTableValue(_realtimeTableName, ServerMeter.REALTIME_PARTITION_MISMATCH, 1);
+          }
+        }
+      }
+    }
+
+    // Update min/max value from raw value
+    if (indexContainer._batchDictIds == null) {
+      Comparable minValue = indexContainer._minValue;
+      Comparable maxValue = indexContainer._maxValue;
+      for (Object value : values) {
+        if (value == null) {
+          continue;
+        }
+        Comparable comparable = (dataType == BYTES) ? new ByteArray((byte[]) value) : (Comparable) value;
+        if (minValue == null) {
+          minValue = comparable;
+          maxValue = comparable;
+        } else {
+          if (comparable.compareTo(minValue) < 0) {
+            minValue = comparable;
+          }
+          if (comparable.compareTo(maxValue) > 0) {
+            maxValue = comparable;
+          }
+        }
+      }
+      indexContainer._minValue = minValue;
+      indexContainer._maxValue = maxValue;
+    }
+  }
+
+  /**
+   * Updates the null value vector, the values info and the secondary indexes of the column for a batch of records,
+   * after the values are validated by {@link #addColumnValues} and {@link #updatePartitionsAndMinMaxValue}.
+   */
+  private void updateColumnIndexes(String column, IndexContainer indexContainer, List<GenericRow> rows,
+      int startDocId) {
+    int numRows = rows.size();
+    Object[] values = indexContainer._batchValues;
+
+    // Update the null value vector even if a null value is somehow produced
+    if (_nullHandlingEnabled) {
+      for (int i = 0; i < numRows; i++) {
+        if (rows.get(i).isNullValue(column)) {
+          indexContainer._nullValueVector.setNull(startDocId + i);
+        }
+      }
+    }
+
+    FieldSpec fieldSpec = indexContainer._fieldSpec;
+    DataType dataType = fieldSpec.getDataType();
+    MutableInvertedIndex invertedIndex = indexContainer._invertedIndex;
+
+    if (!fieldSpec.isSingleValueField()) {
+      // Multi-value column
+      int[][] dictIdsArray = indexContainer._batchMVDictIds;
+      int numInvertedEntries = 0;
+      for (int i = 0; i < numRows; i++) {
+        Object value = values[i];
+        if (value == null) {
+          continue;
+        }
+        indexContainer._valuesInfo.updateVarByteMVMaxRowLengthInBytes(value, dataType.getStoredType());
+        int numValues = dictIdsArray != null ? dictIdsArray[i].length : ((Object[]) value).length;
+        indexContainer._valuesInfo.updateMVNumValues(numValues);
+        numInvertedEntries += numValues;
+      }
+
+      // Update inverted index
+      if (invertedIndex != null && dictIdsArray != null) {
+        int[] dictIds = new int[numInvertedEntries];
+        int[] docIds = new int[numInvertedEntries];
+        int index = 0;
+        for (int i = 0; i < numRows; i++) {
+          if (dictIdsArray[i] != null) {
+            for (int dictId : dictIdsArray[i]) {
+              dictIds[index] = dictId;
+              docIds[index++] = startDocId + i;
+            }
+          }
+        }
+        try {
+          invertedIndex.add(dictIds, docIds, index);
+        } catch (Exception e) {
+          indexContainer._invertedIndexError = true;
+          recordIndexingError(FieldConfig.IndexType.INVERTED, e);
+        }
+      }
+      return;
+    }
+
+    // Single-value column
+    int numValues = 0;
+    for (int i = 0; i < numRows; i++) {
+      if (values[i] != null) {
+        numValues++;
+      }
+    }
+    indexContainer._valuesInfo.updateSVNumValues(numValues);
+
+    int[] batchDictIds = indexContainer._batchDictIds;
+    if (batchDictIds != null) {
+      // Update inverted index
+      if (invertedIndex != null) {
+        int[] dictIds = new int[numValues];
+        int[] docIds = new int[numValues];
+        int index = 0;
+        for (int i = 0; i < numRows; i++) {
+          if (values[i] != null) {
+            dictIds[index] = batchDictIds[i];
+            docIds[index++] = startDocId + i;
+          }
+        }
+        try {
+          invertedIndex.add(dictIds, docIds, index);
+        } catch (Exception e) {
+          indexContainer._invertedIndexError = true;
+          recordIndexingError(FieldConfig.IndexType.INVERTED, e);
+        }
+      }
+    }
+
+    // Update text index
+    MutableTextIndex textIndex = indexContainer._textIndex;
+    if (textIndex != null) {
+      for (Object value : values) {
+        if (value != null) {
+          try {
+            textIndex.add((String) value);
+          } catch (Exception e) {
+            recordIndexingError(FieldConfig.IndexType.TEXT, e);
+          }
+        }
+      }
+    }
+
+    // Update json index
+    MutableJsonIndex jsonIndex = indexContainer._jsonIndex;
+    if (jsonIndex != null) {
+      for (Object value : values) {
+        if (value != null) {
+          try {
+            jsonIndex.add((String) value);
+          } catch (Exception e) {
+            recordIndexingError(FieldConfig.IndexType.JSON, e);
+          }
+        }
+      }
+    }
+
+    // Update H3 index
+    MutableH3Index h3Index = indexContainer._h3Index;
+    if (h3Index != null) {
+      for (Object value : values) {
+        if (value != null) {
+          try {
+            h3Index.add(GeometrySerializer.deserialize((byte[]) value));
+          } catch (Exception e) {
+            recordIndexingError(FieldConfig.IndexType.H3, e);
+          }
+        }
+      }
+    }
+  }
+
   private boolean isUpsertEnabled() {
     return _upsertMode != UpsertConfig.Mode.NONE;
   }
@@ -557,6 +1021,13 @@ public class MutableSegmentImpl implements MutableSegment {
     return _partitionDedupMetadataManager != null;
   }
 
+  /**
+   * Returns the dedup time of the record, or {@code Double.NaN} if the dedup metadata TTL is not enabled.
+   */
+  private double getDedupTime(GenericRow row) {
+    return _dedupTimeColumn != null ? ((Number) row.getValue(_dedupTimeColumn)).doubleValue() : Double.NaN;
+  }
+
   private RecordInfo getRecordInfo(GenericRow row, int docId) {
     PrimaryKey primaryKey = row.getPrimaryKey(_schema.getPrimaryKeyColumns());
 
@@ -712,6 +1183,7 @@ public class MutableSegmentImpl implements MutableSegment {
             try {
               invertedIndex.add(dictId, docId);
             } catch (Exception e) {
+              indexContainer._invertedIndexError = true;
               recordIndexingError(FieldConfig.IndexType.INVERTED, e);
             }
           }
@@ -820,6 +1292,7 @@ public class MutableSegmentImpl implements MutableSegment {
               try {
                 invertedIndex.add(dictId, docId);
               } catch (Exception e) {
+                indexContainer._invertedIndexError = true;
                 recordIndexingError(FieldConfig.IndexType.INVERTED, e);
               }
             }
@@ -1117,6 +1590,15 @@ public class MutableSegmentImpl implements MutableSegment {
     }
   }
 
+  /**
+   * Returns whether some values of the given column failed to be added to the inverted index, in which case the
+   * inverted index is incomplete and should not be converted into the immutable inverted index.
+   */
+  public boolean hasInvertedIndexError(String column) {
+    IndexContainer indexContainer = _indexContainerMap.get(column);
+    return indexContainer != null && indexContainer._invertedIndexError;
+  }
+
   /**
    * Returns the docIds to use for iteration when the data is sorted by the given column.
    * <p>Called only by realtime record reader.
@@ -1288,6 +1770,10 @@ public class MutableSegmentImpl implements MutableSegment {
       _numValues++;
     }
 
+    void updateSVNumValues(int numValues) {
+      _numValues += numValues;
+    }
+
     void updateMVNumValues(int numValuesInMVEntry) {
       _numValues += numValuesInMVEntry;
       _maxNumValuesPerMVEntry = Math.max(_maxNumValuesPerMVEntry, numValuesInMVEntry);
@@ -1405,12 +1891,19 @@ public class MutableSegmentImpl implements MutableSegment {
 
     volatile Comparable _minValue;
     volatile Comparable _maxValue;
+    // Whether some values failed to be added to the inverted index
+    volatile boolean _invertedIndexError;
 
 
     // Hold the dictionary id for the latest record
     int _dictId = Integer.MIN_VALUE;
     int[] _dictIds;
 
+    // Hold the values and the dictionary ids for the batch of records being indexed
+    Object[] _batchValues;
+    int[] _batchDictIds;
+    int[][] _batchMVDictIds;
+
     IndexContainer(FieldSpec fieldSpec, @Nullable PartitionFunction partitionFunction,
         @Nullable Set<Integer> partitions, ValuesInfo valuesInfo, MutableForwardIndex forwardIndex,
         @Nullable MutableDictionary dictionary, @Nullable MutableInvertedIndex invertedIndex,
@@ -37,6 +37,7 @@ import org.apache.pinot.segment.spi.index.IndexType;
 import org.apache.pinot.segment.spi.index.StandardIndexes;
 import org.apache.pinot.spi.config.table.ColumnPartitionConfig;
 import org.apache.pinot.spi.config.table.IndexConfig;
+import org.apache.pinot.spi.config.table.IndexingConfig;
 import org.apache.pinot.spi.config.table.SegmentPartitionConfig;
 import org.apache.pinot.spi.config.table.SegmentZKPropsConfig;
 import org.apache.pinot.spi.config.table.TableConfig;
@@ -118,7 +119,12 @@ public class RealtimeSegmentConverter {
       RealtimeSegmentSegmentCreationDataSource dataSource =
           new RealtimeSegmentSegmentCreationDataSource(_realtimeSegmentImpl, recordReader);
       driver.init(genConfig, dataSource, TransformPipeline.getPassThroughPipeline());
-      driver.build();
+      IndexingConfig indexingConfig = _tableConfig.getIndexingConfig();
+      if (indexingConfig != null && indexingConfig.isColumnMajorSegmentBuilderEnabled() && driver.canBuildByColumn()) {
+        driver.buildByColumn(_realtimeSegmentImpl, sortedDocIds, indexingConfig.getSegmentBuildParallelism());
+      } else {
+        driver.build();
+      }
     }
 
     if (segmentPartitionConfig != null) {
@@ -23,9 +23,11 @@ import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
+import org.apache.pinot.segment.local.segment.creator.impl.stats.EquiDepthHistogramBuilder;
 import org.apache.pinot.segment.spi.creator.ColumnStatistics;
 import org.apache.pinot.segment.spi.datasource.DataSource;
 import org.apache.pinot.segment.spi.datasource.DataSourceMetadata;
+import org.apache.pinot.segment.spi.index.metadata.EquiDepthHistogram;
 import org.apache.pinot.segment.spi.index.mutable.MutableForwardIndex;
 import org.apache.pinot.segment.spi.index.reader.Dictionary;
 import org.apache.pinot.segment.spi.partition.PartitionFunction;
@@ -213,4 +215,33 @@ public class MutableColumnStatistics implements ColumnStatistics {
   public Set<Integer> getPartitions() {
     return _dataSource.getDataSourceMetadata().getPartitions();
   }
+
+  @Nullable
+  @Override
+  public EquiDepthHistogram getHistogram() {
+    if (!_dictionary.getValueType().isNumeric() || _dictionary.getValueType() == DataType.BIG_DECIMAL) {
+      return null;
+    }
+    MutableForwardIndex mutableForwardIndex = (MutableForwardIndex) _dataSource.getForwardIndex();
+    if (mutableForwardIndex == null) {
+      return null;
+    }
+    EquiDepthHistogramBuilder histogramBuilder = new EquiDepthHistogramBuilder();
+    DataSourceMetadata dataSourceMetadata = _dataSource.getDataSourceMetadata();
+    int numDocs = dataSourceMetadata.getNumDocs();
+    if (dataSourceMetadata.isSingleValue()) {
+      for (int i = 0; i < numDocs; i++) {
+        histogramBuilder.add(_dictionary.getDoubleValue(mutableForwardIndex.getDictId(i)));
+      }
+    } else {
+      int[] dictIdBuffer = new int[dataSourceMetadata.getMaxNumValuesPerMVEntry()];
+      for (int i = 0; i < numDocs; i++) {
+        int numValues = mutableForwardIndex.getDictIdMV(i, dictIdBuffer);
+        for (int j = 0; j < numValues; j++) {
+          histogramBuilder.add(_dictionary.getDoubleValue(dictIdBuffer[j]));
+        }
+      }
+    }
+    return histogramBuilder.build();
+  }
 }
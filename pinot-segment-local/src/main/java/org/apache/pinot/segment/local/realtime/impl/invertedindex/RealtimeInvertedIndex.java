@@ -19,6 +19,7 @@
 package org.apache.pinot.segment.local.realtime.impl.invertedindex;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.pinot.segment.spi.index.mutable.MutableInvertedIndex;
@@ -61,6 +62,47 @@ public class RealtimeInvertedIndex implements MutableInvertedIndex {
     }
   }
 
+  /**
+   * Adds a batch of document ids to the bitmaps of the given dictionary ids. The entries are grouped by dictionary id
+   * so that each bitmap is only locked once for the batch.
+   */
+  @Override
+  public void add(int[] dictIds, int[] docIds, int length) {
+    // Sort the entries by dictionary id then document id, where both ids are non-negative
+    long[] entries = new long[length];
+    for (int i = 0; i < length; i++) {
+      entries[i] = ((long) dictIds[i] << 32) | docIds[i];
+    }
+    Arrays.sort(entries);
+    int[] bitmapDocIds = new int[length];
+    int index = 0;
+    while (index < length) {
+      int dictId = (int) (entries[index] >>> 32);
+      int numDocIds = 0;
+      while (index < length && (int) (entries[index] >>> 32) == dictId) {
+        bitmapDocIds[numDocIds++] = (int) entries[index++];
+      }
+      if (dictId < _bitmaps.size()) {
+        _bitmaps.get(dictId).add(bitmapDocIds, 0, numDocIds);
+      } else {
+        // Bitmap for the dictionary id does not exist, add a new bitmap into the list. The dictionary ids are added in
+        // ascending order, so there should be no gap unless the dictionary id of some previous records failed to be
+        // added, in which case empty bitmaps are added for them.
+        ThreadSafeMutableRoaringBitmap bitmap = new ThreadSafeMutableRoaringBitmap();
+        bitmap.add(bitmapDocIds, 0, numDocIds);
+        try {
+          _writeLock.lock();
+          while (_bitmaps.size() < dictId) {
+            _bitmaps.add(new ThreadSafeMutableRoaringBitmap());
+          }
+          _bitmaps.add(bitmap);
+        } finally {
+          _writeLock.unlock();
+        }
+      }
+    }
+  }
+
   @Override
   public MutableRoaringBitmap getDocIds(int dictId) {
     ThreadSafeMutableRoaringBitmap bitmap;
@@ -24,6 +24,8 @@ import com.google.common.collect.Maps;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,10 +36,15 @@ import javax.annotation.Nullable;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.pinot.common.utils.FileUtils;
+import org.apache.pinot.segment.local.indexsegment.mutable.MutableSegmentImpl;
 import org.apache.pinot.segment.local.io.util.PinotDataBitSet;
+import org.apache.pinot.segment.local.segment.creator.impl.inv.RemappedBitmapInvertedIndexCreator;
 import org.apache.pinot.segment.local.segment.creator.impl.nullvalue.NullValueVectorCreator;
 import org.apache.pinot.segment.local.segment.index.dictionary.DictionaryIndexPlugin;
 import org.apache.pinot.segment.local.segment.index.forward.ForwardIndexType;
+import org.apache.pinot.segment.local.segment.readers.PinotSegmentColumnReader;
+import org.apache.pinot.segment.local.utils.NdvSketchUtils;
+import org.apache.pinot.segment.spi.IndexSegment;
 import org.apache.pinot.segment.spi.V1Constants;
 import org.apache.pinot.segment.spi.compression.ChunkCompressionType;
 import org.apache.pinot.segment.spi.creator.ColumnIndexCreationInfo;
@@ -52,8 +59,13 @@ import org.apache.pinot.segment.spi.index.IndexService;
 import org.apache.pinot.segment.spi.index.IndexType;
 import org.apache.pinot.segment.spi.index.StandardIndexes;
 import org.apache.pinot.segment.spi.index.TextIndexConfig;
+import org.apache.pinot.segment.spi.index.creator.DictionaryBasedInvertedIndexCreator;
 import org.apache.pinot.segment.spi.index.creator.ForwardIndexCreator;
 import org.apache.pinot.segment.spi.index.creator.SegmentIndexCreationInfo;
+import org.apache.pinot.segment.spi.index.metadata.EquiDepthHistogram;
+import org.apache.pinot.segment.spi.index.mutable.MutableInvertedIndex;
+import org.apache.pinot.segment.spi.index.reader.Dictionary;
+import org.apache.pinot.segment.spi.index.reader.InvertedIndexReader;
 import org.apache.pinot.segment.spi.partition.PartitionFunction;
 import org.apache.pinot.spi.config.table.IndexConfig;
 import org.apache.pinot.spi.config.table.SegmentZKPropsConfig;
@@ -388,6 +400,101 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     }
   }
 
+  /**
+   * Adds all the values of a column to the index, reading them from the given segment. This is an alternative to
+   * {@link #indexRow(GenericRow)} where the segment is indexed column by column instead of row by row. Different
+   * columns can be indexed concurrently, but the same column should not be indexed more than once.
+   *
+   * @param columnName The name of the column to index
+   * @param sortedDocIds The docIds of the segment in the order to index, or {@code null} to index in docId order
+   * @param segment The segment to read the values from
+   */
+  public void indexColumn(String columnName, @Nullable int[] sortedDocIds, IndexSegment segment)
+      throws IOException {
+    Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex = _creatorsByColAndIndex.get(columnName);
+    Preconditions.checkState(creatorsByIndex != null, "Failed to find index creators for column: %s", columnName);
+    FieldSpec fieldSpec = _schema.getFieldSpecFor(columnName);
+    SegmentDictionaryCreator dictionaryCreator = _dictionaryCreatorMap.get(columnName);
+    NullValueVectorCreator nullValueVectorCreator = _nullValueVectorCreatorMap.get(columnName);
+
+    try (PinotSegmentColumnReader columnReader = new PinotSegmentColumnReader(segment, columnName)) {
+      if (dictionaryCreator == null || !columnReader.hasDictionary()) {
+        for (int i = 0; i < _totalDocs; i++) {
+          int docId = sortedDocIds != null ? sortedDocIds[i] : i;
+          Object value = columnReader.getValue(docId);
+          if (fieldSpec.isSingleValueField()) {
+            indexSingleValueRow(dictionaryCreator, value, creatorsByIndex);
+          } else {
+            indexMultiValueRow(dictionaryCreator, (Object[]) value, creatorsByIndex);
+          }
+          if (nullValueVectorCreator != null && columnReader.isNull(docId)) {
+            nullValueVectorCreator.setNull(i);
+          }
+        }
+        return;
+      }
+
+      // For dictionary-encoded column, look up each value of the segment dictionary once to map the segment dictIds
+      // to the dictIds of the new dictionary instead of looking up the value of every document
+      Dictionary dictionary = columnReader.getDictionary();
+      int dictionaryLength = dictionary.length();
+      int[] dictIdMapping = new int[dictionaryLength];
+      for (int dictId = 0; dictId < dictionaryLength; dictId++) {
+        dictIdMapping[dictId] = dictionaryCreator.indexOfSV(dictionary.get(dictId));
+      }
+
+      // The bitmap inverted index can be converted directly from the mutable inverted index of the segment when both
+      // dictionaries have the same values. When some values failed to be added to the mutable inverted index, the
+      // inverted index is rebuilt from the forward index instead.
+      IndexCreator invertedIndexCreator = creatorsByIndex.get(StandardIndexes.inverted());
+      InvertedIndexReader<?> invertedIndex = segment.getDataSource(columnName).getInvertedIndex();
+      boolean invertedIndexError =
+          segment instanceof MutableSegmentImpl && ((MutableSegmentImpl) segment).hasInvertedIndexError(columnName);
+      boolean convertInvertedIndex = invertedIndexCreator instanceof DictionaryBasedInvertedIndexCreator
+          && invertedIndex instanceof MutableInvertedIndex && !invertedIndexError
+          && _indexCreationInfoMap.get(columnName).getDistinctValueCount() == dictionaryLength;
+      if (convertInvertedIndex) {
+        invertedIndexCreator.close();
+        creatorsByIndex.put(StandardIndexes.inverted(),
+            new RemappedBitmapInvertedIndexCreator(_indexDir, columnName, (MutableInvertedIndex) invertedIndex,
+                dictIdMapping, sortedDocIds));
+      }
+      List<IndexCreator> creators = new ArrayList<>(creatorsByIndex.size());
+      for (Map.Entry<IndexType<?, ?, ?>, IndexCreator> entry : creatorsByIndex.entrySet()) {
+        if (!convertInvertedIndex || !StandardIndexes.inverted().equals(entry.getKey())) {
+          creators.add(entry.getValue());
+        }
+      }
+
+      int[] segmentDictIds = fieldSpec.isSingleValueField() ? null : new int[columnReader.getMaxNumValuesPerMVEntry()];
+      for (int i = 0; i < _totalDocs; i++) {
+        int docId = sortedDocIds != null ? sortedDocIds[i] : i;
+        if (segmentDictIds == null) {
+          int segmentDictId = columnReader.getDictId(docId);
+          Object value = dictionary.get(segmentDictId);
+          int dictId = dictIdMapping[segmentDictId];
+          for (IndexCreator creator : creators) {
+            creator.add(value, dictId);
+          }
+        } else {
+          int numValues = columnReader.getDictIdMV(docId, segmentDictIds);
+          Object[] values = new Object[numValues];
+          int[] dictIds = new int[numValues];
+          for (int j = 0; j < numValues; j++) {
+            values[j] = dictionary.get(segmentDictIds[j]);
+            dictIds[j] = dictIdMapping[segmentDictIds[j]];
+          }
+          for (IndexCreator creator : creators) {
+            creator.add(values, dictIds);
+          }
+        }
+        if (nullValueVectorCreator != null && columnReader.isNull(docId)) {
+          nullValueVectorCreator.setNull(i);
+        }
+      }
+    }
+  }
+
   @Nullable
   private Object calculateRawValueForTextIndex(boolean dictEnabledColumn, FieldIndexConfigs configs,
       FieldSpec fieldSpec) {
@@ -597,6 +704,18 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     if (isValidPropertyValue(defaultNullValue)) {
       properties.setProperty(getKeyFor(column, DEFAULT_NULL_VALUE), defaultNullValue);
     }
+
+    // Column stats for query planning
+    if (totalDocs > 0) {
+      EquiDepthHistogram histogram = columnIndexCreationInfo.getHistogram();
+      if (histogram != null) {
+        properties.setProperty(getKeyFor(column, HISTOGRAM), histogram.toPropertyValues());
+      }
+      byte[] ndvSketch = NdvSketchUtils.buildSketch(columnIndexCreationInfo.getSortedUniqueElementsArray());
+      if (ndvSketch != null) {
+        properties.setProperty(getKeyFor(column, NDV_SKETCH), Base64.getEncoder().encodeToString(ndvSketch));
+      }
+    }
   }
 
   public static void addColumnMinMaxValueInfo(PropertiesConfiguration properties, String column, String minValue,
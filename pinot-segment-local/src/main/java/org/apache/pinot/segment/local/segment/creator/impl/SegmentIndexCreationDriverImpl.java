@@ -19,15 +19,25 @@
 package org.apache.pinot.segment.local.segment.creator.impl;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.FileUtils;
@@ -41,6 +51,7 @@ import org.apache.pinot.segment.local.segment.readers.PinotSegmentRecordReader;
 import org.apache.pinot.segment.local.startree.v2.builder.MultipleTreesBuilder;
 import org.apache.pinot.segment.local.utils.CrcUtils;
 import org.apache.pinot.segment.local.utils.IngestionUtils;
+import org.apache.pinot.segment.spi.IndexSegment;
 import org.apache.pinot.segment.spi.V1Constants;
 import org.apache.pinot.segment.spi.converter.SegmentFormatConverter;
 import org.apache.pinot.segment.spi.creator.ColumnIndexCreationInfo;
@@ -198,18 +209,11 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
   @Override
   public void build()
       throws Exception {
-    // Count the number of documents and gather per-column statistics
-    LOGGER.debug("Start building StatsCollector!");
-    buildIndexCreationInfo();
-    LOGGER.info("Finished building StatsCollector!");
-    LOGGER.info("Collected stats for {} documents", _totalDocs);
+    collectStats();
 
     int incompleteRowsFound = 0;
     try {
-      // Initialize the index creation using the per-column statistics information
-      // TODO: _indexCreationInfoMap holds the reference to all unique values on heap (ColumnIndexCreationInfo ->
-      //       ColumnStatistics) throughout the segment creation. Find a way to release the memory early.
-      _indexCreator.init(_config, _segmentIndexCreationInfo, _indexCreationInfoMap, _dataSchema, _tempIndexDir);
+      initIndexCreator();
 
       // Build the index
       _recordReader.rewind();
@@ -261,6 +265,121 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     handlePostCreation();
   }
 
+  /**
+   * Returns {@code true} if the index creator supports building the segment column by column with
+   * {@link #buildByColumn(IndexSegment, int[], int)}.
+   */
+  public boolean canBuildByColumn() {
+    return _indexCreator instanceof SegmentColumnarIndexCreator;
+  }
+
+  /**
+   * Builds the segment column by column from the given segment instead of row by row from the record reader, where up
+   * to the given parallelism of columns are indexed concurrently on a thread pool shared by all the segment builds. The
+   * values are read directly from the segment, so the data source should be backed by the same segment without any
+   * transform on the rows.
+   *
+   * @param indexSegment Segment to read the values from
+   * @param sortedDocIds DocIds of the segment in the order to index, or {@code null} to index in docId order
+   * @param parallelism Maximum number of columns to index concurrently
+   */
+  public void buildByColumn(IndexSegment indexSegment, @Nullable int[] sortedDocIds, int parallelism)
+      throws Exception {
+    Preconditions.checkState(canBuildByColumn(), "Building by column is not supported by index creator: %s",
+        _indexCreator.getClass().getSimpleName());
+    SegmentColumnarIndexCreator indexCreator = (SegmentColumnarIndexCreator) _indexCreator;
+    collectStats();
+
+    try {
+      initIndexCreator();
+
+      // Build the index
+      List<String> columns = new ArrayList<>(_indexCreationInfoMap.keySet());
+      int numTasks = Math.max(Math.min(parallelism, columns.size()), 1);
+      LOGGER.info("Start building IndexCreator by column for {} columns with {} tasks", columns.size(), numTasks);
+      long indexStartTime = System.currentTimeMillis();
+      if (numTasks == 1) {
+        for (String column : columns) {
+          indexCreator.indexColumn(column, sortedDocIds, indexSegment);
+        }
+      } else {
+        indexColumnsConcurrently(indexCreator, columns, sortedDocIds, indexSegment, numTasks);
+      }
+      _totalIndexTime = System.currentTimeMillis() - indexStartTime;
+    } catch (Exception e) {
+      _indexCreator.close();
+      throw e;
+    } finally {
+      _recordReader.close();
+    }
+
+    LOGGER.info("Finished records indexing by column in IndexCreator!");
+
+    handlePostCreation();
+  }
+
+  /**
+   * Indexes the columns with the given number of tasks on the shared column indexing executor, where each task keeps
+   * picking the next column to index. The remaining columns are skipped when any column fails to be indexed.
+   */
+  private static void indexColumnsConcurrently(SegmentColumnarIndexCreator indexCreator, List<String> columns,
+      @Nullable int[] sortedDocIds, IndexSegment indexSegment, int numTasks)
+      throws Exception {
+    AtomicInteger nextColumnIndex = new AtomicInteger();
+    AtomicBoolean failed = new AtomicBoolean();
+    List<Future<?>> futures = new ArrayList<>(numTasks);
+    for (int i = 0; i < numTasks; i++) {
+      futures.add(ColumnIndexingExecutorHolder.EXECUTOR.submit(() -> {
+        int columnIndex;
+        while (!failed.get() && (columnIndex = nextColumnIndex.getAndIncrement()) < columns.size()) {
+          try {
+            indexCreator.indexColumn(columns.get(columnIndex), sortedDocIds, indexSegment);
+          } catch (Exception e) {
+            failed.set(true);
+            throw e;
+          }
+        }
+        return null;
+      }));
+    }
+    // Wait for all the tasks to finish before returning so that the index creator is not closed while being used
+    Exception exception = null;
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        if (exception == null) {
+          Throwable cause = e.getCause();
+          exception = cause instanceof Exception ? (Exception) cause : e;
+        }
+      }
+    }
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  /**
+   * Counts the number of documents and gathers the per-column statistics.
+   */
+  private void collectStats()
+      throws Exception {
+    LOGGER.debug("Start building StatsCollector!");
+    buildIndexCreationInfo();
+    LOGGER.info("Finished building StatsCollector!");
+    LOGGER.info("Collected stats for {} documents", _totalDocs);
+  }
+
+  /**
+   * Initializes the index creation using the per-column statistics information.
+   */
+  private void initIndexCreator()
+      throws Exception {
+    // TODO: _indexCreationInfoMap holds the reference to all unique values on heap (ColumnIndexCreationInfo ->
+    //       ColumnStatistics) throughout the segment creation. Find a way to release the memory early.
+    _indexCreator.init(_config, _segmentIndexCreationInfo, _indexCreationInfoMap, _dataSchema, _tempIndexDir);
+  }
+
   private void handlePostCreation()
       throws Exception {
     ColumnStatistics timeColumnStatistics = _segmentStats.getColumnProfileFor(_config.getTimeColumnName());
@@ -463,4 +582,21 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
   public SegmentPreIndexStatsContainer getSegmentStats() {
     return _segmentStats;
   }
+
+  /**
+   * Holds the thread pool shared by all the segment builds indexing the columns concurrently, which is created on first
+   * use. The pool is bounded by the number of available processors, and the idle threads are released.
+   */
+  private static class ColumnIndexingExecutorHolder {
+    static final ExecutorService EXECUTOR;
+
+    static {
+      int numThreads = Runtime.getRuntime().availableProcessors();
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(numThreads, numThreads, 1L, TimeUnit.MINUTES,
+          new LinkedBlockingQueue<>(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("segment-build-%d")
+          .build());
+      executor.allowCoreThreadTimeOut(true);
+      EXECUTOR = executor;
+    }
+  }
 }
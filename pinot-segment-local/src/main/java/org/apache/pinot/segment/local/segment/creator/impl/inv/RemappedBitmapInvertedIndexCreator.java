@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.creator.impl.inv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import org.apache.pinot.segment.spi.V1Constants;
+import org.apache.pinot.segment.spi.index.creator.DictionaryBasedInvertedIndexCreator;
+import org.apache.pinot.segment.spi.index.mutable.MutableInvertedIndex;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+
+/**
+ * Implementation of {@link DictionaryBasedInvertedIndexCreator} that converts the bitmaps of a
+ * {@link MutableInvertedIndex} (e.g. from a CONSUMING segment) instead of collecting the dictIds document by document.
+ * <p>The dictIds of the mutable inverted index are remapped to the dictIds of the new dictionary, and the docIds are
+ * remapped when the documents are reordered (e.g. by the sorted column). The bitmaps are serialized when seal() is
+ * called, and add() is not supported.
+ */
+public final class RemappedBitmapInvertedIndexCreator implements DictionaryBasedInvertedIndexCreator {
+  private final File _invertedIndexFile;
+  private final MutableInvertedIndex _invertedIndex;
+  // DictId of the mutable inverted index for each new dictId
+  private final int[] _mutableDictIds;
+  // Mapping from the docId of the mutable inverted index to the new docId, null if the documents are not reordered
+  private final int[] _docIdMapping;
+
+  /**
+   * @param indexDir Index directory
+   * @param columnName Column name
+   * @param invertedIndex Mutable inverted index to convert
+   * @param dictIdMapping Mapping from the dictId of the mutable inverted index to the new dictId, where each new dictId
+   *                      should be mapped exactly once
+   * @param sortedDocIds DocIds of the mutable inverted index in the new order, or {@code null} if not reordered
+   */
+  public RemappedBitmapInvertedIndexCreator(File indexDir, String columnName, MutableInvertedIndex invertedIndex,
+      int[] dictIdMapping, @Nullable int[] sortedDocIds) {
+    _invertedIndexFile = new File(indexDir, columnName + V1Constants.Indexes.BITMAP_INVERTED_INDEX_FILE_EXTENSION);
+    _invertedIndex = invertedIndex;
+    int cardinality = dictIdMapping.length;
+    _mutableDictIds = new int[cardinality];
+    for (int dictId = 0; dictId < cardinality; dictId++) {
+      _mutableDictIds[dictIdMapping[dictId]] = dictId;
+    }
+    if (sortedDocIds != null) {
+      int numDocs = sortedDocIds.length;
+      _docIdMapping = new int[numDocs];
+      for (int i = 0; i < numDocs; i++) {
+        _docIdMapping[sortedDocIds[i]] = i;
+      }
+    } else {
+      _docIdMapping = null;
+    }
+  }
+
+  @Override
+  public void add(int dictId) {
+    throw new UnsupportedOperationException("Inverted index is converted from the mutable inverted index");
+  }
+
+  @Override
+  public void add(int[] dictIds, int length) {
+    throw new UnsupportedOperationException("Inverted index is converted from the mutable inverted index");
+  }
+
+  @Override
+  public void seal()
+      throws IOException {
+    int cardinality = _mutableDictIds.length;
+    try (BitmapInvertedIndexWriter writer = new BitmapInvertedIndexWriter(_invertedIndexFile, cardinality)) {
+      for (int dictId = 0; dictId < cardinality; dictId++) {
+        MutableRoaringBitmap docIds = _invertedIndex.getDocIds(_mutableDictIds[dictId]);
+        if (_docIdMapping == null) {
+          writer.add(docIds.toRoaringBitmap());
+        } else {
+          int[] newDocIds = new int[docIds.getCardinality()];
+          int numDocIds = 0;
+          IntIterator iterator = docIds.getIntIterator();
+          while (iterator.hasNext()) {
+            newDocIds[numDocIds++] = _docIdMapping[iterator.next()];
+          }
+          Arrays.sort(newDocIds);
+          writer.add(RoaringBitmap.bitmapOf(newDocIds));
+        }
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+}
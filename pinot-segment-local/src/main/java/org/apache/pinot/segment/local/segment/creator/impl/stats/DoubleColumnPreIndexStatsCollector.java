@@ -21,13 +21,17 @@ package org.apache.pinot.segment.local.segment.creator.impl.stats;
 import it.unimi.dsi.fastutil.doubles.DoubleOpenHashSet;
 import it.unimi.dsi.fastutil.doubles.DoubleSet;
 import java.util.Arrays;
+import javax.annotation.Nullable;
 import org.apache.pinot.segment.spi.creator.StatsCollectorConfig;
+import org.apache.pinot.segment.spi.index.metadata.EquiDepthHistogram;
 
 
 public class DoubleColumnPreIndexStatsCollector extends AbstractColumnStatisticsCollector {
   private DoubleSet _values = new DoubleOpenHashSet(INITIAL_HASH_SET_SIZE);
   private double[] _sortedValues;
   private boolean _sealed = false;
+  private EquiDepthHistogramBuilder _histogramBuilder = new EquiDepthHistogramBuilder();
+  private EquiDepthHistogram _histogram;
   private double _prevValue = Double.NEGATIVE_INFINITY;
 
   public DoubleColumnPreIndexStatsCollector(String column, StatsCollectorConfig statsCollectorConfig) {
@@ -43,6 +47,7 @@ public class DoubleColumnPreIndexStatsCollector extends AbstractColumnStatistics
       for (Object obj : values) {
         double value = (double) obj;
         _values.add(value);
+        _histogramBuilder.add(value);
       }
 
       _maxNumberOfMultiValues = Math.max(_maxNumberOfMultiValues, values.length);
@@ -50,6 +55,7 @@ public class DoubleColumnPreIndexStatsCollector extends AbstractColumnStatistics
     } else {
       double value = (double) entry;
       addressSorted(value);
+      _histogramBuilder.add(value);
       if (_values.add(value)) {
         updatePartition(value);
       }
@@ -103,7 +109,18 @@ public class DoubleColumnPreIndexStatsCollector extends AbstractColumnStatistics
       _sortedValues = _values.toDoubleArray();
       _values = null;
       Arrays.sort(_sortedValues);
+      _histogram = _histogramBuilder.build();
+      _histogramBuilder = null;
       _sealed = true;
     }
   }
+
+  @Nullable
+  @Override
+  public EquiDepthHistogram getHistogram() {
+    if (_sealed) {
+      return _histogram;
+    }
+    throw new IllegalStateException("you must seal the collector first before asking for histogram");
+  }
 }
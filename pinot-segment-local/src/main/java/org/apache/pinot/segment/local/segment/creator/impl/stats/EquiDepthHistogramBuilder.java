@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.creator.impl.stats;
+
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import org.apache.pinot.segment.spi.index.metadata.EquiDepthHistogram;
+
+
+/**
+ * Builds the {@link EquiDepthHistogram} from a systematic sample of the values. Every {@code stride}-th value is kept
+ * in the sample buffer, and the stride is doubled (dropping every other sample) whenever the buffer is full, so that
+ * the memory and per-value cost are bounded regardless of the number of values. The sampling is deterministic so that
+ * segments built from the same data have the same metadata.
+ */
+public class EquiDepthHistogramBuilder {
+  public static final int DEFAULT_NUM_BUCKETS = 16;
+  public static final int MAX_NUM_SAMPLES = 2048;
+
+  private final double[] _samples = new double[MAX_NUM_SAMPLES];
+  private int _numSamples;
+  private long _stride = 1;
+  private long _numValues;
+  private double _minValue = Double.POSITIVE_INFINITY;
+  private double _maxValue = Double.NEGATIVE_INFINITY;
+
+  public void add(double value) {
+    // NaN cannot be ordered
+    if (Double.isNaN(value)) {
+      return;
+    }
+    if (value < _minValue) {
+      _minValue = value;
+    }
+    if (value > _maxValue) {
+      _maxValue = value;
+    }
+    if (_numValues++ % _stride == 0) {
+      if (_numSamples == MAX_NUM_SAMPLES) {
+        for (int i = 0; i < MAX_NUM_SAMPLES / 2; i++) {
+          _samples[i] = _samples[2 * i];
+        }
+        _numSamples = MAX_NUM_SAMPLES / 2;
+        // NOTE: The index of the current value is MAX_NUM_SAMPLES * stride, which is aligned with the new stride
+        _stride <<= 1;
+      }
+      _samples[_numSamples++] = value;
+    }
+  }
+
+  /**
+   * Returns the histogram with up to the given number of buckets, or {@code null} if no value is added.
+   */
+  @Nullable
+  public EquiDepthHistogram build(int numBuckets) {
+    if (_numSamples == 0) {
+      return null;
+    }
+    double[] sortedSamples = Arrays.copyOf(_samples, _numSamples);
+    Arrays.sort(sortedSamples);
+    numBuckets = Math.min(numBuckets, _numSamples);
+    double[] boundaries = new double[numBuckets + 1];
+    boundaries[0] = _minValue;
+    for (int i = 1; i < numBuckets; i++) {
+      boundaries[i] = sortedSamples[(int) ((long) i * _numSamples / numBuckets)];
+    }
+    boundaries[numBuckets] = _maxValue;
+    return new EquiDepthHistogram(boundaries, _numValues);
+  }
+
+  @Nullable
+  public EquiDepthHistogram build() {
+    return build(DEFAULT_NUM_BUCKETS);
+  }
+}
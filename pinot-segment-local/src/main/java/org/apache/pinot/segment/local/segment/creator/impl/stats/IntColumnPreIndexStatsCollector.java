@@ -21,13 +21,17 @@ package org.apache.pinot.segment.local.segment.creator.impl.stats;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 import java.util.Arrays;
+import javax.annotation.Nullable;
 import org.apache.pinot.segment.spi.creator.StatsCollectorConfig;
+import org.apache.pinot.segment.spi.index.metadata.EquiDepthHistogram;
 
 
 public class IntColumnPreIndexStatsCollector extends AbstractColumnStatisticsCollector {
   private IntSet _values = new IntOpenHashSet(INITIAL_HASH_SET_SIZE);
   private int[] _sortedValues;
   private boolean _sealed = false;
+  private EquiDepthHistogramBuilder _histogramBuilder = new EquiDepthHistogramBuilder();
+  private EquiDepthHistogram _histogram;
   private int _prevValue = Integer.MIN_VALUE;
 
   public IntColumnPreIndexStatsCollector(String column, StatsCollectorConfig statsCollectorConfig) {
@@ -43,6 +47,7 @@ public class IntColumnPreIndexStatsCollector extends AbstractColumnStatisticsCol
       for (Object obj : values) {
         int value = (int) obj;
         _values.add(value);
+        _histogramBuilder.add(value);
       }
 
       _maxNumberOfMultiValues = Math.max(_maxNumberOfMultiValues, values.length);
@@ -50,6 +55,7 @@ public class IntColumnPreIndexStatsCollector extends AbstractColumnStatisticsCol
     } else {
       int value = (int) entry;
       addressSorted(value);
+      _histogramBuilder.add(value);
       if (_values.add(value)) {
         updatePartition(value);
       }
@@ -103,7 +109,18 @@ public class IntColumnPreIndexStatsCollector extends AbstractColumnStatisticsCol
       _sortedValues = _values.toIntArray();
       _values = null;
       Arrays.sort(_sortedValues);
+      _histogram = _histogramBuilder.build();
+      _histogramBuilder = null;
       _sealed = true;
     }
   }
+
+  @Nullable
+  @Override
+  public EquiDepthHistogram getHistogram() {
+    if (_sealed) {
+      return _histogram;
+    }
+    throw new IllegalStateException("you must seal the collector first before asking for histogram");
+  }
 }
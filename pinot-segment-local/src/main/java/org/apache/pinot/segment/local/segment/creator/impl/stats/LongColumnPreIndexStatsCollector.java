@@ -21,13 +21,17 @@ package org.apache.pinot.segment.local.segment.creator.impl.stats;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
 import java.util.Arrays;
+import javax.annotation.Nullable;
 import org.apache.pinot.segment.spi.creator.StatsCollectorConfig;
+import org.apache.pinot.segment.spi.index.metadata.EquiDepthHistogram;
 
 
 public class LongColumnPreIndexStatsCollector extends AbstractColumnStatisticsCollector {
   private LongSet _values = new LongOpenHashSet(INITIAL_HASH_SET_SIZE);
   private long[] _sortedValues;
   private boolean _sealed = false;
+  private EquiDepthHistogramBuilder _histogramBuilder = new EquiDepthHistogramBuilder();
+  private EquiDepthHistogram _histogram;
   private long _prevValue = Long.MIN_VALUE;
 
   public LongColumnPreIndexStatsCollector(String column, StatsCollectorConfig statsCollectorConfig) {
@@ -43,6 +47,7 @@ public class LongColumnPreIndexStatsCollector extends AbstractColumnStatisticsCo
       for (Object obj : values) {
         long value = (long) obj;
         _values.add(value);
+        _histogramBuilder.add(value);
       }
 
       _maxNumberOfMultiValues = Math.max(_maxNumberOfMultiValues, values.length);
@@ -50,6 +55,7 @@ public class LongColumnPreIndexStatsCollector extends AbstractColumnStatisticsCo
     } else {
       long value = (long) entry;
       addressSorted(value);
+      _histogramBuilder.add(value);
       if (_values.add(value)) {
         updatePartition(value);
       }
@@ -103,7 +109,18 @@ public class LongColumnPreIndexStatsCollector extends AbstractColumnStatisticsCo
       _sortedValues = _values.toLongArray();
       _values = null;
       Arrays.sort(_sortedValues);
+      _histogram = _histogramBuilder.build();
+      _histogramBuilder = null;
       _sealed = true;
     }
   }
+
+  @Nullable
+  @Override
+  public EquiDepthHistogram getHistogram() {
+    if (_sealed) {
+      return _histogram;
+    }
+    throw new IllegalStateException("you must seal the collector first before asking for histogram");
+  }
 }
@@ -0,0 +1,597 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.common.metrics.ServerGauge;
+import org.apache.pinot.common.metrics.ServerMeter;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.utils.LLCSegmentName;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentImpl;
+import org.apache.pinot.segment.local.upsert.ConcurrentMapPartitionUpsertMetadataManager.RecordLocation;
+import org.apache.pinot.segment.local.utils.HashUtils;
+import org.apache.pinot.segment.local.utils.OffHeapHashedPrimaryKeyMap;
+import org.apache.pinot.segment.local.utils.SegmentLocks;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.MutableSegment;
+import org.apache.pinot.segment.spi.index.mutable.ThreadSafeMutableRoaringBitmap;
+import org.apache.pinot.spi.config.table.HashFunction;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+
+/**
+ * Implementation of {@link PartitionUpsertMetadataManager} that keeps the primary key to record location mapping
+ * off-heap, so that the heap usage does not grow with the number of primary keys.
+ * <p>The primary keys are stored as 128-bit hashes (MD5 if configured, MURMUR3 otherwise), and the record location is
+ * packed into 2 longs: the segment id (assigned by this manager) with the doc id, and the comparison value encoded as
+ * long. Only a single numeric (INT, LONG, FLOAT, DOUBLE) comparison column is supported. The keys are partitioned into
+ * multiple {@link OffHeapHashedPrimaryKeyMap}s, each guarded by its own lock, so that concurrent updates on different
+ * keys do not contend on a single lock.
+ * <p>The semantics of adding, replacing and removing segments and records are the same as
+ * {@link ConcurrentMapPartitionUpsertMetadataManager}.
+ * <p>When snapshot is enabled, the hashed primary keys and comparison values of the immutable segments are also
+ * persisted into a {@link UpsertPrimaryKeySnapshot} when the segment is added, so that on server restart the segments
+ * with valid doc ids snapshot can be added from the memory-mapped primary key snapshot without reading the segments.
+ */
+@SuppressWarnings("rawtypes")
+@ThreadSafe
+public class OffHeapPartitionUpsertMetadataManager extends BasePartitionUpsertMetadataManager {
+  private static final int NUM_STRIPES = 64;
+  private static final int STRIPE_SHIFT = Long.SIZE - Integer.numberOfTrailingZeros(NUM_STRIPES);
+  private static final int INITIAL_STRIPE_CAPACITY = 1024;
+
+  private final DataType _comparisonValueType;
+  private final boolean _floatingPointComparison;
+  private final long _snapshotConfigFingerprint;
+  private final OffHeapHashedPrimaryKeyMap[] _primaryKeyMaps = new OffHeapHashedPrimaryKeyMap[NUM_STRIPES];
+
+  // Segments referenced by the record locations
+  private final Map<IndexSegment, Integer> _segmentToIdMap = new ConcurrentHashMap<>();
+  private final Map<Integer, IndexSegment> _idToSegmentMap = new ConcurrentHashMap<>();
+  private final AtomicInteger _nextSegmentId = new AtomicInteger();
+
+  // Reused for reading previous record during partial upsert
+  private final GenericRow _reuse = new GenericRow();
+
+  public OffHeapPartitionUpsertMetadataManager(String tableNameWithType, int partitionId,
+      List<String> primaryKeyColumns, List<String> comparisonColumns, DataType comparisonColumnDataType,
+      HashFunction hashFunction, @Nullable PartialUpsertHandler partialUpsertHandler, boolean enableSnapshot,
+      ServerMetrics serverMetrics) {
+    super(tableNameWithType, partitionId, primaryKeyColumns, comparisonColumns, hashFunction, partialUpsertHandler,
+        enableSnapshot, serverMetrics);
+    Preconditions.checkArgument(comparisonColumns.size() == 1,
+        "Off-heap upsert metadata manager only supports single comparison column, got: %s for table: %s",
+        comparisonColumns, tableNameWithType);
+    DataType storedType = comparisonColumnDataType.getStoredType();
+    Preconditions.checkArgument(storedType.isNumeric() && storedType != DataType.BIG_DECIMAL,
+        "Off-heap upsert metadata manager only supports INT/LONG/FLOAT/DOUBLE comparison column, got: %s for "
+            + "table: %s",
+        comparisonColumnDataType, tableNameWithType);
+    _comparisonValueType = storedType;
+    _floatingPointComparison = storedType == DataType.FLOAT || storedType == DataType.DOUBLE;
+    _snapshotConfigFingerprint =
+        UpsertPrimaryKeySnapshot.getConfigFingerprint(primaryKeyColumns, comparisonColumns, hashFunction, storedType);
+    for (int i = 0; i < NUM_STRIPES; i++) {
+      _primaryKeyMaps[i] = new OffHeapHashedPrimaryKeyMap(INITIAL_STRIPE_CAPACITY,
+          String.format("UpsertPrimaryKeyMap: %s, partition: %d, stripe: %d", tableNameWithType, partitionId, i));
+    }
+  }
+
+  @Override
+  protected long getNumPrimaryKeys() {
+    long numPrimaryKeys = 0;
+    for (OffHeapHashedPrimaryKeyMap primaryKeyMap : _primaryKeyMaps) {
+      numPrimaryKeys += primaryKeyMap.size();
+    }
+    return numPrimaryKeys;
+  }
+
+  private byte[] hashPrimaryKey(PrimaryKey primaryKey) {
+    byte[] bytes = primaryKey.asBytes();
+    return _hashFunction == HashFunction.MD5 ? HashUtils.hashMD5(bytes) : HashUtils.hashMurmur3(bytes);
+  }
+
+  private OffHeapHashedPrimaryKeyMap getPrimaryKeyMap(long keyHigh) {
+    return _primaryKeyMaps[(int) (keyHigh >>> STRIPE_SHIFT)];
+  }
+
+  private int getOrCreateSegmentId(IndexSegment segment) {
+    return _segmentToIdMap.computeIfAbsent(segment, k -> {
+      int segmentId = _nextSegmentId.getAndIncrement();
+      _idToSegmentMap.put(segmentId, k);
+      return segmentId;
+    });
+  }
+
+  /**
+   * Releases the id of a segment that is no longer referenced by any record location.
+   */
+  private void releaseSegmentId(IndexSegment segment) {
+    Integer segmentId = _segmentToIdMap.remove(segment);
+    if (segmentId != null) {
+      _idToSegmentMap.remove(segmentId);
+    }
+  }
+
+  private static long getLocation(int segmentId, int docId) {
+    return ((long) segmentId << Integer.SIZE) | (docId & 0xFFFFFFFFL);
+  }
+
+  private static int getSegmentId(long location) {
+    return (int) (location >>> Integer.SIZE);
+  }
+
+  private static int getDocId(long location) {
+    return (int) location;
+  }
+
+  /**
+   * Returns the segment of the given record location, or {@code null} if the segment has been released.
+   */
+  @Nullable
+  private IndexSegment getSegment(long location) {
+    return _idToSegmentMap.get(getSegmentId(location));
+  }
+
+  private long encodeComparisonValue(Comparable comparisonValue) {
+    Number number = (Number) comparisonValue;
+    return _floatingPointComparison ? Double.doubleToLongBits(number.doubleValue()) : number.longValue();
+  }
+
+  /**
+   * Decodes the comparison value into the stored type of the comparison column, so that it can be compared with the
+   * comparison values read from the records.
+   */
+  private Comparable decodeComparisonValue(long encodedComparisonValue) {
+    switch (_comparisonValueType) {
+      case INT:
+        return (int) encodedComparisonValue;
+      case LONG:
+        return encodedComparisonValue;
+      case FLOAT:
+        return (float) Double.longBitsToDouble(encodedComparisonValue);
+      case DOUBLE:
+        return Double.longBitsToDouble(encodedComparisonValue);
+      default:
+        throw new IllegalStateException("Unsupported comparison column stored type: " + _comparisonValueType);
+    }
+  }
+
+  /**
+   * Compares the encoded comparison values, with the same result as comparing the original values.
+   */
+  private int compareComparisonValues(long encodedComparisonValue1, long encodedComparisonValue2) {
+    if (_floatingPointComparison) {
+      return Double.compare(Double.longBitsToDouble(encodedComparisonValue1),
+          Double.longBitsToDouble(encodedComparisonValue2));
+    } else {
+      return Long.compare(encodedComparisonValue1, encodedComparisonValue2);
+    }
+  }
+
+  @Override
+  protected void doAddSegment(ImmutableSegment segment) {
+    if (segment instanceof ImmutableSegmentImpl) {
+      if (!_enableSnapshot) {
+        UpsertPrimaryKeySnapshot.deleteSnapshot(segment);
+      } else if (addSegmentFromSnapshot((ImmutableSegmentImpl) segment)) {
+        return;
+      }
+    }
+    super.doAddSegment(segment);
+  }
+
+  /**
+   * Adds the segment with the primary keys loaded from the primary key snapshot for the valid docs in the valid doc ids
+   * snapshot. Returns {@code false} without modifying the metadata if the snapshots are not available or do not cover
+   * all the valid docs, in which case the segment should be added by reading the primary keys from the segment.
+   */
+  private boolean addSegmentFromSnapshot(ImmutableSegmentImpl segment) {
+    String segmentName = segment.getSegmentName();
+    Long segmentCrc = UpsertPrimaryKeySnapshot.getSegmentCrc(segment);
+    if (segmentCrc == null) {
+      return false;
+    }
+    MutableRoaringBitmap validDocIdsSnapshot = segment.loadValidDocIdsFromSnapshot();
+    if (validDocIdsSnapshot == null || validDocIdsSnapshot.isEmpty()) {
+      return false;
+    }
+    try (UpsertPrimaryKeySnapshot.Reader reader = UpsertPrimaryKeySnapshot.openReader(
+        UpsertPrimaryKeySnapshot.getSnapshotFile(segment), segmentCrc, _snapshotConfigFingerprint)) {
+      if (reader == null) {
+        return false;
+      }
+      int numEntries = reader.getNumEntries();
+      int numValidDocs = 0;
+      for (int i = 0; i < numEntries; i++) {
+        if (validDocIdsSnapshot.contains(reader.getDocId(i))) {
+          numValidDocs++;
+        }
+      }
+      if (numValidDocs != validDocIdsSnapshot.getCardinality()) {
+        _logger.info("Primary key snapshot for segment: {} does not cover all the valid docs, ignoring the snapshot",
+            segmentName);
+        return false;
+      }
+
+      _logger.info("Adding segment: {} from primary key snapshot, current primary key count: {}", segmentName,
+          getNumPrimaryKeys());
+      Lock segmentLock = SegmentLocks.getSegmentLock(_tableNameWithType, segmentName);
+      segmentLock.lock();
+      try {
+        ThreadSafeMutableRoaringBitmap validDocIds = new ThreadSafeMutableRoaringBitmap();
+        segment.enableUpsert(this, validDocIds);
+        int segmentId = getOrCreateSegmentId(segment);
+        int numKeysInWrongSegment = 0;
+        for (int i = 0; i < numEntries; i++) {
+          int docId = reader.getDocId(i);
+          if (validDocIdsSnapshot.contains(docId) && !addOrReplaceRecord(segment, segmentId, validDocIds,
+              reader.getKeyHigh(i), reader.getKeyLow(i), docId, reader.getComparisonValue(i), null, null)) {
+            numKeysInWrongSegment++;
+          }
+        }
+        reportKeysInWrongSegment(segmentName, numKeysInWrongSegment);
+      } finally {
+        segmentLock.unlock();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(
+          String.format("Caught exception while adding segment: %s, table: %s", segmentName, _tableNameWithType), e);
+    }
+
+    // Update metrics
+    long numPrimaryKeys = getNumPrimaryKeys();
+    _serverMetrics.setValueOfPartitionGauge(_tableNameWithType, _partitionId, ServerGauge.UPSERT_PRIMARY_KEYS_COUNT,
+        numPrimaryKeys);
+
+    _logger.info("Finished adding segment: {} from primary key snapshot, current primary key count: {}", segmentName,
+        numPrimaryKeys);
+    return true;
+  }
+
+  @Override
+  protected void addOrReplaceSegment(ImmutableSegmentImpl segment, ThreadSafeMutableRoaringBitmap validDocIds,
+      Iterator<RecordInfo> recordInfoIterator, @Nullable IndexSegment oldSegment,
+      @Nullable MutableRoaringBitmap validDocIdsForOldSegment) {
+    String segmentName = segment.getSegmentName();
+    segment.enableUpsert(this, validDocIds);
+    int segmentId = getOrCreateSegmentId(segment);
+
+    UpsertPrimaryKeySnapshot.Writer snapshotWriter = _enableSnapshot ? createSnapshotWriter(segment) : null;
+    int numKeysInWrongSegment = 0;
+    try {
+      while (recordInfoIterator.hasNext()) {
+        RecordInfo recordInfo = recordInfoIterator.next();
+        byte[] hashedKey = hashPrimaryKey(recordInfo.getPrimaryKey());
+        long keyHigh = OffHeapHashedPrimaryKeyMap.getKeyHigh(hashedKey);
+        long keyLow = OffHeapHashedPrimaryKeyMap.getKeyLow(hashedKey);
+        int docId = recordInfo.getDocId();
+        long comparisonValue = encodeComparisonValue(recordInfo.getComparisonValue());
+        if (!addOrReplaceRecord(segment, segmentId, validDocIds, keyHigh, keyLow, docId, comparisonValue, oldSegment,
+            validDocIdsForOldSegment)) {
+          numKeysInWrongSegment++;
+        }
+        if (snapshotWriter != null) {
+          try {
+            snapshotWriter.add(docId, keyHigh, keyLow, comparisonValue);
+          } catch (Exception e) {
+            _logger.warn("Caught exception while writing primary key snapshot for segment: {}, skipping the snapshot",
+                segmentName, e);
+            closeSnapshotWriter(snapshotWriter, false);
+            snapshotWriter = null;
+          }
+        }
+      }
+    } finally {
+      if (snapshotWriter != null) {
+        closeSnapshotWriter(snapshotWriter, !recordInfoIterator.hasNext());
+      }
+    }
+    reportKeysInWrongSegment(segmentName, numKeysInWrongSegment);
+  }
+
+  @Nullable
+  private UpsertPrimaryKeySnapshot.Writer createSnapshotWriter(ImmutableSegmentImpl segment) {
+    Long segmentCrc = UpsertPrimaryKeySnapshot.getSegmentCrc(segment);
+    if (segmentCrc == null) {
+      return null;
+    }
+    try {
+      return new UpsertPrimaryKeySnapshot.Writer(UpsertPrimaryKeySnapshot.getSnapshotFile(segment), segmentCrc,
+          _snapshotConfigFingerprint);
+    } catch (Exception e) {
+      _logger.warn("Caught exception while creating primary key snapshot for segment: {}, skipping the snapshot",
+          segment.getSegmentName(), e);
+      return null;
+    }
+  }
+
+  private void closeSnapshotWriter(UpsertPrimaryKeySnapshot.Writer snapshotWriter, boolean commit) {
+    try {
+      if (commit) {
+        snapshotWriter.commit();
+      }
+      snapshotWriter.close();
+    } catch (Exception e) {
+      _logger.warn("Caught exception while persisting primary key snapshot, skipping the snapshot", e);
+    }
+  }
+
+  private void reportKeysInWrongSegment(String segmentName, int numKeysInWrongSegment) {
+    if (numKeysInWrongSegment > 0) {
+      _logger.warn("Found {} primary keys in the wrong segment when adding segment: {}", numKeysInWrongSegment,
+          segmentName);
+      _serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.UPSERT_KEYS_IN_WRONG_SEGMENT,
+          numKeysInWrongSegment);
+    }
+  }
+
+  /**
+   * Adds or replaces the record location of a record from an immutable segment. Returns {@code false} if the current
+   * record location is in another segment object with the same segment name (primary key in the wrong segment).
+   */
+  private boolean addOrReplaceRecord(ImmutableSegmentImpl segment, int segmentId,
+      ThreadSafeMutableRoaringBitmap validDocIds, long keyHigh, long keyLow, int docId, long comparisonValue,
+      @Nullable IndexSegment oldSegment, @Nullable MutableRoaringBitmap validDocIdsForOldSegment) {
+    long newLocation = getLocation(segmentId, docId);
+    OffHeapHashedPrimaryKeyMap primaryKeyMap = getPrimaryKeyMap(keyHigh);
+    synchronized (primaryKeyMap) {
+      int slot = primaryKeyMap.getSlot(keyHigh, keyLow);
+      if (slot != OffHeapHashedPrimaryKeyMap.INVALID_SLOT) {
+        long currentLocation = primaryKeyMap.getValue1(slot);
+        IndexSegment currentSegment = getSegment(currentLocation);
+        if (currentSegment != null) {
+          // Existing primary key
+          int currentDocId = getDocId(currentLocation);
+          int comparisonResult = compareComparisonValues(comparisonValue, primaryKeyMap.getValue2(slot));
+
+          // The current record is in the same segment
+          // Update the record location when there is a tie to keep the newer record. Note that the record info
+          // iterator will return records with incremental doc ids.
+          if (currentSegment == segment) {
+            if (comparisonResult >= 0) {
+              validDocIds.replace(currentDocId, docId);
+              primaryKeyMap.setValues(slot, newLocation, comparisonValue);
+            }
+            return true;
+          }
+
+          // The current record is in an old segment being replaced
+          // See ConcurrentMapPartitionUpsertMetadataManager for details
+          if (currentSegment == oldSegment) {
+            if (comparisonResult >= 0) {
+              validDocIds.add(docId);
+              if (validDocIdsForOldSegment != null) {
+                validDocIdsForOldSegment.remove(currentDocId);
+              }
+              primaryKeyMap.setValues(slot, newLocation, comparisonValue);
+            }
+            return true;
+          }
+
+          // This should not happen because the previously replaced segment should have all keys removed. We still
+          // handle it here, and also track the number of keys not properly replaced previously.
+          String segmentName = segment.getSegmentName();
+          String currentSegmentName = currentSegment.getSegmentName();
+          if (currentSegmentName.equals(segmentName)) {
+            if (comparisonResult >= 0) {
+              validDocIds.add(docId);
+              primaryKeyMap.setValues(slot, newLocation, comparisonValue);
+            }
+            return false;
+          }
+
+          // The current record is in a different segment
+          // Update the record location when getting a newer comparison value, or the value is the same as the
+          // current value, but the segment has a larger sequence number (the segment is newer than the current
+          // segment).
+          if (comparisonResult > 0 || (comparisonResult == 0 && LLCSegmentName.isLowLevelConsumerSegmentName(
+              segmentName) && LLCSegmentName.isLowLevelConsumerSegmentName(currentSegmentName)
+              && LLCSegmentName.getSequenceNumber(segmentName) > LLCSegmentName.getSequenceNumber(
+              currentSegmentName))) {
+            Objects.requireNonNull(currentSegment.getValidDocIds()).remove(currentDocId);
+            validDocIds.add(docId);
+            primaryKeyMap.setValues(slot, newLocation, comparisonValue);
+          }
+          return true;
+        }
+      }
+      // New primary key
+      validDocIds.add(docId);
+      primaryKeyMap.put(keyHigh, keyLow, newLocation, comparisonValue);
+      return true;
+    }
+  }
+
+  @Override
+  public void replaceSegment(ImmutableSegment segment, @Nullable ThreadSafeMutableRoaringBitmap validDocIds,
+      @Nullable Iterator<RecordInfo> recordInfoIterator, IndexSegment oldSegment) {
+    super.replaceSegment(segment, validDocIds, recordInfoIterator, oldSegment);
+    // All the record locations of the old segment have been replaced or removed
+    releaseSegmentId(oldSegment);
+  }
+
+  @Override
+  protected void removeSegment(IndexSegment segment, MutableRoaringBitmap validDocIds) {
+    assert !validDocIds.isEmpty();
+    Integer segmentId = _segmentToIdMap.get(segment);
+    if (segmentId == null) {
+      // Segment not referenced by any record location
+      return;
+    }
+    PrimaryKey primaryKey = new PrimaryKey(new Object[_primaryKeyColumns.size()]);
+    PeekableIntIterator iterator = validDocIds.getIntIterator();
+    try (
+        UpsertUtils.PrimaryKeyReader primaryKeyReader = new UpsertUtils.PrimaryKeyReader(segment, _primaryKeyColumns)) {
+      while (iterator.hasNext()) {
+        primaryKeyReader.getPrimaryKey(iterator.next(), primaryKey);
+        byte[] hashedKey = hashPrimaryKey(primaryKey);
+        long keyHigh = OffHeapHashedPrimaryKeyMap.getKeyHigh(hashedKey);
+        long keyLow = OffHeapHashedPrimaryKeyMap.getKeyLow(hashedKey);
+        OffHeapHashedPrimaryKeyMap primaryKeyMap = getPrimaryKeyMap(keyHigh);
+        synchronized (primaryKeyMap) {
+          int slot = primaryKeyMap.getSlot(keyHigh, keyLow);
+          if (slot != OffHeapHashedPrimaryKeyMap.INVALID_SLOT
+              && getSegmentId(primaryKeyMap.getValue1(slot)) == segmentId) {
+            primaryKeyMap.remove(slot);
+          }
+        }
+      }
+    } catch (Exception e) {
+      throw new RuntimeException(
+          String.format("Caught exception while removing segment: %s, table: %s", segment.getSegmentName(),
+              _tableNameWithType), e);
+    }
+  }
+
+  @Override
+  public void removeSegment(IndexSegment segment) {
+    super.removeSegment(segment);
+    // All the record locations of the segment have been removed (or the manager is already stopped)
+    releaseSegmentId(segment);
+  }
+
+  @Override
+  protected void doAddRecord(MutableSegment segment, RecordInfo recordInfo) {
+    ThreadSafeMutableRoaringBitmap validDocIds = Objects.requireNonNull(segment.getValidDocIds());
+    byte[] hashedKey = hashPrimaryKey(recordInfo.getPrimaryKey());
+    long keyHigh = OffHeapHashedPrimaryKeyMap.getKeyHigh(hashedKey);
+    long keyLow = OffHeapHashedPrimaryKeyMap.getKeyLow(hashedKey);
+    long newLocation = getLocation(getOrCreateSegmentId(segment), recordInfo.getDocId());
+    long newComparisonValue = encodeComparisonValue(recordInfo.getComparisonValue());
+    OffHeapHashedPrimaryKeyMap primaryKeyMap = getPrimaryKeyMap(keyHigh);
+    synchronized (primaryKeyMap) {
+      int slot = primaryKeyMap.getSlot(keyHigh, keyLow);
+      IndexSegment currentSegment =
+          slot != OffHeapHashedPrimaryKeyMap.INVALID_SLOT ? getSegment(primaryKeyMap.getValue1(slot)) : null;
+      if (currentSegment != null) {
+        // Existing primary key
+
+        // Update the record location when the new comparison value is greater than or equal to the current value.
+        // Update the record location when there is a tie to keep the newer record.
+        if (compareComparisonValues(newComparisonValue, primaryKeyMap.getValue2(slot)) >= 0) {
+          int currentDocId = getDocId(primaryKeyMap.getValue1(slot));
+          if (segment == currentSegment) {
+            validDocIds.replace(currentDocId, recordInfo.getDocId());
+          } else {
+            Objects.requireNonNull(currentSegment.getValidDocIds()).remove(currentDocId);
+            validDocIds.add(recordInfo.getDocId());
+          }
+          primaryKeyMap.setValues(slot, newLocation, newComparisonValue);
+        }
+      } else {
+        // New primary key
+        validDocIds.add(recordInfo.getDocId());
+        primaryKeyMap.put(keyHigh, keyLow, newLocation, newComparisonValue);
+      }
+    }
+
+    // Update metrics
+    _serverMetrics.setValueOfPartitionGauge(_tableNameWithType, _partitionId, ServerGauge.UPSERT_PRIMARY_KEYS_COUNT,
+        getNumPrimaryKeys());
+  }
+
+  @Override
+  protected GenericRow doUpdateRecord(GenericRow record, RecordInfo recordInfo) {
+    assert _partialUpsertHandler != null;
+    byte[] hashedKey = hashPrimaryKey(recordInfo.getPrimaryKey());
+    long keyHigh = OffHeapHashedPrimaryKeyMap.getKeyHigh(hashedKey);
+    long keyLow = OffHeapHashedPrimaryKeyMap.getKeyLow(hashedKey);
+    OffHeapHashedPrimaryKeyMap primaryKeyMap = getPrimaryKeyMap(keyHigh);
+    GenericRow previousRecord;
+    Comparable currentComparisonValue;
+    synchronized (primaryKeyMap) {
+      int slot = primaryKeyMap.getSlot(keyHigh, keyLow);
+      if (slot == OffHeapHashedPrimaryKeyMap.INVALID_SLOT) {
+        // New primary key
+        return record;
+      }
+      long currentLocation = primaryKeyMap.getValue1(slot);
+      IndexSegment currentSegment = getSegment(currentLocation);
+      if (currentSegment == null) {
+        // New primary key
+        return record;
+      }
+      long encodedComparisonValue = primaryKeyMap.getValue2(slot);
+      if (compareComparisonValues(encodeComparisonValue(recordInfo.getComparisonValue()), encodedComparisonValue)
+          >= 0) {
+        _reuse.clear();
+        previousRecord = currentSegment.getRecord(getDocId(currentLocation), _reuse);
+        currentComparisonValue = null;
+      } else {
+        previousRecord = null;
+        currentComparisonValue = decodeComparisonValue(encodedComparisonValue);
+      }
+    }
+    // Existing primary key
+    if (previousRecord != null) {
+      return _partialUpsertHandler.merge(previousRecord, record);
+    } else {
+      handleOutOfOrderEvent(currentComparisonValue, recordInfo.getComparisonValue());
+      return record;
+    }
+  }
+
+  @VisibleForTesting
+  @Nullable
+  RecordLocation getRecordLocation(PrimaryKey primaryKey) {
+    byte[] hashedKey = hashPrimaryKey(primaryKey);
+    long keyHigh = OffHeapHashedPrimaryKeyMap.getKeyHigh(hashedKey);
+    long keyLow = OffHeapHashedPrimaryKeyMap.getKeyLow(hashedKey);
+    OffHeapHashedPrimaryKeyMap primaryKeyMap = getPrimaryKeyMap(keyHigh);
+    synchronized (primaryKeyMap) {
+      int slot = primaryKeyMap.getSlot(keyHigh, keyLow);
+      if (slot == OffHeapHashedPrimaryKeyMap.INVALID_SLOT) {
+        return null;
+      }
+      long location = primaryKeyMap.getValue1(slot);
+      IndexSegment segment = getSegment(location);
+      return segment != null ? new RecordLocation(segment, getDocId(location),
+          decodeComparisonValue(primaryKeyMap.getValue2(slot))) : null;
+    }
+  }
+
+  @Override
+  protected void doClose()
+      throws IOException {
+    for (OffHeapHashedPrimaryKeyMap primaryKeyMap : _primaryKeyMaps) {
+      synchronized (primaryKeyMap) {
+        primaryKeyMap.close();
+      }
+    }
+    _segmentToIdMap.clear();
+    _idToSegmentMap.clear();
+  }
+}
@@ -0,0 +1,81 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.segment.local.data.manager.TableDataManager;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.data.FieldSpec;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+
+
+/**
+ * Implementation of {@link TableUpsertMetadataManager} that keeps the primary keys off-heap. See
+ * {@link OffHeapPartitionUpsertMetadataManager} for details.
+ * <p>Can be enabled by setting the {@code metadataManagerClass} in the upsert config to this class.
+ */
+@ThreadSafe
+public class OffHeapTableUpsertMetadataManager extends BaseTableUpsertMetadataManager {
+  private final Map<Integer, OffHeapPartitionUpsertMetadataManager> _partitionMetadataManagerMap =
+      new ConcurrentHashMap<>();
+  private DataType _comparisonColumnDataType;
+
+  @Override
+  public void init(TableConfig tableConfig, Schema schema, TableDataManager tableDataManager,
+      ServerMetrics serverMetrics) {
+    super.init(tableConfig, schema, tableDataManager, serverMetrics);
+    Preconditions.checkArgument(_comparisonColumns.size() == 1,
+        "Off-heap upsert metadata manager only supports single comparison column, got: %s for table: %s",
+        _comparisonColumns, _tableNameWithType);
+    String comparisonColumn = _comparisonColumns.get(0);
+    FieldSpec fieldSpec = schema.getFieldSpecFor(comparisonColumn);
+    Preconditions.checkArgument(fieldSpec != null && fieldSpec.isSingleValueField(),
+        "Comparison column: %s must be a single-value column in the schema for table: %s", comparisonColumn,
+        _tableNameWithType);
+    _comparisonColumnDataType = fieldSpec.getDataType();
+  }
+
+  @Override
+  public OffHeapPartitionUpsertMetadataManager getOrCreatePartitionManager(int partitionId) {
+    return _partitionMetadataManagerMap.computeIfAbsent(partitionId,
+        k -> new OffHeapPartitionUpsertMetadataManager(_tableNameWithType, k, _primaryKeyColumns, _comparisonColumns,
+            _comparisonColumnDataType, _hashFunction, _partialUpsertHandler, _enableSnapshot, _serverMetrics));
+  }
+
+  @Override
+  public void stop() {
+    for (OffHeapPartitionUpsertMetadataManager metadataManager : _partitionMetadataManagerMap.values()) {
+      metadataManager.stop();
+    }
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    for (OffHeapPartitionUpsertMetadataManager metadataManager : _partitionMetadataManagerMap.values()) {
+      metadataManager.close();
+    }
+  }
+}
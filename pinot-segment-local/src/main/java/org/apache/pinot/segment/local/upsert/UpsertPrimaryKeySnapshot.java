@@ -0,0 +1,227 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import com.google.common.hash.Hashing;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.V1Constants;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+import org.apache.pinot.segment.spi.store.SegmentDirectoryPaths;
+import org.apache.pinot.spi.config.table.HashFunction;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The {@code UpsertPrimaryKeySnapshot} persists the hashed primary key and the encoded comparison value of the
+ * documents of an immutable segment, so that the upsert metadata can be rebuilt on server restart without reading and
+ * hashing the primary key and comparison columns of the segment.
+ * <p>Because the primary key and comparison value of a document never change within an immutable segment, the
+ * snapshot stays valid as long as the segment CRC and the upsert config (primary key columns, comparison columns, hash
+ * function and comparison value encoding, recorded in the header as a fingerprint) are unchanged. The documents to be
+ * added are still decided by the valid doc ids snapshot.
+ * <p>File format (big-endian):
+ * <ul>
+ *   <li>Header: magic number (int), version (int), segment CRC (long), upsert config fingerprint (long)</li>
+ *   <li>Entries: doc id (int), primary key hash high bits (long), primary key hash low bits (long), comparison value
+ *   (long)</li>
+ * </ul>
+ */
+public class UpsertPrimaryKeySnapshot {
+  private UpsertPrimaryKeySnapshot() {
+  }
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(UpsertPrimaryKeySnapshot.class);
+
+  public static final int MAGIC_NUMBER = 0x55504B53; // "UPKS"
+  public static final int VERSION = 2;
+  public static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES;
+  public static final int ENTRY_SIZE = Integer.BYTES + Long.BYTES + Long.BYTES + Long.BYTES;
+
+  public static File getSnapshotFile(ImmutableSegment segment) {
+    return new File(SegmentDirectoryPaths.findSegmentDirectory(segment.getSegmentMetadata().getIndexDir()),
+        V1Constants.UPSERT_PRIMARY_KEYS_SNAPSHOT_FILE_NAME);
+  }
+
+  /**
+   * Returns the segment CRC as long, or {@code null} if it is not available.
+   */
+  @Nullable
+  public static Long getSegmentCrc(ImmutableSegment segment) {
+    try {
+      return Long.parseLong(segment.getSegmentMetadata().getCrc());
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the fingerprint of the upsert config the snapshot entries depend on. The snapshot persisted with a
+   * different fingerprint hashes the primary keys or encodes the comparison values differently, and cannot be reused.
+   */
+  public static long getConfigFingerprint(List<String> primaryKeyColumns, List<String> comparisonColumns,
+      HashFunction hashFunction, DataType comparisonValueType) {
+    String config = "primaryKeyColumns=" + primaryKeyColumns + ",comparisonColumns=" + comparisonColumns
+        + ",hashFunction=" + hashFunction + ",comparisonValueType=" + comparisonValueType;
+    return Hashing.murmur3_128().hashString(config, StandardCharsets.UTF_8).asLong();
+  }
+
+  public static void deleteSnapshot(ImmutableSegment segment) {
+    File snapshotFile = getSnapshotFile(segment);
+    if (snapshotFile.exists() && !FileUtils.deleteQuietly(snapshotFile)) {
+      LOGGER.warn("Cannot delete primary key snapshot file: {}", snapshotFile);
+    }
+  }
+
+  /**
+   * Opens the snapshot file for read. Returns {@code null} if the file does not exist, or was persisted for a
+   * different segment CRC or upsert config.
+   */
+  @Nullable
+  public static Reader openReader(File snapshotFile, long segmentCrc, long configFingerprint) {
+    if (!snapshotFile.exists()) {
+      return null;
+    }
+    PinotDataBuffer dataBuffer;
+    try {
+      dataBuffer = PinotDataBuffer.mapReadOnlyBigEndianFile(snapshotFile);
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while mapping primary key snapshot file: {}, ignoring the snapshot", snapshotFile,
+          e);
+      return null;
+    }
+    long size = dataBuffer.size();
+    if (size < HEADER_SIZE || (size - HEADER_SIZE) % ENTRY_SIZE != 0 || dataBuffer.getInt(0) != MAGIC_NUMBER
+        || dataBuffer.getInt(Integer.BYTES) != VERSION || dataBuffer.getLong(2 * Integer.BYTES) != segmentCrc
+        || dataBuffer.getLong(2 * Integer.BYTES + Long.BYTES) != configFingerprint) {
+      LOGGER.info("Primary key snapshot file: {} does not match the segment, ignoring the snapshot", snapshotFile);
+      closeQuietly(dataBuffer);
+      return null;
+    }
+    return new Reader(dataBuffer, (int) ((size - HEADER_SIZE) / ENTRY_SIZE));
+  }
+
+  private static void closeQuietly(PinotDataBuffer dataBuffer) {
+    try {
+      dataBuffer.close();
+    } catch (IOException e) {
+      LOGGER.warn("Caught exception while closing the primary key snapshot buffer", e);
+    }
+  }
+
+  public static class Reader implements Closeable {
+    private final PinotDataBuffer _dataBuffer;
+    private final int _numEntries;
+
+    private Reader(PinotDataBuffer dataBuffer, int numEntries) {
+      _dataBuffer = dataBuffer;
+      _numEntries = numEntries;
+    }
+
+    public int getNumEntries() {
+      return _numEntries;
+    }
+
+    private static long getEntryOffset(int index) {
+      return HEADER_SIZE + (long) index * ENTRY_SIZE;
+    }
+
+    public int getDocId(int index) {
+      return _dataBuffer.getInt(getEntryOffset(index));
+    }
+
+    public long getKeyHigh(int index) {
+      return _dataBuffer.getLong(getEntryOffset(index) + Integer.BYTES);
+    }
+
+    public long getKeyLow(int index) {
+      return _dataBuffer.getLong(getEntryOffset(index) + Integer.BYTES + Long.BYTES);
+    }
+
+    public long getComparisonValue(int index) {
+      return _dataBuffer.getLong(getEntryOffset(index) + Integer.BYTES + 2 * Long.BYTES);
+    }
+
+    @Override
+    public void close()
+        throws IOException {
+      _dataBuffer.close();
+    }
+  }
+
+  /**
+   * Writes the snapshot into a temporary file, which replaces the snapshot file on {@link #commit()}. The temporary
+   * file is deleted if the writer is closed without committing.
+   */
+  public static class Writer implements Closeable {
+    private final File _snapshotFile;
+    private final File _tempFile;
+    private final DataOutputStream _dataOutputStream;
+    private boolean _committed;
+
+    public Writer(File snapshotFile, long segmentCrc, long configFingerprint)
+        throws IOException {
+      _snapshotFile = snapshotFile;
+      _tempFile = new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".tmp");
+      _dataOutputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(_tempFile)));
+      _dataOutputStream.writeInt(MAGIC_NUMBER);
+      _dataOutputStream.writeInt(VERSION);
+      _dataOutputStream.writeLong(segmentCrc);
+      _dataOutputStream.writeLong(configFingerprint);
+    }
+
+    public void add(int docId, long keyHigh, long keyLow, long comparisonValue)
+        throws IOException {
+      _dataOutputStream.writeInt(docId);
+      _dataOutputStream.writeLong(keyHigh);
+      _dataOutputStream.writeLong(keyLow);
+      _dataOutputStream.writeLong(comparisonValue);
+    }
+
+    public void commit()
+        throws IOException {
+      _dataOutputStream.close();
+      Files.move(_tempFile.toPath(), _snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      _committed = true;
+    }
+
+    @Override
+    public void close()
+        throws IOException {
+      if (!_committed) {
+        _dataOutputStream.close();
+        FileUtils.deleteQuietly(_tempFile);
+      }
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.utils;
+
+import com.clearspring.analytics.stream.cardinality.HyperLogLog;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.apache.pinot.segment.local.segment.creator.impl.stats.EquiDepthHistogramBuilder;
+import org.apache.pinot.segment.spi.index.metadata.EquiDepthHistogram;
+
+
+/**
+ * Aggregates the column histograms and NDV sketches across segments (or across servers), e.g. to provide table level
+ * column stats for query planning.
+ */
+public class ColumnStatsAggregator {
+  private final Map<String, List<EquiDepthHistogram>> _histogramsMap = new HashMap<>();
+  private final Map<String, List<byte[]>> _ndvSketchesMap = new HashMap<>();
+  private Map<String, HyperLogLog> _mergedNdvSketches;
+
+  public void addHistogram(String column, @Nullable EquiDepthHistogram histogram) {
+    if (histogram != null) {
+      _histogramsMap.computeIfAbsent(column, k -> new ArrayList<>()).add(histogram);
+    }
+  }
+
+  public void addNdvSketch(String column, @Nullable byte[] ndvSketch) {
+    if (ndvSketch != null) {
+      _mergedNdvSketches = null;
+      _ndvSketchesMap.computeIfAbsent(column, k -> new ArrayList<>()).add(ndvSketch);
+    }
+  }
+
+  public void addHistograms(@Nullable Map<String, EquiDepthHistogram> histogramMap) {
+    if (histogramMap != null) {
+      histogramMap.forEach(this::addHistogram);
+    }
+  }
+
+  public void addNdvSketches(@Nullable Map<String, byte[]> ndvSketchMap) {
+    if (ndvSketchMap != null) {
+      ndvSketchMap.forEach(this::addNdvSketch);
+    }
+  }
+
+  /**
+   * Returns the merged histogram for each column.
+   */
+  public Map<String, EquiDepthHistogram> getHistogramMap() {
+    Map<String, EquiDepthHistogram> histogramMap = new HashMap<>();
+    for (Map.Entry<String, List<EquiDepthHistogram>> entry : _histogramsMap.entrySet()) {
+      EquiDepthHistogram histogram =
+          EquiDepthHistogram.merge(entry.getValue(), EquiDepthHistogramBuilder.DEFAULT_NUM_BUCKETS);
+      if (histogram != null) {
+        histogramMap.put(entry.getKey(), histogram);
+      }
+    }
+    return histogramMap;
+  }
+
+  /**
+   * Returns the merged serialized NDV sketch for each column.
+   */
+  public Map<String, byte[]> getNdvSketchMap() {
+    Map<String, byte[]> ndvSketchMap = new HashMap<>();
+    getMergedNdvSketches().forEach((column, hyperLogLog) -> ndvSketchMap.put(column,
+        NdvSketchUtils.serialize(hyperLogLog)));
+    return ndvSketchMap;
+  }
+
+  /**
+   * Returns the estimated number of distinct values for each column.
+   */
+  public Map<String, Double> getNdvMap() {
+    Map<String, Double> ndvMap = new HashMap<>();
+    getMergedNdvSketches().forEach((column, hyperLogLog) -> ndvMap.put(column, (double) hyperLogLog.cardinality()));
+    return ndvMap;
+  }
+
+  private Map<String, HyperLogLog> getMergedNdvSketches() {
+    if (_mergedNdvSketches == null) {
+      _mergedNdvSketches = new HashMap<>();
+      for (Map.Entry<String, List<byte[]>> entry : _ndvSketchesMap.entrySet()) {
+        _mergedNdvSketches.put(entry.getKey(), NdvSketchUtils.merge(entry.getValue()));
+      }
+    }
+    return _mergedNdvSketches;
+  }
+}
@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.utils;
+
+import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
+import com.clearspring.analytics.stream.cardinality.HyperLogLog;
+import javax.annotation.Nullable;
+import org.apache.pinot.spi.utils.ByteArray;
+
+
+/**
+ * Utility class for the NDV (number of distinct values) sketch of the columns stored in the segment metadata. The
+ * sketch is a {@link HyperLogLog} built with the same hashing as the {@code DISTINCTCOUNTHLL} aggregation function, so
+ * that it can be merged across segments to estimate the number of distinct values of the table.
+ */
+public class NdvSketchUtils {
+  private NdvSketchUtils() {
+  }
+
+  // Keep the sketch small (~180 bytes) as it is stored for each column in the segment metadata, which gives ~6.5%
+  // standard error
+  public static final int LOG2M = 8;
+
+  /**
+   * Builds the serialized sketch from the unique values of the column (as returned by
+   * {@link org.apache.pinot.segment.spi.creator.ColumnStatistics#getUniqueValuesSet()}).
+   */
+  @Nullable
+  public static byte[] buildSketch(@Nullable Object uniqueValues) {
+    if (uniqueValues == null) {
+      return null;
+    }
+    HyperLogLog hyperLogLog = new HyperLogLog(LOG2M);
+    if (uniqueValues instanceof int[]) {
+      for (int value : (int[]) uniqueValues) {
+        hyperLogLog.offer(value);
+      }
+    } else if (uniqueValues instanceof long[]) {
+      for (long value : (long[]) uniqueValues) {
+        hyperLogLog.offer(value);
+      }
+    } else if (uniqueValues instanceof float[]) {
+      for (float value : (float[]) uniqueValues) {
+        hyperLogLog.offer(value);
+      }
+    } else if (uniqueValues instanceof double[]) {
+      for (double value : (double[]) uniqueValues) {
+        hyperLogLog.offer(value);
+      }
+    } else if (uniqueValues instanceof Object[]) {
+      for (Object value : (Object[]) uniqueValues) {
+        hyperLogLog.offer(value instanceof ByteArray ? ((ByteArray) value).getBytes() : value);
+      }
+    } else {
+      return null;
+    }
+    return serialize(hyperLogLog);
+  }
+
+  public static byte[] serialize(HyperLogLog hyperLogLog) {
+    return CustomSerDeUtils.HYPER_LOG_LOG_SER_DE.serialize(hyperLogLog);
+  }
+
+  public static HyperLogLog deserialize(byte[] bytes) {
+    return CustomSerDeUtils.HYPER_LOG_LOG_SER_DE.deserialize(bytes);
+  }
+
+  /**
+   * Merges the serialized sketches, or returns {@code null} if there is no sketch to merge.
+   */
+  @Nullable
+  public static HyperLogLog merge(Iterable<byte[]> sketches) {
+    HyperLogLog result = null;
+    for (byte[] sketch : sketches) {
+      HyperLogLog hyperLogLog = deserialize(sketch);
+      if (result == null) {
+        result = hyperLogLog;
+      } else {
+        try {
+          result.addAll(hyperLogLog);
+        } catch (CardinalityMergeException e) {
+          throw new IllegalStateException("Caught exception while merging the NDV sketches", e);
+        }
+      }
+    }
+    return result;
+  }
+}
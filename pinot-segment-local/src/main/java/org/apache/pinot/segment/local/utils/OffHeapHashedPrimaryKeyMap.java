@@ -0,0 +1,285 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.utils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Longs;
+import it.unimi.dsi.fastutil.HashCommon;
+import java.io.Closeable;
+import java.io.IOException;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+
+
+/**
+ * Off-heap open addressing hash map from 128-bit hashed primary keys (e.g. MD5 or MURMUR3 hash of the primary key) to
+ * a pair of long values.
+ * <p>The entries are stored in a direct memory buffer with linear probing, and deleted with backward shift so that no
+ * tombstone is needed. Each slot takes {@link #SLOT_SIZE} bytes for the key and values, plus 1 byte for the occupied
+ * flag. The map doubles its capacity when the load factor exceeds {@link #LOAD_FACTOR}.
+ * <p>The map is not thread-safe. Concurrent access should be guarded by the caller, e.g. with lock striping over
+ * multiple maps.
+ */
+@NotThreadSafe
+public class OffHeapHashedPrimaryKeyMap implements Closeable {
+  public static final int KEY_SIZE = 16;
+  public static final int INVALID_SLOT = -1;
+
+  private static final int SLOT_SIZE = 32;
+  private static final int KEY_HIGH_OFFSET = 0;
+  private static final int KEY_LOW_OFFSET = 8;
+  private static final int VALUE1_OFFSET = 16;
+  private static final int VALUE2_OFFSET = 24;
+  private static final float LOAD_FACTOR = 0.75f;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private final String _description;
+
+  private PinotDataBuffer _buffer;
+  private int _capacity;
+  private int _mask;
+  private long _occupiedFlagsOffset;
+  private int _maxSize;
+  private int _size;
+
+  public OffHeapHashedPrimaryKeyMap(int initialCapacity, String description) {
+    _description = description;
+    allocate(HashCommon.nextPowerOfTwo(Math.max(initialCapacity, Long.BYTES)));
+  }
+
+  private void allocate(int capacity) {
+    _capacity = capacity;
+    _mask = capacity - 1;
+    _occupiedFlagsOffset = (long) capacity * SLOT_SIZE;
+    _maxSize = (int) (capacity * LOAD_FACTOR);
+    // NOTE: The contents of the direct buffer are not defined, so the occupied flags need to be explicitly reset
+    _buffer = PinotDataBuffer.allocateDirect(_occupiedFlagsOffset + capacity, PinotDataBuffer.NATIVE_ORDER,
+        _description);
+    for (long offset = _occupiedFlagsOffset; offset < _occupiedFlagsOffset + capacity; offset += Long.BYTES) {
+      _buffer.putLong(offset, 0L);
+    }
+  }
+
+  /**
+   * Returns the high 8 bytes of the given 16 bytes hashed key.
+   */
+  public static long getKeyHigh(byte[] hashedKey) {
+    return Longs.fromBytes(hashedKey[0], hashedKey[1], hashedKey[2], hashedKey[3], hashedKey[4], hashedKey[5],
+        hashedKey[6], hashedKey[7]);
+  }
+
+  /**
+   * Returns the low 8 bytes of the given 16 bytes hashed key.
+   */
+  public static long getKeyLow(byte[] hashedKey) {
+    return Longs.fromBytes(hashedKey[8], hashedKey[9], hashedKey[10], hashedKey[11], hashedKey[12], hashedKey[13],
+        hashedKey[14], hashedKey[15]);
+  }
+
+  private int getBucket(long keyHigh, long keyLow) {
+    return (int) HashCommon.mix(keyHigh ^ keyLow) & _mask;
+  }
+
+  private boolean isOccupied(int slot) {
+    return _buffer.getByte(_occupiedFlagsOffset + slot) != 0;
+  }
+
+  private long getSlotOffset(int slot) {
+    return (long) slot * SLOT_SIZE;
+  }
+
+  /**
+   * Returns the slot of the given key, or {@link #INVALID_SLOT} if the key does not exist. The slot is only valid until
+   * the next modification of the map.
+   */
+  public int getSlot(long keyHigh, long keyLow) {
+    int slot = getBucket(keyHigh, keyLow);
+    while (isOccupied(slot)) {
+      long slotOffset = getSlotOffset(slot);
+      if (_buffer.getLong(slotOffset + KEY_HIGH_OFFSET) == keyHigh
+          && _buffer.getLong(slotOffset + KEY_LOW_OFFSET) == keyLow) {
+        return slot;
+      }
+      slot = (slot + 1) & _mask;
+    }
+    return INVALID_SLOT;
+  }
+
+  public long getValue1(int slot) {
+    return _buffer.getLong(getSlotOffset(slot) + VALUE1_OFFSET);
+  }
+
+  public long getValue2(int slot) {
+    return _buffer.getLong(getSlotOffset(slot) + VALUE2_OFFSET);
+  }
+
+  /**
+   * Updates the values of an existing slot.
+   */
+  public void setValues(int slot, long value1, long value2) {
+    long slotOffset = getSlotOffset(slot);
+    _buffer.putLong(slotOffset + VALUE1_OFFSET, value1);
+    _buffer.putLong(slotOffset + VALUE2_OFFSET, value2);
+  }
+
+  /**
+   * Puts the given key and values into the map, replacing the existing values if the key already exists.
+   */
+  public void put(long keyHigh, long keyLow, long value1, long value2) {
+    int slot = getBucket(keyHigh, keyLow);
+    while (isOccupied(slot)) {
+      long slotOffset = getSlotOffset(slot);
+      if (_buffer.getLong(slotOffset + KEY_HIGH_OFFSET) == keyHigh
+          && _buffer.getLong(slotOffset + KEY_LOW_OFFSET) == keyLow) {
+        setValues(slot, value1, value2);
+        return;
+      }
+      slot = (slot + 1) & _mask;
+    }
+    writeSlot(slot, keyHigh, keyLow, value1, value2);
+    if (++_size > _maxSize) {
+      resize();
+    }
+  }
+
+  private void writeSlot(int slot, long keyHigh, long keyLow, long value1, long value2) {
+    long slotOffset = getSlotOffset(slot);
+    _buffer.putLong(slotOffset + KEY_HIGH_OFFSET, keyHigh);
+    _buffer.putLong(slotOffset + KEY_LOW_OFFSET, keyLow);
+    _buffer.putLong(slotOffset + VALUE1_OFFSET, value1);
+    _buffer.putLong(slotOffset + VALUE2_OFFSET, value2);
+    _buffer.putByte(_occupiedFlagsOffset + slot, (byte) 1);
+  }
+
+  /**
+   * Removes the entry at the given slot. Entries after the removed slot in the same probe sequence are shifted back to
+   * keep the probe sequences contiguous.
+   */
+  public void remove(int slot) {
+    int emptySlot = slot;
+    int currentSlot = slot;
+    while (true) {
+      currentSlot = (currentSlot + 1) & _mask;
+      if (!isOccupied(currentSlot)) {
+        break;
+      }
+      long currentSlotOffset = getSlotOffset(currentSlot);
+      long keyHigh = _buffer.getLong(currentSlotOffset + KEY_HIGH_OFFSET);
+      long keyLow = _buffer.getLong(currentSlotOffset + KEY_LOW_OFFSET);
+      int bucket = getBucket(keyHigh, keyLow);
+      // Move the entry to the empty slot if its bucket is not cyclically within (emptySlot, currentSlot]
+      boolean shift = emptySlot <= currentSlot ? (bucket <= emptySlot || bucket > currentSlot)
+          : (bucket <= emptySlot && bucket > currentSlot);
+      if (shift) {
+        writeSlot(emptySlot, keyHigh, keyLow, _buffer.getLong(currentSlotOffset + VALUE1_OFFSET),
+            _buffer.getLong(currentSlotOffset + VALUE2_OFFSET));
+        emptySlot = currentSlot;
+      }
+    }
+    _buffer.putByte(_occupiedFlagsOffset + emptySlot, (byte) 0);
+    _size--;
+  }
+
+  /**
+   * Removes all the entries whose values match the given predicate, and returns the number of removed entries.
+   */
+  public int removeIf(ValuesPredicate predicate) {
+    return removeIf(predicate, 0, _capacity);
+  }
+
+  /**
+   * Removes the entries within the slots [fromSlot, toSlot) whose values match the given predicate, and returns the
+   * number of removed entries. This can be used to scan the map in multiple steps to bound the time spent in each step.
+   * <p>NOTE: Entries might be shifted across the slot range boundaries when the map is modified between the steps, so a
+   *          scan in multiple steps might miss some matching entries.
+   */
+  public int removeIf(ValuesPredicate predicate, int fromSlot, int toSlot) {
+    int numRemoved = 0;
+    int slot = fromSlot;
+    int endSlot = Math.min(toSlot, _capacity);
+    while (slot < endSlot) {
+      if (isOccupied(slot) && predicate.test(getValue1(slot), getValue2(slot))) {
+        // NOTE: Do not advance the slot because remove() might shift an unvisited entry into it. Entries shifted from
+        //       the beginning of the buffer (wrapped around) have already been visited, and checking them again is
+        //       harmless.
+        remove(slot);
+        numRemoved++;
+      } else {
+        slot++;
+      }
+    }
+    return numRemoved;
+  }
+
+  private void resize() {
+    Preconditions.checkState(_capacity < MAX_CAPACITY, "Cannot grow the map: %s beyond capacity: %s", _description,
+        _capacity);
+    PinotDataBuffer oldBuffer = _buffer;
+    int oldCapacity = _capacity;
+    long oldOccupiedFlagsOffset = _occupiedFlagsOffset;
+    allocate(oldCapacity << 1);
+    for (int oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+      if (oldBuffer.getByte(oldOccupiedFlagsOffset + oldSlot) != 0) {
+        long oldSlotOffset = getSlotOffset(oldSlot);
+        long keyHigh = oldBuffer.getLong(oldSlotOffset + KEY_HIGH_OFFSET);
+        long keyLow = oldBuffer.getLong(oldSlotOffset + KEY_LOW_OFFSET);
+        int slot = getBucket(keyHigh, keyLow);
+        while (isOccupied(slot)) {
+          slot = (slot + 1) & _mask;
+        }
+        writeSlot(slot, keyHigh, keyLow, oldBuffer.getLong(oldSlotOffset + VALUE1_OFFSET),
+            oldBuffer.getLong(oldSlotOffset + VALUE2_OFFSET));
+      }
+    }
+    try {
+      oldBuffer.close();
+    } catch (IOException e) {
+      throw new RuntimeException("Caught exception while closing the buffer for map: " + _description, e);
+    }
+  }
+
+  public int size() {
+    return _size;
+  }
+
+  /**
+   * Returns the number of slots of the map.
+   */
+  public int capacity() {
+    return _capacity;
+  }
+
+  /**
+   * Returns the off-heap memory used by the map in bytes.
+   */
+  public long getSizeInBytes() {
+    return _buffer.size();
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    _buffer.close();
+  }
+
+  @FunctionalInterface
+  public interface ValuesPredicate {
+    boolean test(long value1, long value2);
+  }
+}
@@ -564,6 +564,20 @@ public final class TableConfigUtils {
             && isRoutingStrategyAllowedForUpsert(tableConfig.getRoutingConfig()),
         "Upsert/Dedup table must use strict replica-group (i.e. strictReplicaGroup) based routing");
 
+    // specifically for dedup
+    if (isDedupEnabled && tableConfig.getDedupConfig().getMetadataTTL() > 0) {
+      String dedupTimeColumn = tableConfig.getDedupConfig().getDedupTimeColumn();
+      if (dedupTimeColumn == null) {
+        dedupTimeColumn = tableConfig.getValidationConfig().getTimeColumnName();
+      }
+      Preconditions.checkState(dedupTimeColumn != null,
+          "Dedup time column or table time column must be configured when dedup metadata TTL is enabled");
+      FieldSpec dedupTimeFieldSpec = schema.getFieldSpecFor(dedupTimeColumn);
+      Preconditions.checkState(dedupTimeFieldSpec != null && dedupTimeFieldSpec.isSingleValueField()
+              && dedupTimeFieldSpec.getDataType().isNumeric(),
+          "Dedup time column: %s must be a single-value numeric column in the schema", dedupTimeColumn);
+    }
+
     // specifically for upsert
     if (tableConfig.getUpsertMode() != UpsertConfig.Mode.NONE) {
 
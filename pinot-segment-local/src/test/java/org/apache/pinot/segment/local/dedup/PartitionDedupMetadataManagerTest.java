@@ -18,20 +18,21 @@
  */
 package org.apache.pinot.segment.local.dedup;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.common.utils.LLCSegmentName;
 import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentImpl;
 import org.apache.pinot.segment.local.upsert.RecordInfo;
-import org.apache.pinot.segment.local.utils.HashUtils;
 import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.spi.config.table.DedupConfig;
 import org.apache.pinot.spi.config.table.HashFunction;
 import org.apache.pinot.spi.data.readers.PrimaryKey;
 import org.apache.pinot.spi.utils.builder.TableNameBuilder;
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import static org.mockito.Mockito.mock;
@@ -44,12 +45,19 @@ public class PartitionDedupMetadataManagerTest {
   private static final String RAW_TABLE_NAME = "testTable";
   private static final String REALTIME_TABLE_NAME = TableNameBuilder.REALTIME.tableNameWithType(RAW_TABLE_NAME);
 
-  @Test
-  public void verifyAddRemoveSegment() {
+  @DataProvider
+  public static Object[][] keyStoreTypes() {
+    return new Object[][]{{DedupConfig.KeyStoreType.ON_HEAP}, {DedupConfig.KeyStoreType.OFF_HEAP}};
+  }
+
+  @Test(dataProvider = "keyStoreTypes")
+  public void verifyAddRemoveSegment(DedupConfig.KeyStoreType keyStoreType)
+      throws IOException {
     HashFunction hashFunction = HashFunction.NONE;
     TestMetadataManager metadataManager =
-        new TestMetadataManager(REALTIME_TABLE_NAME, null, 0, mock(ServerMetrics.class), hashFunction);
-    Map<Object, IndexSegment> recordLocationMap = metadataManager._primaryKeyToSegmentMap;
+        new TestMetadataManager(REALTIME_TABLE_NAME, null, 0, mock(ServerMetrics.class), hashFunction, keyStoreType,
+            null, 0);
+    DedupKeyStore recordLocationMap = metadataManager._keyStore;
 
     // Add the first segment
     List<PrimaryKey> pkList1 = new ArrayList<>();
@@ -68,15 +76,18 @@ public class PartitionDedupMetadataManagerTest {
 
     metadataManager._primaryKeyIterator = pkList1.iterator();
     metadataManager.removeSegment(segment1);
-    Assert.assertEquals(recordLocationMap.size(), 0);
+    Assert.assertEquals(recordLocationMap.getNumPrimaryKeys(), 0);
+    metadataManager.close();
   }
 
-  @Test
-  public void verifyReloadSegment() {
+  @Test(dataProvider = "keyStoreTypes")
+  public void verifyReloadSegment(DedupConfig.KeyStoreType keyStoreType)
+      throws IOException {
     HashFunction hashFunction = HashFunction.NONE;
     TestMetadataManager metadataManager =
-        new TestMetadataManager(REALTIME_TABLE_NAME, null, 0, mock(ServerMetrics.class), hashFunction);
-    Map<Object, IndexSegment> recordLocationMap = metadataManager._primaryKeyToSegmentMap;
+        new TestMetadataManager(REALTIME_TABLE_NAME, null, 0, mock(ServerMetrics.class), hashFunction, keyStoreType,
+            null, 0);
+    DedupKeyStore recordLocationMap = metadataManager._keyStore;
 
     // Add the first segment
     List<PrimaryKey> pkList1 = new ArrayList<>();
@@ -94,20 +105,23 @@ public class PartitionDedupMetadataManagerTest {
     metadataManager._primaryKeyIterator = pkList1.iterator();
     ImmutableSegmentImpl segment2 = mockSegment(1);
     metadataManager.removeSegment(segment2);
-    Assert.assertEquals(recordLocationMap.size(), 3);
+    Assert.assertEquals(recordLocationMap.getNumPrimaryKeys(), 3);
 
     // Keys should still exist
     checkRecordLocation(recordLocationMap, 0, segment1, hashFunction);
     checkRecordLocation(recordLocationMap, 1, segment1, hashFunction);
     checkRecordLocation(recordLocationMap, 2, segment1, hashFunction);
+    metadataManager.close();
   }
 
-  @Test
-  public void verifyAddRow() {
+  @Test(dataProvider = "keyStoreTypes")
+  public void verifyAddRow(DedupConfig.KeyStoreType keyStoreType)
+      throws IOException {
     HashFunction hashFunction = HashFunction.NONE;
     TestMetadataManager metadataManager =
-        new TestMetadataManager(REALTIME_TABLE_NAME, null, 0, mock(ServerMetrics.class), hashFunction);
-    Map<Object, IndexSegment> recordLocationMap = metadataManager._primaryKeyToSegmentMap;
+        new TestMetadataManager(REALTIME_TABLE_NAME, null, 0, mock(ServerMetrics.class), hashFunction, keyStoreType,
+            null, 0);
+    DedupKeyStore recordLocationMap = metadataManager._keyStore;
 
     // Add the first segment
     List<PrimaryKey> pkList1 = new ArrayList<>();
@@ -136,6 +150,44 @@ public class PartitionDedupMetadataManagerTest {
     // Same PK as the one recently ingested
     when(recordInfo.getPrimaryKey()).thenReturn(getPrimaryKey(3));
     Assert.assertTrue(metadataManager.checkRecordPresentOrUpdate(recordInfo.getPrimaryKey(), segment2));
+    metadataManager.close();
+  }
+
+  @Test(dataProvider = "keyStoreTypes")
+  public void verifyMetadataTTL(DedupConfig.KeyStoreType keyStoreType)
+      throws IOException {
+    HashFunction hashFunction = HashFunction.NONE;
+    TestMetadataManager metadataManager =
+        new TestMetadataManager(REALTIME_TABLE_NAME, null, 0, mock(ServerMetrics.class), hashFunction, keyStoreType,
+            "timeCol", 100);
+    DedupKeyStore recordLocationMap = metadataManager._keyStore;
+    ImmutableSegmentImpl segment1 = mockSegment(1);
+
+    Assert.assertFalse(metadataManager.checkRecordPresentOrUpdate(getPrimaryKey(0), 1000, segment1));
+    Assert.assertFalse(metadataManager.checkRecordPresentOrUpdate(getPrimaryKey(1), 1050, segment1));
+    Assert.assertEquals(metadataManager.getExpiryThreshold(), 950.0);
+
+    // Duplicate within the TTL window, even if the record itself is older than the window
+    Assert.assertTrue(metadataManager.checkRecordPresentOrUpdate(getPrimaryKey(0), 1020, segment1));
+    Assert.assertTrue(metadataManager.checkRecordPresentOrUpdate(getPrimaryKey(1), 900, segment1));
+
+    // Record older than the TTL window should not be added
+    Assert.assertFalse(metadataManager.checkRecordPresentOrUpdate(getPrimaryKey(2), 900, segment1));
+    Assert.assertEquals(recordLocationMap.getNumPrimaryKeys(), 2);
+
+    // Move the largest seen time to 1101 so that key 0 is expired and removed
+    ImmutableSegmentImpl segment2 = mockSegment(2);
+    Assert.assertFalse(metadataManager.checkRecordPresentOrUpdate(getPrimaryKey(3), 1101, segment2));
+    Assert.assertEquals(recordLocationMap.getNumPrimaryKeys(), 2);
+    Assert.assertNull(recordLocationMap.getSegment(getPrimaryKey(0)));
+    checkRecordLocation(recordLocationMap, 1, segment1, hashFunction);
+    checkRecordLocation(recordLocationMap, 3, segment2, hashFunction);
+
+    // Expired key is not a duplicate and should be added again
+    Assert.assertFalse(metadataManager.checkRecordPresentOrUpdate(getPrimaryKey(0), 1102, segment2));
+    checkRecordLocation(recordLocationMap, 0, segment2, hashFunction);
+    Assert.assertTrue(metadataManager.checkRecordPresentOrUpdate(getPrimaryKey(0), 1103, segment2));
+    metadataManager.close();
   }
 
   private static ImmutableSegmentImpl mockSegment(int sequenceNumber) {
@@ -153,9 +205,9 @@ public class PartitionDedupMetadataManagerTest {
     return new PrimaryKey(new Object[]{value});
   }
 
-  private static void checkRecordLocation(Map<Object, IndexSegment> recordLocationMap, int keyValue,
-      IndexSegment segment, HashFunction hashFunction) {
-    IndexSegment indexSegment = recordLocationMap.get(HashUtils.hashPrimaryKey(getPrimaryKey(keyValue), hashFunction));
+  private static void checkRecordLocation(DedupKeyStore recordLocationMap, int keyValue, IndexSegment segment,
+      HashFunction hashFunction) {
+    IndexSegment indexSegment = recordLocationMap.getSegment(getPrimaryKey(keyValue));
     assertNotNull(indexSegment);
     assertSame(indexSegment, segment);
   }
@@ -164,8 +216,10 @@ public class PartitionDedupMetadataManagerTest {
     Iterator<PrimaryKey> _primaryKeyIterator;
 
     TestMetadataManager(String tableNameWithType, List<String> primaryKeyColumns, int partitionId,
-        ServerMetrics serverMetrics, HashFunction hashFunction) {
-      super(tableNameWithType, primaryKeyColumns, partitionId, serverMetrics, hashFunction);
+        ServerMetrics serverMetrics, HashFunction hashFunction, DedupConfig.KeyStoreType keyStoreType,
+        String dedupTimeColumn, double metadataTTL) {
+      super(tableNameWithType, primaryKeyColumns, partitionId, serverMetrics, hashFunction, keyStoreType,
+          dedupTimeColumn, metadataTTL);
     }
 
     @Override
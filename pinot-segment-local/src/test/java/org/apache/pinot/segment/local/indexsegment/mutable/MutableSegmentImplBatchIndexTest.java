@@ -0,0 +1,186 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.indexsegment.mutable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.apache.pinot.segment.spi.datasource.DataSource;
+import org.apache.pinot.segment.spi.index.reader.Dictionary;
+import org.apache.pinot.segment.spi.index.reader.InvertedIndexReader;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+
+public class MutableSegmentImplBatchIndexTest {
+  private static final String INT_COLUMN = "intColumn";
+  private static final String STRING_COLUMN = "stringColumn";
+  private static final String RAW_STRING_COLUMN = "rawStringColumn";
+  private static final String MV_COLUMN = "mvColumn";
+  private static final String RAW_LONG_METRIC = "rawLongMetric";
+  private static final Set<String> NO_DICTIONARY_COLUMNS = new HashSet<>(Arrays.asList(RAW_STRING_COLUMN,
+      RAW_LONG_METRIC));
+  private static final Set<String> INVERTED_INDEX_COLUMNS = new HashSet<>(Arrays.asList(INT_COLUMN, MV_COLUMN));
+  private static final int NUM_ROWS = 1000;
+  private static final int BATCH_SIZE = 17;
+  private static final Random RANDOM = new Random();
+
+  private MutableSegmentImpl _rowSegment;
+  private MutableSegmentImpl _batchSegment;
+
+  @BeforeMethod
+  public void setUp() {
+    Schema schema = new Schema.SchemaBuilder().setSchemaName("testSchema")
+        .addSingleValueDimension(INT_COLUMN, DataType.INT)
+        .addSingleValueDimension(STRING_COLUMN, DataType.STRING)
+        .addSingleValueDimension(RAW_STRING_COLUMN, DataType.STRING)
+        .addMultiValueDimension(MV_COLUMN, DataType.STRING)
+        .addMetric(RAW_LONG_METRIC, DataType.LONG)
+        .build();
+    _rowSegment = MutableSegmentImplTestUtils.createMutableSegmentImpl(schema, NO_DICTIONARY_COLUMNS,
+        Collections.emptySet(), INVERTED_INDEX_COLUMNS, false);
+    _batchSegment = MutableSegmentImplTestUtils.createMutableSegmentImpl(schema, NO_DICTIONARY_COLUMNS,
+        Collections.emptySet(), INVERTED_INDEX_COLUMNS, false);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    _rowSegment.destroy();
+    _batchSegment.destroy();
+  }
+
+  @Test
+  public void testBatchIndex()
+      throws Exception {
+    List<GenericRow> rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      rows.add(generateRow());
+    }
+    for (GenericRow row : rows) {
+      assertTrue(_rowSegment.index(row, null));
+    }
+    for (int i = 0; i < NUM_ROWS; i += BATCH_SIZE) {
+      assertTrue(_batchSegment.index(rows.subList(i, Math.min(i + BATCH_SIZE, NUM_ROWS)), null));
+    }
+
+    assertEquals(_batchSegment.getNumDocsIndexed(), NUM_ROWS);
+    GenericRow expectedRow = new GenericRow();
+    GenericRow actualRow = new GenericRow();
+    for (int docId = 0; docId < NUM_ROWS; docId++) {
+      _rowSegment.getRecord(docId, expectedRow);
+      _batchSegment.getRecord(docId, actualRow);
+      assertEquals(actualRow, expectedRow);
+      expectedRow.clear();
+      actualRow.clear();
+    }
+
+    for (String column : _rowSegment.getPhysicalColumnNames()) {
+      DataSource expectedDataSource = _rowSegment.getDataSource(column);
+      DataSource actualDataSource = _batchSegment.getDataSource(column);
+      assertEquals(actualDataSource.getDataSourceMetadata().getNumValues(),
+          expectedDataSource.getDataSourceMetadata().getNumValues());
+      assertEquals(actualDataSource.getDataSourceMetadata().getMinValue(),
+          expectedDataSource.getDataSourceMetadata().getMinValue());
+      assertEquals(actualDataSource.getDataSourceMetadata().getMaxValue(),
+          expectedDataSource.getDataSourceMetadata().getMaxValue());
+
+      InvertedIndexReader<?> expectedInvertedIndex = expectedDataSource.getInvertedIndex();
+      if (expectedInvertedIndex != null) {
+        InvertedIndexReader<?> actualInvertedIndex = actualDataSource.getInvertedIndex();
+        Dictionary dictionary = expectedDataSource.getDictionary();
+        for (int dictId = 0; dictId < dictionary.length(); dictId++) {
+          assertEquals(actualInvertedIndex.getDocIds(dictId), expectedInvertedIndex.getDocIds(dictId));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testBatchIndexWithInvalidRow()
+      throws Exception {
+    List<GenericRow> rows = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      rows.add(generateRow());
+    }
+    assertTrue(_batchSegment.index(rows, null));
+
+    // None of the rows in the batch should be indexed when any of them cannot be indexed
+    List<GenericRow> invalidRows = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      invalidRows.add(generateRow());
+    }
+    invalidRows.get(BATCH_SIZE / 2).putValue(RAW_LONG_METRIC, "invalid");
+    try {
+      _batchSegment.index(invalidRows, null);
+      fail("Batch with invalid row should fail");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    assertEquals(_batchSegment.getNumDocsIndexed(), BATCH_SIZE);
+
+    // The valid rows can still be indexed one by one, overwriting the values added by the failed batch
+    invalidRows.remove(BATCH_SIZE / 2);
+    for (GenericRow row : invalidRows) {
+      _batchSegment.index(row, null);
+    }
+    rows.addAll(invalidRows);
+    assertEquals(_batchSegment.getNumDocsIndexed(), rows.size());
+    // The values of the failed batch should not be counted
+    int numMVValues = 0;
+    for (GenericRow row : rows) {
+      numMVValues += ((Object[]) row.getValue(MV_COLUMN)).length;
+    }
+    assertEquals(_batchSegment.getDataSource(MV_COLUMN).getDataSourceMetadata().getNumValues(), numMVValues);
+    GenericRow reuse = new GenericRow();
+    for (int docId = 0; docId < rows.size(); docId++) {
+      _batchSegment.getRecord(docId, reuse);
+      assertEquals(reuse.getValue(INT_COLUMN), rows.get(docId).getValue(INT_COLUMN));
+      assertEquals(reuse.getValue(RAW_STRING_COLUMN), rows.get(docId).getValue(RAW_STRING_COLUMN));
+      assertEquals(reuse.getValue(RAW_LONG_METRIC), rows.get(docId).getValue(RAW_LONG_METRIC));
+      reuse.clear();
+    }
+  }
+
+  private static GenericRow generateRow() {
+    GenericRow row = new GenericRow();
+    row.putValue(INT_COLUMN, RANDOM.nextInt(50));
+    row.putValue(STRING_COLUMN, "s" + RANDOM.nextInt(100));
+    row.putValue(RAW_STRING_COLUMN, "raw" + RANDOM.nextInt(1000));
+    int numValues = 1 + RANDOM.nextInt(3);
+    Object[] mvValues = new Object[numValues];
+    for (int i = 0; i < numValues; i++) {
+      mvValues[i] = "mv" + RANDOM.nextInt(20);
+    }
+    row.putValue(MV_COLUMN, mvValues);
+    row.putValue(RAW_LONG_METRIC, RANDOM.nextLong());
+    return row;
+  }
+}
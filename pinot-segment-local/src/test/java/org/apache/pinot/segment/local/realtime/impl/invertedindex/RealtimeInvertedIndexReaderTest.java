@@ -21,6 +21,7 @@ package org.apache.pinot.segment.local.realtime.impl.invertedindex;
 import org.roaringbitmap.buffer.MutableRoaringBitmap;
 import org.testng.annotations.Test;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
@@ -103,4 +104,25 @@ public class RealtimeInvertedIndexReaderTest {
     assertFalse(docIds.contains(1));
     assertTrue(docIds.contains(2));
   }
+
+  @Test
+  public void testBatchAdd() {
+    RealtimeInvertedIndex realtimeInvertedIndex = new RealtimeInvertedIndex();
+    realtimeInvertedIndex.add(0, 0);
+    realtimeInvertedIndex.add(new int[]{1, 0, 2, 1, 2, 2, 3}, new int[]{1, 1, 2, 2, 3, 4, 4}, 6);
+    assertEquals(realtimeInvertedIndex.getDocIds(0).toArray(), new int[]{0, 1});
+    assertEquals(realtimeInvertedIndex.getDocIds(1).toArray(), new int[]{1, 2});
+    assertEquals(realtimeInvertedIndex.getDocIds(2).toArray(), new int[]{2, 3, 4});
+    // Entries beyond the given length should not be added
+    assertTrue(realtimeInvertedIndex.getDocIds(3).isEmpty());
+
+    // Bitmaps should be added for the dictionary ids that are skipped
+    realtimeInvertedIndex.add(new int[]{5, 2}, new int[]{5, 5}, 2);
+    assertTrue(realtimeInvertedIndex.getDocIds(3).isEmpty());
+    assertTrue(realtimeInvertedIndex.getDocIds(4).isEmpty());
+    assertEquals(realtimeInvertedIndex.getDocIds(5).toArray(), new int[]{5});
+    assertEquals(realtimeInvertedIndex.getDocIds(2).toArray(), new int[]{2, 3, 4, 5});
+    realtimeInvertedIndex.add(3, 6);
+    assertEquals(realtimeInvertedIndex.getDocIds(3).toArray(), new int[]{6});
+  }
 }
@@ -21,16 +21,21 @@ package org.apache.pinot.segment.local.segment.creator.impl;
 import com.google.common.collect.ImmutableList;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentLoader;
+import org.apache.pinot.segment.local.segment.creator.impl.stats.EquiDepthHistogramBuilder;
 import org.apache.pinot.segment.local.segment.readers.GenericRowRecordReader;
+import org.apache.pinot.segment.local.utils.NdvSketchUtils;
+import org.apache.pinot.segment.spi.ColumnMetadata;
 import org.apache.pinot.segment.spi.IndexSegment;
 import org.apache.pinot.segment.spi.SegmentMetadata;
 import org.apache.pinot.segment.spi.V1Constants.MetadataKeys.Column;
 import org.apache.pinot.segment.spi.creator.SegmentGeneratorConfig;
+import org.apache.pinot.segment.spi.index.metadata.EquiDepthHistogram;
 import org.apache.pinot.spi.config.table.TableConfig;
 import org.apache.pinot.spi.config.table.TableType;
 import org.apache.pinot.spi.data.FieldSpec;
@@ -173,6 +178,61 @@ public class SegmentColumnarIndexCreatorTest {
     }
   }
 
+  @Test
+  public void testColumnStatsInMetadata()
+      throws Exception {
+    String intColumn = "intCol";
+    String stringColumn = "stringCol";
+    Schema schema = new Schema.SchemaBuilder().addSingleValueDimension(intColumn, FieldSpec.DataType.INT)
+        .addSingleValueDimension(stringColumn, FieldSpec.DataType.STRING).build();
+    TableConfig tableConfig = new TableConfigBuilder(TableType.OFFLINE).setTableName("test").build();
+
+    String segmentName = "columnStatsSegment";
+    String indexDirPath = new File(TEMP_DIR, segmentName).getAbsolutePath();
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(tableConfig, schema);
+    config.setOutDir(indexDirPath);
+    config.setSegmentName(segmentName);
+    try {
+      FileUtils.deleteQuietly(new File(indexDirPath));
+
+      int numRows = 1000;
+      List<GenericRow> rows = new ArrayList<>(numRows);
+      for (int i = 0; i < numRows; i++) {
+        GenericRow row = new GenericRow();
+        row.putValue(intColumn, i % 100);
+        row.putValue(stringColumn, "value" + i % 10);
+        rows.add(row);
+      }
+
+      SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+      driver.init(config, new GenericRowRecordReader(rows));
+      driver.build();
+      IndexSegment indexSegment = ImmutableSegmentLoader.load(new File(indexDirPath, segmentName), ReadMode.heap);
+      SegmentMetadata segmentMetadata = indexSegment.getSegmentMetadata();
+
+      ColumnMetadata intColumnMetadata = segmentMetadata.getColumnMetadataFor(intColumn);
+      EquiDepthHistogram histogram = intColumnMetadata.getHistogram();
+      Assert.assertNotNull(histogram);
+      Assert.assertEquals(histogram.getNumEntries(), numRows);
+      Assert.assertEquals(histogram.getNumBuckets(), EquiDepthHistogramBuilder.DEFAULT_NUM_BUCKETS);
+      Assert.assertEquals(histogram.getBoundaries()[0], 0.0);
+      Assert.assertEquals(histogram.getBoundaries()[histogram.getNumBuckets()], 99.0);
+      Assert.assertEquals(histogram.estimateSelectivity(0, 49), 0.5, 0.05);
+      byte[] ndvSketch = intColumnMetadata.getNdvSketch();
+      Assert.assertNotNull(ndvSketch);
+      Assert.assertEquals(NdvSketchUtils.deserialize(ndvSketch).cardinality(), 100, 10);
+
+      ColumnMetadata stringColumnMetadata = segmentMetadata.getColumnMetadataFor(stringColumn);
+      Assert.assertNull(stringColumnMetadata.getHistogram());
+      ndvSketch = stringColumnMetadata.getNdvSketch();
+      Assert.assertNotNull(ndvSketch);
+      Assert.assertEquals(NdvSketchUtils.deserialize(ndvSketch).cardinality(), 10, 1);
+      indexSegment.destroy();
+    } finally {
+      FileUtils.deleteQuietly(new File(indexDirPath));
+    }
+  }
+
   @Test
   public void testAddMinMaxValueInvalid() {
     PropertiesConfiguration props = new PropertiesConfiguration();
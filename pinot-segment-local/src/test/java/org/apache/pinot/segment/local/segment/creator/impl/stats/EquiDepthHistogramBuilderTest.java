@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.creator.impl.stats;
+
+import org.apache.pinot.segment.spi.index.metadata.EquiDepthHistogram;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+
+public class EquiDepthHistogramBuilderTest {
+
+  @Test
+  public void testBuild() {
+    EquiDepthHistogramBuilder builder = new EquiDepthHistogramBuilder();
+    assertNull(builder.build());
+    builder.add(Double.NaN);
+    assertNull(builder.build());
+
+    // Fewer values than buckets
+    builder.add(3);
+    builder.add(1);
+    EquiDepthHistogram histogram = builder.build();
+    assertNotNull(histogram);
+    assertEquals(histogram.getNumBuckets(), 2);
+    assertEquals(histogram.getNumEntries(), 2);
+    assertEquals(histogram.getBoundaries()[0], 1.0);
+    assertEquals(histogram.getBoundaries()[2], 3.0);
+  }
+
+  @Test
+  public void testSampling() {
+    // Uniform values far more than the sample buffer, in descending order to exercise the sampling
+    int numValues = 1_000_000;
+    EquiDepthHistogramBuilder builder = new EquiDepthHistogramBuilder();
+    for (int i = numValues - 1; i >= 0; i--) {
+      builder.add(i);
+    }
+    EquiDepthHistogram histogram = builder.build(10);
+    assertNotNull(histogram);
+    assertEquals(histogram.getNumEntries(), numValues);
+    assertEquals(histogram.getNumBuckets(), 10);
+    double[] boundaries = histogram.getBoundaries();
+    // Exact min/max
+    assertEquals(boundaries[0], 0.0);
+    assertEquals(boundaries[10], numValues - 1.0);
+    for (int i = 1; i < 10; i++) {
+      assertEquals(boundaries[i], i * numValues / 10.0, numValues * 0.01);
+    }
+    assertEquals(histogram.estimateSelectivity(0, numValues / 4.0), 0.25, 0.01);
+  }
+}
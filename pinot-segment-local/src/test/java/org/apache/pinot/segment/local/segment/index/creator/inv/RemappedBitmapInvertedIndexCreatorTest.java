@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.index.creator.inv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.local.realtime.impl.invertedindex.RealtimeInvertedIndex;
+import org.apache.pinot.segment.local.segment.creator.impl.inv.RemappedBitmapInvertedIndexCreator;
+import org.apache.pinot.segment.local.segment.index.readers.BitmapInvertedIndexReader;
+import org.apache.pinot.segment.spi.V1Constants;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+import org.roaringbitmap.RoaringBitmap;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+
+public class RemappedBitmapInvertedIndexCreatorTest {
+  private static final File INDEX_DIR =
+      new File(FileUtils.getTempDirectory(), "RemappedBitmapInvertedIndexCreatorTest");
+  private static final int NUM_DOCS = 1000;
+  private static final int CARDINALITY = 20;
+  private static final Random RANDOM = new Random();
+
+  @BeforeClass
+  public void setUp()
+      throws IOException {
+    FileUtils.forceMkdir(INDEX_DIR);
+  }
+
+  @AfterClass
+  public void tearDown()
+      throws IOException {
+    FileUtils.forceDelete(INDEX_DIR);
+  }
+
+  @Test
+  public void testRemapDictIds()
+      throws IOException {
+    testRemap("noReorder", false);
+  }
+
+  @Test
+  public void testRemapDictIdsAndDocIds()
+      throws IOException {
+    testRemap("reorder", true);
+  }
+
+  private void testRemap(String columnName, boolean reorder)
+      throws IOException {
+    // Reverse the dictIds
+    int[] dictIdMapping = new int[CARDINALITY];
+    for (int dictId = 0; dictId < CARDINALITY; dictId++) {
+      dictIdMapping[dictId] = CARDINALITY - 1 - dictId;
+    }
+    // Reverse the docIds if reordered
+    int[] sortedDocIds = null;
+    if (reorder) {
+      sortedDocIds = new int[NUM_DOCS];
+      for (int i = 0; i < NUM_DOCS; i++) {
+        sortedDocIds[i] = NUM_DOCS - 1 - i;
+      }
+    }
+
+    int[] dictIds = new int[NUM_DOCS];
+    RealtimeInvertedIndex mutableInvertedIndex = new RealtimeInvertedIndex();
+    for (int docId = 0; docId < NUM_DOCS; docId++) {
+      // Skip the last dictId so that it has an empty bitmap
+      dictIds[docId] = docId < CARDINALITY - 1 ? docId : RANDOM.nextInt(CARDINALITY - 1);
+      mutableInvertedIndex.add(dictIds[docId], docId);
+    }
+    try (RemappedBitmapInvertedIndexCreator creator = new RemappedBitmapInvertedIndexCreator(INDEX_DIR, columnName,
+        mutableInvertedIndex, dictIdMapping, sortedDocIds)) {
+      creator.seal();
+    }
+
+    RoaringBitmap[] expectedBitmaps = new RoaringBitmap[CARDINALITY];
+    for (int dictId = 0; dictId < CARDINALITY; dictId++) {
+      expectedBitmaps[dictId] = new RoaringBitmap();
+    }
+    for (int docId = 0; docId < NUM_DOCS; docId++) {
+      int newDocId = reorder ? NUM_DOCS - 1 - docId : docId;
+      expectedBitmaps[dictIdMapping[dictIds[docId]]].add(newDocId);
+    }
+    File invertedIndexFile =
+        new File(INDEX_DIR, columnName + V1Constants.Indexes.BITMAP_INVERTED_INDEX_FILE_EXTENSION);
+    try (PinotDataBuffer buffer = PinotDataBuffer.mapReadOnlyBigEndianFile(invertedIndexFile);
+        BitmapInvertedIndexReader reader = new BitmapInvertedIndexReader(buffer, CARDINALITY)) {
+      for (int dictId = 0; dictId < CARDINALITY; dictId++) {
+        assertEquals(reader.getDocIds(dictId).toRoaringBitmap(), expectedBitmaps[dictId]);
+      }
+    }
+  }
+}
@@ -0,0 +1,359 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.utils.LLCSegmentName;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentImpl;
+import org.apache.pinot.segment.local.upsert.ConcurrentMapPartitionUpsertMetadataManager.RecordLocation;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.MutableSegment;
+import org.apache.pinot.segment.spi.V1Constants;
+import org.apache.pinot.segment.spi.datasource.DataSource;
+import org.apache.pinot.segment.spi.index.metadata.SegmentMetadataImpl;
+import org.apache.pinot.segment.spi.index.mutable.ThreadSafeMutableRoaringBitmap;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReader;
+import org.apache.pinot.spi.config.table.HashFunction;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+import org.apache.pinot.spi.utils.builder.TableNameBuilder;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+
+public class OffHeapPartitionUpsertMetadataManagerTest {
+  private static final String RAW_TABLE_NAME = "testTable";
+  private static final String REALTIME_TABLE_NAME = TableNameBuilder.REALTIME.tableNameWithType(RAW_TABLE_NAME);
+
+  @Test
+  public void testAddReplaceRemoveSegment()
+      throws IOException {
+    verifyAddReplaceRemoveSegment(HashFunction.NONE);
+    verifyAddReplaceRemoveSegment(HashFunction.MD5);
+    verifyAddReplaceRemoveSegment(HashFunction.MURMUR3);
+  }
+
+  private void verifyAddReplaceRemoveSegment(HashFunction hashFunction)
+      throws IOException {
+    OffHeapPartitionUpsertMetadataManager upsertMetadataManager = createMetadataManager(hashFunction);
+
+    // Add the first segment
+    int[] primaryKeys = new int[]{0, 1, 2, 0, 1, 0};
+    int[] timestamps = new int[]{100, 100, 100, 80, 120, 100};
+    ThreadSafeMutableRoaringBitmap validDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    List<PrimaryKey> primaryKeys1 = getPrimaryKeyList(primaryKeys);
+    ImmutableSegmentImpl segment1 = mockImmutableSegment(1, validDocIds1, primaryKeys1);
+    List<RecordInfo> recordInfoList1 = getRecordInfoList(primaryKeys, timestamps);
+    upsertMetadataManager.addSegment(segment1, validDocIds1, recordInfoList1.iterator());
+    // segment1: 0 -> {5, 100}, 1 -> {4, 120}, 2 -> {2, 100}
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 3);
+    checkRecordLocation(upsertMetadataManager, 0, segment1, 5, 100);
+    checkRecordLocation(upsertMetadataManager, 1, segment1, 4, 120);
+    checkRecordLocation(upsertMetadataManager, 2, segment1, 2, 100);
+    assertEquals(validDocIds1.getMutableRoaringBitmap().toArray(), new int[]{2, 4, 5});
+
+    // Add the second segment
+    primaryKeys = new int[]{0, 1, 2, 3, 0};
+    timestamps = new int[]{100, 100, 120, 80, 80};
+    ThreadSafeMutableRoaringBitmap validDocIds2 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment2 = mockImmutableSegment(2, validDocIds2, getPrimaryKeyList(primaryKeys));
+    upsertMetadataManager.addSegment(segment2, validDocIds2, getRecordInfoList(primaryKeys, timestamps).iterator());
+    // segment1: 1 -> {4, 120}
+    // segment2: 0 -> {0, 100}, 2 -> {2, 120}, 3 -> {3, 80}
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 4);
+    checkRecordLocation(upsertMetadataManager, 0, segment2, 0, 100);
+    checkRecordLocation(upsertMetadataManager, 1, segment1, 4, 120);
+    checkRecordLocation(upsertMetadataManager, 2, segment2, 2, 120);
+    checkRecordLocation(upsertMetadataManager, 3, segment2, 3, 80);
+    assertEquals(validDocIds1.getMutableRoaringBitmap().toArray(), new int[]{4});
+    assertEquals(validDocIds2.getMutableRoaringBitmap().toArray(), new int[]{0, 2, 3});
+
+    // Replace (reload) the first segment
+    ThreadSafeMutableRoaringBitmap newValidDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl newSegment1 = mockImmutableSegment(1, newValidDocIds1, primaryKeys1);
+    upsertMetadataManager.replaceSegment(newSegment1, newValidDocIds1, recordInfoList1.iterator(), segment1);
+    // segment2: 0 -> {0, 100}, 2 -> {2, 120}, 3 -> {3, 80}
+    // new segment1: 1 -> {4, 120}
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 4);
+    checkRecordLocation(upsertMetadataManager, 0, segment2, 0, 100);
+    checkRecordLocation(upsertMetadataManager, 1, newSegment1, 4, 120);
+    checkRecordLocation(upsertMetadataManager, 2, segment2, 2, 120);
+    checkRecordLocation(upsertMetadataManager, 3, segment2, 3, 80);
+    assertEquals(newValidDocIds1.getMutableRoaringBitmap().toArray(), new int[]{4});
+    assertEquals(upsertMetadataManager._replacedSegments, Collections.singleton(segment1));
+
+    // Remove the original segment1, should be no-op
+    upsertMetadataManager.removeSegment(segment1);
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 4);
+    checkRecordLocation(upsertMetadataManager, 1, newSegment1, 4, 120);
+
+    // Remove segment2
+    upsertMetadataManager.removeSegment(segment2);
+    // new segment1: 1 -> {4, 120}
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 1);
+    assertNull(upsertMetadataManager.getRecordLocation(makePrimaryKey(0)));
+    checkRecordLocation(upsertMetadataManager, 1, newSegment1, 4, 120);
+    assertNull(upsertMetadataManager.getRecordLocation(makePrimaryKey(2)));
+    assertNull(upsertMetadataManager.getRecordLocation(makePrimaryKey(3)));
+
+    // Stop and close the metadata manager
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+  }
+
+  @Test
+  public void testAddRecord()
+      throws IOException {
+    OffHeapPartitionUpsertMetadataManager upsertMetadataManager = createMetadataManager(HashFunction.NONE);
+
+    // segment1: 0 -> {0, 100}, 1 -> {1, 120}, 2 -> {2, 100}
+    int[] primaryKeys = new int[]{0, 1, 2};
+    int[] timestamps = new int[]{100, 120, 100};
+    ThreadSafeMutableRoaringBitmap validDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment1 = mockImmutableSegment(1, validDocIds1, getPrimaryKeyList(primaryKeys));
+    upsertMetadataManager.addSegment(segment1, validDocIds1, getRecordInfoList(primaryKeys, timestamps).iterator());
+
+    ThreadSafeMutableRoaringBitmap validDocIds2 = new ThreadSafeMutableRoaringBitmap();
+    MutableSegment segment2 = mockMutableSegment(2, validDocIds2);
+    upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(3), 0, 100));
+    upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(2), 1, 120));
+    // Out-of-order record should be ignored
+    upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(1), 2, 100));
+    upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(0), 3, 100));
+    // Newer record in the same segment should replace the doc id
+    upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(3), 4, 100));
+
+    // segment1: 1 -> {1, 120}
+    // segment2: 0 -> {3, 100}, 2 -> {1, 120}, 3 -> {4, 100}
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 4);
+    checkRecordLocation(upsertMetadataManager, 0, segment2, 3, 100);
+    checkRecordLocation(upsertMetadataManager, 1, segment1, 1, 120);
+    checkRecordLocation(upsertMetadataManager, 2, segment2, 1, 120);
+    checkRecordLocation(upsertMetadataManager, 3, segment2, 4, 100);
+    assertEquals(validDocIds1.getMutableRoaringBitmap().toArray(), new int[]{1});
+    assertEquals(validDocIds2.getMutableRoaringBitmap().toArray(), new int[]{1, 3, 4});
+
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+  }
+
+  @Test
+  public void testAddSegmentFromSnapshot()
+      throws IOException {
+    File indexDir = new File(FileUtils.getTempDirectory(), "OffHeapPartitionUpsertMetadataManagerTest");
+    FileUtils.deleteQuietly(indexDir);
+    assertTrue(indexDir.mkdirs());
+    try {
+      // Add the segment by reading all the records, which should persist the primary key snapshot
+      // segment1: 0 -> {5, 100}, 1 -> {4, 120}, 2 -> {2, 100}
+      int[] primaryKeys = new int[]{0, 1, 2, 0, 1, 0};
+      int[] timestamps = new int[]{100, 100, 100, 80, 120, 100};
+      OffHeapPartitionUpsertMetadataManager upsertMetadataManager = createMetadataManager(HashFunction.NONE, true);
+      ThreadSafeMutableRoaringBitmap validDocIds = new ThreadSafeMutableRoaringBitmap();
+      ImmutableSegmentImpl segment = mockImmutableSegment(1, validDocIds, getPrimaryKeyList(primaryKeys));
+      mockSegmentMetadata(segment, indexDir, "12345");
+      upsertMetadataManager.addSegment(segment, validDocIds, getRecordInfoList(primaryKeys, timestamps).iterator());
+      assertEquals(validDocIds.getMutableRoaringBitmap().toArray(), new int[]{2, 4, 5});
+      assertTrue(new File(indexDir, V1Constants.UPSERT_PRIMARY_KEYS_SNAPSHOT_FILE_NAME).exists());
+      upsertMetadataManager.stop();
+      upsertMetadataManager.close();
+
+      // Add the segment with valid doc ids snapshot, where the primary keys should be loaded from the snapshot
+      // without reading the segment
+      upsertMetadataManager = createMetadataManager(HashFunction.NONE, true);
+      ImmutableSegmentImpl restartedSegment =
+          mockImmutableSegment(1, new ThreadSafeMutableRoaringBitmap(), Collections.emptyList());
+      mockSegmentMetadata(restartedSegment, indexDir, "12345");
+      when(restartedSegment.loadValidDocIdsFromSnapshot()).thenReturn(MutableRoaringBitmap.bitmapOf(2, 4));
+      upsertMetadataManager.addSegment(restartedSegment);
+      assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 2);
+      assertNull(upsertMetadataManager.getRecordLocation(makePrimaryKey(0)));
+      checkRecordLocation(upsertMetadataManager, 1, restartedSegment, 4, 120);
+      checkRecordLocation(upsertMetadataManager, 2, restartedSegment, 2, 100);
+      upsertMetadataManager.stop();
+      upsertMetadataManager.close();
+
+      // Snapshot should be ignored when the segment CRC or the upsert config changes
+      File snapshotFile = new File(indexDir, V1Constants.UPSERT_PRIMARY_KEYS_SNAPSHOT_FILE_NAME);
+      long configFingerprint = getConfigFingerprint(HashFunction.NONE, "timeCol");
+      assertNull(UpsertPrimaryKeySnapshot.openReader(snapshotFile, 23456L, configFingerprint));
+      assertNull(UpsertPrimaryKeySnapshot.openReader(snapshotFile, 12345L,
+          getConfigFingerprint(HashFunction.MD5, "timeCol")));
+      try (UpsertPrimaryKeySnapshot.Reader reader = UpsertPrimaryKeySnapshot.openReader(snapshotFile, 12345L,
+          configFingerprint)) {
+        assertNotNull(reader);
+        assertEquals(reader.getNumEntries(), primaryKeys.length);
+      }
+    } finally {
+      FileUtils.deleteQuietly(indexDir);
+    }
+  }
+
+  @Test
+  public void testRebuildSnapshotOnComparisonColumnChange()
+      throws IOException {
+    File indexDir = new File(FileUtils.getTempDirectory(), "OffHeapPartitionUpsertMetadataManagerTest");
+    FileUtils.deleteQuietly(indexDir);
+    assertTrue(indexDir.mkdirs());
+    try {
+      // Persist the primary key snapshot with comparison column: timeCol
+      // segment1: 0 -> {5, 100}, 1 -> {4, 120}, 2 -> {2, 100}
+      int[] primaryKeys = new int[]{0, 1, 2, 0, 1, 0};
+      int[] timestamps = new int[]{100, 100, 100, 80, 120, 100};
+      OffHeapPartitionUpsertMetadataManager upsertMetadataManager = createMetadataManager(HashFunction.NONE, true);
+      ThreadSafeMutableRoaringBitmap validDocIds = new ThreadSafeMutableRoaringBitmap();
+      ImmutableSegmentImpl segment = mockImmutableSegment(1, validDocIds, getPrimaryKeyList(primaryKeys));
+      mockSegmentMetadata(segment, indexDir, "12345");
+      upsertMetadataManager.addSegment(segment, validDocIds, getRecordInfoList(primaryKeys, timestamps).iterator());
+      upsertMetadataManager.stop();
+      upsertMetadataManager.close();
+
+      // Restart with comparison column: otherTimeCol, where the snapshot should be ignored, and the comparison values
+      // should be read from the segment (the mocked columns all return the primary key values)
+      upsertMetadataManager = createMetadataManager(HashFunction.NONE, "otherTimeCol", true);
+      ImmutableSegmentImpl restartedSegment =
+          mockImmutableSegment(1, new ThreadSafeMutableRoaringBitmap(), getPrimaryKeyList(primaryKeys));
+      mockSegmentMetadata(restartedSegment, indexDir, "12345");
+      when(restartedSegment.loadValidDocIdsFromSnapshot()).thenReturn(MutableRoaringBitmap.bitmapOf(2, 4));
+      upsertMetadataManager.addSegment(restartedSegment);
+      assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 2);
+      checkRecordLocation(upsertMetadataManager, 1, restartedSegment, 4, 1);
+      checkRecordLocation(upsertMetadataManager, 2, restartedSegment, 2, 2);
+      upsertMetadataManager.stop();
+      upsertMetadataManager.close();
+
+      // The snapshot should be rebuilt for the new comparison column
+      File snapshotFile = new File(indexDir, V1Constants.UPSERT_PRIMARY_KEYS_SNAPSHOT_FILE_NAME);
+      assertNull(UpsertPrimaryKeySnapshot.openReader(snapshotFile, 12345L,
+          getConfigFingerprint(HashFunction.NONE, "timeCol")));
+      try (UpsertPrimaryKeySnapshot.Reader reader = UpsertPrimaryKeySnapshot.openReader(snapshotFile, 12345L,
+          getConfigFingerprint(HashFunction.NONE, "otherTimeCol"))) {
+        assertNotNull(reader);
+        assertEquals(reader.getNumEntries(), 2);
+        assertEquals(reader.getDocId(0), 2);
+        assertEquals(reader.getComparisonValue(0), 2);
+        assertEquals(reader.getDocId(1), 4);
+        assertEquals(reader.getComparisonValue(1), 1);
+      }
+    } finally {
+      FileUtils.deleteQuietly(indexDir);
+    }
+  }
+
+  private static OffHeapPartitionUpsertMetadataManager createMetadataManager(HashFunction hashFunction) {
+    return createMetadataManager(hashFunction, false);
+  }
+
+  private static OffHeapPartitionUpsertMetadataManager createMetadataManager(HashFunction hashFunction,
+      boolean enableSnapshot) {
+    return createMetadataManager(hashFunction, "timeCol", enableSnapshot);
+  }
+
+  private static OffHeapPartitionUpsertMetadataManager createMetadataManager(HashFunction hashFunction,
+      String comparisonColumn, boolean enableSnapshot) {
+    return new OffHeapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0, Collections.singletonList("pk"),
+        Collections.singletonList(comparisonColumn), DataType.INT, hashFunction, null, enableSnapshot,
+        mock(ServerMetrics.class));
+  }
+
+  private static long getConfigFingerprint(HashFunction hashFunction, String comparisonColumn) {
+    return UpsertPrimaryKeySnapshot.getConfigFingerprint(Collections.singletonList("pk"),
+        Collections.singletonList(comparisonColumn), hashFunction, DataType.INT);
+  }
+
+  private static void mockSegmentMetadata(ImmutableSegmentImpl segment, File indexDir, String crc) {
+    SegmentMetadataImpl segmentMetadata = mock(SegmentMetadataImpl.class);
+    when(segmentMetadata.getIndexDir()).thenReturn(indexDir);
+    when(segmentMetadata.getCrc()).thenReturn(crc);
+    when(segment.getSegmentMetadata()).thenReturn(segmentMetadata);
+  }
+
+  private static List<RecordInfo> getRecordInfoList(int[] primaryKeys, int[] timestamps) {
+    List<RecordInfo> recordInfoList = new ArrayList<>();
+    for (int i = 0; i < primaryKeys.length; i++) {
+      recordInfoList.add(new RecordInfo(makePrimaryKey(primaryKeys[i]), i, timestamps[i]));
+    }
+    return recordInfoList;
+  }
+
+  private static List<PrimaryKey> getPrimaryKeyList(int[] primaryKeys) {
+    List<PrimaryKey> primaryKeyList = new ArrayList<>();
+    for (int primaryKey : primaryKeys) {
+      primaryKeyList.add(makePrimaryKey(primaryKey));
+    }
+    return primaryKeyList;
+  }
+
+  private static ImmutableSegmentImpl mockImmutableSegment(int sequenceNumber,
+      ThreadSafeMutableRoaringBitmap validDocIds, List<PrimaryKey> primaryKeys) {
+    ImmutableSegmentImpl segment = mock(ImmutableSegmentImpl.class);
+    when(segment.getSegmentName()).thenReturn(getSegmentName(sequenceNumber));
+    when(segment.getValidDocIds()).thenReturn(validDocIds);
+    DataSource dataSource = mock(DataSource.class);
+    when(segment.getDataSource(anyString())).thenReturn(dataSource);
+    ForwardIndexReader forwardIndex = mock(ForwardIndexReader.class);
+    when(forwardIndex.isSingleValue()).thenReturn(true);
+    when(forwardIndex.getStoredType()).thenReturn(DataType.INT);
+    when(forwardIndex.getInt(anyInt(), any())).thenAnswer(
+        invocation -> primaryKeys.get(invocation.getArgument(0)).getValues()[0]);
+    when(dataSource.getForwardIndex()).thenReturn(forwardIndex);
+    return segment;
+  }
+
+  private static MutableSegment mockMutableSegment(int sequenceNumber, ThreadSafeMutableRoaringBitmap validDocIds) {
+    MutableSegment segment = mock(MutableSegment.class);
+    when(segment.getSegmentName()).thenReturn(getSegmentName(sequenceNumber));
+    when(segment.getValidDocIds()).thenReturn(validDocIds);
+    return segment;
+  }
+
+  private static String getSegmentName(int sequenceNumber) {
+    return new LLCSegmentName(RAW_TABLE_NAME, 0, sequenceNumber, System.currentTimeMillis()).toString();
+  }
+
+  private static PrimaryKey makePrimaryKey(int value) {
+    return new PrimaryKey(new Object[]{value});
+  }
+
+  private static void checkRecordLocation(OffHeapPartitionUpsertMetadataManager upsertMetadataManager, int keyValue,
+      IndexSegment segment, int docId, int comparisonValue) {
+    RecordLocation recordLocation = upsertMetadataManager.getRecordLocation(makePrimaryKey(keyValue));
+    assertNotNull(recordLocation);
+    assertSame(recordLocation.getSegment(), segment);
+    assertEquals(recordLocation.getDocId(), docId);
+    assertEquals(recordLocation.getComparisonValue(), comparisonValue);
+  }
+}
@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.utils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.apache.pinot.segment.spi.index.metadata.EquiDepthHistogram;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+
+public class ColumnStatsAggregatorTest {
+
+  @Test
+  public void testAggregate() {
+    int[] values1 = IntStream.range(0, 10000).toArray();
+    int[] values2 = IntStream.range(5000, 15000).toArray();
+
+    ColumnStatsAggregator segmentAggregator = new ColumnStatsAggregator();
+    segmentAggregator.addHistogram("col", new EquiDepthHistogram(new double[]{0, 9999}, 10000));
+    segmentAggregator.addNdvSketch("col", NdvSketchUtils.buildSketch(values1));
+    segmentAggregator.addHistogram("col", null);
+    segmentAggregator.addNdvSketch("col", null);
+
+    // Simulate the aggregation of another server response
+    ColumnStatsAggregator tableAggregator = new ColumnStatsAggregator();
+    tableAggregator.addHistograms(segmentAggregator.getHistogramMap());
+    tableAggregator.addNdvSketches(segmentAggregator.getNdvSketchMap());
+    tableAggregator.addHistograms(
+        Collections.singletonMap("col", new EquiDepthHistogram(new double[]{5000, 14999}, 10000)));
+    tableAggregator.addNdvSketches(Collections.singletonMap("col", NdvSketchUtils.buildSketch(values2)));
+    tableAggregator.addHistograms(null);
+    tableAggregator.addNdvSketches(null);
+
+    Map<String, EquiDepthHistogram> histogramMap = tableAggregator.getHistogramMap();
+    EquiDepthHistogram histogram = histogramMap.get("col");
+    assertNotNull(histogram);
+    assertEquals(histogram.getNumEntries(), 20000);
+    assertEquals(histogram.getBoundaries()[0], 0.0);
+    assertEquals(histogram.getBoundaries()[histogram.getNumBuckets()], 14999.0);
+    assertEquals(histogram.estimateSelectivity(5000, 9999), 0.5, 0.01);
+
+    // 15000 distinct values, HLL with log2m 8 has about 6.5% standard error
+    double ndv = tableAggregator.getNdvMap().get("col");
+    assertTrue(Math.abs(ndv - 15000) < 15000 * 0.25, "Unexpected NDV: " + ndv);
+    assertEquals(NdvSketchUtils.deserialize(tableAggregator.getNdvSketchMap().get("col")).cardinality(), (long) ndv);
+  }
+}
@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.utils;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+
+public class OffHeapHashedPrimaryKeyMapTest {
+  private static final int NUM_KEYS = 10_000;
+  private static final int NUM_OPERATIONS = 100_000;
+
+  @Test
+  public void testRandomOperations()
+      throws IOException {
+    Random random = new Random();
+    // Use a small key space with duplicate high bits to exercise the collision and backward shift handling
+    Map<Long, long[]> expectedMap = new HashMap<>();
+    try (OffHeapHashedPrimaryKeyMap map = new OffHeapHashedPrimaryKeyMap(16, "testMap")) {
+      for (int i = 0; i < NUM_OPERATIONS; i++) {
+        long key = random.nextInt(NUM_KEYS);
+        long keyHigh = key % 7;
+        int slot = map.getSlot(keyHigh, key);
+        long[] expectedValues = expectedMap.get(key);
+        if (expectedValues == null) {
+          assertEquals(slot, OffHeapHashedPrimaryKeyMap.INVALID_SLOT);
+        } else {
+          assertNotEquals(slot, OffHeapHashedPrimaryKeyMap.INVALID_SLOT);
+          assertEquals(map.getValue1(slot), expectedValues[0]);
+          assertEquals(map.getValue2(slot), expectedValues[1]);
+        }
+        switch (random.nextInt(3)) {
+          case 0:
+            long value1 = random.nextLong();
+            long value2 = random.nextLong();
+            map.put(keyHigh, key, value1, value2);
+            expectedMap.put(key, new long[]{value1, value2});
+            break;
+          case 1:
+            if (slot != OffHeapHashedPrimaryKeyMap.INVALID_SLOT) {
+              map.setValues(slot, i, -i);
+              expectedMap.put(key, new long[]{i, -i});
+            }
+            break;
+          default:
+            if (slot != OffHeapHashedPrimaryKeyMap.INVALID_SLOT) {
+              map.remove(slot);
+              expectedMap.remove(key);
+            }
+            break;
+        }
+        assertEquals(map.size(), expectedMap.size());
+      }
+
+      for (Map.Entry<Long, long[]> entry : expectedMap.entrySet()) {
+        long key = entry.getKey();
+        int slot = map.getSlot(key % 7, key);
+        assertNotEquals(slot, OffHeapHashedPrimaryKeyMap.INVALID_SLOT);
+        assertEquals(map.getValue1(slot), entry.getValue()[0]);
+        assertEquals(map.getValue2(slot), entry.getValue()[1]);
+      }
+    }
+  }
+
+  @Test
+  public void testRemoveIf()
+      throws IOException {
+    try (OffHeapHashedPrimaryKeyMap map = new OffHeapHashedPrimaryKeyMap(16, "testMap")) {
+      // Use duplicate high bits to get long probe sequences, including the ones wrapping around the end of the buffer
+      for (long key = 0; key < NUM_KEYS; key++) {
+        map.put(key % 7, key, key, key % 3);
+      }
+      assertEquals(map.removeIf((value1, value2) -> value2 == 0), (NUM_KEYS + 2) / 3);
+      assertEquals(map.size(), NUM_KEYS - (NUM_KEYS + 2) / 3);
+      for (long key = 0; key < NUM_KEYS; key++) {
+        int slot = map.getSlot(key % 7, key);
+        if (key % 3 == 0) {
+          assertEquals(slot, OffHeapHashedPrimaryKeyMap.INVALID_SLOT);
+        } else {
+          assertNotEquals(slot, OffHeapHashedPrimaryKeyMap.INVALID_SLOT);
+          assertEquals(map.getValue1(slot), key);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRemoveIfInSteps()
+      throws IOException {
+    try (OffHeapHashedPrimaryKeyMap map = new OffHeapHashedPrimaryKeyMap(16, "testMap")) {
+      for (long key = 0; key < NUM_KEYS; key++) {
+        map.put(key % 7, key, key, key % 3);
+      }
+      int numRemoved = 0;
+      for (int fromSlot = 0; fromSlot < map.capacity(); fromSlot += 5) {
+        numRemoved += map.removeIf((value1, value2) -> value2 == 0, fromSlot, fromSlot + 5);
+      }
+      assertEquals(numRemoved, (NUM_KEYS + 2) / 3);
+      assertEquals(map.size(), NUM_KEYS - (NUM_KEYS + 2) / 3);
+      for (long key = 0; key < NUM_KEYS; key++) {
+        assertEquals(map.getSlot(key % 7, key) == OffHeapHashedPrimaryKeyMap.INVALID_SLOT, key % 3 == 0);
+      }
+    }
+  }
+
+  @Test
+  public void testKeyBytes() {
+    byte[] hashedKey = new byte[OffHeapHashedPrimaryKeyMap.KEY_SIZE];
+    for (int i = 0; i < hashedKey.length; i++) {
+      hashedKey[i] = (byte) i;
+    }
+    assertEquals(OffHeapHashedPrimaryKeyMap.getKeyHigh(hashedKey), 0x0001020304050607L);
+    assertEquals(OffHeapHashedPrimaryKeyMap.getKeyLow(hashedKey), 0x08090A0B0C0D0E0FL);
+  }
+}
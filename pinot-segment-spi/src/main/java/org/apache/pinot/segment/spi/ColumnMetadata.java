@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
 import org.apache.pinot.segment.spi.index.IndexType;
+import org.apache.pinot.segment.spi.index.metadata.EquiDepthHistogram;
 import org.apache.pinot.segment.spi.partition.PartitionFunction;
 import org.apache.pinot.spi.annotations.InterfaceAudience;
 import org.apache.pinot.spi.data.FieldSpec;
@@ -93,4 +94,22 @@ public interface ColumnMetadata {
   Map<IndexType<?, ?, ?>, Long> getIndexSizeMap();
 
   boolean isAutoGenerated();
+
+  /**
+   * Returns the equi-depth histogram of the column values, or {@code null} if it is not available (e.g. non-numeric
+   * column or segment created before the histogram is supported).
+   */
+  @Nullable
+  default EquiDepthHistogram getHistogram() {
+    return null;
+  }
+
+  /**
+   * Returns the serialized HyperLogLog of the distinct values of the column, which can be merged across segments to
+   * estimate the number of distinct values of the table, or {@code null} if it is not available.
+   */
+  @Nullable
+  default byte[] getNdvSketch() {
+    return null;
+  }
 }
@@ -19,6 +19,7 @@
 package org.apache.pinot.segment.spi;
 
 import java.io.IOException;
+import java.util.List;
 import javax.annotation.Nullable;
 import org.apache.pinot.spi.data.readers.GenericRow;
 import org.apache.pinot.spi.stream.RowMetadata;
@@ -36,6 +37,23 @@ public interface MutableSegment extends IndexSegment {
   boolean index(GenericRow row, @Nullable RowMetadata rowMetadata)
       throws IOException;
 
+  /**
+   * Indexes a batch of records into the segment with optionally provided metadata. The default implementation indexes
+   * the records one by one.
+   *
+   * @param rows Records represented as {@link GenericRow}s
+   * @param rowMetadata the metadata associated with the last message the records are extracted from
+   * @return Whether the segment can index more records after the batch
+   */
+  default boolean index(List<GenericRow> rows, @Nullable RowMetadata rowMetadata)
+      throws IOException {
+    boolean canTakeMore = true;
+    for (GenericRow row : rows) {
+      canTakeMore = index(row, rowMetadata);
+    }
+    return canTakeMore;
+  }
+
   /**
    * Returns the number of records already indexed into the segment.
    *
@@ -26,6 +26,7 @@ public class V1Constants {
   public static final String INDEX_MAP_FILE_NAME = "index_map";
   public static final String INDEX_FILE_NAME = "columns.psf";
   public static final String VALID_DOC_IDS_SNAPSHOT_FILE_NAME = "validdocids.bitmap.snapshot";
+  public static final String UPSERT_PRIMARY_KEYS_SNAPSHOT_FILE_NAME = "upsert.primarykeys.snapshot";
 
   public static class Str {
     public static final char DEFAULT_STRING_PAD_CHAR = '\0';
@@ -107,6 +108,10 @@ public class V1Constants {
       public static final String PARTITION_VALUES = "partitionValues";
       public static final String DATETIME_FORMAT = "datetimeFormat";
       public static final String DATETIME_GRANULARITY = "datetimeGranularity";
+      // Bucket boundaries of the equi-depth histogram for numeric columns
+      public static final String HISTOGRAM = "histogram";
+      // Base64 encoded HyperLogLog of the distinct values, which can be merged across segments
+      public static final String NDV_SKETCH = "ndvSketch";
 
       public static final String COLUMN_PROPS_KEY_PREFIX = "column.";
 
@@ -24,6 +24,7 @@ import java.util.Set;
 import javax.annotation.Nullable;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.pinot.segment.spi.Constants;
+import org.apache.pinot.segment.spi.index.metadata.EquiDepthHistogram;
 import org.apache.pinot.segment.spi.partition.PartitionFunction;
 
 
@@ -119,4 +120,9 @@ public class ColumnIndexCreationInfo implements Serializable {
   public Map<String, String> getPartitionFunctionConfig() {
     return _columnStatistics.getPartitionFunctionConfig();
   }
+
+  @Nullable
+  public EquiDepthHistogram getHistogram() {
+    return _columnStatistics.getHistogram();
+  }
 }
@@ -21,6 +21,8 @@ package org.apache.pinot.segment.spi.creator;
 import java.io.Serializable;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
+import org.apache.pinot.segment.spi.index.metadata.EquiDepthHistogram;
 import org.apache.pinot.segment.spi.partition.PartitionFunction;
 
 
@@ -97,4 +99,12 @@ public interface ColumnStatistics extends Serializable {
   Map<String, String> getPartitionFunctionConfig();
 
   Set<Integer> getPartitions();
+
+  /**
+   * Returns the equi-depth histogram of the column values, or {@code null} if it is not collected.
+   */
+  @Nullable
+  default EquiDepthHistogram getHistogram() {
+    return null;
+  }
 }
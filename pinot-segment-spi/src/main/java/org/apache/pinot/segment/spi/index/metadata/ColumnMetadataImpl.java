@@ -20,6 +20,7 @@ package org.apache.pinot.segment.spi.index.metadata;
 
 import com.google.common.base.Preconditions;
 import java.math.BigDecimal;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -68,12 +69,15 @@ public class ColumnMetadataImpl implements ColumnMetadata {
   private final Set<Integer> _partitions;
   private final Map<IndexType<?, ?, ?>, Long> _indexSizeMap;
   private final boolean _autoGenerated;
+  private final EquiDepthHistogram _histogram;
+  private final byte[] _ndvSketch;
 
   private ColumnMetadataImpl(FieldSpec fieldSpec, int totalDocs, int cardinality, boolean sorted,
       Comparable<?> minValue, Comparable<?> maxValue, boolean minMaxValueInvalid, boolean hasDictionary,
       int columnMaxLength, int bitsPerElement, int maxNumberOfMultiValues, int totalNumberOfEntries,
       @Nullable PartitionFunction partitionFunction, @Nullable Set<Integer> partitions,
-      Map<IndexType<?, ?, ?>, Long> indexSizeMap, boolean autoGenerated) {
+      Map<IndexType<?, ?, ?>, Long> indexSizeMap, boolean autoGenerated, @Nullable EquiDepthHistogram histogram,
+      @Nullable byte[] ndvSketch) {
     _fieldSpec = fieldSpec;
     _totalDocs = totalDocs;
     _cardinality = cardinality;
@@ -90,6 +94,8 @@ public class ColumnMetadataImpl implements ColumnMetadata {
     _partitions = partitions;
     _indexSizeMap = indexSizeMap;
     _autoGenerated = autoGenerated;
+    _histogram = histogram;
+    _ndvSketch = ndvSketch;
   }
 
   @Override
@@ -174,6 +180,18 @@ public class ColumnMetadataImpl implements ColumnMetadata {
     return _autoGenerated;
   }
 
+  @Nullable
+  @Override
+  public EquiDepthHistogram getHistogram() {
+    return _histogram;
+  }
+
+  @Nullable
+  @Override
+  public byte[] getNdvSketch() {
+    return _ndvSketch;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -323,6 +341,16 @@ public class ColumnMetadataImpl implements ColumnMetadata {
           ColumnPartitionMetadata.extractPartitions(config.getList(Column.getKeyFor(column, Column.PARTITION_VALUES))));
     }
 
+    List<Object> histogramBoundaries = config.getList(Column.getKeyFor(column, Column.HISTOGRAM), null);
+    if (histogramBoundaries != null) {
+      builder.setHistogram(EquiDepthHistogram.fromPropertyValues(histogramBoundaries,
+          config.getInt(Column.getKeyFor(column, Column.TOTAL_NUMBER_OF_ENTRIES))));
+    }
+    String ndvSketch = config.getString(Column.getKeyFor(column, Column.NDV_SKETCH), null);
+    if (ndvSketch != null) {
+      builder.setNdvSketch(Base64.getDecoder().decode(ndvSketch));
+    }
+
     return builder.build();
   }
 
@@ -347,6 +375,8 @@ public class ColumnMetadataImpl implements ColumnMetadata {
     private Set<Integer> _partitions;
     private boolean _autoGenerated;
     private Map<IndexType<?, ?, ?>, Long> _indexSizeMap = new HashMap<>();
+    private EquiDepthHistogram _histogram;
+    private byte[] _ndvSketch;
 
     public Builder setFieldSpec(FieldSpec fieldSpec) {
       _fieldSpec = fieldSpec;
@@ -427,10 +457,21 @@ public class ColumnMetadataImpl implements ColumnMetadata {
       return this;
     }
 
+    public Builder setHistogram(EquiDepthHistogram histogram) {
+      _histogram = histogram;
+      return this;
+    }
+
+    public Builder setNdvSketch(byte[] ndvSketch) {
+      _ndvSketch = ndvSketch;
+      return this;
+    }
+
     public ColumnMetadataImpl build() {
       return new ColumnMetadataImpl(_fieldSpec, _totalDocs, _cardinality, _sorted, _minValue, _maxValue,
           _minMaxValueInvalid, _hasDictionary, _columnMaxLength, _bitsPerElement, _maxNumberOfMultiValues,
-          _totalNumberOfEntries, _partitionFunction, _partitions, _indexSizeMap, _autoGenerated);
+          _totalNumberOfEntries, _partitionFunction, _partitions, _indexSizeMap, _autoGenerated, _histogram,
+          _ndvSketch);
     }
   }
 }
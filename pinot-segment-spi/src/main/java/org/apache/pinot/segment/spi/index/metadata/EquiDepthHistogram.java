@@ -0,0 +1,288 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.spi.index.metadata;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+
+
+/**
+ * Equi-depth histogram of the values of a numeric column, where each bucket contains (approximately) the same number
+ * of entries (SV value contains one entry, MV value contains multiple entries).
+ * <p>The histogram is represented by the {@code numBuckets + 1} non-decreasing bucket boundaries, where the first and
+ * the last boundaries are the min and max value of the column. A value that appears in many entries can take multiple
+ * buckets, in which case the adjacent boundaries are identical. Values are assumed to be uniformly distributed within a
+ * bucket.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class EquiDepthHistogram {
+  private final double[] _boundaries;
+  private final long _numEntries;
+
+  @JsonCreator
+  public EquiDepthHistogram(@JsonProperty("boundaries") double[] boundaries,
+      @JsonProperty("numEntries") long numEntries) {
+    Preconditions.checkArgument(boundaries.length >= 2, "Histogram should have at least 2 boundaries, got: %s",
+        boundaries.length);
+    _boundaries = boundaries;
+    _numEntries = numEntries;
+  }
+
+  public double[] getBoundaries() {
+    return _boundaries;
+  }
+
+  public long getNumEntries() {
+    return _numEntries;
+  }
+
+  @JsonIgnore
+  public int getNumBuckets() {
+    return _boundaries.length - 1;
+  }
+
+  /**
+   * Returns the estimated fraction of entries with value less than or equal to the given value.
+   */
+  public double getFractionAtOrBelow(double value) {
+    int numBuckets = getNumBuckets();
+    if (value < _boundaries[0]) {
+      return 0;
+    }
+    if (value >= _boundaries[numBuckets]) {
+      return 1;
+    }
+    // Find the last bucket with lower boundary less than or equal to the value
+    int bucket = upperBound(value) - 1;
+    double lower = _boundaries[bucket];
+    double upper = _boundaries[bucket + 1];
+    return (bucket + (value - lower) / (upper - lower)) / numBuckets;
+  }
+
+  /**
+   * Returns the estimated fraction of entries with value less than the given value.
+   */
+  public double getFractionBelow(double value) {
+    int numBuckets = getNumBuckets();
+    if (value <= _boundaries[0]) {
+      return 0;
+    }
+    if (value > _boundaries[numBuckets]) {
+      return 1;
+    }
+    // Find the first bucket with upper boundary greater than or equal to the value
+    int bucket = lowerBound(value) - 1;
+    double lower = _boundaries[bucket];
+    double upper = _boundaries[bucket + 1];
+    return (bucket + (value - lower) / (upper - lower)) / numBuckets;
+  }
+
+  /**
+   * Returns the estimated fraction of entries with value within the given range (both ends inclusive). Use
+   * {@link Double#NEGATIVE_INFINITY} or {@link Double#POSITIVE_INFINITY} for unbounded range.
+   * <p>NOTE: For equality predicates, the number of distinct values usually gives better estimation unless the value
+   *          is a heavy hitter taking multiple buckets.
+   */
+  public double estimateSelectivity(double lowerValue, double upperValue) {
+    if (lowerValue > upperValue) {
+      return 0;
+    }
+    return Math.max(getFractionAtOrBelow(upperValue) - getFractionBelow(lowerValue), 0);
+  }
+
+  /**
+   * Returns the index of the first boundary greater than the value.
+   */
+  private int upperBound(double value) {
+    int low = 0;
+    int high = _boundaries.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (_boundaries[mid] <= value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the index of the first boundary greater than or equal to the value.
+   */
+  private int lowerBound(double value) {
+    int low = 0;
+    int high = _boundaries.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (_boundaries[mid] < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the boundaries as strings to be stored in the segment metadata.
+   */
+  public List<String> toPropertyValues() {
+    List<String> values = new ArrayList<>(_boundaries.length);
+    for (double boundary : _boundaries) {
+      values.add(Double.toString(boundary));
+    }
+    return values;
+  }
+
+  /**
+   * Reads the histogram from the boundaries stored in the segment metadata, or returns {@code null} if the boundaries
+   * are not available.
+   */
+  @Nullable
+  public static EquiDepthHistogram fromPropertyValues(List<?> values, long numEntries) {
+    int numBoundaries = values.size();
+    if (numBoundaries < 2) {
+      return null;
+    }
+    double[] boundaries = new double[numBoundaries];
+    for (int i = 0; i < numBoundaries; i++) {
+      boundaries[i] = Double.parseDouble(values.get(i).toString());
+    }
+    return new EquiDepthHistogram(boundaries, numEntries);
+  }
+
+  /**
+   * Merges the histograms (e.g. of multiple segments) into a histogram with the given number of buckets. The merged
+   * histogram approximates the distribution of all the entries, where each histogram is weighted by its number of
+   * entries.
+   */
+  @Nullable
+  public static EquiDepthHistogram merge(List<EquiDepthHistogram> histograms, int numBuckets) {
+    long numEntries = 0;
+    int numEvents = 0;
+    for (EquiDepthHistogram histogram : histograms) {
+      numEntries += histogram._numEntries;
+      numEvents += 2 * histogram.getNumBuckets();
+    }
+    if (numEntries == 0) {
+      return null;
+    }
+
+    // The merged cumulative distribution is piecewise linear with jumps on the values taking whole buckets. Sweep over
+    // the bucket boundaries of all the histograms, where each bucket adds a constant density within the bucket, or a
+    // point mass if the bucket has only one value.
+    List<double[]> events = new ArrayList<>(numEvents);
+    for (EquiDepthHistogram histogram : histograms) {
+      int histogramNumBuckets = histogram.getNumBuckets();
+      double bucketFraction = (double) histogram._numEntries / numEntries / histogramNumBuckets;
+      for (int i = 0; i < histogramNumBuckets; i++) {
+        double lower = histogram._boundaries[i];
+        double upper = histogram._boundaries[i + 1];
+        if (lower == upper) {
+          // {value, density change, point mass}
+          events.add(new double[]{lower, 0, bucketFraction});
+        } else {
+          double density = bucketFraction / (upper - lower);
+          events.add(new double[]{lower, density, 0});
+          events.add(new double[]{upper, -density, 0});
+        }
+      }
+    }
+    events.sort((e1, e2) -> Double.compare(e1[0], e2[0]));
+
+    // Collect the (value, fraction of entries at or below the value) points, with an extra point before each jump
+    int numAllEvents = events.size();
+    double[] values = new double[2 * numAllEvents];
+    double[] fractions = new double[2 * numAllEvents];
+    int numPoints = 0;
+    double density = 0;
+    double fraction = 0;
+    double previousValue = events.get(0)[0];
+    int eventIndex = 0;
+    while (eventIndex < numAllEvents) {
+      double value = events.get(eventIndex)[0];
+      fraction += density * (value - previousValue);
+      double pointMass = 0;
+      while (eventIndex < numAllEvents && events.get(eventIndex)[0] == value) {
+        double[] event = events.get(eventIndex++);
+        density += event[1];
+        pointMass += event[2];
+      }
+      if (pointMass > 0) {
+        values[numPoints] = value;
+        fractions[numPoints++] = fraction;
+        fraction += pointMass;
+      }
+      values[numPoints] = value;
+      fractions[numPoints++] = fraction;
+      previousValue = value;
+    }
+
+    double[] boundaries = new double[numBuckets + 1];
+    boundaries[0] = values[0];
+    boundaries[numBuckets] = values[numPoints - 1];
+    int pointIndex = 0;
+    for (int i = 1; i < numBuckets; i++) {
+      double targetFraction = (double) i / numBuckets;
+      // NOTE: Fraction of the last point can be slightly lower than 1 because of the floating point error
+      while (pointIndex < numPoints - 1 && fractions[pointIndex] < targetFraction) {
+        pointIndex++;
+      }
+      if (pointIndex == 0 || fractions[pointIndex] <= fractions[pointIndex - 1]) {
+        boundaries[i] = values[pointIndex];
+      } else {
+        // Interpolate between the previous point and the current point
+        double lowerFraction = fractions[pointIndex - 1];
+        double ratio = Math.min((targetFraction - lowerFraction) / (fractions[pointIndex] - lowerFraction), 1);
+        boundaries[i] = values[pointIndex - 1] + ratio * (values[pointIndex] - values[pointIndex - 1]);
+      }
+    }
+    return new EquiDepthHistogram(boundaries, numEntries);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    EquiDepthHistogram that = (EquiDepthHistogram) o;
+    return _numEntries == that._numEntries && Arrays.equals(_boundaries, that._boundaries);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Long.hashCode(_numEntries) + Arrays.hashCode(_boundaries);
+  }
+
+  @Override
+  public String toString() {
+    return "EquiDepthHistogram{_boundaries=" + Arrays.toString(_boundaries) + ", _numEntries=" + _numEntries + '}';
+  }
+}
@@ -29,4 +29,17 @@ public interface MutableInvertedIndex extends InvertedIndexReader<MutableRoaring
    * @param docId document id
    */
   void add(int dictId, int docId);
+
+  /**
+   * Adds a batch of docIds to the posting lists of the dictionary ids, where the docId at each index is added for the
+   * dictionary id at the same index.
+   * @param dictIds dictionary ids
+   * @param docIds document ids in ascending order
+   * @param length number of entries to add
+   */
+  default void add(int[] dictIds, int[] docIds, int length) {
+    for (int i = 0; i < length; i++) {
+      add(dictIds[i], docIds[i]);
+    }
+  }
 }
@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.spi.index.metadata;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.pinot.spi.utils.JsonUtils;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+
+public class EquiDepthHistogramTest {
+  private static final double DELTA = 1e-9;
+
+  @Test
+  public void testEstimateSelectivity() {
+    // 4 buckets: [0, 10], [10, 20], [20, 40], [40, 100]
+    EquiDepthHistogram histogram = new EquiDepthHistogram(new double[]{0, 10, 20, 40, 100}, 1000);
+    assertEquals(histogram.getNumBuckets(), 4);
+
+    assertEquals(histogram.getFractionAtOrBelow(-1), 0, DELTA);
+    assertEquals(histogram.getFractionAtOrBelow(5), 0.125, DELTA);
+    assertEquals(histogram.getFractionAtOrBelow(30), 0.625, DELTA);
+    assertEquals(histogram.getFractionAtOrBelow(100), 1, DELTA);
+    assertEquals(histogram.getFractionBelow(0), 0, DELTA);
+    assertEquals(histogram.getFractionBelow(70), 0.875, DELTA);
+    assertEquals(histogram.getFractionBelow(101), 1, DELTA);
+
+    assertEquals(histogram.estimateSelectivity(10, 20), 0.25, DELTA);
+    assertEquals(histogram.estimateSelectivity(Double.NEGATIVE_INFINITY, 20), 0.5, DELTA);
+    assertEquals(histogram.estimateSelectivity(40, Double.POSITIVE_INFINITY), 0.25, DELTA);
+    assertEquals(histogram.estimateSelectivity(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY), 1, DELTA);
+    assertEquals(histogram.estimateSelectivity(200, 300), 0, DELTA);
+    assertEquals(histogram.estimateSelectivity(20, 10), 0, DELTA);
+
+    // Heavy hitter taking 2 buckets
+    histogram = new EquiDepthHistogram(new double[]{0, 5, 5, 10}, 300);
+    assertEquals(histogram.estimateSelectivity(5, 5), 1.0 / 3, DELTA);
+    assertEquals(histogram.getFractionBelow(5), 1.0 / 3, DELTA);
+    assertEquals(histogram.getFractionAtOrBelow(5), 2.0 / 3, DELTA);
+  }
+
+  @Test
+  public void testSerDe()
+      throws Exception {
+    EquiDepthHistogram histogram = new EquiDepthHistogram(new double[]{-1.5, 0, 2.25, 1e10}, 12345);
+    assertEquals(EquiDepthHistogram.fromPropertyValues(histogram.toPropertyValues(), 12345), histogram);
+    assertNull(EquiDepthHistogram.fromPropertyValues(Collections.singletonList("1.0"), 1));
+    assertEquals(JsonUtils.stringToObject(JsonUtils.objectToString(histogram), EquiDepthHistogram.class), histogram);
+  }
+
+  @Test
+  public void testMerge() {
+    // Same distribution should be preserved
+    EquiDepthHistogram histogram = new EquiDepthHistogram(new double[]{0, 25, 50, 75, 100}, 100);
+    EquiDepthHistogram merged = EquiDepthHistogram.merge(Arrays.asList(histogram, histogram), 4);
+    assertNotNull(merged);
+    assertEquals(merged.getNumEntries(), 200);
+    double[] boundaries = merged.getBoundaries();
+    assertEquals(boundaries.length, 5);
+    for (int i = 0; i < 5; i++) {
+      assertEquals(boundaries[i], 25 * i, 1e-6);
+    }
+
+    // Disjoint ranges weighted by the number of entries
+    EquiDepthHistogram low = new EquiDepthHistogram(new double[]{0, 10}, 300);
+    EquiDepthHistogram high = new EquiDepthHistogram(new double[]{100, 110}, 100);
+    merged = EquiDepthHistogram.merge(Arrays.asList(low, high), 4);
+    assertNotNull(merged);
+    assertEquals(merged.getNumEntries(), 400);
+    assertEquals(merged.estimateSelectivity(0, 10), 0.75, 1e-6);
+    // The gap between the ranges is covered by the last bucket
+    assertEquals(merged.getFractionBelow(10), 0.75, 1e-6);
+    assertEquals(merged.getBoundaries()[0], 0, DELTA);
+    assertEquals(merged.getBoundaries()[4], 110, DELTA);
+
+    // Point mass
+    EquiDepthHistogram constant = new EquiDepthHistogram(new double[]{5, 5}, 100);
+    merged = EquiDepthHistogram.merge(Arrays.asList(constant, histogram), 16);
+    assertNotNull(merged);
+    // Within the resolution of 1 bucket
+    assertEquals(merged.estimateSelectivity(5, 5), 0.5, 1.0 / 16);
+
+    assertNull(EquiDepthHistogram.merge(Collections.emptyList(), 4));
+  }
+}
@@ -76,6 +76,12 @@ public class HelixInstanceDataManagerConfig implements InstanceDataManagerConfig
   private static final String MAX_PARALLEL_SEGMENT_BUILDS = "realtime.max.parallel.segment.builds";
   private static final int DEFAULT_MAX_PARALLEL_SEGMENT_BUILDS = 4;
 
+  // Key of how many threads are shared by all the consuming segments to decode and transform the messages when the
+  // ingestion parallelism is configured in the stream config.
+  // A value of <= 0 indicates the number of available processors.
+  private static final String MAX_REALTIME_INGESTION_THREADS = "realtime.max.ingestion.threads";
+  private static final int DEFAULT_MAX_REALTIME_INGESTION_THREADS = -1;
+
   // Key of how many parallel segment downloads can be made per table.
   // A value of <= 0 indicates unlimited.
   // Unlimited parallel downloads can make Pinot controllers receive high burst of download requests,
@@ -245,6 +251,12 @@ public class HelixInstanceDataManagerConfig implements InstanceDataManagerConfig
         .getProperty(MAX_PARALLEL_SEGMENT_BUILDS, DEFAULT_MAX_PARALLEL_SEGMENT_BUILDS);
   }
 
+  @Override
+  public int getMaxRealtimeIngestionThreads() {
+    return _instanceDataManagerConfiguration.getProperty(MAX_REALTIME_INGESTION_THREADS,
+        DEFAULT_MAX_REALTIME_INGESTION_THREADS);
+  }
+
   @Override
   public int getMaxParallelSegmentDownloads() {
     return _instanceDataManagerConfiguration.getProperty(MAX_PARALLEL_SEGMENT_DOWNLOADS,
@@ -53,6 +53,8 @@ public interface InstanceDataManagerConfig {
 
   int getMaxParallelSegmentBuilds();
 
+  int getMaxRealtimeIngestionThreads();
+
   int getMaxParallelSegmentDownloads();
 
   String getSegmentDirectoryLoader();
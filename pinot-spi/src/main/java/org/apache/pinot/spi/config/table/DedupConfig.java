@@ -20,18 +20,45 @@ package org.apache.pinot.spi.config.table;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import javax.annotation.Nullable;
 import org.apache.pinot.spi.config.BaseJsonConfig;
 
 public class DedupConfig extends BaseJsonConfig {
+
+  public enum KeyStoreType {
+    ON_HEAP, OFF_HEAP
+  }
+
   private final boolean _dedupEnabled;
   private final HashFunction _hashFunction;
 
+  @JsonPropertyDescription("Where to store the dedup primary keys, ON_HEAP (default) or OFF_HEAP")
+  private final KeyStoreType _keyStoreType;
+
+  @JsonPropertyDescription("Time column used for the dedup metadata TTL, default to the table time column")
+  private final String _dedupTimeColumn;
+
+  @JsonPropertyDescription("When positive, primary keys with dedup time older than the largest seen dedup time minus "
+      + "the TTL are dropped from the dedup metadata. The TTL is in the same unit as the dedup time column")
+  private final double _metadataTTL;
+
+  public DedupConfig(boolean dedupEnabled, HashFunction hashFunction) {
+    this(dedupEnabled, hashFunction, null, null, 0);
+  }
+
   @JsonCreator
   public DedupConfig(@JsonProperty(value = "dedupEnabled", required = true) boolean dedupEnabled,
-      @JsonProperty(value = "hashFunction") HashFunction hashFunction
+      @JsonProperty(value = "hashFunction") HashFunction hashFunction,
+      @JsonProperty(value = "keyStoreType") @Nullable KeyStoreType keyStoreType,
+      @JsonProperty(value = "dedupTimeColumn") @Nullable String dedupTimeColumn,
+      @JsonProperty(value = "metadataTTL") double metadataTTL
   ) {
     _dedupEnabled = dedupEnabled;
     _hashFunction = hashFunction == null ? HashFunction.NONE : hashFunction;
+    _keyStoreType = keyStoreType == null ? KeyStoreType.ON_HEAP : keyStoreType;
+    _dedupTimeColumn = dedupTimeColumn;
+    _metadataTTL = metadataTTL;
   }
 
   public HashFunction getHashFunction() {
@@ -41,4 +68,17 @@ public class DedupConfig extends BaseJsonConfig {
   public boolean isDedupEnabled() {
     return _dedupEnabled;
   }
+
+  public KeyStoreType getKeyStoreType() {
+    return _keyStoreType;
+  }
+
+  @Nullable
+  public String getDedupTimeColumn() {
+    return _dedupTimeColumn;
+  }
+
+  public double getMetadataTTL() {
+    return _metadataTTL;
+  }
 }
@@ -85,6 +85,13 @@ public class IndexingConfig extends BaseJsonConfig {
    */
   private List<String> _varLengthDictionaryColumns;
 
+  /**
+   * If `columnMajorSegmentBuilderEnabled` is enabled, the realtime segment is converted to an immutable segment column
+   * by column instead of row by row, where up to `segmentBuildParallelism` columns are indexed concurrently.
+   */
+  private boolean _columnMajorSegmentBuilderEnabled;
+  private int _segmentBuildParallelism = 1;
+
   @Nullable
   public List<String> getInvertedIndexColumns() {
     return _invertedIndexColumns;
@@ -334,4 +341,20 @@ public class IndexingConfig extends BaseJsonConfig {
   public void setSegmentNameGeneratorType(String segmentNameGeneratorType) {
     _segmentNameGeneratorType = segmentNameGeneratorType;
   }
+
+  public boolean isColumnMajorSegmentBuilderEnabled() {
+    return _columnMajorSegmentBuilderEnabled;
+  }
+
+  public void setColumnMajorSegmentBuilderEnabled(boolean columnMajorSegmentBuilderEnabled) {
+    _columnMajorSegmentBuilderEnabled = columnMajorSegmentBuilderEnabled;
+  }
+
+  public int getSegmentBuildParallelism() {
+    return _segmentBuildParallelism;
+  }
+
+  public void setSegmentBuildParallelism(int segmentBuildParallelism) {
+    _segmentBuildParallelism = segmentBuildParallelism;
+  }
 }
@@ -51,6 +51,7 @@ public class StreamConfig {
   public static final long DEFAULT_FLUSH_THRESHOLD_SEGMENT_SIZE_BYTES = 200 * 1024 * 1024; // 200M
   public static final int DEFAULT_FLUSH_AUTOTUNE_INITIAL_ROWS = 100_000;
   public static final String DEFAULT_SERVER_UPLOAD_TO_DEEPSTORE = "false";
+  public static final int DEFAULT_INGESTION_PARALLELISM = 1;
 
   public static final String DEFAULT_CONSUMER_FACTORY_CLASS_NAME_STRING =
       "org.apache.pinot.plugin.stream.kafka20.KafkaConsumerFactory";
@@ -95,6 +96,9 @@ public class StreamConfig {
   // If this flag is set to true, the segment is uploaded to deep store.
   private final boolean _serverUploadToDeepStore;
 
+  // Number of threads decoding and transforming the messages of each partition
+  private final int _ingestionParallelism;
+
   /**
    * Initializes a StreamConfig using the map of stream configs from the table config
    */
@@ -220,6 +224,18 @@ public class StreamConfig {
     String rate = streamConfigMap.get(StreamConfigProperties.TOPIC_CONSUMPTION_RATE_LIMIT);
     _topicConsumptionRateLimit = rate != null ? Double.parseDouble(rate) : CONSUMPTION_RATE_LIMIT_NOT_SPECIFIED;
 
+    int ingestionParallelism = DEFAULT_INGESTION_PARALLELISM;
+    String ingestionParallelismValue = streamConfigMap.get(StreamConfigProperties.INGESTION_PARALLELISM);
+    if (ingestionParallelismValue != null) {
+      try {
+        ingestionParallelism = Integer.parseInt(ingestionParallelismValue);
+      } catch (Exception e) {
+        LOGGER.warn("Invalid config {}: {}, defaulting to: {}", StreamConfigProperties.INGESTION_PARALLELISM,
+            ingestionParallelismValue, DEFAULT_INGESTION_PARALLELISM);
+      }
+    }
+    _ingestionParallelism = Math.max(ingestionParallelism, DEFAULT_INGESTION_PARALLELISM);
+
     _streamConfigMap.putAll(streamConfigMap);
   }
 
@@ -368,6 +384,10 @@ public class StreamConfig {
     return _groupId;
   }
 
+  public int getIngestionParallelism() {
+    return _ingestionParallelism;
+  }
+
   public Optional<Double> getTopicConsumptionRateLimit() {
     return _topicConsumptionRateLimit == CONSUMPTION_RATE_LIMIT_NOT_SPECIFIED ? Optional.empty()
         : Optional.of(_topicConsumptionRateLimit);
@@ -392,7 +412,7 @@ public class StreamConfig {
         + _flushAutotuneInitialRows + ", _decoderClass='" + _decoderClass + '\'' + ", _decoderProperties="
         + _decoderProperties + ", _groupId='" + _groupId + "', _topicConsumptionRateLimit=" + _topicConsumptionRateLimit
         + ", _tableNameWithType='" + _tableNameWithType + ", _serverUploadToDeepStore=" + _serverUploadToDeepStore
-        + "}";
+        + ", _ingestionParallelism=" + _ingestionParallelism + "}";
   }
 
   @Override
@@ -420,7 +440,8 @@ public class StreamConfig {
         && EqualityUtils.isEqual(_groupId, that._groupId) && EqualityUtils.isEqual(_tableNameWithType,
         that._tableNameWithType) && EqualityUtils.isEqual(_topicConsumptionRateLimit, that._topicConsumptionRateLimit)
         && EqualityUtils.isEqual(_streamConfigMap, that._streamConfigMap)
-        && _serverUploadToDeepStore == that._serverUploadToDeepStore;
+        && _serverUploadToDeepStore == that._serverUploadToDeepStore
+        && _ingestionParallelism == that._ingestionParallelism;
   }
 
   @Override
@@ -444,6 +465,7 @@ public class StreamConfig {
     result = EqualityUtils.hashCodeOf(result, _streamConfigMap);
     result = EqualityUtils.hashCodeOf(result, _tableNameWithType);
     result = EqualityUtils.hashCodeOf(result, _serverUploadToDeepStore);
+    result = EqualityUtils.hashCodeOf(result, _ingestionParallelism);
     return result;
   }
 }
@@ -116,6 +116,13 @@ public class StreamConfigProperties {
    */
   public static final String SERVER_UPLOAD_TO_DEEPSTORE = "realtime.segment.serverUploadToDeepStore";
 
+  /**
+   * Number of threads decoding and transforming the messages of each stream partition. When greater than 1, the
+   * messages are decoded and transformed on a worker pool, and the consumer thread only indexes the transformed rows.
+   * By default, the messages are decoded, transformed and indexed on the consumer thread.
+   */
+  public static final String INGESTION_PARALLELISM = "realtime.ingestion.parallelism";
+
   /**
    * Helper method to create a stream specific property
    */
@@ -40,11 +40,19 @@ public class StreamDataDecoderImpl implements StreamDataDecoder {
 
   @Override
   public StreamDataDecoderResult decode(StreamMessage message) {
+    return decode(message, _reuse);
+  }
+
+  /**
+   * Decodes the message into the given row instead of the row reused across messages, so that the decoded row can be
+   * kept while the following messages are decoded.
+   */
+  public StreamDataDecoderResult decode(StreamMessage message, GenericRow destination) {
     assert message.getValue() != null;
 
     try {
-      _reuse.clear();
-      GenericRow row = _valueDecoder.decode(message.getValue(), 0, message.getLength(), _reuse);
+      destination.clear();
+      GenericRow row = _valueDecoder.decode(message.getValue(), 0, message.getLength(), destination);
       if (row != null) {
         if (message.getKey() != null) {
           row.putValue(KEY, new String(message.getKey(), StandardCharsets.UTF_8));
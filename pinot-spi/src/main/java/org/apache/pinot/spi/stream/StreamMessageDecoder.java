@@ -36,6 +36,8 @@ public interface StreamMessageDecoder<T> {
 
   String RECORD_EXTRACTOR_CONFIG_KEY = "recordExtractorClass";
   String RECORD_EXTRACTOR_CONFIG_CONFIG_KEY = "recordExtractorConfigClass";
+  // When enabled, decoders that support it only decode the fields to read, and skip the other fields of the messages
+  String FIELD_PROJECTION_CONFIG_KEY = "enableFieldProjection";
 
   /**
    * Initializes the decoder.
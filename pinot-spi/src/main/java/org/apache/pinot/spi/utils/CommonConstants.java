@@ -282,6 +282,27 @@ public class CommonConstants {
     public static final boolean DEFAULT_ENABLE_THREAD_CPU_TIME_MEASUREMENT = false;
     public static final boolean DEFAULT_THREAD_ALLOCATED_BYTES_MEASUREMENT = false;
 
+    // Broker side query result cache. Cached results are invalidated when the routing of the queried tables changes
+    // (segment added/removed/refreshed), and results involving real-time tables expire after the configured TTL.
+    public static final String CONFIG_OF_BROKER_RESULT_CACHE_ENABLED = "pinot.broker.result.cache.enabled";
+    public static final boolean DEFAULT_BROKER_RESULT_CACHE_ENABLED = false;
+    public static final String CONFIG_OF_BROKER_RESULT_CACHE_MAX_SIZE_BYTES = "pinot.broker.result.cache.maxSizeBytes";
+    public static final long DEFAULT_BROKER_RESULT_CACHE_MAX_SIZE_BYTES = 100 * 1024 * 1024L;
+    public static final String CONFIG_OF_BROKER_RESULT_CACHE_TTL_MS = "pinot.broker.result.cache.ttlMs";
+    public static final long DEFAULT_BROKER_RESULT_CACHE_TTL_MS = 3_600_000L;
+    public static final String CONFIG_OF_BROKER_RESULT_CACHE_REALTIME_TTL_MS =
+        "pinot.broker.result.cache.realtime.ttlMs";
+    public static final long DEFAULT_BROKER_RESULT_CACHE_REALTIME_TTL_MS = 10_000L;
+
+    // Multi-stage query plan cache. Queries only differing by literal values share the cached plan, and the cache is
+    // invalidated on any schema or table config change.
+    public static final String CONFIG_OF_BROKER_MULTI_STAGE_PLAN_CACHE_ENABLED =
+        "pinot.broker.multistage.plan.cache.enabled";
+    public static final boolean DEFAULT_BROKER_MULTI_STAGE_PLAN_CACHE_ENABLED = false;
+    public static final String CONFIG_OF_BROKER_MULTI_STAGE_PLAN_CACHE_MAX_ENTRIES =
+        "pinot.broker.multistage.plan.cache.maxEntries";
+    public static final int DEFAULT_BROKER_MULTI_STAGE_PLAN_CACHE_MAX_ENTRIES = 1000;
+
     public static class Request {
       public static final String SQL = "sql";
       public static final String TRACE = "trace";
@@ -305,6 +326,8 @@ public class CommonConstants {
         public static final String SERVER_RETURN_FINAL_RESULT = "serverReturnFinalResult";
         // Reorder scan based predicates based on cardinality and number of selected values
         public static final String AND_SCAN_REORDERING = "AndScanReordering";
+        // Reorder filter predicates and skip low selectivity index lookups based on the selectivity observed at runtime
+        public static final String ADAPTIVE_FILTER_REORDER = "adaptiveFilterReorder";
 
         public static final String ORDER_BY_ALGORITHM = "orderByAlgorithm";
 
@@ -313,12 +336,26 @@ public class CommonConstants {
         public static final String MAX_INITIAL_RESULT_HOLDER_CAPACITY = "maxInitialResultHolderCapacity";
         public static final String GROUP_TRIM_THRESHOLD = "groupTrimThreshold";
         public static final String STAGE_PARALLELISM = "stageParallelism";
+        // Join strategy for the multi-stage engine ('hash' or 'broadcast'). When not set, the strategy is chosen based
+        // on the estimated number of rows of the join inputs
+        public static final String JOIN_STRATEGY = "joinStrategy";
+        // Priority of the query when scheduling the operator chains of the multi-stage engine on the servers. Queries
+        // with a higher priority get a larger share of the query worker threads
+        public static final String SCHEDULER_PRIORITY = "schedulerPriority";
+        // Whether the multi-stage hash joins publish the keys of the build side to filter the probe side leaf stage.
+        // When not set, it is enabled based on the estimated number of rows of the join inputs
+        public static final String RUNTIME_FILTER = "runtimeFilter";
 
         // Handle IN predicate evaluation for big IN lists
         public static final String IN_PREDICATE_SORT_THRESHOLD = "inPredicateSortThreshold";
 
         public static final String DROP_RESULTS = "dropResults";
 
+        // Set to false to bypass the broker result cache for the query
+        public static final String USE_RESULT_CACHE = "useResultCache";
+        // Set to false to bypass the multi-stage query plan cache for the query
+        public static final String USE_PLAN_CACHE = "usePlanCache";
+
         // TODO: Remove these keys (only apply to PQL) after releasing 0.11.0
         @Deprecated
         public static final String PRESERVE_TYPE = "preserveType";